@@ -20,22 +20,19 @@ package boofcv.example;
 
 import boofcv.alg.depth.VisualDepthOps;
 import boofcv.io.image.UtilImageIO;
+import boofcv.io.points.UtilPointCloudIO;
 import boofcv.misc.BoofMiscOps;
 import boofcv.openkinect.UtilOpenKinect;
-import boofcv.struct.FastQueueArray_I32;
+import boofcv.struct.PackedPointCloud_F32;
 import boofcv.struct.calib.IntrinsicParameters;
 import boofcv.struct.image.ImageUInt16;
 import boofcv.struct.image.ImageUInt8;
 import boofcv.struct.image.MultiSpectral;
-import georegression.struct.point.Point3D_F64;
-import org.ddogleg.struct.FastQueue;
 
-import java.io.DataOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 
 /**
- * Loads kinect observations and saves a point cloud with rgb information to a file in a simple CSV format
+ * Loads kinect observations and saves a point cloud with rgb information to a binary PLY file
  *
  * @author Peter Abeles
  */
@@ -55,23 +52,11 @@ public class CreateRgbPointCloudFileApp {
 		UtilImageIO.loadPPM_U8(nameRgb, rgb, null);
 		UtilOpenKinect.parseDepth(nameDepth,depth,null);
 
-		FastQueue<Point3D_F64> cloud = new FastQueue<Point3D_F64>(Point3D_F64.class,true);
-		FastQueueArray_I32 cloudColor = new FastQueueArray_I32(3);
+		PackedPointCloud_F32 cloud = new PackedPointCloud_F32(true);
 
-		VisualDepthOps.depthTo3D(param, rgb, depth, cloud, cloudColor);
+		VisualDepthOps.depthTo3D(param, rgb, depth, cloud);
 
-		DataOutputStream file = new DataOutputStream(new FileOutputStream("kinect_pointcloud.txt"));
-
-		file.write("# Kinect RGB Point cloud. Units: millimeters. Format: X Y Z R G B\n".getBytes());
-
-		for( int i = 0; i < cloud.size; i++ ) {
-			Point3D_F64 p = cloud.get(i);
-			int[] color = cloudColor.get(i);
-
-			String line = String.format("%.10f %.10f %.10f %d %d %d\n",p.x,p.y,p.z,color[0],color[1],color[2]);
-			file.write(line.getBytes());
-		}
-		file.close();
+		UtilPointCloudIO.savePlyBinary(cloud, "kinect_pointcloud.ply");
 
 		System.out.println("Total points = "+cloud.size);
 	}
@@ -42,7 +42,7 @@ import java.util.List;
  * <ol>
  * <li>{@link #configure}</li> 
  * <li>{@link #reset}</li>
- * <li>{@link #addImage}</li>
+ * <li>{@link #addImage} or {@link #addImages}</li>
  * <li>{@link #process}</li>
  * <li>{@link #getIntrinsic}</li>
  * </ol>
@@ -132,35 +132,64 @@ public class CalibrateMonoPlanar {
 	 * @return true if a target was detected in the image or not
 	 */
 	public boolean addImage( ImageFloat32 image ) {
+		checkShape(image);
 
+		if( !detector.process(image) )
+			return false;
+
+		addObservation(detector.getPoints(), image.getHeight());
+		return true;
+	}
+
+	/**
+	 * Adds a set of views of the calibration target and detects the target in each image concurrently.
+	 * Views are added in the same order as the images and ones where detection failed are skipped.
+	 *
+	 * @param images Images of a calibration target
+	 * @param pool Detectors used to find the target in each image.
+	 * @return Array indicating which images a target was detected in
+	 */
+	public boolean[] addImages( List<ImageFloat32> images , PlanarCalibrationDetectorPool pool ) {
+		for( ImageFloat32 image : images )
+			checkShape(image);
+
+		List<List<Point2D_F64>> found = pool.process(images);
+
+		boolean success[] = new boolean[images.size()];
+		for( int i = 0; i < images.size(); i++ ) {
+			List<Point2D_F64> points = found.get(i);
+			if( points != null ) {
+				addObservation(points, images.get(i).getHeight());
+				success[i] = true;
+			}
+		}
+		return success;
+	}
+
+	private void checkShape( ImageFloat32 image ) {
 		if( widthImg == 0 ) {
 			widthImg = image.width;
 			heightImg = image.height;
 		} else if( widthImg != image.width || heightImg != image.height ) {
 			throw new IllegalArgumentException("All images must have the same shape");
 		}
+	}
 
-		if( !detector.process(image) )
-			return false;
-		else {
-			int h = image.getHeight();
-			List<Point2D_F64> points = detector.getPoints();
-			List<Point2D_F64> adjusted = new ArrayList<Point2D_F64>();
-
-			// make it so +y is pointed up not down, and becomes a right handed coordinate system
-			if(flipY) {
-				for( Point2D_F64 p : points ) {
-					Point2D_F64 a = new Point2D_F64(p.x,h-p.y-1);
-					adjusted.add(a);
-				}
-			} else {
-				adjusted.addAll(points);
-			}
+	private void addObservation( List<Point2D_F64> points , int h ) {
+		List<Point2D_F64> adjusted = new ArrayList<Point2D_F64>();
 
-			observations.add(points);
-			observationsAdj.add(adjusted);
-			return true;
+		// make it so +y is pointed up not down, and becomes a right handed coordinate system
+		if(flipY) {
+			for( Point2D_F64 p : points ) {
+				Point2D_F64 a = new Point2D_F64(p.x,h-p.y-1);
+				adjusted.add(a);
+			}
+		} else {
+			adjusted.addAll(points);
 		}
+
+		observations.add(points);
+		observationsAdj.add(adjusted);
 	}
 
 	/**
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.abst.calib;
+
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.struct.image.ImageFloat32;
+import georegression.struct.point.Point2D_F64;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detects calibration targets in a set of images concurrently.  Detectors are not thread safe so one
+ * is created for each block of images the first time it is needed and reused afterwards.  Results are
+ * returned in the same order as the input images, independent of the number of threads.
+ *
+ * @author Peter Abeles
+ */
+public abstract class PlanarCalibrationDetectorPool {
+
+	// minimum number of images processed by a single thread
+	private static final int MIN_IMAGES = 1;
+
+	// detector for each block of images
+	private List<PlanarCalibrationDetector> detectors = new ArrayList<PlanarCalibrationDetector>();
+
+	/**
+	 * Detects the calibration target in each image.
+	 *
+	 * @param images Images containing calibration targets.  Not modified.
+	 * @return Detected points for each image, in the same order as the images.  If detection failed the element
+	 * is null.
+	 */
+	public List<List<Point2D_F64>> process( final List<ImageFloat32> images ) {
+		int numBlocks = BoofConcurrency.computeBlockCount(0, images.size(), MIN_IMAGES);
+		while( detectors.size() < numBlocks )
+			detectors.add(createDetector());
+
+		final List<List<Point2D_F64>> results = new ArrayList<List<Point2D_F64>>();
+		for( int i = 0; i < images.size(); i++ )
+			results.add(null);
+
+		BoofConcurrency.loopBlocks(0, images.size(), MIN_IMAGES, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				PlanarCalibrationDetector detector = detectors.get(block);
+				for( int i = start; i < end; i++ ) {
+					if( detector.process(images.get(i)) ) {
+						// list is only written to at this index, which is safe since its size doesn't change
+						results.set(i, detector.getPoints());
+					}
+				}
+			}
+		});
+
+		return results;
+	}
+
+	/**
+	 * Creates a new instance of the detector
+	 */
+	protected abstract PlanarCalibrationDetector createDetector();
+}
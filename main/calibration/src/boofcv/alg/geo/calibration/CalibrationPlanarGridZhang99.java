@@ -69,8 +69,9 @@ public class CalibrationPlanarGridZhang99 {
 	// if true the intrinsic calibration matrix will have the skew parameter set to zero
 	private boolean assumeZeroSkew;
 
-	// optimization algorithm
+	// optimization algorithm.  if null the sparse optimizer is used
 	private UnconstrainedLeastSquares optimizer;
+	private Zhang99OptimizationSparse sparseOptimizer = new Zhang99OptimizationSparse(1e-12,500);
 
 	// provides information on calibration status
 	private Listener listener;
@@ -121,9 +122,29 @@ public class CalibrationPlanarGridZhang99 {
 
 		status("Non-linear refinement");
 		// perform non-linear optimization to improve results
-		if( !optimizedParam(observations,target.points,initial,optimized,optimizer))
+		if( optimizer == null ) {
+			if( !optimizedSparse(observations, initial) )
+				return false;
+		} else if( !optimizedParam(observations,target.points,initial,optimized,optimizer))
+			return false;
+
+		return true;
+	}
+
+	/**
+	 * Refines the initial estimate using {@link Zhang99OptimizationSparse}, which exploits the block structure
+	 * of the Jacobian and processes views concurrently.
+	 */
+	protected boolean optimizedSparse( List<List<Point2D_F64>> observations , Zhang99Parameters initial ) {
+		double param[] = new double[ initial.size() ];
+		initial.convertToParam(param);
+
+		sparseOptimizer.configure(initial.assumeZeroSkew, initial.distortion.length, target.points, observations);
+		sparseOptimizer.setListener(listener);
+		if( !sparseOptimizer.process(param) )
 			return false;
 
+		optimized.setFromParam(param);
 		return true;
 	}
 
@@ -275,7 +296,7 @@ public class CalibrationPlanarGridZhang99 {
 	}
 
 	/**
-	 * Specify which optimization algorithm to use
+	 * Specify which optimization algorithm to use.  If null then {@link Zhang99OptimizationSparse} is used.
 	 */
 	public void setOptimizer(UnconstrainedLeastSquares optimizer) {
 		this.optimizer = optimizer;
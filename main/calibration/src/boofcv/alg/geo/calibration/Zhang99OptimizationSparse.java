@@ -0,0 +1,660 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo.calibration;
+
+import boofcv.alg.geo.RodriguesRotationJacobian;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import georegression.geometry.RotationMatrixGenerator;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.so.Rodrigues_F64;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.LinearSolverFactory;
+import org.ejml.interfaces.linsol.LinearSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Levenberg-Marquardt optimization of Zhang99 calibration parameters which takes advantage of the Jacobian's
+ * block structure.  Residuals from a view only depend on the shared intrinsic parameters and that view's
+ * extrinsic parameters.  The normal equations are written as:
+ * </p>
+ * <pre>
+ * [ A   B ] [di]   [-gi]
+ * [ B'  D ] [dv] = [-gv]
+ * </pre>
+ * <p>
+ * where A is the small block for the intrinsic parameters, D is block diagonal with a 6x6 block for each view
+ * and B has a block for each view.  View parameters are eliminated using the Schur complement,
+ * S = A - B*inv(D)*B', then the intrinsic step is found by solving S*di = rhs and view steps by back
+ * substitution.  The full Jacobian is never declared.
+ * </p>
+ *
+ * <p>
+ * Residuals, Jacobian blocks and steps are computed for each view concurrently.  Per view results are
+ * summed in the same order each time so results don't depend on the number of threads.
+ * </p>
+ *
+ * <p>
+ * Parameters are encoded the same as {@link Zhang99Parameters#convertToParam(double[])}.  Unlike
+ * {@link Zhang99OptimizationJacobian}, the partials of the intrinsic parameters include radial distortion.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class Zhang99OptimizationSparse {
+
+	// minimum number of views processed by a single thread
+	private static final int MIN_VIEWS = 2;
+
+	// smallest diagonal element used when computing the damping term
+	private static final double MIN_DIAGONAL = 1e-9;
+
+	// should it assume the skew parameter is zero?
+	private boolean assumeZeroSkew;
+	// number of radial distortion parameters
+	private int numRadial;
+	// number of intrinsic parameters
+	private int K;
+
+	// location of points on the calibration grid.  z = 0
+	private double gridX[], gridY[];
+	// observations of the calibration grid in each view
+	private List<List<Point2D_F64>> observations;
+	private int numViews;
+
+	// convergence tolerance for the relative change in cost
+	private double ftol;
+	// maximum number of iterations
+	private int maxIterations;
+	// damping
+	private double lambda;
+	private double initialLambda = 1e-3;
+	// sum of squared residuals
+	private double cost;
+
+	// provides status updates and can request termination
+	private CalibrationPlanarGridZhang99.Listener listener;
+
+	// per view blocks of the normal equations: A_v = Ji'*Ji, B_v = Ji'*Jv, D_v = Jv'*Jv, gi_v = Ji'*r, gv_v = Jv'*r
+	private double viewA[] = new double[0];
+	private double viewB[] = new double[0];
+	private double viewD[] = new double[0];
+	private double viewGi[] = new double[0];
+	private double viewGv[] = new double[0];
+	private double viewCost[] = new double[0];
+	// per view contribution to the Schur complement and its right hand side
+	private double viewS[] = new double[0];
+	private double viewRhs[] = new double[0];
+	// inverse of each view's damped D block
+	private double viewDinv[] = new double[0];
+
+	// summed blocks for the intrinsic parameters
+	private double A[] = new double[0];
+	private double gi[] = new double[0];
+
+	// reduced system for the intrinsic parameters
+	private DenseMatrix64F S = new DenseMatrix64F(1,1);
+	private DenseMatrix64F rhs = new DenseMatrix64F(1,1);
+	private DenseMatrix64F di = new DenseMatrix64F(1,1);
+	private LinearSolver<DenseMatrix64F> solver;
+
+	// step and candidate parameters
+	private double step[] = new double[0];
+	private double candidate[] = new double[0];
+
+	// workspace for each block of views
+	private List<Workspace> workspaces = new ArrayList<Workspace>();
+
+	/**
+	 * Configures the optimizer
+	 *
+	 * @param ftol Convergence tolerance for the relative change in cost.  Try 1e-12
+	 * @param maxIterations Maximum number of iterations.
+	 */
+	public Zhang99OptimizationSparse( double ftol , int maxIterations ) {
+		this.ftol = ftol;
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Specifies the problem being optimized
+	 *
+	 * @param assumeZeroSkew Is the skew parameter assumed to be zero?
+	 * @param numRadial Number of radial distortion parameters
+	 * @param grid Location of points on the calibration target
+	 * @param observations Observed location of calibration points in each view, in the same order as grid.
+	 */
+	public void configure( boolean assumeZeroSkew , int numRadial ,
+						   List<Point2D_F64> grid , List<List<Point2D_F64>> observations ) {
+		this.assumeZeroSkew = assumeZeroSkew;
+		this.numRadial = numRadial;
+		this.observations = observations;
+		this.numViews = observations.size();
+		this.K = (assumeZeroSkew ? 4 : 5) + numRadial;
+
+		gridX = new double[grid.size()];
+		gridY = new double[grid.size()];
+		for( int i = 0; i < grid.size(); i++ ) {
+			gridX[i] = grid.get(i).x;
+			gridY[i] = grid.get(i).y;
+		}
+
+		for( int i = 0; i < numViews; i++ ) {
+			if( observations.get(i).size() != grid.size() )
+				throw new IllegalArgumentException("Each view must observe every grid point");
+		}
+
+		int N = K + 6*numViews;
+		if( viewA.length < numViews*K*K ) {
+			viewA = new double[numViews*K*K];
+			viewS = new double[numViews*K*K];
+		}
+		if( viewB.length < numViews*K*6 )
+			viewB = new double[numViews*K*6];
+		if( viewD.length < numViews*36 ) {
+			viewD = new double[numViews*36];
+			viewDinv = new double[numViews*36];
+		}
+		if( viewGi.length < numViews*K ) {
+			viewGi = new double[numViews*K];
+			viewRhs = new double[numViews*K];
+		}
+		if( viewGv.length < numViews*6 )
+			viewGv = new double[numViews*6];
+		if( viewCost.length < numViews )
+			viewCost = new double[numViews];
+		if( step.length < N ) {
+			step = new double[N];
+			candidate = new double[N];
+		}
+		A = new double[K*K];
+		gi = new double[K];
+		S.reshape(K,K);
+		rhs.reshape(K,1);
+		di.reshape(K,1);
+		solver = LinearSolverFactory.symmPosDef(K);
+
+		workspaces.clear();
+	}
+
+	/**
+	 * Optimizes the parameters
+	 *
+	 * @param param (Input/Output) Parameters encoded using {@link Zhang99Parameters#convertToParam(double[])}
+	 * @return true if successful
+	 */
+	public boolean process( double param[] ) {
+		int N = K + 6*numViews;
+
+		int numBlocks = BoofConcurrency.computeBlockCount(0, numViews, MIN_VIEWS);
+		while( workspaces.size() < numBlocks )
+			workspaces.add(new Workspace());
+
+		lambda = initialLambda;
+		double nu = 2;
+		cost = linearize(param);
+		if( Double.isNaN(cost) || Double.isInfinite(cost) )
+			return false;
+
+		for( int iteration = 0; iteration < maxIterations && cost > 0; iteration++ ) {
+			status("Iteration "+iteration+" cost "+cost);
+
+			if( !solveStep() ) {
+				lambda *= nu;
+				nu *= 2;
+				if( lambda > 1e16 )
+					break;
+				continue;
+			}
+
+			for( int i = 0; i < N; i++ ) {
+				candidate[i] = param[i] + step[i];
+			}
+
+			double candidateCost = computeCost(candidate);
+
+			if( candidateCost < cost ) {
+				// update the damping using the ratio of actual to predicted reduction, Nielsen's method
+				double predicted = predictedReduction();
+				double ratio = predicted > 0 ? (cost - candidateCost)/predicted : 1;
+				double tmp = 2*ratio - 1;
+				lambda *= Math.max(1.0/3.0, 1 - tmp*tmp*tmp);
+				lambda = Math.max(lambda, 1e-15);
+				nu = 2;
+
+				System.arraycopy(candidate, 0, param, 0, N);
+				boolean converged = cost - candidateCost <= ftol*cost;
+				cost = candidateCost;
+
+				if( converged )
+					break;
+
+				linearize(param);
+			} else {
+				lambda *= nu;
+				nu *= 2;
+				// no step can reduce the cost
+				if( lambda > 1e16 )
+					break;
+			}
+		}
+
+		return true;
+	}
+
+	private void status( String message ) {
+		if( listener != null ) {
+			if( !listener.zhangUpdate(message) )
+				throw new RuntimeException("User requested termination of calibration");
+		}
+	}
+
+	/**
+	 * Computes the normal equation blocks for each view and sums the intrinsic blocks
+	 *
+	 * @return sum of squared residuals
+	 */
+	private double linearize( final double param[] ) {
+		BoofConcurrency.loopBlocks(0, numViews, MIN_VIEWS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				Workspace w = workspaces.get(block);
+				w.setIntrinsic(param);
+				for( int view = start; view < end; view++ ) {
+					w.linearize(view, param);
+				}
+			}
+		});
+
+		for( int i = 0; i < K*K; i++ )
+			A[i] = 0;
+		for( int i = 0; i < K; i++ )
+			gi[i] = 0;
+
+		double total = 0;
+		for( int view = 0; view < numViews; view++ ) {
+			for( int i = 0; i < K*K; i++ )
+				A[i] += viewA[view*K*K+i];
+			for( int i = 0; i < K; i++ )
+				gi[i] += viewGi[view*K+i];
+			total += viewCost[view];
+		}
+		return total;
+	}
+
+	/**
+	 * Computes the sum of squared residuals
+	 */
+	private double computeCost( final double param[] ) {
+		BoofConcurrency.loopBlocks(0, numViews, MIN_VIEWS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				Workspace w = workspaces.get(block);
+				w.setIntrinsic(param);
+				for( int view = start; view < end; view++ ) {
+					viewCost[view] = w.cost(view, param);
+				}
+			}
+		});
+
+		double total = 0;
+		for( int view = 0; view < numViews; view++ )
+			total += viewCost[view];
+		return total;
+	}
+
+	/**
+	 * Solves the damped normal equations for the step
+	 *
+	 * @return true if successful
+	 */
+	private boolean solveStep() {
+		final boolean[] failed = new boolean[1];
+
+		// eliminate each view
+		BoofConcurrency.loopBlocks(0, numViews, MIN_VIEWS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				Workspace w = workspaces.get(block);
+				for( int view = start; view < end; view++ ) {
+					if( !w.eliminate(view) )
+						failed[0] = true;
+				}
+			}
+		});
+		if( failed[0] )
+			return false;
+
+		// reduced system for the intrinsic parameters
+		for( int i = 0; i < K; i++ ) {
+			for( int j = 0; j < K; j++ ) {
+				double v = A[i*K+j];
+				if( i == j )
+					v += lambda*Math.max(v, MIN_DIAGONAL);
+				S.data[i*K+j] = v;
+			}
+			rhs.data[i] = -gi[i];
+		}
+		for( int view = 0; view < numViews; view++ ) {
+			for( int i = 0; i < K*K; i++ )
+				S.data[i] -= viewS[view*K*K+i];
+			for( int i = 0; i < K; i++ )
+				rhs.data[i] += viewRhs[view*K+i];
+		}
+
+		if( !solver.setA(S) )
+			return false;
+		solver.solve(rhs, di);
+		System.arraycopy(di.data, 0, step, 0, K);
+
+		// back substitution, dv = inv(D)*(-gv - B'*di)
+		BoofConcurrency.loopBlocks(0, numViews, MIN_VIEWS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				double tmp[] = new double[6];
+				for( int view = start; view < end; view++ ) {
+					int indexB = view*K*6;
+					for( int i = 0; i < 6; i++ ) {
+						double sum = -viewGv[view*6+i];
+						for( int k = 0; k < K; k++ )
+							sum -= viewB[indexB+k*6+i]*di.data[k];
+						tmp[i] = sum;
+					}
+					int indexStep = K + view*6;
+					for( int i = 0; i < 6; i++ ) {
+						double sum = 0;
+						for( int j = 0; j < 6; j++ )
+							sum += viewDinv[view*36+i*6+j]*tmp[j];
+						step[indexStep+i] = sum;
+					}
+				}
+			}
+		});
+
+		return true;
+	}
+
+	/**
+	 * Reduction in the sum of squared residuals predicted by the linear model.  pred = -2*g'*d - d'*J'J*d.
+	 * Computed using the damped system, pred = -g'*d + lambda*d'*diag*d
+	 */
+	private double predictedReduction() {
+		double sum = 0;
+		for( int i = 0; i < K; i++ ) {
+			double d = step[i];
+			sum += -gi[i]*d + lambda*Math.max(A[i*K+i], MIN_DIAGONAL)*d*d;
+		}
+		for( int view = 0; view < numViews; view++ ) {
+			for( int i = 0; i < 6; i++ ) {
+				double d = step[K+view*6+i];
+				sum += -viewGv[view*6+i]*d + lambda*Math.max(viewD[view*36+i*7], MIN_DIAGONAL)*d*d;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Storage and functions for processing a block of views
+	 */
+	private class Workspace {
+		RodriguesRotationJacobian rodJacobian = new RodriguesRotationJacobian();
+		Rodrigues_F64 rodrigues = new Rodrigues_F64();
+		DenseMatrix64F R = new DenseMatrix64F(3,3);
+
+		// intrinsic parameters
+		double a,b,c,x0,y0;
+		double radial[] = new double[numRadial];
+
+		// partials of a residual pair
+		double jiX[] = new double[K], jiY[] = new double[K];
+		double jvX[] = new double[6], jvY[] = new double[6];
+
+		// damped D block and its inverse
+		DenseMatrix64F Dd = new DenseMatrix64F(6,6);
+		DenseMatrix64F Dinv = new DenseMatrix64F(6,6);
+		LinearSolver<DenseMatrix64F> solverD = LinearSolverFactory.symmPosDef(6);
+		// B*inv(D)
+		double E[] = new double[K*6];
+
+		void setIntrinsic( double param[] ) {
+			int index = 0;
+			a = param[index++];
+			b = param[index++];
+			c = assumeZeroSkew ? 0 : param[index++];
+			x0 = param[index++];
+			y0 = param[index++];
+			for( int i = 0; i < numRadial; i++ )
+				radial[i] = param[index++];
+		}
+
+		private void setView( int view , double param[] ) {
+			int index = K + view*6;
+			rodrigues.setParamVector(param[index], param[index+1], param[index+2]);
+			RotationMatrixGenerator.rodriguesToMatrix(rodrigues, R);
+		}
+
+		double cost( int view , double param[] ) {
+			setView(view, param);
+			int index = K + view*6;
+			double tx = param[index+3], ty = param[index+4], tz = param[index+5];
+
+			List<Point2D_F64> obs = observations.get(view);
+			double[] r = R.data;
+			double total = 0;
+
+			for( int i = 0; i < gridX.length; i++ ) {
+				double X = gridX[i], Y = gridY[i];
+				double px = r[0]*X + r[1]*Y + tx;
+				double py = r[3]*X + r[4]*Y + ty;
+				double pz = r[6]*X + r[7]*Y + tz;
+
+				double nx = px/pz, ny = py/pz;
+				double r2 = nx*nx + ny*ny;
+				double rr = r2, sum = 0;
+				for( int k = 0; k < numRadial; k++ ) {
+					sum += radial[k]*rr;
+					rr *= r2;
+				}
+				double dx = nx*(1+sum), dy = ny*(1+sum);
+
+				Point2D_F64 o = obs.get(i);
+				double ex = a*dx + c*dy + x0 - o.x;
+				double ey = b*dy + y0 - o.y;
+				total += ex*ex + ey*ey;
+			}
+			return total;
+		}
+
+		void linearize( int view , double param[] ) {
+			setView(view, param);
+			int index = K + view*6;
+			double rodX = param[index], rodY = param[index+1], rodZ = param[index+2];
+			double tx = param[index+3], ty = param[index+4], tz = param[index+5];
+			rodJacobian.process(rodX, rodY, rodZ);
+
+			int indexA = view*K*K, indexB = view*K*6, indexD = view*36;
+			int indexGi = view*K, indexGv = view*6;
+			for( int i = 0; i < K*K; i++ ) viewA[indexA+i] = 0;
+			for( int i = 0; i < K*6; i++ ) viewB[indexB+i] = 0;
+			for( int i = 0; i < 36; i++ ) viewD[indexD+i] = 0;
+			for( int i = 0; i < K; i++ ) viewGi[indexGi+i] = 0;
+			for( int i = 0; i < 6; i++ ) viewGv[indexGv+i] = 0;
+
+			List<Point2D_F64> obs = observations.get(view);
+			double[] r = R.data;
+			double total = 0;
+
+			for( int i = 0; i < gridX.length; i++ ) {
+				double X = gridX[i], Y = gridY[i];
+				double px = r[0]*X + r[1]*Y + tx;
+				double py = r[3]*X + r[4]*Y + ty;
+				double pz = r[6]*X + r[7]*Y + tz;
+
+				double nx = px/pz, ny = py/pz;
+				double r2 = nx*nx + ny*ny;
+
+				// radial distortion and its derivative with respect to r2
+				double rr = r2, rdev = 1, sum = 0, sumdot = 0;
+				for( int k = 0; k < numRadial; k++ ) {
+					sum += radial[k]*rr;
+					sumdot += radial[k]*(k+1)*rdev;
+					rr *= r2;
+					rdev *= r2;
+				}
+				double dx = nx*(1+sum), dy = ny*(1+sum);
+
+				Point2D_F64 o = obs.get(i);
+				double ex = a*dx + c*dy + x0 - o.x;
+				double ey = b*dy + y0 - o.y;
+				total += ex*ex + ey*ey;
+
+				// partials for intrinsic parameters
+				int k = 0;
+				jiX[k] = dx; jiY[k++] = 0;
+				jiX[k] = 0; jiY[k++] = dy;
+				if( !assumeZeroSkew ) {
+					jiX[k] = dy; jiY[k++] = 0;
+				}
+				jiX[k] = 1; jiY[k++] = 0;
+				jiX[k] = 0; jiY[k++] = 1;
+				rr = r2;
+				for( int j = 0; j < numRadial; j++ ) {
+					double ddx = nx*rr, ddy = ny*rr;
+					jiX[k] = a*ddx + c*ddy;
+					jiY[k++] = b*ddy;
+					rr *= r2;
+				}
+
+				// partials for extrinsic parameters through the point in the camera frame
+				partialView(0, rodJacobian.Rx, X, Y, nx, ny, pz, sum, sumdot);
+				partialView(1, rodJacobian.Ry, X, Y, nx, ny, pz, sum, sumdot);
+				partialView(2, rodJacobian.Rz, X, Y, nx, ny, pz, sum, sumdot);
+				partialPoint(3, 1, 0, 0, nx, ny, pz, sum, sumdot);
+				partialPoint(4, 0, 1, 0, nx, ny, pz, sum, sumdot);
+				partialPoint(5, 0, 0, 1, nx, ny, pz, sum, sumdot);
+
+				// add to the normal equations
+				for( int row = 0; row < K; row++ ) {
+					double vx = jiX[row], vy = jiY[row];
+					if( vx == 0 && vy == 0 )
+						continue;
+					for( int col = 0; col < K; col++ )
+						viewA[indexA+row*K+col] += vx*jiX[col] + vy*jiY[col];
+					for( int col = 0; col < 6; col++ )
+						viewB[indexB+row*6+col] += vx*jvX[col] + vy*jvY[col];
+					viewGi[indexGi+row] += vx*ex + vy*ey;
+				}
+				for( int row = 0; row < 6; row++ ) {
+					double vx = jvX[row], vy = jvY[row];
+					for( int col = 0; col < 6; col++ )
+						viewD[indexD+row*6+col] += vx*jvX[col] + vy*jvY[col];
+					viewGv[indexGv+row] += vx*ex + vy*ey;
+				}
+			}
+			viewCost[view] = total;
+		}
+
+		private void partialView( int which , DenseMatrix64F Rdot , double X , double Y ,
+								  double nx , double ny , double pz , double sum , double sumdot ) {
+			double[] d = Rdot.data;
+			partialPoint(which, d[0]*X + d[1]*Y, d[3]*X + d[4]*Y, d[6]*X + d[7]*Y, nx, ny, pz, sum, sumdot);
+		}
+
+		/**
+		 * Partial of the residuals given the partial of the point in the camera frame
+		 */
+		private void partialPoint( int which , double dpx , double dpy , double dpz ,
+								   double nx , double ny , double pz , double sum , double sumdot ) {
+			// normalized image coordinate
+			double dnx = (dpx - nx*dpz)/pz;
+			double dny = (dpy - ny*dpz)/pz;
+			// distorted coordinate
+			double dr2 = 2*(nx*dnx + ny*dny);
+			double ddx = (1+sum)*dnx + nx*sumdot*dr2;
+			double ddy = (1+sum)*dny + ny*sumdot*dr2;
+
+			jvX[which] = a*ddx + c*ddy;
+			jvY[which] = b*ddy;
+		}
+
+		/**
+		 * Computes the view's contribution to the Schur complement and right hand side
+		 */
+		boolean eliminate( int view ) {
+			int indexB = view*K*6, indexD = view*36;
+
+			for( int i = 0; i < 36; i++ )
+				Dd.data[i] = viewD[indexD+i];
+			for( int i = 0; i < 6; i++ ) {
+				double v = Dd.data[i*7];
+				Dd.data[i*7] = v + lambda*Math.max(v, MIN_DIAGONAL);
+			}
+
+			if( !solverD.setA(Dd) )
+				return false;
+			solverD.invert(Dinv);
+			System.arraycopy(Dinv.data, 0, viewDinv, indexD, 36);
+
+			// E = B*inv(D)
+			for( int row = 0; row < K; row++ ) {
+				for( int col = 0; col < 6; col++ ) {
+					double s = 0;
+					for( int j = 0; j < 6; j++ )
+						s += viewB[indexB+row*6+j]*Dinv.data[j*6+col];
+					E[row*6+col] = s;
+				}
+			}
+
+			// S_v = E*B' and rhs_v = E*gv
+			int indexS = view*K*K;
+			for( int row = 0; row < K; row++ ) {
+				for( int col = 0; col < K; col++ ) {
+					double s = 0;
+					for( int j = 0; j < 6; j++ )
+						s += E[row*6+j]*viewB[indexB+col*6+j];
+					viewS[indexS+row*K+col] = s;
+				}
+				double s = 0;
+				for( int j = 0; j < 6; j++ )
+					s += E[row*6+j]*viewGv[view*6+j];
+				viewRhs[view*K+row] = s;
+			}
+			return true;
+		}
+	}
+
+	public void setListener( CalibrationPlanarGridZhang99.Listener listener ) {
+		this.listener = listener;
+	}
+
+	public void setInitialLambda( double initialLambda ) {
+		this.initialLambda = initialLambda;
+	}
+
+	/**
+	 * Sum of squared residuals after optimization
+	 */
+	public double getCost() {
+		return cost;
+	}
+}
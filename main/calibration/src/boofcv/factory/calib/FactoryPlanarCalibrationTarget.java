@@ -58,6 +58,40 @@ public class FactoryPlanarCalibrationTarget {
 		return new WrapPlanarChessTarget(config);
 	}
 
+	/**
+	 * Creates a pool of square grid target detectors which process a set of images concurrently.
+	 *
+	 * @param config Configuration for square grid detector
+	 * @return Pool of square grid target detectors.
+	 */
+	public static PlanarCalibrationDetectorPool detectorPoolSquareGrid( final ConfigSquareGrid config ) {
+		config.checkValidity();
+
+		return new PlanarCalibrationDetectorPool() {
+			@Override
+			protected PlanarCalibrationDetector createDetector() {
+				return new WrapPlanarSquareGridTarget(config);
+			}
+		};
+	}
+
+	/**
+	 * Creates a pool of chessboard target detectors which process a set of images concurrently.
+	 *
+	 * @param config Configuration for chessboard detector
+	 * @return Pool of chessboard target detectors.
+	 */
+	public static PlanarCalibrationDetectorPool detectorPoolChessboard( final ConfigChessboard config ) {
+		config.checkValidity();
+
+		return new PlanarCalibrationDetectorPool() {
+			@Override
+			protected PlanarCalibrationDetector createDetector() {
+				return new WrapPlanarChessTarget(config);
+			}
+		};
+	}
+
 	/**
 	 * Creates a target that is composed of squares.  The squares are spaced out and each corner provides
 	 * a calibration point.
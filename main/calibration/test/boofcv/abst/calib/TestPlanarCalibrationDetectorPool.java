@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.abst.calib;
+
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.struct.image.ImageFloat32;
+import georegression.struct.point.Point2D_F64;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestPlanarCalibrationDetectorPool {
+
+	/**
+	 * Results should be in the same order as the input images and failures marked with null
+	 */
+	@Test
+	public void process() {
+		List<ImageFloat32> images = new ArrayList<ImageFloat32>();
+		for( int i = 0; i < 23; i++ ) {
+			ImageFloat32 image = new ImageFloat32(10,12);
+			image.set(0,0,i);
+			images.add(image);
+		}
+
+		int original = BoofConcurrency.getMaxThreads();
+		try {
+			for( int threads = 1; threads <= 4; threads += 3 ) {
+				BoofConcurrency.setMaxThreads(threads);
+				Pool pool = new Pool();
+				List<List<Point2D_F64>> found = pool.process(images);
+
+				assertEquals(images.size(), found.size());
+				for( int i = 0; i < images.size(); i++ ) {
+					if( i % 5 == 0 ) {
+						assertNull(found.get(i));
+					} else {
+						assertEquals(1, found.get(i).size());
+						assertEquals(i, found.get(i).get(0).x, 0);
+					}
+				}
+				assertTrue(pool.created <= threads);
+			}
+		} finally {
+			BoofConcurrency.setMaxThreads(original);
+		}
+	}
+
+	/**
+	 * Adding images with a pool should be the same as adding them one at a time
+	 */
+	@Test
+	public void addImages_compare() {
+		List<ImageFloat32> images = new ArrayList<ImageFloat32>();
+		for( int i = 0; i < 7; i++ ) {
+			ImageFloat32 image = new ImageFloat32(10,12);
+			image.set(0,0,i);
+			images.add(image);
+		}
+
+		CalibrateMonoPlanar expected = new CalibrateMonoPlanar(new Detector(),true);
+		CalibrateMonoPlanar found = new CalibrateMonoPlanar(new Detector(),true);
+
+		for( ImageFloat32 image : images )
+			expected.addImage(image);
+		boolean success[] = found.addImages(images, new Pool());
+
+		for( int i = 0; i < images.size(); i++ )
+			assertEquals(i % 5 != 0, success[i]);
+
+		assertEquals(expected.observationsAdj.size(), found.observationsAdj.size());
+		for( int i = 0; i < expected.observationsAdj.size(); i++ ) {
+			Point2D_F64 a = expected.observationsAdj.get(i).get(0);
+			Point2D_F64 b = found.observationsAdj.get(i).get(0);
+			assertEquals(a.x, b.x, 0);
+			assertEquals(a.y, b.y, 0);
+		}
+	}
+
+	private static class Pool extends PlanarCalibrationDetectorPool {
+		int created = 0;
+
+		@Override
+		protected PlanarCalibrationDetector createDetector() {
+			created++;
+			return new Detector();
+		}
+	}
+
+	/**
+	 * Uses the first pixel's value as the detected point and fails on every fifth image
+	 */
+	private static class Detector implements PlanarCalibrationDetector {
+		float value;
+
+		@Override
+		public boolean process(ImageFloat32 input) {
+			value = input.get(0,0);
+			return ((int)value) % 5 != 0;
+		}
+
+		@Override
+		public List<Point2D_F64> getPoints() {
+			List<Point2D_F64> ret = new ArrayList<Point2D_F64>();
+			ret.add(new Point2D_F64(value,2));
+			return ret;
+		}
+	}
+}
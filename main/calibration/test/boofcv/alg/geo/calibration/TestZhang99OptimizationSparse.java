@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo.calibration;
+
+import boofcv.concurrency.BoofConcurrency;
+import georegression.struct.point.Point2D_F64;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestZhang99OptimizationSparse {
+
+	Random rand = new Random(234);
+
+	PlanarCalibrationTarget config = GenericCalibrationGrid.createStandardConfig();
+	List<Point2D_F64> grid = config.points;
+
+	/**
+	 * Given perfect inputs it should stay at the solution
+	 */
+	@Test
+	public void perfect() {
+		for( int skew = 0; skew < 2; skew++ ) {
+			Zhang99Parameters expected = GenericCalibrationGrid.createStandardParam(skew==0,2,5,rand);
+			List<List<Point2D_F64>> observations = GenericCalibrationGrid.createObservations(expected, grid);
+
+			double param[] = new double[expected.size()];
+			expected.convertToParam(param);
+
+			Zhang99OptimizationSparse alg = new Zhang99OptimizationSparse(1e-12,200);
+			alg.configure(expected.assumeZeroSkew, 2, grid, observations);
+			assertTrue(alg.process(param));
+
+			Zhang99Parameters found = new Zhang99Parameters(expected.assumeZeroSkew,2,5);
+			found.setFromParam(param);
+
+			assertEquals(0, alg.getCost(), 1e-8);
+			assertEquals(expected.a, found.a, 1e-6);
+			assertEquals(expected.b, found.b, 1e-6);
+			assertEquals(expected.x0, found.x0, 1e-6);
+			assertEquals(expected.y0, found.y0, 1e-6);
+		}
+	}
+
+	/**
+	 * Perturb the intrinsic and extrinsic parameters then see if it converges back to the true solution
+	 */
+	@Test
+	public void noisy() {
+		Zhang99Parameters expected = GenericCalibrationGrid.createStandardParam(true,2,8,rand);
+		List<List<Point2D_F64>> observations = GenericCalibrationGrid.createObservations(expected, grid);
+
+		Zhang99Parameters initial = perturb(expected);
+		double param[] = new double[initial.size()];
+		initial.convertToParam(param);
+
+		Zhang99OptimizationSparse alg = new Zhang99OptimizationSparse(1e-12,500);
+		alg.configure(true, 2, grid, observations);
+		assertTrue(alg.process(param));
+
+		Zhang99Parameters found = new Zhang99Parameters(true,2,8);
+		found.setFromParam(param);
+
+		// the data is perfect so the residual should be essentially zero
+		assertEquals(0, alg.getCost(), 1e-4);
+		assertEquals(expected.a, found.a, Math.abs(expected.a)*1e-4);
+		assertEquals(expected.b, found.b, Math.abs(expected.b)*1e-4);
+		assertEquals(expected.x0, found.x0, Math.abs(expected.x0)*1e-4);
+		assertEquals(expected.y0, found.y0, Math.abs(expected.y0)*1e-4);
+		for( int i = 0; i < expected.distortion.length; i++ )
+			assertEquals(expected.distortion[i], found.distortion[i], 1e-5);
+		for( int i = 0; i < expected.views.length; i++ ) {
+			assertEquals(0, expected.views[i].T.distance(found.views[i].T), 1e-2);
+		}
+	}
+
+	/**
+	 * The number of threads should not change the solution
+	 */
+	@Test
+	public void threadInvariant() {
+		Zhang99Parameters expected = GenericCalibrationGrid.createStandardParam(false,2,12,rand);
+		List<List<Point2D_F64>> observations = GenericCalibrationGrid.createObservations(expected, grid);
+		Zhang99Parameters initial = perturb(expected);
+
+		double param1[] = new double[initial.size()];
+		double param4[] = new double[initial.size()];
+		initial.convertToParam(param1);
+		initial.convertToParam(param4);
+
+		int original = BoofConcurrency.getMaxThreads();
+		try {
+			Zhang99OptimizationSparse alg = new Zhang99OptimizationSparse(1e-12,50);
+			alg.configure(false, 2, grid, observations);
+
+			BoofConcurrency.setMaxThreads(1);
+			alg.process(param1);
+			BoofConcurrency.setMaxThreads(4);
+			alg.process(param4);
+		} finally {
+			BoofConcurrency.setMaxThreads(original);
+		}
+
+		for( int i = 0; i < param1.length; i++ )
+			assertEquals(param1[i], param4[i], 0);
+	}
+
+	/**
+	 * Request termination through the listener
+	 */
+	@Test
+	public void listenerTerminate() {
+		Zhang99Parameters expected = GenericCalibrationGrid.createStandardParam(true,2,3,rand);
+		List<List<Point2D_F64>> observations = GenericCalibrationGrid.createObservations(expected, grid);
+		Zhang99Parameters initial = perturb(expected);
+		double param[] = new double[initial.size()];
+		initial.convertToParam(param);
+
+		final int calls[] = new int[1];
+		Zhang99OptimizationSparse alg = new Zhang99OptimizationSparse(1e-12,500);
+		alg.configure(true, 2, grid, observations);
+		alg.setListener(new CalibrationPlanarGridZhang99.Listener() {
+			@Override
+			public boolean zhangUpdate(String taskName) {
+				return ++calls[0] < 3;
+			}
+		});
+
+		try {
+			alg.process(param);
+			fail("Should have been terminated");
+		} catch( RuntimeException ignore ) {}
+		assertEquals(3, calls[0]);
+	}
+
+	/**
+	 * Inconsistent number of observations should be caught
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void configure_badObservations() {
+		Zhang99Parameters expected = GenericCalibrationGrid.createStandardParam(true,2,3,rand);
+		List<List<Point2D_F64>> observations = GenericCalibrationGrid.createObservations(expected, grid);
+		observations.get(1).remove(0);
+
+		new Zhang99OptimizationSparse(1e-12,500).configure(true, 2, grid, observations);
+	}
+
+	private Zhang99Parameters perturb( Zhang99Parameters expected ) {
+		Zhang99Parameters initial = expected.copy();
+		initial.a *= 1.02;
+		initial.b *= 0.98;
+		initial.x0 += 3;
+		initial.y0 -= 2;
+		for( int i = 0; i < initial.distortion.length; i++ )
+			initial.distortion[i] = 0;
+		for( Zhang99Parameters.View v : initial.views ) {
+			v.T.x += rand.nextGaussian()*2;
+			v.T.y += rand.nextGaussian()*2;
+			v.T.z += rand.nextGaussian()*10;
+		}
+		return initial;
+	}
+}
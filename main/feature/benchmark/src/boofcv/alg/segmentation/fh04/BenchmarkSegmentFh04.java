@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.segmentation.fh04;
+
+import boofcv.alg.misc.GImageMiscOps;
+import boofcv.factory.segmentation.ConfigFh04;
+import boofcv.factory.segmentation.FactorySegmentationAlg;
+import boofcv.misc.PerformerBase;
+import boofcv.misc.ProfileOperation;
+import boofcv.struct.ConnectRule;
+import boofcv.struct.image.ImageSInt32;
+import boofcv.struct.image.ImageType;
+import boofcv.struct.image.ImageUInt8;
+import boofcv.struct.image.MultiSpectral;
+
+import java.util.Random;
+
+/**
+ * Compares the speed of the original and packed edge Felzenszwalb-Huttenlocher segmentation
+ *
+ * @author Peter Abeles
+ */
+public class BenchmarkSegmentFh04 {
+	static final long TEST_TIME = 2000;
+
+	int width = 1024;
+	int height = 768;
+
+	Random rand = new Random(234);
+
+	ImageType<MultiSpectral<ImageUInt8>> imageType = ImageType.ms(3, ImageUInt8.class);
+
+	MultiSpectral<ImageUInt8> input = imageType.createImage(width,height);
+	ImageSInt32 output = new ImageSInt32(width,height);
+
+	public void createImage() {
+		GImageMiscOps.fillUniform(input, rand, 0, 30);
+		for( int i = 0; i < 40; i++ ) {
+			int x0 = rand.nextInt(width-20), y0 = rand.nextInt(height-20);
+			int w = 10+rand.nextInt(width-x0-10), h = 10+rand.nextInt(height-y0-10);
+			GImageMiscOps.fillRectangle(input, 50+rand.nextInt(200), x0, y0, w, h);
+		}
+	}
+
+	public class Fh04 extends PerformerBase {
+
+		SegmentFelzenszwalbHuttenlocher04<MultiSpectral<ImageUInt8>> alg;
+
+		public Fh04() {
+			this(false);
+		}
+
+		protected Fh04( boolean packed ) {
+			ConfigFh04 config = new ConfigFh04(300,20,ConnectRule.EIGHT);
+			config.packed = packed;
+			alg = FactorySegmentationAlg.fh04(config, imageType);
+		}
+
+		@Override
+		public void process() {
+			alg.process(input,output);
+		}
+	}
+
+	public class Fh04Packed extends Fh04 {
+		public Fh04Packed() {
+			super(true);
+		}
+	}
+
+	public void performTests() {
+		createImage();
+
+		System.out.println("=========  Profile Image Size " + width + " x " + height + " ==========");
+		System.out.println();
+
+		ProfileOperation.printOpsPerSec(new Fh04(), TEST_TIME);
+		ProfileOperation.printOpsPerSec(new Fh04Packed(), TEST_TIME);
+	}
+
+	public static void main( String args[] ) {
+		BenchmarkSegmentFh04 benchmark = new BenchmarkSegmentFh04();
+		benchmark.performTests();
+	}
+}
@@ -138,7 +138,7 @@ public class DetectLineHoughPolar<I extends ImageSingleBand, D extends ImageSing
 			int numBinsRange = (int)Math.ceil(r/resolutionRange);
 			int numBinsAngle = (int)Math.ceil(Math.PI/resolutionAngle);
 
-			alg = new HoughTransformLinePolar(extractor,numBinsRange,numBinsAngle);
+			alg = createTransform(numBinsRange, numBinsAngle);
 			derivX.reshape(input.width,input.height);
 			derivY.reshape(input.width,input.height);
 			intensity.reshape(input.width,input.height);
@@ -163,7 +163,7 @@ public class DetectLineHoughPolar<I extends ImageSingleBand, D extends ImageSing
 
 		ThresholdImageOps.threshold(suppressed, binary, thresholdEdge, false);
 
-		alg.transform(binary);
+		computeTransform();
 		FastQueue<LineParametric2D_F32> lines = alg.extractLines();
 
 		List<LineParametric2D_F32> ret = new ArrayList<LineParametric2D_F32>();
@@ -175,6 +175,20 @@ public class DetectLineHoughPolar<I extends ImageSingleBand, D extends ImageSing
 		return ret;
 	}
 
+	/**
+	 * Creates the Hough transform for the specified number of bins
+	 */
+	protected HoughTransformLinePolar createTransform( int numBinsRange , int numBinsAngle ) {
+		return new HoughTransformLinePolar(extractor,numBinsRange,numBinsAngle);
+	}
+
+	/**
+	 * Computes the Hough transform from the binary edge image
+	 */
+	protected void computeTransform() {
+		alg.transform(binary);
+	}
+
 	private List<LineParametric2D_F32> pruneLines(I input, List<LineParametric2D_F32> ret) {
 		float intensity[] = alg.getFoundIntensity();
 		post.reset();
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.abst.feature.detect.line;
+
+
+import boofcv.abst.filter.derivative.ImageGradient;
+import boofcv.alg.feature.detect.edge.GGradientToEdgeFeatures;
+import boofcv.alg.feature.detect.line.HoughTransformLinePolar;
+import boofcv.alg.feature.detect.line.HoughTransformLinePolarParallel;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageSingleBand;
+
+/**
+ * <p>
+ * Variant of {@link DetectLineHoughPolar} which uses {@link HoughTransformLinePolarParallel} to compute the
+ * transform.  Votes can optionally be restricted to gradient consistent angles and the transform can be updated
+ * incrementally between frames.
+ * </p>
+ *
+ * @see HoughTransformLinePolarParallel
+ *
+ * @author Peter Abeles
+ */
+public class DetectLineHoughPolarParallel<I extends ImageSingleBand, D extends ImageSingleBand>
+		extends DetectLineHoughPolar<I,D>
+{
+	// maximum difference between the gradient and line normal
+	double angleTolerance;
+	// is the transform computed incrementally
+	boolean incremental;
+
+	// direction of the gradient
+	ImageFloat32 direction = new ImageFloat32(1,1);
+
+	/**
+	 * Configures hough line detector.
+	 *
+	 * @param localMaxRadius Radius for local maximum suppression.  Try 2.
+	 * @param minCounts Minimum number of counts for detected line.  Critical tuning parameter and image dependent.
+	 * @param resolutionRange Resolution of line range in pixels.  Try 2
+	 * @param resolutionAngle Resolution of line angle in radius.  Try PI/180
+	 * @param thresholdEdge Edge detection threshold. Try 50.
+	 * @param maxLines Maximum number of lines to return. If <= 0 it will return them all.
+	 * @param angleTolerance Only vote for lines within this tolerance of the gradient.  If &le; 0 then all
+	 *                       angles are voted for.  Try PI/18
+	 * @param incremental If true the transform is updated from the previous image.
+	 * @param gradient Algorithm for computing image gradient.
+	 */
+	public DetectLineHoughPolarParallel(int localMaxRadius,
+										int minCounts,
+										double resolutionRange,
+										double resolutionAngle,
+										float thresholdEdge,
+										int maxLines,
+										double angleTolerance,
+										boolean incremental,
+										ImageGradient<I, D> gradient)
+	{
+		super(localMaxRadius, minCounts, resolutionRange, resolutionAngle, thresholdEdge, maxLines, gradient);
+		this.angleTolerance = angleTolerance;
+		this.incremental = incremental;
+	}
+
+	@Override
+	protected HoughTransformLinePolar createTransform(int numBinsRange, int numBinsAngle) {
+		return new HoughTransformLinePolarParallel(extractor,numBinsRange,numBinsAngle,angleTolerance,incremental);
+	}
+
+	@Override
+	protected void computeTransform() {
+		HoughTransformLinePolarParallel alg = (HoughTransformLinePolarParallel)this.alg;
+
+		if( angleTolerance > 0 ) {
+			direction.reshape(derivX.width,derivX.height);
+			GGradientToEdgeFeatures.direction(derivX, derivY, direction);
+			alg.transform(binary,direction);
+		} else {
+			alg.transform(binary);
+		}
+	}
+}
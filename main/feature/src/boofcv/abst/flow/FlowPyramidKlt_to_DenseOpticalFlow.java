@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.abst.flow;
+
+import boofcv.abst.filter.derivative.ImageGradient;
+import boofcv.alg.flow.DenseOpticalFlowPyramidKlt;
+import boofcv.alg.transform.pyramid.PyramidOps;
+import boofcv.struct.flow.ImageFlow;
+import boofcv.struct.image.ImageSingleBand;
+import boofcv.struct.image.ImageType;
+import boofcv.struct.pyramid.PyramidDiscrete;
+
+/**
+ * Wrapper around {@link DenseOpticalFlowPyramidKlt} for {@link DenseOpticalFlow}.
+ *
+ * @author Peter Abeles
+ */
+public class FlowPyramidKlt_to_DenseOpticalFlow<I extends ImageSingleBand, D extends ImageSingleBand>
+	implements DenseOpticalFlow<I>
+{
+	DenseOpticalFlowPyramidKlt<I,D> flowKlt;
+	ImageGradient<I,D> gradient;
+
+	PyramidDiscrete<I> pyramidPrev;
+	PyramidDiscrete<I> pyramidCurr;
+
+	D[] derivX,derivY;
+	Class<D> derivType;
+
+	ImageType<I> imageType;
+
+	public FlowPyramidKlt_to_DenseOpticalFlow(DenseOpticalFlowPyramidKlt<I, D> flowKlt,
+											  ImageGradient<I, D> gradient,
+											  PyramidDiscrete<I> pyramidPrev,
+											  PyramidDiscrete<I> pyramidCurr,
+											  Class<I> inputType , Class<D> derivType ) {
+		this.flowKlt = flowKlt;
+		this.gradient = gradient;
+		this.pyramidPrev = pyramidPrev;
+		this.pyramidCurr = pyramidCurr;
+		this.derivType = derivType;
+
+		imageType = ImageType.single(inputType);
+	}
+
+	@Override
+	public void process(I source, I destination, ImageFlow flow) {
+		pyramidPrev.process(source);
+		pyramidCurr.process(destination);
+
+		if( derivX == null ) {
+			derivX = PyramidOps.declareOutput(pyramidPrev, derivType);
+			derivY = PyramidOps.declareOutput(pyramidPrev, derivType);
+		} else {
+			PyramidOps.reshapeOutput(pyramidPrev, derivX);
+			PyramidOps.reshapeOutput(pyramidPrev, derivY);
+		}
+		PyramidOps.gradient(pyramidPrev, gradient, derivX, derivY);
+
+		flowKlt.process(pyramidPrev,derivX,derivY,pyramidCurr,flow);
+	}
+
+	@Override
+	public ImageType<I> getInputType() {
+		return imageType;
+	}
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.feature.detect.edge;
+
+import boofcv.abst.filter.blur.BlurFilter;
+import boofcv.abst.filter.derivative.ImageGradient;
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.core.image.GeneralizedImageOps;
+import boofcv.factory.filter.blur.FactoryBlurFilter;
+import boofcv.factory.filter.derivative.FactoryDerivative;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageSInt8;
+import boofcv.struct.image.ImageSingleBand;
+import boofcv.struct.image.ImageUInt8;
+import georegression.struct.point.Point2D_I32;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Concurrent implementation of {@link CannyEdge}.  The image is split into bands of rows and the blur,
+ * gradient, edge intensity, direction and non-maximum suppression steps are computed inside of each band
+ * at the same time.  So that results are identical to the single threaded version each band is processed
+ * using a sub-image which is expanded by the radius of the filter and only the interior rows are copied
+ * into the output.
+ * </p>
+ *
+ * <p>
+ * Hysteresis thresholding is done concurrently by splitting the edges into independent jobs.
+ * {@link HysteresisEdgeMarkUnionFind} finds the 8-connected components of pixels which are &ge; the lower threshold.
+ * A tracer can only move between such pixels, so tracing from a seed never leaves the seed's component.  Each
+ * component's seeds are traced in raster order by {@link HysteresisEdgeTraceMark}, or
+ * {@link HysteresisEdgeTracePoints} if the contour's points are requested, and different components are traced at
+ * the same time.  Found contours are then put in the order of their seeds.  Thus the output is identical to
+ * {@link CannyEdge}.  If the upper threshold is less than the lower threshold a seed might not be inside of a
+ * component and tracing is done in a single thread.
+ * </p>
+ *
+ * <p>
+ * Optionally, when only the binary image is requested, tracing can be skipped and every pixel in a strong
+ * component marked.  This is faster but the output is a superset of {@link CannyEdge}'s.  Tracing
+ * only checks all 8-neighbors at the end points of a chain and will skip branches which split off from the
+ * middle of a chain.  Those branches are marked when tracing is skipped.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class CannyEdgeParallel<T extends ImageSingleBand, D extends ImageSingleBand> {
+
+	// minimum number of rows in each band
+	private static final int MIN_BAND = 16;
+
+	// radius of the blur kernel
+	private int blurRadius;
+	private Class<T> imageType;
+	private Class<D> derivType;
+
+	// filters and storage for each band since filters are not thread safe
+	private List<Band> bands = new ArrayList<Band>();
+
+	// blurred input image
+	private T blurred;
+
+	// image gradient
+	private D derivX;
+	private D derivY;
+
+	// edge intensity
+	private ImageFloat32 intensity = new ImageFloat32(1,1);
+	private ImageFloat32 suppressed = new ImageFloat32(1,1);
+	// edge direction in radians
+	private ImageFloat32 angle = new ImageFloat32(1,1);
+	// quantized direction
+	private ImageSInt8 direction = new ImageSInt8(1,1);
+	// finds the connected components which are traced independently
+	private HysteresisEdgeMarkUnionFind hysteresisMark = new HysteresisEdgeMarkUnionFind();
+	// should the contour's points be saved
+	private boolean saveTrace;
+	// should every pixel in strong components be marked instead of tracing
+	private boolean markComponents;
+
+	// tracing algorithm for each block of components.  Only the one for the requested output is used
+	private List<HysteresisEdgeTracePoints> tracePoints = new ArrayList<HysteresisEdgeTracePoints>();
+	private List<HysteresisEdgeTraceMark> traceMark = new ArrayList<HysteresisEdgeTraceMark>();
+
+	// pixels above the upper threshold in each band of rows, in raster order.  y*width + x
+	private List<GrowQueue_I32> bandSeeds = new ArrayList<GrowQueue_I32>();
+	// seeds sorted by component and then raster order.  (component << 32) | seed
+	private long sortedSeeds[] = new long[0];
+	// index of the first seed in each component plus the total number of seeds
+	private GrowQueue_I32 componentStart = new GrowQueue_I32();
+
+	// seed of each contour found by each block of components
+	private List<GrowQueue_I32> blockContourSeeds = new ArrayList<GrowQueue_I32>();
+	// contours from all the blocks and the key used to sort them, (seed << 32) | index
+	private List<EdgeContour> unsorted = new ArrayList<EdgeContour>();
+	private long contourKeys[] = new long[0];
+	// found contours in the same order as CannyEdge
+	private List<EdgeContour> contours = new ArrayList<EdgeContour>();
+
+	/**
+	 * Specify internal algorithms and behavior.  The image is blurred with a Gaussian kernel and the gradient
+	 * computed using a three tap kernel.
+	 *
+	 * @param blurRadius Radius of the Gaussian blur kernel.
+	 * @param imageType Type of input image.
+	 * @param derivType Type of image derivative.
+	 * @param saveTrace Should it save a list of points that compose the objects contour/trace?
+	 */
+	public CannyEdgeParallel( int blurRadius , Class<T> imageType , Class<D> derivType , boolean saveTrace ) {
+		this(blurRadius,imageType,derivType,saveTrace,false);
+	}
+
+	/**
+	 * Specify internal algorithms and behavior.  The image is blurred with a Gaussian kernel and the gradient
+	 * computed using a three tap kernel.
+	 *
+	 * @param blurRadius Radius of the Gaussian blur kernel.
+	 * @param imageType Type of input image.
+	 * @param derivType Type of image derivative.
+	 * @param saveTrace Should it save a list of points that compose the objects contour/trace?
+	 * @param markComponents If true and saveTrace is false, every pixel in a strong component is marked instead of
+	 *                       tracing the edges.  Faster but the output can differ from {@link CannyEdge}.
+	 */
+	public CannyEdgeParallel( int blurRadius , Class<T> imageType , Class<D> derivType , boolean saveTrace ,
+							  boolean markComponents ) {
+		this.blurRadius = blurRadius;
+		this.imageType = imageType;
+		this.derivType = derivType;
+
+		blurred = GeneralizedImageOps.createSingleBand(imageType, 1, 1);
+		derivX = GeneralizedImageOps.createSingleBand(derivType, 1, 1);
+		derivY = GeneralizedImageOps.createSingleBand(derivType, 1, 1);
+
+		this.saveTrace = saveTrace;
+		this.markComponents = markComponents && !saveTrace;
+	}
+
+	/**
+	 * <p>
+	 * Runs a canny edge detector on the input image given the provided thresholds.  If configured to save
+	 * a list of trace points then the output image is optional.
+	 * </p>
+	 *
+	 * @param input Input image. Not modified.
+	 * @param threshLow Lower threshold. >= 0.
+	 * @param threshHigh Upper threshold. >= 0.
+	 * @param output (Might be option) Output binary image.  Edge pixels are marked with 1 and everything else 0.
+	 */
+	public void process( final T input , float threshLow, float threshHigh , ImageUInt8 output ) {
+
+		if( threshLow < 0 || threshHigh < 0 )
+			throw new IllegalArgumentException("Threshold must be >= zero!");
+
+		if( !saveTrace ) {
+			if( output == null )
+				throw new IllegalArgumentException("An output image must be specified when configured to mark edge points");
+		}
+
+		// setup internal data structures
+		blurred.reshape(input.width,input.height);
+		derivX.reshape(input.width,input.height);
+		derivY.reshape(input.width,input.height);
+		intensity.reshape(input.width,input.height);
+		suppressed.reshape(input.width,input.height);
+		angle.reshape(input.width,input.height);
+		direction.reshape(input.width,input.height);
+
+		int numBands = BoofConcurrency.computeBlockCount(0, input.height, MIN_BAND);
+		while( bands.size() < numBands )
+			bands.add(new Band());
+
+		final int height = input.height;
+
+		// each step depends on the neighboring rows computed by the previous step
+		BoofConcurrency.loopBlocks(0, height, MIN_BAND, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				bands.get(block).blur(input, y0, y1);
+			}
+		});
+		BoofConcurrency.loopBlocks(0, height, MIN_BAND, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				bands.get(block).gradient(y0, y1);
+			}
+		});
+		BoofConcurrency.loopBlocks(0, height, MIN_BAND, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				bands.get(block).suppress(y0, y1);
+			}
+		});
+
+		if( markComponents ) {
+			hysteresisMark.process(suppressed, threshLow, threshHigh, output);
+			return;
+		}
+
+		if( threshHigh >= threshLow )
+			traceComponents(threshLow, threshHigh, output);
+		else
+			traceSerial(threshLow, threshHigh, output);
+
+		// if there is an output image write the contour to it
+		if( saveTrace && output != null ) {
+			ImageMiscOps.fill(output, 0);
+			for( EdgeContour e : contours ) {
+				for( EdgeSegment s : e.segments)
+					for( Point2D_I32 p : s.points )
+						output.unsafe_set(p.x,p.y,1);
+			}
+		}
+	}
+
+	/**
+	 * Traces the edges inside of each component concurrently
+	 */
+	private void traceComponents( final float threshLow , final float threshHigh , final ImageUInt8 output ) {
+		final int width = suppressed.width;
+
+		hysteresisMark.label(suppressed, threshLow, threshHigh);
+
+		// find the seeds in each band
+		int numBands = BoofConcurrency.computeBlockCount(0, suppressed.height, MIN_BAND);
+		while( bandSeeds.size() < numBands )
+			bandSeeds.add(new GrowQueue_I32());
+
+		BoofConcurrency.loopBlocks(0, suppressed.height, MIN_BAND, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				GrowQueue_I32 seeds = bandSeeds.get(block);
+				seeds.reset();
+				for( int y = y0; y < y1; y++ ) {
+					int indexS = suppressed.startIndex + y*suppressed.stride;
+					for( int x = 0; x < width; x++ , indexS++ ) {
+						if( suppressed.data[indexS] >= threshHigh )
+							seeds.add(y*width + x);
+					}
+				}
+			}
+		});
+
+		// group the seeds by component.  Inside of each component they remain in raster order
+		int numSeeds = 0;
+		for( int i = 0; i < numBands; i++ )
+			numSeeds += bandSeeds.get(i).size;
+		if( sortedSeeds.length < numSeeds )
+			sortedSeeds = new long[numSeeds];
+		int total = 0;
+		for( int i = 0; i < numBands; i++ ) {
+			GrowQueue_I32 seeds = bandSeeds.get(i);
+			for( int j = 0; j < seeds.size; j++ ) {
+				sortedSeeds[total++] = ((long)hysteresisMark.component(seeds.data[j]) << 32) | seeds.data[j];
+			}
+		}
+		Arrays.sort(sortedSeeds, 0, numSeeds);
+
+		componentStart.reset();
+		for( int i = 0; i < numSeeds; i++ ) {
+			if( i == 0 || (sortedSeeds[i] >> 32) != (sortedSeeds[i-1] >> 32) )
+				componentStart.add(i);
+		}
+		componentStart.add(numSeeds);
+		int numComponents = componentStart.size-1;
+
+		// trace each component independently
+		int numBlocks = BoofConcurrency.computeBlockCount(0, numComponents, 1);
+		while( tracePoints.size() < numBlocks ) {
+			tracePoints.add(new HysteresisEdgeTracePoints());
+			traceMark.add(new HysteresisEdgeTraceMark());
+			blockContourSeeds.add(new GrowQueue_I32());
+		}
+		for( int i = 0; i < numBlocks; i++ ) {
+			tracePoints.get(i).reset();
+			blockContourSeeds.get(i).reset();
+		}
+		if( !saveTrace )
+			ImageMiscOps.fill(output, 0);
+
+		BoofConcurrency.loopBlocks(0, numComponents, 1, new IntRangeTask() {
+			@Override
+			public void process(int block, int c0, int c1) {
+				HysteresisEdgeTracePoints points = tracePoints.get(block);
+				HysteresisEdgeTraceMark mark = traceMark.get(block);
+				GrowQueue_I32 contourSeeds = blockContourSeeds.get(block);
+
+				for( int i = componentStart.get(c0); i < componentStart.get(c1); i++ ) {
+					int seed = (int)sortedSeeds[i];
+					int x = seed % width, y = seed / width;
+					if( saveTrace ) {
+						if( points.traceSeed(suppressed, direction, threshLow, threshHigh, x, y) )
+							contourSeeds.add(seed);
+					} else {
+						mark.traceSeed(suppressed, direction, threshLow, threshHigh, output, x, y);
+					}
+				}
+			}
+		});
+
+		if( saveTrace )
+			sortContours(numBlocks);
+	}
+
+	/**
+	 * Puts the contours found by each block into the order their seeds are encountered in a raster scan
+	 */
+	private void sortContours( int numBlocks ) {
+		unsorted.clear();
+		for( int i = 0; i < numBlocks; i++ )
+			unsorted.addAll(tracePoints.get(i).getContours());
+
+		if( contourKeys.length < unsorted.size() )
+			contourKeys = new long[unsorted.size()];
+		int total = 0;
+		for( int i = 0; i < numBlocks; i++ ) {
+			GrowQueue_I32 seeds = blockContourSeeds.get(i);
+			for( int j = 0; j < seeds.size; j++ , total++ ) {
+				contourKeys[total] = ((long)seeds.data[j] << 32) | total;
+			}
+		}
+		Arrays.sort(contourKeys, 0, total);
+
+		contours.clear();
+		for( int i = 0; i < total; i++ ) {
+			contours.add(unsorted.get((int)contourKeys[i]));
+		}
+	}
+
+	/**
+	 * Seeds might not be inside of a component, so everything is traced in a single thread
+	 */
+	private void traceSerial( float threshLow , float threshHigh , ImageUInt8 output ) {
+		if( tracePoints.isEmpty() ) {
+			tracePoints.add(new HysteresisEdgeTracePoints());
+			traceMark.add(new HysteresisEdgeTraceMark());
+			blockContourSeeds.add(new GrowQueue_I32());
+		}
+
+		contours.clear();
+		if( saveTrace ) {
+			tracePoints.get(0).process(suppressed, direction, threshLow, threshHigh);
+			contours.addAll(tracePoints.get(0).getContours());
+		} else {
+			traceMark.get(0).process(suppressed, direction, threshLow, threshHigh, output);
+		}
+	}
+
+	/**
+	 * Found contours.  Only available if configured to save the trace.  Subject to modification the next time
+	 * process is called.
+	 */
+	public List<EdgeContour> getContours() {
+		return contours;
+	}
+
+	/**
+	 * Filters and storage used by a single band.  A band is processed by filtering a sub-image which
+	 * includes the filter's radius above and below the band, then copying the band's rows.
+	 */
+	private class Band {
+		BlurFilter<T> blur = FactoryBlurFilter.gaussian(imageType, -1, blurRadius);
+		ImageGradient<T,D> gradient = FactoryDerivative.three(imageType, derivType);
+
+		T tempBlur = GeneralizedImageOps.createSingleBand(imageType, 1, 1);
+		D tempX = GeneralizedImageOps.createSingleBand(derivType, 1, 1);
+		D tempY = GeneralizedImageOps.createSingleBand(derivType, 1, 1);
+		ImageFloat32 tempSuppressed = new ImageFloat32(1,1);
+
+		public void blur( T input , int y0 , int y1 ) {
+			int e0 = Math.max(0, y0 - blurRadius);
+			int e1 = Math.min(input.height, y1 + blurRadius);
+
+			tempBlur.reshape(input.width, e1 - e0);
+			blur.process((T)input.subimage(0, e0, input.width, e1, null), tempBlur);
+			blurred.subimage(0, y0, input.width, y1, null).setTo(tempBlur.subimage(0, y0 - e0, input.width, y1 - e0, null));
+		}
+
+		public void gradient( int y0 , int y1 ) {
+			int width = blurred.width;
+			int e0 = Math.max(0, y0 - 1);
+			int e1 = Math.min(blurred.height, y1 + 1);
+
+			tempX.reshape(width, e1 - e0);
+			tempY.reshape(width, e1 - e0);
+			gradient.process((T)blurred.subimage(0, e0, width, e1, null), tempX, tempY);
+
+			D bandX = (D)derivX.subimage(0, y0, width, y1, null);
+			D bandY = (D)derivY.subimage(0, y0, width, y1, null);
+			bandX.setTo(tempX.subimage(0, y0 - e0, width, y1 - e0, null));
+			bandY.setTo(tempY.subimage(0, y0 - e0, width, y1 - e0, null));
+
+			ImageFloat32 bandAngle = angle.subimage(0, y0, width, y1, null);
+			GGradientToEdgeFeatures.intensityAbs(bandX, bandY, intensity.subimage(0, y0, width, y1, null));
+			GGradientToEdgeFeatures.direction(bandX, bandY, bandAngle);
+			GradientToEdgeFeatures.discretizeDirection4(bandAngle, direction.subimage(0, y0, width, y1, null));
+		}
+
+		public void suppress( int y0 , int y1 ) {
+			int width = intensity.width;
+			int e0 = Math.max(0, y0 - 1);
+			int e1 = Math.min(intensity.height, y1 + 1);
+
+			tempSuppressed.reshape(width, e1 - e0);
+			GradientToEdgeFeatures.nonMaxSuppression4(intensity.subimage(0, e0, width, e1, null),
+					direction.subimage(0, e0, width, e1, null), tempSuppressed);
+			suppressed.subimage(0, y0, width, y1, null).setTo(tempSuppressed.subimage(0, y0 - e0, width, y1 - e0, null));
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.feature.detect.edge;
+
+import boofcv.alg.InputSanityCheck;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageUInt8;
+
+/**
+ * <p>
+ * Hysteresis thresholding formulated as a connected component problem so that it can be run concurrently.
+ * Pixels which are &ge; the lower threshold are connected to each other using an 8-connect rule with a
+ * union-find forest.  Any component which contains a pixel &ge; the upper threshold is marked in the output
+ * binary image.
+ * </p>
+ *
+ * <p>
+ * The image is split into bands of rows.  Components are found inside of each band concurrently, then the
+ * bands are merged together along their shared borders.  Finally strong components are found and the output
+ * image written, both of which are done concurrently.
+ * </p>
+ *
+ * <p>
+ * Along simple chains the output is identical to {@link HysteresisEdgeTraceMark}.  The tracing algorithm
+ * only checks all 8-neighbors at the end points of a chain, so it can skip branches which split off from the
+ * middle of a chain.  Those branches are marked by this algorithm.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class HysteresisEdgeMarkUnionFind {
+
+	// minimum number of rows in each band
+	private static final int MIN_BAND = 16;
+
+	// parent of each pixel in the union-find forest.  -1 if not an edge pixel
+	private int parent[] = new int[0];
+	// true if the root's component contains a pixel above the upper threshold
+	private boolean strong[] = new boolean[0];
+
+	// first row in each band
+	private int bandStart[] = new int[0];
+
+	/**
+	 * Performs hysteresis thresholding using the provided lower and upper thresholds.
+	 *
+	 * @param intensity Intensity image after edge non-maximum suppression has been applied.  Not modified.
+	 * @param lower Lower threshold.
+	 * @param upper Upper threshold.
+	 * @param output Output binary image. Modified.
+	 */
+	public void process( final ImageFloat32 intensity , final float lower , final float upper ,
+						 final ImageUInt8 output ) {
+		InputSanityCheck.checkSameShape(intensity, output);
+
+		label(intensity, lower, upper);
+
+		final int width = intensity.width;
+
+		// write the output image
+		BoofConcurrency.loopBlocks(0, intensity.height, MIN_BAND, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				for( int y = y0; y < y1; y++ ) {
+					int index = y*width;
+					int indexOut = output.startIndex + y*output.stride;
+					for( int x = 0; x < width; x++ , index++ , indexOut++ ) {
+						output.data[indexOut] = (byte)(parent[index] >= 0 && strong[root(index)] ? 1 : 0);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Finds the connected components of pixels which are &ge; the lower threshold and which of them contain a
+	 * pixel &ge; the upper threshold.  See {@link #component(int)}.
+	 *
+	 * @param intensity Intensity image after edge non-maximum suppression has been applied.  Not modified.
+	 * @param lower Lower threshold.
+	 * @param upper Upper threshold.
+	 */
+	public void label( final ImageFloat32 intensity , final float lower , final float upper ) {
+		if( lower < 0 )
+			throw new IllegalArgumentException("Lower must be >= 0!");
+
+		final int width = intensity.width;
+		final int height = intensity.height;
+		final int N = width*height;
+
+		if( parent.length < N ) {
+			parent = new int[N];
+			strong = new boolean[N];
+		}
+
+		int numBands = BoofConcurrency.computeBlockCount(0, height, MIN_BAND);
+		if( bandStart.length < numBands )
+			bandStart = new int[numBands];
+
+		// find connected components inside of each band
+		BoofConcurrency.loopBlocks(0, height, MIN_BAND, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				bandStart[block] = y0;
+				connectBand(intensity, lower, y0, y1);
+			}
+		});
+
+		// merge components along the borders between bands
+		for( int i = 1; i < numBands; i++ ) {
+			connectBorder(width, bandStart[i]);
+		}
+
+		// mark components which contain a strong pixel
+		BoofConcurrency.loopBlocks(0, height, MIN_BAND, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				for( int y = y0; y < y1; y++ ) {
+					int index = y*width;
+					int indexInten = intensity.startIndex + y*intensity.stride;
+					for( int x = 0; x < width; x++ , index++ , indexInten++ ) {
+						if( parent[index] >= 0 && intensity.data[indexInten] >= upper ) {
+							// several threads can write true to the same root, which is harmless
+							strong[root(index)] = true;
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns the ID of the component which contains the pixel, or -1 if the pixel is below the lower threshold.
+	 * Safe to call from multiple threads after {@link #label} has finished.
+	 *
+	 * @param index Index of the pixel, y*width + x
+	 */
+	public int component( int index ) {
+		return parent[index] < 0 ? -1 : root(index);
+	}
+
+	/**
+	 * Connects all the edge pixels inside of the rows y0 to y1-1.  Only pixels inside the band are examined
+	 * so bands can be processed at the same time.
+	 */
+	private void connectBand( ImageFloat32 intensity , float lower , int y0 , int y1 ) {
+		final int width = intensity.width;
+
+		for( int y = y0; y < y1; y++ ) {
+			int index = y*width;
+			int indexInten = intensity.startIndex + y*intensity.stride;
+
+			for( int x = 0; x < width; x++ , index++ , indexInten++ ) {
+				strong[index] = false;
+				if( intensity.data[indexInten] < lower ) {
+					parent[index] = -1;
+					continue;
+				}
+				parent[index] = index;
+
+				if( x > 0 && parent[index-1] >= 0 )
+					union(index, index-1);
+				if( y > y0 ) {
+					int above = index-width;
+					if( x > 0 && parent[above-1] >= 0 )
+						union(index, above-1);
+					if( parent[above] >= 0 )
+						union(index, above);
+					if( x < width-1 && parent[above+1] >= 0 )
+						union(index, above+1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Connects edge pixels in row y to their neighbors in the row above it
+	 */
+	private void connectBorder( int width , int y ) {
+		int index = y*width;
+		for( int x = 0; x < width; x++ , index++ ) {
+			if( parent[index] < 0 )
+				continue;
+			int above = index-width;
+			if( x > 0 && parent[above-1] >= 0 )
+				union(index, above-1);
+			if( parent[above] >= 0 )
+				union(index, above);
+			if( x < width-1 && parent[above+1] >= 0 )
+				union(index, above+1);
+		}
+	}
+
+	/**
+	 * Merges the two trees together.  The root with the smaller index becomes the new root.
+	 */
+	private void union( int a , int b ) {
+		int rootA = find(a);
+		int rootB = find(b);
+		if( rootA == rootB )
+			return;
+		if( rootA < rootB )
+			parent[rootB] = rootA;
+		else
+			parent[rootA] = rootB;
+	}
+
+	/**
+	 * Finds the tree's root and shortens the path to it using path halving.  Only called while the forest
+	 * is being constructed.
+	 */
+	private int find( int index ) {
+		while( parent[index] != index ) {
+			int next = parent[parent[index]];
+			parent[index] = next;
+			index = next;
+		}
+		return index;
+	}
+
+	/**
+	 * Finds the tree's root without modifying the forest, which makes it safe to call from multiple threads.
+	 */
+	private int root( int index ) {
+		while( parent[index] != index ) {
+			index = parent[index];
+		}
+		return index;
+	}
+}
@@ -89,6 +89,32 @@ public class HysteresisEdgeTraceMark {
 		}
 	}
 
+	/**
+	 * Traces the edge which starts at a single seed pixel, unless the seed is below the upper threshold or has
+	 * already been traversed.  Unlike {@link #process} the output image isn't cleared.  Only pixels which are
+	 * 8-connected to the seed through pixels &ge; the lower threshold are modified, so seeds in different
+	 * components can be traced at the same time by different instances.
+	 *
+	 * @param intensity Intensity image after edge non-maximum suppression has been applied.  Modified.
+	 * @param direction 4-direction image.  Not modified.
+	 * @param lower Lower threshold.
+	 * @param upper Upper threshold.
+	 * @param output Output binary image. Modified.
+	 * @param x x-coordinate of the seed
+	 * @param y y-coordinate of the seed
+	 */
+	public void traceSeed( ImageFloat32 intensity , ImageSInt8 direction , float lower , float upper ,
+						   ImageUInt8 output , int x , int y ) {
+		this.intensity = intensity;
+		this.direction = direction;
+		this.output = output;
+		this.lower = lower;
+
+		int indexInten = intensity.getIndex(x,y);
+		if( intensity.data[indexInten] >= upper )
+			trace(x,y,indexInten);
+	}
+
 	/**
 	 * Traces along object's contour starting at the specified seed.  As it does so it will set the intensity of
 	 * points which are below the lower threshold to zero and add points to contour.
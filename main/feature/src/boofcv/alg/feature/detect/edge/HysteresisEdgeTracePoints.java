@@ -82,8 +82,7 @@ public class HysteresisEdgeTracePoints {
 		this.intensity = intensity;
 		this.direction = direction;
 		this.lower = lower;
-		queuePoints.reset();
-		contours.clear();
+		reset();
 
 		// step through each pixel in the image
 		for( int y = 0; y < intensity.height; y++ ) {
@@ -98,6 +97,41 @@ public class HysteresisEdgeTracePoints {
 		}
 	}
 
+	/**
+	 * Discards all the contours which have been found
+	 */
+	public void reset() {
+		queuePoints.reset();
+		contours.clear();
+	}
+
+	/**
+	 * Traces the contour which starts at a single seed pixel, unless the seed is below the upper threshold or has
+	 * already been traversed.  Unlike {@link #process} previously found contours are not discarded, see
+	 * {@link #reset()}.  Only pixels which are 8-connected to the seed through pixels &ge; the lower threshold are
+	 * modified, so seeds in different components can be traced at the same time by different instances.
+	 *
+	 * @param intensity Intensity image after edge non-maximum suppression has been applied.  Modified.
+	 * @param direction 4-direction image.  Not modified.
+	 * @param lower Lower threshold.
+	 * @param upper Upper threshold.
+	 * @param x x-coordinate of the seed
+	 * @param y y-coordinate of the seed
+	 * @return true if a new contour was added
+	 */
+	public boolean traceSeed( ImageFloat32 intensity , ImageSInt8 direction , float lower , float upper ,
+							  int x , int y ) {
+		this.intensity = intensity;
+		this.direction = direction;
+		this.lower = lower;
+
+		int indexInten = intensity.getIndex(x,y);
+		if( intensity.data[indexInten] < upper )
+			return false;
+		trace(x,y,indexInten);
+		return true;
+	}
+
 	/**
 	 * Traces along object's contour starting at the specified seed.  As it does so it will set the intensity of
 	 * points which are below the lower threshold to zero and add points to contour.
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.feature.detect.line;
+
+
+import boofcv.abst.feature.detect.extract.NonMaxSuppression;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageUInt8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Concurrent version of {@link HoughTransformLinePolar}.  The rows of the binary image are split between threads
+ * and each thread votes into its own private accumulator.  The private accumulators are then summed together,
+ * with the parameter space split between threads.  Votes are stored as integers so that they can also be
+ * removed exactly.
+ * </p>
+ *
+ * <p>
+ * GRADIENT CONSISTENT: If the direction of each edge pixel's gradient is provided and an angle tolerance
+ * is specified, then an edge pixel only votes for lines whose normal is within the tolerance of its gradient.
+ * This significantly reduces the number of votes and the number of false positives.
+ * </p>
+ *
+ * <p>
+ * INCREMENTAL: In incremental mode the accumulator is not cleared between calls to {@link #transform}.  Instead
+ * the previous binary image is remembered and only pixels which changed have their votes removed or added.
+ * For mostly static scenes this is much faster.  Must be reset with {@link #reset()} if the images are
+ * not related to each other.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class HoughTransformLinePolarParallel extends HoughTransformLinePolar {
+
+	// maximum difference between line normal and gradient direction.  If <= 0 all angles are voted for
+	double angleTolerance;
+
+	// if true the accumulator is updated using the change from the previous image
+	boolean incremental;
+
+	// total number of votes in each bin
+	int accumulator[];
+
+	// private accumulator for each thread
+	List<int[]> workspace = new ArrayList<int[]>();
+
+	// previous input.  Only used in incremental mode
+	ImageUInt8 prevBinary = new ImageUInt8(1,1);
+	ImageFloat32 prevDirection = new ImageFloat32(1,1);
+	boolean hasPrevious = false;
+
+	// number of unique angle bins.  The first and last angle in the trig table are the same line
+	int numUniqueAngles;
+	// change in angle between bins
+	double deltaAngle;
+	// number of bins to each side of the gradient direction that are voted for
+	int angleRadius;
+
+	/**
+	 * Specifies parameters of transform.
+	 *
+	 * @param extractor Extracts local maxima from transform space.
+	 * @param numBinsRange How many bins are be used for line range.
+	 * @param numBinsAngle How many bins are used for angle.
+	 * @param angleTolerance Maximum difference in angle between the gradient and line normal, in radians.
+	 *                       If &le; 0 then every angle is voted for.
+	 * @param incremental If true then the transform is computed incrementally from the previous image.
+	 */
+	public HoughTransformLinePolarParallel(NonMaxSuppression extractor, int numBinsRange, int numBinsAngle,
+										   double angleTolerance , boolean incremental ) {
+		super(extractor, numBinsRange, numBinsAngle);
+		this.angleTolerance = angleTolerance;
+		this.incremental = incremental;
+
+		accumulator = new int[numBinsRange*numBinsAngle];
+		numUniqueAngles = Math.max(1,numBinsAngle-1);
+		deltaAngle = Math.PI/numUniqueAngles;
+		angleRadius = angleTolerance <= 0 ? -1 : (int)Math.ceil(angleTolerance/deltaAngle);
+	}
+
+	/**
+	 * Forgets the previous image.  The next call to {@link #transform} will recompute everything.
+	 */
+	public void reset() {
+		hasPrevious = false;
+	}
+
+	/**
+	 * Computes the Hough transform of the image.
+	 *
+	 * @param binary Binary image that indicates which pixels lie on edges.
+	 */
+	@Override
+	public void transform( ImageUInt8 binary ) {
+		transform(binary,null);
+	}
+
+	/**
+	 * Computes the Hough transform of the image.
+	 *
+	 * @param binary Binary image that indicates which pixels lie on edges.
+	 * @param direction Direction of the image gradient at each pixel, from -pi/2 to pi/2.  Only used if the
+	 *                  angle tolerance is &gt; 0.  Can be null.
+	 */
+	public void transform( final ImageUInt8 binary , final ImageFloat32 direction )
+	{
+		if( angleTolerance > 0 && direction == null )
+			throw new IllegalArgumentException("Direction must be provided when angle tolerance is used");
+
+		// start from scratch if the image size changed or not incremental
+		if( !incremental || binary.width != prevBinary.width || binary.height != prevBinary.height )
+			hasPrevious = false;
+
+		originX = binary.width/2;
+		originY = binary.height/2;
+		r_max = Math.sqrt(originX*originX+originY*originY);
+
+		final int N = accumulator.length;
+		final int numBlocks = BoofConcurrency.computeBlockCount(0,binary.height,8);
+		while( workspace.size() < numBlocks )
+			workspace.add(new int[N]);
+
+		// each thread votes into its own accumulator
+		BoofConcurrency.loopBlocks(0, binary.height, 8, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				int votes[] = workspace.get(block);
+				Arrays.fill(votes,0);
+				for( int y = y0; y < y1; y++ ) {
+					vote(binary, direction, y, votes);
+				}
+			}
+		});
+
+		if( !hasPrevious )
+			Arrays.fill(accumulator,0);
+
+		// sum the votes together
+		BoofConcurrency.loopBlocks(0, N, 1024, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				for( int i = 0; i < numBlocks; i++ ) {
+					int votes[] = workspace.get(i);
+					for( int j = start; j < end; j++ ) {
+						accumulator[j] += votes[j];
+					}
+				}
+				for( int j = start; j < end; j++ ) {
+					transform.data[j] = accumulator[j];
+				}
+			}
+		});
+
+		if( incremental ) {
+			prevBinary.reshape(binary.width,binary.height);
+			prevBinary.setTo(binary);
+			if( direction != null ) {
+				prevDirection.reshape(direction.width,direction.height);
+				prevDirection.setTo(direction);
+			}
+			hasPrevious = true;
+		}
+	}
+
+	/**
+	 * Adds and removes votes for a single row in the image.
+	 */
+	private void vote( ImageUInt8 binary , ImageFloat32 direction , int y , int votes[] ) {
+		int indexBinary = binary.startIndex + y*binary.stride;
+		int indexDir = direction == null ? 0 : direction.startIndex + y*direction.stride;
+		int indexPrev = y*prevBinary.stride;
+
+		for( int x = 0; x < binary.width; x++ , indexBinary++, indexDir++, indexPrev++ ) {
+			boolean curr = binary.data[indexBinary] != 0;
+			boolean prev = hasPrevious && prevBinary.data[indexPrev] != 0;
+
+			if( curr == prev ) {
+				// a pixel can be on in both images but still change its votes if the gradient changed
+				if( !curr || angleRadius < 0 )
+					continue;
+				int binCurr = angleBin(direction.data[indexDir]);
+				int binPrev = angleBin(prevDirection.data[indexPrev]);
+				if( binCurr == binPrev )
+					continue;
+				parameterize(x, y, binPrev, -1, votes);
+				parameterize(x, y, binCurr, 1, votes);
+			} else if( curr ) {
+				int bin = angleRadius < 0 ? -1 : angleBin(direction.data[indexDir]);
+				parameterize(x, y, bin, 1, votes);
+			} else {
+				int bin = angleRadius < 0 ? -1 : angleBin(prevDirection.data[indexPrev]);
+				parameterize(x, y, bin, -1, votes);
+			}
+		}
+	}
+
+	/**
+	 * Angle bin closest to the gradient's direction
+	 */
+	private int angleBin( float direction ) {
+		double theta = direction < 0 ? direction + Math.PI : direction;
+		return (int)Math.round(theta/deltaAngle) % numUniqueAngles;
+	}
+
+	/**
+	 * Converts the pixel coordinate into a line in parameter space and adds the votes
+	 *
+	 * @param centerBin Angle bin closest to the gradient direction.  If -1 then all angles are voted for.
+	 * @param amount The amount added to each bin.
+	 */
+	private void parameterize( int x , int y , int centerBin , int amount , int votes[] )
+	{
+		// put the point in a new coordinate system centered at the image's origin
+		x -= originX;
+		y -= originY;
+
+		if( centerBin < 0 ) {
+			for( int i = 0; i < transform.height; i++ ) {
+				voteBin(x, y, i, amount, votes);
+			}
+		} else {
+			for( int k = -angleRadius; k <= angleRadius; k++ ) {
+				int i = (centerBin + k + numUniqueAngles) % numUniqueAngles;
+				voteBin(x, y, i, amount, votes);
+				// the last angle is the same as the first
+				if( i == 0 && numUniqueAngles < transform.height )
+					voteBin(x, y, transform.height-1, amount, votes);
+			}
+		}
+	}
+
+	private void voteBin( int x , int y , int angleIndex , int amount , int votes[] ) {
+		int w2 = transform.width/2;
+		double p = x*tableTrig.c[angleIndex] + y*tableTrig.s[angleIndex];
+
+		int col = (int)Math.floor(p * w2 / r_max) + w2;
+		if( col >= transform.width )
+			col = transform.width-1;
+		votes[angleIndex*transform.width + col] += amount;
+	}
+
+	public double getAngleTolerance() {
+		return angleTolerance;
+	}
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.feature.detect.template;
+
+import boofcv.abst.transform.fft.DiscreteFourierTransform;
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.alg.transform.fft.DiscreteFourierTransformOps;
+import boofcv.alg.transform.ii.IntegralImageOps;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.core.image.GConvertImage;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageFloat64;
+import boofcv.struct.image.ImageSingleBand;
+import boofcv.struct.image.InterleavedF64;
+
+/**
+ * <p>
+ * Template matching which avoids a full sweep of the template for statistics which can be computed more
+ * efficiently.  The sum and sum of squares of each image window are looked up from integral images.  The only
+ * term which depends on both the image and the template is the cross-correlation, Sum<sub>(o,u)</sub> I(x+o,y+u)*T(o,u).
+ * For small templates it is computed directly with the image rows split between threads.  For large templates
+ * it is computed in the frequency domain using {@link DiscreteFourierTransformOps}.  Which approach is used is
+ * selected automatically using {@link #setFftCostRatio(double)}.
+ * </p>
+ *
+ * <p>
+ * The cross-correlation is computed against a zero mean version of the template to reduce numerical error in
+ * the frequency domain.  Produces the same results as the brute force implementations, e.g. {@link TemplateNCC} and
+ * {@link TemplateDiffSquared}, up to floating point round off error.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public abstract class TemplateIntensityFast<T extends ImageSingleBand>
+		implements TemplateMatchingIntensity<T>
+{
+	// Match intensity image
+	private ImageFloat32 intensity = new ImageFloat32(1,1);
+
+	// input image and template converted into floating point.  The template has its mean removed
+	protected ImageFloat32 image = new ImageFloat32(1,1);
+	protected ImageFloat32 template = new ImageFloat32(1,1);
+
+	// integral images of the input image and of the input image squared
+	protected ImageFloat64 integral = new ImageFloat64(1,1);
+	protected ImageFloat64 integralSq = new ImageFloat64(1,1);
+
+	// cross-correlation between the image and zero mean template.  Indexed by the template's top left corner
+	protected ImageFloat64 correlation = new ImageFloat64(1,1);
+
+	// template statistics
+	protected double area;
+	protected double templateMean;
+	// sum of (T - mean)^2
+	protected double templateVariance;
+
+	// used to compute the cross-correlation in the frequency domain
+	private DiscreteFourierTransform<ImageFloat64,InterleavedF64> dft =
+			DiscreteFourierTransformOps.createTransformF64();
+	private ImageFloat64 paddedTemplate = new ImageFloat64(1,1);
+	private InterleavedF64 fftImage = new InterleavedF64(1,1,2);
+	private InterleavedF64 fftTemplate = new InterleavedF64(1,1,2);
+
+	// the FFT is used when the template's area is more than this ratio times log2 of the image's area
+	private double fftCostRatio = 10;
+	// was the FFT used the last time process was called
+	private boolean usedFft;
+
+	// offset from pixel intensity coordinate to top left corner of template
+	private int offsetX;
+	private int offsetY;
+
+	// number of valid template positions along each axis
+	private int validWidth;
+	private int validHeight;
+
+	public TemplateIntensityFast() {
+		dft.setModifyInputs(true);
+	}
+
+	@Override
+	public void process(T image, T template) {
+		this.image.reshape(image.width,image.height);
+		this.template.reshape(template.width,template.height);
+		GConvertImage.convert(image,this.image);
+		GConvertImage.convert(template,this.template);
+
+		intensity.reshape(image.width, image.height);
+
+		offsetX = template.width / 2;
+		offsetY = template.height / 2;
+
+		// same region as BaseTemplateIntensity
+		validWidth = image.width - template.width;
+		validHeight = image.height - template.height;
+		if( validWidth <= 0 || validHeight <= 0 )
+			return;
+
+		setupTemplate();
+		computeIntegral();
+
+		double logArea = Math.log(image.width*(double)image.height)/Math.log(2);
+		usedFft = template.width*template.height > fftCostRatio*logArea;
+
+		if( usedFft )
+			correlationFft();
+		else
+			correlationDirect();
+
+		computeScores();
+	}
+
+	/**
+	 * Computes statistics of the template and removes its mean
+	 */
+	private void setupTemplate() {
+		area = template.width*template.height;
+
+		int N = template.width*template.height;
+		double total = 0;
+		for (int i = 0; i < N; i++) {
+			total += template.data[i];
+		}
+		templateMean = total/area;
+
+		templateVariance = 0;
+		for (int i = 0; i < N; i++) {
+			float v = (float)(template.data[i] - templateMean);
+			template.data[i] = v;
+			templateVariance += v*v;
+		}
+	}
+
+	/**
+	 * Computes the integral image of the input and input squared in a single pass.  Double precision is used
+	 * since the sum of squares of a large image will overflow the precision of a float.
+	 */
+	private void computeIntegral() {
+		integral.reshape(image.width,image.height);
+		integralSq.reshape(image.width,image.height);
+
+		for (int y = 0; y < image.height; y++) {
+			int index = y*image.width;
+			double rowSum = 0, rowSumSq = 0;
+			for (int x = 0; x < image.width; x++, index++) {
+				double v = image.data[index];
+				rowSum += v;
+				rowSumSq += v*v;
+
+				if( y > 0 ) {
+					integral.data[index] = integral.data[index-image.width] + rowSum;
+					integralSq.data[index] = integralSq.data[index-image.width] + rowSumSq;
+				} else {
+					integral.data[index] = rowSum;
+					integralSq.data[index] = rowSumSq;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the cross-correlation by sweeping the template across the image.  Rows are processed concurrently.
+	 */
+	private void correlationDirect() {
+		correlation.reshape(image.width,image.height);
+
+		BoofConcurrency.loopBlocks(0, validHeight, 8, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				for (int y = y0; y < y1; y++) {
+					int indexOut = y*correlation.width;
+					for (int x = 0; x < validWidth; x++) {
+						float total = 0;
+						for (int i = 0; i < template.height; i++) {
+							int indexImage = (y + i)*image.width + x;
+							int indexTemplate = i*template.width;
+							for (int j = 0; j < template.width; j++) {
+								total += image.data[indexImage++]*template.data[indexTemplate++];
+							}
+						}
+						correlation.data[indexOut++] = total;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Computes the cross-correlation in the frequency domain.  The template is padded with zeros to the
+	 * image's size.  The result is a circular correlation, which is identical to the linear correlation for
+	 * every valid template position.
+	 */
+	private void correlationFft() {
+		correlation.reshape(image.width,image.height);
+		paddedTemplate.reshape(image.width,image.height);
+		fftImage.reshape(image.width,image.height);
+		fftTemplate.reshape(image.width,image.height);
+
+		int N = image.width*image.height;
+		for (int i = 0; i < N; i++) {
+			correlation.data[i] = image.data[i];
+		}
+		ImageMiscOps.fill(paddedTemplate,0);
+		for (int y = 0; y < template.height; y++) {
+			for (int x = 0; x < template.width; x++) {
+				paddedTemplate.data[y*paddedTemplate.width+x] = template.data[y*template.width+x];
+			}
+		}
+
+		dft.forward(correlation,fftImage);
+		dft.forward(paddedTemplate,fftTemplate);
+		DiscreteFourierTransformOps.multiplyComplexConjB(fftImage,fftTemplate,fftImage);
+		dft.inverse(fftImage,correlation);
+	}
+
+	/**
+	 * Combines the cross-correlation with the window statistics to compute the final score.  Rows are processed
+	 * concurrently.
+	 */
+	private void computeScores() {
+		final int tw = template.width;
+		final int th = template.height;
+
+		BoofConcurrency.loopBlocks(0, validHeight, 8, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				for (int y = y0; y < y1; y++) {
+					int indexOut = intensity.startIndex + (y + offsetY)*intensity.stride + offsetX;
+					int indexCorr = y*correlation.width;
+					for (int x = 0; x < validWidth; x++) {
+						double sum = IntegralImageOps.block_zero(integral, x - 1, y - 1, x + tw - 1, y + th - 1);
+						double sumSq = IntegralImageOps.block_zero(integralSq, x - 1, y - 1, x + tw - 1, y + th - 1);
+
+						intensity.data[indexOut++] = computeScore(correlation.data[indexCorr++], sum, sumSq);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Computes the match score from the cross-correlation and the statistics of the image window.
+	 *
+	 * @param correlation Sum of image pixels times the zero mean template
+	 * @param sum Sum of the image window
+	 * @param sumSq Sum of the image window squared
+	 * @return match value with better matches having a more positive value
+	 */
+	protected abstract float computeScore( double correlation , double sum , double sumSq );
+
+	/**
+	 * Specifies when the FFT is used.  The FFT is used when the number of pixels in the template is more than
+	 * this ratio times log<sub>2</sub> of the number of pixels in the image.  Set to zero to always use the FFT
+	 * or to {@link Double#MAX_VALUE} to never use it.
+	 *
+	 * @param fftCostRatio Ratio of the cost of the direct approach versus the FFT.  Default is 10.
+	 */
+	public void setFftCostRatio(double fftCostRatio) {
+		this.fftCostRatio = fftCostRatio;
+	}
+
+	public double getFftCostRatio() {
+		return fftCostRatio;
+	}
+
+	/**
+	 * Returns true if the FFT was used the last time {@link #process} was called.
+	 */
+	public boolean isUsedFft() {
+		return usedFft;
+	}
+
+	@Override
+	public ImageFloat32 getIntensity() {
+		return intensity;
+	}
+
+	@Override
+	public boolean isBorderProcessed() {
+		return false;
+	}
+
+	@Override
+	public int getOffsetX() {
+		return offsetX;
+	}
+
+	@Override
+	public int getOffsetY() {
+		return offsetY;
+	}
+
+	/**
+	 * Normalized cross correlation.  Equivalent to {@link TemplateNCC}.
+	 */
+	public static class NCC<T extends ImageSingleBand> extends TemplateIntensityFast<T> {
+		@Override
+		protected float computeScore(double correlation, double sum, double sumSq) {
+			double imageSigma = Math.sqrt(Math.max(0, sumSq - sum*sum/area)/area);
+			double templateSigma = Math.sqrt(templateVariance/area);
+
+			// technically correlation should be divided by area, but that won't change the solution
+			return (float)(correlation/(imageSigma*templateSigma));
+		}
+	}
+
+	/**
+	 * Difference squared error.  Equivalent to {@link TemplateDiffSquared}.
+	 */
+	public static class DiffSquared<T extends ImageSingleBand> extends TemplateIntensityFast<T> {
+		@Override
+		protected float computeScore(double correlation, double sum, double sumSq) {
+			// Sum I*T with the mean added back into the template
+			double cross = correlation + templateMean*sum;
+			double templateSumSq = templateVariance + area*templateMean*templateMean;
+
+			return (float)-(sumSq - 2*cross + templateSumSq);
+		}
+	}
+}
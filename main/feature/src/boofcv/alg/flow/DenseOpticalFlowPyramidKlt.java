@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.flow;
+
+import boofcv.alg.tracker.klt.KltConfig;
+import boofcv.alg.tracker.klt.KltFeature;
+import boofcv.alg.tracker.klt.KltTrackFault;
+import boofcv.alg.tracker.klt.KltTracker;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.factory.tracker.FactoryTrackerAlg;
+import boofcv.struct.flow.ImageFlow;
+import boofcv.struct.image.ImageSingleBand;
+import boofcv.struct.pyramid.PyramidDiscrete;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Coarse to fine dense optical flow using {@link KltTracker}.  Flow is first computed at every pixel in the
+ * coarsest layer of a {@link PyramidDiscrete}.  At each finer layer the flow from the layer above is scaled up
+ * and used as the initial guess, which lets KLT converge for motions much larger than its region radius.  If
+ * tracking from the initial guess fails then tracking from zero motion is attempted.
+ * </p>
+ *
+ * <p>
+ * Each layer is split into bands of rows which are processed concurrently.  Each band has its own
+ * {@link KltTracker} since trackers are not thread safe.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class DenseOpticalFlowPyramidKlt<I extends ImageSingleBand, D extends ImageSingleBand> {
+
+	// used to create a tracker for each thread
+	private KltConfig config;
+	private Class<I> inputType;
+	private Class<D> derivType;
+
+	// radius of the KLT feature
+	private int radius;
+
+	// one tracker and feature for each block of rows
+	private List<KltTracker<I,D>> trackers = new ArrayList<KltTracker<I,D>>();
+	private List<KltFeature> features = new ArrayList<KltFeature>();
+
+	// flow for each layer in the pyramid
+	private List<ImageFlow> layerFlow = new ArrayList<ImageFlow>();
+
+	/**
+	 * Configures the algorithm
+	 *
+	 * @param config Configuration for KLT.  If null then default values are used.
+	 * @param radius Radius of the square region being tracked.
+	 * @param inputType Type of input image
+	 * @param derivType Type of derivative image
+	 */
+	public DenseOpticalFlowPyramidKlt(KltConfig config, int radius, Class<I> inputType, Class<D> derivType) {
+		this.config = config;
+		this.radius = radius;
+		this.inputType = inputType;
+		this.derivType = derivType;
+	}
+
+	/**
+	 * Computes the optical flow from prev to curr
+	 *
+	 * @param prev (Input) Pyramid of the previous image
+	 * @param prevDerivX (Input) x-derivative of each layer in the previous pyramid
+	 * @param prevDerivY (Input) y-derivative of each layer in the previous pyramid
+	 * @param curr (Input) Pyramid of the current image.  Must have the same scales as prev.
+	 * @param output (Output) Flow at each pixel in the input image
+	 */
+	public void process( PyramidDiscrete<I> prev , D[] prevDerivX , D[] prevDerivY ,
+						 PyramidDiscrete<I> curr , ImageFlow output ) {
+		int numLayers = prev.getNumLayers();
+
+		while( layerFlow.size() < numLayers )
+			layerFlow.add(new ImageFlow(1,1));
+
+		ImageFlow coarse = null;
+		double coarseScale = 0;
+		for( int layer = numLayers-1; layer >= 0; layer-- ) {
+			ImageFlow flow = layerFlow.get(layer);
+			flow.reshape(prev.getWidth(layer), prev.getHeight(layer));
+
+			processLayer(prev.getLayer(layer), prevDerivX[layer], prevDerivY[layer], curr.getLayer(layer),
+					coarse, coarseScale/prev.getScale(layer), flow);
+
+			coarse = flow;
+			coarseScale = prev.getScale(layer);
+		}
+
+		resample(coarse, coarseScale, output);
+	}
+
+	/**
+	 * Computes the flow for a single layer in the pyramid using the coarser layer for initial estimates
+	 *
+	 * @param coarse Flow in the coarser layer.  null if there is none.
+	 * @param ratio Scale of the coarse layer divided by the scale of this layer
+	 */
+	private void processLayer( final I prev , final D derivX , final D derivY , final I curr ,
+							   final ImageFlow coarse , final double ratio , final ImageFlow output ) {
+
+		int numBlocks = BoofConcurrency.computeBlockCount(0, prev.height, 4);
+		while( trackers.size() < numBlocks ) {
+			trackers.add(FactoryTrackerAlg.klt(config, inputType, derivType));
+			features.add(new KltFeature(radius));
+		}
+
+		BoofConcurrency.loopBlocks(0, prev.height, 4, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				KltTracker<I,D> tracker = trackers.get(block);
+				KltFeature feature = features.get(block);
+
+				for( int y = y0; y < y1; y++ ) {
+					int indexOut = y*output.width;
+					for( int x = 0; x < prev.width; x++ , indexOut++ ) {
+						ImageFlow.D flow = output.data[indexOut];
+						flow.valid = false;
+
+						tracker.unsafe_setImage(prev,derivX,derivY);
+						feature.setPosition(x,y);
+
+						if( !tracker.setDescription(feature) )
+							continue;
+
+						// derivX and derivY are not used, but can't be null for setImage()
+						tracker.unsafe_setImage(curr,derivX,derivY);
+
+						float guessX = 0, guessY = 0;
+						if( coarse != null ) {
+							int cx = Math.min((int)(x/ratio),coarse.width-1);
+							int cy = Math.min((int)(y/ratio),coarse.height-1);
+							ImageFlow.D c = coarse.data[cy*coarse.width+cx];
+							if( c.valid ) {
+								guessX = (float)(c.x*ratio);
+								guessY = (float)(c.y*ratio);
+							}
+						}
+
+						if( track(tracker,feature,x,y,guessX,guessY,flow) )
+							continue;
+
+						// fall back to the no motion hypothesis
+						if( guessX != 0 || guessY != 0 )
+							track(tracker,feature,x,y,0,0,flow);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Tracks the feature from the initial guess and saves the results if successful
+	 */
+	private static boolean track( KltTracker tracker , KltFeature feature , int x , int y ,
+								  float guessX , float guessY , ImageFlow.D flow ) {
+		feature.x = x + guessX;
+		feature.y = y + guessY;
+		KltTrackFault fault = tracker.track(feature);
+		if( fault == KltTrackFault.SUCCESS ) {
+			flow.x = feature.x-x;
+			flow.y = feature.y-y;
+			flow.valid = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Converts the flow in the finest layer into flow at the input image's resolution
+	 */
+	private void resample( ImageFlow layer , double scale , ImageFlow output ) {
+		if( scale == 1 && layer.width == output.width && layer.height == output.height ) {
+			int N = output.width*output.height;
+			for( int i = 0; i < N; i++ ) {
+				output.data[i].set(layer.data[i]);
+			}
+			return;
+		}
+
+		for( int y = 0; y < output.height; y++ ) {
+			int ly = Math.min((int)(y/scale),layer.height-1);
+			for( int x = 0; x < output.width; x++ ) {
+				int lx = Math.min((int)(x/scale),layer.width-1);
+				ImageFlow.D src = layer.data[ly*layer.width+lx];
+				ImageFlow.D dst = output.data[y*output.width+x];
+				dst.valid = src.valid;
+				dst.x = (float)(src.x*scale);
+				dst.y = (float)(src.y*scale);
+			}
+		}
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.robust;
+
+import org.ddogleg.fitting.modelset.DistanceFromModel;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Creates copies of a distance function using its no argument constructor.  Only suitable for distance
+ * functions which have no configuration.
+ *
+ * @author Peter Abeles
+ */
+public class CopyDistanceByClass<Model,Point> implements CopyDistanceFromModel<Model,Point> {
+
+	Class<DistanceFromModel<Model,Point>> type;
+
+	public CopyDistanceByClass(Class type) {
+		this.type = type;
+	}
+
+	@Override
+	public DistanceFromModel<Model, Point> create() {
+		try {
+			return type.getConstructor().newInstance();
+		} catch (InstantiationException e) {
+			throw new RuntimeException(e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		} catch (NoSuchMethodException e) {
+			throw new RuntimeException(e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void copyConfiguration(DistanceFromModel<Model, Point> original, DistanceFromModel<Model, Point> copy) {}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.robust;
+
+import org.ddogleg.fitting.modelset.ModelGenerator;
+
+/**
+ * Creates copies of a {@link ModelGenerator} so that hypotheses can be generated by several threads at once.
+ * Generators can have configuration which is changed after they have been constructed, e.g. the
+ * transform between stereo cameras, so the configuration of the original is copied into each copy before
+ * every use.
+ *
+ * @author Peter Abeles
+ */
+public interface CopyModelGenerator<Model,Point> {
+
+	/**
+	 * Creates a new instance of the generator which does not share any internal work space with
+	 * the original.
+	 *
+	 * @return New generator
+	 */
+	public ModelGenerator<Model,Point> create();
+
+	/**
+	 * Copies the configuration of the original generator into the copy.
+	 *
+	 * @param original The generator which was configured by the user. Not modified.
+	 * @param copy A generator which was created by {@link #create()}. Modified.
+	 */
+	public void copyConfiguration( ModelGenerator<Model,Point> original , ModelGenerator<Model,Point> copy );
+}
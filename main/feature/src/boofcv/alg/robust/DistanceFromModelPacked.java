@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.robust;
+
+import org.ddogleg.fitting.modelset.DistanceFromModel;
+
+/**
+ * {@link DistanceFromModel} which can also compute the distance for all points stored in {@link PackedPoints}
+ * at once.  The distance computed for each point must be identical to
+ * {@link #computeDistance(Object)}.
+ *
+ * @author Peter Abeles
+ */
+public interface DistanceFromModelPacked<Model,Point,Packed extends PackedPoints<Point>>
+		extends DistanceFromModel<Model,Point>
+{
+	/**
+	 * Creates a new storage for packed points which can be processed by this distance function
+	 */
+	public Packed createPacked();
+
+	/**
+	 * Computes the distance of every packed point from the model which was last specified.
+	 *
+	 * @param points Packed points. Not modified.
+	 * @param distance Storage for the distance of each point.  Must be at least points.size() long.
+	 */
+	public void computeDistance( Packed points , double[] distance );
+}
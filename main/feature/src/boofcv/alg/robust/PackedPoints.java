@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.robust;
+
+import java.util.List;
+
+/**
+ * Observations which have been copied out of their objects and into primitive arrays, one array for each
+ * coordinate.  Processing points stored this way avoids jumping around in memory and allows residuals to
+ * be computed in tight loops.
+ *
+ * @author Peter Abeles
+ */
+public interface PackedPoints<Point> {
+
+	/**
+	 * Discards the previous contents and copies the points into the internal arrays
+	 *
+	 * @param points Points which are to be packed. Not modified.
+	 */
+	public void setTo( List<Point> points );
+
+	/**
+	 * Number of points which are packed
+	 */
+	public int size();
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.robust;
+
+import org.ddogleg.fitting.modelset.ModelGenerator;
+import org.ddogleg.fitting.modelset.ModelManager;
+import org.ddogleg.fitting.modelset.ransac.Ransac;
+
+import java.util.List;
+
+/**
+ * {@link Ransac} which scores hypotheses using a {@link DistanceFromModelPacked}.  The input points are packed
+ * into arrays once and then each hypothesis is scored in a single call.  The samples drawn and hypotheses
+ * selected are the same as {@link Ransac}.
+ *
+ * @author Peter Abeles
+ */
+public class RansacPacked<Model,Point> extends Ransac<Model,Point> {
+
+	// distance function which can process packed points
+	protected DistanceFromModelPacked<Model,Point,PackedPoints<Point>> packedDistance;
+	// the input points after being packed
+	protected PackedPoints<Point> packed;
+	// storage for distance of each point
+	protected double[] distances = new double[0];
+
+	public RansacPacked(long randSeed, ModelManager<Model> manager,
+						ModelGenerator<Model, Point> modelGenerator,
+						DistanceFromModelPacked<Model, Point, ?> modelDistance,
+						int maxIterations, double thresholdFit) {
+		super(randSeed, manager, modelGenerator, modelDistance, maxIterations, thresholdFit);
+
+		this.packedDistance = (DistanceFromModelPacked)modelDistance;
+		this.packed = packedDistance.createPacked();
+	}
+
+	@Override
+	public void initialize(List<Point> dataSet) {
+		super.initialize(dataSet);
+
+		packed.setTo(dataSet);
+		if( distances.length < dataSet.size() )
+			distances = new double[dataSet.size()];
+	}
+
+	@Override
+	protected void selectMatchSet(List<Point> dataSet, double threshold, Model param) {
+		candidatePoints.clear();
+		packedDistance.setModel(param);
+		packedDistance.computeDistance(packed, distances);
+
+		for( int i = 0; i < dataSet.size(); i++ ) {
+			if( distances[i] < threshold ) {
+				matchToInput[candidatePoints.size()] = i;
+				candidatePoints.add(dataSet.get(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.robust;
+
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import org.ddogleg.fitting.modelset.DistanceFromModel;
+import org.ddogleg.fitting.modelset.ModelGenerator;
+import org.ddogleg.fitting.modelset.ModelManager;
+import org.ddogleg.fitting.modelset.ModelMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Variant of RANSAC which generates and scores hypotheses concurrently and stops early once enough hypotheses
+ * have been considered.  Hypotheses are processed in batches.  Inside a batch the samples are drawn by the
+ * calling thread, then the hypotheses are generated and scored at the same time using a separate copy of
+ * the generator and distance function for each thread.  If no way to copy the generator is provided then
+ * hypotheses are generated by the calling thread and only scoring is concurrent.  After each batch the number of iterations needed is updated using
+ * the standard adaptive stopping criteria:
+ * </p>
+ *
+ * <pre>
+ * k = log(1-p)/log(1-w<sup>s</sup>)
+ * </pre>
+ *
+ * <p>
+ * where p is the desired confidence, w is the fraction of inliers in the best hypothesis and s is the sample
+ * size.  Hypotheses are also preemptively scored on a small random subset of the points first.  If the
+ * number of inliers predicted from that subset is well below the best hypothesis found in previous batches,
+ * then it is discarded without scoring the remaining points.
+ * </p>
+ *
+ * <p>
+ * Results are deterministic for a given random seed and do not depend on the number of threads.  The batch
+ * size is fixed, ties are resolved in favor of the hypothesis which was generated first, and preemptive
+ * scoring only uses information from batches which have already finished.
+ * </p>
+ *
+ * <p>
+ * If the distance function implements {@link DistanceFromModelPacked} then the points are packed into arrays
+ * once and all the hypotheses are scored using the packed points.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class RansacParallel<Model,Point> implements ModelMatcher<Model,Point> {
+
+	// random number generator used to select samples
+	protected Random rand;
+
+	// creates and copies models
+	protected ModelManager<Model> manager;
+	// generates hypotheses from samples provided by the user. Used by the first block
+	protected ModelGenerator<Model,Point> modelGenerator;
+	// creates generators for the other blocks.  If null then hypotheses are generated by the calling thread
+	protected CopyModelGenerator<Model,Point> generatorCopier;
+	// generator used by each block
+	protected List<ModelGenerator<Model,Point>> blockGenerator = new ArrayList<ModelGenerator<Model,Point>>();
+	// distance function provided by the user. Used by the first block
+	protected DistanceFromModel<Model,Point> modelDistance;
+	// creates distance functions for the other blocks
+	protected CopyDistanceFromModel<Model,Point> copier;
+	// distance function used by each block
+	protected List<DistanceFromModel<Model,Point>> blockDistance = new ArrayList<DistanceFromModel<Model,Point>>();
+
+	// number of points in a sample
+	protected int sampleSize;
+	// maximum number of hypotheses which are considered
+	protected int maxIterations;
+	// points with a distance less than this are inliers
+	protected double thresholdFit;
+	// probability that at least one sample is composed entirely of inliers.  <= 0 to turn off early termination
+	protected double confidence = 0.99;
+	// number of hypotheses scored at the same time
+	protected int batchSize = 32;
+	// number of points in the preemptive subset.  <= 0 to turn off preemptive scoring
+	protected int preemptiveSize = 20;
+	// a hypothesis is discarded if its predicted inlier count is less than this fraction of the best
+	protected double preemptiveFraction = 0.5;
+
+	// storage for each hypothesis in the batch
+	protected List<Model> hypotheses = new ArrayList<Model>();
+	protected boolean[] hypothesisValid = new boolean[0];
+	protected int[] hypothesisInliers = new int[0];
+
+	// shuffled indexes of input points.  used to draw samples without replacement
+	protected int[] shuffle = new int[0];
+	// sample for each hypothesis in the batch
+	protected List<List<Point>> samples = new ArrayList<List<Point>>();
+	// subset of points used for preemptive scoring
+	protected List<Point> subset = new ArrayList<Point>();
+
+	// packed copies of the data set and subset.  null if the distance function can't process packed points
+	protected PackedPoints<Point> packedAll;
+	protected PackedPoints<Point> packedSubset;
+	// storage for distances computed from packed points in each block
+	protected List<double[]> blockBuffer = new ArrayList<double[]>();
+
+	// best hypothesis found so far
+	protected Model bestModel;
+	protected int bestInliers;
+	// inlier set of the best hypothesis
+	protected List<Point> bestMatchSet = new ArrayList<Point>();
+	protected int[] bestMatchToInput = new int[0];
+
+	// number of hypotheses which were generated in the last call to process
+	protected int totalHypotheses;
+
+	/**
+	 * Configures the algorithm.
+	 *
+	 * @param randSeed Seed for the random number generator
+	 * @param manager Creates and copies models
+	 * @param modelGenerator Creates a hypothesis from a minimal set of points
+	 * @param modelDistance Computes the distance of a point from the model
+	 * @param copier Creates copies of the distance function for each thread
+	 * @param maxIterations Maximum number of hypotheses which are considered
+	 * @param thresholdFit Points with a distance less than this are inliers
+	 */
+	public RansacParallel(long randSeed,
+						  ModelManager<Model> manager,
+						  ModelGenerator<Model, Point> modelGenerator,
+						  DistanceFromModel<Model, Point> modelDistance,
+						  CopyDistanceFromModel<Model, Point> copier,
+						  int maxIterations, double thresholdFit) {
+		this(randSeed,manager,modelGenerator,null,modelDistance,copier,maxIterations,thresholdFit);
+	}
+
+	/**
+	 * Configures the algorithm.
+	 *
+	 * @param randSeed Seed for the random number generator
+	 * @param manager Creates and copies models
+	 * @param modelGenerator Creates a hypothesis from a minimal set of points
+	 * @param generatorCopier Creates copies of the generator for each thread.  If null then hypotheses
+	 *                        are generated by the calling thread.
+	 * @param modelDistance Computes the distance of a point from the model
+	 * @param copier Creates copies of the distance function for each thread
+	 * @param maxIterations Maximum number of hypotheses which are considered
+	 * @param thresholdFit Points with a distance less than this are inliers
+	 */
+	public RansacParallel(long randSeed,
+						  ModelManager<Model> manager,
+						  ModelGenerator<Model, Point> modelGenerator,
+						  CopyModelGenerator<Model, Point> generatorCopier,
+						  DistanceFromModel<Model, Point> modelDistance,
+						  CopyDistanceFromModel<Model, Point> copier,
+						  int maxIterations, double thresholdFit) {
+		this.rand = new Random(randSeed);
+		this.manager = manager;
+		this.modelGenerator = modelGenerator;
+		this.generatorCopier = generatorCopier;
+		this.modelDistance = modelDistance;
+		this.copier = copier;
+		this.sampleSize = modelGenerator.getMinimumPoints();
+		this.maxIterations = maxIterations;
+		this.thresholdFit = thresholdFit;
+
+		bestModel = manager.createModelInstance();
+		blockGenerator.add(modelGenerator);
+		blockDistance.add(modelDistance);
+
+		if( modelDistance instanceof DistanceFromModelPacked ) {
+			packedAll = ((DistanceFromModelPacked)modelDistance).createPacked();
+			packedSubset = ((DistanceFromModelPacked)modelDistance).createPacked();
+		}
+	}
+
+	@Override
+	public boolean process(final List<Point> dataSet) {
+		totalHypotheses = 0;
+		bestInliers = 0;
+		bestMatchSet.clear();
+
+		final int N = dataSet.size();
+		if( N < sampleSize )
+			return false;
+
+		declareStorage(N);
+
+		// select the preemptive subset.  Only worth while if it is much smaller than the data set
+		subset.clear();
+		if( preemptiveSize > 0 && N > 2*preemptiveSize ) {
+			drawSample(dataSet, preemptiveSize, subset);
+		}
+
+		if( packedAll != null ) {
+			packedAll.setTo(dataSet);
+			packedSubset.setTo(subset);
+		}
+
+		int required = maxIterations;
+		while( totalHypotheses < required ) {
+			final int count = Math.min(batchSize, required - totalHypotheses);
+
+			// samples are drawn in the same order every time to ensure repeatable results
+			for( int i = 0; i < count; i++ ) {
+				drawSample(dataSet, sampleSize, samples.get(i));
+			}
+			if( generatorCopier == null ) {
+				for( int i = 0; i < count; i++ ) {
+					hypothesisValid[i] = modelGenerator.generate(samples.get(i), hypotheses.get(i));
+				}
+			}
+
+			final int bestPrevious = bestInliers;
+			BoofConcurrency.loopBlocks(0, count, 1, new IntRangeTask() {
+				@Override
+				public void process(int block, int start, int end) {
+					for( int i = start; i < end; i++ ) {
+						if( generatorCopier != null )
+							hypothesisValid[i] = blockGenerator.get(block).generate(samples.get(i), hypotheses.get(i));
+						if( hypothesisValid[i] )
+							hypothesisInliers[i] = score(block, hypotheses.get(i), dataSet, bestPrevious);
+						else
+							hypothesisInliers[i] = -1;
+					}
+				}
+			});
+
+			// select the best in the order the hypotheses were generated
+			for( int i = 0; i < count; i++ ) {
+				if( hypothesisInliers[i] > bestInliers ) {
+					bestInliers = hypothesisInliers[i];
+					manager.copyModel(hypotheses.get(i), bestModel);
+				}
+			}
+			totalHypotheses += count;
+
+			if( confidence > 0 && bestInliers > 0 ) {
+				required = Math.min(maxIterations, requiredIterations(bestInliers / (double) N));
+			}
+		}
+
+		if( bestInliers == 0 )
+			return false;
+
+		selectMatchSet(dataSet);
+		return true;
+	}
+
+	/**
+	 * Makes sure there is enough storage for each hypothesis and block.  The configuration of the user's
+	 * generator and distance function is copied into the other blocks.
+	 */
+	protected void declareStorage( int N ) {
+		while( hypotheses.size() < batchSize ) {
+			hypotheses.add(manager.createModelInstance());
+			samples.add(new ArrayList<Point>());
+		}
+		if( hypothesisValid.length < batchSize ) {
+			hypothesisValid = new boolean[batchSize];
+			hypothesisInliers = new int[batchSize];
+		}
+
+		if( shuffle.length < N ) {
+			shuffle = new int[N];
+			bestMatchToInput = new int[N];
+		}
+		for( int i = 0; i < N; i++ )
+			shuffle[i] = i;
+
+		int numBlocks = BoofConcurrency.computeBlockCount(0, batchSize, 1);
+		while( blockDistance.size() < numBlocks )
+			blockDistance.add(copier.create());
+		for( int i = 1; i < numBlocks; i++ )
+			copier.copyConfiguration(modelDistance, blockDistance.get(i));
+
+		if( generatorCopier != null ) {
+			while( blockGenerator.size() < numBlocks )
+				blockGenerator.add(generatorCopier.create());
+			for( int i = 1; i < numBlocks; i++ )
+				generatorCopier.copyConfiguration(modelGenerator, blockGenerator.get(i));
+		}
+
+		if( packedAll != null ) {
+			while( blockBuffer.size() < numBlocks )
+				blockBuffer.add(new double[0]);
+			for( int i = 0; i < numBlocks; i++ ) {
+				if( blockBuffer.get(i).length < N )
+					blockBuffer.set(i, new double[N]);
+			}
+		}
+	}
+
+	/**
+	 * Randomly selects points without replacement using a partial Fisher-Yates shuffle
+	 */
+	protected void drawSample( List<Point> dataSet , int size , List<Point> output ) {
+		output.clear();
+		int N = dataSet.size();
+		for( int i = 0; i < size; i++ ) {
+			int j = i + rand.nextInt(N - i);
+			int tmp = shuffle[i];
+			shuffle[i] = shuffle[j];
+			shuffle[j] = tmp;
+			output.add(dataSet.get(shuffle[i]));
+		}
+	}
+
+	/**
+	 * Counts the number of inliers for the hypothesis.  If the hypothesis is preemptively rejected then -1 is
+	 * returned.
+	 *
+	 * @param block Which block is scoring the hypothesis
+	 * @param bestPrevious Number of inliers in the best hypothesis from previous batches
+	 */
+	protected int score( int block , Model model , List<Point> dataSet , int bestPrevious ) {
+		DistanceFromModel<Model,Point> distance = blockDistance.get(block);
+		distance.setModel(model);
+
+		if( bestPrevious > 0 && subset.size() > 0 ) {
+			int count = countInliers(block, subset, packedSubset);
+			double predicted = count*dataSet.size()/(double)subset.size();
+			if( predicted < preemptiveFraction*bestPrevious )
+				return -1;
+		}
+
+		return countInliers(block, dataSet, packedAll);
+	}
+
+	private int countInliers( int block , List<Point> points , PackedPoints<Point> packed ) {
+		DistanceFromModel<Model,Point> distance = blockDistance.get(block);
+		int total = 0;
+		if( packed != null ) {
+			double[] buffer = blockBuffer.get(block);
+			((DistanceFromModelPacked)distance).computeDistance(packed, buffer);
+			for( int i = 0; i < points.size(); i++ ) {
+				if( buffer[i] < thresholdFit )
+					total++;
+			}
+		} else {
+			for( int i = 0; i < points.size(); i++ ) {
+				if( distance.computeDistance(points.get(i)) < thresholdFit )
+					total++;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Number of hypotheses needed to select a sample which is composed entirely of inliers with the
+	 * specified confidence.
+	 *
+	 * @param inlierFraction Fraction of points which are inliers
+	 */
+	protected int requiredIterations( double inlierFraction ) {
+		double w = Math.pow(inlierFraction, sampleSize);
+		if( w >= 1.0 )
+			return 1;
+		double denominator = Math.log1p(-w);
+		if( denominator == 0 )
+			return Integer.MAX_VALUE;
+		double k = Math.log(1.0 - confidence)/denominator;
+		if( k >= Integer.MAX_VALUE )
+			return Integer.MAX_VALUE;
+		return Math.max(1,(int)Math.ceil(k));
+	}
+
+	/**
+	 * Finds the inliers of the best hypothesis
+	 */
+	protected void selectMatchSet( List<Point> dataSet ) {
+		bestMatchSet.clear();
+		modelDistance.setModel(bestModel);
+		for( int i = 0; i < dataSet.size(); i++ ) {
+			Point p = dataSet.get(i);
+			if( modelDistance.computeDistance(p) < thresholdFit ) {
+				bestMatchToInput[bestMatchSet.size()] = i;
+				bestMatchSet.add(p);
+			}
+		}
+	}
+
+	@Override
+	public Model getModelParameters() {
+		return bestModel;
+	}
+
+	@Override
+	public List<Point> getMatchSet() {
+		return bestMatchSet;
+	}
+
+	@Override
+	public int getInputIndex(int matchIndex) {
+		return bestMatchToInput[matchIndex];
+	}
+
+	@Override
+	public double getFitQuality() {
+		return bestMatchSet.size();
+	}
+
+	@Override
+	public int getMinimumSize() {
+		return sampleSize;
+	}
+
+	/**
+	 * Number of hypotheses which were generated during the most recent call to {@link #process(java.util.List)}
+	 */
+	public int getTotalHypotheses() {
+		return totalHypotheses;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	public double getThresholdFit() {
+		return thresholdFit;
+	}
+
+	public void setThresholdFit(double thresholdFit) {
+		this.thresholdFit = thresholdFit;
+	}
+
+	public double getConfidence() {
+		return confidence;
+	}
+
+	/**
+	 * Probability that at least one sample is composed entirely of inliers.  Used to stop early.
+	 *
+	 * @param confidence Value from 0 to 1, exclusive.  Set to a value &le; 0 to always use the maximum number of
+	 *                   iterations.
+	 */
+	public void setConfidence(double confidence) {
+		if( confidence >= 1 )
+			throw new IllegalArgumentException("Confidence must be less than one");
+		this.confidence = confidence;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Number of hypotheses which are scored at the same time.  Changing the batch size changes the results.
+	 */
+	public void setBatchSize(int batchSize) {
+		if( batchSize <= 0 )
+			throw new IllegalArgumentException("Batch size must be at least one");
+		this.batchSize = batchSize;
+	}
+
+	public int getPreemptiveSize() {
+		return preemptiveSize;
+	}
+
+	/**
+	 * Number of points in the preemptive subset.  Set to a value &le; 0 to turn off preemptive scoring.
+	 */
+	public void setPreemptiveSize(int preemptiveSize) {
+		this.preemptiveSize = preemptiveSize;
+	}
+
+	public double getPreemptiveFraction() {
+		return preemptiveFraction;
+	}
+
+	/**
+	 * A hypothesis is discarded if the number of inliers predicted from the preemptive subset is less than this
+	 * fraction of the best hypothesis' inliers.
+	 */
+	public void setPreemptiveFraction(double preemptiveFraction) {
+		this.preemptiveFraction = preemptiveFraction;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.segmentation.fh04;
+
+import boofcv.struct.image.ImageBase;
+
+/**
+ * Computes edge weights for {@link SegmentFelzenszwalbHuttenlocher04Packed}.  Edges are not explicitly saved.
+ * Instead each pixel has a fixed number of edges which connect it to the neighbors below and to the right
+ * of it, and the weight of each edge is written into an array.  Edge 'k' of pixel (x,y) is stored at
+ * index (y*width + x)*{@link #getEdgesPerPixel()} + k.  The neighbor of each edge is:
+ * <ul>
+ * <li>k = 0 : (x+1,y)</li>
+ * <li>k = 1 : (x,y+1)</li>
+ * <li>k = 2 : (x+1,y+1)  8-connect only</li>
+ * <li>k = 3 : (x-1,y+1)  8-connect only</li>
+ * </ul>
+ * Edges which have a neighbor outside of the image are given a weight of -1.
+ *
+ * @author Peter Abeles
+ */
+public interface FhPackedEdgeWeights<T extends ImageBase> {
+
+	/**
+	 * Computes the weight of all the edges for pixels in the specified rows.  Different threads can process
+	 * different rows at the same time.
+	 *
+	 * @param input Input image
+	 * @param y0 First row, inclusive
+	 * @param y1 Last row, exclusive
+	 * @param weights Storage for edge weights.  Must have width*height*edgesPerPixel elements.
+	 */
+	public void process( T input , int y0 , int y1 , float weights[] );
+
+	/**
+	 * Number of edges for each pixel.  2 for a 4-connect rule and 4 for 8-connect.
+	 */
+	public int getEdgesPerPixel();
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.segmentation.fh04;
+
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Sorts edges by their weight using a least significant digit radix sort.  The input is an array of edge weights
+ * and the output is an array of edge indexes in order of increasing weight.  Negative weights mark edges which
+ * don't exist and are skipped.  Since the weights are not negative the bits of a float can be sorted as
+ * an integer.  Three passes of 11-bits each are used.
+ * </p>
+ *
+ * <p>
+ * Each pass is done concurrently by splitting the input into contiguous blocks.  Every block computes a histogram
+ * of its digits, which is used to find where each block writes its elements.  The sort is stable, so the
+ * output is the same no matter how many threads are used.  The first pass reads the weights directly, later
+ * passes read the weight of each index.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class RadixSortEdges {
+	// number of bits in each digit
+	private static final int BITS = 11;
+	private static final int RADIX = 1 << BITS;
+	private static final int MASK = RADIX-1;
+	// minimum number of elements processed by a block
+	private static final int MIN_BLOCK = 20000;
+
+	// histogram of digits for each block
+	private List<int[]> histograms = new ArrayList<int[]>();
+
+	// sorted indexes and work space
+	private int sorted[] = new int[0];
+	private int work[] = new int[0];
+	// number of sorted elements
+	private int size;
+
+	/**
+	 * Sorts the edges by weight
+	 *
+	 * @param weights Weight of each edge.  Edges with negative weights are skipped.  Not modified.
+	 * @param length Number of elements in weights
+	 */
+	public void sort( final float weights[] , int length ) {
+		// first pass.  Indexes are implicit
+		int numBlocks = declareHistograms(length);
+		BoofConcurrency.loopBlocks(0, length, MIN_BLOCK, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				int hist[] = histograms.get(block);
+				for( int i = i0; i < i1; i++ ) {
+					float w = weights[i];
+					if( !(w < 0) )
+						hist[Float.floatToRawIntBits(w) & MASK]++;
+				}
+			}
+		});
+
+		size = computeOffsets(numBlocks);
+		if( sorted.length < size ) {
+			sorted = new int[size];
+			work = new int[size];
+		}
+
+		final int dst[] = work;
+		BoofConcurrency.loopBlocks(0, length, MIN_BLOCK, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				int hist[] = histograms.get(block);
+				for( int i = i0; i < i1; i++ ) {
+					float w = weights[i];
+					if( !(w < 0) )
+						dst[hist[Float.floatToRawIntBits(w) & MASK]++] = i;
+				}
+			}
+		});
+
+		// remaining passes
+		pass(weights, work, sorted, BITS);
+		pass(weights, sorted, work, 2*BITS);
+
+		// swap so that the results are in 'sorted'
+		int tmp[] = sorted;
+		sorted = work;
+		work = tmp;
+	}
+
+	/**
+	 * Sorts the indexes in src by the digit at the specified bit and writes them into dst
+	 */
+	private void pass( final float weights[] , final int src[] , final int dst[] , final int shift ) {
+		int numBlocks = declareHistograms(size);
+		BoofConcurrency.loopBlocks(0, size, MIN_BLOCK, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				int hist[] = histograms.get(block);
+				for( int i = i0; i < i1; i++ ) {
+					hist[(Float.floatToRawIntBits(weights[src[i]]) >>> shift) & MASK]++;
+				}
+			}
+		});
+
+		computeOffsets(numBlocks);
+
+		BoofConcurrency.loopBlocks(0, size, MIN_BLOCK, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				int hist[] = histograms.get(block);
+				for( int i = i0; i < i1; i++ ) {
+					int index = src[i];
+					dst[hist[(Float.floatToRawIntBits(weights[index]) >>> shift) & MASK]++] = index;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Makes sure there is a histogram for each block and zeros them
+	 */
+	private int declareHistograms( int length ) {
+		int numBlocks = BoofConcurrency.computeBlockCount(0, length, MIN_BLOCK);
+		while( histograms.size() < numBlocks )
+			histograms.add(new int[RADIX]);
+		for( int i = 0; i < numBlocks; i++ ) {
+			int hist[] = histograms.get(i);
+			for( int j = 0; j < RADIX; j++ )
+				hist[j] = 0;
+		}
+		return numBlocks;
+	}
+
+	/**
+	 * Converts the histograms into the index each block writes its next element with a given digit to
+	 *
+	 * @return total number of elements
+	 */
+	private int computeOffsets( int numBlocks ) {
+		int total = 0;
+		for( int digit = 0; digit < RADIX; digit++ ) {
+			for( int block = 0; block < numBlocks; block++ ) {
+				int hist[] = histograms.get(block);
+				int count = hist[digit];
+				hist[digit] = total;
+				total += count;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Index of edges sorted in increasing order of weight.  Only the first {@link #getSize()} elements are valid.
+	 */
+	public int[] getSorted() {
+		return sorted;
+	}
+
+	/**
+	 * Number of sorted edges
+	 */
+	public int getSize() {
+		return size;
+	}
+}
@@ -80,10 +80,10 @@ import org.ddogleg.struct.GrowQueue_I32;
 public class SegmentFelzenszwalbHuttenlocher04<T extends ImageBase> {
 
 	// tuning parameter.  Determines the number of segments.  Larger number means larger regions
-	private float K;
+	protected float K;
 
 	// the minimum region size.  Regions smaller than this are merged into larger ones
-	private int minimumSize;
+	protected int minimumSize;
 
 	// Storage for the disjoint-set forest.  Same data structure as 'output', but renamed for convenience.
 	// Value stored in each pixel refers to the parent vertex.  A root vertex contains a reference to itself
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.segmentation.fh04;
+
+import boofcv.alg.InputSanityCheck;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.struct.image.ImageBase;
+import boofcv.struct.image.ImageSInt32;
+
+/**
+ * <p>
+ * Variant of {@link SegmentFelzenszwalbHuttenlocher04} which stores its edges in primitive arrays and is intended
+ * for large images.  The two pixels connected by an edge are not saved.  Each pixel has a fixed number of edges
+ * going to its neighbors, see {@link FhPackedEdgeWeights}, and the edge's index is used to find the pixels.
+ * Only an array of weights and two arrays of edge indexes are needed, 12 bytes for each edge, instead of
+ * an object for each edge.
+ * </p>
+ *
+ * <p>
+ * Edge weights are computed concurrently in bands of rows and sorted with a concurrent radix sort, see
+ * {@link RadixSortEdges}.  Merging regions is inherently sequential.  The disjoint-set forest uses full path
+ * compression.  Edges with the same weight are processed in the order of their index, so the results are the
+ * same no matter how many threads are used.  If no two edges have the same weight then the results are identical
+ * to {@link SegmentFelzenszwalbHuttenlocher04}.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class SegmentFelzenszwalbHuttenlocher04Packed<T extends ImageBase>
+		extends SegmentFelzenszwalbHuttenlocher04<T>
+{
+	// minimum number of rows processed by a thread when computing edge weights
+	private static final int MIN_BAND = 16;
+
+	// Function that computes the weight for each edge
+	private FhPackedEdgeWeights<T> computeWeights;
+
+	// weight of each edge.  negative for edges which don't exist
+	protected float weights[] = new float[0];
+	// sorts edges by weight
+	protected RadixSortEdges sorter = new RadixSortEdges();
+
+	// offset from a pixel's index to the neighbor's index for each edge
+	private int offsets[] = new int[4];
+	// used to convert an edge's index into the pixel's index and edge number
+	private int shift;
+	private int mask;
+
+	// Edges which were not matched to anything are saved at the start of the sorted array.  Number of such edges
+	protected int numNotMatched;
+
+	/**
+	 * Specifies tuning parameter
+	 *
+	 * @param k Tuning parameter.  Larger regions are preferred for larger values of K.  Try 300
+	 * @param minimumSize Regions smaller than this are merged into larger regions
+	 * @param computeWeights Function used to compute the weight for all the edges.
+	 */
+	public SegmentFelzenszwalbHuttenlocher04Packed(float k, int minimumSize, FhPackedEdgeWeights<T> computeWeights) {
+		super(k, minimumSize, null);
+		this.computeWeights = computeWeights;
+	}
+
+	@Override
+	public void process( final T input , ImageSInt32 output ) {
+		if( output.isSubimage() )
+			throw new IllegalArgumentException("Output can't be a sub-image");
+		InputSanityCheck.checkSameShape(input, output);
+
+		initialize(input,output);
+
+		// compute edges weights
+		int edgesPerPixel = computeWeights.getEdgesPerPixel();
+		int numEdges = input.width*input.height*edgesPerPixel;
+		if( weights.length < numEdges )
+			weights = new float[numEdges];
+
+		BoofConcurrency.loopBlocks(0, input.height, MIN_BAND, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				computeWeights.process(input, y0, y1, weights);
+			}
+		});
+
+		sorter.sort(weights, numEdges);
+
+		shift = Integer.numberOfTrailingZeros(edgesPerPixel);
+		mask = edgesPerPixel-1;
+		offsets[0] = 1;
+		offsets[1] = input.width;
+		offsets[2] = input.width+1;
+		offsets[3] = input.width-1;
+
+		// Merge regions together
+		mergeRegions();
+
+		// Get rid of small ones
+		mergeSmallRegions();
+
+		// compute the final output
+		computeOutput();
+	}
+
+	/**
+	 * Follows the merge procedure output in [1].  Two regions are merged together if the edge linking them
+	 * has a weight which is <= the minimum of the heaviest edges in the two regions.
+	 */
+	@Override
+	protected void mergeRegions() {
+		int sorted[] = sorter.getSorted();
+		int size = sorter.getSize();
+
+		numNotMatched = 0;
+		for( int i = 0; i < size; i++ ) {
+			int edge = sorted[i];
+			float weight = weights[edge];
+			int indexA = edge >> shift;
+			int indexB = indexA + offsets[edge & mask];
+
+			int rootA = find(indexA);
+			int rootB = find(indexB);
+
+			// see if they are already part of the same segment
+			if( rootA == rootB )
+				continue;
+
+			float threshA = threshold.data[rootA];
+			float threshB = threshold.data[rootB];
+
+			if( weight <= threshA && weight <= threshB )  {
+				// ----- Merge the two regions/components
+				int sizeA = regionSize.data[rootA];
+				int sizeB = regionSize.data[rootB];
+
+				// Everything is merged into region A, so update its threshold
+				threshold.data[rootA] = weight + K/(sizeA + sizeB);
+
+				// Point everything towards rootA
+				graph.data[indexB] = rootA;
+				graph.data[rootB] = rootA;
+
+				// Update the size of regionA
+				regionSize.data[rootA] = sizeA + sizeB;
+			} else {
+				// can safely overwrite since i >= numNotMatched
+				sorted[numNotMatched++] = edge;
+			}
+		}
+	}
+
+	/**
+	 * Look at the remaining regions and if there are any small ones marge them into a larger region
+	 */
+	@Override
+	protected void mergeSmallRegions() {
+		int sorted[] = sorter.getSorted();
+
+		for( int i = 0; i < numNotMatched; i++ ) {
+			int edge = sorted[i];
+			int indexA = edge >> shift;
+			int indexB = indexA + offsets[edge & mask];
+
+			int rootA = find(indexA);
+			int rootB = find(indexB);
+
+			// see if they are already part of the same segment
+			if( rootA == rootB )
+				continue;
+
+			int sizeA = regionSize.data[rootA];
+			int sizeB = regionSize.data[rootB];
+
+			// merge if one of the regions is too small
+			if( sizeA < minimumSize || sizeB < minimumSize ) {
+				// Point everything towards rootA
+				graph.data[indexB] = rootA;
+				graph.data[rootB] = rootA;
+
+				// Update the size of regionA
+				regionSize.data[rootA] = sizeA + sizeB;
+			}
+		}
+	}
+
+	/**
+	 * Finds the root given child.  Every node along the path is changed to point directly at the root.
+	 */
+	@Override
+	protected int find( int child ) {
+		int root = child;
+		while( root != graph.data[root] )
+			root = graph.data[root];
+
+		while( child != root ) {
+			int parent = graph.data[child];
+			graph.data[child] = root;
+			child = parent;
+		}
+
+		return root;
+	}
+}
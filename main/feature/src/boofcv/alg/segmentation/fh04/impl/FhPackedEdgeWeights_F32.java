@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.segmentation.fh04.impl;
+
+import boofcv.alg.segmentation.fh04.FhPackedEdgeWeights;
+import boofcv.struct.ConnectRule;
+import boofcv.struct.image.ImageFloat32;
+
+/**
+ * <p>Computes edge weight as the absolute value of the different in pixel value for single band images.
+ * Packed version of {@link FhEdgeWeights4_F32} and {@link FhEdgeWeights8_F32}.</p>
+ *
+ * @author Peter Abeles
+ */
+public class FhPackedEdgeWeights_F32 implements FhPackedEdgeWeights<ImageFloat32> {
+
+	// number of edges for each pixel
+	int edgesPerPixel;
+
+	public FhPackedEdgeWeights_F32(ConnectRule rule) {
+		edgesPerPixel = rule == ConnectRule.EIGHT ? 4 : 2;
+	}
+
+	@Override
+	public void process(ImageFloat32 input, int y0, int y1, float[] weights) {
+		final int width = input.width;
+		final int height = input.height;
+		final int stride = input.stride;
+
+		for( int y = y0; y < y1; y++ ) {
+			int indexSrc = input.startIndex + y*stride;
+			int indexEdge = y*width*edgesPerPixel;
+			boolean insideY = y+1 < height;
+
+			for( int x = 0; x < width; x++ , indexSrc++ , indexEdge += edgesPerPixel ) {
+				float color0 = input.data[indexSrc]; // (x,y)
+
+				// (x+1,y)
+				weights[indexEdge] = x+1 < width ? Math.abs(input.data[indexSrc+1]-color0) : -1;
+				// (x,y+1)
+				weights[indexEdge+1] = insideY ? Math.abs(input.data[indexSrc+stride]-color0) : -1;
+
+				if( edgesPerPixel == 4 ) {
+					// (x+1,y+1)
+					weights[indexEdge+2] = insideY && x+1 < width ? Math.abs(input.data[indexSrc+1+stride]-color0) : -1;
+					// (x-1,y+1)
+					weights[indexEdge+3] = insideY && x > 0 ? Math.abs(input.data[indexSrc-1+stride]-color0) : -1;
+				}
+			}
+		}
+	}
+
+	@Override
+	public int getEdgesPerPixel() {
+		return edgesPerPixel;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.segmentation.fh04.impl;
+
+import boofcv.alg.segmentation.fh04.FhPackedEdgeWeights;
+import boofcv.struct.ConnectRule;
+import boofcv.struct.image.ImageUInt8;
+import boofcv.struct.image.MultiSpectral;
+
+/**
+ * <p>Computes edge weight as the F-norm different in pixel value for {@link MultiSpectral} images.
+ * Packed version of {@link FhEdgeWeights4_MsU8} and {@link FhEdgeWeights8_MsU8}.</p>
+ *
+ * @author Peter Abeles
+ */
+public class FhPackedEdgeWeights_MsU8 implements FhPackedEdgeWeights<MultiSpectral<ImageUInt8>> {
+
+	// number of edges for each pixel
+	int edgesPerPixel;
+	int numBands;
+
+	public FhPackedEdgeWeights_MsU8(ConnectRule rule, int numBands) {
+		edgesPerPixel = rule == ConnectRule.EIGHT ? 4 : 2;
+		this.numBands = numBands;
+	}
+
+	@Override
+	public void process(MultiSpectral<ImageUInt8> input, int y0, int y1, float[] weights) {
+		final int width = input.width;
+		final int height = input.height;
+		final int stride = input.stride;
+
+		for( int y = y0; y < y1; y++ ) {
+			int indexSrc = input.startIndex + y*stride;
+			int indexEdge = y*width*edgesPerPixel;
+			boolean insideY = y+1 < height;
+
+			for( int x = 0; x < width; x++ , indexSrc++ , indexEdge += edgesPerPixel ) {
+				// (x+1,y)
+				weights[indexEdge] = x+1 < width ? distance(input,indexSrc,indexSrc+1) : -1;
+				// (x,y+1)
+				weights[indexEdge+1] = insideY ? distance(input,indexSrc,indexSrc+stride) : -1;
+
+				if( edgesPerPixel == 4 ) {
+					// (x+1,y+1)
+					weights[indexEdge+2] = insideY && x+1 < width ? distance(input,indexSrc,indexSrc+1+stride) : -1;
+					// (x-1,y+1)
+					weights[indexEdge+3] = insideY && x > 0 ? distance(input,indexSrc,indexSrc-1+stride) : -1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * F-norm of the difference between the two pixels
+	 */
+	private float distance( MultiSpectral<ImageUInt8> input , int indexA , int indexB ) {
+		int weight = 0;
+		for( int i = 0; i < numBands; i++ ) {
+			ImageUInt8 band = input.getBand(i);
+
+			int diff = (band.data[indexA] & 0xFF)-(band.data[indexB] & 0xFF);
+			weight += diff*diff;
+		}
+		return (float)Math.sqrt(weight);
+	}
+
+	@Override
+	public int getEdgesPerPixel() {
+		return edgesPerPixel;
+	}
+}
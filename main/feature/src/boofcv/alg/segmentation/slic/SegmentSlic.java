@@ -22,6 +22,8 @@ import boofcv.alg.InputSanityCheck;
 import boofcv.alg.segmentation.ComputeRegionMeanColor;
 import boofcv.alg.segmentation.ms.ClusterLabeledImage;
 import boofcv.alg.segmentation.ms.MergeSmallRegions;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
 import boofcv.factory.segmentation.FactorySegmentationAlg;
 import boofcv.struct.ConnectRule;
 import boofcv.struct.feature.ColorQueue_F32;
@@ -31,7 +33,9 @@ import boofcv.struct.image.ImageType;
 import org.ddogleg.struct.FastQueue;
 import org.ddogleg.struct.GrowQueue_I32;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * <p>
@@ -56,6 +60,15 @@ import java.util.Arrays;
  * </p>
  *
  * <p>
+ * If {@link #setConcurrent(boolean) concurrent} then the k-means steps are computed in horizontal strips of
+ * rows at the same time.  Instead of a list of clusters for each pixel only the sum of distances and the
+ * number of clusters are saved, and the distance is recomputed when the cluster centers are updated.
+ * Each strip accumulates its own partial cluster centers which are then added together in strip order, so
+ * the results do not depend on the number of threads.  Use this mode on large images, where storing a
+ * list for each pixel would take too much memory.
+ * </p>
+ *
+ * <p>
  * [1] Radhakrishna Achanta, Appu Shaji, Kevin Smith, Aurelien Lucchi, Pascal Fua, and Sabine Süsstrunk,
  * SLIC Superpixels, EPFL Technical Report no. 149300, June 2010.
  * </p>
@@ -67,6 +80,9 @@ public abstract class SegmentSlic<T extends ImageBase> {
 	// which can be sampled when computing the gradient
 	public static final int BORDER = 2;
 
+	// minimum number of rows in a strip when computed concurrently
+	private static final int MIN_STRIP = 16;
+
 	// number of bands in the input image
 	private int numBands;
 
@@ -103,6 +119,17 @@ public abstract class SegmentSlic<T extends ImageBase> {
 	protected FastQueue<Cluster> clusters;
 	protected FastQueue<Pixel> pixels = new FastQueue<Pixel>(Pixel.class,true);
 
+	// if true the k-means steps are computed concurrently using compact storage for each pixel
+	private boolean concurrent = false;
+	// sum of distances from each cluster to the pixel.  Distance to the best cluster when labeling
+	protected float pixelSum[] = new float[0];
+	// number of clusters which are near the pixel, up to 2 since only 0, 1 and many matter
+	protected byte pixelCount[] = new byte[0];
+	// horizontal strips which are processed concurrently
+	protected List<Strip> strips = new ArrayList<Strip>();
+	protected int numStrips;
+	protected int stripHeight;
+
 	public SegmentSlic( int numberOfRegions , float m , int totalIterations ,
 						ConnectRule connectRule , ImageType<T> imageType ) {
 		this.numberOfRegions = numberOfRegions;
@@ -115,8 +142,14 @@ public abstract class SegmentSlic<T extends ImageBase> {
 		this.segment = new ClusterLabeledImage(connectRule);
 		this.regionColor = new ColorQueue_F32(numBands);
 
-		// custom declaration for pixel color
-		clusters = new FastQueue<Cluster>(Cluster.class,true) {
+		clusters = createClusterQueue();
+	}
+
+	/**
+	 * Creates storage for clusters with a custom declaration for pixel color
+	 */
+	private FastQueue<Cluster> createClusterQueue() {
+		return new FastQueue<Cluster>(Cluster.class,true) {
 			@Override
 			protected Cluster createInstance() {
 				Cluster c = new Cluster();
@@ -126,6 +159,20 @@ public abstract class SegmentSlic<T extends ImageBase> {
 		};
 	}
 
+	/**
+	 * Specifies if the k-means steps should be computed concurrently.  Segmentation is the same in both modes,
+	 * up to differences caused by floating point round off.
+	 *
+	 * @param concurrent true for concurrent
+	 */
+	public void setConcurrent(boolean concurrent) {
+		this.concurrent = concurrent;
+	}
+
+	public boolean isConcurrent() {
+		return concurrent;
+	}
+
 	public void process( T input , ImageSInt32 output ) {
 		InputSanityCheck.checkSameShape(input,output);
 		if( input.width < 2*BORDER || input.height < 2*BORDER)
@@ -138,16 +185,25 @@ public abstract class SegmentSlic<T extends ImageBase> {
 		// Seed the clusters
 		initializeClusters();
 
-		// Perform the modified k-means iterations
-		for( int i = 0; i < totalIterations; i++ ) {
+		if( concurrent ) {
+			for( int i = 0; i < totalIterations; i++ ) {
+				computeClusterDistanceConcurrent();
+				updateClustersConcurrent();
+			}
+
+			assignLabelsConcurrent(initialSegments, regionMemberCount, regionColor);
+		} else {
+			// Perform the modified k-means iterations
+			for( int i = 0; i < totalIterations; i++ ) {
+				computeClusterDistance();
+				updateClusters();
+			}
+
+			// Assign labels to each pixel based on how close it is to a cluster
 			computeClusterDistance();
-			updateClusters();
+			assignLabelsToPixels(initialSegments,regionMemberCount,regionColor);
 		}
 
-		// Assign labels to each pixel based on how close it is to a cluster
-		computeClusterDistance();
-		assignLabelsToPixels(initialSegments,regionMemberCount,regionColor);
-
 		// Assign disconnected pixels to the largest cluster they touch
 		int N = input.width*input.height/numberOfRegions;
 		segment.process(initialSegments,output,regionMemberCount);
@@ -160,7 +216,6 @@ public abstract class SegmentSlic<T extends ImageBase> {
 	 */
 	protected void initalize(T input) {
 		this.input = input;
-		pixels.resize(input.width * input.height);
 		initialSegments.reshape(input.width, input.height);
 
 		// number of usable pixels that cluster centers can be placed in
@@ -172,6 +227,26 @@ public abstract class SegmentSlic<T extends ImageBase> {
 
 		// See equation (1)
 		adjustSpacial = m/gridInterval;
+
+		int N = input.width * input.height;
+		if( concurrent ) {
+			if( pixelSum.length < N ) {
+				pixelSum = new float[N];
+				pixelCount = new byte[N];
+			}
+
+			// strips are independent of the number of threads so that the results are too
+			stripHeight = Math.max(MIN_STRIP, 2*gridInterval);
+			numStrips = (input.height + stripHeight - 1)/stripHeight;
+			while( strips.size() < numStrips )
+				strips.add(new Strip());
+			for( int i = 0; i < numStrips; i++ ) {
+				strips.get(i).y0 = i*stripHeight;
+				strips.get(i).y1 = Math.min(input.height, (i+1)*stripHeight);
+			}
+		} else {
+			pixels.resize(N);
+		}
 	}
 
 	/**
@@ -373,6 +448,109 @@ public abstract class SegmentSlic<T extends ImageBase> {
 		}
 	}
 
+	/**
+	 * Concurrent version of {@link #computeClusterDistance()}.  For each pixel the sum of distances and
+	 * the number of nearby clusters are computed.
+	 */
+	protected void computeClusterDistanceConcurrent() {
+		BoofConcurrency.loopBlocks(0, numStrips, 1, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				for( int i = i0; i < i1; i++ ) {
+					Strip s = strips.get(i);
+					s.findClusters();
+					s.computeDistance();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Concurrent version of {@link #updateClusters()}.  Each strip computes partial cluster centers which are
+	 * then added together in strip order.
+	 */
+	protected void updateClustersConcurrent() {
+		BoofConcurrency.loopBlocks(0, numStrips, 1, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				for( int i = i0; i < i1; i++ ) {
+					strips.get(i).updateClusters();
+				}
+			}
+		});
+
+		for( int i = 0; i < clusters.size; i++ ) {
+			clusters.data[i].reset();
+		}
+
+		for( int i = 0; i < numStrips; i++ ) {
+			Strip s = strips.get(i);
+			for( int j = 0; j < s.members.size; j++ ) {
+				Cluster c = clusters.data[s.members.data[j]];
+				Cluster p = s.partial.data[j];
+
+				c.x += p.x;
+				c.y += p.y;
+				c.totalWeight += p.totalWeight;
+				for( int k = 0; k < numBands; k++ ) {
+					c.color[k] += p.color[k];
+				}
+			}
+		}
+
+		for( int i = 0; i < clusters.size; i++ ) {
+			clusters.data[i].update();
+		}
+	}
+
+	/**
+	 * Concurrent version of {@link #assignLabelsToPixels}.  Each pixel is labeled by the closest cluster
+	 * at the same time as the distances are computed.
+	 */
+	protected void assignLabelsConcurrent( final ImageSInt32 pixelToRegions ,
+										   GrowQueue_I32 regionMemberCount ,
+										   FastQueue<float[]> regionColor ) {
+		BoofConcurrency.loopBlocks(0, numStrips, 1, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				for( int i = i0; i < i1; i++ ) {
+					Strip s = strips.get(i);
+					s.findClusters();
+					s.assignLabels(pixelToRegions);
+				}
+			}
+		});
+
+		regionColor.reset();
+		for( int i = 0; i < clusters.size(); i++ ) {
+			float[] r = regionColor.grow();
+			float[] c = clusters.get(i).color;
+			for( int j = 0; j < numBands; j++ ) {
+				r[j] = c[j];
+			}
+		}
+
+		regionMemberCount.resize(clusters.size());
+		regionMemberCount.fill(0);
+
+		for( int y = 0; y < pixelToRegions.height; y++ ) {
+			int indexOutput = pixelToRegions.startIndex + y*pixelToRegions.stride;
+			for( int x =0; x < pixelToRegions.width; x++ , indexOutput++) {
+				int best = pixelToRegions.data[indexOutput];
+
+				// pixels which no cluster is near are assigned to a non-existent cluster
+				if( best == -1 ) {
+					regionColor.grow();
+					best = regionMemberCount.getSize();
+					regionMemberCount.add(0);
+					pixelToRegions.data[indexOutput] = best;
+				}
+
+				regionMemberCount.data[best]++;
+			}
+		}
+	}
+
 	public GrowQueue_I32 getRegionMemberCount() {
 		return regionMemberCount;
 	}
@@ -381,6 +559,165 @@ public abstract class SegmentSlic<T extends ImageBase> {
 		return clusters;
 	}
 
+	/**
+	 * Horizontal strip of rows in the image which is processed by a single thread.  A strip only writes to its
+	 * own pixels and partial clusters.
+	 */
+	protected class Strip {
+		// rows in the strip.  lower inclusive, upper exclusive
+		int y0, y1;
+		// index of clusters whose search region overlaps with the strip
+		GrowQueue_I32 members = new GrowQueue_I32();
+		// partial sum for each member cluster
+		FastQueue<Cluster> partial = createClusterQueue();
+
+		/**
+		 * Finds all the clusters whose search region overlaps the strip.  Order is the same as the
+		 * cluster list.
+		 */
+		public void findClusters() {
+			members.reset();
+			for( int i = 0; i < clusters.size; i++ ) {
+				int centerY = (int)(clusters.data[i].y + 0.5f);
+				if( centerY + gridInterval + 1 > y0 && centerY - gridInterval < y1 )
+					members.add(i);
+			}
+		}
+
+		/**
+		 * Computes the sum of distances and number of clusters near each pixel
+		 */
+		public void computeDistance() {
+			int width = input.width;
+			Arrays.fill(pixelSum, y0*width, y1*width, 0);
+			Arrays.fill(pixelCount, y0*width, y1*width, (byte)0);
+
+			for( int i = 0; i < members.size; i++ ) {
+				Cluster c = clusters.data[members.data[i]];
+
+				// compute search bounds
+				int centerX = (int)(c.x + 0.5f);
+				int centerY = (int)(c.y + 0.5f);
+
+				int x0 = Math.max(0, centerX - gridInterval);
+				int x1 = Math.min(width, centerX + gridInterval + 1);
+				int ya = Math.max(y0, centerY - gridInterval);
+				int yb = Math.min(y1, centerY + gridInterval + 1);
+
+				for( int y = ya; y < yb; y++ ) {
+					int indexPixel = y*width + x0;
+					int indexInput = input.startIndex + y*input.stride + x0;
+
+					int dy = y-centerY;
+
+					for( int x = x0; x < x1; x++ , indexPixel++ ) {
+						int dx = x-centerX;
+
+						float distanceColor = colorDistance(c.color,indexInput++);
+						float distanceSpacial = dx*dx + dy*dy;
+						pixelSum[indexPixel] += distanceColor + adjustSpacial*distanceSpacial;
+						if( pixelCount[indexPixel] < 2 )
+							pixelCount[indexPixel]++;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Computes the weighted sum for each cluster using pixels inside the strip.  The distance is recomputed
+		 * and converted into a weight the same way as {@link Pixel#computeWeights()}.
+		 */
+		public void updateClusters() {
+			int width = input.width;
+
+			partial.resize(members.size);
+			for( int i = 0; i < members.size; i++ ) {
+				Cluster c = clusters.data[members.data[i]];
+				Cluster p = partial.data[i];
+				p.reset();
+
+				int centerX = (int)(c.x + 0.5f);
+				int centerY = (int)(c.y + 0.5f);
+
+				int x0 = Math.max(0, centerX - gridInterval);
+				int x1 = Math.min(width, centerX + gridInterval + 1);
+				int ya = Math.max(y0, centerY - gridInterval);
+				int yb = Math.min(y1, centerY + gridInterval + 1);
+
+				for( int y = ya; y < yb; y++ ) {
+					int indexPixel = y*width + x0;
+					int indexInput = input.startIndex + y*input.stride + x0;
+
+					int dy = y-centerY;
+
+					for( int x = x0; x < x1; x++ , indexPixel++ , indexInput++ ) {
+						int dx = x-centerX;
+
+						float weight;
+						if( pixelCount[indexPixel] == 1 ) {
+							weight = 1;
+						} else {
+							float distanceColor = colorDistance(c.color,indexInput);
+							float distanceSpacial = dx*dx + dy*dy;
+							float distance = distanceColor + adjustSpacial*distanceSpacial;
+							weight = 1.0f - distance/pixelSum[indexPixel];
+						}
+
+						p.x += x*weight;
+						p.y += y*weight;
+						p.totalWeight += weight;
+						addColor(p.color,indexInput,weight);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Labels each pixel with the cluster it is closest to, or -1 if no cluster is nearby
+		 */
+		public void assignLabels( ImageSInt32 pixelToRegions ) {
+			int width = input.width;
+			Arrays.fill(pixelSum, y0*width, y1*width, Float.MAX_VALUE);
+			for( int y = y0; y < y1; y++ ) {
+				int indexOutput = pixelToRegions.startIndex + y*pixelToRegions.stride;
+				Arrays.fill(pixelToRegions.data, indexOutput, indexOutput+width, -1);
+			}
+
+			for( int i = 0; i < members.size; i++ ) {
+				Cluster c = clusters.data[members.data[i]];
+
+				int centerX = (int)(c.x + 0.5f);
+				int centerY = (int)(c.y + 0.5f);
+
+				int x0 = Math.max(0, centerX - gridInterval);
+				int x1 = Math.min(width, centerX + gridInterval + 1);
+				int ya = Math.max(y0, centerY - gridInterval);
+				int yb = Math.min(y1, centerY + gridInterval + 1);
+
+				for( int y = ya; y < yb; y++ ) {
+					int indexPixel = y*width + x0;
+					int indexInput = input.startIndex + y*input.stride + x0;
+					int indexOutput = pixelToRegions.startIndex + y*pixelToRegions.stride + x0;
+
+					int dy = y-centerY;
+
+					for( int x = x0; x < x1; x++ , indexPixel++ , indexOutput++ ) {
+						int dx = x-centerX;
+
+						float distanceColor = colorDistance(c.color,indexInput++);
+						float distanceSpacial = dx*dx + dy*dy;
+						float distance = distanceColor + adjustSpacial*distanceSpacial;
+
+						if( distance < pixelSum[indexPixel] ) {
+							pixelSum[indexPixel] = distance;
+							pixelToRegions.data[indexOutput] = c.id;
+						}
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * K-means clustering information for each pixel.  Stores distance from each cluster mean.
 	 */
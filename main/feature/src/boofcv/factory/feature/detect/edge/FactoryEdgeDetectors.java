@@ -22,6 +22,7 @@ import boofcv.abst.filter.blur.BlurFilter;
 import boofcv.abst.filter.derivative.ImageGradient;
 import boofcv.alg.feature.detect.edge.CannyEdge;
 import boofcv.alg.feature.detect.edge.CannyEdgeDynamic;
+import boofcv.alg.feature.detect.edge.CannyEdgeParallel;
 import boofcv.factory.filter.blur.FactoryBlurFilter;
 import boofcv.factory.filter.derivative.FactoryDerivative;
 import boofcv.struct.image.ImageSingleBand;
@@ -58,4 +59,45 @@ public class FactoryEdgeDetectors {
 		else
 			return new CannyEdge<T,D>(blur,gradient,saveTrace);
 	}
+
+	/**
+	 * Concurrent version of the canny edge detector.  Same blur and gradient as {@link #canny} but each step
+	 * is computed in bands of rows using multiple threads.  Only absolute thresholds are supported.  The output
+	 * is identical to {@link #canny}.
+	 *
+	 * @see CannyEdgeParallel
+	 *
+	 * @param blurRadius Size of the kernel used to blur the image. Try 1 or 2
+	 * @param saveTrace Should it save a list of points that compose the objects contour/trace?
+	 * @param imageType Type of input image.
+	 * @param derivType Type of image derivative.
+	 * @return Canny edge detector
+	 */
+	public static <T extends ImageSingleBand, D extends ImageSingleBand>
+	CannyEdgeParallel<T,D> cannyParallel( int blurRadius , boolean saveTrace , Class<T> imageType , Class<D> derivType )
+	{
+		return new CannyEdgeParallel<T,D>(blurRadius,imageType,derivType,saveTrace);
+	}
+
+	/**
+	 * Concurrent version of the canny edge detector.  Same as {@link #cannyParallel(int, boolean, Class, Class)}
+	 * but the binary image can optionally be computed by marking every pixel in a strong component, instead
+	 * of tracing the edges.
+	 *
+	 * @see CannyEdgeParallel
+	 *
+	 * @param blurRadius Size of the kernel used to blur the image. Try 1 or 2
+	 * @param saveTrace Should it save a list of points that compose the objects contour/trace?
+	 * @param markComponents If true and saveTrace is false then strong components are marked without tracing.
+	 *                       Faster, but the output is a superset of {@link #canny}'s.
+	 * @param imageType Type of input image.
+	 * @param derivType Type of image derivative.
+	 * @return Canny edge detector
+	 */
+	public static <T extends ImageSingleBand, D extends ImageSingleBand>
+	CannyEdgeParallel<T,D> cannyParallel( int blurRadius , boolean saveTrace , boolean markComponents ,
+										  Class<T> imageType , Class<D> derivType )
+	{
+		return new CannyEdgeParallel<T,D>(blurRadius,imageType,derivType,saveTrace,markComponents);
+	}
 }
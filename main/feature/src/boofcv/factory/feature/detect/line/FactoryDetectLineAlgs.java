@@ -22,19 +22,23 @@ package boofcv.factory.feature.detect.line;
 import boofcv.abst.feature.detect.line.DetectLineHoughFoot;
 import boofcv.abst.feature.detect.line.DetectLineHoughFootSubimage;
 import boofcv.abst.feature.detect.line.DetectLineHoughPolar;
+import boofcv.abst.feature.detect.line.DetectLineHoughPolarParallel;
 import boofcv.abst.feature.detect.line.DetectLineSegmentsGridRansac;
 import boofcv.abst.filter.derivative.ImageGradient;
 import boofcv.alg.feature.detect.line.ConnectLinesGrid;
 import boofcv.alg.feature.detect.line.GridRansacLineDetector;
 import boofcv.alg.feature.detect.line.gridline.*;
+import boofcv.alg.robust.CopyDistanceFromModel;
 import boofcv.factory.filter.derivative.FactoryDerivative;
+import boofcv.factory.robust.ConfigRansacParallel;
+import boofcv.factory.robust.FactoryModelMatcher;
 import boofcv.struct.image.ImageFloat32;
 import boofcv.struct.image.ImageSInt16;
 import boofcv.struct.image.ImageSingleBand;
 import georegression.fitting.line.ModelManagerLinePolar2D_F32;
 import georegression.struct.line.LinePolar2D_F32;
+import org.ddogleg.fitting.modelset.DistanceFromModel;
 import org.ddogleg.fitting.modelset.ModelMatcher;
-import org.ddogleg.fitting.modelset.ransac.Ransac;
 
 /**
  * Factory for creating line and line segment detectors.
@@ -63,6 +67,32 @@ public class FactoryDetectLineAlgs {
 												 boolean connectLines,
 												 Class<I> imageType ,
 												 Class<D> derivType ) {
+		return lineRansac(regionSize,thresholdEdge,thresholdAngle,connectLines,imageType,derivType,null);
+	}
+
+	/**
+	 * Detects line segments inside an image using the {@link DetectLineSegmentsGridRansac} algorithm.  Can
+	 * optionally use {@link boofcv.alg.robust.RansacParallel} to fit lines inside each region.
+	 *
+	 * @see DetectLineSegmentsGridRansac
+	 *
+	 * @param regionSize Size of the region considered.  Try 40 and tune.
+	 * @param thresholdEdge Threshold for determining which pixels belong to an edge or not. Try 30 and tune.
+	 * @param thresholdAngle Tolerance in angle for allowing two edgels to be paired up, in radians.  Try 2.36
+	 * @param connectLines Should lines be connected and optimized.
+	 * @param imageType Type of single band input image.
+	 * @param derivType Image derivative type.
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 * @return Line segment detector
+	 */
+	public static <I extends ImageSingleBand, D extends ImageSingleBand>
+	DetectLineSegmentsGridRansac<I,D> lineRansac(int regionSize ,
+												 double thresholdEdge ,
+												 final double thresholdAngle ,
+												 boolean connectLines,
+												 Class<I> imageType ,
+												 Class<D> derivType ,
+												 ConfigRansacParallel configParallel ) {
 
 		ImageGradient<I,D> gradient = FactoryDerivative.sobel(imageType,derivType);
 
@@ -70,8 +100,19 @@ public class FactoryDetectLineAlgs {
 		GridLineModelDistance distance = new GridLineModelDistance((float)thresholdAngle);
 		GridLineModelFitter fitter = new GridLineModelFitter((float)thresholdAngle);
 
+		CopyDistanceFromModel<LinePolar2D_F32,Edgel> copier = new CopyDistanceFromModel<LinePolar2D_F32, Edgel>() {
+			@Override
+			public DistanceFromModel<LinePolar2D_F32, Edgel> create() {
+				return new GridLineModelDistance((float)thresholdAngle);
+			}
+
+			@Override
+			public void copyConfiguration(DistanceFromModel<LinePolar2D_F32, Edgel> original,
+										  DistanceFromModel<LinePolar2D_F32, Edgel> copy) {}
+		};
+
 		ModelMatcher<LinePolar2D_F32, Edgel> matcher =
-				new Ransac<LinePolar2D_F32,Edgel>(123123,manager,fitter,distance,25,1);
+				FactoryModelMatcher.ransac(123123,manager,fitter,distance,copier,25,1,configParallel);
 
 		GridRansacLineDetector<D> alg;
 		if( derivType == ImageFloat32.class )  {
@@ -190,4 +231,45 @@ public class FactoryDetectLineAlgs {
 		return new DetectLineHoughPolar<I,D>(localMaxRadius,minCounts,resolutionRange,resolutionAngle,thresholdEdge,maxLines,gradient);
 	}
 
+	/**
+	 * Creates a Hough line detector based on polar parametrization which computes the transform concurrently.
+	 * Optionally edge pixels only vote for lines which are consistent with their gradient and the transform can
+	 * be updated incrementally for mostly static scenes.
+	 *
+	 * @see DetectLineHoughPolarParallel
+	 * @see boofcv.alg.feature.detect.line.HoughTransformLinePolarParallel
+	 *
+	 * @param localMaxRadius Radius for local maximum suppression.  Try 2.
+	 * @param minCounts Minimum number of counts for detected line.  Critical tuning parameter and image dependent.
+	 * @param resolutionRange Resolution of line range in pixels.  Try 2
+	 * @param resolutionAngle Resolution of line angle in radius.  Try PI/180
+	 * @param thresholdEdge Edge detection threshold. Try 50.
+	 * @param maxLines Maximum number of lines to return. If <= 0 it will return them all.
+	 * @param angleTolerance Only vote for lines within this angle of the gradient.  If <= 0 all angles are used.
+	 *                       Try PI/18
+	 * @param incremental If true the transform is updated using the change from the previous image.
+	 * @param imageType Type of single band input image.
+	 * @param derivType Image derivative type.
+	 * @param <I> Input image type.
+	 * @param <D> Image derivative type.
+	 * @return Line detector.
+	 */
+	public static <I extends ImageSingleBand, D extends ImageSingleBand>
+	DetectLineHoughPolarParallel<I,D> houghPolarParallel(int localMaxRadius,
+														 int minCounts,
+														 double resolutionRange ,
+														 double resolutionAngle ,
+														 float thresholdEdge,
+														 int maxLines ,
+														 double angleTolerance ,
+														 boolean incremental ,
+														 Class<I> imageType ,
+														 Class<D> derivType ) {
+
+		ImageGradient<I,D> gradient = FactoryDerivative.sobel(imageType,derivType);
+
+		return new DetectLineHoughPolarParallel<I,D>(localMaxRadius,minCounts,resolutionRange,resolutionAngle,
+				thresholdEdge,maxLines,angleTolerance,incremental,gradient);
+	}
+
 }
@@ -19,6 +19,7 @@
 package boofcv.factory.feature.detect.template;
 
 import boofcv.alg.feature.detect.template.TemplateDiffSquared;
+import boofcv.alg.feature.detect.template.TemplateIntensityFast;
 import boofcv.alg.feature.detect.template.TemplateMatching;
 import boofcv.alg.feature.detect.template.TemplateMatchingIntensity;
 import boofcv.alg.feature.detect.template.TemplateNCC;
@@ -66,6 +67,32 @@ public class FactoryTemplateMatching {
 		throw new IllegalArgumentException("Type not found: " + type);
 	}
 
+	/**
+	 * Creates a {@link TemplateMatchingIntensity} which uses integral images for window statistics and selects
+	 * between direct and FFT cross-correlation based on the template's size.  Much faster than
+	 * {@link #createIntensity} for large images and templates.
+	 *
+	 * @see TemplateIntensityFast
+	 *
+	 * @param type      Type of error function
+	 * @param imageType Image type being processed
+	 * @return {@link TemplateMatchingIntensity} of the specified type.
+	 */
+	public static <T extends ImageSingleBand>
+	TemplateMatchingIntensity<T> createIntensityFast(TemplateScoreType type, Class<T> imageType) {
+		if( imageType != ImageUInt8.class && imageType != ImageFloat32.class )
+			throw new IllegalArgumentException("Image type not supported. " + imageType.getSimpleName());
+
+		switch (type) {
+			case SUM_DIFF_SQ:
+				return new TemplateIntensityFast.DiffSquared<T>();
+
+			case NCC:
+				return new TemplateIntensityFast.NCC<T>();
+		}
+		throw new IllegalArgumentException("Type not found: " + type);
+	}
+
 	/**
 	 * Creates an instance of {@link TemplateMatching} for the specified score type.
 	 *
@@ -79,4 +106,18 @@ public class FactoryTemplateMatching {
 
 		return new TemplateMatching<T>(intensity);
 	}
+
+	/**
+	 * Creates an instance of {@link TemplateMatching} which uses {@link #createIntensityFast}.
+	 *
+	 * @param type      Type of error function
+	 * @param imageType Image type being processed
+	 * @return {@link TemplateMatching} of the specified type.
+	 */
+	public static <T extends ImageSingleBand>
+	TemplateMatching<T> createMatcherFast(TemplateScoreType type, Class<T> imageType) {
+		TemplateMatchingIntensity<T> intensity = createIntensityFast(type, imageType);
+
+		return new TemplateMatching<T>(intensity);
+	}
 }
@@ -22,16 +22,20 @@ import boofcv.abst.filter.derivative.ImageGradient;
 import boofcv.abst.flow.DenseOpticalFlow;
 import boofcv.abst.flow.FlowBlock_to_DenseOpticalFlow;
 import boofcv.abst.flow.FlowKlt_to_DenseOpticalFlow;
+import boofcv.abst.flow.FlowPyramidKlt_to_DenseOpticalFlow;
 import boofcv.alg.filter.derivative.GImageDerivativeOps;
 import boofcv.alg.flow.DenseOpticalFlowBlock;
 import boofcv.alg.flow.DenseOpticalFlowKlt;
+import boofcv.alg.flow.DenseOpticalFlowPyramidKlt;
 import boofcv.alg.tracker.klt.KltConfig;
 import boofcv.alg.tracker.klt.KltTracker;
 import boofcv.factory.filter.derivative.FactoryDerivative;
 import boofcv.factory.tracker.FactoryTrackerAlg;
+import boofcv.factory.transform.pyramid.FactoryPyramid;
 import boofcv.struct.image.ImageFloat32;
 import boofcv.struct.image.ImageSingleBand;
 import boofcv.struct.image.ImageUInt8;
+import boofcv.struct.pyramid.PyramidDiscrete;
 
 /**
  * Creates implementations of {@link DenseOpticalFlow}.
@@ -66,6 +70,40 @@ public class FactoryDenseOpticalFlow {
 		return new FlowKlt_to_DenseOpticalFlow<I,D>(flowKlt,gradient,inputType,derivType);
 	}
 
+	/**
+	 * Coarse to fine dense optical flow using KLT.  Flow is propagated from coarser layers in the pyramid and
+	 * bands of rows are processed concurrently.  Can handle much larger motions than {@link #flowKlt}.
+	 *
+	 * @see DenseOpticalFlowPyramidKlt
+	 *
+	 * @param configKlt Configuration for KLT.  If null then default values are used.
+	 * @param radius Radius of square region.
+	 * @param pyramidScaling Scale of each layer in the pyramid relative to the input image.  Try {1,2,4,8}.
+	 * @param inputType Type of input image.
+	 * @param derivType Type of derivative image.  If null then default is used.
+	 * @param <I> Input image type.
+	 * @param <D> Derivative image type.
+	 * @return DenseOpticalFlow
+	 */
+	public static <I extends ImageSingleBand, D extends ImageSingleBand>
+	DenseOpticalFlow<I> flowPyramidKlt( KltConfig configKlt, int radius , int[] pyramidScaling ,
+										Class<I> inputType , Class<D> derivType ) {
+
+		if( derivType == null ) {
+			derivType = GImageDerivativeOps.getDerivativeType(inputType);
+		}
+
+		DenseOpticalFlowPyramidKlt<I, D> flowKlt =
+				new DenseOpticalFlowPyramidKlt<I, D>(configKlt,radius,inputType,derivType);
+		ImageGradient<I, D> gradient = FactoryDerivative.sobel(inputType,derivType);
+
+		PyramidDiscrete<I> pyramidPrev = FactoryPyramid.discreteGaussian(pyramidScaling,-1,2,true,inputType);
+		PyramidDiscrete<I> pyramidCurr = FactoryPyramid.discreteGaussian(pyramidScaling,-1,2,true,inputType);
+
+		return new FlowPyramidKlt_to_DenseOpticalFlow<I,D>(flowKlt,gradient,pyramidPrev,pyramidCurr,
+				inputType,derivType);
+	}
+
 	/**
 	 * @see boofcv.alg.flow.DenseOpticalFlowBlock
 	 *
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.factory.robust;
+
+import boofcv.struct.Configuration;
+
+/**
+ * Configuration for {@link boofcv.alg.robust.RansacParallel}.  The maximum number of iterations and inlier
+ * threshold are specified separately since they are already part of the algorithms which use RANSAC.
+ *
+ * @author Peter Abeles
+ */
+public class ConfigRansacParallel implements Configuration {
+	/**
+	 * Probability that at least one sample is composed entirely of inliers.  Once enough hypotheses have been
+	 * generated to reach this confidence it will stop.  Set to a value &le; 0 to always run the maximum number
+	 * of iterations.
+	 */
+	public double confidence = 0.99;
+	/**
+	 * Number of hypotheses which are scored at the same time.  Changing this value changes the results.
+	 */
+	public int batchSize = 32;
+	/**
+	 * Number of points in the subset used to preemptively reject hypotheses. Set to a value &le; 0 to turn off.
+	 */
+	public int preemptiveSize = 20;
+	/**
+	 * A hypothesis is rejected if the number of inliers predicted from the subset is less than this fraction of
+	 * the best hypothesis' inliers.
+	 */
+	public double preemptiveFraction = 0.5;
+
+	public ConfigRansacParallel(double confidence) {
+		this.confidence = confidence;
+	}
+
+	public ConfigRansacParallel() {
+	}
+
+	@Override
+	public void checkValidity() {
+		if( confidence >= 1 )
+			throw new IllegalArgumentException("Confidence must be less than one");
+		if( batchSize <= 0 )
+			throw new IllegalArgumentException("Batch size must be at least one");
+		if( preemptiveFraction < 0 )
+			throw new IllegalArgumentException("Preemptive fraction must be >= 0");
+	}
+}
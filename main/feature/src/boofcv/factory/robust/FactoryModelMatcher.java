@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.factory.robust;
+
+import boofcv.alg.robust.CopyDistanceFromModel;
+import boofcv.alg.robust.CopyModelGenerator;
+import boofcv.alg.robust.DistanceFromModelPacked;
+import boofcv.alg.robust.RansacPacked;
+import boofcv.alg.robust.RansacParallel;
+import org.ddogleg.fitting.modelset.DistanceFromModel;
+import org.ddogleg.fitting.modelset.ModelGenerator;
+import org.ddogleg.fitting.modelset.ModelManager;
+import org.ddogleg.fitting.modelset.ModelMatcher;
+import org.ddogleg.fitting.modelset.ransac.Ransac;
+
+/**
+ * Factory for creating robust model matchers.
+ *
+ * @author Peter Abeles
+ */
+public class FactoryModelMatcher {
+
+	/**
+	 * Creates a concurrent RANSAC which stops early and preemptively scores hypotheses.
+	 *
+	 * @see RansacParallel
+	 *
+	 * @param randSeed Seed for the random number generator
+	 * @param manager Creates and copies models
+	 * @param generator Creates a hypothesis from a minimal set of points
+	 * @param distance Computes the distance of a point from the model
+	 * @param copier Creates copies of the distance function for each thread
+	 * @param maxIterations Maximum number of hypotheses considered
+	 * @param thresholdFit Points with a distance less than this are inliers
+	 * @param config Configuration.  If null then the default is used.
+	 * @return RansacParallel
+	 */
+	public static <Model,Point>
+	RansacParallel<Model,Point> ransacParallel( long randSeed ,
+												ModelManager<Model> manager ,
+												ModelGenerator<Model,Point> generator ,
+												DistanceFromModel<Model,Point> distance ,
+												CopyDistanceFromModel<Model,Point> copier ,
+												int maxIterations , double thresholdFit ,
+												ConfigRansacParallel config ) {
+		return ransacParallel(randSeed,manager,generator,null,distance,copier,maxIterations,thresholdFit,config);
+	}
+
+	/**
+	 * Creates a concurrent RANSAC which generates hypotheses concurrently, stops early and preemptively
+	 * scores hypotheses.
+	 *
+	 * @see RansacParallel
+	 *
+	 * @param randSeed Seed for the random number generator
+	 * @param manager Creates and copies models
+	 * @param generator Creates a hypothesis from a minimal set of points
+	 * @param generatorCopier Creates copies of the generator for each thread.  If null then hypotheses are
+	 *                        generated by a single thread.
+	 * @param distance Computes the distance of a point from the model
+	 * @param copier Creates copies of the distance function for each thread
+	 * @param maxIterations Maximum number of hypotheses considered
+	 * @param thresholdFit Points with a distance less than this are inliers
+	 * @param config Configuration.  If null then the default is used.
+	 * @return RansacParallel
+	 */
+	public static <Model,Point>
+	RansacParallel<Model,Point> ransacParallel( long randSeed ,
+												ModelManager<Model> manager ,
+												ModelGenerator<Model,Point> generator ,
+												CopyModelGenerator<Model,Point> generatorCopier ,
+												DistanceFromModel<Model,Point> distance ,
+												CopyDistanceFromModel<Model,Point> copier ,
+												int maxIterations , double thresholdFit ,
+												ConfigRansacParallel config ) {
+		if( config == null )
+			config = new ConfigRansacParallel();
+		config.checkValidity();
+
+		RansacParallel<Model,Point> alg = new RansacParallel<Model, Point>(randSeed,manager,
+				generator,generatorCopier,distance,copier,maxIterations,thresholdFit);
+		alg.setConfidence(config.confidence);
+		alg.setBatchSize(config.batchSize);
+		alg.setPreemptiveSize(config.preemptiveSize);
+		alg.setPreemptiveFraction(config.preemptiveFraction);
+
+		return alg;
+	}
+
+	/**
+	 * Creates RANSAC.  If no configuration for the concurrent variant is provided then the single threaded
+	 * {@link Ransac} is returned, otherwise {@link RansacParallel}.  When single threaded and the distance
+	 * function can process packed points then {@link RansacPacked} is used, which produces the same results
+	 * as {@link Ransac}.
+	 *
+	 * @param config Configuration for {@link RansacParallel}.  If null then {@link Ransac} is used.
+	 * @see #ransacParallel
+	 */
+	public static <Model,Point>
+	ModelMatcher<Model,Point> ransac( long randSeed ,
+									  ModelManager<Model> manager ,
+									  ModelGenerator<Model,Point> generator ,
+									  DistanceFromModel<Model,Point> distance ,
+									  CopyDistanceFromModel<Model,Point> copier ,
+									  int maxIterations , double thresholdFit ,
+									  ConfigRansacParallel config ) {
+		return ransac(randSeed,manager,generator,null,distance,copier,maxIterations,thresholdFit,config);
+	}
+
+	/**
+	 * Same as {@link #ransac(long, ModelManager, ModelGenerator, DistanceFromModel, CopyDistanceFromModel, int, double, ConfigRansacParallel)}
+	 * but if {@link RansacParallel} is used then hypotheses are also generated concurrently.
+	 *
+	 * @param generatorCopier Creates copies of the generator for each thread.  If null then hypotheses are
+	 *                        generated by a single thread.
+	 * @see #ransacParallel
+	 */
+	public static <Model,Point>
+	ModelMatcher<Model,Point> ransac( long randSeed ,
+									  ModelManager<Model> manager ,
+									  ModelGenerator<Model,Point> generator ,
+									  CopyModelGenerator<Model,Point> generatorCopier ,
+									  DistanceFromModel<Model,Point> distance ,
+									  CopyDistanceFromModel<Model,Point> copier ,
+									  int maxIterations , double thresholdFit ,
+									  ConfigRansacParallel config ) {
+		if( config == null ) {
+			if( distance instanceof DistanceFromModelPacked )
+				return new RansacPacked<Model, Point>(randSeed,manager,generator,
+						(DistanceFromModelPacked<Model,Point,?>)distance,maxIterations,thresholdFit);
+			else
+				return new Ransac<Model, Point>(randSeed,manager,generator,distance,maxIterations,thresholdFit);
+		} else
+			return ransacParallel(randSeed,manager,generator,generatorCopier,distance,copier,maxIterations,
+					thresholdFit,config);
+	}
+}
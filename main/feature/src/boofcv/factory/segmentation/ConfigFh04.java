@@ -45,6 +45,13 @@ public class ConfigFh04 {
 	 */
 	public int approximateSortBins = 0;
 
+	/**
+	 * If true then edges are stored in primitive arrays, weights are computed concurrently and sorted with a
+	 * concurrent radix sort.  Uses less than half the memory and is recommended for large images.
+	 * approximateSortBins is ignored.
+	 */
+	public boolean packed = false;
+
 	public ConfigFh04() {
 	}
 
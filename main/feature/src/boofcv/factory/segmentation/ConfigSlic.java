@@ -44,6 +44,11 @@ public class ConfigSlic {
 	 * Connection rule that is used when merging small regions.
 	 */
 	public ConnectRule connectRule = ConnectRule.EIGHT;
+	/**
+	 * If true the k-means steps are computed concurrently and use much less memory for each pixel.
+	 * Recommended for large images.
+	 */
+	public boolean concurrent = false;
 
 	public ConfigSlic(int numberOfRegions) {
 		this.numberOfRegions = numberOfRegions;
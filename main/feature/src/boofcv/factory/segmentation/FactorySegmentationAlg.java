@@ -23,7 +23,9 @@ import boofcv.alg.interpolate.InterpolatePixelS;
 import boofcv.alg.interpolate.TypeInterpolate;
 import boofcv.alg.segmentation.ComputeRegionMeanColor;
 import boofcv.alg.segmentation.fh04.FhEdgeWeights;
+import boofcv.alg.segmentation.fh04.FhPackedEdgeWeights;
 import boofcv.alg.segmentation.fh04.SegmentFelzenszwalbHuttenlocher04;
+import boofcv.alg.segmentation.fh04.SegmentFelzenszwalbHuttenlocher04Packed;
 import boofcv.alg.segmentation.fh04.impl.*;
 import boofcv.alg.segmentation.ms.*;
 import boofcv.alg.segmentation.slic.*;
@@ -156,6 +158,28 @@ public class FactorySegmentationAlg {
 		throw new IllegalArgumentException("Unknown imageType or connect rule");
 	}
 
+	public static <T extends ImageBase>
+	FhPackedEdgeWeights<T> weightsFelzenszwalb04Packed( ConnectRule rule , ImageType<T> imageType) {
+		if( imageType.getFamily() == ImageType.Family.SINGLE_BAND ) {
+			switch( imageType.getDataType() ) {
+				case U8:
+					return (FhPackedEdgeWeights)new FhPackedEdgeWeights_U8(rule);
+				case F32:
+					return (FhPackedEdgeWeights)new FhPackedEdgeWeights_F32(rule);
+			}
+		} else if( imageType.getFamily() == ImageType.Family.MULTI_SPECTRAL ) {
+			int N = imageType.getNumBands();
+			switch( imageType.getDataType() ) {
+				case U8:
+					return (FhPackedEdgeWeights)new FhPackedEdgeWeights_MsU8(rule,N);
+				case F32:
+					return (FhPackedEdgeWeights)new FhPackedEdgeWeights_MsF32(rule,N);
+			}
+		}
+
+		throw new IllegalArgumentException("Unknown imageType");
+	}
+
 	public static<T extends ImageBase>
 	SegmentFelzenszwalbHuttenlocher04<T> fh04(ConfigFh04 config, ImageType<T> imageType)
 	{
@@ -163,6 +187,11 @@ public class FactorySegmentationAlg {
 		if( config == null )
 			config = new ConfigFh04();
 
+		if( config.packed ) {
+			FhPackedEdgeWeights<T> edgeWeights = weightsFelzenszwalb04Packed(config.connectRule,imageType);
+			return new SegmentFelzenszwalbHuttenlocher04Packed<T>(config.K,config.minimumRegionSize,edgeWeights);
+		}
+
 		FhEdgeWeights<T> edgeWeights = weightsFelzenszwalb04(config.connectRule,imageType);
 
 		SegmentFelzenszwalbHuttenlocher04<T> alg =
@@ -181,26 +210,36 @@ public class FactorySegmentationAlg {
 		if( config == null )
 			throw new IllegalArgumentException("No default configuration since the number of segments must be specified.");
 
+		SegmentSlic<T> alg = null;
+
 		if( imageType.getFamily() == ImageType.Family.SINGLE_BAND ) {
 				switch( imageType.getDataType() ) {
 					case U8:
-						return (SegmentSlic)new SegmentSlic_U8(config.numberOfRegions,
+						alg = (SegmentSlic)new SegmentSlic_U8(config.numberOfRegions,
 								config.spacialWeight,config.totalIterations,config.connectRule);
+						break;
 					case F32:
-						return (SegmentSlic)new SegmentSlic_F32(config.numberOfRegions,
+						alg = (SegmentSlic)new SegmentSlic_F32(config.numberOfRegions,
 								config.spacialWeight,config.totalIterations,config.connectRule);
+						break;
 				}
 		} else if( imageType.getFamily() == ImageType.Family.MULTI_SPECTRAL ) {
 			int N = imageType.getNumBands();
 				switch( imageType.getDataType() ) {
 					case U8:
-						return (SegmentSlic)new SegmentSlic_MsU8(config.numberOfRegions,
+						alg = (SegmentSlic)new SegmentSlic_MsU8(config.numberOfRegions,
 								config.spacialWeight,config.totalIterations,config.connectRule,N);
+						break;
 					case F32:
-						return (SegmentSlic)new SegmentSlic_MsF32(config.numberOfRegions,
+						alg = (SegmentSlic)new SegmentSlic_MsF32(config.numberOfRegions,
 								config.spacialWeight,config.totalIterations,config.connectRule,N);
+						break;
 				}
 		}
-		throw new IllegalArgumentException("Unknown imageType or connect rule");
+		if( alg == null )
+			throw new IllegalArgumentException("Unknown imageType or connect rule");
+
+		alg.setConcurrent(config.concurrent);
+		return alg;
 	}
 }
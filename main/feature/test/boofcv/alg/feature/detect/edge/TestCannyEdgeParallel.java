@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.feature.detect.edge;
+
+import boofcv.alg.misc.GImageMiscOps;
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.core.image.GeneralizedImageOps;
+import boofcv.factory.feature.detect.edge.FactoryEdgeDetectors;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageSInt16;
+import boofcv.struct.image.ImageSingleBand;
+import boofcv.struct.image.ImageUInt8;
+import boofcv.testing.BoofTesting;
+import georegression.struct.point.Point2D_I32;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestCannyEdgeParallel {
+
+	int width = 150;
+	int height = 200;
+
+	Random rand = new Random(234);
+
+	/**
+	 * The traced contours should be identical to the ones found by the single threaded version
+	 */
+	@Test
+	public void compareContours() {
+		compareContours(ImageUInt8.class, ImageSInt16.class, 20, 100);
+		compareContours(ImageFloat32.class, ImageFloat32.class, 20, 100);
+	}
+
+	/**
+	 * The upper threshold is below the lower threshold, so seeds can be outside of every component
+	 */
+	@Test
+	public void compareContours_inverted() {
+		compareContours(ImageUInt8.class, ImageSInt16.class, 100, 20);
+		compareMarks(ImageUInt8.class, ImageSInt16.class, 100, 20);
+	}
+
+	/**
+	 * Components are traced in different threads.  The results should not depend on the number of threads
+	 */
+	@Test
+	public void compare_numberOfThreads() {
+		int original = BoofConcurrency.getMaxThreads();
+		try {
+			for( int threads = 1; threads <= 4; threads++ ) {
+				BoofConcurrency.setMaxThreads(threads);
+				compareContours(ImageUInt8.class, ImageSInt16.class, 5, 60);
+				compareMarks(ImageUInt8.class, ImageSInt16.class, 5, 60);
+			}
+		} finally {
+			BoofConcurrency.setMaxThreads(original);
+		}
+	}
+
+	private void compareContours( Class imageType , Class derivType , float low , float high ) {
+		CannyEdge expected = FactoryEdgeDetectors.canny(2,true,false,imageType,derivType);
+		CannyEdgeParallel alg = FactoryEdgeDetectors.cannyParallel(2,true,imageType,derivType);
+
+		for( int trial = 0; trial < 3; trial++ ) {
+			ImageSingleBand input = GeneralizedImageOps.createSingleBand(imageType,width,height);
+			GImageMiscOps.fillUniform(input, rand, 0, 200);
+
+			ImageUInt8 outputExpected = new ImageUInt8(width,height);
+			ImageUInt8 found = new ImageUInt8(width,height);
+
+			expected.process(input,low,high,outputExpected);
+			alg.process(input,low,high,found);
+
+			BoofTesting.assertEquals(outputExpected,found,0);
+
+			List<EdgeContour> listExpected = expected.getContours();
+			List<EdgeContour> listFound = alg.getContours();
+
+			assertEquals(listExpected.size(),listFound.size());
+			for( int i = 0; i < listExpected.size(); i++ ) {
+				EdgeContour a = listExpected.get(i);
+				EdgeContour b = listFound.get(i);
+				assertEquals(a.segments.size(),b.segments.size());
+				for( int j = 0; j < a.segments.size(); j++ ) {
+					List<Point2D_I32> pa = a.segments.get(j).points;
+					List<Point2D_I32> pb = b.segments.get(j).points;
+					assertEquals(pa.size(),pb.size());
+					for( int k = 0; k < pa.size(); k++ ) {
+						assertEquals(pa.get(k).x,pb.get(k).x);
+						assertEquals(pa.get(k).y,pb.get(k).y);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void basicTestMarks() {
+		ImageUInt8 input = new ImageUInt8(width,height);
+		ImageUInt8 binary = new ImageUInt8(width,height);
+
+		ImageMiscOps.fillRectangle(input,50,20,30,40,50);
+
+		CannyEdgeParallel<ImageUInt8,ImageSInt16> alg =
+				FactoryEdgeDetectors.cannyParallel(1,false,ImageUInt8.class,ImageSInt16.class);
+
+		alg.process(input,10,50,binary);
+
+		ImageUInt8 expected = new ImageUInt8(width,height);
+		// set pixels to 1 if there are where the edge could lie
+		ImageMiscOps.fillRectangle(expected,1,19,29,42,52);
+		ImageMiscOps.fillRectangle(expected,0,21,31,38,48);
+
+		int totalHits = 0;
+		for( int y = 0; y < height; y++ ) {
+			for( int x = 0; x < width; x++ ) {
+				if( expected.get(x,y) == 0 ) {
+					assertEquals(0,binary.get(x,y));
+				} else if( binary.get(x,y) == 1 ) {
+					totalHits++;
+				}
+			}
+		}
+		assertTrue( totalHits >= 2*50+2*38 );
+	}
+
+	/**
+	 * The binary image should be identical to the one computed by the single threaded version
+	 */
+	@Test
+	public void compareMarks() {
+		compareMarks(ImageUInt8.class, ImageSInt16.class, 20, 100);
+		compareMarks(ImageFloat32.class, ImageFloat32.class, 20, 100);
+	}
+
+	private void compareMarks( Class imageType , Class derivType , float low , float high ) {
+		CannyEdge expected = FactoryEdgeDetectors.canny(1,false,false,imageType,derivType);
+		CannyEdgeParallel alg = FactoryEdgeDetectors.cannyParallel(1,false,imageType,derivType);
+
+		for( int trial = 0; trial < 3; trial++ ) {
+			ImageSingleBand input = GeneralizedImageOps.createSingleBand(imageType,width,height);
+			GImageMiscOps.fillUniform(input, rand, 0, 200);
+
+			ImageUInt8 outputExpected = new ImageUInt8(width,height);
+			ImageUInt8 found = new ImageUInt8(width,height);
+
+			expected.process(input,low,high,outputExpected);
+			alg.process(input,low,high,found);
+
+			BoofTesting.assertEquals(outputExpected,found,0);
+		}
+	}
+
+	/**
+	 * When strong components are marked directly, pixels marked by the single threaded version must also be marked
+	 */
+	@Test
+	public void randomMarks_markComponents() {
+		ImageUInt8 input = new ImageUInt8(width,height);
+		ImageMiscOps.fillUniform(input,rand,0,200);
+
+		CannyEdge<ImageUInt8,ImageSInt16> expected =
+				FactoryEdgeDetectors.canny(1,false,false,ImageUInt8.class,ImageSInt16.class);
+		CannyEdgeParallel<ImageUInt8,ImageSInt16> alg =
+				FactoryEdgeDetectors.cannyParallel(1,false,true,ImageUInt8.class,ImageSInt16.class);
+
+		ImageUInt8 outputExpected = new ImageUInt8(width,height);
+		ImageUInt8 found = new ImageUInt8(width,height);
+
+		expected.process(input,20,100,outputExpected);
+		alg.process(input,20,100,found);
+
+		int numExtra = 0;
+		for( int i = 0; i < found.data.length; i++ ) {
+			if( outputExpected.data[i] != 0 )
+				assertTrue(found.data[i] != 0);
+			else if( found.data[i] != 0 )
+				numExtra++;
+		}
+		// sanity check to make sure the option is doing something
+		assertTrue(numExtra > 0);
+	}
+
+	/**
+	 * Make sure it can handle sub-images
+	 */
+	@Test
+	public void checkSubImage() {
+		ImageUInt8 input = new ImageUInt8(width,height);
+		ImageUInt8 output = new ImageUInt8(width,height);
+		ImageMiscOps.fillUniform(input,rand,0,200);
+
+		BoofTesting.checkSubImage(this,"checkSubImage",true,input,output);
+	}
+
+	public void checkSubImage( ImageUInt8 input , ImageUInt8 output ) {
+		CannyEdgeParallel<ImageUInt8,ImageSInt16> alg =
+				FactoryEdgeDetectors.cannyParallel(1,true,ImageUInt8.class,ImageSInt16.class);
+		alg.process(input,1,100,output);
+	}
+}
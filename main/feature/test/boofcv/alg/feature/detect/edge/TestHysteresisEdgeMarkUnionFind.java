@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.feature.detect.edge;
+
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.alg.misc.ImageStatistics;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageSInt8;
+import boofcv.struct.image.ImageUInt8;
+import boofcv.testing.BoofTesting;
+import georegression.struct.point.Point2D_I32;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestHysteresisEdgeMarkUnionFind extends CommonHysteresisEdgeTrace {
+
+	Random rand = new Random(234);
+
+	@Test
+	public void test0() {
+		standardTest(0);
+	}
+
+	@Test
+	public void test1() {
+		standardTest(1);
+	}
+
+	@Test
+	public void test2() {
+		ImageUInt8 out = new ImageUInt8(5,3);
+
+		HysteresisEdgeMarkUnionFind alg = new HysteresisEdgeMarkUnionFind();
+
+		alg.process(intensity(2),3,5,out);
+		assertEquals(3, ImageStatistics.sum(out));
+
+		alg.process(intensity(2),2,5,out);
+		assertEquals(4, ImageStatistics.sum(out));
+	}
+
+	@Test
+	public void test3() {
+		standardTest(3);
+	}
+
+	/**
+	 * Compare against a brute force flood fill on images which are large enough to be split into several bands
+	 */
+	@Test
+	public void compareToFloodFill() {
+		HysteresisEdgeMarkUnionFind alg = new HysteresisEdgeMarkUnionFind();
+
+		for( int trial = 0; trial < 5; trial++ ) {
+			ImageFloat32 inten = new ImageFloat32(40+trial*7,150-trial*11);
+			ImageMiscOps.fillUniform(inten, rand, 0, 10);
+
+			ImageUInt8 found = new ImageUInt8(inten.width,inten.height);
+			alg.process(inten, 4, 9, found);
+
+			BoofTesting.assertEquals(floodFill(inten, 4, 9), found, 0);
+
+			// sub-images should produce the same results
+			ImageFloat32 sub = BoofTesting.createSubImageOf(inten);
+			ImageUInt8 subFound = BoofTesting.createSubImageOf(found);
+			alg.process(sub, 4, 9, subFound);
+			BoofTesting.assertEquals(found, subFound, 0);
+		}
+	}
+
+	/**
+	 * Every pixel marked by tracing must also be marked by union-find
+	 */
+	@Test
+	public void supersetOfTrace() {
+		HysteresisEdgeMarkUnionFind alg = new HysteresisEdgeMarkUnionFind();
+		HysteresisEdgeTraceMark trace = new HysteresisEdgeTraceMark();
+
+		ImageFloat32 inten = new ImageFloat32(60,80);
+		ImageSInt8 dir = new ImageSInt8(60,80);
+		ImageMiscOps.fillUniform(inten, rand, 0, 10);
+		ImageMiscOps.fillUniform(dir, rand, -1, 3);
+
+		ImageUInt8 found = new ImageUInt8(inten.width,inten.height);
+		ImageUInt8 traced = new ImageUInt8(inten.width,inten.height);
+
+		alg.process(inten, 4, 9, found);
+		trace.process(inten.clone(), dir, 4, 9, traced);
+
+		for( int i = 0; i < found.data.length; i++ ) {
+			if( traced.data[i] != 0 )
+				assertTrue(found.data[i] != 0);
+		}
+	}
+
+	private void standardTest( int which ) {
+		ImageFloat32 inten = intensity(which);
+		ImageUInt8 out = new ImageUInt8(inten.width,inten.height);
+
+		HysteresisEdgeMarkUnionFind alg = new HysteresisEdgeMarkUnionFind();
+
+		alg.process(inten,2,5,out);
+
+		BoofTesting.assertEquals(expected(which),out,0);
+	}
+
+	private ImageUInt8 floodFill( ImageFloat32 inten , float lower , float upper ) {
+		ImageUInt8 out = new ImageUInt8(inten.width,inten.height);
+
+		List<Point2D_I32> open = new ArrayList<Point2D_I32>();
+		for( int y = 0; y < inten.height; y++ ) {
+			for( int x = 0; x < inten.width; x++ ) {
+				if( inten.get(x,y) < upper || out.get(x,y) != 0 )
+					continue;
+				out.set(x,y,1);
+				open.add(new Point2D_I32(x,y));
+
+				while( !open.isEmpty() ) {
+					Point2D_I32 p = open.remove(open.size()-1);
+					for( int i = -1; i <= 1; i++ ) {
+						for( int j = -1; j <= 1; j++ ) {
+							int xx = p.x+j, yy = p.y+i;
+							if( !inten.isInBounds(xx,yy) || out.get(xx,yy) != 0 || inten.get(xx,yy) < lower )
+								continue;
+							out.set(xx,yy,1);
+							open.add(new Point2D_I32(xx,yy));
+						}
+					}
+				}
+			}
+		}
+		return out;
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.feature.detect.line;
+
+import boofcv.abst.feature.detect.extract.ConfigExtract;
+import boofcv.abst.feature.detect.extract.NonMaxSuppression;
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.factory.feature.detect.extract.FactoryFeatureExtractor;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageUInt8;
+import boofcv.testing.BoofTesting;
+import georegression.struct.line.LineParametric2D_F32;
+import org.ddogleg.struct.FastQueue;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestHoughTransformLinePolarParallel {
+
+	Random rand = new Random(234);
+
+	int width = 30;
+	int height = 40;
+
+	NonMaxSuppression extractor = FactoryFeatureExtractor.nonmax(new ConfigExtract(4,5,0, true));
+
+	/**
+	 * Without any angle restriction the votes should be the same as the single threaded version
+	 */
+	@Test
+	public void compareToSingleThread() {
+		ImageUInt8 binary = new ImageUInt8(width,height);
+		ImageMiscOps.fillUniform(binary, rand, 0, 2);
+
+		HoughTransformLinePolar expected = new HoughTransformLinePolar(extractor,40,180);
+		HoughTransformLinePolarParallel alg = new HoughTransformLinePolarParallel(extractor,40,180,0,false);
+
+		expected.transform(binary);
+		alg.transform(binary);
+
+		BoofTesting.assertEquals(expected.getTransform(), alg.getTransform(), 1e-8);
+
+		// sub-images should produce the same solution
+		alg.transform(BoofTesting.createSubImageOf(binary));
+		BoofTesting.assertEquals(expected.getTransform(), alg.getTransform(), 1e-8);
+	}
+
+	/**
+	 * Incrementally updating the transform should produce the same results as computing it from scratch
+	 */
+	@Test
+	public void incremental() {
+		for( double tol : new double[]{0,0.2}) {
+			HoughTransformLinePolarParallel expected = new HoughTransformLinePolarParallel(extractor,40,180,tol,false);
+			HoughTransformLinePolarParallel alg = new HoughTransformLinePolarParallel(extractor,40,180,tol,true);
+
+			ImageUInt8 binary = new ImageUInt8(width,height);
+			ImageFloat32 direction = new ImageFloat32(width,height);
+
+			for( int trial = 0; trial < 4; trial++ ) {
+				// change a subset of the pixels
+				for( int i = 0; i < 50; i++ ) {
+					int x = rand.nextInt(width);
+					int y = rand.nextInt(height);
+					binary.set(x,y,rand.nextInt(2));
+					direction.set(x,y,(float)((rand.nextDouble()-0.5)*Math.PI));
+				}
+
+				expected.transform(binary,direction);
+				alg.transform(binary,direction);
+
+				BoofTesting.assertEquals(expected.getTransform(), alg.getTransform(), 1e-8);
+			}
+		}
+	}
+
+	/**
+	 * Restricting the angle should still find an obvious line
+	 */
+	@Test
+	public void obviousLines_gradient() {
+		ImageUInt8 image = new ImageUInt8(width,height);
+		ImageFloat32 direction = new ImageFloat32(width,height);
+
+		for( int i = 0; i < height; i++ ) {
+			image.set(5,i,1);
+		}
+
+		HoughTransformLinePolarParallel alg = new HoughTransformLinePolarParallel(extractor,40,180,0.1,false);
+
+		alg.transform(image,direction);
+
+		FastQueue<LineParametric2D_F32> lines =  alg.extractLines();
+
+		assertTrue(lines.size() > 0);
+
+		for( int i = 0; i < lines.size(); i++ ) {
+			LineParametric2D_F32 l = lines.get(i);
+			assertEquals(l.p.x,5,0.1);
+			assertEquals(Math.abs(l.slope.x),0,1e-4);
+			assertEquals(Math.abs(l.slope.y),1,0.1);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.feature.detect.template;
+
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageUInt8;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestTemplateIntensityFast {
+
+	Random rand = new Random(234);
+
+	@Test
+	public void generalNCC() {
+		for( int i = 0; i < 2; i++ ) {
+			double ratio = i == 0 ? Double.MAX_VALUE : 0;
+
+			TemplateIntensityFast<ImageFloat32> algF32 = new TemplateIntensityFast.NCC<ImageFloat32>();
+			algF32.setFftCostRatio(ratio);
+			new GeneralTemplateMatchTests<ImageFloat32>(algF32, ImageFloat32.class) {
+			}.allTests();
+
+			TemplateIntensityFast<ImageUInt8> algU8 = new TemplateIntensityFast.NCC<ImageUInt8>();
+			algU8.setFftCostRatio(ratio);
+			new GeneralTemplateMatchTests<ImageUInt8>(algU8, ImageUInt8.class) {
+			}.allTests();
+		}
+	}
+
+	@Test
+	public void generalDiffSquared() {
+		for( int i = 0; i < 2; i++ ) {
+			double ratio = i == 0 ? Double.MAX_VALUE : 0;
+
+			TemplateIntensityFast<ImageFloat32> algF32 = new TemplateIntensityFast.DiffSquared<ImageFloat32>();
+			algF32.setFftCostRatio(ratio);
+			new GeneralTemplateMatchTests<ImageFloat32>(algF32, ImageFloat32.class) {
+			}.allTests();
+
+			TemplateIntensityFast<ImageUInt8> algU8 = new TemplateIntensityFast.DiffSquared<ImageUInt8>();
+			algU8.setFftCostRatio(ratio);
+			new GeneralTemplateMatchTests<ImageUInt8>(algU8, ImageUInt8.class) {
+			}.allTests();
+		}
+	}
+
+	/**
+	 * Compare the intensity against the brute force implementation for both the direct and FFT approach
+	 */
+	@Test
+	public void compareToBruteForce() {
+		ImageFloat32 image = new ImageFloat32(45,37);
+		ImageFloat32 template = new ImageFloat32(11,8);
+		ImageMiscOps.fillUniform(image, rand, 0, 200);
+		ImageMiscOps.fillUniform(template, rand, 0, 200);
+
+		compare(new TemplateNCC.F32(), new TemplateIntensityFast.NCC<ImageFloat32>(), image, template, 1e-3);
+		compare(new TemplateDiffSquared.F32(), new TemplateIntensityFast.DiffSquared<ImageFloat32>(), image, template, 1e-4);
+	}
+
+	private void compare( TemplateMatchingIntensity<ImageFloat32> expected ,
+						  TemplateIntensityFast<ImageFloat32> alg ,
+						  ImageFloat32 image , ImageFloat32 template , double tol )
+	{
+		expected.process(image, template);
+
+		for( int i = 0; i < 2; i++ ) {
+			alg.setFftCostRatio(i == 0 ? Double.MAX_VALUE : 0);
+			alg.process(image, template);
+			assertEquals(i == 1, alg.isUsedFft());
+
+			assertEquals(expected.getOffsetX(), alg.getOffsetX());
+			assertEquals(expected.getOffsetY(), alg.getOffsetY());
+
+			ImageFloat32 a = expected.getIntensity();
+			ImageFloat32 b = alg.getIntensity();
+
+			int x0 = alg.getOffsetX();
+			int y0 = alg.getOffsetY();
+			for( int y = 0; y < image.height - template.height; y++ ) {
+				for( int x = 0; x < image.width - template.width; x++ ) {
+					float valueA = a.get(x+x0,y+y0);
+					float valueB = b.get(x+x0,y+y0);
+					assertEquals(valueA, valueB, Math.abs(valueA)*tol);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void automaticSelection() {
+		TemplateIntensityFast<ImageFloat32> alg = new TemplateIntensityFast.NCC<ImageFloat32>();
+
+		ImageFloat32 image = new ImageFloat32(200,150);
+		ImageFloat32 small = new ImageFloat32(5,5);
+		ImageFloat32 large = new ImageFloat32(60,50);
+		ImageMiscOps.fillUniform(image, rand, 0, 200);
+		ImageMiscOps.fillUniform(small, rand, 0, 200);
+		ImageMiscOps.fillUniform(large, rand, 0, 200);
+
+		alg.process(image, small);
+		assertFalse(alg.isUsedFft());
+		alg.process(image, large);
+		assertTrue(alg.isUsedFft());
+	}
+}
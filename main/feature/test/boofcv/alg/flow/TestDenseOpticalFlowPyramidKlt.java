@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.flow;
+
+import boofcv.abst.flow.DenseOpticalFlow;
+import boofcv.alg.filter.blur.BlurImageOps;
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.factory.flow.FactoryDenseOpticalFlow;
+import boofcv.struct.flow.ImageFlow;
+import boofcv.struct.image.ImageFloat32;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestDenseOpticalFlowPyramidKlt {
+
+	Random rand = new Random(234);
+
+	/**
+	 * The motion is larger than the KLT region, which requires the coarse layers to find the solution
+	 */
+	@Test
+	public void largeMotion() {
+		ImageFloat32 noise = new ImageFloat32(80,70);
+		ImageMiscOps.fillUniform(noise, rand, 0, 255);
+		ImageFloat32 image0 = BlurImageOps.gaussian(noise, null, -1, 3, null);
+		ImageFloat32 image1 = new ImageFloat32(80,70);
+
+		int dx = 6, dy = -4;
+		for( int y = 0; y < image0.height; y++ ) {
+			for( int x = 0; x < image0.width; x++ ) {
+				int xx = x - dx, yy = y - dy;
+				if( image0.isInBounds(xx,yy))
+					image1.set(x,y,image0.get(xx,yy));
+			}
+		}
+
+		DenseOpticalFlow<ImageFloat32> alg =
+				FactoryDenseOpticalFlow.flowPyramidKlt(null, 2, new int[]{1, 2, 4}, ImageFloat32.class, null);
+
+		ImageFlow flow = new ImageFlow(80,70);
+		alg.process(image0,image1,flow);
+
+		int total = 0, correct = 0;
+		for( int y = 20; y < 50; y++ ) {
+			for( int x = 20; x < 60; x++ ) {
+				total++;
+				ImageFlow.D f = flow.get(x,y);
+				if( f.valid && Math.abs(f.x-dx) < 0.2 && Math.abs(f.y-dy) < 0.2 )
+					correct++;
+			}
+		}
+
+		assertTrue(correct > total*0.9);
+	}
+
+	/**
+	 * With a single layer the results should be identical to {@link DenseOpticalFlowKlt}
+	 */
+	@Test
+	public void singleLayerSameAsKlt() {
+		ImageFloat32 image0 = new ImageFloat32(30,40);
+		ImageFloat32 image1 = new ImageFloat32(30,40);
+		ImageMiscOps.fillUniform(image0, rand, 0, 255);
+		ImageMiscOps.fillUniform(image1, rand, 0, 255);
+
+		DenseOpticalFlow<ImageFloat32> expected = FactoryDenseOpticalFlow.flowKlt(null, 2, ImageFloat32.class, null);
+		DenseOpticalFlow<ImageFloat32> alg =
+				FactoryDenseOpticalFlow.flowPyramidKlt(null, 2, new int[]{1}, ImageFloat32.class, null);
+
+		ImageFlow flowA = new ImageFlow(30,40);
+		ImageFlow flowB = new ImageFlow(30,40);
+		expected.process(image0,image1,flowA);
+		alg.process(image0,image1,flowB);
+
+		for( int i = 0; i < 30*40; i++ ) {
+			ImageFlow.D a = flowA.data[i];
+			ImageFlow.D b = flowB.data[i];
+			assertEquals(a.valid,b.valid);
+			if( a.valid ) {
+				assertEquals(a.x,b.x,1e-4f);
+				assertEquals(a.y,b.y,1e-4f);
+			}
+		}
+	}
+}
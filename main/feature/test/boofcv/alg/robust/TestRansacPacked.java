@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.robust;
+
+import georegression.struct.point.Point2D_F64;
+import org.ddogleg.fitting.modelset.ransac.Ransac;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestRansacPacked {
+
+	/**
+	 * Should produce identical results to {@link Ransac}
+	 */
+	@Test
+	public void compareToRansac() {
+		TestRansacParallel helper = new TestRansacParallel();
+
+		for( int trial = 0; trial < 3; trial++ ) {
+			List<Point2D_F64> points = helper.createPoints(200, 0.5);
+			for( Point2D_F64 p : points )
+				p.y += helper.rand.nextGaussian()*0.05;
+
+			Ransac<double[],Point2D_F64> expected = new Ransac<double[], Point2D_F64>(trial,
+					new TestRansacParallel.LineManager(),new TestRansacParallel.LineGenerator(),
+					new TestRansacParallel.LineDistance(),50,0.1);
+			RansacPacked<double[],Point2D_F64> alg = new RansacPacked<double[], Point2D_F64>(trial,
+					new TestRansacParallel.LineManager(),new TestRansacParallel.LineGenerator(),
+					new TestRansacParallel.LineDistancePacked(),50,0.1);
+
+			assertTrue(expected.process(points));
+			assertTrue(alg.process(points));
+
+			assertEquals(expected.getModelParameters()[0], alg.getModelParameters()[0], 0);
+			assertEquals(expected.getModelParameters()[1], alg.getModelParameters()[1], 0);
+			assertEquals(expected.getMatchSet().size(), alg.getMatchSet().size());
+			for( int i = 0; i < alg.getMatchSet().size(); i++ ) {
+				assertEquals(expected.getInputIndex(i), alg.getInputIndex(i));
+				assertTrue(alg.getMatchSet().get(i) == points.get(alg.getInputIndex(i)));
+			}
+		}
+	}
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.robust;
+
+import boofcv.concurrency.BoofConcurrency;
+import georegression.struct.point.Point2D_F64;
+import org.ddogleg.fitting.modelset.DistanceFromModel;
+import org.ddogleg.fitting.modelset.ModelGenerator;
+import org.ddogleg.fitting.modelset.ModelManager;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestRansacParallel {
+
+	Random rand = new Random(234);
+
+	// true line model
+	double slope = 0.5;
+	double offset = -2;
+
+	/**
+	 * Finds the correct model and inliers when there are outliers
+	 */
+	@Test
+	public void basicFit() {
+		List<Point2D_F64> points = createPoints(200, 0.4);
+
+		RansacParallel<double[],Point2D_F64> alg = create(234,500);
+
+		assertTrue(alg.process(points));
+
+		double[] found = alg.getModelParameters();
+		assertEquals(slope, found[0], 1e-8);
+		assertEquals(offset, found[1], 1e-8);
+
+		// all the inliers should be found and nothing else
+		List<Point2D_F64> matches = alg.getMatchSet();
+		assertEquals(countInliers(points), matches.size());
+		assertEquals(matches.size(), alg.getFitQuality(), 1e-8);
+		for( int i = 0; i < matches.size(); i++ ) {
+			assertTrue(matches.get(i) == points.get(alg.getInputIndex(i)));
+			assertTrue(isInlier(matches.get(i)));
+		}
+	}
+
+	/**
+	 * The same seed should produce the same results no matter how many threads are used
+	 */
+	@Test
+	public void deterministic() {
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			for( int trial = 0; trial < 5; trial++ ) {
+				// noisy data so that many hypotheses have a similar score
+				List<Point2D_F64> points = createPoints(300, 0.7);
+				for( Point2D_F64 p : points )
+					p.y += rand.nextGaussian()*0.05;
+
+				BoofConcurrency.setMaxThreads(1);
+				RansacParallel<double[],Point2D_F64> algA = create(trial,200);
+				assertTrue(algA.process(points));
+				BoofConcurrency.setMaxThreads(4);
+				RansacParallel<double[],Point2D_F64> algB = create(trial,200);
+				assertTrue(algB.process(points));
+
+				assertEquals(algA.getTotalHypotheses(), algB.getTotalHypotheses());
+				assertEquals(algA.getModelParameters()[0], algB.getModelParameters()[0], 0);
+				assertEquals(algA.getModelParameters()[1], algB.getModelParameters()[1], 0);
+				assertEquals(algA.getMatchSet().size(), algB.getMatchSet().size());
+				for( int i = 0; i < algA.getMatchSet().size(); i++ )
+					assertEquals(algA.getInputIndex(i), algB.getInputIndex(i));
+			}
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * When most of the points are inliers it should stop well before the maximum number of iterations
+	 */
+	@Test
+	public void earlyTermination() {
+		List<Point2D_F64> points = createPoints(200, 0.1);
+
+		RansacParallel<double[],Point2D_F64> alg = create(234,1000);
+		alg.setBatchSize(4);
+		assertTrue(alg.process(points));
+		assertTrue(alg.getTotalHypotheses() < 20);
+
+		// turn off early termination
+		alg.setConfidence(0);
+		assertTrue(alg.process(points));
+		assertEquals(1000, alg.getTotalHypotheses());
+	}
+
+	/**
+	 * Turning off preemptive scoring should not change the solution on easy data
+	 */
+	@Test
+	public void preemptiveOnOff() {
+		List<Point2D_F64> points = createPoints(400, 0.5);
+
+		RansacParallel<double[],Point2D_F64> algOn = create(234,300);
+		RansacParallel<double[],Point2D_F64> algOff = create(234,300);
+		algOff.setPreemptiveSize(0);
+
+		assertTrue(algOn.process(points));
+		assertTrue(algOff.process(points));
+
+		assertEquals(algOff.getMatchSet().size(), algOn.getMatchSet().size());
+		assertEquals(algOff.getModelParameters()[0], algOn.getModelParameters()[0], 1e-8);
+	}
+
+	/**
+	 * The configuration should be copied into each thread's distance function before it is used
+	 */
+	@Test
+	public void copyConfiguration() {
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			BoofConcurrency.setMaxThreads(3);
+
+			LineDistance original = new LineDistance();
+			original.threshold = 0.05;
+			Copier copier = new Copier();
+
+			RansacParallel<double[],Point2D_F64> alg = new RansacParallel<double[], Point2D_F64>(
+					234,new LineManager(),new LineGenerator(),original,copier,100,1);
+
+			List<Point2D_F64> points = createPoints(100, 0.3);
+			assertTrue(alg.process(points));
+
+			assertEquals(2, copier.copies.size());
+			for( LineDistance d : copier.copies )
+				assertEquals(0.05, d.threshold, 0);
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * Generating hypotheses with a copy of the generator in each thread should produce identical results
+	 * and the generator's configuration should be copied
+	 */
+	@Test
+	public void concurrentGeneration() {
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			BoofConcurrency.setMaxThreads(3);
+			List<Point2D_F64> points = createPoints(300, 0.6);
+			for( Point2D_F64 p : points )
+				p.y += rand.nextGaussian()*0.05;
+
+			LineGenerator original = new LineGenerator();
+			original.config = 0.01;
+			GeneratorCopier copier = new GeneratorCopier();
+
+			RansacParallel<double[],Point2D_F64> expected = create(234,200);
+			RansacParallel<double[],Point2D_F64> alg = new RansacParallel<double[], Point2D_F64>(
+					234,new LineManager(),original,copier,new LineDistance(),new Copier(),200,1e-4);
+
+			assertTrue(expected.process(points));
+			assertTrue(alg.process(points));
+
+			assertEquals(expected.getTotalHypotheses(), alg.getTotalHypotheses());
+			assertEquals(expected.getModelParameters()[0], alg.getModelParameters()[0], 0);
+			assertEquals(expected.getModelParameters()[1], alg.getModelParameters()[1], 0);
+			assertEquals(expected.getMatchSet().size(), alg.getMatchSet().size());
+
+			assertEquals(2, copier.copies.size());
+			for( LineGenerator g : copier.copies )
+				assertEquals(0.01, g.config, 0);
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * Scoring using packed points should produce identical results
+	 */
+	@Test
+	public void packedPoints() {
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			BoofConcurrency.setMaxThreads(3);
+			List<Point2D_F64> points = createPoints(300, 0.6);
+			for( Point2D_F64 p : points )
+				p.y += rand.nextGaussian()*0.05;
+
+			RansacParallel<double[],Point2D_F64> expected = create(234,200);
+			RansacParallel<double[],Point2D_F64> alg = new RansacParallel<double[], Point2D_F64>(
+					234,new LineManager(),new LineGenerator(),new LineDistancePacked(),
+					new CopyDistanceByClass<double[], Point2D_F64>(LineDistancePacked.class),200,1e-4);
+
+			assertTrue(expected.process(points));
+			assertTrue(alg.process(points));
+
+			assertEquals(expected.getTotalHypotheses(), alg.getTotalHypotheses());
+			assertEquals(expected.getModelParameters()[0], alg.getModelParameters()[0], 0);
+			assertEquals(expected.getMatchSet().size(), alg.getMatchSet().size());
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+	}
+
+	@Test
+	public void tooFewPoints() {
+		RansacParallel<double[],Point2D_F64> alg = create(234,100);
+
+		List<Point2D_F64> points = new ArrayList<Point2D_F64>();
+		points.add(new Point2D_F64(1,2));
+		assertFalse(alg.process(points));
+		assertEquals(0, alg.getMatchSet().size());
+	}
+
+	private RansacParallel<double[],Point2D_F64> create( long seed , int maxIterations ) {
+		return new RansacParallel<double[], Point2D_F64>(seed,new LineManager(),new LineGenerator(),
+				new LineDistance(),new Copier(),maxIterations,1e-4);
+	}
+
+	List<Point2D_F64> createPoints( int N , double fractionOutlier ) {
+		List<Point2D_F64> points = new ArrayList<Point2D_F64>();
+		for( int i = 0; i < N; i++ ) {
+			double x = rand.nextDouble()*20 - 10;
+			double y = slope*x + offset;
+			if( rand.nextDouble() < fractionOutlier )
+				y += 1 + rand.nextDouble()*10;
+			points.add(new Point2D_F64(x,y));
+		}
+		return points;
+	}
+
+	private int countInliers( List<Point2D_F64> points ) {
+		int total = 0;
+		for( Point2D_F64 p : points )
+			if( isInlier(p) )
+				total++;
+		return total;
+	}
+
+	private boolean isInlier( Point2D_F64 p ) {
+		return Math.abs(p.y - slope*p.x - offset) < 1e-4;
+	}
+
+	static class LineManager implements ModelManager<double[]> {
+		@Override
+		public double[] createModelInstance() {
+			return new double[2];
+		}
+
+		@Override
+		public void copyModel(double[] src, double[] dst) {
+			System.arraycopy(src,0,dst,0,2);
+		}
+	}
+
+	static class LineGenerator implements ModelGenerator<double[],Point2D_F64> {
+		// configuration which is only used to see if it is copied
+		double config;
+
+		@Override
+		public boolean generate(List<Point2D_F64> dataSet, double[] output) {
+			Point2D_F64 a = dataSet.get(0);
+			Point2D_F64 b = dataSet.get(1);
+			if( a.x == b.x )
+				return false;
+			output[0] = (b.y - a.y)/(b.x - a.x);
+			output[1] = a.y - output[0]*a.x;
+			return true;
+		}
+
+		@Override
+		public int getMinimumPoints() {
+			return 2;
+		}
+	}
+
+	static class LineDistance implements DistanceFromModel<double[],Point2D_F64> {
+		double[] model;
+		// configuration which is only used to see if it is copied
+		double threshold;
+
+		@Override
+		public void setModel(double[] model) {
+			this.model = model;
+		}
+
+		@Override
+		public double computeDistance(Point2D_F64 pt) {
+			return Math.abs(pt.y - model[0]*pt.x - model[1]);
+		}
+
+		@Override
+		public void computeDistance(List<Point2D_F64> points, double[] distance) {
+			for( int i = 0; i < points.size(); i++ )
+				distance[i] = computeDistance(points.get(i));
+		}
+	}
+
+	static class Copier implements CopyDistanceFromModel<double[],Point2D_F64> {
+		List<LineDistance> copies = new ArrayList<LineDistance>();
+
+		@Override
+		public DistanceFromModel<double[], Point2D_F64> create() {
+			LineDistance d = new LineDistance();
+			copies.add(d);
+			return d;
+		}
+
+		@Override
+		public void copyConfiguration(DistanceFromModel<double[], Point2D_F64> original,
+									  DistanceFromModel<double[], Point2D_F64> copy) {
+			((LineDistance)copy).threshold = ((LineDistance)original).threshold;
+		}
+	}
+
+	static class PackedLine implements PackedPoints<Point2D_F64> {
+		double[] x = new double[0];
+		double[] y = new double[0];
+		int size;
+
+		@Override
+		public void setTo(List<Point2D_F64> points) {
+			size = points.size();
+			x = new double[size];
+			y = new double[size];
+			for( int i = 0; i < size; i++ ) {
+				x[i] = points.get(i).x;
+				y[i] = points.get(i).y;
+			}
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	public static class LineDistancePacked extends LineDistance
+			implements DistanceFromModelPacked<double[],Point2D_F64,PackedLine>
+	{
+		@Override
+		public PackedLine createPacked() {
+			return new PackedLine();
+		}
+
+		@Override
+		public void computeDistance(PackedLine points, double[] distance) {
+			for( int i = 0; i < points.size; i++ )
+				distance[i] = Math.abs(points.y[i] - model[0]*points.x[i] - model[1]);
+		}
+	}
+
+	static class GeneratorCopier implements CopyModelGenerator<double[],Point2D_F64> {
+		List<LineGenerator> copies = new ArrayList<LineGenerator>();
+
+		@Override
+		public ModelGenerator<double[], Point2D_F64> create() {
+			LineGenerator g = new LineGenerator();
+			copies.add(g);
+			return g;
+		}
+
+		@Override
+		public void copyConfiguration(ModelGenerator<double[], Point2D_F64> original,
+									  ModelGenerator<double[], Point2D_F64> copy) {
+			((LineGenerator)copy).config = ((LineGenerator)original).config;
+		}
+	}
+}
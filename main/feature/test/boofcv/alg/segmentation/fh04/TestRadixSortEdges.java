@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.segmentation.fh04;
+
+import boofcv.concurrency.BoofConcurrency;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestRadixSortEdges {
+
+	Random rand = new Random(234);
+
+	@Test
+	public void sort() {
+		RadixSortEdges alg = new RadixSortEdges();
+
+		for( int length : new int[]{0,1,10,5000,120000}) {
+			float weights[] = createWeights(length);
+			alg.sort(weights, length);
+			checkSorted(weights, length, alg);
+		}
+	}
+
+	/**
+	 * Edges with the same weight should be in the same order as their index
+	 */
+	@Test
+	public void stable() {
+		RadixSortEdges alg = new RadixSortEdges();
+
+		int length = 80000;
+		float weights[] = new float[length];
+		for( int i = 0; i < length; i++ ) {
+			weights[i] = rand.nextInt(20);
+		}
+
+		alg.sort(weights, length);
+		checkSorted(weights, length, alg);
+
+		int sorted[] = alg.getSorted();
+		for( int i = 1; i < alg.getSize(); i++ ) {
+			if( weights[sorted[i-1]] == weights[sorted[i]] )
+				assertTrue(sorted[i-1] < sorted[i]);
+		}
+	}
+
+	/**
+	 * Output should not change with the number of threads
+	 */
+	@Test
+	public void threadInvariant() {
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			int length = 100000;
+			float weights[] = createWeights(length);
+
+			RadixSortEdges expected = new RadixSortEdges();
+			RadixSortEdges found = new RadixSortEdges();
+
+			BoofConcurrency.setMaxThreads(1);
+			expected.sort(weights, length);
+			BoofConcurrency.setMaxThreads(4);
+			found.sort(weights, length);
+
+			assertEquals(expected.getSize(), found.getSize());
+			for( int i = 0; i < expected.getSize(); i++ ) {
+				assertEquals(expected.getSorted()[i], found.getSorted()[i]);
+			}
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * Weights with a wide range of values and some which are marked as not existing
+	 */
+	private float[] createWeights( int length ) {
+		float weights[] = new float[length];
+		for( int i = 0; i < length; i++ ) {
+			if( rand.nextInt(10) == 0 )
+				weights[i] = -1;
+			else
+				weights[i] = (float)(rand.nextDouble()*Math.pow(10, rand.nextInt(8)-3));
+		}
+		return weights;
+	}
+
+	private void checkSorted( float weights[] , int length , RadixSortEdges alg ) {
+		int expectedSize = 0;
+		for( int i = 0; i < length; i++ ) {
+			if( weights[i] >= 0 )
+				expectedSize++;
+		}
+		assertEquals(expectedSize, alg.getSize());
+
+		boolean used[] = new boolean[length];
+		int sorted[] = alg.getSorted();
+		for( int i = 0; i < alg.getSize(); i++ ) {
+			int index = sorted[i];
+			assertTrue(weights[index] >= 0);
+			assertTrue(!used[index]);
+			used[index] = true;
+			if( i > 0 )
+				assertTrue(weights[sorted[i-1]] <= weights[index]);
+		}
+	}
+}
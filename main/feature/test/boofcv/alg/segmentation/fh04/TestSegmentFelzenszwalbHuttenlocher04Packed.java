@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.segmentation.fh04;
+
+import boofcv.alg.misc.GImageMiscOps;
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.factory.segmentation.FactorySegmentationAlg;
+import boofcv.struct.ConnectRule;
+import boofcv.struct.image.*;
+import boofcv.testing.BoofTesting;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestSegmentFelzenszwalbHuttenlocher04Packed {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Test it on a trivial segmentation problem
+	 */
+	@Test
+	public void process() {
+		ImageUInt8 image = new ImageUInt8(20,25);
+		ImageMiscOps.fillRectangle(image,100,0,0,10,25);
+		ImageSInt32 output = new ImageSInt32(20,25);
+
+		// normal images
+		process(image, output);
+
+		// sub-images
+		process(BoofTesting.createSubImageOf(image), output);
+	}
+
+	private void process(ImageUInt8 image, ImageSInt32 output) {
+		ImageMiscOps.fillUniform(output,rand,0,100);
+
+		SegmentFelzenszwalbHuttenlocher04Packed<ImageUInt8> alg =
+				new SegmentFelzenszwalbHuttenlocher04Packed<ImageUInt8>(200,10,
+						FactorySegmentationAlg.weightsFelzenszwalb04Packed(ConnectRule.FOUR,ImageType.single(ImageUInt8.class)));
+
+		alg.process(image,output);
+
+		int valA = output.get(0,0);
+		int valB = output.get(19,0);
+
+		assertTrue(valA != valB);
+		for( int y = 0; y < 25; y++ ) {
+			for( int x =0; x < 10; x++ )
+				assertEquals(valA, output.get(x, y));
+			for( int x =10; x < 20; x++ )
+				assertEquals(valB,output.get(x,y));
+		}
+		assertEquals(2,alg.getRegionId().size);
+		assertEquals(250,alg.getRegionSizes().get(0));
+		assertEquals(250,alg.getRegionSizes().get(1));
+	}
+
+	/**
+	 * When every edge has a unique weight the order edges are processed in is the same as the unpacked
+	 * implementation and the results should be identical
+	 */
+	@Test
+	public void compareToUnpacked() {
+		compareToUnpacked(ImageType.single(ImageFloat32.class), ConnectRule.FOUR);
+		compareToUnpacked(ImageType.single(ImageFloat32.class), ConnectRule.EIGHT);
+		compareToUnpacked(ImageType.ms(3, ImageFloat32.class), ConnectRule.FOUR);
+		compareToUnpacked(ImageType.ms(3, ImageFloat32.class), ConnectRule.EIGHT);
+	}
+
+	private <T extends ImageBase> void compareToUnpacked( ImageType<T> imageType , ConnectRule rule ) {
+		T input = imageType.createImage(40,35);
+		GImageMiscOps.fillUniform(input, rand, 0, 100);
+
+		SegmentFelzenszwalbHuttenlocher04<T> expected = new SegmentFelzenszwalbHuttenlocher04<T>(50,10,
+				FactorySegmentationAlg.weightsFelzenszwalb04(rule,imageType));
+		SegmentFelzenszwalbHuttenlocher04Packed<T> alg = new SegmentFelzenszwalbHuttenlocher04Packed<T>(50,10,
+				FactorySegmentationAlg.weightsFelzenszwalb04Packed(rule,imageType));
+
+		ImageSInt32 outputExpected = new ImageSInt32(input.width,input.height);
+		ImageSInt32 found = new ImageSInt32(input.width,input.height);
+
+		expected.process(input,outputExpected);
+		alg.process(input,found);
+
+		BoofTesting.assertEquals(outputExpected,found,0);
+
+		assertTrue(expected.getRegionId().size > 1);
+		assertEquals(expected.getRegionId().size,alg.getRegionId().size);
+		for( int i = 0; i < expected.getRegionId().size; i++ ) {
+			assertEquals(expected.getRegionId().get(i),alg.getRegionId().get(i));
+			assertEquals(expected.getRegionSizes().get(i),alg.getRegionSizes().get(i));
+		}
+	}
+
+	/**
+	 * Results should be the same no matter how many threads are used, even when many edges have the same weight
+	 */
+	@Test
+	public void threadInvariant() {
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			ImageType<MultiSpectral<ImageUInt8>> imageType = ImageType.ms(3, ImageUInt8.class);
+			MultiSpectral<ImageUInt8> input = imageType.createImage(300,250);
+			GImageMiscOps.fillUniform(input, rand, 0, 30);
+
+			SegmentFelzenszwalbHuttenlocher04Packed<MultiSpectral<ImageUInt8>> alg =
+					new SegmentFelzenszwalbHuttenlocher04Packed<MultiSpectral<ImageUInt8>>(300,20,
+							FactorySegmentationAlg.weightsFelzenszwalb04Packed(ConnectRule.EIGHT,imageType));
+
+			ImageSInt32 expected = new ImageSInt32(input.width,input.height);
+			ImageSInt32 found = new ImageSInt32(input.width,input.height);
+
+			BoofConcurrency.setMaxThreads(1);
+			alg.process(input,expected);
+			BoofConcurrency.setMaxThreads(4);
+			alg.process(input,found);
+
+			BoofTesting.assertEquals(expected,found,0);
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * Path compression should make every node on the path point to the root
+	 */
+	@Test
+	public void find() {
+		SegmentFelzenszwalbHuttenlocher04Packed alg = new SegmentFelzenszwalbHuttenlocher04Packed(0,10,null);
+
+		alg.graph = new ImageSInt32(5,1);
+		alg.graph.data = new int[]{1,2,3,4,4};
+
+		assertEquals(4,alg.find(0));
+		for( int i = 0; i < 5; i++ )
+			assertEquals(4,alg.graph.data[i]);
+	}
+}
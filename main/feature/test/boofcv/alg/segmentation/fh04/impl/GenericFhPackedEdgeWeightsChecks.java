@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.segmentation.fh04.impl;
+
+import boofcv.alg.misc.GImageMiscOps;
+import boofcv.alg.segmentation.fh04.FhEdgeWeights;
+import boofcv.alg.segmentation.fh04.FhPackedEdgeWeights;
+import boofcv.factory.segmentation.FactorySegmentationAlg;
+import boofcv.struct.ConnectRule;
+import boofcv.struct.image.ImageBase;
+import boofcv.struct.image.ImageType;
+import boofcv.testing.BoofTesting;
+import org.ddogleg.struct.FastQueue;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static boofcv.alg.segmentation.fh04.SegmentFelzenszwalbHuttenlocher04.Edge;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public abstract class GenericFhPackedEdgeWeightsChecks<T extends ImageBase> {
+	ImageType<T> imageType;
+
+	Random rand = new Random(234);
+
+	protected GenericFhPackedEdgeWeightsChecks(ImageType<T> imageType) {
+		this.imageType = imageType;
+	}
+
+	public abstract FhPackedEdgeWeights<T> createAlg( ConnectRule rule );
+
+	/**
+	 * Compare against the weights computed by the unpacked implementation
+	 */
+	@Test
+	public void compareToUnpacked() {
+		T input = imageType.createImage(10,12);
+		GImageMiscOps.fillUniform(input, rand, 0, 200);
+
+		compareToUnpacked(input, ConnectRule.FOUR);
+		compareToUnpacked(input, ConnectRule.EIGHT);
+
+		// sub-images should produce the same results
+		T sub = BoofTesting.createSubImageOf(input);
+		compareToUnpacked(sub, ConnectRule.FOUR);
+		compareToUnpacked(sub, ConnectRule.EIGHT);
+	}
+
+	private void compareToUnpacked( T input , ConnectRule rule ) {
+		FhPackedEdgeWeights<T> alg = createAlg(rule);
+		FhEdgeWeights<T> expected = FactorySegmentationAlg.weightsFelzenszwalb04(rule,imageType);
+
+		FastQueue<Edge> edges = new FastQueue<Edge>(Edge.class,true);
+		expected.process(input,edges);
+
+		int edgesPerPixel = alg.getEdgesPerPixel();
+		assertEquals(rule == ConnectRule.FOUR ? 2 : 4, edgesPerPixel);
+
+		float weights[] = new float[input.width*input.height*edgesPerPixel];
+		alg.process(input,0,input.height,weights);
+
+		int offsets[] = new int[]{1,input.width,input.width+1,input.width-1};
+
+		boolean matched[] = new boolean[weights.length];
+		for( int i = 0; i < edges.size; i++ ) {
+			Edge e = edges.get(i);
+
+			int k;
+			for( k = 0; k < edgesPerPixel; k++ ) {
+				if( e.indexA + offsets[k] == e.indexB )
+					break;
+			}
+			assertTrue(k < edgesPerPixel);
+
+			int index = e.indexA*edgesPerPixel + k;
+			assertEquals(e.weight(), weights[index], 1e-4f);
+			matched[index] = true;
+		}
+
+		// all the other edges should be marked as not existing
+		int total = 0;
+		for( int i = 0; i < weights.length; i++ ) {
+			if( matched[i] )
+				total++;
+			else
+				assertEquals(-1, weights[i], 1e-8f);
+		}
+		assertEquals(edges.size, total);
+	}
+
+	/**
+	 * Processing the image in bands of rows should produce the same results as all at once
+	 */
+	@Test
+	public void bandsOfRows() {
+		T input = imageType.createImage(10,12);
+		GImageMiscOps.fillUniform(input, rand, 0, 200);
+
+		FhPackedEdgeWeights<T> alg = createAlg(ConnectRule.EIGHT);
+
+		float expected[] = new float[input.width*input.height*4];
+		float found[] = new float[expected.length];
+
+		alg.process(input,0,input.height,expected);
+		alg.process(input,0,5,found);
+		alg.process(input,5,input.height,found);
+
+		for( int i = 0; i < expected.length; i++ ) {
+			assertEquals(expected[i],found[i],1e-8f);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.segmentation.fh04.impl;
+
+import boofcv.alg.segmentation.fh04.FhPackedEdgeWeights;
+import boofcv.struct.ConnectRule;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageType;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestFhPackedEdgeWeights_F32 extends GenericFhPackedEdgeWeightsChecks<ImageFloat32> {
+
+	public TestFhPackedEdgeWeights_F32() {
+		super(ImageType.single(ImageFloat32.class));
+	}
+
+	@Override
+	public FhPackedEdgeWeights<ImageFloat32> createAlg(ConnectRule rule) {
+		return new FhPackedEdgeWeights_F32(rule);
+	}
+}
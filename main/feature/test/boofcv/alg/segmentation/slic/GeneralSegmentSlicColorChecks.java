@@ -20,6 +20,7 @@ package boofcv.alg.segmentation.slic;
 
 import boofcv.alg.misc.GImageMiscOps;
 import boofcv.alg.segmentation.ImageSegmentationOps;
+import boofcv.concurrency.BoofConcurrency;
 import boofcv.core.image.GeneralizedImageOps;
 import boofcv.struct.ConnectRule;
 import boofcv.struct.feature.ColorQueue_F32;
@@ -34,6 +35,7 @@ import java.util.Arrays;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Peter Abeles
@@ -202,4 +204,95 @@ public abstract class GeneralSegmentSlicColorChecks<T extends ImageBase> {
 		}
 	}
 
+	/**
+	 * The concurrent k-means should produce almost the same clusters as the single threaded version.  Small
+	 * differences are caused by partial sums being added in a different order.
+	 */
+	@Test
+	public void concurrent_compareToSerial() {
+		T input = createBlocksImage(80,90);
+
+		SegmentSlic<T> serial = createAlg(30,200,10, ConnectRule.EIGHT );
+		SegmentSlic<T> alg = createAlg(30,200,10, ConnectRule.EIGHT );
+		alg.setConcurrent(true);
+
+		ImageSInt32 expected = new ImageSInt32(input.width,input.height);
+		ImageSInt32 found = new ImageSInt32(input.width,input.height);
+
+		serial.process(input,expected);
+		alg.process(input,found);
+
+		FastQueue<SegmentSlic.Cluster> clustersE = serial.getClusters();
+		FastQueue<SegmentSlic.Cluster> clustersF = alg.getClusters();
+		assertEquals(clustersE.size,clustersF.size);
+		for( int i = 0; i < clustersE.size; i++ ) {
+			SegmentSlic.Cluster e = clustersE.get(i);
+			SegmentSlic.Cluster f = clustersF.get(i);
+			assertEquals(e.x,f.x,1e-2);
+			assertEquals(e.y,f.y,1e-2);
+			for( int j = 0; j < imageType.getNumBands(); j++ )
+				assertEquals(e.color[j],f.color[j],1e-1);
+		}
+
+		int different = 0;
+		for( int i = 0; i < expected.data.length; i++ ) {
+			if( expected.data[i] != found.data[i] )
+				different++;
+		}
+		assertTrue(different <= expected.data.length/100);
+
+		checkMemberCount(alg,found);
+	}
+
+	/**
+	 * Results should be identical no matter how many threads are used
+	 */
+	@Test
+	public void concurrent_threadInvariant() {
+		T input = createBlocksImage(80,90);
+
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			SegmentSlic<T> alg = createAlg(30,200,10, ConnectRule.EIGHT );
+			alg.setConcurrent(true);
+
+			ImageSInt32 expected = new ImageSInt32(input.width,input.height);
+			ImageSInt32 found = new ImageSInt32(input.width,input.height);
+
+			BoofConcurrency.setMaxThreads(1);
+			alg.process(input,expected);
+			BoofConcurrency.setMaxThreads(4);
+			alg.process(input,found);
+
+			for( int i = 0; i < expected.data.length; i++ ) {
+				assertEquals(expected.data[i],found.data[i]);
+			}
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * Noisy image composed of rectangles with different colors
+	 */
+	private T createBlocksImage( int width , int height ) {
+		T input = imageType.createImage(width,height);
+		GImageMiscOps.fillUniform(input, rand, 0, 20);
+
+		for( int i = 0; i < 8; i++ ) {
+			int x0 = rand.nextInt(width-10), y0 = rand.nextInt(height-10);
+			int x1 = x0 + 5 + rand.nextInt(width-x0-5), y1 = y0 + 5 + rand.nextInt(height-y0-5);
+			GImageMiscOps.fillRectangle(input, 50+rand.nextInt(150), x0, y0, x1-x0, y1-y0);
+		}
+		return input;
+	}
+
+	private void checkMemberCount( SegmentSlic<T> alg , ImageSInt32 output ) {
+		GrowQueue_I32 memberCount = alg.getRegionMemberCount();
+		GrowQueue_I32 foundCount = new GrowQueue_I32(memberCount.size);
+		ImageSegmentationOps.countRegionPixels(output, foundCount.size, foundCount.data);
+		for (int i = 0; i < memberCount.size; i++) {
+			assertEquals(memberCount.get(i),foundCount.get(i));
+		}
+	}
 }
@@ -34,6 +34,7 @@ import java.util.List;
  */
 public class BenchmarkRuntimeFundamental extends ArtificialStereoScene{
 	static final long TEST_TIME = 1000;
+	static final int ALLOC_CALLS = 1000;
 	static final int NUM_POINTS = 500;
 	static final boolean FUNDAMENTAL = false;
 
@@ -95,6 +96,12 @@ public class BenchmarkRuntimeFundamental extends ArtificialStereoScene{
 			ProfileOperation.printOpsPerSec(new Estimate("Linear 8", FactoryMultiView.computeFundamental_1(EnumEpipolar.ESSENTIAL_8_LINEAR, 0),pairs8), TEST_TIME);
 			ProfileOperation.printOpsPerSec(new Estimate("Linear 7", FactoryMultiView.computeFundamental_1(EnumEpipolar.ESSENTIAL_7_LINEAR, 1),pairs8), TEST_TIME);
 			ProfileOperation.printOpsPerSec(new Estimate("Linear 5", FactoryMultiView.computeFundamental_1(EnumEpipolar.ESSENTIAL_5_NISTER, 1),pairs6), TEST_TIME);
+
+			System.out.println();
+			System.out.println("Heap Allocation");
+			ProfileAllocation.printBytesPerOp(new Estimate("Linear 8", FactoryMultiView.computeFundamental_1(EnumEpipolar.ESSENTIAL_8_LINEAR, 0),pairs8), ALLOC_CALLS);
+			ProfileAllocation.printBytesPerOp(new Estimate("Linear 7", FactoryMultiView.computeFundamental_1(EnumEpipolar.ESSENTIAL_7_LINEAR, 1),pairs8), ALLOC_CALLS);
+			ProfileAllocation.printBytesPerOp(new Estimate("Linear 5", FactoryMultiView.computeFundamental_1(EnumEpipolar.ESSENTIAL_5_NISTER, 1),pairs6), ALLOC_CALLS);
 		}
 
 	}
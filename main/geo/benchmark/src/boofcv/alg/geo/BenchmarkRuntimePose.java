@@ -36,6 +36,7 @@ import java.util.List;
  */
 public class BenchmarkRuntimePose extends ArtificialStereoScene {
 	static final long TEST_TIME = 1000;
+	static final int ALLOC_CALLS = 1000;
 	static final int NUM_POINTS = 5;
 	static final boolean FUNDAMENTAL = false;
 
@@ -108,6 +109,12 @@ public class BenchmarkRuntimePose extends ArtificialStereoScene {
 		ProfileOperation.printOpsPerSec(new InterfacePNP("grunert",grunert), TEST_TIME);
 		ProfileOperation.printOpsPerSec(new InterfacePNP("finster",finster), TEST_TIME);
 
+		System.out.println();
+		ProfileAllocation.printBytesPerOp(new EPnP(0), ALLOC_CALLS);
+		ProfileAllocation.printBytesPerOp(new EPnP(5), ALLOC_CALLS);
+		ProfileAllocation.printBytesPerOp(new InterfacePNP("grunert",grunert), ALLOC_CALLS);
+		ProfileAllocation.printBytesPerOp(new InterfacePNP("finster",finster), ALLOC_CALLS);
+
 		System.out.println();
 		System.out.println("Done");
 	}
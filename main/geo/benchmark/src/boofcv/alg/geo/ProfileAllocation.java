@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo;
+
+import boofcv.misc.Performer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures how much memory is allocated on the heap by an operation.  Relies on a HotSpot specific extension
+ * to {@link ThreadMXBean}, which is why it's kept out of the main source tree.
+ *
+ * @author Peter Abeles
+ */
+public class ProfileAllocation {
+
+	/**
+	 * Prints the number of bytes allocated on the heap each time the performer is called.  The performer
+	 * is called once before measuring so that lazily declared storage isn't counted.
+	 */
+	public static void printBytesPerOp( Performer performer , int num )
+	{
+		String name = performer.getName() == null ? performer.getClass().getSimpleName() : performer.getName();
+
+		performer.process();
+		long bytes = measureAllocatedBytes(performer,num);
+		if( bytes < 0 )
+			System.out.printf("%30s  bytes/op = unsupported\n",name);
+		else
+			System.out.printf("%30s  bytes/op = %7.1f\n",name,bytes/(double)num);
+	}
+
+	/**
+	 * Average number of bytes allocated each time the performer is called, after it has been called enough
+	 * times for the JIT to have compiled it.  The JIT causes a few sporadic allocations on its own, so a value less
+	 * than the size of the smallest possible object (16 bytes) means the performer itself doesn't allocate.
+	 *
+	 * @return Bytes per call or -1 if the JVM can't measure thread allocations
+	 */
+	public static double steadyStateBytesPerOp( Performer performer , int num )
+	{
+		if( measureAllocatedBytes(performer,num) < 0 )
+			return -1;
+
+		return measureAllocatedBytes(performer,num)/(double)num;
+	}
+
+	/**
+	 * Number of bytes allocated by the current thread while calling the performer 'num' times.
+	 *
+	 * @return Bytes allocated or -1 if the JVM can't measure thread allocations
+	 */
+	public static long measureAllocatedBytes( Performer performer , int num )
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if( !(bean instanceof com.sun.management.ThreadMXBean) )
+			return -1;
+
+		com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean)bean;
+		if( !sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled() )
+			return -1;
+
+		long id = Thread.currentThread().getId();
+		long before = sun.getThreadAllocatedBytes(id);
+		for( int i = 0; i < num; i++ ) {
+			performer.process();
+		}
+		return sun.getThreadAllocatedBytes(id) - before;
+	}
+}
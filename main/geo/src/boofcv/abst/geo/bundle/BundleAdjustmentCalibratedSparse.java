@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.abst.geo.bundle;
+
+import boofcv.abst.geo.BundleAdjustmentCalibrated;
+import boofcv.alg.geo.bundle.BundleAdjustmentSparseSchur;
+import boofcv.alg.geo.bundle.CalibPoseAndPointRodriguesCodec;
+import boofcv.alg.geo.bundle.CalibratedPoseAndPoint;
+import boofcv.alg.geo.bundle.ViewPointObservations;
+
+import java.util.List;
+
+/**
+ * Performs bundle adjustment using {@link BundleAdjustmentSparseSchur}, which takes advantage of the sparse
+ * structure of the problem.  Memory and computation scale linearly with the number of observations,
+ * making it suitable for problems with many views and points.
+ *
+ * @author Peter Abeles
+ */
+public class BundleAdjustmentCalibratedSparse
+		implements BundleAdjustmentCalibrated
+{
+	// converts to and from a parameterized version of the model
+	CalibPoseAndPointRodriguesCodec codec = new CalibPoseAndPointRodriguesCodec();
+	// storage for model parameters
+	double param[] = new double[0];
+
+	// optimization algorithm
+	BundleAdjustmentSparseSchur alg;
+
+	/**
+	 * Configures the optimizer
+	 *
+	 * @param convergenceTol Tolerance for the relative change in cost.  Try 1e-8
+	 * @param maxIterations Maximum number of iterations.
+	 */
+	public BundleAdjustmentCalibratedSparse(double convergenceTol,
+											int maxIterations ) {
+		alg = new BundleAdjustmentSparseSchur(convergenceTol,maxIterations);
+	}
+
+	@Override
+	public boolean process(CalibratedPoseAndPoint initialModel,
+						   List<ViewPointObservations> observations)
+	{
+		int numViews = initialModel.getNumViews();
+		int numPoints = initialModel.getNumPoints();
+		int numViewsUnknown = initialModel.getNumUnknownViews();
+
+		codec.configure(numViews,numPoints,numViewsUnknown,initialModel.getKnownArray());
+
+		if( param.length < codec.getParamLength() )
+			param = new double[ codec.getParamLength() ];
+
+		codec.encode(initialModel,param);
+		alg.configure(initialModel,observations);
+
+		if( !alg.process(param) )
+			return false;
+
+		codec.decode(param, initialModel);
+
+		return true;
+	}
+
+	public BundleAdjustmentSparseSchur getAlgorithm() {
+		return alg;
+	}
+}
@@ -170,6 +170,74 @@ public class LensDistortionOps {
 		}
 	}
 
+	/**
+	 * Removes radial distortion from the image in pixel coordinates and converts it into normalized image
+	 * coordinates using a precomputed grid.  Much faster than {@link #transformRadialToNorm_F64(IntrinsicParameters)}
+	 * when a large number of points are transformed, at the cost of a small interpolation error.  Use
+	 * {@link PointTransformGrid_F64#computeErrors(int)} to see how large the error is.
+	 *
+	 * @param param Intrinsic camera parameters.  The image shape must be specified.
+	 * @param spacing Distance in pixels between grid nodes.  Try 4.
+	 * @return Distorted pixel to normalized image coordinates
+	 */
+	public static PointTransformGrid_F64 transformRadialToNorm_F64( IntrinsicParameters param , double spacing )
+	{
+		checkShape(param);
+		return new PointTransformGrid_F64(transformRadialToNorm_F64(param),param.width,param.height,spacing);
+	}
+
+	/**
+	 * Removes radial distortion from the pixel coordinate using a precomputed grid.  See
+	 * {@link #transformRadialToNorm_F64(IntrinsicParameters, double)}.
+	 *
+	 * @param param Intrinsic camera parameters.  The image shape must be specified.
+	 * @param spacing Distance in pixels between grid nodes.  Try 4.
+	 * @return Transformation into undistorted pixel coordinates
+	 */
+	public static PointTransformGrid_F64 transformRadialToPixel_F64( IntrinsicParameters param , double spacing )
+	{
+		checkShape(param);
+		return new PointTransformGrid_F64(transformRadialToPixel_F64(param),param.width,param.height,spacing);
+	}
+
+	/**
+	 * Removes radial distortion from the pixel coordinate.
+	 *
+	 * @param param Intrinsic camera parameters
+	 * @return Transformation into undistorted pixel coordinates
+	 */
+	public static PointTransform_F32 transformRadialToPixel_F32( IntrinsicParameters param )
+	{
+		RemoveRadialPtoP_F32 removeRadial = new RemoveRadialPtoP_F32();
+		removeRadial.set(param.fx, param.fy, param.skew, param.cx, param.cy, param.radial);
+
+		if( param.flipY) {
+			PointTransform_F32 flip = new FlipVertical_F32(param.height);
+			return new SequencePointTransform_F32(flip,removeRadial,flip);
+		} else {
+			return removeRadial;
+		}
+	}
+
+	/**
+	 * Removes radial distortion from the pixel coordinate using a precomputed grid.  See
+	 * {@link #transformRadialToNorm_F64(IntrinsicParameters, double)}.
+	 *
+	 * @param param Intrinsic camera parameters.  The image shape must be specified.
+	 * @param spacing Distance in pixels between grid nodes.  Try 4.
+	 * @return Transformation into undistorted pixel coordinates
+	 */
+	public static PointTransformGrid_F32 transformRadialToPixel_F32( IntrinsicParameters param , float spacing )
+	{
+		checkShape(param);
+		return new PointTransformGrid_F32(transformRadialToPixel_F32(param),param.width,param.height,spacing);
+	}
+
+	private static void checkShape( IntrinsicParameters param ) {
+		if( param.width <= 0 || param.height <= 0 )
+			throw new IllegalArgumentException("The image shape must be specified in the intrinsic parameters");
+	}
+
 	/**
 	 * Converts normalized image coordinates into distorted pixel coordinates.
 	 *
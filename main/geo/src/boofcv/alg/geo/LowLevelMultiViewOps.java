@@ -56,7 +56,8 @@ public class LowLevelMultiViewOps {
 		double meanX1 = 0;
 		double meanY1 = 0;
 
-		for( Point2D_F64 p : points ) {
+		for( int i = 0; i < points.size(); i++ ) {
+			Point2D_F64 p = points.get(i);
 			meanX1 += p.x;
 			meanY1 += p.y;
 		}
@@ -67,7 +68,8 @@ public class LowLevelMultiViewOps {
 		double stdX1 = 0;
 		double stdY1 = 0;
 
-		for( Point2D_F64 p : points ) {
+		for( int i = 0; i < points.size(); i++ ) {
+			Point2D_F64 p = points.get(i);
 			double dx = p.x - meanX1;
 			double dy = p.y - meanY1;
 			stdX1 += dx*dx;
@@ -101,7 +103,8 @@ public class LowLevelMultiViewOps {
 		double meanX1 = 0; double meanY1 = 0;
 		double meanX2 = 0; double meanY2 = 0;
 
-		for( AssociatedPair p : points ) {
+		for( int i = 0; i < points.size(); i++ ) {
+			AssociatedPair p = points.get(i);
 			meanX1 += p.p1.x;  meanY1 += p.p1.y;
 			meanX2 += p.p2.x; meanY2 += p.p2.y;
 		}
@@ -112,7 +115,8 @@ public class LowLevelMultiViewOps {
 		double stdX1 = 0; double stdY1 = 0;
 		double stdX2 = 0; double stdY2 = 0;
 
-		for( AssociatedPair p : points ) {
+		for( int i = 0; i < points.size(); i++ ) {
+			AssociatedPair p = points.get(i);
 			double dx = p.p1.x - meanX1;
 			double dy = p.p1.y - meanY1;
 			stdX1 += dx*dx;
@@ -161,7 +165,8 @@ public class LowLevelMultiViewOps {
 		double meanX2 = 0; double meanY2 = 0;
 		double meanX3 = 0; double meanY3 = 0;
 
-		for( AssociatedTriple p : points ) {
+		for( int i = 0; i < points.size(); i++ ) {
+			AssociatedTriple p = points.get(i);
 			meanX1 += p.p1.x; meanY1 += p.p1.y;
 			meanX2 += p.p2.x; meanY2 += p.p2.y;
 			meanX3 += p.p3.x; meanY3 += p.p3.y;
@@ -175,7 +180,8 @@ public class LowLevelMultiViewOps {
 		double stdX2 = 0; double stdY2 = 0;
 		double stdX3 = 0; double stdY3 = 0;
 
-		for( AssociatedTriple p : points ) {
+		for( int i = 0; i < points.size(); i++ ) {
+			AssociatedTriple p = points.get(i);
 			double dx = p.p1.x - meanX1; double dy = p.p1.y - meanY1;
 			stdX1 += dx*dx; stdY1 += dy*dy;
 
@@ -53,6 +53,15 @@ public class NormalizedToPixelError {
 		this.skew = skew;
 	}
 
+	/**
+	 * Copies the intrinsic parameters from the original
+	 */
+	public void set( NormalizedToPixelError original ) {
+		this.fx = original.fx;
+		this.fy = original.fy;
+		this.skew = original.skew;
+	}
+
 	public double errorSq( Point2D_F64 a , Point2D_F64 b ) {
 		double dy = (b.y - a.y);
 		double dx = (b.x - a.x)*fx + dy*skew;
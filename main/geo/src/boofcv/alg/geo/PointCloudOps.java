@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo;
+
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.struct.PackedPointCloud_F32;
+import boofcv.struct.calib.IntrinsicParameters;
+import georegression.struct.se.Se3_F64;
+import org.ejml.data.DenseMatrix64F;
+
+/**
+ * Bulk operations on {@link PackedPointCloud_F32}.  Operations which are independent for each point are
+ * split into chunks which are processed concurrently.
+ *
+ * @author Peter Abeles
+ */
+public class PointCloudOps {
+
+	// minimum number of points processed by a single thread
+	private static final int MIN_BLOCK = 4096;
+
+	/**
+	 * Applies a rigid body transform to every point in the cloud.  Color is copied if both clouds have color.
+	 *
+	 * @param transform Transform from the src frame into the dst frame
+	 * @param src Input point cloud.  Not modified, unless it's the same instance as dst.
+	 * @param dst Output point cloud.  Can be the same instance as src.
+	 */
+	public static void transform( Se3_F64 transform , final PackedPointCloud_F32 src , final PackedPointCloud_F32 dst ) {
+		if( src != dst ) {
+			dst.resize(src.size);
+			if( src.rgb != null && dst.rgb != null )
+				System.arraycopy(src.rgb,0,dst.rgb,0,src.size);
+		}
+
+		DenseMatrix64F R = transform.getR();
+		final float r00 = (float)R.data[0], r01 = (float)R.data[1], r02 = (float)R.data[2];
+		final float r10 = (float)R.data[3], r11 = (float)R.data[4], r12 = (float)R.data[5];
+		final float r20 = (float)R.data[6], r21 = (float)R.data[7], r22 = (float)R.data[8];
+		final float tx = (float)transform.getT().x;
+		final float ty = (float)transform.getT().y;
+		final float tz = (float)transform.getT().z;
+
+		BoofConcurrency.loopBlocks(0, src.size, MIN_BLOCK, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				final float[] sx = src.x, sy = src.y, sz = src.z;
+				final float[] dx = dst.x, dy = dst.y, dz = dst.z;
+
+				for( int i = i0; i < i1; i++ ) {
+					float x = sx[i], y = sy[i], z = sz[i];
+
+					dx[i] = r00*x + r01*y + r02*z + tx;
+					dy[i] = r10*x + r11*y + r12*z + ty;
+					dz[i] = r20*x + r21*y + r22*z + tz;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Projects every point in the cloud onto the image plane.  Points are assumed to be in the camera's
+	 * reference frame.  Radial distortion is applied if specified in the intrinsic parameters.  Points which
+	 * are not in front of the camera are assigned a pixel coordinate of NaN.
+	 *
+	 * @param param Intrinsic camera parameters
+	 * @param cloud Point cloud in camera reference frame.  Not modified.
+	 * @param pixelX Output. x-coordinate of each pixel.  Must be at least cloud.size long.
+	 * @param pixelY Output. y-coordinate of each pixel.  Must be at least cloud.size long.
+	 */
+	public static void project( IntrinsicParameters param , final PackedPointCloud_F32 cloud ,
+								final float[] pixelX , final float[] pixelY ) {
+		if( pixelX.length < cloud.size || pixelY.length < cloud.size )
+			throw new IllegalArgumentException("Output arrays are too small");
+
+		final float fx = (float)param.fx, fy = (float)param.fy, skew = (float)param.skew;
+		final float cx = (float)param.cx, cy = (float)param.cy;
+		final float[] radial;
+		if( param.radial == null ) {
+			radial = new float[0];
+		} else {
+			radial = new float[param.radial.length];
+			for( int i = 0; i < radial.length; i++ )
+				radial[i] = (float)param.radial[i];
+		}
+
+		BoofConcurrency.loopBlocks(0, cloud.size, MIN_BLOCK, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				final float[] X = cloud.x, Y = cloud.y, Z = cloud.z;
+
+				for( int i = i0; i < i1; i++ ) {
+					float z = Z[i];
+					if( z <= 0 ) {
+						pixelX[i] = pixelY[i] = Float.NaN;
+						continue;
+					}
+
+					float nx = X[i]/z;
+					float ny = Y[i]/z;
+
+					if( radial.length > 0 ) {
+						float r2 = nx*nx + ny*ny;
+						float r = r2;
+						float sum = 0;
+						for( int j = 0; j < radial.length; j++ ) {
+							sum += radial[j]*r;
+							r *= r2;
+						}
+						nx *= 1 + sum;
+						ny *= 1 + sum;
+					}
+
+					pixelX[i] = fx*nx + skew*ny + cx;
+					pixelY[i] = fy*ny + cy;
+				}
+			}
+		});
+	}
+
+	/**
+	 * <p>
+	 * Reduces the number of points by replacing all the points inside of each voxel with their centroid.
+	 * If both clouds have color then the average color of the points inside the voxel is used.  The order
+	 * of points in the output is the order in which each voxel was first encountered in the input.  Points
+	 * with a coordinate which is NaN or infinite are skipped.
+	 * </p>
+	 *
+	 * <p>
+	 * Voxels are aligned to the coordinate system's origin.  The input is split into chunks of a fixed size which
+	 * are processed concurrently.  The partial sums of each voxel inside a chunk are then merged in the order of
+	 * the chunks, so the output doesn't depend on the number of threads.
+	 * </p>
+	 *
+	 * @param src Input point cloud.  Not modified.
+	 * @param voxelSize Length of a side of each voxel.  Must be > 0.
+	 * @param dst Output point cloud.  Must not be the same instance as src.
+	 */
+	public static void downsampleVoxel( final PackedPointCloud_F32 src , float voxelSize ,
+										final PackedPointCloud_F32 dst ) {
+		if( voxelSize <= 0 )
+			throw new IllegalArgumentException("voxelSize must be > 0");
+		if( src == dst )
+			throw new IllegalArgumentException("src and dst must be different instances");
+
+		final int N = src.size;
+		final float scale = 1.0f/voxelSize;
+		final boolean color = src.rgb != null && dst.rgb != null;
+
+		// voxel that each point belongs to
+		final int[] vx = new int[N];
+		final int[] vy = new int[N];
+		final int[] vz = new int[N];
+
+		// Voxels inside each chunk and their partial sums.  The k-th voxel in chunk c is stored at c*MIN_BLOCK+k
+		final int numChunks = (N+MIN_BLOCK-1)/MIN_BLOCK;
+		final int[] chunkVoxels = new int[numChunks];
+		final int[] localFirst = new int[N];
+		final double[] localX = new double[N];
+		final double[] localY = new double[N];
+		final double[] localZ = new double[N];
+		final int[] localCount = new int[N];
+		final int[] localRGB = color ? new int[N*3] : null;
+
+		BoofConcurrency.loopBlocks(0, numChunks, 1, new IntRangeTask() {
+			@Override
+			public void process(int block, int c0, int c1) {
+				int[] table = new int[MIN_BLOCK*2];
+				int mask = table.length-1;
+
+				for( int c = c0; c < c1; c++ ) {
+					int offset = c*MIN_BLOCK;
+					int end = Math.min(N, offset+MIN_BLOCK);
+					int total = 0;
+					for( int i = 0; i < table.length; i++ )
+						table[i] = -1;
+
+					for( int i = offset; i < end; i++ ) {
+						float x = src.x[i], y = src.y[i], z = src.z[i];
+						// (int)Math.floor(NaN) is zero, which would put the point inside of a valid voxel
+						if( isNotFinite(x) || isNotFinite(y) || isNotFinite(z) )
+							continue;
+						vx[i] = (int)Math.floor(x*scale);
+						vy[i] = (int)Math.floor(y*scale);
+						vz[i] = (int)Math.floor(z*scale);
+
+						int slot = hash(vx[i],vy[i],vz[i]) & mask;
+						int local;
+						while( true ) {
+							int idx = table[slot];
+							if( idx == -1 ) {
+								local = offset + total;
+								table[slot] = total++;
+								localFirst[local] = i;
+								localX[local] = localY[local] = localZ[local] = 0;
+								localCount[local] = 0;
+								if( color )
+									localRGB[local*3] = localRGB[local*3+1] = localRGB[local*3+2] = 0;
+								break;
+							}
+							int j = localFirst[offset+idx];
+							if( vx[j] == vx[i] && vy[j] == vy[i] && vz[j] == vz[i] ) {
+								local = offset + idx;
+								break;
+							}
+							slot = (slot+1) & mask;
+						}
+
+						localX[local] += x;
+						localY[local] += y;
+						localZ[local] += z;
+						localCount[local]++;
+						if( color ) {
+							int rgb = src.rgb[i];
+							localRGB[local*3  ] += (rgb >> 16) & 0xFF;
+							localRGB[local*3+1] += (rgb >> 8) & 0xFF;
+							localRGB[local*3+2] += rgb & 0xFF;
+						}
+					}
+					chunkVoxels[c] = total;
+				}
+			}
+		});
+
+		int maxVoxels = 0;
+		for( int c = 0; c < numChunks; c++ )
+			maxVoxels += chunkVoxels[c];
+
+		// open addressing hash table which maps a voxel to its index in the output
+		int tableSize = 16;
+		while( tableSize < maxVoxels*2 )
+			tableSize <<= 1;
+		int mask = tableSize-1;
+		int[] table = new int[tableSize];
+		for( int i = 0; i < tableSize; i++ )
+			table[i] = -1;
+
+		// merge the partial sums in chunk order.  first point in each voxel and its sums
+		int[] first = new int[maxVoxels];
+		final double sumX[] = new double[maxVoxels];
+		final double sumY[] = new double[maxVoxels];
+		final double sumZ[] = new double[maxVoxels];
+		final int count[] = new int[maxVoxels];
+		final int sumRGB[] = color ? new int[maxVoxels*3] : null;
+		int total = 0;
+
+		for( int c = 0; c < numChunks; c++ ) {
+			for( int k = 0; k < chunkVoxels[c]; k++ ) {
+				int local = c*MIN_BLOCK + k;
+				int i = localFirst[local];
+				int slot = hash(vx[i],vy[i],vz[i]) & mask;
+
+				int a;
+				while( true ) {
+					int idx = table[slot];
+					if( idx == -1 ) {
+						table[slot] = a = total++;
+						first[a] = i;
+						break;
+					}
+					int j = first[idx];
+					if( vx[j] == vx[i] && vy[j] == vy[i] && vz[j] == vz[i] ) {
+						a = idx;
+						break;
+					}
+					slot = (slot+1) & mask;
+				}
+
+				sumX[a] += localX[local];
+				sumY[a] += localY[local];
+				sumZ[a] += localZ[local];
+				count[a] += localCount[local];
+				if( color ) {
+					sumRGB[a*3  ] += localRGB[local*3  ];
+					sumRGB[a*3+1] += localRGB[local*3+1];
+					sumRGB[a*3+2] += localRGB[local*3+2];
+				}
+			}
+		}
+
+		// compute the centroid of each voxel
+		dst.resize(total);
+		BoofConcurrency.loopBlocks(0, total, MIN_BLOCK, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				for( int i = i0; i < i1; i++ ) {
+					int n = count[i];
+					dst.x[i] = (float)(sumX[i]/n);
+					dst.y[i] = (float)(sumY[i]/n);
+					dst.z[i] = (float)(sumZ[i]/n);
+					if( color ) {
+						int r = sumRGB[i*3]/n, g = sumRGB[i*3+1]/n, b = sumRGB[i*3+2]/n;
+						dst.rgb[i] = (r << 16) | (g << 8) | b;
+					}
+				}
+			}
+		});
+	}
+
+	private static int hash( int x , int y , int z ) {
+		int h = (x*73856093) ^ (y*19349663) ^ (z*83492791);
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean isNotFinite( float value ) {
+		return Float.isNaN(value) || Float.isInfinite(value);
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo;
+
+import org.ddogleg.solver.Polynomial;
+import org.ddogleg.solver.PolynomialRoots;
+import org.ddogleg.solver.impl.SturmSequence;
+import org.ejml.data.Complex64F;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Finds the real roots of a polynomial using a Sturm sequence, see {@link SturmSequence}.  Intervals containing
+ * roots are found by bisection until each contains a single root, which is then bracketed to the specified
+ * tolerance and polished with Newton's method.  All the roots are found inside the Cauchy bound of the
+ * polynomial so no search radius needs to be specified.
+ * </p>
+ *
+ * <p>
+ * Unlike {@link org.ddogleg.solver.impl.WrapRealRootsSturm} no memory is declared after the first call, which
+ * matters when it is called thousands of times inside of RANSAC by minimal solvers.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class RealRootsSturm implements PolynomialRoots {
+
+	private SturmSequence sturm;
+
+	// relative tolerance used when bracketing a root
+	private double boundTolerance;
+	// maximum number of bisection iterations for isolating and bracketing roots
+	private int maxBoundIterations;
+	// maximum number of Newton iterations
+	private int maxRefineIterations;
+
+	// derivative of the polynomial
+	private Polynomial derivative;
+
+	// stack of intervals which contain roots.  lower bound, upper bound, number of roots, and depth
+	private double[] stackLower;
+	private double[] stackUpper;
+	private int[] stackCount;
+	private int[] stackDepth;
+
+	// storage for found roots
+	private Complex64F[] storage;
+	private List<Complex64F> roots;
+
+	/**
+	 * Configures the root finder
+	 *
+	 * @param maxCoefficients The maximum number of coefficients a polynomial will have
+	 * @param boundTolerance Relative tolerance used when bracketing a root
+	 * @param maxBoundIterations Maximum number of bisection iterations
+	 * @param maxRefineIterations Maximum number of Newton iterations
+	 */
+	public RealRootsSturm( int maxCoefficients , double boundTolerance ,
+						   int maxBoundIterations , int maxRefineIterations ) {
+		this.boundTolerance = boundTolerance;
+		this.maxBoundIterations = maxBoundIterations;
+		this.maxRefineIterations = maxRefineIterations;
+
+		sturm = new SturmSequence(maxCoefficients);
+		derivative = new Polynomial(maxCoefficients);
+
+		stackLower = new double[maxCoefficients];
+		stackUpper = new double[maxCoefficients];
+		stackCount = new int[maxCoefficients];
+		stackDepth = new int[maxCoefficients];
+
+		roots = new ArrayList<Complex64F>(maxCoefficients);
+		storage = new Complex64F[maxCoefficients];
+		for( int i = 0; i < maxCoefficients; i++ )
+			storage[i] = new Complex64F();
+	}
+
+	@Override
+	public boolean process( Polynomial poly ) {
+		roots.clear();
+
+		int degree = poly.computeDegree();
+		if( degree < 1 )
+			return true;
+
+		// all real roots are inside the Cauchy bound
+		double largest = 0;
+		double top = Math.abs(poly.c[degree]);
+		for( int i = 0; i < degree; i++ )
+			largest = Math.max(largest, Math.abs(poly.c[i]));
+		double bound = 1 + largest/top;
+		if( Double.isInfinite(bound) || Double.isNaN(bound) )
+			return false;
+
+		sturm.initialize(poly);
+		int total = sturm.countRealRoots(-bound, bound);
+		if( total <= 0 )
+			return true;
+
+		derivative.size = degree;
+		for( int i = 1; i <= degree; i++ )
+			derivative.c[i-1] = i*poly.c[i];
+
+		// isolate each root by splitting intervals in half
+		int stackSize = 1;
+		stackLower[0] = -bound;
+		stackUpper[0] = bound;
+		stackCount[0] = total;
+		stackDepth[0] = 0;
+
+		while( stackSize > 0 ) {
+			stackSize--;
+			double lower = stackLower[stackSize];
+			double upper = stackUpper[stackSize];
+			int count = stackCount[stackSize];
+			int depth = stackDepth[stackSize];
+
+			if( count == 1 ) {
+				addRoot(poly, bracket(lower, upper), lower, upper);
+			} else if( depth >= maxBoundIterations ) {
+				// can't separate the roots, e.g. a repeated root
+				addRoot(poly, (lower+upper)/2, lower, upper);
+			} else {
+				double middle = (lower+upper)/2;
+				int countLower = sturm.countRealRoots(lower, middle);
+				int countUpper = count - countLower;
+				if( countUpper > 0 )
+					stackSize = push(stackSize, middle, upper, countUpper, depth+1);
+				if( countLower > 0 )
+					stackSize = push(stackSize, lower, middle, countLower, depth+1);
+			}
+		}
+
+		return true;
+	}
+
+	private int push( int stackSize , double lower , double upper , int count , int depth ) {
+		stackLower[stackSize] = lower;
+		stackUpper[stackSize] = upper;
+		stackCount[stackSize] = count;
+		stackDepth[stackSize] = depth;
+		return stackSize + 1;
+	}
+
+	/**
+	 * Shrinks an interval which contains a single root (lower,upper] with bisection
+	 */
+	private double bracket( double lower , double upper ) {
+		for( int i = 0; i < maxBoundIterations; i++ ) {
+			if( upper - lower <= boundTolerance*Math.max(1,Math.abs(lower)) )
+				break;
+			double middle = (lower+upper)/2;
+			if( sturm.countRealRoots(lower, middle) == 1 )
+				upper = middle;
+			else
+				lower = middle;
+		}
+		return (lower+upper)/2;
+	}
+
+	/**
+	 * Polishes the root with Newton's method and saves it.  A step is only accepted if it stays inside the
+	 * interval and reduces the magnitude of the polynomial.
+	 */
+	private void addRoot( Polynomial poly , double x , double lower , double upper ) {
+		double f = poly.evaluate(x);
+		for( int i = 0; i < maxRefineIterations && f != 0; i++ ) {
+			double d = derivative.evaluate(x);
+			if( d == 0 )
+				break;
+			double next = x - f/d;
+			if( next < lower || next > upper )
+				break;
+			double fnext = poly.evaluate(next);
+			if( Math.abs(fnext) >= Math.abs(f) )
+				break;
+			x = next;
+			f = fnext;
+		}
+
+		Complex64F c = storage[roots.size()];
+		c.real = x;
+		c.imaginary = 0;
+		roots.add(c);
+	}
+
+	@Override
+	public List<Complex64F> getRoots() {
+		return roots;
+	}
+}
@@ -0,0 +1,815 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.geo.bundle;
+
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.LinearSolverFactory;
+import org.ejml.interfaces.linsol.LinearSolver;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Levenberg-Marquardt optimization of bundle adjustment with known calibration which takes advantage of the
+ * problem's sparse block structure.  The normal equations are written as:
+ * </p>
+ * <pre>
+ * [ U   W ] [dc]   [-gc]
+ * [ W'  V ] [dp] = [-gp]
+ * </pre>
+ * <p>
+ * where U is block diagonal with a 6x6 block for each unknown view, V is block diagonal with a 3x3 block for
+ * each point and W has a 6x3 block for each observation.  Points are eliminated using the Schur complement,
+ * S = U - W*inv(V)*W', and then the reduced camera system S*dc = rhs is solved.  Point updates are then found
+ * by back substitution.
+ * </p>
+ *
+ * <p>
+ * If the reduced system is small then S is explicitly formed and solved using a Cholesky decomposition.
+ * Otherwise it's solved using preconditioned conjugate gradient with a block Jacobi preconditioner.  In that
+ * case S is never formed.  Each product S*x is computed from the per-observation Jacobian blocks instead, which
+ * keeps memory linear in the number of observations.  If the Cholesky decomposition fails, which can happen
+ * when the problem is poorly conditioned, conjugate gradient is used.
+ * </p>
+ *
+ * <p>
+ * All the expensive steps are computed concurrently.  Work which accumulates values for a view or a point is
+ * split up by view or by point, so no two threads write to the same location and results do not depend on
+ * the order threads run in.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class BundleAdjustmentSparseSchur {
+
+	// minimum number of views or points processed by a single thread
+	private static final int MIN_VIEWS = 4;
+	private static final int MIN_POINTS = 1024;
+
+	// smallest diagonal element used when computing the damping term
+	private static final double MIN_DIAGONAL = 1e-9;
+
+	// computes residuals and Jacobian blocks
+	CalibPoseAndPointSparseJacobian jacobian = new CalibPoseAndPointSparseJacobian();
+
+	// convergence tolerance for the change in cost
+	double ftol;
+	// maximum number of iterations
+	int maxIterations;
+	// maximum amount of time in milliseconds it can run for.  <= 0 for no limit
+	long maxTime = 0;
+	// relative tolerance and maximum number of iterations for conjugate gradient
+	double pcgTol = 1e-8;
+	int pcgMaxIterations = 500;
+
+	// largest reduced system which is solved using a dense Cholesky decomposition
+	int maxDenseReduced = 1200;
+	// dense reduced system
+	DenseMatrix64F S = new DenseMatrix64F(1,1);
+	DenseMatrix64F B = new DenseMatrix64F(1,1);
+	DenseMatrix64F X = new DenseMatrix64F(1,1);
+	LinearSolver<DenseMatrix64F> cholesky;
+	int choleskySize;
+
+	// damping parameter
+	double lambda;
+	double initialLambda = 1e-3;
+
+	// current cost
+	double cost;
+
+	// undamped normal equation blocks
+	double U[] = new double[0];
+	double V[] = new double[0];
+	double gc[] = new double[0];
+	double gp[] = new double[0];
+
+	// inverse of the damped V blocks
+	double Vinv[] = new double[0];
+	// damped U blocks
+	double Ud[] = new double[0];
+	// inverse of the preconditioner's blocks
+	double Minv[] = new double[0];
+
+	// conjugate gradient storage
+	double rhs[] = new double[0];
+	double dc[] = new double[0];
+	double r[] = new double[0];
+	double z[] = new double[0];
+	double p[] = new double[0];
+	double q[] = new double[0];
+	// storage for one 3-vector for each point
+	double pointTmp[] = new double[0];
+
+	// step and candidate parameters
+	double step[] = new double[0];
+	double candidate[] = new double[0];
+
+	/**
+	 * Configures the optimizer
+	 *
+	 * @param ftol Convergence tolerance for the relative change in cost.  Try 1e-8
+	 * @param maxIterations Maximum number of iterations.
+	 */
+	public BundleAdjustmentSparseSchur( double ftol , int maxIterations ) {
+		this.ftol = ftol;
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Configures the internal data structures for the problem.
+	 *
+	 * @param model Model being optimized.
+	 * @param observations Observations in each view.
+	 */
+	public void configure( CalibratedPoseAndPoint model , List<ViewPointObservations> observations ) {
+		jacobian.configure(model,observations);
+
+		int numUnknown = jacobian.getNumViewsUnknown();
+		int numPoints = jacobian.getNumPoints();
+		int N = jacobian.getNumParameters();
+
+		if( U.length < numUnknown*36 ) {
+			U = new double[numUnknown*36];
+			Ud = new double[numUnknown*36];
+			Minv = new double[numUnknown*36];
+			gc = new double[numUnknown*6];
+			rhs = new double[numUnknown*6];
+			dc = new double[numUnknown*6];
+			r = new double[numUnknown*6];
+			z = new double[numUnknown*6];
+			p = new double[numUnknown*6];
+			q = new double[numUnknown*6];
+		}
+		if( V.length < numPoints*9 ) {
+			V = new double[numPoints*9];
+			Vinv = new double[numPoints*9];
+			gp = new double[numPoints*3];
+			pointTmp = new double[numPoints*3];
+		}
+		if( step.length < N ) {
+			step = new double[N];
+			candidate = new double[N];
+		}
+	}
+
+	/**
+	 * Optimizes the parameters.
+	 *
+	 * @param param (Input/Output) Parameters encoded using {@link CalibPoseAndPointRodriguesCodec}.
+	 * @return true if successful
+	 */
+	public boolean process( double param[] ) {
+		int N = jacobian.getNumParameters();
+		long timeStart = System.currentTimeMillis();
+
+		lambda = initialLambda;
+		double nu = 2;
+		cost = jacobian.computeJacobian(param);
+		if( Double.isNaN(cost) || Double.isInfinite(cost) )
+			return false;
+
+		computeNormalEquations();
+
+		for( int iteration = 0; iteration < maxIterations && cost > 0; iteration++ ) {
+			if( maxTime > 0 && System.currentTimeMillis() - timeStart >= maxTime )
+				break;
+
+			solveStep();
+
+			for( int i = 0; i < N; i++ ) {
+				candidate[i] = param[i] + step[i];
+			}
+
+			double candidateCost = jacobian.computeResiduals(candidate);
+
+			if( candidateCost < cost ) {
+				// update the damping using the ratio of actual to predicted reduction, Nielsen's method
+				double predicted = predictedReduction();
+				double ratio = predicted > 0 ? (cost - candidateCost)/predicted : 1;
+				double tmp = 2*ratio - 1;
+				lambda *= Math.max(1.0/3.0, 1 - tmp*tmp*tmp);
+				lambda = Math.max(lambda, 1e-15);
+				nu = 2;
+
+				System.arraycopy(candidate, 0, param, 0, N);
+				boolean converged = cost - candidateCost <= ftol*cost;
+				cost = candidateCost;
+
+				if( converged )
+					break;
+
+				jacobian.computeJacobian(param);
+				computeNormalEquations();
+			} else {
+				lambda *= nu;
+				nu *= 2;
+				// no step can reduce the cost
+				if( lambda > 1e16 )
+					break;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Specifies the maximum amount of time it can run for.  The limit is checked at the start of each
+	 * iteration, so the actual time will be longer by up to one iteration.
+	 *
+	 * @param maxTime Time in milliseconds.  If &le; 0 there is no limit.
+	 */
+	public void setMaxTime( long maxTime ) {
+		this.maxTime = maxTime;
+	}
+
+	public long getMaxTime() {
+		return maxTime;
+	}
+
+	/**
+	 * Reduction in the sum of squared residuals predicted by the linear model.  pred = -g'*d + lambda*d'*D*d,
+	 * where D is the diagonal used for damping.
+	 */
+	private double predictedReduction() {
+		int numUnknown = jacobian.numViewsUnknown;
+		int numPoints = jacobian.numPoints;
+
+		double sum = 0;
+		for( int u = 0; u < numUnknown; u++ ) {
+			for( int i = 0; i < 6; i++ ) {
+				double d = step[u*6+i];
+				sum += -gc[u*6+i]*d + lambda*Math.max(U[u*36+i*7], MIN_DIAGONAL)*d*d;
+			}
+		}
+		int indexFirstPoint = numUnknown*6;
+		for( int point = 0; point < numPoints; point++ ) {
+			for( int i = 0; i < 3; i++ ) {
+				double d = step[indexFirstPoint+point*3+i];
+				sum += -gp[point*3+i]*d + lambda*Math.max(V[point*9+i*4], MIN_DIAGONAL)*d*d;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Computes the undamped blocks in the normal equations and the gradient
+	 */
+	private void computeNormalEquations() {
+		final double res[] = jacobian.residuals;
+		final double jv[] = jacobian.jacView;
+		final double jp[] = jacobian.jacPoint;
+
+		// view blocks.  observations are already grouped by view
+		BoofConcurrency.loopBlocks(0, jacobian.numViews, MIN_VIEWS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				for( int view = start; view < end; view++ ) {
+					int u = jacobian.viewUnknown[view];
+					if( u < 0 )
+						continue;
+					int indexU = u*36, indexG = u*6;
+					for( int i = 0; i < 36; i++ )
+						U[indexU+i] = 0;
+					for( int i = 0; i < 6; i++ )
+						gc[indexG+i] = 0;
+
+					int obsEnd = jacobian.viewObsStart[view+1];
+					for( int k = jacobian.viewObsStart[view]; k < obsEnd; k++ ) {
+						int indexJ = k*12;
+						double rx = res[k*2], ry = res[k*2+1];
+						for( int i = 0; i < 6; i++ ) {
+							double ax = jv[indexJ+i], ay = jv[indexJ+6+i];
+							gc[indexG+i] += ax*rx + ay*ry;
+							for( int j = i; j < 6; j++ ) {
+								U[indexU+i*6+j] += ax*jv[indexJ+j] + ay*jv[indexJ+6+j];
+							}
+						}
+					}
+					// copy the upper triangle into the lower
+					for( int i = 1; i < 6; i++ ) {
+						for( int j = 0; j < i; j++ ) {
+							U[indexU+i*6+j] = U[indexU+j*6+i];
+						}
+					}
+				}
+			}
+		});
+
+		// point blocks
+		BoofConcurrency.loopBlocks(0, jacobian.numPoints, MIN_POINTS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				for( int point = start; point < end; point++ ) {
+					int indexV = point*9, indexG = point*3;
+					for( int i = 0; i < 9; i++ )
+						V[indexV+i] = 0;
+					gp[indexG] = gp[indexG+1] = gp[indexG+2] = 0;
+
+					int obsEnd = jacobian.pointObsStart[point+1];
+					for( int i = jacobian.pointObsStart[point]; i < obsEnd; i++ ) {
+						int k = jacobian.pointObs[i];
+						int indexJ = k*6;
+						double rx = res[k*2], ry = res[k*2+1];
+						for( int a = 0; a < 3; a++ ) {
+							double ax = jp[indexJ+a], ay = jp[indexJ+3+a];
+							gp[indexG+a] += ax*rx + ay*ry;
+							for( int b = 0; b < 3; b++ ) {
+								V[indexV+a*3+b] += ax*jp[indexJ+b] + ay*jp[indexJ+3+b];
+							}
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Solves for the step given the current damping using the Schur complement
+	 */
+	private void solveStep() {
+		final int numUnknown = jacobian.numViewsUnknown;
+		final int numPoints = jacobian.numPoints;
+		final double jv[] = jacobian.jacView;
+		final double jp[] = jacobian.jacPoint;
+
+		// invert the damped point blocks and compute inv(V)*gp
+		BoofConcurrency.loopBlocks(0, numPoints, MIN_POINTS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				for( int point = start; point < end; point++ ) {
+					int indexV = point*9;
+					invertDamped3(V, indexV, lambda, Vinv);
+					mult3(Vinv, indexV, gp, point*3, pointTmp, point*3);
+				}
+			}
+		});
+
+		if( numUnknown > 0 ) {
+			// damped view blocks, right hand side and the preconditioner
+			BoofConcurrency.loopBlocks(0, jacobian.numViews, MIN_VIEWS, new IntRangeTask() {
+				@Override
+				public void process(int block, int start, int end) {
+					double M[] = new double[36];
+					for( int view = start; view < end; view++ ) {
+						int u = jacobian.viewUnknown[view];
+						if( u < 0 )
+							continue;
+						int indexU = u*36, indexG = u*6;
+
+						System.arraycopy(U, indexU, Ud, indexU, 36);
+						for( int i = 0; i < 6; i++ ) {
+							double d = U[indexU+i*7];
+							Ud[indexU+i*7] += lambda*Math.max(d, MIN_DIAGONAL);
+						}
+						System.arraycopy(Ud, indexU, M, 0, 36);
+
+						// rhs = -gc + W*inv(V)*gp
+						for( int i = 0; i < 6; i++ )
+							rhs[indexG+i] = -gc[indexG+i];
+
+						int obsEnd = jacobian.viewObsStart[view+1];
+						for( int k = jacobian.viewObsStart[view]; k < obsEnd; k++ ) {
+							int point = jacobian.obsPoint[k];
+							int indexJV = k*12, indexJP = k*6, indexP = point*3, indexV = point*9;
+
+							// W*y = Jc'*(Jp*y)
+							double a = jp[indexJP  ]*pointTmp[indexP] + jp[indexJP+1]*pointTmp[indexP+1] + jp[indexJP+2]*pointTmp[indexP+2];
+							double b = jp[indexJP+3]*pointTmp[indexP] + jp[indexJP+4]*pointTmp[indexP+1] + jp[indexJP+5]*pointTmp[indexP+2];
+							for( int i = 0; i < 6; i++ ) {
+								rhs[indexG+i] += jv[indexJV+i]*a + jv[indexJV+6+i]*b;
+							}
+
+							// diagonal block of the Schur complement.  W*inv(V)*W' = Jc'*(Jp*inv(V)*Jp')*Jc
+							double b00=0,b01=0,b11=0;
+							for( int i = 0; i < 3; i++ ) {
+								double vx = 0, vy = 0;
+								for( int j = 0; j < 3; j++ ) {
+									vx += Vinv[indexV+i*3+j]*jp[indexJP+j];
+									vy += Vinv[indexV+i*3+j]*jp[indexJP+3+j];
+								}
+								b00 += jp[indexJP+i]*vx;
+								b01 += jp[indexJP+i]*vy;
+								b11 += jp[indexJP+3+i]*vy;
+							}
+							for( int i = 0; i < 6; i++ ) {
+								double cx = jv[indexJV+i], cy = jv[indexJV+6+i];
+								double tx = b00*cx + b01*cy;
+								double ty = b01*cx + b11*cy;
+								for( int j = 0; j < 6; j++ ) {
+									M[i*6+j] -= tx*jv[indexJV+j] + ty*jv[indexJV+6+j];
+								}
+							}
+						}
+
+						invertPreconditioner(M, Minv, indexU);
+					}
+				}
+			});
+
+			if( numUnknown*6 > maxDenseReduced || !solveReducedDense() )
+				solveReducedSystem();
+		}
+
+		// back substitution for the points.  dp = inv(V)*(-gp - W'*dc)
+		final int indexFirstPoint = numUnknown*6;
+		BoofConcurrency.loopBlocks(0, numPoints, MIN_POINTS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				double t[] = new double[3];
+				for( int point = start; point < end; point++ ) {
+					int indexG = point*3;
+					t[0] = -gp[indexG]; t[1] = -gp[indexG+1]; t[2] = -gp[indexG+2];
+
+					int obsEnd = jacobian.pointObsStart[point+1];
+					for( int i = jacobian.pointObsStart[point]; i < obsEnd; i++ ) {
+						int k = jacobian.pointObs[i];
+						int u = jacobian.viewUnknown[jacobian.obsView[k]];
+						if( u < 0 )
+							continue;
+						addWtX(jv, jp, k, dc, u*6, -1, t, 0);
+					}
+
+					mult3(Vinv, point*9, t, 0, step, indexFirstPoint+indexG);
+				}
+			}
+		});
+
+		System.arraycopy(dc, 0, step, 0, numUnknown*6);
+	}
+
+	/**
+	 * Explicitly forms S and solves S*dc = rhs using a Cholesky decomposition
+	 *
+	 * @return true if successful
+	 */
+	private boolean solveReducedDense() {
+		final int N = jacobian.numViewsUnknown*6;
+		final double jv[] = jacobian.jacView;
+		final double jp[] = jacobian.jacPoint;
+
+		S.reshape(N,N);
+		if( cholesky == null || choleskySize != N ) {
+			cholesky = LinearSolverFactory.symmPosDef(N);
+			choleskySize = N;
+		}
+
+		// each thread computes the rows for a set of views
+		BoofConcurrency.loopBlocks(0, jacobian.numViews, MIN_VIEWS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				for( int view = start; view < end; view++ ) {
+					int u = jacobian.viewUnknown[view];
+					if( u < 0 )
+						continue;
+
+					for( int i = 0; i < 6; i++ ) {
+						int indexS = (u*6+i)*N;
+						for( int j = 0; j < N; j++ )
+							S.data[indexS+j] = 0;
+						for( int j = 0; j < 6; j++ )
+							S.data[indexS+u*6+j] = Ud[u*36+i*6+j];
+					}
+
+					int obsEnd = jacobian.viewObsStart[view+1];
+					for( int k = jacobian.viewObsStart[view]; k < obsEnd; k++ ) {
+						int point = jacobian.obsPoint[k];
+						int indexV = point*9, indexJK = k*6;
+
+						// Jp_k*inv(V)
+						double a0=0,a1=0,a2=0,b0=0,b1=0,b2=0;
+						for( int i = 0; i < 3; i++ ) {
+							a0 += jp[indexJK+i]*Vinv[indexV+i*3];
+							a1 += jp[indexJK+i]*Vinv[indexV+i*3+1];
+							a2 += jp[indexJK+i]*Vinv[indexV+i*3+2];
+							b0 += jp[indexJK+3+i]*Vinv[indexV+i*3];
+							b1 += jp[indexJK+3+i]*Vinv[indexV+i*3+1];
+							b2 += jp[indexJK+3+i]*Vinv[indexV+i*3+2];
+						}
+
+						int pointEnd = jacobian.pointObsStart[point+1];
+						for( int m = jacobian.pointObsStart[point]; m < pointEnd; m++ ) {
+							int l = jacobian.pointObs[m];
+							int w = jacobian.viewUnknown[jacobian.obsView[l]];
+							if( w < 0 )
+								continue;
+
+							// 2x2 matrix Jp_k*inv(V)*Jp_l'
+							int indexJL = l*6;
+							double c00 = a0*jp[indexJL  ] + a1*jp[indexJL+1] + a2*jp[indexJL+2];
+							double c01 = a0*jp[indexJL+3] + a1*jp[indexJL+4] + a2*jp[indexJL+5];
+							double c10 = b0*jp[indexJL  ] + b1*jp[indexJL+1] + b2*jp[indexJL+2];
+							double c11 = b0*jp[indexJL+3] + b1*jp[indexJL+4] + b2*jp[indexJL+5];
+
+							// S(u,w) -= Jc_k'*C*Jc_l
+							int indexK = k*12, indexL = l*12;
+							for( int i = 0; i < 6; i++ ) {
+								double kx = jv[indexK+i], ky = jv[indexK+6+i];
+								double tx = kx*c00 + ky*c10;
+								double ty = kx*c01 + ky*c11;
+								int indexS = (u*6+i)*N + w*6;
+								for( int j = 0; j < 6; j++ ) {
+									S.data[indexS+j] -= tx*jv[indexL+j] + ty*jv[indexL+6+j];
+								}
+							}
+						}
+					}
+				}
+			}
+		});
+
+		B.reshape(N,1);
+		X.reshape(N,1);
+		System.arraycopy(rhs, 0, B.data, 0, N);
+
+		if( !cholesky.setA(S) )
+			return false;
+		cholesky.solve(B,X);
+		System.arraycopy(X.data, 0, dc, 0, N);
+
+		return true;
+	}
+
+	/**
+	 * Solves S*dc = rhs using preconditioned conjugate gradient
+	 */
+	private void solveReducedSystem() {
+		int N = jacobian.numViewsUnknown*6;
+
+		for( int i = 0; i < N; i++ )
+			dc[i] = 0;
+		// with dc = 0 the residual is the right hand side
+		System.arraycopy(rhs, 0, r, 0, N);
+		applyPreconditioner(r, z);
+		System.arraycopy(z, 0, p, 0, N);
+
+		double rz = dot(r, z, N);
+		double threshold = pcgTol*pcgTol*dot(rhs, rhs, N);
+
+		for( int iter = 0; iter < pcgMaxIterations; iter++ ) {
+			if( dot(r, r, N) <= threshold )
+				break;
+
+			multiplySchur(p, q);
+			double pq = dot(p, q, N);
+			if( pq <= 0 )
+				break;
+
+			double alpha = rz/pq;
+			for( int i = 0; i < N; i++ ) {
+				dc[i] += alpha*p[i];
+				r[i] -= alpha*q[i];
+			}
+
+			applyPreconditioner(r, z);
+			double rzNew = dot(r, z, N);
+			double beta = rzNew/rz;
+			rz = rzNew;
+			for( int i = 0; i < N; i++ ) {
+				p[i] = z[i] + beta*p[i];
+			}
+		}
+	}
+
+	/**
+	 * Computes output = S*x = Ud*x - W*inv(V)*W'*x without forming S
+	 */
+	private void multiplySchur( final double x[] , final double output[] ) {
+		final double jv[] = jacobian.jacView;
+		final double jp[] = jacobian.jacPoint;
+
+		// y = inv(V)*W'*x for each point
+		BoofConcurrency.loopBlocks(0, jacobian.numPoints, MIN_POINTS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				double t[] = new double[3];
+				for( int point = start; point < end; point++ ) {
+					t[0] = t[1] = t[2] = 0;
+					int obsEnd = jacobian.pointObsStart[point+1];
+					for( int i = jacobian.pointObsStart[point]; i < obsEnd; i++ ) {
+						int k = jacobian.pointObs[i];
+						int u = jacobian.viewUnknown[jacobian.obsView[k]];
+						if( u < 0 )
+							continue;
+						addWtX(jv, jp, k, x, u*6, 1, t, 0);
+					}
+					mult3(Vinv, point*9, t, 0, pointTmp, point*3);
+				}
+			}
+		});
+
+		// output = Ud*x - W*y for each view
+		BoofConcurrency.loopBlocks(0, jacobian.numViews, MIN_VIEWS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				for( int view = start; view < end; view++ ) {
+					int u = jacobian.viewUnknown[view];
+					if( u < 0 )
+						continue;
+					int indexU = u*36, indexX = u*6;
+
+					for( int i = 0; i < 6; i++ ) {
+						double sum = 0;
+						for( int j = 0; j < 6; j++ ) {
+							sum += Ud[indexU+i*6+j]*x[indexX+j];
+						}
+						output[indexX+i] = sum;
+					}
+
+					int obsEnd = jacobian.viewObsStart[view+1];
+					for( int k = jacobian.viewObsStart[view]; k < obsEnd; k++ ) {
+						int indexJV = k*12, indexJP = k*6, indexP = jacobian.obsPoint[k]*3;
+						double a = jp[indexJP  ]*pointTmp[indexP] + jp[indexJP+1]*pointTmp[indexP+1] + jp[indexJP+2]*pointTmp[indexP+2];
+						double b = jp[indexJP+3]*pointTmp[indexP] + jp[indexJP+4]*pointTmp[indexP+1] + jp[indexJP+5]*pointTmp[indexP+2];
+						for( int i = 0; i < 6; i++ ) {
+							output[indexX+i] -= jv[indexJV+i]*a + jv[indexJV+6+i]*b;
+						}
+					}
+				}
+			}
+		});
+	}
+
+	private void applyPreconditioner( double x[] , double output[] ) {
+		int numUnknown = jacobian.numViewsUnknown;
+		for( int u = 0; u < numUnknown; u++ ) {
+			int indexM = u*36, indexX = u*6;
+			for( int i = 0; i < 6; i++ ) {
+				double sum = 0;
+				for( int j = 0; j < 6; j++ ) {
+					sum += Minv[indexM+i*6+j]*x[indexX+j];
+				}
+				output[indexX+i] = sum;
+			}
+		}
+	}
+
+	/**
+	 * output += scale*W'*x for a single observation, where W' = Jp'*Jc
+	 */
+	private static void addWtX( double jv[] , double jp[] , int k , double x[] , int indexX ,
+								double scale , double output[] , int indexOut ) {
+		int indexJV = k*12, indexJP = k*6;
+		double a = 0, b = 0;
+		for( int i = 0; i < 6; i++ ) {
+			a += jv[indexJV+i]*x[indexX+i];
+			b += jv[indexJV+6+i]*x[indexX+i];
+		}
+		a *= scale;
+		b *= scale;
+		for( int i = 0; i < 3; i++ ) {
+			output[indexOut+i] += jp[indexJP+i]*a + jp[indexJP+3+i]*b;
+		}
+	}
+
+	/**
+	 * Inverts the damped 3x3 block.  If singular the inverse is set to zero, which leaves the point unchanged
+	 */
+	private static void invertDamped3( double V[] , int index , double lambda , double output[] ) {
+		double a00 = V[index  ], a01 = V[index+1], a02 = V[index+2];
+		double a10 = V[index+3], a11 = V[index+4], a12 = V[index+5];
+		double a20 = V[index+6], a21 = V[index+7], a22 = V[index+8];
+
+		a00 += lambda*Math.max(a00, MIN_DIAGONAL);
+		a11 += lambda*Math.max(a11, MIN_DIAGONAL);
+		a22 += lambda*Math.max(a22, MIN_DIAGONAL);
+
+		double c00 = a11*a22 - a12*a21;
+		double c01 = a02*a21 - a01*a22;
+		double c02 = a01*a12 - a02*a11;
+
+		double det = a00*c00 + a10*c01 + a20*c02;
+		if( det == 0 || Double.isNaN(det) || Double.isInfinite(det) ) {
+			for( int i = 0; i < 9; i++ )
+				output[index+i] = 0;
+			return;
+		}
+
+		output[index  ] = c00/det;
+		output[index+1] = c01/det;
+		output[index+2] = c02/det;
+		output[index+3] = (a12*a20 - a10*a22)/det;
+		output[index+4] = (a00*a22 - a02*a20)/det;
+		output[index+5] = (a02*a10 - a00*a12)/det;
+		output[index+6] = (a10*a21 - a11*a20)/det;
+		output[index+7] = (a01*a20 - a00*a21)/det;
+		output[index+8] = (a00*a11 - a01*a10)/det;
+	}
+
+	private static void mult3( double M[] , int indexM , double x[] , int indexX , double output[] , int indexOut ) {
+		double x0 = x[indexX], x1 = x[indexX+1], x2 = x[indexX+2];
+		output[indexOut  ] = M[indexM  ]*x0 + M[indexM+1]*x1 + M[indexM+2]*x2;
+		output[indexOut+1] = M[indexM+3]*x0 + M[indexM+4]*x1 + M[indexM+5]*x2;
+		output[indexOut+2] = M[indexM+6]*x0 + M[indexM+7]*x1 + M[indexM+8]*x2;
+	}
+
+	/**
+	 * Inverts the 6x6 preconditioner block using a Cholesky decomposition.  If the block is not
+	 * positive definite then the inverse of its diagonal is used instead.
+	 */
+	private static void invertPreconditioner( double M[] , double output[] , int index ) {
+		double L[] = new double[36];
+
+		boolean success = true;
+		for( int i = 0; i < 6 && success; i++ ) {
+			for( int j = 0; j <= i; j++ ) {
+				double sum = M[i*6+j];
+				for( int k = 0; k < j; k++ )
+					sum -= L[i*6+k]*L[j*6+k];
+				if( i == j ) {
+					if( sum <= 0 ) {
+						success = false;
+						break;
+					}
+					L[i*6+i] = Math.sqrt(sum);
+				} else {
+					L[i*6+j] = sum/L[j*6+j];
+				}
+			}
+		}
+
+		if( !success ) {
+			for( int i = 0; i < 36; i++ )
+				output[index+i] = 0;
+			for( int i = 0; i < 6; i++ ) {
+				double d = M[i*7];
+				output[index+i*7] = d > 0 ? 1.0/d : 0;
+			}
+			return;
+		}
+
+		// solve for each column of the inverse
+		double col[] = new double[6];
+		for( int c = 0; c < 6; c++ ) {
+			// forward substitution L*y = e_c
+			for( int i = 0; i < 6; i++ ) {
+				double sum = i == c ? 1 : 0;
+				for( int k = 0; k < i; k++ )
+					sum -= L[i*6+k]*col[k];
+				col[i] = sum/L[i*6+i];
+			}
+			// back substitution L'*x = y
+			for( int i = 5; i >= 0; i-- ) {
+				double sum = col[i];
+				for( int k = i+1; k < 6; k++ )
+					sum -= L[k*6+i]*col[k];
+				col[i] = sum/L[i*6+i];
+			}
+			for( int i = 0; i < 6; i++ )
+				output[index+i*6+c] = col[i];
+		}
+	}
+
+	private static double dot( double a[] , double b[] , int N ) {
+		double sum = 0;
+		for( int i = 0; i < N; i++ )
+			sum += a[i]*b[i];
+		return sum;
+	}
+
+	/**
+	 * Value of the cost function, sum of squared residuals, after the most recent call to {@link #process}.
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	public void setInitialLambda(double initialLambda) {
+		this.initialLambda = initialLambda;
+	}
+
+	/**
+	 * Specifies the largest reduced camera system, number of unknown views times 6, which will be solved using
+	 * a dense Cholesky decomposition.  Larger systems are solved using conjugate gradient.
+	 */
+	public void setMaxDenseReduced( int maxDenseReduced ) {
+		this.maxDenseReduced = maxDenseReduced;
+	}
+
+	public void setPcgTolerance( double tol , int maxIterations ) {
+		this.pcgTol = tol;
+		this.pcgMaxIterations = maxIterations;
+	}
+
+	public CalibPoseAndPointSparseJacobian getJacobian() {
+		return jacobian;
+	}
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.geo.bundle;
+
+import boofcv.alg.geo.RodriguesRotationJacobian;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import georegression.geometry.RotationMatrixGenerator;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.struct.so.Rodrigues_F64;
+import org.ddogleg.struct.FastQueue;
+import org.ejml.data.DenseMatrix64F;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Computes the residuals and Jacobian for bundle adjustment with known calibration while taking advantage of
+ * its sparse structure.  The parameters are the same as {@link CalibPoseAndPointRodriguesCodec}.  Each
+ * observation only depends on the 6 parameters of its view and the 3 parameters of its point.  Instead of
+ * a dense Jacobian a 2x6 block for the view and a 2x3 block for the point is saved for each observation.
+ * </p>
+ *
+ * <p>
+ * Observations are copied into flat arrays and also indexed by the point they observe.  Residuals and Jacobian
+ * blocks for each observation are independent and are computed concurrently.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class CalibPoseAndPointSparseJacobian {
+
+	// minimum number of observations processed by a thread
+	private static final int MIN_BLOCK = 2048;
+
+	// number of camera views
+	int numViews;
+	// number of points in world coordinates
+	int numPoints;
+	// number of views with unknown extrinsic parameters
+	int numViewsUnknown;
+	// total number of observations
+	int numObservations;
+
+	// index of the unknown view.  -1 if the view is known
+	int viewUnknown[] = new int[0];
+	// index of the first observation in each view.  numViews+1 elements
+	int viewObsStart[] = new int[0];
+	// index of the first observation of each point in pointObs.  numPoints+1 elements
+	int pointObsStart[] = new int[0];
+	// observations ordered by the point they observe
+	int pointObs[] = new int[0];
+
+	// which view and point each observation is of
+	int obsView[] = new int[0];
+	int obsPoint[] = new int[0];
+	// observed location in normalized image coordinates.  (x,y) interleaved
+	double obsLoc[] = new double[0];
+
+	// rotation matrix, translation and rotation matrix Jacobian for each view
+	double viewR[] = new double[0];
+	double viewT[] = new double[0];
+	double viewJacR[] = new double[0];
+
+	// residual for each observation.  (x,y) interleaved
+	double residuals[] = new double[0];
+	// 2x6 Jacobian of each observation with respect to the view's parameters. row-major
+	double jacView[] = new double[0];
+	// 2x3 Jacobian of each observation with respect to the point's parameters. row-major
+	double jacPoint[] = new double[0];
+
+	// sum of squared residuals for each block
+	double blockCost[] = new double[0];
+
+	// storage for converting Rodrigues coordinates
+	Rodrigues_F64 rodrigues = new Rodrigues_F64();
+	DenseMatrix64F R = new DenseMatrix64F(3,3);
+	RodriguesRotationJacobian rodJacobian = new RodriguesRotationJacobian();
+
+	/**
+	 * Copies the observations and sets up internal data structures.
+	 *
+	 * @param model Model being optimized.  Known views are read from it.
+	 * @param observations Observations in each view.  Normalized image coordinates.
+	 */
+	public void configure( CalibratedPoseAndPoint model , List<ViewPointObservations> observations ) {
+		numViews = model.getNumViews();
+		numPoints = model.getNumPoints();
+		if( observations.size() < numViews )
+			throw new IllegalArgumentException("Number of observation lists is less than the number of views");
+
+		numObservations = 0;
+		for( int i = 0; i < numViews; i++ ) {
+			numObservations += observations.get(i).getPoints().size;
+		}
+
+		if( viewUnknown.length < numViews ) {
+			viewUnknown = new int[numViews];
+			viewObsStart = new int[numViews+1];
+			viewR = new double[numViews*9];
+			viewT = new double[numViews*3];
+			viewJacR = new double[numViews*27];
+		}
+		if( pointObsStart.length < numPoints+1 ) {
+			pointObsStart = new int[numPoints+1];
+		}
+		if( obsView.length < numObservations ) {
+			obsView = new int[numObservations];
+			obsPoint = new int[numObservations];
+			pointObs = new int[numObservations];
+			obsLoc = new double[numObservations*2];
+			residuals = new double[numObservations*2];
+			jacView = new double[numObservations*12];
+			jacPoint = new double[numObservations*6];
+		}
+
+		// flatten the observations and copy the known views
+		numViewsUnknown = 0;
+		int index = 0;
+		for( int view = 0; view < numViews; view++ ) {
+			if( model.isViewKnown(view) ) {
+				viewUnknown[view] = -1;
+				Se3_F64 se = model.getWorldToCamera(view);
+				System.arraycopy(se.getR().data, 0, viewR, view*9, 9);
+				viewT[view*3  ] = se.getT().x;
+				viewT[view*3+1] = se.getT().y;
+				viewT[view*3+2] = se.getT().z;
+			} else {
+				viewUnknown[view] = numViewsUnknown++;
+			}
+
+			viewObsStart[view] = index;
+			FastQueue<PointIndexObservation> points = observations.get(view).getPoints();
+			for( int i = 0; i < points.size; i++ , index++ ) {
+				PointIndexObservation o = points.get(i);
+				if( o.pointIndex < 0 || o.pointIndex >= numPoints )
+					throw new IllegalArgumentException("Observation references an invalid point: "+o.pointIndex);
+				Point2D_F64 p = o.getObservation();
+				obsView[index] = view;
+				obsPoint[index] = o.pointIndex;
+				obsLoc[index*2  ] = p.x;
+				obsLoc[index*2+1] = p.y;
+			}
+		}
+		viewObsStart[numViews] = index;
+
+		// index the observations by point using a counting sort
+		for( int i = 0; i <= numPoints; i++ )
+			pointObsStart[i] = 0;
+		for( int i = 0; i < numObservations; i++ )
+			pointObsStart[obsPoint[i]+1]++;
+		for( int i = 0; i < numPoints; i++ )
+			pointObsStart[i+1] += pointObsStart[i];
+		for( int i = 0; i < numObservations; i++ ) {
+			int p = obsPoint[i];
+			// pointObsStart is shifted up by one while being filled in
+			pointObs[pointObsStart[p]++] = i;
+		}
+		for( int i = numPoints; i > 0; i-- )
+			pointObsStart[i] = pointObsStart[i-1];
+		pointObsStart[0] = 0;
+	}
+
+	/**
+	 * Computes the residuals for the specified parameters.
+	 *
+	 * @param param Parameters encoded using {@link CalibPoseAndPointRodriguesCodec}.
+	 * @return Sum of the squared residuals
+	 */
+	public double computeResiduals( double param[] ) {
+		return compute(param,false);
+	}
+
+	/**
+	 * Computes the residuals and the Jacobian blocks for the specified parameters.
+	 *
+	 * @param param Parameters encoded using {@link CalibPoseAndPointRodriguesCodec}.
+	 * @return Sum of the squared residuals
+	 */
+	public double computeJacobian( double param[] ) {
+		return compute(param,true);
+	}
+
+	private double compute( final double param[] , final boolean jacobian ) {
+		decodeViews(param,jacobian);
+
+		final int numBlocks = BoofConcurrency.computeBlockCount(0, numObservations, MIN_BLOCK);
+		if( blockCost.length < numBlocks )
+			blockCost = new double[numBlocks];
+
+		BoofConcurrency.loopBlocks(0, numObservations, MIN_BLOCK, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				blockCost[block] = computeObservations(param, start, end, jacobian);
+			}
+		});
+
+		// sum in a fixed order so that results are repeatable
+		double total = 0;
+		for( int i = 0; i < numBlocks; i++ )
+			total += blockCost[i];
+		return total;
+	}
+
+	/**
+	 * Converts the Rodrigues parameters of each unknown view into a rotation matrix and its Jacobian
+	 */
+	private void decodeViews( double param[] , boolean jacobian ) {
+		for( int view = 0; view < numViews; view++ ) {
+			int u = viewUnknown[view];
+			if( u < 0 )
+				continue;
+
+			int index = u*6;
+			double rodX = param[index], rodY = param[index+1], rodZ = param[index+2];
+
+			rodrigues.setParamVector(rodX,rodY,rodZ);
+			RotationMatrixGenerator.rodriguesToMatrix(rodrigues,R);
+			System.arraycopy(R.data, 0, viewR, view*9, 9);
+
+			viewT[view*3  ] = param[index+3];
+			viewT[view*3+1] = param[index+4];
+			viewT[view*3+2] = param[index+5];
+
+			if( jacobian ) {
+				rodJacobian.process(rodX,rodY,rodZ);
+				System.arraycopy(rodJacobian.Rx.data, 0, viewJacR, view*27, 9);
+				System.arraycopy(rodJacobian.Ry.data, 0, viewJacR, view*27+9, 9);
+				System.arraycopy(rodJacobian.Rz.data, 0, viewJacR, view*27+18, 9);
+			}
+		}
+	}
+
+	/**
+	 * Computes residuals and optionally the Jacobian for observations start to end-1
+	 *
+	 * @return Sum of the squared residuals
+	 */
+	private double computeObservations( double param[] , int start , int end , boolean jacobian ) {
+		int indexFirstPoint = numViewsUnknown*6;
+		double total = 0;
+
+		for( int k = start; k < end; k++ ) {
+			int view = obsView[k];
+			int indexR = view*9;
+			int indexT = view*3;
+			int indexP = indexFirstPoint + obsPoint[k]*3;
+
+			double X = param[indexP], Y = param[indexP+1], Z = param[indexP+2];
+
+			// location of point in camera view
+			double cx = viewR[indexR  ]*X + viewR[indexR+1]*Y + viewR[indexR+2]*Z + viewT[indexT];
+			double cy = viewR[indexR+3]*X + viewR[indexR+4]*Y + viewR[indexR+5]*Z + viewT[indexT+1];
+			double cz = viewR[indexR+6]*X + viewR[indexR+7]*Y + viewR[indexR+8]*Z + viewT[indexT+2];
+
+			double rx = cx/cz - obsLoc[k*2];
+			double ry = cy/cz - obsLoc[k*2+1];
+			residuals[k*2  ] = rx;
+			residuals[k*2+1] = ry;
+			total += rx*rx + ry*ry;
+
+			if( !jacobian )
+				continue;
+
+			double divZ = 1.0/cz;
+			double nx = cx*divZ, ny = cy*divZ;
+
+			// Gradient of the feature's 3D location
+			// deriv [x,y] = -dot(z)*(R*X+T)/(z^2) + R*dot(X)/z
+			int indexJ = k*6;
+			for( int j = 0; j < 3; j++ ) {
+				double r0 = viewR[indexR+j], r1 = viewR[indexR+3+j], r2 = viewR[indexR+6+j];
+				jacPoint[indexJ+j  ] = (r0 - r2*nx)*divZ;
+				jacPoint[indexJ+3+j] = (r1 - r2*ny)*divZ;
+			}
+
+			int u = viewUnknown[view];
+			if( u < 0 )
+				continue;
+
+			indexJ = k*12;
+			// partial for each Rodrigues parameter
+			// deriv [x,y] = -dot(z)/(z^2)*(R*X+T) + (1/z)*dot(R)*X
+			for( int j = 0; j < 3; j++ ) {
+				int indexD = view*27 + j*9;
+				double dx = viewJacR[indexD  ]*X + viewJacR[indexD+1]*Y + viewJacR[indexD+2]*Z;
+				double dy = viewJacR[indexD+3]*X + viewJacR[indexD+4]*Y + viewJacR[indexD+5]*Z;
+				double dz = viewJacR[indexD+6]*X + viewJacR[indexD+7]*Y + viewJacR[indexD+8]*Z;
+
+				jacView[indexJ+j  ] = (dx - dz*nx)*divZ;
+				jacView[indexJ+6+j] = (dy - dz*ny)*divZ;
+			}
+
+			// partial for translation
+			jacView[indexJ+3] = divZ;
+			jacView[indexJ+4] = 0;
+			jacView[indexJ+5] = -nx*divZ;
+			jacView[indexJ+9] = 0;
+			jacView[indexJ+10] = divZ;
+			jacView[indexJ+11] = -ny*divZ;
+		}
+
+		return total;
+	}
+
+	public int getNumViews() {
+		return numViews;
+	}
+
+	public int getNumPoints() {
+		return numPoints;
+	}
+
+	public int getNumViewsUnknown() {
+		return numViewsUnknown;
+	}
+
+	public int getNumObservations() {
+		return numObservations;
+	}
+
+	/**
+	 * Number of parameters being optimized
+	 */
+	public int getNumParameters() {
+		return numViewsUnknown*6 + numPoints*3;
+	}
+
+	public double[] getResiduals() {
+		return residuals;
+	}
+
+	public double[] getJacView() {
+		return jacView;
+	}
+
+	public double[] getJacPoint() {
+		return jacPoint;
+	}
+}
@@ -18,8 +18,9 @@
 
 package boofcv.alg.geo.f;
 
+import boofcv.alg.robust.DistanceFromModelPacked;
 import boofcv.struct.geo.AssociatedPair;
-import georegression.geometry.GeometryMath_F64;
+import boofcv.struct.geo.PackedAssociatedPair;
 import org.ddogleg.fitting.modelset.DistanceFromModel;
 import org.ejml.data.DenseMatrix64F;
 import org.ejml.ops.CommonOps;
@@ -32,7 +33,9 @@ import java.util.List;
  *
  * @author Peter Abeles
  */
-public class DistanceEpipolarConstraint implements DistanceFromModel<DenseMatrix64F,AssociatedPair> {
+public class DistanceEpipolarConstraint implements DistanceFromModel<DenseMatrix64F,AssociatedPair>,
+		DistanceFromModelPacked<DenseMatrix64F,AssociatedPair,PackedAssociatedPair>
+{
 
 	DenseMatrix64F M = new DenseMatrix64F(3,3);
 
@@ -46,7 +49,15 @@ public class DistanceEpipolarConstraint implements DistanceFromModel<DenseMatrix
 
 	@Override
 	public double computeDistance(AssociatedPair pt) {
-		return Math.abs(GeometryMath_F64.innerProd(pt.p2, M, pt.p1));
+		// p2'*M*p1 written out since GeometryMath_F64.innerProd() declares temporary matrices
+		final double[] m = M.data;
+		double a = pt.p2.x, b = pt.p2.y;
+
+		double c0 = a*m[0] + b*m[3] + m[6];
+		double c1 = a*m[1] + b*m[4] + m[7];
+		double c2 = a*m[2] + b*m[5] + m[8];
+
+		return Math.abs(c0*pt.p1.x + c1*pt.p1.y + c2);
 	}
 
 	@Override
@@ -55,4 +66,26 @@ public class DistanceEpipolarConstraint implements DistanceFromModel<DenseMatrix
 			distance[i] = computeDistance(associatedPairs.get(i));
 		}
 	}
+
+	@Override
+	public PackedAssociatedPair createPacked() {
+		return new PackedAssociatedPair();
+	}
+
+	@Override
+	public void computeDistance(PackedAssociatedPair points, double[] distance) {
+		final double[] m = M.data;
+		final double[] x1 = points.x1, y1 = points.y1, x2 = points.x2, y2 = points.y2;
+
+		for( int i = 0; i < points.size; i++ ) {
+			double a = x2[i], b = y2[i];
+
+			// p2'*M
+			double c0 = a*m[0] + b*m[3] + m[6];
+			double c1 = a*m[1] + b*m[4] + m[7];
+			double c2 = a*m[2] + b*m[5] + m[8];
+
+			distance[i] = Math.abs(c0*x1[i] + c1*y1[i] + c2);
+		}
+	}
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.geo.f;
+
+import boofcv.alg.robust.DistanceFromModelPacked;
+import boofcv.struct.geo.AssociatedPair;
+import boofcv.struct.geo.PackedAssociatedPair;
+import org.ejml.UtilEjml;
+import org.ejml.data.DenseMatrix64F;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Computes the Sampson distance squared between an associated pair and the epipolar geometry described by
+ * a fundamental or essential matrix.  The Sampson distance is a first order approximation of the geometric
+ * error and, unlike the algebraic error, has units of pixels when a fundamental matrix is used.
+ * </p>
+ *
+ * <pre>
+ * error = (x2'*F*x1)<sup>2</sup>/((F*x1)<sub>1</sub><sup>2</sup> + (F*x1)<sub>2</sub><sup>2</sup> +
+ *         (F'*x2)<sub>1</sub><sup>2</sup> + (F'*x2)<sub>2</sub><sup>2</sup>)
+ * </pre>
+ *
+ * <p>
+ * Page 287 in: R. Hartley, and A. Zisserman, "Multiple View Geometry in Computer Vision", 2nd Ed, Cambridge 2003
+ * </p>
+ *
+ * @see FundamentalResidualSampson
+ *
+ * @author Peter Abeles
+ */
+public class DistanceEpipolarSampsonSq
+		implements DistanceFromModelPacked<DenseMatrix64F,AssociatedPair,PackedAssociatedPair>
+{
+	DenseMatrix64F F;
+
+	@Override
+	public void setModel(DenseMatrix64F F) {
+		this.F = F;
+	}
+
+	@Override
+	public double computeDistance(AssociatedPair pt) {
+		return compute(F.data, pt.p1.x, pt.p1.y, pt.p2.x, pt.p2.y);
+	}
+
+	@Override
+	public void computeDistance(List<AssociatedPair> points, double[] distance) {
+		double[] f = F.data;
+		for( int i = 0; i < points.size(); i++ ) {
+			AssociatedPair p = points.get(i);
+			distance[i] = compute(f, p.p1.x, p.p1.y, p.p2.x, p.p2.y);
+		}
+	}
+
+	@Override
+	public PackedAssociatedPair createPacked() {
+		return new PackedAssociatedPair();
+	}
+
+	@Override
+	public void computeDistance(PackedAssociatedPair points, double[] distance) {
+		double[] f = F.data;
+		final double[] x1 = points.x1, y1 = points.y1, x2 = points.x2, y2 = points.y2;
+
+		for( int i = 0; i < points.size; i++ ) {
+			distance[i] = compute(f, x1[i], y1[i], x2[i], y2[i]);
+		}
+	}
+
+	private static double compute( double[] f , double x1 , double y1 , double x2 , double y2 ) {
+		// F*x1
+		double a0 = f[0]*x1 + f[1]*y1 + f[2];
+		double a1 = f[3]*x1 + f[4]*y1 + f[5];
+		double a2 = f[6]*x1 + f[7]*y1 + f[8];
+
+		// F'*x2
+		double b0 = f[0]*x2 + f[3]*y2 + f[6];
+		double b1 = f[1]*x2 + f[4]*y2 + f[7];
+
+		double bottom = a0*a0 + a1*a1 + b0*b0 + b1*b1;
+		if( bottom <= UtilEjml.EPS )
+			return Double.MAX_VALUE;
+
+		double top = x2*a0 + y2*a1 + a2;
+
+		return top*top/bottom;
+	}
+}
@@ -18,12 +18,11 @@
 
 package boofcv.alg.geo.f;
 
+import boofcv.alg.geo.RealRootsSturm;
 import boofcv.struct.geo.AssociatedPair;
 import georegression.struct.point.Point2D_F64;
 import org.ddogleg.solver.Polynomial;
 import org.ddogleg.solver.PolynomialRoots;
-import org.ddogleg.solver.impl.FindRealRootsSturm;
-import org.ddogleg.solver.impl.WrapRealRootsSturm;
 import org.ddogleg.struct.FastQueue;
 import org.ejml.data.Complex64F;
 import org.ejml.data.DenseMatrix64F;
@@ -89,12 +88,17 @@ public class EssentialNister5 {
 	private DenseMatrix64F C = new DenseMatrix64F(10,10);
 
 	// Used for finding polynomial roots
-	private FindRealRootsSturm sturm = new FindRealRootsSturm(11,-1,1e-10,20,20);
-	private PolynomialRoots findRoots = new WrapRealRootsSturm(sturm);
+	private PolynomialRoots findRoots = new RealRootsSturm(11,1e-10,50,20);
 
 	// private PolynomialRoots findRoots = new RootFinderCompanion();
 	private Polynomial poly = new Polynomial(11);
 
+	// Storage for solving x and y once z is known
+	private LinearSolver<DenseMatrix64F> solverXY = LinearSolverFactory.leastSquares(3,2);
+	private DenseMatrix64F A_xy = new DenseMatrix64F(3,2);
+	private DenseMatrix64F Y_xy = new DenseMatrix64F(3,1);
+	private DenseMatrix64F X_xy = new DenseMatrix64F(2,1);
+
 	/**
 	 * Computes the essential matrix from point correspondences.
 	 *
@@ -126,11 +130,14 @@ public class EssentialNister5 {
 		if( !findRoots.process(poly) )
 			return false;
 
-		for( Complex64F c : findRoots.getRoots() ) {
+		List<Complex64F> roots = findRoots.getRoots();
+		for( int rootIdx = 0; rootIdx < roots.size(); rootIdx++ ) {
+			Complex64F c = roots.get(rootIdx);
 			if( !c.isReal() )
 				continue;
 
-			solveForXandY(c.real);
+			if( !solveForXandY(c.real) )
+				continue;
 
 			DenseMatrix64F E = solutions.grow();
 
@@ -187,12 +194,14 @@ public class EssentialNister5 {
 
 	/**
 	 * Once z is known then x and y can be solved for using the B matrix
+	 *
+	 * @return false if the linear system is singular
 	 */
-	private void solveForXandY( double z ) {
+	private boolean solveForXandY( double z ) {
 		this.z = z;
 
-		DenseMatrix64F A = new DenseMatrix64F(3,2);
-		DenseMatrix64F Y = new DenseMatrix64F(3,1);
+		DenseMatrix64F A = A_xy;
+		DenseMatrix64F Y = Y_xy;
 
 		// solve for x and y using the first two rows of B
 		A.data[0] = ((helper.K00*z + helper.K01)*z + helper.K02)*z + helper.K03;
@@ -209,11 +218,15 @@ public class EssentialNister5 {
 
 		CommonOps.scale(-1,Y);
 
-		DenseMatrix64F x = new DenseMatrix64F(2,1);
+		DenseMatrix64F x = X_xy;
 
-		CommonOps.solve(A,Y,x);
+		if( !solverXY.setA(A) )
+			return false;
+		solverXY.solve(Y,x);
 
 		this.x = x.get(0,0);
 		this.y = x.get(1,0);
+
+		return true;
 	}
 }
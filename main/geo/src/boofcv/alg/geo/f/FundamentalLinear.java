@@ -62,6 +62,10 @@ public abstract class FundamentalLinear {
 	protected DenseMatrix64F N1 = new DenseMatrix64F(3,3);
 	protected DenseMatrix64F N2 = new DenseMatrix64F(3,3);
 
+	// storage for normalized points
+	private Point2D_F64 f_norm = new Point2D_F64();
+	private Point2D_F64 s_norm = new Point2D_F64();
+
 	// should it compute a fundamental (true) or essential (false) matrix?
 	boolean computeFundamental;
 
@@ -155,9 +159,6 @@ public abstract class FundamentalLinear {
 		A.reshape(points.size(),9, false);
 		A.zero();
 
-		Point2D_F64 f_norm = new Point2D_F64();
-		Point2D_F64 s_norm = new Point2D_F64();
-
 		final int size = points.size();
 		for( int i = 0; i < size; i++ ) {
 			AssociatedPair p = points.get(i);
@@ -19,11 +19,10 @@
 package boofcv.alg.geo.f;
 
 import boofcv.alg.geo.LowLevelMultiViewOps;
+import boofcv.alg.geo.RealRootsSturm;
 import boofcv.struct.geo.AssociatedPair;
 import org.ddogleg.solver.Polynomial;
 import org.ddogleg.solver.PolynomialRoots;
-import org.ddogleg.solver.PolynomialSolver;
-import org.ddogleg.solver.RootFinderType;
 import org.ddogleg.struct.FastQueue;
 import org.ejml.data.Complex64F;
 import org.ejml.data.DenseMatrix64F;
@@ -61,7 +60,7 @@ public class FundamentalLinear7 extends FundamentalLinear {
 
 	// temporary storage for cubic coefficients
 	private Polynomial poly = new Polynomial(4);
-	private PolynomialRoots rootFinder = PolynomialSolver.createRootFinder(RootFinderType.EVD,4);
+	private PolynomialRoots rootFinder = new RealRootsSturm(4,1e-10,200,20);
 
 	// Matrix from SVD
 	private DenseMatrix64F V = new DenseMatrix64F(9,9);
@@ -146,7 +145,8 @@ public class FundamentalLinear7 extends FundamentalLinear {
 
 		List<Complex64F> zeros = rootFinder.getRoots();
 
-		for( Complex64F c : zeros ) {
+		for( int index = 0; index < zeros.size(); index++ ) {
+			Complex64F c = zeros.get(index);
 			if( !c.isReal() && Math.abs(c.imaginary) > 1e-10 )
 				continue;
 
@@ -50,6 +50,9 @@ import java.util.List;
  */
 public class FundamentalLinear8 extends FundamentalLinear {
 
+	// storage for the right singular vectors of A
+	private DenseMatrix64F V = new DenseMatrix64F(9,9);
+
 	/**
 	 * Specifies which type of matrix is to be computed
 	 *
@@ -100,7 +103,7 @@ public class FundamentalLinear8 extends FundamentalLinear {
 		else {
 			// handle a special case since the matrix only has 8 singular values and won't select
 			// the correct column
-			DenseMatrix64F V = svdNull.getV(null,false);
+			V = svdNull.getV(V,false);
 			SpecializedOps.subvector(V, 0, 8, V.numCols, false, 0, F);
 		}
 
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo.pose;
+
+import georegression.fitting.MotionTransformPoint;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.DecompositionFactory;
+import org.ejml.interfaces.decomposition.SingularValueDecomposition;
+import org.ejml.ops.CommonOps;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Finds the rigid body motion which minimizes the Euclidean distance between two sets of associated 3D points
+ * using SVD [1].  Produces the same solution as georegression's MotionSe3PointSVD_F64, but all storage is
+ * declared once so it can be called repeatedly by minimal solvers without creating new objects.
+ * </p>
+ *
+ * <p>
+ * [1] Arun, K. S., Huang, T. S., and Blostein, S. D., "Least-squares fitting of two 3-D point sets"
+ * IEEE Transactions on Pattern Analysis and Machine Intelligence, 1987
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class FitSe3PointsSVD implements MotionTransformPoint<Se3_F64,Point3D_F64> {
+
+	// found motion from 'from' to 'to'
+	private Se3_F64 motion = new Se3_F64();
+
+	private SingularValueDecomposition<DenseMatrix64F> svd = DecompositionFactory.svd(3, 3, true, true, false);
+	// cross covariance
+	private DenseMatrix64F H = new DenseMatrix64F(3,3);
+	private DenseMatrix64F U = new DenseMatrix64F(3,3);
+	private DenseMatrix64F V = new DenseMatrix64F(3,3);
+
+	@Override
+	public Se3_F64 getMotion() {
+		return motion;
+	}
+
+	@Override
+	public boolean process( List<Point3D_F64> fromPts , List<Point3D_F64> toPts ) {
+		if( fromPts.size() != toPts.size() )
+			throw new IllegalArgumentException("There must be a 1 to 1 correspondence between the two sets of points");
+
+		final int N = fromPts.size();
+
+		// compute the mean of both sets
+		double fx=0,fy=0,fz=0,tx=0,ty=0,tz=0;
+		for( int i = 0; i < N; i++ ) {
+			Point3D_F64 f = fromPts.get(i);
+			Point3D_F64 t = toPts.get(i);
+			fx += f.x; fy += f.y; fz += f.z;
+			tx += t.x; ty += t.y; tz += t.z;
+		}
+		fx /= N; fy /= N; fz /= N;
+		tx /= N; ty /= N; tz /= N;
+
+		// cross covariance between the two sets
+		H.zero();
+		double[] h = H.data;
+		for( int i = 0; i < N; i++ ) {
+			Point3D_F64 f = fromPts.get(i);
+			Point3D_F64 t = toPts.get(i);
+			double dfx = f.x-fx, dfy = f.y-fy, dfz = f.z-fz;
+			double dtx = t.x-tx, dty = t.y-ty, dtz = t.z-tz;
+
+			h[0] += dfx*dtx; h[1] += dfx*dty; h[2] += dfx*dtz;
+			h[3] += dfy*dtx; h[4] += dfy*dty; h[5] += dfy*dtz;
+			h[6] += dfz*dtx; h[7] += dfz*dty; h[8] += dfz*dtz;
+		}
+
+		if( !svd.decompose(H) )
+			return false;
+
+		svd.getU(U,false);
+		svd.getV(V,false);
+
+		// R = V*U'
+		DenseMatrix64F R = motion.getR();
+		CommonOps.multTransB(V,U,R);
+
+		// handle reflections
+		if( CommonOps.det(R) < 0 ) {
+			// flip the singular vector with the smallest singular value
+			double[] w = svd.getSingularValues();
+			int smallest = 0;
+			for( int i = 1; i < 3; i++ ) {
+				if( w[i] < w[smallest] )
+					smallest = i;
+			}
+			for( int i = 0; i < 3; i++ )
+				V.unsafe_set(i,smallest,-V.unsafe_get(i,smallest));
+			CommonOps.multTransB(V,U,R);
+		}
+
+		// T = mean(to) - R*mean(from)
+		double[] r = R.data;
+		motion.getT().set(
+				tx - (r[0]*fx + r[1]*fy + r[2]*fz),
+				ty - (r[3]*fx + r[4]*fy + r[5]*fz),
+				tz - (r[6]*fx + r[7]*fy + r[8]*fz));
+
+		return true;
+	}
+
+	@Override
+	public int getMinimumPoints() {
+		return 3;
+	}
+}
@@ -24,6 +24,8 @@ import org.ddogleg.solver.PolynomialRoots;
 import org.ddogleg.struct.FastQueue;
 import org.ejml.data.Complex64F;
 
+import java.util.List;
+
 import static boofcv.alg.geo.pose.P3PGrunert.computeCosine;
 import static boofcv.alg.geo.pose.P3PGrunert.pow2;
 
@@ -112,7 +114,9 @@ public class P3PFinsterwalder implements P3PLineDistance {
 
 		// search for real roots
 		Complex64F root = null;
-		for( Complex64F r : rootFinder.getRoots() ) {
+		List<Complex64F> roots = rootFinder.getRoots();
+		for( int i = 0; i < roots.size(); i++ ) {
+			Complex64F r = roots.get(i);
 			if( r.isReal() ) {
 				root = r;
 				break;
@@ -95,7 +95,8 @@ public class P3PGrunert implements P3PLineDistance {
 
 		List<Complex64F> roots = rootFinder.getRoots();
 
-		for( Complex64F r : roots ) {
+		for( int i = 0; i < roots.size(); i++ ) {
+			Complex64F r = roots.get(i);
 			if( !r.isReal() ) {
 				continue;
 			}
@@ -20,11 +20,16 @@ package boofcv.alg.geo.pose;
 
 import boofcv.alg.geo.DistanceModelMonoPixels;
 import boofcv.alg.geo.NormalizedToPixelError;
+import boofcv.alg.robust.CopyDistanceFromModel;
+import boofcv.alg.robust.DistanceFromModelPacked;
+import boofcv.struct.geo.PackedPoint2D3D;
 import boofcv.struct.geo.Point2D3D;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.Vector3D_F64;
 import georegression.struct.se.Se3_F64;
 import georegression.transform.se.SePointOps_F64;
+import org.ddogleg.fitting.modelset.DistanceFromModel;
 
 import java.util.List;
 
@@ -40,7 +45,9 @@ import java.util.List;
  *
  * @author Peter Abeles
  */
-public class PnPDistanceReprojectionSq implements DistanceModelMonoPixels<Se3_F64,Point2D3D> {
+public class PnPDistanceReprojectionSq implements DistanceModelMonoPixels<Se3_F64,Point2D3D>,
+		DistanceFromModelPacked<Se3_F64,Point2D3D,PackedPoint2D3D>
+{
 
 	// transform from world to camera
 	private Se3_F64 worldToCamera;
@@ -95,4 +102,53 @@ public class PnPDistanceReprojectionSq implements DistanceModelMonoPixels<Se3_F6
 		for( int i = 0; i < observations.size(); i++ )
 			distance[i] = computeDistance(observations.get(i));
 	}
+
+	@Override
+	public PackedPoint2D3D createPacked() {
+		return new PackedPoint2D3D();
+	}
+
+	@Override
+	public void computeDistance(PackedPoint2D3D points, double[] distance) {
+		double[] R = worldToCamera.getR().data;
+		Vector3D_F64 T = worldToCamera.getT();
+		double tx = T.x, ty = T.y, tz = T.z;
+
+		final double[] obsX = points.obsX, obsY = points.obsY;
+		final double[] X = points.X, Y = points.Y, Z = points.Z;
+
+		for( int i = 0; i < points.size; i++ ) {
+			double x = X[i], y = Y[i], z = Z[i];
+
+			// point in camera frame
+			double cz = R[6]*x + R[7]*y + R[8]*z + tz;
+
+			// very large error if behind the camera
+			if( cz <= 0 ) {
+				distance[i] = Double.MAX_VALUE;
+				continue;
+			}
+
+			double cx = R[0]*x + R[1]*y + R[2]*z + tx;
+			double cy = R[3]*x + R[4]*y + R[5]*z + ty;
+
+			distance[i] = pixelError.errorSq(cx/cz,cy/cz,obsX[i],obsY[i]);
+		}
+	}
+
+	/**
+	 * Creates copies for concurrent scoring of hypotheses.  The intrinsic parameters are copied.
+	 */
+	public static class Copier implements CopyDistanceFromModel<Se3_F64,Point2D3D> {
+		@Override
+		public DistanceFromModel<Se3_F64, Point2D3D> create() {
+			return new PnPDistanceReprojectionSq();
+		}
+
+		@Override
+		public void copyConfiguration(DistanceFromModel<Se3_F64, Point2D3D> original,
+									  DistanceFromModel<Se3_F64, Point2D3D> copy) {
+			((PnPDistanceReprojectionSq)copy).pixelError.set(((PnPDistanceReprojectionSq)original).pixelError);
+		}
+	}
 }
@@ -19,12 +19,11 @@
 package boofcv.alg.geo.pose;
 
 import georegression.fitting.MotionTransformPoint;
-import georegression.fitting.se.FitSpecialEuclideanOps_F64;
-import georegression.geometry.UtilPoint3D_F64;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
 import georegression.struct.se.Se3_F64;
 import org.ddogleg.struct.FastQueue;
+import org.ejml.UtilEjml;
 import org.ejml.alg.dense.mult.MatrixVectorMult;
 import org.ejml.data.DenseMatrix64F;
 import org.ejml.factory.DecompositionFactory;
@@ -103,8 +102,16 @@ public class PnPLepetitEPnP {
 
 	// used to solve various linear problems
 	private SingularValueDecomposition<DenseMatrix64F> svd = DecompositionFactory.svd(12, 12, false, true, false);
+	// used to find the world point's axis.  Separate from 'svd' so that neither needs to be resized
+	private SingularValueDecomposition<DenseMatrix64F> svdCovar = DecompositionFactory.svd(3, 3, false, true, false);
+	private DenseMatrix64F covar = new DenseMatrix64F(3,3);
+	private DenseMatrix64F V_covar = new DenseMatrix64F(3,3);
+	private DenseMatrix64F V_null = new DenseMatrix64F(12,12);
 	private LinearSolver<DenseMatrix64F> solver = LinearSolverFactory.leastSquares(6, 4);
-	private LinearSolver<DenseMatrix64F> solverPinv = LinearSolverFactory.pseudoInverse(true);
+	// used to compute the pseudo inverse of the control points
+	private SingularValueDecomposition<DenseMatrix64F> svdPinv = DecompositionFactory.svd(3, 3, true, true, true);
+	private DenseMatrix64F U_pinv = new DenseMatrix64F(3,3);
+	private DenseMatrix64F V_pinv = new DenseMatrix64F(3,3);
 
 	// weighting factor to go from control point into world coordinate
 	protected DenseMatrix64F alphas = new DenseMatrix64F(1,1);
@@ -133,10 +140,12 @@ public class PnPLepetitEPnP {
 	protected FastQueue<Point3D_F64> solutionPts = new FastQueue<Point3D_F64>(4,Point3D_F64.class,true);
 
 	// estimates rigid body motion between two associated sets of points
-	private MotionTransformPoint<Se3_F64, Point3D_F64> motionFit = FitSpecialEuclideanOps_F64.fitPoints3D();
+	private MotionTransformPoint<Se3_F64, Point3D_F64> motionFit = new FitSe3PointsSVD();
 
 	// mean location of world points
 	private Point3D_F64 meanWorldPts = new Point3D_F64();
+	private Point3D_F64 tempMean0 = new Point3D_F64();
+	private Point3D_F64 tempMean1 = new Point3D_F64();
 
 	// number of iterations it will perform
 	private int numIterations;
@@ -307,7 +316,7 @@ public class PnPLepetitEPnP {
 	 */
 	public void selectWorldControlPoints(List<Point3D_F64> worldPts, FastQueue<Point3D_F64> controlWorldPts) {
 
-		UtilPoint3D_F64.mean(worldPts,meanWorldPts);
+		mean(worldPts,worldPts.size(),meanWorldPts);
 
 		// covariance matrix elements, summed up here for speed
 		double c11=0,c12=0,c13=0,c22=0,c23=0,c33=0;
@@ -326,12 +335,14 @@ public class PnPLepetitEPnP {
 		}
 		c11/=N;c12/=N;c13/=N;c22/=N;c23/=N;c33/=N;
 
-		DenseMatrix64F covar = new DenseMatrix64F(3,3,true,c11,c12,c13,c12,c22,c23,c13,c23,c33);
+		covar.data[0] = c11; covar.data[1] = c12; covar.data[2] = c13;
+		covar.data[3] = c12; covar.data[4] = c22; covar.data[5] = c23;
+		covar.data[6] = c13; covar.data[7] = c23; covar.data[8] = c33;
 
 		// find the data's orientation and check to see if it is planar
-		svd.decompose(covar);
-		double []singularValues = svd.getSingularValues();
-		DenseMatrix64F V = svd.getV(null,false);
+		svdCovar.decompose(covar);
+		double []singularValues = svdCovar.getSingularValues();
+		DenseMatrix64F V = svdCovar.getV(V_covar,false);
 
 		SingularOps.descendingOrder(null,false,singularValues,3,V,false);
 
@@ -385,9 +396,7 @@ public class PnPLepetitEPnP {
 		}
 
 		// invert the matrix
-		solverPinv.setA(A_temp);
-		A_temp.reshape(A_temp.numCols, A_temp.numRows);
-		solverPinv.invert(A_temp);
+		pseudoInverse(A_temp);
 
 		w_temp.reshape(numControl - 1, 1);
 
@@ -459,7 +468,8 @@ public class PnPLepetitEPnP {
 			throw new IllegalArgumentException("SVD failed?!?!");
 
 		double []singularValues = svd.getSingularValues();
-		DenseMatrix64F V = svd.getV(null,false);
+		V_null.reshape(MM.numCols,MM.numCols,false);
+		DenseMatrix64F V = svd.getV(V_null,false);
 
 		SingularOps.descendingOrder(null,false,singularValues,3,V,false);
 
@@ -478,6 +488,53 @@ public class PnPLepetitEPnP {
 		}
 	}
 
+	/**
+	 * Replaces the 3xN matrix A with its Nx3 pseudo inverse.  Singular values which are effectively zero are
+	 * ignored, the same as EJML's pseudo inverse solver.
+	 */
+	private void pseudoInverse( DenseMatrix64F A ) {
+		int N = A.numCols;
+		if( !svdPinv.decompose(A) )
+			throw new RuntimeException("SVD failed");
+
+		U_pinv.reshape(3,N,false);
+		V_pinv.reshape(N,N,false);
+		svdPinv.getU(U_pinv,false);
+		svdPinv.getV(V_pinv,false);
+		double[] w = svdPinv.getSingularValues();
+
+		double maxSingular = 0;
+		for( int i = 0; i < N; i++ )
+			maxSingular = Math.max(maxSingular,w[i]);
+		double tau = UtilEjml.EPS*3*maxSingular;
+
+		// pinv(A) = V*inv(W)*U'
+		A.reshape(N,3,false);
+		for( int row = 0; row < N; row++ ) {
+			for( int col = 0; col < 3; col++ ) {
+				double sum = 0;
+				for( int k = 0; k < N; k++ ) {
+					if( w[k] > tau )
+						sum += V_pinv.unsafe_get(row,k)*U_pinv.unsafe_get(col,k)/w[k];
+				}
+				A.unsafe_set(row,col,sum);
+			}
+		}
+	}
+
+	/**
+	 * Computes the mean of the first N points
+	 */
+	private static Point3D_F64 mean( List<Point3D_F64> points , int N , Point3D_F64 mean ) {
+		double x = 0, y = 0, z = 0;
+		for( int i = 0; i < N; i++ ) {
+			Point3D_F64 p = points.get(i);
+			x += p.x; y += p.y; z += p.z;
+		}
+		mean.set(x/N,y/N,z/N);
+		return mean;
+	}
+
 	/**
 	 * Examines the distance each point is from the centroid to determine the scaling difference
 	 * between world control points and the null points.
@@ -485,8 +542,8 @@ public class PnPLepetitEPnP {
 	protected double matchScale( List<Point3D_F64> nullPts ,
 								 FastQueue<Point3D_F64> controlWorldPts ) {
 
-		Point3D_F64 meanNull = UtilPoint3D_F64.mean(nullPts,numControl,null);
-		Point3D_F64 meanWorld = UtilPoint3D_F64.mean(controlWorldPts.toList(),numControl,null);
+		Point3D_F64 meanNull = mean(nullPts,numControl,tempMean0);
+		Point3D_F64 meanWorld = mean(controlWorldPts.toList(),numControl,tempMean1);
 
 		// compute the ratio of distance between world and null points from the centroid
 		double top = 0;
@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo.triangulate;
+
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.struct.geo.PackedAssociatedPair;
+import boofcv.struct.geo.PackedTrackObservations;
+import georegression.struct.se.Se3_F64;
+import org.ejml.data.DenseMatrix64F;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Triangulates and optionally refines a large number of points in a single call.  Observations are read from
+ * packed arrays and the found points are written into packed arrays, so no objects are created per point.
+ * Points are processed in blocks concurrently and each block uses its own workspace, which is saved and reused
+ * in the next call.
+ * </p>
+ *
+ * <p>
+ * The initial estimate is the point which minimizes the sum of squared distances to each observation's ray.
+ * For two views this is the same point found by {@link TriangulateGeometric}.  If requested, it is refined
+ * using Gauss-Newton by minimizing the residual error in normalized image coordinates, as is done by
+ * {@link ResidualsTriangulateSimple}.  Each step requires only a 3x3 linear system to be solved.
+ * </p>
+ *
+ * <p>
+ * Triangulation of a point fails if the rays are (nearly) parallel or there are fewer than two observations.
+ * Refinement is stopped early if the point moves behind a camera or the error stops decreasing.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class TriangulateBatchCalibrated {
+
+	// minimum number of points in each block
+	private static final int MIN_BLOCK = 256;
+
+	// number of Gauss-Newton iterations.  0 = no refinement
+	private int refineIterations;
+	// stop refinement when the relative change in error is less than this
+	private double convergenceTol;
+
+	// rotation and translation of each view, packed as [R row major, T], 12 elements per view
+	private double[] views = new double[0];
+	private int numViews;
+
+	// storage for each block
+	private List<Workspace> workspaces = new ArrayList<Workspace>();
+
+	/**
+	 * Configures refinement
+	 *
+	 * @param refineIterations Maximum number of Gauss-Newton iterations for each point.  If 0 then the linear
+	 *                         estimate is not refined.
+	 * @param convergenceTol Refinement stops when the relative change in error is less than this value.
+	 */
+	public TriangulateBatchCalibrated( int refineIterations , double convergenceTol ) {
+		this.refineIterations = refineIterations;
+		this.convergenceTol = convergenceTol;
+	}
+
+	/**
+	 * Triangulates points observed in two views with a common motion, e.g. a stereo camera.  Points are
+	 * found in view 'a' reference frame.
+	 *
+	 * @param pairs Observations in view 'a' (x1,y1) and 'b' (x2,y2) in normalized image coordinates. Not modified.
+	 * @param fromAtoB Transform from view 'a' to 'b'. Not modified.
+	 * @param X (Output) x-coordinate of each point.  Must have at least pairs.size elements.
+	 * @param Y (Output) y-coordinate of each point.
+	 * @param Z (Output) z-coordinate of each point.
+	 * @param success (Output) true if the point was successfully triangulated.
+	 */
+	public void triangulate( final PackedAssociatedPair pairs , Se3_F64 fromAtoB ,
+							 final double[] X , final double[] Y , final double[] Z , final boolean[] success ) {
+		numViews = 0;
+		addView(null);
+		addView(fromAtoB);
+
+		declareWorkspaces(pairs.size);
+
+		BoofConcurrency.loopBlocks(0, pairs.size, MIN_BLOCK, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				Workspace w = workspaces.get(block);
+				w.resize(2);
+				for( int i = i0; i < i1; i++ ) {
+					w.view[0] = 0; w.obsX[0] = pairs.x1[i]; w.obsY[0] = pairs.y1[i];
+					w.view[1] = 1; w.obsX[1] = pairs.x2[i]; w.obsY[1] = pairs.y2[i];
+					success[i] = w.process(2);
+					X[i] = w.X; Y[i] = w.Y; Z[i] = w.Z;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Triangulates the location of each track in the world frame.
+	 *
+	 * @param tracks Observations of each track in normalized image coordinates. Not modified.
+	 * @param worldToView Transform from world to each view. Not modified.
+	 * @param X (Output) x-coordinate of each point.  Must have at least tracks.numTracks elements.
+	 * @param Y (Output) y-coordinate of each point.
+	 * @param Z (Output) z-coordinate of each point.
+	 * @param success (Output) true if the point was successfully triangulated.
+	 */
+	public void triangulate( final PackedTrackObservations tracks , List<Se3_F64> worldToView ,
+							 final double[] X , final double[] Y , final double[] Z , final boolean[] success ) {
+		numViews = 0;
+		for( int i = 0; i < worldToView.size(); i++ )
+			addView(worldToView.get(i));
+
+		declareWorkspaces(tracks.numTracks);
+
+		BoofConcurrency.loopBlocks(0, tracks.numTracks, MIN_BLOCK, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				Workspace w = workspaces.get(block);
+				for( int i = i0; i < i1; i++ ) {
+					int start = tracks.trackStart[i];
+					int N = tracks.trackStart[i+1] - start;
+					w.resize(N);
+					System.arraycopy(tracks.view, start, w.view, 0, N);
+					System.arraycopy(tracks.obsX, start, w.obsX, 0, N);
+					System.arraycopy(tracks.obsY, start, w.obsY, 0, N);
+					success[i] = w.process(N);
+					X[i] = w.X; Y[i] = w.Y; Z[i] = w.Z;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Copies the transform into the packed array.  If null then the identity is used.
+	 */
+	private void addView( Se3_F64 worldToView ) {
+		if( views.length < (numViews+1)*12 ) {
+			double[] tmp = new double[Math.max(24,views.length*2)];
+			System.arraycopy(views,0,tmp,0,views.length);
+			views = tmp;
+		}
+		int index = numViews*12;
+		if( worldToView == null ) {
+			for( int i = 0; i < 12; i++ )
+				views[index+i] = 0;
+			views[index] = views[index+4] = views[index+8] = 1;
+		} else {
+			DenseMatrix64F R = worldToView.getR();
+			System.arraycopy(R.data,0,views,index,9);
+			views[index+9] = worldToView.getT().x;
+			views[index+10] = worldToView.getT().y;
+			views[index+11] = worldToView.getT().z;
+		}
+		numViews++;
+	}
+
+	private void declareWorkspaces( int numPoints ) {
+		int numBlocks = BoofConcurrency.computeBlockCount(0, numPoints, MIN_BLOCK);
+		while( workspaces.size() < numBlocks )
+			workspaces.add(new Workspace());
+	}
+
+	public int getRefineIterations() {
+		return refineIterations;
+	}
+
+	public void setRefineIterations(int refineIterations) {
+		this.refineIterations = refineIterations;
+	}
+
+	/**
+	 * Storage for the observations of a single point and its solution
+	 */
+	private class Workspace {
+		int[] view = new int[0];
+		double[] obsX = new double[0];
+		double[] obsY = new double[0];
+
+		// normal equations
+		double a11,a12,a13,a22,a23,a33;
+		double b1,b2,b3;
+
+		// solution
+		double X,Y,Z;
+
+		void resize( int N ) {
+			if( view.length < N ) {
+				view = new int[N];
+				obsX = new double[N];
+				obsY = new double[N];
+			}
+		}
+
+		boolean process( int N ) {
+			if( N < 2 || !linear(N) ) {
+				X = Y = Z = Double.NaN;
+				return false;
+			}
+			if( refineIterations > 0 )
+				refine(N);
+			return true;
+		}
+
+		/**
+		 * Finds the point closest to all the rays.  sum (I - d*d')*(X - c) = 0, where d is the normalized
+		 * ray direction and c is the camera center.
+		 */
+		boolean linear( int N ) {
+			a11=a12=a13=a22=a23=a33=0;
+			b1=b2=b3=0;
+
+			for( int i = 0; i < N; i++ ) {
+				int index = view[i]*12;
+				double r11 = views[index  ], r12 = views[index+1], r13 = views[index+2];
+				double r21 = views[index+3], r22 = views[index+4], r23 = views[index+5];
+				double r31 = views[index+6], r32 = views[index+7], r33 = views[index+8];
+				double tx = views[index+9], ty = views[index+10], tz = views[index+11];
+
+				// camera center c = -R'*t
+				double cx = -(r11*tx + r21*ty + r31*tz);
+				double cy = -(r12*tx + r22*ty + r32*tz);
+				double cz = -(r13*tx + r23*ty + r33*tz);
+
+				// ray direction d = R'*[x,y,1]
+				double u = obsX[i], v = obsY[i];
+				double dx = r11*u + r21*v + r31;
+				double dy = r12*u + r22*v + r32;
+				double dz = r13*u + r23*v + r33;
+				double n = Math.sqrt(dx*dx + dy*dy + dz*dz);
+				dx /= n; dy /= n; dz /= n;
+
+				double p11 = 1-dx*dx, p12 = -dx*dy, p13 = -dx*dz;
+				double p22 = 1-dy*dy, p23 = -dy*dz;
+				double p33 = 1-dz*dz;
+
+				a11 += p11; a12 += p12; a13 += p13;
+				a22 += p22; a23 += p23; a33 += p33;
+
+				b1 += p11*cx + p12*cy + p13*cz;
+				b2 += p12*cx + p22*cy + p23*cz;
+				b3 += p13*cx + p23*cy + p33*cz;
+			}
+
+			// reject rays which are nearly parallel
+			return solve(1e-14);
+		}
+
+		/**
+		 * Gauss-Newton refinement of the residual error in normalized image coordinates
+		 */
+		void refine( int N ) {
+			double error = error(N,X,Y,Z);
+			if( Double.isNaN(error) )
+				return;
+
+			for( int iter = 0; iter < refineIterations; iter++ ) {
+				a11=a12=a13=a22=a23=a33=0;
+				b1=b2=b3=0;
+
+				for( int i = 0; i < N; i++ ) {
+					int index = view[i]*12;
+					double r11 = views[index  ], r12 = views[index+1], r13 = views[index+2];
+					double r21 = views[index+3], r22 = views[index+4], r23 = views[index+5];
+					double r31 = views[index+6], r32 = views[index+7], r33 = views[index+8];
+
+					double x = r11*X + r12*Y + r13*Z + views[index+9];
+					double y = r21*X + r22*Y + r23*Z + views[index+10];
+					double z = r31*X + r32*Y + r33*Z + views[index+11];
+
+					double ru = x/z - obsX[i];
+					double rv = y/z - obsY[i];
+
+					// Jacobian of the projection multiplied by the rotation
+					double iz = 1.0/z;
+					double ux = -x*iz*iz, vy = -y*iz*iz;
+					double ju1 = iz*r11 + ux*r31, ju2 = iz*r12 + ux*r32, ju3 = iz*r13 + ux*r33;
+					double jv1 = iz*r21 + vy*r31, jv2 = iz*r22 + vy*r32, jv3 = iz*r23 + vy*r33;
+
+					a11 += ju1*ju1 + jv1*jv1; a12 += ju1*ju2 + jv1*jv2; a13 += ju1*ju3 + jv1*jv3;
+					a22 += ju2*ju2 + jv2*jv2; a23 += ju2*ju3 + jv2*jv3;
+					a33 += ju3*ju3 + jv3*jv3;
+
+					b1 -= ju1*ru + jv1*rv;
+					b2 -= ju2*ru + jv2*rv;
+					b3 -= ju3*ru + jv3*rv;
+				}
+
+				double prevX = X, prevY = Y, prevZ = Z;
+				if( !solve(0) ) {
+					X = prevX; Y = prevY; Z = prevZ;
+					return;
+				}
+				X += prevX; Y += prevY; Z += prevZ;
+
+				double after = error(N,X,Y,Z);
+				if( Double.isNaN(after) || after > error ) {
+					X = prevX; Y = prevY; Z = prevZ;
+					return;
+				}
+				if( error - after <= convergenceTol*error )
+					return;
+				error = after;
+			}
+		}
+
+		/**
+		 * Sum of squared residuals.  NaN if the point is behind a view.
+		 */
+		double error( int N , double X , double Y , double Z ) {
+			double total = 0;
+			for( int i = 0; i < N; i++ ) {
+				int index = view[i]*12;
+				double x = views[index  ]*X + views[index+1]*Y + views[index+2]*Z + views[index+9];
+				double y = views[index+3]*X + views[index+4]*Y + views[index+5]*Z + views[index+10];
+				double z = views[index+6]*X + views[index+7]*Y + views[index+8]*Z + views[index+11];
+				if( z <= 0 )
+					return Double.NaN;
+				double ru = x/z - obsX[i];
+				double rv = y/z - obsY[i];
+				total += ru*ru + rv*rv;
+			}
+			return total;
+		}
+
+		/**
+		 * Solves the symmetric 3x3 system A*[X,Y,Z] = b using the adjugate
+		 *
+		 * @param tol The system is singular if det(A) <= tol*trace(A)^3
+		 * @return true if the solution is finite
+		 */
+		boolean solve( double tol ) {
+			double c11 = a22*a33 - a23*a23;
+			double c12 = a13*a23 - a12*a33;
+			double c13 = a12*a23 - a13*a22;
+			double det = a11*c11 + a12*c12 + a13*c13;
+
+			double trace = a11 + a22 + a33;
+			if( Math.abs(det) <= tol*trace*trace*trace || det == 0 )
+				return false;
+
+			double c22 = a11*a33 - a13*a13;
+			double c23 = a12*a13 - a11*a23;
+			double c33 = a11*a22 - a12*a12;
+
+			X = (c11*b1 + c12*b2 + c13*b3)/det;
+			Y = (c12*b1 + c22*b2 + c23*b3)/det;
+			Z = (c13*b1 + c23*b2 + c33*b3)/det;
+
+			return !(Double.isNaN(X) || Double.isNaN(Y) || Double.isNaN(Z) ||
+					Double.isInfinite(X) || Double.isInfinite(Y) || Double.isInfinite(Z));
+		}
+	}
+}
@@ -20,6 +20,7 @@ package boofcv.factory.geo;
 
 import boofcv.abst.geo.*;
 import boofcv.abst.geo.bundle.BundleAdjustmentCalibratedDense;
+import boofcv.abst.geo.bundle.BundleAdjustmentCalibratedSparse;
 import boofcv.abst.geo.f.*;
 import boofcv.abst.geo.h.LeastSquaresHomography;
 import boofcv.abst.geo.h.WrapHomographyLinear;
@@ -27,10 +28,12 @@ import boofcv.abst.geo.pose.*;
 import boofcv.abst.geo.trifocal.WrapTrifocalAlgebraicPoint7;
 import boofcv.abst.geo.trifocal.WrapTrifocalLinearPoint7;
 import boofcv.alg.geo.ModelObservationResidualN;
+import boofcv.alg.geo.RealRootsSturm;
 import boofcv.alg.geo.f.DistanceEpipolarConstraint;
 import boofcv.alg.geo.h.HomographyLinear4;
 import boofcv.alg.geo.h.HomographyResidualSampson;
 import boofcv.alg.geo.h.HomographyResidualTransfer;
+import boofcv.alg.geo.pose.FitSe3PointsSVD;
 import boofcv.alg.geo.pose.P3PFinsterwalder;
 import boofcv.alg.geo.pose.P3PGrunert;
 import boofcv.alg.geo.pose.PnPLepetitEPnP;
@@ -38,13 +41,10 @@ import boofcv.alg.geo.pose.PoseFromPairLinear6;
 import boofcv.alg.geo.trifocal.TrifocalAlgebraicPoint7;
 import boofcv.struct.geo.AssociatedPair;
 import georegression.fitting.MotionTransformPoint;
-import georegression.fitting.se.FitSpecialEuclideanOps_F64;
 import georegression.struct.point.Point3D_F64;
 import georegression.struct.se.Se3_F64;
 import org.ddogleg.optimization.FactoryOptimization;
 import org.ddogleg.optimization.UnconstrainedLeastSquares;
-import org.ddogleg.solver.PolynomialOps;
-import org.ddogleg.solver.RootFinderType;
 import org.ddogleg.struct.FastQueue;
 
 /**
@@ -65,6 +65,21 @@ public class FactoryMultiView {
 		return new BundleAdjustmentCalibratedDense(tol,maxIterations);
 	}
 
+	/**
+	 * Creates bundle adjustment for a camera with a know and fixed intrinsic calibration which takes
+	 * advantage of the problem's sparse structure.  Use this instead of {@link #bundleCalibrated} when
+	 * there are more than a handful of views or many points.
+	 *
+	 * @see BundleAdjustmentCalibratedSparse
+	 *
+	 * @param tol Convergence tolerance for the relative change in cost.  Try 1e-8
+	 * @param maxIterations Maximum number of iterations. Try 200 or more
+	 * @return Bundle Adjustment
+	 */
+	public static BundleAdjustmentCalibrated bundleCalibratedSparse(double tol , int maxIterations) {
+		return new BundleAdjustmentCalibratedSparse(tol,maxIterations);
+	}
+
 	/**
 	 * Returns an algorithm for estimating a homography matrix given a set of
 	 * {@link AssociatedPair}.
@@ -273,15 +288,15 @@ public class FactoryMultiView {
 	 */
 	public static EstimateNofPnP computePnP_N(EnumPNP which , int numIterations ) {
 
-		MotionTransformPoint<Se3_F64, Point3D_F64> motionFit = FitSpecialEuclideanOps_F64.fitPoints3D();
+		MotionTransformPoint<Se3_F64, Point3D_F64> motionFit = new FitSe3PointsSVD();
 
 		switch( which ) {
 			case P3P_GRUNERT:
-				P3PGrunert grunert = new P3PGrunert(PolynomialOps.createRootFinder(5, RootFinderType.STURM));
+				P3PGrunert grunert = new P3PGrunert(new RealRootsSturm(5,1e-10,200,20));
 				return new WrapP3PLineDistance(grunert,motionFit);
 
 			case P3P_FINSTERWALDER:
-				P3PFinsterwalder finster = new P3PFinsterwalder(PolynomialOps.createRootFinder(4,RootFinderType.STURM));
+				P3PFinsterwalder finster = new P3PFinsterwalder(new RealRootsSturm(4,1e-10,200,20));
 				return new WrapP3PLineDistance(finster,motionFit);
 
 			case EPNP:
@@ -23,6 +23,7 @@ import boofcv.abst.geo.RefineTriangulationEpipolar;
 import boofcv.abst.geo.TriangulateNViewsCalibrated;
 import boofcv.abst.geo.TriangulateTwoViewsCalibrated;
 import boofcv.abst.geo.triangulate.*;
+import boofcv.alg.geo.triangulate.TriangulateBatchCalibrated;
 
 /**
  * Factory for creating algorithms for triangulating the 3D location of a point given 2 or more
@@ -102,4 +103,17 @@ public class FactoryTriangulate {
 	public static RefineTriangulationCalibrated refineSimple( double convergenceTol, int maxIterations ) {
 		return new LeastSquaresTriangulateCalibrated(convergenceTol,maxIterations);
 	}
+
+	/**
+	 * Triangulates and optionally refines many points at once from packed observations.
+	 *
+	 * @see TriangulateBatchCalibrated
+	 *
+	 * @param refineIterations Maximum number of refinement iterations for each point.  0 for no refinement.
+	 * @param convergenceTol Tolerance for finishing refinement
+	 * @return Batch triangulation algorithm
+	 */
+	public static TriangulateBatchCalibrated batch( int refineIterations , double convergenceTol ) {
+		return new TriangulateBatchCalibrated(refineIterations,convergenceTol);
+	}
 }
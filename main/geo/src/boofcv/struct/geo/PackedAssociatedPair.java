@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.struct.geo;
+
+import boofcv.alg.robust.PackedPoints;
+
+import java.util.List;
+
+/**
+ * Structure of arrays version of a list of {@link AssociatedPair}.  The first view is stored in (x1,y1) and the
+ * second in (x2,y2).
+ *
+ * @author Peter Abeles
+ */
+public class PackedAssociatedPair implements PackedPoints<AssociatedPair> {
+	public double[] x1 = new double[0];
+	public double[] y1 = new double[0];
+	public double[] x2 = new double[0];
+	public double[] y2 = new double[0];
+
+	// number of packed points
+	public int size;
+
+	/**
+	 * Ensures there is enough storage for N points.  The previous contents are discarded if it has to grow.
+	 */
+	public void reserve( int N ) {
+		if( x1.length < N ) {
+			x1 = new double[N];
+			y1 = new double[N];
+			x2 = new double[N];
+			y2 = new double[N];
+		}
+	}
+
+	@Override
+	public void setTo(List<AssociatedPair> points) {
+		reserve(points.size());
+		size = points.size();
+		for( int i = 0; i < size; i++ ) {
+			AssociatedPair p = points.get(i);
+			x1[i] = p.p1.x;
+			y1[i] = p.p1.y;
+			x2[i] = p.p2.x;
+			y2[i] = p.p2.y;
+		}
+	}
+
+	/**
+	 * Copies the i'th packed point into the provided point
+	 */
+	public void get( int i , AssociatedPair output ) {
+		output.p1.set(x1[i],y1[i]);
+		output.p2.set(x2[i],y2[i]);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
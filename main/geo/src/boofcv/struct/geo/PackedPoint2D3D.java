@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.struct.geo;
+
+import boofcv.alg.robust.PackedPoints;
+
+import java.util.List;
+
+/**
+ * Structure of arrays version of a list of {@link Point2D3D}.  The observations are stored in (obsX,obsY) and
+ * the 3D locations in (X,Y,Z).
+ *
+ * @author Peter Abeles
+ */
+public class PackedPoint2D3D implements PackedPoints<Point2D3D> {
+	public double[] obsX = new double[0];
+	public double[] obsY = new double[0];
+	public double[] X = new double[0];
+	public double[] Y = new double[0];
+	public double[] Z = new double[0];
+
+	// number of packed points
+	public int size;
+
+	/**
+	 * Ensures there is enough storage for N points.  The previous contents are discarded if it has to grow.
+	 */
+	public void reserve( int N ) {
+		if( obsX.length < N ) {
+			obsX = new double[N];
+			obsY = new double[N];
+			X = new double[N];
+			Y = new double[N];
+			Z = new double[N];
+		}
+	}
+
+	@Override
+	public void setTo(List<Point2D3D> points) {
+		reserve(points.size());
+		size = points.size();
+		for( int i = 0; i < size; i++ ) {
+			Point2D3D p = points.get(i);
+			obsX[i] = p.observation.x;
+			obsY[i] = p.observation.y;
+			X[i] = p.location.x;
+			Y[i] = p.location.y;
+			Z[i] = p.location.z;
+		}
+	}
+
+	/**
+	 * Copies the i'th packed point into the provided point
+	 */
+	public void get( int i , Point2D3D output ) {
+		output.observation.set(obsX[i],obsY[i]);
+		output.location.set(X[i],Y[i],Z[i]);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
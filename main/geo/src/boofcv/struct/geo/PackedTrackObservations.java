@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.struct.geo;
+
+/**
+ * Observations of many tracks packed into primitive arrays.  The observations of track 'i' are stored
+ * from index trackStart[i] to trackStart[i+1]-1 in the view, obsX, and obsY arrays.  Observations are
+ * typically in normalized image coordinates.
+ *
+ * @author Peter Abeles
+ */
+public class PackedTrackObservations {
+	// index of the first observation in each track.  numTracks+1 elements are used
+	public int[] trackStart = new int[1];
+	// index of the view each observation was made in
+	public int[] view = new int[0];
+	// observation coordinates
+	public double[] obsX = new double[0];
+	public double[] obsY = new double[0];
+
+	// number of tracks
+	public int numTracks;
+	// total number of observations
+	public int numObservations;
+
+	/**
+	 * Removes all tracks without freeing memory
+	 */
+	public void reset() {
+		numTracks = 0;
+		numObservations = 0;
+		trackStart[0] = 0;
+	}
+
+	/**
+	 * Adds an observation to the track which is currently being constructed
+	 *
+	 * @param view Index of the view the observation was made in
+	 * @param x observation x-coordinate
+	 * @param y observation y-coordinate
+	 */
+	public void addObservation( int view , double x , double y ) {
+		if( numObservations == this.view.length ) {
+			int N = Math.max(16,numObservations*2);
+			this.view = grow(this.view,N);
+			obsX = grow(obsX,N);
+			obsY = grow(obsY,N);
+		}
+		this.view[numObservations] = view;
+		obsX[numObservations] = x;
+		obsY[numObservations] = y;
+		numObservations++;
+	}
+
+	/**
+	 * Finishes the track which is currently being constructed.  All observations added since the previous call
+	 * are part of this track.
+	 */
+	public void endTrack() {
+		if( numTracks+2 > trackStart.length ) {
+			trackStart = grow(trackStart,Math.max(16,trackStart.length*2));
+		}
+		numTracks++;
+		trackStart[numTracks] = numObservations;
+	}
+
+	/**
+	 * Number of observations in the specified track
+	 */
+	public int getTrackSize( int track ) {
+		return trackStart[track+1] - trackStart[track];
+	}
+
+	private static int[] grow( int[] a , int N ) {
+		int[] b = new int[N];
+		System.arraycopy(a,0,b,0,a.length);
+		return b;
+	}
+
+	private static double[] grow( double[] a , int N ) {
+		double[] b = new double[N];
+		System.arraycopy(a,0,b,0,a.length);
+		return b;
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.abst.geo.bundle;
+
+import boofcv.alg.geo.GeoTestingOps;
+import boofcv.alg.geo.bundle.CalibPoseAndPointResiduals;
+import boofcv.alg.geo.bundle.CalibratedPoseAndPoint;
+import boofcv.alg.geo.bundle.ViewPointObservations;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static boofcv.abst.geo.bundle.TestBundleAdjustmentCalibratedDense.createModel;
+import static boofcv.abst.geo.bundle.TestBundleAdjustmentCalibratedDense.createObservations;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestBundleAdjustmentCalibratedSparse {
+
+	Random rand = new Random(234);
+	int numViews = 2;
+	int numPoints = 4;
+
+	/**
+	 * Perfect observations and model
+	 */
+	@Test
+	public void perfect() {
+		CalibratedPoseAndPoint model = createModel(numViews,numPoints,rand);
+		List<ViewPointObservations> observations = createObservations(model,numViews,numPoints);
+
+		BundleAdjustmentCalibratedSparse alg = new BundleAdjustmentCalibratedSparse(1e-8,500);
+
+		assertTrue(alg.process(model, observations));
+
+		// compute error, which should be zero
+		assertEquals(0,computeError(model,observations),1e-8);
+	}
+
+	/**
+	 * Perfect observations with a corrupted model.  See if the error decreases
+	 */
+	@Test
+	public void noisy() {
+		CalibratedPoseAndPoint model = createModel(numViews,numPoints,rand);
+		List<ViewPointObservations> observations = createObservations(model,numViews,numPoints);
+
+		BundleAdjustmentCalibratedSparse alg = new BundleAdjustmentCalibratedSparse(1e-12,500);
+
+		// add noise to the model
+		model.getWorldToCamera(0).getT().x += 0.02;
+		model.getWorldToCamera(1).getT().y -= 0.01;
+
+		double errorBefore = computeError(model,observations);
+
+		assertTrue(alg.process(model, observations));
+
+		double errorAfter = computeError(model,observations);
+
+		// the error should be less now
+		assertTrue(errorAfter<errorBefore*0.1);
+	}
+
+	/**
+	 * Known views should not be modified
+	 */
+	@Test
+	public void knownViews() {
+		CalibratedPoseAndPoint model = createModel(4,20,rand);
+		List<ViewPointObservations> observations = createObservations(model,4,20);
+
+		model.setViewKnown(0,true);
+		model.setViewKnown(2,true);
+		Se3_F64 original0 = model.getWorldToCamera(0).copy();
+		Se3_F64 original2 = model.getWorldToCamera(2).copy();
+
+		model.getWorldToCamera(1).getT().x += 0.02;
+		model.getWorldToCamera(3).getT().z -= 0.01;
+		for( int i = 0; i < 20; i++ ) {
+			model.getPoint(i).y += rand.nextGaussian()*0.01;
+		}
+
+		double errorBefore = computeError(model,observations);
+		assertTrue(alg().process(model, observations));
+		double errorAfter = computeError(model,observations);
+
+		assertTrue(errorAfter < errorBefore*1e-4);
+
+		for( int i = 0; i < 9; i++ ) {
+			assertEquals(original0.getR().data[i],model.getWorldToCamera(0).getR().data[i],1e-12);
+			assertEquals(original2.getR().data[i],model.getWorldToCamera(2).getR().data[i],1e-12);
+		}
+		assertEquals(0,original0.getT().distance(model.getWorldToCamera(0).getT()),1e-12);
+		assertEquals(0,original2.getT().distance(model.getWorldToCamera(2).getT()),1e-12);
+	}
+
+	/**
+	 * Many views and points, with every parameter corrupted.  One view is known to fix the coordinate system
+	 */
+	@Test
+	public void largerProblem() {
+		int numViews = 15;
+		int numPoints = 400;
+
+		CalibratedPoseAndPoint model = createModel(numViews,numPoints,rand);
+		List<ViewPointObservations> observations = createObservations(model,numViews,numPoints);
+
+		model.setViewKnown(0,true);
+		for( int i = 1; i < numViews; i++ ) {
+			model.getWorldToCamera(i).getT().x += rand.nextGaussian()*0.005;
+			model.getWorldToCamera(i).getT().y += rand.nextGaussian()*0.005;
+		}
+		for( int i = 0; i < numPoints; i++ ) {
+			Point3D_F64 p = model.getPoint(i);
+			p.x += rand.nextGaussian()*0.005;
+			p.z += rand.nextGaussian()*0.02;
+		}
+
+		double errorBefore = computeError(model,observations);
+		assertTrue(alg().process(model, observations));
+		double errorAfter = computeError(model,observations);
+
+		assertTrue(errorAfter < errorBefore*1e-4);
+	}
+
+	/**
+	 * Should converge to the same solution as the dense implementation.  Two views are known so that
+	 * the solution is unique.
+	 */
+	@Test
+	public void compareToDense() {
+		CalibratedPoseAndPoint modelA = createModel(4,20,rand);
+		List<ViewPointObservations> observations = createObservations(modelA,4,20);
+		for( ViewPointObservations v : observations ) {
+			for( int i = 0; i < v.getPoints().size; i++ ) {
+				v.getPoints().get(i).getObservation().x += rand.nextGaussian()*0.001;
+				v.getPoints().get(i).getObservation().y += rand.nextGaussian()*0.001;
+			}
+		}
+		modelA.setViewKnown(0,true);
+		modelA.setViewKnown(2,true);
+		modelA.getWorldToCamera(1).getT().x += 0.01;
+		for( int i = 0; i < 20; i++ ) {
+			modelA.getPoint(i).z += rand.nextGaussian()*0.05;
+		}
+
+		CalibratedPoseAndPoint modelB = copy(modelA);
+
+		new BundleAdjustmentCalibratedDense(1e-14,500).process(modelA,observations);
+		alg().process(modelB,observations);
+
+		assertEquals(computeError(modelA,observations),computeError(modelB,observations),1e-10);
+		for( int i = 0; i < 20; i++ ) {
+			assertEquals(0,modelA.getPoint(i).distance(modelB.getPoint(i)),1e-6);
+		}
+	}
+
+	/**
+	 * The conjugate gradient solver should produce the same solution as the dense solver
+	 */
+	@Test
+	public void conjugateGradient() {
+		CalibratedPoseAndPoint modelA = createModel(5,40,rand);
+		List<ViewPointObservations> observations = createObservations(modelA,5,40);
+		modelA.setViewKnown(0,true);
+		modelA.setViewKnown(4,true);
+		for( int i = 1; i < 4; i++ ) {
+			modelA.getWorldToCamera(i).getT().y += rand.nextGaussian()*0.005;
+		}
+		for( int i = 0; i < 40; i++ ) {
+			modelA.getPoint(i).x += rand.nextGaussian()*0.01;
+		}
+		CalibratedPoseAndPoint modelB = copy(modelA);
+
+		BundleAdjustmentCalibratedSparse algA = alg();
+		BundleAdjustmentCalibratedSparse algB = alg();
+		// force it to use conjugate gradient
+		algB.getAlgorithm().setMaxDenseReduced(0);
+
+		algA.process(modelA,observations);
+		algB.process(modelB,observations);
+
+		assertEquals(0,computeError(modelB,observations),1e-8);
+		for( int i = 0; i < 40; i++ ) {
+			assertEquals(0,modelA.getPoint(i).distance(modelB.getPoint(i)),1e-6);
+		}
+	}
+
+	private BundleAdjustmentCalibratedSparse alg() {
+		return new BundleAdjustmentCalibratedSparse(1e-14,500);
+	}
+
+	private CalibratedPoseAndPoint copy( CalibratedPoseAndPoint model ) {
+		CalibratedPoseAndPoint ret = new CalibratedPoseAndPoint();
+		ret.configure(model.getNumViews(),model.getNumPoints());
+		for( int i = 0; i < model.getNumViews(); i++ ) {
+			ret.setViewKnown(i,model.isViewKnown(i));
+			ret.getWorldToCamera(i).set(model.getWorldToCamera(i));
+		}
+		for( int i = 0; i < model.getNumPoints(); i++ ) {
+			ret.getPoint(i).set(model.getPoint(i));
+		}
+		return ret;
+	}
+
+	private double computeError( CalibratedPoseAndPoint model ,
+								 List<ViewPointObservations> observations )
+	{
+		CalibPoseAndPointResiduals func = new CalibPoseAndPointResiduals();
+		func.configure(null,model,observations);
+		double residuals[] = new double[ func.getNumOfOutputsM() ];
+
+		func.process(model,residuals);
+
+		return GeoTestingOps.residualError(residuals);
+	}
+}
@@ -185,6 +185,49 @@ public class TestLensDistortionOps {
 		assertEquals(pixel.y,found.y,1e-6);
 	}
 
+	/**
+	 * Compare the grid approximations against the iterative versions
+	 */
+	@Test
+	public void transformRadial_grid() {
+		for( int i = 0; i < 2; i++ ) {
+			boolean flipY = i == 1;
+			IntrinsicParameters param = new IntrinsicParameters(300,320,2,150,130,
+					width,height, flipY, new double[]{0.1,1e-4});
+
+			PointTransform_F64 normExpected = LensDistortionOps.transformRadialToNorm_F64(param);
+			PointTransformGrid_F64 norm = LensDistortionOps.transformRadialToNorm_F64(param, 4);
+			PointTransform_F64 pixelExpected = LensDistortionOps.transformRadialToPixel_F64(param);
+			PointTransformGrid_F64 pixel = LensDistortionOps.transformRadialToPixel_F64(param, 4);
+			PointTransform_F32 pixelExpected32 = LensDistortionOps.transformRadialToPixel_F32(param);
+			PointTransformGrid_F32 pixel32 = LensDistortionOps.transformRadialToPixel_F32(param, 4);
+
+			Point2D_F64 expected = new Point2D_F64();
+			Point2D_F64 found = new Point2D_F64();
+			Point2D_F32 expected32 = new Point2D_F32();
+			Point2D_F32 found32 = new Point2D_F32();
+
+			for( int y = 0; y < height; y += 7 ) {
+				for( int x = 0; x < width; x += 7 ) {
+					normExpected.compute(x+0.3, y+0.6, expected);
+					norm.compute(x+0.3, y+0.6, found);
+					assertEquals(0, expected.distance(found), 1e-4);
+
+					pixelExpected.compute(x+0.3, y+0.6, expected);
+					pixel.compute(x+0.3, y+0.6, found);
+					assertEquals(0, expected.distance(found), 0.05);
+
+					pixelExpected32.compute(x+0.3f, y+0.6f, expected32);
+					pixel32.compute(x+0.3f, y+0.6f, found32);
+					assertEquals(0, expected32.distance(found32), 0.05);
+				}
+			}
+
+			assertTrue(pixel.computeErrors(3) < 0.05);
+			assertTrue(pixel32.computeErrors(3) < 0.05);
+		}
+	}
+
 	@Test
 	public void transformNormToRadial_F64() {
 		transformNormToRadial_F64(false);
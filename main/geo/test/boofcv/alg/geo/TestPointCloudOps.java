@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo;
+
+import boofcv.alg.distort.AddRadialNtoN_F64;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.struct.PackedPointCloud_F32;
+import boofcv.struct.calib.IntrinsicParameters;
+import georegression.geometry.RotationMatrixGenerator;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestPointCloudOps {
+
+	Random rand = new Random(234);
+
+	// large enough to be split into several blocks
+	int N = 20000;
+
+	@Test
+	public void transform() {
+		PackedPointCloud_F32 src = createCloud(N, true);
+
+		Se3_F64 se = new Se3_F64();
+		RotationMatrixGenerator.eulerXYZ(0.1,-0.5,1.2,se.getR());
+		se.getT().set(0.5,-2,3);
+
+		PackedPointCloud_F32 dst = new PackedPointCloud_F32(true);
+		PointCloudOps.transform(se, src, dst);
+
+		assertEquals(src.size, dst.size);
+		Point3D_F64 p = new Point3D_F64();
+		Point3D_F64 q = new Point3D_F64();
+		for( int i = 0; i < src.size; i++ ) {
+			src.get(i,p);
+			SePointOps_F64.transform(se,p,p);
+			dst.get(i,q);
+			assertEquals(0,p.distance(q),1e-4);
+			assertEquals(src.rgb[i],dst.rgb[i]);
+		}
+
+		// in place
+		PointCloudOps.transform(se, src, src);
+		for( int i = 0; i < src.size; i++ ) {
+			assertEquals(dst.x[i],src.x[i],1e-8f);
+			assertEquals(dst.y[i],src.y[i],1e-8f);
+			assertEquals(dst.z[i],src.z[i],1e-8f);
+		}
+	}
+
+	@Test
+	public void project() {
+		IntrinsicParameters param = new IntrinsicParameters(200,210,0.01,320,240,640,480,false,new double[]{0.05,-0.01});
+
+		PackedPointCloud_F32 cloud = createCloud(N, false);
+		cloud.z[5] = -1;
+		cloud.z[7] = 0;
+
+		float pixelX[] = new float[N];
+		float pixelY[] = new float[N];
+		PointCloudOps.project(param, cloud, pixelX, pixelY);
+
+		AddRadialNtoN_F64 addRadial = new AddRadialNtoN_F64();
+		addRadial.set(param.radial);
+		Point2D_F64 n = new Point2D_F64();
+
+		for( int i = 0; i < N; i++ ) {
+			if( cloud.z[i] <= 0 ) {
+				assertTrue(Float.isNaN(pixelX[i]));
+				assertTrue(Float.isNaN(pixelY[i]));
+				continue;
+			}
+			addRadial.compute(cloud.x[i]/(double)cloud.z[i],cloud.y[i]/(double)cloud.z[i],n);
+			Point2D_F64 expected = PerspectiveOps.convertNormToPixel(param,n,null);
+
+			assertEquals(expected.x,pixelX[i],1e-4*Math.max(1,Math.abs(expected.x)));
+			assertEquals(expected.y,pixelY[i],1e-4*Math.max(1,Math.abs(expected.y)));
+		}
+	}
+
+	@Test
+	public void downsampleVoxel() {
+		PackedPointCloud_F32 src = new PackedPointCloud_F32(true);
+
+		// two points in one voxel and one in another
+		src.add(0.1f,0.1f,0.1f,0x102030);
+		src.add(-0.5f,0.2f,0.2f,0x000000);
+		src.add(0.3f,0.3f,0.5f,0x305070);
+
+		PackedPointCloud_F32 dst = new PackedPointCloud_F32(true);
+		PointCloudOps.downsampleVoxel(src, 1.0f, dst);
+
+		assertEquals(2,dst.size);
+		assertEquals(0.2f,dst.x[0],1e-6f);
+		assertEquals(0.2f,dst.y[0],1e-6f);
+		assertEquals(0.3f,dst.z[0],1e-6f);
+		assertEquals(0x203850,dst.rgb[0]);
+		assertEquals(-0.5f,dst.x[1],1e-6f);
+		assertEquals(0,dst.rgb[1]);
+	}
+
+	/**
+	 * Every point should be inside a voxel and the centroid should also be inside the same voxel
+	 */
+	@Test
+	public void downsampleVoxel_random() {
+		PackedPointCloud_F32 src = createCloud(N, false);
+		PackedPointCloud_F32 dst = new PackedPointCloud_F32(false);
+
+		float size = 0.5f;
+		PointCloudOps.downsampleVoxel(src, size, dst);
+
+		// brute force count of occupied voxels
+		Set<String> voxels = new HashSet<String>();
+		for( int i = 0; i < src.size; i++ ) {
+			voxels.add(voxel(src.x[i],size)+" "+voxel(src.y[i],size)+" "+voxel(src.z[i],size));
+		}
+		assertEquals(voxels.size(),dst.size);
+
+		for( int i = 0; i < dst.size; i++ ) {
+			String key = voxel(dst.x[i],size)+" "+voxel(dst.y[i],size)+" "+voxel(dst.z[i],size);
+			assertTrue(voxels.remove(key));
+		}
+	}
+
+	/**
+	 * Points with a coordinate which is NaN or infinite should be skipped instead of being put into a voxel
+	 */
+	@Test
+	public void downsampleVoxel_notFinite() {
+		PackedPointCloud_F32 src = new PackedPointCloud_F32(true);
+
+		src.add(0.1f,0.2f,0.3f,0x102030);
+		src.add(Float.NaN,0.2f,0.2f,0xFFFFFF);
+		src.add(0.3f,Float.POSITIVE_INFINITY,0.5f,0xFFFFFF);
+		src.add(0.5f,0.4f,Float.NEGATIVE_INFINITY,0xFFFFFF);
+		src.add(0.3f,0.4f,0.5f,0x305070);
+
+		PackedPointCloud_F32 dst = new PackedPointCloud_F32(true);
+		PointCloudOps.downsampleVoxel(src, 1.0f, dst);
+
+		assertEquals(1,dst.size);
+		assertEquals(0.2f,dst.x[0],1e-6f);
+		assertEquals(0.3f,dst.y[0],1e-6f);
+		assertEquals(0.4f,dst.z[0],1e-6f);
+		assertEquals(0x203850,dst.rgb[0]);
+
+		// every point is skipped
+		src.reset();
+		src.add(Float.NaN,Float.NaN,Float.NaN,0);
+		PointCloudOps.downsampleVoxel(src, 1.0f, dst);
+		assertEquals(0,dst.size);
+	}
+
+	/**
+	 * Partial sums are merged in a fixed order so the output should be identical for any number of threads
+	 */
+	@Test
+	public void downsampleVoxel_numberOfThreads() {
+		PackedPointCloud_F32 src = createCloud(N, true);
+
+		int original = BoofConcurrency.getMaxThreads();
+		try {
+			BoofConcurrency.setMaxThreads(1);
+			PackedPointCloud_F32 expected = new PackedPointCloud_F32(true);
+			PointCloudOps.downsampleVoxel(src, 0.5f, expected);
+
+			for( int threads = 2; threads <= 4; threads++ ) {
+				BoofConcurrency.setMaxThreads(threads);
+				PackedPointCloud_F32 found = new PackedPointCloud_F32(true);
+				PointCloudOps.downsampleVoxel(src, 0.5f, found);
+
+				assertEquals(expected.size,found.size);
+				for( int i = 0; i < expected.size; i++ ) {
+					assertTrue(expected.x[i] == found.x[i]);
+					assertTrue(expected.y[i] == found.y[i]);
+					assertTrue(expected.z[i] == found.z[i]);
+					assertEquals(expected.rgb[i],found.rgb[i]);
+				}
+			}
+		} finally {
+			BoofConcurrency.setMaxThreads(original);
+		}
+	}
+
+	private static int voxel( float value , float size ) {
+		return (int)Math.floor(value/size);
+	}
+
+	private PackedPointCloud_F32 createCloud( int N , boolean color ) {
+		PackedPointCloud_F32 cloud = new PackedPointCloud_F32(color);
+		for( int i = 0; i < N; i++ ) {
+			float x = (float)rand.nextGaussian()*3;
+			float y = (float)rand.nextGaussian()*3;
+			float z = (float)rand.nextGaussian()*3 + 10;
+			if( color )
+				cloud.add(x,y,z,rand.nextInt(0xFFFFFF));
+			else
+				cloud.add(x,y,z);
+		}
+		return cloud;
+	}
+}
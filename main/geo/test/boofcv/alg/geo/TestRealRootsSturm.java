@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo;
+
+import org.ddogleg.solver.Polynomial;
+import org.ejml.data.Complex64F;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestRealRootsSturm {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Polynomials constructed from known real roots
+	 */
+	@Test
+	public void knownRoots() {
+		RealRootsSturm alg = new RealRootsSturm(11,1e-10,200,20);
+
+		for( int degree = 1; degree <= 10; degree++ ) {
+			for( int trial = 0; trial < 20; trial++ ) {
+				double[] expected = new double[degree];
+				for( int i = 0; i < degree; i++ )
+					expected[i] = (rand.nextDouble()-0.5)*20;
+
+				assertTrue(alg.process(fromRoots(expected)));
+				checkRoots(expected, alg.getRoots());
+			}
+		}
+	}
+
+	/**
+	 * Complex roots should be ignored
+	 */
+	@Test
+	public void complexRoots() {
+		RealRootsSturm alg = new RealRootsSturm(5,1e-10,200,20);
+
+		// (x^2 + 1)*(x - 2)*(x + 3)
+		Polynomial a = fromRoots(new double[]{2,-3});
+		Polynomial poly = new Polynomial(5);
+		poly.size = 5;
+		for( int i = 0; i < a.size; i++ ) {
+			poly.c[i] += a.c[i];
+			poly.c[i+2] += a.c[i];
+		}
+
+		assertTrue(alg.process(poly));
+		checkRoots(new double[]{-3,2}, alg.getRoots());
+
+		// x^2 + 1
+		assertTrue(alg.process(Polynomial.wrap(1,0,1)));
+		assertEquals(0, alg.getRoots().size());
+	}
+
+	/**
+	 * The same instance is used with polynomials of different degrees.  The leading coefficient can be zero.
+	 */
+	@Test
+	public void multipleCalls() {
+		RealRootsSturm alg = new RealRootsSturm(5,1e-10,200,20);
+
+		assertTrue(alg.process(fromRoots(new double[]{1,2,3,4})));
+		checkRoots(new double[]{1,2,3,4}, alg.getRoots());
+
+		Polynomial p = fromRoots(new double[]{-0.5,0.25});
+		Polynomial padded = new Polynomial(5);
+		padded.size = 5;
+		System.arraycopy(p.c,0,padded.c,0,p.size);
+		assertTrue(alg.process(padded));
+		checkRoots(new double[]{-0.5,0.25}, alg.getRoots());
+	}
+
+	private void checkRoots( double[] expected , List<Complex64F> found ) {
+		Arrays.sort(expected);
+		assertEquals(expected.length, found.size());
+
+		double[] values = new double[found.size()];
+		for( int i = 0; i < values.length; i++ ) {
+			assertTrue(found.get(i).isReal());
+			values[i] = found.get(i).real;
+		}
+		Arrays.sort(values);
+
+		for( int i = 0; i < values.length; i++ )
+			assertEquals(expected[i], values[i], 1e-6*Math.max(1,Math.abs(expected[i])));
+	}
+
+	/**
+	 * Creates a polynomial (x - r0)*(x - r1)*...
+	 */
+	private static Polynomial fromRoots( double[] roots ) {
+		Polynomial p = new Polynomial(roots.length+1);
+		p.size = roots.length+1;
+		p.c[0] = 1;
+		int degree = 0;
+		for( double r : roots ) {
+			degree++;
+			for( int i = degree; i > 0; i-- )
+				p.c[i] = p.c[i-1] - r*p.c[i];
+			p.c[0] = -r*p.c[0];
+		}
+		return p;
+	}
+}
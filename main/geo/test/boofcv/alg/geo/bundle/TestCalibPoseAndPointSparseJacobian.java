@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.geo.bundle;
+
+import georegression.struct.se.Se3_F64;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static boofcv.abst.geo.bundle.TestBundleAdjustmentCalibratedDense.createModel;
+import static boofcv.abst.geo.bundle.TestBundleAdjustmentCalibratedDense.createObservations;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestCalibPoseAndPointSparseJacobian {
+
+	Random rand = new Random(48854);
+	int numViews = 3;
+	int numPoints = 5;
+
+	@Test
+	public void allUnknown() {
+		check(false,false,false);
+	}
+
+	@Test
+	public void someKnown() {
+		check(false,true,false);
+	}
+
+	/**
+	 * Compares the blocks against the dense Jacobian and the residuals against {@link CalibPoseAndPointResiduals}
+	 */
+	private void check( boolean ...known ) {
+		CalibratedPoseAndPoint model = createModel(numViews,numPoints,rand);
+		List<ViewPointObservations> observations = createObservations(model,numViews,numPoints);
+
+		// add noise so that the residuals are not zero
+		for( int i = 0; i < numViews; i++ ) {
+			for( int j = 0; j < numPoints; j++ ) {
+				observations.get(i).getPoints().get(j).getObservation().x += rand.nextGaussian()*0.01;
+			}
+		}
+
+		Se3_F64 extrinsic[] = new Se3_F64[known.length];
+		for( int i = 0; i < known.length; i++ ) {
+			model.setViewKnown(i,known[i]);
+			if( known[i] ) {
+				extrinsic[i] = model.getWorldToCamera(i).copy();
+			}
+		}
+
+		int numViewsUnknown = model.getNumUnknownViews();
+		CalibPoseAndPointRodriguesCodec codec = new CalibPoseAndPointRodriguesCodec();
+		codec.configure(numViews,numPoints,numViewsUnknown,known);
+		double param[] = new double[ codec.getParamLength() ];
+		codec.encode(model,param);
+
+		CalibPoseAndPointRodriguesJacobian dense = new CalibPoseAndPointRodriguesJacobian();
+		dense.configure(observations,numPoints,extrinsic);
+		int M = dense.getNumOfOutputsM();
+		int N = dense.getNumOfInputsN();
+		double expected[] = new double[M*N];
+		dense.process(param,expected);
+
+		CalibPoseAndPointResiduals func = new CalibPoseAndPointResiduals();
+		func.configure(codec,model,observations);
+		double expectedResiduals[] = new double[M];
+		func.process(param,expectedResiduals);
+
+		CalibPoseAndPointSparseJacobian alg = new CalibPoseAndPointSparseJacobian();
+		alg.configure(model,observations);
+		assertEquals(N,alg.getNumParameters());
+
+		double cost = alg.computeJacobian(param);
+
+		double expectedCost = 0;
+		for( int i = 0; i < M; i++ ) {
+			assertEquals(expectedResiduals[i],alg.getResiduals()[i],1e-12);
+			expectedCost += expectedResiduals[i]*expectedResiduals[i];
+		}
+		assertEquals(expectedCost,cost,1e-12);
+
+		// the residuals only function should produce the same result
+		assertEquals(cost,alg.computeResiduals(param),1e-12);
+
+		int indexFirstPoint = numViewsUnknown*6;
+		for( int k = 0; k < alg.getNumObservations(); k++ ) {
+			int view = alg.obsView[k];
+			int point = alg.obsPoint[k];
+			int u = alg.viewUnknown[view];
+
+			for( int row = 0; row < 2; row++ ) {
+				int indexRow = (k*2+row)*N;
+				if( u >= 0 ) {
+					for( int i = 0; i < 6; i++ ) {
+						assertEquals(expected[indexRow+u*6+i],alg.getJacView()[k*12+row*6+i],1e-8);
+					}
+				}
+				for( int i = 0; i < 3; i++ ) {
+					assertEquals(expected[indexRow+indexFirstPoint+point*3+i],alg.getJacPoint()[k*6+row*3+i],1e-8);
+				}
+			}
+		}
+	}
+}
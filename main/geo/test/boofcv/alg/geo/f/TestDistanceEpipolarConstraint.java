@@ -21,6 +21,7 @@ package boofcv.alg.geo.f;
 import boofcv.alg.geo.MultiViewOps;
 import boofcv.alg.geo.PerspectiveOps;
 import boofcv.struct.geo.AssociatedPair;
+import boofcv.struct.geo.PackedAssociatedPair;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
 import georegression.struct.se.Se3_F64;
@@ -28,6 +29,9 @@ import org.ejml.data.DenseMatrix64F;
 import org.ejml.ops.CommonOps;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -96,4 +100,27 @@ public class TestDistanceEpipolarConstraint {
 
 		assertEquals(orig,after,1e-8);
 	}
+
+	/**
+	 * Packed points should produce the same distance as individual points
+	 */
+	@Test
+	public void checkPacked() {
+		DistanceEpipolarConstraint alg = new DistanceEpipolarConstraint();
+		alg.setModel(F);
+
+		List<AssociatedPair> pairs = new ArrayList<AssociatedPair>();
+		for( int i = 0; i < 10; i++ ) {
+			pairs.add(new AssociatedPair(p1.x+i*0.1,p1.y-i*0.2,p2.x,p2.y+i*0.05));
+		}
+
+		PackedAssociatedPair packed = alg.createPacked();
+		packed.setTo(pairs);
+		double found[] = new double[pairs.size()];
+		alg.computeDistance(packed,found);
+
+		for( int i = 0; i < pairs.size(); i++ ) {
+			assertEquals(alg.computeDistance(pairs.get(i)),found[i],1e-12);
+		}
+	}
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.alg.geo.f;
+
+import boofcv.alg.geo.MultiViewOps;
+import boofcv.struct.geo.AssociatedPair;
+import boofcv.struct.geo.PackedAssociatedPair;
+import org.ejml.data.DenseMatrix64F;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestDistanceEpipolarSampsonSq extends EpipolarTestSimulation {
+
+	/**
+	 * Should be the square of the Sampson residual
+	 */
+	@Test
+	public void compareToResidual() {
+		init(30,false);
+
+		DenseMatrix64F E = MultiViewOps.createEssential(worldToCamera.getR(), worldToCamera.getT());
+		E.data[1] += 0.1;
+
+		FundamentalResidualSampson residual = new FundamentalResidualSampson();
+		DistanceEpipolarSampsonSq alg = new DistanceEpipolarSampsonSq();
+		residual.setModel(E);
+		alg.setModel(E);
+
+		for( AssociatedPair p : pairs ) {
+			double r = residual.computeResidual(p);
+			double found = alg.computeDistance(p);
+			assertTrue(found > 0);
+			assertEquals(r*r, found, 1e-8);
+		}
+	}
+
+	/**
+	 * Perfect observations should have no error
+	 */
+	@Test
+	public void perfect() {
+		init(30,false);
+
+		DenseMatrix64F E = MultiViewOps.createEssential(worldToCamera.getR(), worldToCamera.getT());
+
+		DistanceEpipolarSampsonSq alg = new DistanceEpipolarSampsonSq();
+		alg.setModel(E);
+
+		for( AssociatedPair p : pairs ) {
+			assertEquals(0, alg.computeDistance(p), 1e-8);
+		}
+	}
+
+	@Test
+	public void checkPacked() {
+		init(30,false);
+
+		DenseMatrix64F E = MultiViewOps.createEssential(worldToCamera.getR(), worldToCamera.getT());
+		E.data[1] += 0.1;
+
+		DistanceEpipolarSampsonSq alg = new DistanceEpipolarSampsonSq();
+		alg.setModel(E);
+
+		PackedAssociatedPair packed = alg.createPacked();
+		packed.setTo(pairs);
+
+		double list[] = new double[pairs.size()];
+		double found[] = new double[pairs.size()];
+		alg.computeDistance(pairs,list);
+		alg.computeDistance(packed,found);
+
+		for( int i = 0; i < pairs.size(); i++ ) {
+			assertEquals(alg.computeDistance(pairs.get(i)), found[i], 0);
+			assertEquals(list[i], found[i], 0);
+		}
+	}
+}
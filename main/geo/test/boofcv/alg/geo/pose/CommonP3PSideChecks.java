@@ -19,9 +19,12 @@
 package boofcv.alg.geo.pose;
 
 import boofcv.alg.geo.PerspectiveOps;
+import boofcv.alg.geo.ProfileAllocation;
+import boofcv.misc.PerformerBase;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
 import georegression.struct.se.Se3_F64;
+import org.junit.Assume;
 import org.junit.Test;
 
 import java.util.List;
@@ -99,4 +102,32 @@ public abstract class CommonP3PSideChecks {
 
 		assertEquals(0,solutions.size());
 	}
+
+	/**
+	 * After the first call the algorithm shouldn't allocate any memory on the heap
+	 */
+	public void checkSteadyStateAllocation( final P3PLineDistance alg ) {
+		Point3D_F64 P1 = new Point3D_F64(-0.2,0.4,2);
+		Point3D_F64 P2 = new Point3D_F64(0.5,0,2.6);
+		Point3D_F64 P3 = new Point3D_F64(-0.4,-0.3,3);
+
+		final Point2D_F64 p1 = PerspectiveOps.renderPixel(new Se3_F64(), null, P1);
+		final Point2D_F64 p2 = PerspectiveOps.renderPixel(new Se3_F64(),null,P2);
+		final Point2D_F64 p3 = PerspectiveOps.renderPixel(new Se3_F64(),null,P3);
+
+		final double length12 = P1.distance(P2);
+		final double length23 = P2.distance(P3);
+		final double length13 = P1.distance(P3);
+
+		PerformerBase performer = new PerformerBase() {
+			@Override
+			public void process() {
+				assertTrue(alg.process(p1,p2,p3,length23,length13,length12));
+			}
+		};
+
+		double bytes = ProfileAllocation.steadyStateBytesPerOp(performer, 1000);
+		Assume.assumeTrue(bytes >= 0);
+		assertTrue(bytes < 16);
+	}
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo.pose;
+
+import georegression.geometry.RotationMatrixGenerator;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestFitSe3PointsSVD {
+
+	Random rand = new Random(234);
+
+	@Test
+	public void perfect() {
+		check(false);
+	}
+
+	/**
+	 * All the points lie on a plane.  One of the singular values is zero and a reflection can be found
+	 * unless it's handled.
+	 */
+	@Test
+	public void planar() {
+		check(true);
+	}
+
+	private void check( boolean planar ) {
+		FitSe3PointsSVD alg = new FitSe3PointsSVD();
+
+		for( int trial = 0; trial < 20; trial++ ) {
+			Se3_F64 expected = new Se3_F64();
+			RotationMatrixGenerator.eulerXYZ(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian(), expected.getR());
+			expected.getT().set(rand.nextGaussian(), rand.nextGaussian(), rand.nextGaussian());
+
+			List<Point3D_F64> from = new ArrayList<Point3D_F64>();
+			List<Point3D_F64> to = new ArrayList<Point3D_F64>();
+			int N = 3 + trial;
+			for( int i = 0; i < N; i++ ) {
+				Point3D_F64 p = new Point3D_F64(rand.nextGaussian(), rand.nextGaussian(), planar ? 2 : rand.nextGaussian());
+				from.add(p);
+				to.add(SePointOps_F64.transform(expected, p, null));
+			}
+
+			assertTrue(alg.process(from, to));
+			Se3_F64 found = alg.getMotion();
+
+			assertTrue(MatrixFeatures.isIdentical(expected.getR(), found.getR(), 1e-8));
+			assertEquals(0, expected.getT().distance(found.getT()), 1e-8);
+		}
+	}
+}
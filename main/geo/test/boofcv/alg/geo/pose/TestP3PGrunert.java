@@ -18,9 +18,11 @@
 
 package boofcv.alg.geo.pose;
 
+import boofcv.alg.geo.RealRootsSturm;
 import georegression.struct.point.Point2D_F64;
 import org.ddogleg.solver.PolynomialOps;
 import org.ddogleg.solver.RootFinderType;
+import org.junit.Test;
 
 import java.util.List;
 
@@ -42,4 +44,8 @@ public class TestP3PGrunert extends CommonP3PSideChecks {
 		return alg.getSolutions().toList();
 	}
 
+	@Test
+	public void steadyStateAllocation() {
+		checkSteadyStateAllocation(new P3PGrunert(new RealRootsSturm(5,1e-10,200,20)));
+	}
 }
@@ -19,7 +19,9 @@
 package boofcv.alg.geo.pose;
 
 import boofcv.alg.geo.PerspectiveOps;
+import boofcv.struct.geo.PackedPoint2D3D;
 import boofcv.struct.geo.Point2D3D;
+import georegression.geometry.RotationMatrixGenerator;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
 import georegression.struct.se.Se3_F64;
@@ -141,4 +143,51 @@ public class TestPnPDistanceReprojectionSq {
 		}
 	}
 
+	/**
+	 * Copies should produce the same distance as the original once configured
+	 */
+	@Test
+	public void copier() {
+		Se3_F64 worldToCamera = new Se3_F64();
+		worldToCamera.getT().set(0.1,-0.1,0.2);
+		Point2D3D p = new Point2D3D(new Point2D_F64(0.05,-0.02),new Point3D_F64(0.1,-0.04,2.3));
+
+		PnPDistanceReprojectionSq alg = new PnPDistanceReprojectionSq(100,150,0.01);
+		alg.setModel(worldToCamera);
+
+		PnPDistanceReprojectionSq.Copier copier = new PnPDistanceReprojectionSq.Copier();
+		PnPDistanceReprojectionSq copy = (PnPDistanceReprojectionSq)copier.create();
+		copier.copyConfiguration(alg,copy);
+		copy.setModel(worldToCamera);
+
+		assertEquals(alg.computeDistance(p),copy.computeDistance(p),1e-12);
+	}
+
+	/**
+	 * Packed points should produce identical results, including points behind the camera
+	 */
+	@Test
+	public void checkErrorPacked() {
+		Se3_F64 worldToCamera = new Se3_F64();
+		RotationMatrixGenerator.eulerXYZ(0.1,-0.05,0.02,worldToCamera.getR());
+		worldToCamera.getT().set(0.1,-0.1,0.2);
+
+		PnPDistanceReprojectionSq alg = new PnPDistanceReprojectionSq(100,150,0.01);
+		alg.setModel(worldToCamera);
+
+		List<Point2D3D> obs = new ArrayList<Point2D3D>();
+		for( int i = 0; i < 20; i++ ) {
+			Point3D_F64 X = new Point3D_F64(rand.nextGaussian(),rand.nextGaussian(),rand.nextGaussian()*2);
+			obs.add(new Point2D3D(new Point2D_F64(rand.nextGaussian()*0.1,rand.nextGaussian()*0.1),X));
+		}
+
+		PackedPoint2D3D packed = alg.createPacked();
+		packed.setTo(obs);
+
+		double found[] = new double[obs.size()];
+		alg.computeDistance(packed,found);
+
+		for( int i = 0; i < obs.size(); i++ )
+			assertEquals(alg.computeDistance(obs.get(i)),found[i],0);
+	}
 }
@@ -19,7 +19,10 @@
 package boofcv.alg.geo.pose;
 
 import boofcv.alg.geo.GeoTestingOps;
+import boofcv.alg.geo.PerspectiveOps;
+import boofcv.alg.geo.ProfileAllocation;
 import boofcv.alg.geo.h.CommonHomographyChecks;
+import boofcv.misc.PerformerBase;
 import boofcv.struct.geo.AssociatedPair;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
@@ -28,6 +31,7 @@ import org.ddogleg.struct.FastQueue;
 import org.ejml.data.DenseMatrix64F;
 import org.ejml.ops.RandomMatrices;
 import org.ejml.simple.SimpleMatrix;
+import org.junit.Assume;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -90,6 +94,38 @@ public class TestPnPLepetitEPnP {
 		}
 	}
 	
+	/**
+	 * After the first call no memory should be allocated on the heap
+	 */
+	@Test
+	public void steadyStateAllocation() {
+		steadyStateAllocation(0);
+		steadyStateAllocation(5);
+	}
+
+	private void steadyStateAllocation( int numIterations ) {
+		final List<Point3D_F64> worldPts = GeoTestingOps.randomPoints_F64(-1, 1, -1, 1, 2, 3, 10, rand);
+		final List<Point2D_F64> observed = new ArrayList<Point2D_F64>();
+		for( Point3D_F64 p : worldPts ) {
+			observed.add(PerspectiveOps.renderPixel(new Se3_F64(), null, p));
+		}
+
+		final PnPLepetitEPnP alg = new PnPLepetitEPnP();
+		alg.setNumIterations(numIterations);
+		final Se3_F64 found = new Se3_F64();
+
+		PerformerBase performer = new PerformerBase() {
+			@Override
+			public void process() {
+				alg.process(worldPts,observed,found);
+			}
+		};
+
+		double bytes = ProfileAllocation.steadyStateBytesPerOp(performer, 1000);
+		Assume.assumeTrue(bytes >= 0);
+		assertTrue(bytes < 16);
+	}
+
 	@Test
 	public void selectWorldControlPoints_planar() {
 
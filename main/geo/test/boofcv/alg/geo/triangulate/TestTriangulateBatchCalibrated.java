@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.geo.triangulate;
+
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.struct.geo.PackedAssociatedPair;
+import boofcv.struct.geo.PackedTrackObservations;
+import georegression.geometry.RotationMatrixGenerator;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestTriangulateBatchCalibrated {
+
+	Random rand = new Random(234);
+
+	// enough points that it will be split into several blocks
+	int N = 2000;
+
+	List<Point3D_F64> worldPts = new ArrayList<Point3D_F64>();
+	List<Se3_F64> worldToView = new ArrayList<Se3_F64>();
+
+	double[] X = new double[N], Y = new double[N], Z = new double[N];
+	boolean[] success = new boolean[N];
+
+	private void createScene( int numViews ) {
+		worldPts.clear();
+		worldToView.clear();
+		for( int i = 0; i < N; i++ )
+			worldPts.add(new Point3D_F64(rand.nextGaussian(), rand.nextGaussian(), 4 + rand.nextGaussian()*0.5));
+
+		for( int i = 0; i < numViews; i++ ) {
+			Se3_F64 m = new Se3_F64();
+			if( i > 0 ) {
+				m.getR().set(RotationMatrixGenerator.eulerArbitrary(0, 1, 2,
+						rand.nextGaussian()*0.01, rand.nextGaussian()*0.05, rand.nextGaussian()*0.1));
+				m.getT().set(0.2+rand.nextGaussian()*0.1, rand.nextGaussian()*0.1, rand.nextGaussian()*0.01);
+			}
+			worldToView.add(m);
+		}
+	}
+
+	private Point2D_F64 observe( Point3D_F64 p , Se3_F64 m , double noise ) {
+		Point3D_F64 c = SePointOps_F64.transform(m, p, null);
+		return new Point2D_F64(c.x/c.z + rand.nextGaussian()*noise, c.y/c.z + rand.nextGaussian()*noise);
+	}
+
+	private PackedAssociatedPair createPairs( double noise ) {
+		PackedAssociatedPair pairs = new PackedAssociatedPair();
+		pairs.reserve(N);
+		pairs.size = N;
+		for( int i = 0; i < N; i++ ) {
+			Point2D_F64 a = observe(worldPts.get(i), worldToView.get(0), noise);
+			Point2D_F64 b = observe(worldPts.get(i), worldToView.get(1), noise);
+			pairs.x1[i] = a.x; pairs.y1[i] = a.y;
+			pairs.x2[i] = b.x; pairs.y2[i] = b.y;
+		}
+		return pairs;
+	}
+
+	/**
+	 * Without refinement two views should produce the same solution as {@link TriangulateGeometric}
+	 */
+	@Test
+	public void twoViews_compareGeometric() {
+		createScene(2);
+		PackedAssociatedPair pairs = createPairs(0.002);
+
+		TriangulateBatchCalibrated alg = new TriangulateBatchCalibrated(0,0);
+		alg.triangulate(pairs, worldToView.get(1), X, Y, Z, success);
+
+		TriangulateGeometric expected = new TriangulateGeometric();
+		Point3D_F64 found = new Point3D_F64();
+		for( int i = 0; i < N; i++ ) {
+			assertTrue(success[i]);
+			expected.triangulate(new Point2D_F64(pairs.x1[i], pairs.y1[i]), new Point2D_F64(pairs.x2[i], pairs.y2[i]),
+					worldToView.get(1), found);
+			assertEquals(found.x, X[i], 1e-8);
+			assertEquals(found.y, Y[i], 1e-8);
+			assertEquals(found.z, Z[i], 1e-8);
+		}
+	}
+
+	/**
+	 * Tracks have a variable number of observations.  Perfect observations should produce a perfect solution.
+	 */
+	@Test
+	public void nViews_perfect() {
+		createScene(6);
+		PackedTrackObservations tracks = createTracks(0);
+
+		TriangulateBatchCalibrated alg = new TriangulateBatchCalibrated(0,0);
+		alg.triangulate(tracks, worldToView, X, Y, Z, success);
+
+		for( int i = 0; i < N; i++ ) {
+			assertTrue(success[i]);
+			Point3D_F64 p = worldPts.get(i);
+			assertEquals(p.x, X[i], 1e-8);
+			assertEquals(p.y, Y[i], 1e-8);
+			assertEquals(p.z, Z[i], 1e-8);
+		}
+	}
+
+	/**
+	 * Refinement should reduce the residual error of every point and the solution should not depend on
+	 * the number of threads
+	 */
+	@Test
+	public void refine() {
+		createScene(6);
+		PackedTrackObservations tracks = createTracks(0.002);
+
+		TriangulateBatchCalibrated linear = new TriangulateBatchCalibrated(0,0);
+		linear.triangulate(tracks, worldToView, X, Y, Z, success);
+
+		double[] rX = new double[N], rY = new double[N], rZ = new double[N];
+		boolean[] rSuccess = new boolean[N];
+
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			BoofConcurrency.setMaxThreads(1);
+			TriangulateBatchCalibrated alg = new TriangulateBatchCalibrated(20,1e-12);
+			alg.triangulate(tracks, worldToView, rX, rY, rZ, rSuccess);
+
+			double[] cX = new double[N], cY = new double[N], cZ = new double[N];
+			BoofConcurrency.setMaxThreads(4);
+			alg.triangulate(tracks, worldToView, cX, cY, cZ, new boolean[N]);
+			for( int i = 0; i < N; i++ ) {
+				assertEquals(rX[i], cX[i], 0);
+				assertEquals(rY[i], cY[i], 0);
+				assertEquals(rZ[i], cZ[i], 0);
+			}
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+
+		double totalBefore = 0, totalAfter = 0;
+		for( int i = 0; i < N; i++ ) {
+			assertTrue(rSuccess[i]);
+			double before = error(tracks, i, X[i], Y[i], Z[i]);
+			double after = error(tracks, i, rX[i], rY[i], rZ[i]);
+			assertTrue(after <= before*(1+1e-8));
+			totalBefore += before;
+			totalAfter += after;
+		}
+		assertTrue(totalAfter < totalBefore);
+	}
+
+	/**
+	 * Parallel rays can't be triangulated
+	 */
+	@Test
+	public void parallelRays() {
+		PackedAssociatedPair pairs = new PackedAssociatedPair();
+		pairs.reserve(2);
+		pairs.size = 2;
+		pairs.x1[0] = pairs.x2[0] = 0.1;
+		pairs.y1[0] = pairs.y2[0] = 0.2;
+		pairs.x1[1] = 0.1; pairs.x2[1] = 0.05;
+
+		Se3_F64 aToB = new Se3_F64();
+		aToB.getT().set(-0.1, 0, 0);
+
+		TriangulateBatchCalibrated alg = new TriangulateBatchCalibrated(5,1e-8);
+		alg.triangulate(pairs, aToB, X, Y, Z, success);
+
+		assertFalse(success[0]);
+		assertTrue(success[1]);
+		assertEquals(2, Z[1], 1e-8);
+	}
+
+	private PackedTrackObservations createTracks( double noise ) {
+		PackedTrackObservations tracks = new PackedTrackObservations();
+		for( int i = 0; i < N; i++ ) {
+			int numObs = 2 + rand.nextInt(worldToView.size()-1);
+			int first = rand.nextInt(worldToView.size()-numObs+1);
+			for( int j = first; j < first+numObs; j++ ) {
+				Point2D_F64 o = observe(worldPts.get(i), worldToView.get(j), noise);
+				tracks.addObservation(j, o.x, o.y);
+			}
+			tracks.endTrack();
+		}
+		assertEquals(N, tracks.numTracks);
+		return tracks;
+	}
+
+	private double error( PackedTrackObservations tracks , int track , double x , double y , double z ) {
+		double total = 0;
+		Point3D_F64 p = new Point3D_F64(x, y, z);
+		for( int i = tracks.trackStart[track]; i < tracks.trackStart[track+1]; i++ ) {
+			Point3D_F64 c = SePointOps_F64.transform(worldToView.get(tracks.view[i]), p, null);
+			double du = c.x/c.z - tracks.obsX[i];
+			double dv = c.y/c.z - tracks.obsY[i];
+			total += du*du + dv*dv;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.io.points;
+
+import boofcv.struct.PackedPointCloud_F32;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reading and writing of {@link PackedPointCloud_F32} in the binary PLY format.  Only the vertex element is
+ * read or written.  Coordinates are saved as 32-bit floats and color, if present, as red, green, blue bytes.
+ *
+ * @author Peter Abeles
+ */
+public class UtilPointCloudIO {
+
+	// number of points encoded at once when saving
+	private static final int CHUNK = 4096;
+
+	/**
+	 * Saves the point cloud to a file in binary little endian PLY format.
+	 */
+	public static void savePlyBinary( PackedPointCloud_F32 cloud , String fileName ) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName));
+		try {
+			savePlyBinary(cloud, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the point cloud to the stream in binary little endian PLY format.  The stream is not closed.
+	 */
+	public static void savePlyBinary( PackedPointCloud_F32 cloud , OutputStream out ) throws IOException {
+		boolean color = cloud.hasColor();
+
+		StringBuilder header = new StringBuilder();
+		header.append("ply\n");
+		header.append("format binary_little_endian 1.0\n");
+		header.append("comment Created by BoofCV\n");
+		header.append("element vertex ").append(cloud.size).append('\n');
+		header.append("property float x\n");
+		header.append("property float y\n");
+		header.append("property float z\n");
+		if( color ) {
+			header.append("property uchar red\n");
+			header.append("property uchar green\n");
+			header.append("property uchar blue\n");
+		}
+		header.append("end_header\n");
+		out.write(header.toString().getBytes("US-ASCII"));
+
+		int stride = color ? 15 : 12;
+		ByteBuffer buffer = ByteBuffer.allocate(stride*CHUNK);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		for( int start = 0; start < cloud.size; start += CHUNK ) {
+			int end = Math.min(cloud.size, start+CHUNK);
+			buffer.clear();
+			for( int i = start; i < end; i++ ) {
+				buffer.putFloat(cloud.x[i]);
+				buffer.putFloat(cloud.y[i]);
+				buffer.putFloat(cloud.z[i]);
+				if( color ) {
+					int c = cloud.rgb[i];
+					buffer.put((byte)(c >> 16));
+					buffer.put((byte)(c >> 8));
+					buffer.put((byte)c);
+				}
+			}
+			out.write(buffer.array(), 0, buffer.position());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Loads a point cloud from a binary PLY file.
+	 *
+	 * @see #loadPlyBinary(InputStream, PackedPointCloud_F32)
+	 */
+	public static void loadPlyBinary( String fileName , PackedPointCloud_F32 cloud ) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(fileName));
+		try {
+			loadPlyBinary(in, cloud);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Reads a point cloud in binary PLY format, little or big endian, from the stream.  The vertex element must
+	 * be the first element and can't contain list properties.  Properties x, y, z and optionally red, green, blue
+	 * are read and all other properties are skipped.  Color is only read if the cloud has color.
+	 * </p>
+	 *
+	 * @param in Input stream.  Not closed.
+	 * @param cloud Output point cloud.
+	 */
+	public static void loadPlyBinary( InputStream in , PackedPointCloud_F32 cloud ) throws IOException {
+		DataInputStream input = new DataInputStream(in);
+
+		String line = readLine(input);
+		if( !"ply".equals(line) )
+			throw new IOException("Not a PLY file");
+
+		ByteOrder order = null;
+		int numVertexes = -1;
+		boolean inVertex = false;
+		List<Property> properties = new ArrayList<Property>();
+
+		while( true ) {
+			line = readLine(input);
+			if( line == null )
+				throw new IOException("Unexpected end of header");
+			String[] words = line.trim().split("\\s+");
+			String type = words[0];
+
+			if( type.equals("end_header") ) {
+				break;
+			} else if( type.equals("format") ) {
+				if( words[1].equals("binary_little_endian") )
+					order = ByteOrder.LITTLE_ENDIAN;
+				else if( words[1].equals("binary_big_endian") )
+					order = ByteOrder.BIG_ENDIAN;
+				else
+					throw new IOException("Only binary PLY files are supported. Found "+words[1]);
+			} else if( type.equals("element") ) {
+				if( numVertexes < 0 ) {
+					if( !words[1].equals("vertex") )
+						throw new IOException("The first element must be vertex");
+					numVertexes = Integer.parseInt(words[2]);
+					inVertex = true;
+				} else {
+					inVertex = false;
+				}
+			} else if( type.equals("property") && inVertex ) {
+				if( words[1].equals("list") )
+					throw new IOException("List properties are not supported for vertexes");
+				properties.add(new Property(words[2], words[1]));
+			}
+		}
+
+		if( order == null )
+			throw new IOException("Format not specified");
+		if( numVertexes < 0 )
+			throw new IOException("No vertex element");
+
+		// location of each property inside a vertex
+		int stride = 0;
+		int offX = -1, offY = -1, offZ = -1, offR = -1, offG = -1, offB = -1;
+		for( Property p : properties ) {
+			if( p.name.equals("x") ) offX = stride;
+			else if( p.name.equals("y") ) offY = stride;
+			else if( p.name.equals("z") ) offZ = stride;
+			else if( p.name.equals("red") ) offR = stride;
+			else if( p.name.equals("green") ) offG = stride;
+			else if( p.name.equals("blue") ) offB = stride;
+			stride += p.size;
+		}
+		if( offX < 0 || offY < 0 || offZ < 0 )
+			throw new IOException("Vertex must have x, y, and z properties");
+		Property typeX = properties.get(indexOf(properties,"x"));
+		Property typeY = properties.get(indexOf(properties,"y"));
+		Property typeZ = properties.get(indexOf(properties,"z"));
+		boolean readColor = cloud.hasColor() && offR >= 0 && offG >= 0 && offB >= 0;
+
+		cloud.reset();
+		cloud.reserve(numVertexes);
+
+		byte[] data = new byte[stride*CHUNK];
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		buffer.order(order);
+
+		for( int start = 0; start < numVertexes; start += CHUNK ) {
+			int end = Math.min(numVertexes, start+CHUNK);
+			input.readFully(data, 0, (end-start)*stride);
+
+			for( int i = start; i < end; i++ ) {
+				int base = (i-start)*stride;
+				int index = cloud.size;
+				cloud.size++;
+				cloud.x[index] = readFloat(buffer, base+offX, typeX);
+				cloud.y[index] = readFloat(buffer, base+offY, typeY);
+				cloud.z[index] = readFloat(buffer, base+offZ, typeZ);
+				if( readColor ) {
+					int r = data[base+offR] & 0xFF;
+					int g = data[base+offG] & 0xFF;
+					int b = data[base+offB] & 0xFF;
+					cloud.rgb[index] = (r << 16) | (g << 8) | b;
+				} else if( cloud.rgb != null ) {
+					cloud.rgb[index] = 0;
+				}
+			}
+		}
+	}
+
+	private static int indexOf( List<Property> properties , String name ) {
+		for( int i = 0; i < properties.size(); i++ )
+			if( properties.get(i).name.equals(name) )
+				return i;
+		return -1;
+	}
+
+	private static float readFloat( ByteBuffer buffer , int offset , Property type ) {
+		if( type.size == 8 )
+			return (float)buffer.getDouble(offset);
+		return buffer.getFloat(offset);
+	}
+
+	/**
+	 * Reads a header line one byte at a time so that the binary data which follows isn't consumed
+	 */
+	private static String readLine( DataInputStream input ) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		while( true ) {
+			int c = input.read();
+			if( c == -1 )
+				return builder.length() == 0 ? null : builder.toString();
+			if( c == '\n' )
+				return builder.toString();
+			if( c != '\r' )
+				builder.append((char)c);
+		}
+	}
+
+	private static class Property {
+		String name;
+		int size;
+
+		private Property( String name , String type ) throws IOException {
+			this.name = name;
+
+			if( type.equals("char") || type.equals("uchar") || type.equals("int8") || type.equals("uint8") )
+				size = 1;
+			else if( type.equals("short") || type.equals("ushort") || type.equals("int16") || type.equals("uint16") )
+				size = 2;
+			else if( type.equals("int") || type.equals("uint") || type.equals("int32") || type.equals("uint32") ||
+					type.equals("float") || type.equals("float32") )
+				size = 4;
+			else if( type.equals("double") || type.equals("float64") )
+				size = 8;
+			else
+				throw new IOException("Unknown property type "+type);
+
+			boolean floating = type.startsWith("float") || type.equals("double");
+			if( (name.equals("x") || name.equals("y") || name.equals("z")) && !floating )
+				throw new IOException("Coordinates must be float or double");
+			if( (name.equals("red") || name.equals("green") || name.equals("blue")) && size != 1 )
+				throw new IOException("Colors must be 8-bit");
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.io.points;
+
+import boofcv.struct.PackedPointCloud_F32;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestUtilPointCloudIO {
+
+	Random rand = new Random(234);
+
+	@Test
+	public void saveLoad_color() throws IOException {
+		saveLoad(true);
+	}
+
+	@Test
+	public void saveLoad_gray() throws IOException {
+		saveLoad(false);
+	}
+
+	private void saveLoad( boolean color ) throws IOException {
+		// more points than are encoded at once
+		PackedPointCloud_F32 cloud = new PackedPointCloud_F32(color);
+		for( int i = 0; i < 10000; i++ ) {
+			float x = (float)rand.nextGaussian(), y = (float)rand.nextGaussian(), z = (float)rand.nextGaussian();
+			if( color )
+				cloud.add(x,y,z,rand.nextInt(0xFFFFFF));
+			else
+				cloud.add(x,y,z);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		UtilPointCloudIO.savePlyBinary(cloud, out);
+
+		PackedPointCloud_F32 found = new PackedPointCloud_F32(color);
+		UtilPointCloudIO.loadPlyBinary(new ByteArrayInputStream(out.toByteArray()), found);
+
+		assertEquals(cloud.size, found.size);
+		for( int i = 0; i < cloud.size; i++ ) {
+			assertEquals(cloud.x[i],found.x[i],0);
+			assertEquals(cloud.y[i],found.y[i],0);
+			assertEquals(cloud.z[i],found.z[i],0);
+			if( color )
+				assertEquals(cloud.rgb[i],found.rgb[i]);
+		}
+	}
+
+	/**
+	 * Big endian file with double coordinates, extra properties, and a second element
+	 */
+	@Test
+	public void load_bigEndianExtraProperties() throws IOException {
+		String header = "ply\nformat binary_big_endian 1.0\nelement vertex 2\nproperty double x\n" +
+				"property double y\nproperty double z\nproperty short junk\nproperty uchar red\n" +
+				"property uchar green\nproperty uchar blue\nelement face 0\n" +
+				"property list uchar int vertex_indices\nend_header\n";
+
+		ByteBuffer data = ByteBuffer.allocate(2*(3*8+2+3));
+		data.order(ByteOrder.BIG_ENDIAN);
+		for( int i = 0; i < 2; i++ ) {
+			data.putDouble(1+i);
+			data.putDouble(2+i);
+			data.putDouble(3+i);
+			data.putShort((short)5);
+			data.put((byte)(10+i)).put((byte)20).put((byte)200);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(header.getBytes("US-ASCII"));
+		out.write(data.array());
+
+		PackedPointCloud_F32 found = new PackedPointCloud_F32(true);
+		UtilPointCloudIO.loadPlyBinary(new ByteArrayInputStream(out.toByteArray()), found);
+
+		assertEquals(2, found.size);
+		assertEquals(2, found.x[1], 0);
+		assertEquals(3, found.y[1], 0);
+		assertEquals(4, found.z[1], 0);
+		assertEquals((11 << 16) | (20 << 8) | 200, found.rgb[1]);
+	}
+
+	@Test
+	public void load_ascii() {
+		String text = "ply\nformat ascii 1.0\nelement vertex 0\nproperty float x\nend_header\n";
+		try {
+			UtilPointCloudIO.loadPlyBinary(new ByteArrayInputStream(text.getBytes()), new PackedPointCloud_F32());
+			fail("Should have thrown an exception");
+		} catch( IOException ignore ) {}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.distort;
+
+import boofcv.struct.distort.PointTransform_F64;
+import georegression.struct.point.Point2D_F64;
+
+/**
+ * <p>
+ * Approximates an expensive {@link PointTransform_F64}, such as removing lens distortion, by sampling it once
+ * on a regular grid and bilinearly interpolating between the samples.  The grid spans the rectangle from (0,0)
+ * to (width-1,height-1), typically the image, and points outside of it are passed to the original transform.
+ * </p>
+ *
+ * <p>
+ * Accuracy is controlled by the spacing between grid nodes.  The error relative to the original transform can be
+ * estimated by calling {@link #computeErrors(int)}.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class PointTransformGrid_F64 implements PointTransform_F64 {
+
+	// the transform being approximated
+	private PointTransform_F64 transform;
+
+	// distance between grid nodes
+	private double spacing;
+	// number of cells along each axis
+	private int cols, rows;
+	// largest coordinate inside the grid
+	private double maxX, maxY;
+
+	// transformed location of each grid node.  row-major
+	private double nodeX[], nodeY[];
+
+	// error statistics from the last call to computeErrors
+	private double maxError, meanError;
+
+	/**
+	 * Samples the transform on the grid.
+	 *
+	 * @param transform The transform being approximated.  Reference is saved for points outside the grid.
+	 * @param width Width of the region being approximated, typically the image width.
+	 * @param height Height of the region being approximated, typically the image height.
+	 * @param spacing Distance between grid nodes.  Smaller is more accurate but uses more memory.  Try 4.
+	 */
+	public PointTransformGrid_F64( PointTransform_F64 transform , int width , int height , double spacing ) {
+		if( spacing <= 0 )
+			throw new IllegalArgumentException("Spacing must be greater than zero");
+
+		this.transform = transform;
+		this.spacing = spacing;
+
+		cols = Math.max(1,(int)Math.ceil((width-1)/spacing));
+		rows = Math.max(1,(int)Math.ceil((height-1)/spacing));
+		maxX = cols*spacing;
+		maxY = rows*spacing;
+
+		int stride = cols+1;
+		nodeX = new double[stride*(rows+1)];
+		nodeY = new double[stride*(rows+1)];
+
+		Point2D_F64 p = new Point2D_F64();
+		for( int i = 0; i <= rows; i++ ) {
+			for( int j = 0; j <= cols; j++ ) {
+				transform.compute(j*spacing, i*spacing, p);
+				nodeX[i*stride+j] = p.x;
+				nodeY[i*stride+j] = p.y;
+			}
+		}
+	}
+
+	@Override
+	public void compute(double x, double y, Point2D_F64 out) {
+		if( x < 0 || y < 0 || x > maxX || y > maxY ) {
+			transform.compute(x, y, out);
+			return;
+		}
+
+		double fx = x/spacing;
+		double fy = y/spacing;
+		int ix = Math.min((int)fx, cols-1);
+		int iy = Math.min((int)fy, rows-1);
+		double ax = fx - ix;
+		double ay = fy - iy;
+
+		int stride = cols+1;
+		int index = iy*stride + ix;
+
+		double w00 = (1-ax)*(1-ay);
+		double w01 = ax*(1-ay);
+		double w10 = (1-ax)*ay;
+		double w11 = ax*ay;
+
+		out.x = w00*nodeX[index] + w01*nodeX[index+1] + w10*nodeX[index+stride] + w11*nodeX[index+stride+1];
+		out.y = w00*nodeY[index] + w01*nodeY[index+1] + w10*nodeY[index+stride] + w11*nodeY[index+stride+1];
+	}
+
+	/**
+	 * Compares the interpolated transform against the original at points sampled inside of every grid cell.
+	 * Results are saved and can be retrieved using {@link #getMaxError()} and {@link #getMeanError()}.
+	 *
+	 * @param samples Number of samples along each axis inside of a cell.  Try 3.
+	 * @return The largest Euclidean error found.
+	 */
+	public double computeErrors( int samples ) {
+		Point2D_F64 expected = new Point2D_F64();
+		Point2D_F64 found = new Point2D_F64();
+
+		maxError = 0;
+		double total = 0;
+		int count = 0;
+
+		for( int i = 0; i < rows; i++ ) {
+			for( int j = 0; j < cols; j++ ) {
+				for( int k = 0; k < samples; k++ ) {
+					double y = (i + (k+0.5)/samples)*spacing;
+					for( int l = 0; l < samples; l++ ) {
+						double x = (j + (l+0.5)/samples)*spacing;
+
+						transform.compute(x, y, expected);
+						compute(x, y, found);
+
+						double error = expected.distance(found);
+						maxError = Math.max(maxError, error);
+						total += error;
+						count++;
+					}
+				}
+			}
+		}
+
+		meanError = count > 0 ? total/count : 0;
+		return maxError;
+	}
+
+	/**
+	 * Largest error found by the last call to {@link #computeErrors(int)}
+	 */
+	public double getMaxError() {
+		return maxError;
+	}
+
+	/**
+	 * Mean error found by the last call to {@link #computeErrors(int)}
+	 */
+	public double getMeanError() {
+		return meanError;
+	}
+
+	public double getSpacing() {
+		return spacing;
+	}
+
+	public PointTransform_F64 getTransform() {
+		return transform;
+	}
+}
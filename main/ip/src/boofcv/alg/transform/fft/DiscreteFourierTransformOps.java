@@ -508,4 +508,66 @@ public class DiscreteFourierTransformOps {
 			}
 		}
 	}
+
+	/**
+	 * Performs element-wise complex multiplication between a complex image and the complex conjugate of a
+	 * second complex image.  In the frequency domain this corresponds to cross-correlation of A with B.
+	 *
+	 * @param complexA (Input) Complex image
+	 * @param complexB (Input) Complex image.  Its conjugate is used.
+	 * @param complexC (Output) Complex image
+	 */
+	public static void multiplyComplexConjB( InterleavedF32 complexA , InterleavedF32 complexB , InterleavedF32 complexC ) {
+
+		InputSanityCheck.checkSameShape(complexA, complexB,complexC);
+
+		for( int y = 0; y < complexA.height; y++ ) {
+
+			int indexA = complexA.startIndex + y*complexA.stride;
+			int indexB = complexB.startIndex + y*complexB.stride;
+			int indexC = complexC.startIndex + y*complexC.stride;
+
+			for( int x = 0; x < complexA.width; x++, indexA += 2 , indexB += 2  ,indexC += 2 ) {
+
+				float realA = complexA.data[indexA];
+				float imgA = complexA.data[indexA+1];
+				float realB = complexB.data[indexB];
+				float imgB = complexB.data[indexB+1];
+
+				complexC.data[indexC] = realA*realB + imgA*imgB;
+				complexC.data[indexC+1] = -realA*imgB + imgA*realB;
+			}
+		}
+	}
+
+	/**
+	 * Performs element-wise complex multiplication between a complex image and the complex conjugate of a
+	 * second complex image.  In the frequency domain this corresponds to cross-correlation of A with B.
+	 *
+	 * @param complexA (Input) Complex image
+	 * @param complexB (Input) Complex image.  Its conjugate is used.
+	 * @param complexC (Output) Complex image
+	 */
+	public static void multiplyComplexConjB( InterleavedF64 complexA , InterleavedF64 complexB , InterleavedF64 complexC ) {
+
+		InputSanityCheck.checkSameShape(complexA, complexB,complexC);
+
+		for( int y = 0; y < complexA.height; y++ ) {
+
+			int indexA = complexA.startIndex + y*complexA.stride;
+			int indexB = complexB.startIndex + y*complexB.stride;
+			int indexC = complexC.startIndex + y*complexC.stride;
+
+			for( int x = 0; x < complexA.width; x++, indexA += 2 , indexB += 2  ,indexC += 2 ) {
+
+				double realA = complexA.data[indexA];
+				double imgA = complexA.data[indexA+1];
+				double realB = complexB.data[indexB];
+				double imgB = complexB.data[indexB+1];
+
+				complexC.data[indexC] = realA*realB + imgA*imgB;
+				complexC.data[indexC+1] = -realA*imgB + imgA*realB;
+			}
+		}
+	}
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.concurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * <p>
+ * Central location for the thread pool used by concurrent algorithms.  Work is split into contiguous blocks,
+ * e.g. bands of image rows, with the calling thread processing the first block itself.  If called from inside
+ * one of the pool's worker threads then the work is done sequentially, which prevents nested loops from
+ * dead locking the pool.
+ * </p>
+ *
+ * <p>
+ * The number of threads defaults to the number of available processors and can be changed with
+ * {@link #setMaxThreads(int)}.  Setting it to one turns off concurrency globally.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class BoofConcurrency {
+
+	// maximum number of threads, including the caller's thread
+	private static int maxThreads = Runtime.getRuntime().availableProcessors();
+
+	// thread pool.  lazily created
+	private static ExecutorService pool;
+
+	/**
+	 * Changes the maximum number of threads used by concurrent algorithms.
+	 *
+	 * @param maxThreads Maximum number of threads.  Must be &ge; 1
+	 */
+	public static synchronized void setMaxThreads( int maxThreads ) {
+		if( maxThreads < 1 )
+			throw new IllegalArgumentException("Must be at least one thread");
+		if( BoofConcurrency.maxThreads == maxThreads )
+			return;
+		BoofConcurrency.maxThreads = maxThreads;
+		if( pool != null ) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	public static synchronized int getMaxThreads() {
+		return maxThreads;
+	}
+
+	/**
+	 * Returns the number of blocks {@link #loopBlocks} will split the range into.  Useful for declaring
+	 * work space for each block before the loop is run.
+	 *
+	 * @param start Inclusive lower extent
+	 * @param end Exclusive upper extent
+	 * @param minBlockSize Minimum number of elements in a block
+	 * @return Number of blocks
+	 */
+	public static int computeBlockCount( int start , int end , int minBlockSize ) {
+		int length = end-start;
+		if( length <= 0 )
+			return 0;
+		if( isWorkerThread() )
+			return 1;
+
+		int blocks = length/Math.max(1,minBlockSize);
+		return Math.max(1,Math.min(blocks,getMaxThreads()));
+	}
+
+	/**
+	 * Splits the range [start,end) into contiguous blocks and processes them concurrently.  Returns after
+	 * all the blocks have been processed.  If a task throws an exception it is rethrown in the calling thread.
+	 *
+	 * @param start Inclusive lower extent
+	 * @param end Exclusive upper extent
+	 * @param minBlockSize Minimum number of elements in a block
+	 * @param task Processes a single block
+	 */
+	public static void loopBlocks( int start , int end , int minBlockSize , final IntRangeTask task ) {
+		final int numBlocks = computeBlockCount(start, end, minBlockSize);
+		if( numBlocks == 0 )
+			return;
+		if( numBlocks == 1 ) {
+			task.process(0,start,end);
+			return;
+		}
+
+		int length = end-start;
+		List<Callable<Object>> jobs = new ArrayList<Callable<Object>>();
+		for( int i = 1; i < numBlocks; i++ ) {
+			final int block = i;
+			final int blockStart = start + length*i/numBlocks;
+			final int blockEnd = start + length*(i+1)/numBlocks;
+			jobs.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					task.process(block, blockStart, blockEnd);
+					return null;
+				}
+			});
+		}
+
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		ExecutorService pool = getPool();
+		for( Callable<Object> job : jobs ) {
+			futures.add(pool.submit(job));
+		}
+
+		// the caller's thread does the first block instead of idling
+		RuntimeException failure = null;
+		try {
+			task.process(0, start, start + length/numBlocks);
+		} catch( RuntimeException e ) {
+			failure = e;
+		}
+
+		for( Future<Object> f : futures ) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				if( failure == null )
+					failure = new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if( failure == null ) {
+					if( e.getCause() instanceof RuntimeException )
+						failure = (RuntimeException)e.getCause();
+					else
+						failure = new RuntimeException(e.getCause());
+				}
+			}
+		}
+
+		if( failure != null )
+			throw failure;
+	}
+
+	/**
+	 * Submits a task to the thread pool.  Intended for pipelines which need to overlap independent stages.
+	 *
+	 * @param task The task
+	 * @return Future for the task's result
+	 */
+	public static <T> Future<T> submit( Callable<T> task ) {
+		return getPool().submit(task);
+	}
+
+	/**
+	 * Returns true if the current thread is one of the pool's worker threads.
+	 */
+	public static boolean isWorkerThread() {
+		return Thread.currentThread() instanceof Worker;
+	}
+
+	private static synchronized ExecutorService getPool() {
+		if( pool == null ) {
+			// the caller's thread also does work, but leave room for work submitted by submit()
+			pool = Executors.newFixedThreadPool(Math.max(1,maxThreads), new ThreadFactory() {
+				int count = 0;
+				@Override
+				public synchronized Thread newThread(Runnable r) {
+					Thread t = new Worker(r,"BoofConcurrency-"+(count++));
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return pool;
+	}
+
+	/**
+	 * Used to identify threads owned by the pool
+	 */
+	private static class Worker extends Thread {
+		public Worker(Runnable target, String name) {
+			super(target, name);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.concurrency;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>
+ * Processes jobs in the order they were submitted inside a single dedicated daemon thread.  A dedicated thread
+ * is used instead of {@link BoofConcurrency}'s pool so that the jobs themselves can still use the pool.  The
+ * thread is started when the first job is submitted and runs until {@link #shutdown} is called, after which
+ * submitting another job starts a new thread.
+ * </p>
+ *
+ * <p>
+ * If a job throws anything the thread saves it, wrapped inside a RuntimeException if needed, notifies the
+ * {@link Handler} and stops.  Jobs which are still queued or submitted later are discarded.  The failure is
+ * passed on to the owner using {@link #checkFailure}.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class WorkerThread<E> {
+
+	// name of the thread
+	private String name;
+	// processes the jobs
+	private Handler<E> handler;
+
+	// jobs waiting to be processed
+	private BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+	// tells the thread to stop
+	private final Object markerStop = new Object();
+
+	// guarded by 'this'
+	private Thread thread;
+	// exception thrown inside the thread
+	private volatile RuntimeException failure;
+
+	/**
+	 * Configures the worker
+	 *
+	 * @param name Name of the thread
+	 * @param handler Processes each job inside the thread
+	 */
+	public WorkerThread( String name , Handler<E> handler ) {
+		this.name = name;
+		this.handler = handler;
+	}
+
+	/**
+	 * Queues a job for processing.  The thread is started if it isn't already running.
+	 *
+	 * @param job The job.  A reference is saved.
+	 */
+	public void submit( E job ) {
+		synchronized( this ) {
+			if( thread == null ) {
+				thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						processJobs();
+					}
+				},name);
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+		queue.add(job);
+	}
+
+	/**
+	 * Stops the thread after all the queued jobs have been processed and waits for it to finish.  Does nothing
+	 * if the thread isn't running.
+	 */
+	public void shutdown() {
+		Thread t;
+		synchronized( this ) {
+			t = thread;
+			thread = null;
+		}
+		if( t == null )
+			return;
+		queue.add(markerStop);
+		try {
+			t.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Main loop of the thread
+	 */
+	private void processJobs() {
+		while( true ) {
+			Object job;
+			try {
+				job = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if( job == markerStop )
+				return;
+
+			// Anything thrown must be caught or the thread dies silently and the owner waits forever
+			try {
+				handler.process((E)job);
+			} catch( Throwable e ) {
+				failure = e instanceof RuntimeException ? (RuntimeException)e : new RuntimeException(e);
+				queue.clear();
+				handler.failed(failure);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Throws the exception which stopped the thread, if there is one
+	 */
+	public void checkFailure() {
+		if( failure != null )
+			throw failure;
+	}
+
+	/**
+	 * Exception which stopped the thread or null if there hasn't been a failure
+	 */
+	public RuntimeException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Processes jobs inside of {@link WorkerThread}'s thread
+	 */
+	public static interface Handler<E> {
+		/**
+		 * Processes a single job
+		 */
+		public void process( E job );
+
+		/**
+		 * Called inside the thread after a job threw an exception.  The thread stops once this returns.
+		 *
+		 * @param failure The exception
+		 */
+		public void failed( RuntimeException failure );
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.struct;
+
+import georegression.struct.point.Point3D_F32;
+import georegression.struct.point.Point3D_F64;
+
+/**
+ * <p>
+ * Point cloud where the coordinates of each point are stored in separate arrays instead of one object per point.
+ * Large clouds can have millions of points and storing them this way avoids the memory and garbage collection
+ * overhead of small objects while allowing bulk operations to run over contiguous arrays.
+ * </p>
+ *
+ * <p>
+ * Color is optional and is only stored if requested in the constructor.  Each color is encoded in a single
+ * int as 0xRRGGBB.  Arrays can be larger than the number of points, only the first {@link #size} elements
+ * are valid.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class PackedPointCloud_F32 {
+	// coordinate of each point
+	public float x[];
+	public float y[];
+	public float z[];
+	// color of each point encoded as 0xRRGGBB.  null if the cloud doesn't have color
+	public int rgb[];
+
+	// number of points in the cloud
+	public int size;
+
+	/**
+	 * Declares storage for the point cloud
+	 *
+	 * @param maxSize Initial size of internal arrays.  They will grow as needed.
+	 * @param color If true then color is saved for each point
+	 */
+	public PackedPointCloud_F32( int maxSize , boolean color ) {
+		maxSize = Math.max(1,maxSize);
+		x = new float[maxSize];
+		y = new float[maxSize];
+		z = new float[maxSize];
+		if( color )
+			rgb = new int[maxSize];
+	}
+
+	public PackedPointCloud_F32( boolean color ) {
+		this(10,color);
+	}
+
+	public PackedPointCloud_F32() {
+		this(10,false);
+	}
+
+	/**
+	 * Removes all points.  Memory is not released.
+	 */
+	public void reset() {
+		size = 0;
+	}
+
+	/**
+	 * Changes the number of points.  If the new size is larger than the internal arrays they are grown
+	 * and their contents copied.
+	 *
+	 * @param size The new number of points.
+	 */
+	public void resize( int size ) {
+		reserve(size);
+		this.size = size;
+	}
+
+	/**
+	 * Ensures the internal arrays can hold the specified number of points without declaring new memory.
+	 */
+	public void reserve( int capacity ) {
+		if( capacity <= x.length )
+			return;
+
+		x = grow(x, capacity);
+		y = grow(y, capacity);
+		z = grow(z, capacity);
+		if( rgb != null ) {
+			int tmp[] = new int[capacity];
+			System.arraycopy(rgb,0,tmp,0,size);
+			rgb = tmp;
+		}
+	}
+
+	private float[] grow( float[] a , int capacity ) {
+		float tmp[] = new float[capacity];
+		System.arraycopy(a,0,tmp,0,size);
+		return tmp;
+	}
+
+	/**
+	 * Adds a point to the end of the cloud.  If the cloud has color it's set to black.
+	 */
+	public void add( float x , float y , float z ) {
+		if( size == this.x.length )
+			reserve(size*2);
+		this.x[size] = x;
+		this.y[size] = y;
+		this.z[size] = z;
+		if( rgb != null )
+			rgb[size] = 0;
+		size++;
+	}
+
+	/**
+	 * Adds a point with color to the end of the cloud.
+	 *
+	 * @param rgb Color encoded as 0xRRGGBB
+	 */
+	public void add( float x , float y , float z , int rgb ) {
+		if( this.rgb == null )
+			throw new IllegalArgumentException("Point cloud was declared without color");
+		if( size == this.x.length )
+			reserve(size*2);
+		this.x[size] = x;
+		this.y[size] = y;
+		this.z[size] = z;
+		this.rgb[size] = rgb;
+		size++;
+	}
+
+	public void get( int index , Point3D_F32 p ) {
+		p.x = x[index];
+		p.y = y[index];
+		p.z = z[index];
+	}
+
+	public void get( int index , Point3D_F64 p ) {
+		p.x = x[index];
+		p.y = y[index];
+		p.z = z[index];
+	}
+
+	/**
+	 * Turns this cloud into a copy of the original.  Color is only copied if both clouds have color.
+	 */
+	public void setTo( PackedPointCloud_F32 original ) {
+		size = 0;
+		reserve(original.size);
+		System.arraycopy(original.x,0,x,0,original.size);
+		System.arraycopy(original.y,0,y,0,original.size);
+		System.arraycopy(original.z,0,z,0,original.size);
+		if( rgb != null && original.rgb != null )
+			System.arraycopy(original.rgb,0,rgb,0,original.size);
+		size = original.size;
+	}
+
+	public boolean hasColor() {
+		return rgb != null;
+	}
+
+	public int getSize() {
+		return size;
+	}
+}
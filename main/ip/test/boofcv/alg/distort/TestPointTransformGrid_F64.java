@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.distort;
+
+import boofcv.struct.distort.PointTransform_F64;
+import georegression.struct.point.Point2D_F64;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestPointTransformGrid_F64 {
+
+	int width = 120;
+	int height = 90;
+
+	/**
+	 * Nonlinear transform which is being approximated
+	 */
+	PointTransform_F64 transform = new PointTransform_F64() {
+		@Override
+		public void compute(double x, double y, Point2D_F64 out) {
+			out.x = x + 1e-3*x*x - 2e-4*x*y;
+			out.y = y - 5e-4*y*y + 1e-3*x;
+		}
+	};
+
+	/**
+	 * Grid nodes should have no error
+	 */
+	@Test
+	public void nodesExact() {
+		PointTransformGrid_F64 alg = new PointTransformGrid_F64(transform,width,height,5);
+
+		Point2D_F64 expected = new Point2D_F64();
+		Point2D_F64 found = new Point2D_F64();
+		for( int y = 0; y < height; y += 5 ) {
+			for( int x = 0; x < width; x += 5 ) {
+				transform.compute(x, y, expected);
+				alg.compute(x, y, found);
+				assertEquals(expected.x, found.x, 1e-8);
+				assertEquals(expected.y, found.y, 1e-8);
+			}
+		}
+	}
+
+	/**
+	 * A linear transform should be reproduced exactly everywhere, including the right and bottom edges when the
+	 * image size isn't a multiple of the spacing
+	 */
+	@Test
+	public void linearExact() {
+		PointTransform_F64 linear = new PointTransform_F64() {
+			@Override
+			public void compute(double x, double y, Point2D_F64 out) {
+				out.x = 2*x + 0.5*y + 3;
+				out.y = -x + y - 1;
+			}
+		};
+		PointTransformGrid_F64 alg = new PointTransformGrid_F64(linear,width,height,7);
+
+		Point2D_F64 expected = new Point2D_F64();
+		Point2D_F64 found = new Point2D_F64();
+		for( double y = 0; y <= height-1; y += 1.3 ) {
+			for( double x = 0; x <= width-1; x += 1.7 ) {
+				linear.compute(x, y, expected);
+				alg.compute(x, y, found);
+				assertEquals(expected.x, found.x, 1e-8);
+				assertEquals(expected.y, found.y, 1e-8);
+			}
+		}
+		linear.compute(width-1, height-1, expected);
+		alg.compute(width-1, height-1, found);
+		assertEquals(expected.x, found.x, 1e-8);
+		assertEquals(expected.y, found.y, 1e-8);
+	}
+
+	/**
+	 * Points outside the grid should be computed using the original transform
+	 */
+	@Test
+	public void outside() {
+		PointTransformGrid_F64 alg = new PointTransformGrid_F64(transform,width,height,8);
+
+		Point2D_F64 expected = new Point2D_F64();
+		Point2D_F64 found = new Point2D_F64();
+
+		double points[][] = new double[][]{{-2,5},{5,-0.1},{width+20,10},{10,height+30}};
+		for( double p[] : points ) {
+			transform.compute(p[0], p[1], expected);
+			alg.compute(p[0], p[1], found);
+			assertEquals(expected.x, found.x, 1e-12);
+			assertEquals(expected.y, found.y, 1e-12);
+		}
+	}
+
+	/**
+	 * Error should go down as the spacing gets smaller and the reported error should be an upper bound
+	 */
+	@Test
+	public void computeErrors() {
+		PointTransformGrid_F64 coarse = new PointTransformGrid_F64(transform,width,height,16);
+		PointTransformGrid_F64 fine = new PointTransformGrid_F64(transform,width,height,2);
+
+		double errorCoarse = coarse.computeErrors(4);
+		double errorFine = fine.computeErrors(4);
+
+		assertTrue(errorCoarse > 0);
+		assertTrue(errorFine < errorCoarse);
+		assertTrue(fine.getMeanError() <= fine.getMaxError());
+		assertEquals(errorFine, fine.getMaxError(), 0);
+
+		// bilinear interpolation error is bounded by the second derivative
+		double bound = 2*16*16*(1e-3 + 2e-4);
+		assertTrue(errorCoarse < bound);
+	}
+}
@@ -310,4 +310,41 @@ public class TestDiscreteFourierTransformOps {
 			}
 		}
 	}
+
+	@Test
+	public void multiplyComplexConjB() {
+		for( int i = 0; i < imageTypes.length; i++ ) {
+			ImageInterleaved complexA = GeneralizedImageOps.createInterleaved(imageTypes[i], 10, 20, 2);
+			ImageInterleaved complexB = GeneralizedImageOps.createInterleaved(imageTypes[i],10,20,2);
+			ImageInterleaved complexC = GeneralizedImageOps.createInterleaved(imageTypes[i],10,20,2);
+
+			GImageMiscOps.fillUniform(complexA,rand,-5,5);
+			GImageMiscOps.fillUniform(complexB,rand,-5,5);
+
+			multiplyComplexConjB(complexA, complexB, complexC);
+
+			BoofTesting.checkSubImage(this,"multiplyComplexConjB",false,complexA,complexB,complexC);
+		}
+	}
+
+	public void multiplyComplexConjB( ImageInterleaved complexA , ImageInterleaved complexB , ImageInterleaved complexC ) {
+		if( complexB instanceof InterleavedF32 )
+			DiscreteFourierTransformOps.multiplyComplexConjB((InterleavedF32) complexA, (InterleavedF32) complexB, (InterleavedF32) complexC);
+		else
+			DiscreteFourierTransformOps.multiplyComplexConjB((InterleavedF64) complexA, (InterleavedF64) complexB, (InterleavedF64) complexC);
+
+		Complex64F expected = new Complex64F();
+
+		for( int y = 0; y < complexA.height; y++ ) {
+			for( int x = 0; x < complexA.width; x++ ) {
+				Complex64F a = new Complex64F(get(complexA, x, y, 0),get(complexA, x, y, 1));
+				Complex64F b = new Complex64F(get(complexB, x, y, 0),-get(complexB,x,y,1));
+
+				ComplexMath64F.mult(a,b,expected);
+
+				assertEquals(expected.getReal(),get(complexC, x, y, 0),1e-4);
+				assertEquals(expected.getImaginary(),get(complexC, x, y, 1),1e-4);
+			}
+		}
+	}
 }
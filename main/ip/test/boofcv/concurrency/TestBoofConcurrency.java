@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.concurrency;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestBoofConcurrency {
+
+	/**
+	 * Every element should be processed exactly once
+	 */
+	@Test
+	public void loopBlocks_coverage() {
+		for( int length : new int[]{0,1,5,100,1001}) {
+			final int counts[] = new int[length];
+
+			BoofConcurrency.loopBlocks(0, length, 3, new IntRangeTask() {
+				@Override
+				public void process(int block, int start, int end) {
+					for (int i = start; i < end; i++) {
+						counts[i]++;
+					}
+				}
+			});
+
+			for (int i = 0; i < length; i++) {
+				assertEquals(1,counts[i]);
+			}
+		}
+	}
+
+	@Test
+	public void loopBlocks_blockIndex() {
+		final int numBlocks = BoofConcurrency.computeBlockCount(5,200,2);
+		final boolean seen[] = new boolean[numBlocks];
+
+		BoofConcurrency.loopBlocks(5, 200, 2, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				assertFalse(seen[block]);
+				seen[block] = true;
+			}
+		});
+
+		for (int i = 0; i < numBlocks; i++) {
+			assertTrue(seen[i]);
+		}
+	}
+
+	@Test
+	public void loopBlocks_exception() {
+		try {
+			BoofConcurrency.loopBlocks(0, 100, 1, new IntRangeTask() {
+				@Override
+				public void process(int block, int start, int end) {
+					if( end == 100 )
+						throw new IllegalArgumentException("Egads");
+				}
+			});
+			fail("Exception should have been thrown");
+		} catch( IllegalArgumentException ignore ){}
+	}
+
+	/**
+	 * Nested loops must not dead lock
+	 */
+	@Test
+	public void loopBlocks_nested() {
+		final int total[] = new int[100];
+		BoofConcurrency.loopBlocks(0, 10, 1, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				for (int i = start; i < end; i++) {
+					final int row = i;
+					BoofConcurrency.loopBlocks(0, 10, 1, new IntRangeTask() {
+						@Override
+						public void process(int block, int start, int end) {
+							for (int j = start; j < end; j++) {
+								total[row*10+j]++;
+							}
+						}
+					});
+				}
+			}
+		});
+
+		for (int i = 0; i < total.length; i++) {
+			assertEquals(1,total[i]);
+		}
+	}
+
+	@Test
+	public void computeBlockCount() {
+		assertEquals(0,BoofConcurrency.computeBlockCount(5,5,1));
+		assertEquals(1,BoofConcurrency.computeBlockCount(0,5,10));
+		assertTrue(BoofConcurrency.computeBlockCount(0,1000,1) <= BoofConcurrency.getMaxThreads());
+	}
+}
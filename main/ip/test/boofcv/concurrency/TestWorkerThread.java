@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package boofcv.concurrency;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestWorkerThread {
+
+	/**
+	 * Jobs should be processed in order inside a thread which isn't the caller's.  A new thread is started after
+	 * it's shutdown.
+	 */
+	@Test
+	public void processInOrder() {
+		final List<Integer> found = Collections.synchronizedList(new ArrayList<Integer>());
+		final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+
+		WorkerThread<Integer> alg = new WorkerThread<Integer>("Test",new WorkerThread.Handler<Integer>() {
+			@Override
+			public void process(Integer job) {
+				found.add(job);
+				threads.add(Thread.currentThread());
+			}
+
+			@Override
+			public void failed(RuntimeException failure) {}
+		});
+
+		// nothing to shutdown
+		alg.shutdown();
+
+		for( int i = 0; i < 20; i++ )
+			alg.submit(i);
+		alg.shutdown();
+
+		assertEquals(20,found.size());
+		for( int i = 0; i < 20; i++ ) {
+			assertEquals(i,(int)found.get(i));
+			assertTrue(threads.get(i) != Thread.currentThread());
+			assertTrue(threads.get(i).isDaemon());
+			assertFalse(threads.get(i).isAlive());
+		}
+
+		alg.submit(20);
+		alg.shutdown();
+		assertEquals(21,found.size());
+		assertTrue(threads.get(20) != threads.get(0));
+		alg.checkFailure();
+	}
+
+	/**
+	 * Anything thrown by a job should be passed on instead of silently killing the thread
+	 */
+	@Test
+	public void failure() {
+		final List<RuntimeException> failures = new ArrayList<RuntimeException>();
+
+		WorkerThread<Integer> alg = new WorkerThread<Integer>("Test",new WorkerThread.Handler<Integer>() {
+			@Override
+			public void process(Integer job) {
+				if( job == 1 )
+					throw new AssertionError("Failed");
+			}
+
+			@Override
+			public void failed(RuntimeException failure) {
+				synchronized( failures ) {
+					failures.add(failure);
+					failures.notifyAll();
+				}
+			}
+		});
+
+		alg.submit(0);
+		alg.submit(1);
+		alg.submit(2);
+
+		synchronized( failures ) {
+			while( failures.isEmpty() ) {
+				try {
+					failures.wait();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
+
+		assertTrue(failures.get(0).getCause() instanceof AssertionError);
+		assertTrue(alg.getFailure() == failures.get(0));
+		try {
+			alg.checkFailure();
+			fail("Exception should have been thrown");
+		} catch( RuntimeException e ) {
+			assertTrue(e == failures.get(0));
+		}
+		alg.shutdown();
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.circulant;
+
+import boofcv.abst.tracker.ConfigCirculantTracker;
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.factory.tracker.FactoryTrackerObjectAlgs;
+import boofcv.misc.PerformerBase;
+import boofcv.misc.ProfileOperation;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.MultiSpectral;
+
+import java.util.Random;
+
+/**
+ * Compares the speed of the double and single precision circulant trackers, with and without scale estimation
+ *
+ * @author Peter Abeles
+ */
+public class BenchmarkCirculantTracker {
+	static final long TEST_TIME = 1000;
+
+	int width = 640;
+	int height = 480;
+
+	Random rand = new Random(234);
+
+	ConfigCirculantTracker config = new ConfigCirculantTracker();
+
+	ImageFloat32 imageA = new ImageFloat32(width,height);
+	ImageFloat32 imageB = new ImageFloat32(width,height);
+
+	MultiSpectral<ImageFloat32> colorA = new MultiSpectral<ImageFloat32>(ImageFloat32.class,width,height,3);
+	MultiSpectral<ImageFloat32> colorB = new MultiSpectral<ImageFloat32>(ImageFloat32.class,width,height,3);
+
+	public void createImages() {
+		ImageMiscOps.fillUniform(imageA, rand, 0, 255);
+		ImageMiscOps.fillUniform(imageB, rand, 0, 255);
+		for( int i = 0; i < 3; i++ ) {
+			ImageMiscOps.fillUniform(colorA.getBand(i), rand, 0, 255);
+			ImageMiscOps.fillUniform(colorB.getBand(i), rand, 0, 255);
+		}
+	}
+
+	public class Tracker_F64 extends PerformerBase {
+
+		CirculantTracker<ImageFloat32> alg = FactoryTrackerObjectAlgs.circulant(config, ImageFloat32.class);
+
+		public Tracker_F64() {
+			alg.initialize(imageA,200,150,80,90);
+		}
+
+		@Override
+		public void process() {
+			alg.performTracking(imageB);
+			alg.performTracking(imageA);
+		}
+	}
+
+	public class Tracker_F32 extends PerformerBase {
+
+		CirculantTrackerF32<ImageFloat32> alg = FactoryTrackerObjectAlgs.circulantF32(config, ImageFloat32.class);
+
+		public Tracker_F32() {
+			alg.initialize(imageA,200,150,80,90);
+		}
+
+		@Override
+		public void process() {
+			alg.performTracking(imageB);
+			alg.performTracking(imageA);
+		}
+	}
+
+	public class Tracker_F32_Color extends PerformerBase {
+
+		CirculantTrackerF32<ImageFloat32> alg = FactoryTrackerObjectAlgs.circulantF32(config, ImageFloat32.class);
+
+		public Tracker_F32_Color() {
+			alg.initialize(colorA,200,150,80,90);
+		}
+
+		@Override
+		public void process() {
+			alg.performTracking(colorB);
+			alg.performTracking(colorA);
+		}
+	}
+
+	public class Tracker_F32_Scale extends PerformerBase {
+
+		CirculantTrackerF32<ImageFloat32> alg;
+
+		public Tracker_F32_Scale() {
+			ConfigCirculantTracker config = new ConfigCirculantTracker();
+			config.estimateScale = true;
+			alg = FactoryTrackerObjectAlgs.circulantF32(config, ImageFloat32.class);
+			alg.initialize(imageA,200,150,80,90);
+		}
+
+		@Override
+		public void process() {
+			alg.performTracking(imageB);
+			alg.performTracking(imageA);
+		}
+	}
+
+	public void performTests() {
+		createImages();
+
+		System.out.println("=========  Profile Work Space " + config.workSpace + " ==========");
+		System.out.println();
+
+		ProfileOperation.printOpsPerSec(new Tracker_F64(), TEST_TIME);
+		ProfileOperation.printOpsPerSec(new Tracker_F32(), TEST_TIME);
+		ProfileOperation.printOpsPerSec(new Tracker_F32_Color(), TEST_TIME);
+		ProfileOperation.printOpsPerSec(new Tracker_F32_Scale(), TEST_TIME);
+	}
+
+	public static void main( String args[] ) {
+		BenchmarkCirculantTracker benchmark = new BenchmarkCirculantTracker();
+		benchmark.performTests();
+	}
+}
@@ -59,6 +59,33 @@ public class ConfigCirculantTracker {
 	 */
 	public int workSpace = 64;
 
+	/**
+	 * If true the target's scale will be estimated using {@link boofcv.alg.tracker.circulant.CirculantScaleEstimator}.
+	 * Scale estimation is only supported by the single precision tracker.
+	 */
+	public boolean estimateScale = false;
+
+	/**
+	 * Number of scales which are sampled when estimating the target's scale.
+	 */
+	public int scaleCount = 33;
+
+	/**
+	 * Ratio between the size of neighboring scales.
+	 */
+	public double scaleStep = 1.02;
+
+	/**
+	 * Learning rate of the scale filter.  Same as interp_factor but for scale.
+	 */
+	public double scaleInterpFactor = 0.025;
+
+	/**
+	 * Maximum number of pixels in each scale sample.  Larger targets are down sampled.  Limits the cost of
+	 * estimating scale.
+	 */
+	public int scaleMaxModelArea = 512;
+
 	public ConfigCirculantTracker(float interp_factor) {
 		this.interp_factor = interp_factor;
 	}
@@ -40,6 +40,11 @@ public class ConfigTld implements Configuration {
 	 */
 	public TypeInterpolate interpolate = TypeInterpolate.BILINEAR;
 
+	/**
+	 * If true the detection cascade will be run concurrently.  Results are identical either way.
+	 */
+	public boolean concurrent = false;
+
 	@Override
 	public void checkValidity() {
 
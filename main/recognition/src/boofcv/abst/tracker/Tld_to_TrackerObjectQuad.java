@@ -18,6 +18,7 @@
 
 package boofcv.abst.tracker;
 
+import boofcv.alg.tracker.tld.TldFrame;
 import boofcv.alg.tracker.tld.TldTracker;
 import boofcv.struct.image.ImageSingleBand;
 import boofcv.struct.image.ImageType;
@@ -37,8 +38,24 @@ public class Tld_to_TrackerObjectQuad<T extends ImageSingleBand, D extends Image
 	TldTracker<T,D> tracker;
 	ImageType<T> type;
 
+	// if not null, then the image pyramid and integral images are computed by this frame
+	TldFrame<T> shared;
+	// ID of the shared frame which was last used.  Each frame is only used once
+	long usedFrameId = -1;
+
 	public Tld_to_TrackerObjectQuad(TldTracker<T, D> tracker , Class<T> imageType ) {
+		this(tracker,null,imageType);
+	}
+
+	/**
+	 * Constructor which specifies a shared frame.  If the shared frame has processed the image passed in since it
+	 * was last used then its results are used instead of processing the image again.
+	 *
+	 * @param shared (Optional) Frame shared by several trackers.  Can be null.
+	 */
+	public Tld_to_TrackerObjectQuad(TldTracker<T, D> tracker , TldFrame<T> shared , Class<T> imageType ) {
 		this.tracker = tracker;
+		this.shared = shared;
 		this.type = ImageType.single(imageType);
 	}
 
@@ -47,7 +64,10 @@ public class Tld_to_TrackerObjectQuad<T extends ImageSingleBand, D extends Image
 
 		UtilPolygons2D_F64.bounding(location, rect);
 
-		tracker.initialize(image,(int)rect.x0,(int)rect.y0,(int)rect.x1,(int)rect.y1);
+		if( isSharedCurrent(image) )
+			tracker.initialize(shared,(int)rect.x0,(int)rect.y0,(int)rect.x1,(int)rect.y1);
+		else
+			tracker.initialize(image,(int)rect.x0,(int)rect.y0,(int)rect.x1,(int)rect.y1);
 
 		return true;
 	}
@@ -55,7 +75,13 @@ public class Tld_to_TrackerObjectQuad<T extends ImageSingleBand, D extends Image
 	@Override
 	public boolean process(T image, Quadrilateral_F64 location ) {
 
-		if( !tracker.track(image) )
+		boolean success;
+		if( isSharedCurrent(image) )
+			success = tracker.track(shared);
+		else
+			success = tracker.track(image);
+
+		if( !success )
 			return false;
 
 		RectangleCorner2D_F64 rect = tracker.getTargetRegion();
@@ -72,6 +98,18 @@ public class Tld_to_TrackerObjectQuad<T extends ImageSingleBand, D extends Image
 		return true;
 	}
 
+	/**
+	 * Checks to see if the shared frame was computed from the current image.  The image's identity isn't enough
+	 * since video sources can write each frame into the same instance, so the frame must also be one which
+	 * hasn't been used yet.
+	 */
+	private boolean isSharedCurrent( T image ) {
+		if( shared == null || shared.getImage() != image || shared.getFrameId() == usedFrameId )
+			return false;
+		usedFrameId = shared.getFrameId();
+		return true;
+	}
+
 	@Override
 	public ImageType<T> getImageType() {
 		return type;
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.abst.tracker;
+
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.struct.image.ImageBase;
+import georegression.struct.shapes.Quadrilateral_F64;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Tracks multiple objects in the same video sequence, with each object being tracked by its own
+ * {@link TrackerObjectQuad}.  Data which all the trackers need from each frame, such as an image pyramid, is computed
+ * once by {@link TrackerSharedFrame shared frames} before the trackers are updated.  Trackers are then updated
+ * concurrently.  Each tracker must only modify its own state, but it can read from the shared frames.
+ * </p>
+ *
+ * <p>
+ * Targets can be added or removed at any time, including by another thread while a frame is being processed.
+ * Changes are queued and applied at the start of the next call to {@link #process}.  New targets are initialized
+ * concurrently with the other trackers being updated, so adding a target doesn't stall tracking.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class TrackerObjectQuadManager<T extends ImageBase> {
+
+	// minimum number of targets processed by a single thread
+	private static final int MIN_TARGETS = 1;
+
+	// data computed once per frame and shared by all the trackers
+	private List<TrackerSharedFrame<T>> shared = new ArrayList<TrackerSharedFrame<T>>();
+
+	// targets which are being tracked
+	private List<Target<T>> targets = new ArrayList<Target<T>>();
+
+	// requested changes which have yet to be applied.  Access is synchronized using pendingAdd
+	private final List<Target<T>> pendingAdd = new ArrayList<Target<T>>();
+	private final List<Integer> pendingRemove = new ArrayList<Integer>();
+	private int totalTargets = 0;
+
+	// targets are removed after they have not been found for this many frames.  If &le; 0 they are never removed
+	private int maxFramesLost;
+
+	/**
+	 * Configures the manager
+	 *
+	 * @param maxFramesLost Targets are automatically removed after they have not been found in this many
+	 *                      consecutive frames.  If &le; 0 they are only removed by request.
+	 */
+	public TrackerObjectQuadManager( int maxFramesLost ) {
+		this.maxFramesLost = maxFramesLost;
+	}
+
+	public TrackerObjectQuadManager() {
+		this(0);
+	}
+
+	/**
+	 * Adds data which is computed once per frame and is shared by trackers.  Must be added before the trackers
+	 * which use it are updated.
+	 */
+	public void addShared( TrackerSharedFrame<T> frame ) {
+		shared.add(frame);
+	}
+
+	/**
+	 * Requests that a new target be tracked.  The tracker is initialized using the next image passed to
+	 * {@link #process}, so the location must be for that image.  Thread safe.
+	 *
+	 * @param tracker Tracker used for this target only.
+	 * @param location Location of the target in the next image.  Copied.
+	 * @return ID of the new target
+	 */
+	public int addTarget( TrackerObjectQuad<T> tracker , Quadrilateral_F64 location ) {
+		synchronized ( pendingAdd ) {
+			Target<T> t = new Target<T>();
+			t.id = totalTargets++;
+			t.tracker = tracker;
+			t.location.set(location);
+			pendingAdd.add(t);
+			return t.id;
+		}
+	}
+
+	/**
+	 * Requests that a target be removed.  The target is removed when the next image is processed.  Thread safe.
+	 *
+	 * @param id ID of the target which is to be removed.
+	 */
+	public void removeTarget( int id ) {
+		synchronized ( pendingAdd ) {
+			pendingRemove.add(id);
+		}
+	}
+
+	/**
+	 * Computes the shared data and updates all the targets using the next image in the sequence.
+	 *
+	 * @param image Next image in the video sequence.
+	 */
+	public void process( final T image ) {
+		applyChanges();
+
+		for( int i = 0; i < shared.size(); i++ ) {
+			shared.get(i).process(image);
+		}
+
+		BoofConcurrency.loopBlocks(0, targets.size(), MIN_TARGETS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				for( int i = start; i < end; i++ ) {
+					targets.get(i).update(image);
+				}
+			}
+		});
+
+		// remove targets which have been lost for too long
+		if( maxFramesLost > 0 ) {
+			for( int i = targets.size()-1; i >= 0; i-- ) {
+				if( targets.get(i).framesLost >= maxFramesLost )
+					targets.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Removes and adds targets which were requested since the last image
+	 */
+	private void applyChanges() {
+		synchronized ( pendingAdd ) {
+			if( pendingRemove.size() > 0 ) {
+				for( int i = targets.size()-1; i >= 0; i-- ) {
+					if( pendingRemove.contains(targets.get(i).id) )
+						targets.remove(i);
+				}
+				for( int i = pendingAdd.size()-1; i >= 0; i-- ) {
+					if( pendingRemove.contains(pendingAdd.get(i).id) )
+						pendingAdd.remove(i);
+				}
+				pendingRemove.clear();
+			}
+
+			targets.addAll(pendingAdd);
+			pendingAdd.clear();
+		}
+	}
+
+	/**
+	 * Returns the target with the specified ID or null if it isn't being tracked
+	 */
+	public Target<T> getTarget( int id ) {
+		for( int i = 0; i < targets.size(); i++ ) {
+			if( targets.get(i).id == id )
+				return targets.get(i);
+		}
+		return null;
+	}
+
+	/**
+	 * List of targets which are being tracked.  Ordered by when they were added.
+	 */
+	public List<Target<T>> getTargets() {
+		return targets;
+	}
+
+	public int getMaxFramesLost() {
+		return maxFramesLost;
+	}
+
+	public void setMaxFramesLost(int maxFramesLost) {
+		this.maxFramesLost = maxFramesLost;
+	}
+
+	/**
+	 * An object being tracked
+	 */
+	public static class Target<T extends ImageBase> {
+		// unique ID
+		int id;
+		TrackerObjectQuad<T> tracker;
+		// most recent location of the target
+		Quadrilateral_F64 location = new Quadrilateral_F64();
+		// storage for the tracker's output
+		Quadrilateral_F64 work = new Quadrilateral_F64();
+		// has the tracker been initialized yet?
+		boolean initialized = false;
+		// was the target found in the most recent frame?
+		boolean visible = false;
+		// number of consecutive frames the target was not found in
+		int framesLost = 0;
+
+		protected void update( T image ) {
+			if( !initialized ) {
+				initialized = true;
+				visible = tracker.initialize(image, location);
+			} else {
+				visible = tracker.process(image, work);
+				if( visible )
+					location.set(work);
+			}
+
+			if( visible )
+				framesLost = 0;
+			else
+				framesLost++;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public TrackerObjectQuad<T> getTracker() {
+			return tracker;
+		}
+
+		/**
+		 * Location of the target in the most recent frame it was found in
+		 */
+		public Quadrilateral_F64 getLocation() {
+			return location;
+		}
+
+		/**
+		 * True if the target was found in the most recent frame
+		 */
+		public boolean isVisible() {
+			return visible;
+		}
+
+		public int getFramesLost() {
+			return framesLost;
+		}
+	}
+}
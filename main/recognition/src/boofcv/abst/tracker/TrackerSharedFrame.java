@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.abst.tracker;
+
+import boofcv.struct.image.ImageBase;
+
+/**
+ * Data which is computed from each video frame and can be shared between several trackers, e.g. an image
+ * pyramid or the color histogram bin of each pixel.  By processing the frame once before the trackers are
+ * updated the same computation isn't repeated for each object being tracked.  Trackers only read the shared data.
+ *
+ * @author Peter Abeles
+ */
+public interface TrackerSharedFrame<T extends ImageBase> {
+
+	/**
+	 * Computes the shared data for the next image in the sequence
+	 *
+	 * @param image Next image in the video sequence.  Not modified.
+	 */
+	public void process( T image );
+
+	/**
+	 * Returns the image that was last processed
+	 */
+	public T getImage();
+
+	/**
+	 * Sequence number of the most recently processed image.  Incremented each time {@link #process} is called and
+	 * is -1 before the first image.  Video sources often reuse the same image instance for every frame, so
+	 * trackers use this instead of the image's identity to tell if the shared data is for the current frame.
+	 */
+	public long getFrameId();
+}
@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.circulant;
+
+import boofcv.alg.filter.misc.AverageDownSampleOps;
+import boofcv.alg.transform.fft.GeneralPurposeFFT_F32_1D;
+import boofcv.core.image.GConvertImage;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageSingleBand;
+
+/**
+ * <p>
+ * Estimates the change in a target's scale using a one dimensional correlation filter across scales [1].  The
+ * region around the target is sampled at a small set of scales and each sample is resized to the same model size.
+ * The gradient at each pixel in the model is a feature whose values are transformed into the Fourier domain along
+ * the scale dimension.  The scale with the largest response to the learned filter is selected and refined to
+ * sub-step precision by fitting a parabola to the peak.  Only scale is estimated, the target's location is
+ * provided by a translation tracker, such as {@link CirculantTrackerF32}.
+ * </p>
+ *
+ * <p>
+ * To reduce aliasing when the target is larger than the model the samples are taken from a pyramid of the region
+ * around the target.  The pyramid is computed once per frame and used by both the detection and learning steps.
+ * The model's size is limited to a maximum area and the number of scales is fixed, bounding the cost of each frame.
+ * The pyramid's region is large enough for the samples after the largest change in scale which can be found in a
+ * single frame.  After initialization no memory is declared unless the target grows enough to require more pyramid
+ * levels.
+ * </p>
+ *
+ * <p>
+ * CHANGES FROM PAPER:<br>
+ * <ul>
+ * <li>The image gradient inside each sample is used instead of HOG features.</li>
+ * <li>Peak in the scale response is interpolated.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * [1] Danelljan, Martin, et al. "Accurate scale estimation for robust visual tracking." British Machine Vision
+ * Conference, Nottingham, September 1-5, 2014.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class CirculantScaleEstimator {
+
+	// minimum width and height of the target in pixels
+	private static final float MIN_SIZE = 5;
+
+	// --- Tuning parameters
+	// number of scales which are sampled
+	private int numScales;
+	// ratio between neighboring scales
+	private float scaleStep;
+	// regularization term
+	private float lambda;
+	// linear interpolation term.  Adjusts how fast it can learn
+	private float interp_factor;
+	// maximum number of pixels in the model
+	private int maxModelArea;
+	// the maximum pixel value
+	private float maxPixelValue;
+
+	//----- Internal variables
+	// scale factor relative to the current scale for each sample
+	private float scaleFactors[];
+	// window applied across scales
+	private float scaleWindow[];
+	// Fourier transform of the desired response
+	private float labelF[];
+
+	// computes the FFT along the scale dimension
+	private GeneralPurposeFFT_F32_1D fft;
+
+	// size of the target when initialized
+	private float baseWidth,baseHeight;
+	// current scale relative to the initial size
+	private float scale;
+	// limits on the scale
+	private float minScale,maxScale;
+
+	// size of the model
+	private int modelWidth,modelHeight;
+	// number of features.  Two gradients for each model pixel in each band
+	private int numFeatures;
+
+	// Samples in the frequency domain.  Each feature is stored in a row of interleaved complex numbers
+	private float samplesF[] = new float[0];
+	// numerator of the filter
+	private float numerator[] = new float[0];
+	// denominator of the filter.  Only the real component is stored
+	private float denominator[];
+	// storage for the response
+	private float response[];
+	// storage for the sampled pixel values at one scale
+	private float patch[] = new float[0];
+
+	// size of the region relative to the current target's size.  Contains every sample after the largest change
+	// in scale which process() can find
+	private float regionScale;
+	// sub-image of each band which contains the region
+	private ImageSingleBand subBands[] = new ImageSingleBand[0];
+	// cached pyramid of the region around the target for each band
+	private ImageFloat32 pyramid[][] = new ImageFloat32[0][0];
+	// number of levels in the pyramid for the current frame
+	private int numLevels;
+	// location of the pyramid's region in the image
+	private int regionX0,regionY0;
+
+	/**
+	 * Configures the estimator
+	 *
+	 * @param numScales Number of scales which are sampled.  Try 33
+	 * @param scaleStep Ratio between neighboring scales.  Try 1.02
+	 * @param lambda Regularization term.  Try 1e-2
+	 * @param interp_factor Learning rate of the filter.  Try 0.025
+	 * @param maxModelArea Maximum number of pixels in each scale sample.  Try 512
+	 * @param maxPixelValue Maximum pixel value.  Typically 255
+	 */
+	public CirculantScaleEstimator(int numScales, float scaleStep, float lambda, float interp_factor,
+								   int maxModelArea, float maxPixelValue) {
+		if( numScales < 3 )
+			throw new IllegalArgumentException("At least 3 scales are required");
+		if( scaleStep <= 1 )
+			throw new IllegalArgumentException("Scale step must be more than one");
+
+		this.numScales = numScales;
+		this.scaleStep = scaleStep;
+		this.lambda = lambda;
+		this.interp_factor = interp_factor;
+		this.maxModelArea = maxModelArea;
+		this.maxPixelValue = maxPixelValue;
+
+		fft = new GeneralPurposeFFT_F32_1D(numScales);
+
+		scaleFactors = new float[numScales];
+		scaleWindow = new float[numScales];
+		labelF = new float[numScales*2];
+		denominator = new float[numScales];
+		response = new float[numScales*2];
+
+		// desired response is a Gaussian centered at the current scale
+		int center = numScales/2;
+		double sigma = Math.sqrt(numScales)/4.0;
+		for( int i = 0; i < numScales; i++ ) {
+			int d = i - center;
+			scaleFactors[i] = (float)Math.pow(scaleStep, d);
+			scaleWindow[i] = (float)(0.5*(1 - Math.cos( 2.0*Math.PI*(i+1)/(numScales+1) )));
+			labelF[i*2] = (float)Math.exp(-0.5*d*d/(sigma*sigma));
+		}
+		fft.complexForward(labelF);
+
+		// the largest sample at the largest scale which can be found, including the interpolated offset
+		float largest = scaleFactors[numScales-1];
+		regionScale = largest*largest*(float)Math.sqrt(scaleStep);
+	}
+
+	/**
+	 * Learns the target's appearance across scales.  Declares memory if the model size changes.
+	 *
+	 * @param bands Bands in the input image
+	 * @param cx Center of the target
+	 * @param cy Center of the target
+	 * @param width Width of the target
+	 * @param height Height of the target
+	 */
+	public void initialize( ImageSingleBand bands[] , float cx , float cy , float width , float height ) {
+		ImageSingleBand image = bands[0];
+
+		baseWidth = width;
+		baseHeight = height;
+		scale = 1;
+
+		minScale = Math.max(MIN_SIZE/width, MIN_SIZE/height);
+		maxScale = Math.min(image.width/width, image.height/height);
+
+		// the model is the same shape as the target but is limited in size
+		float ratio = (float)Math.min(1, Math.sqrt(maxModelArea / (double) (width * height)));
+		modelWidth = Math.max(2,(int)(width*ratio));
+		modelHeight = Math.max(2,(int)(height*ratio));
+
+		numFeatures = modelWidth*modelHeight*2*bands.length;
+		if( patch.length != modelWidth*modelHeight )
+			patch = new float[modelWidth*modelHeight];
+		int N = numFeatures*numScales*2;
+		if( samplesF.length != N ) {
+			samplesF = new float[N];
+			numerator = new float[N];
+		}
+
+		computePyramid(bands, cx, cy);
+		computeSamples(cx, cy);
+		learn(1.0f);
+	}
+
+	/**
+	 * Estimates the target's scale at its new location and updates the filter.
+	 *
+	 * @param bands Bands in the input image
+	 * @param cx Center of the target in the input image
+	 * @param cy Center of the target in the input image
+	 * @return The target's scale relative to its initial size
+	 */
+	public float process( ImageSingleBand bands[] , float cx , float cy ) {
+		computePyramid(bands, cx, cy);
+		computeSamples(cx, cy);
+
+		// response = real(ifft(sum(num .* zf) ./ (den + lambda)))
+		for( int i = 0; i < response.length; i++ )
+			response[i] = 0;
+
+		for( int f = 0; f < numFeatures; f++ ) {
+			int index = f*numScales*2;
+			for( int i = 0; i < numScales; i++ , index += 2 ) {
+				float realA = numerator[index];
+				float imgA = numerator[index+1];
+				float realB = samplesF[index];
+				float imgB = samplesF[index+1];
+
+				response[i*2] += realA*realB - imgA*imgB;
+				response[i*2+1] += realA*imgB + imgA*realB;
+			}
+		}
+		for( int i = 0; i < numScales; i++ ) {
+			float d = denominator[i] + lambda;
+			response[i*2] /= d;
+			response[i*2+1] /= d;
+		}
+		fft.complexInverse(response, true);
+
+		int best = 0;
+		for( int i = 1; i < numScales; i++ ) {
+			if( response[i*2] > response[best*2] )
+				best = i;
+		}
+
+		// sub-step precision by fitting a parabola to the peak.  Scale factors are logarithmically spaced so
+		// the peak is interpolated in the exponent
+		float offset = 0;
+		if( best > 0 && best < numScales-1 ) {
+			float left = response[best*2-2];
+			float middle = response[best*2];
+			float right = response[best*2+2];
+			float bottom = left - 2*middle + right;
+			if( bottom < 0 ) {
+				offset = 0.5f*(left-right)/bottom;
+				offset = Math.max(-0.5f,Math.min(0.5f,offset));
+			}
+		}
+
+		float found = scale*scaleFactors[best]*(float)Math.pow(scaleStep, offset);
+		if( found < minScale )
+			found = minScale;
+		else if( found > maxScale )
+			found = maxScale;
+
+		// the samples can be reused if the scale didn't change
+		if( found != scale ) {
+			scale = found;
+			computeSamples(cx, cy);
+		}
+
+		learn(interp_factor);
+
+		return scale;
+	}
+
+	/**
+	 * Updates the filter using the current samples
+	 *
+	 * @param rate Learning rate.  1 will replace the old filter
+	 */
+	private void learn( float rate ) {
+		// num = label .* conj(xf)
+		// den = sum(xf .* conj(xf))
+		float keep = 1-rate;
+
+		for( int i = 0; i < numScales; i++ )
+			denominator[i] *= keep;
+
+		for( int f = 0; f < numFeatures; f++ ) {
+			int index = f*numScales*2;
+			for( int i = 0; i < numScales; i++ , index += 2 ) {
+				float realL = labelF[i*2];
+				float imgL = labelF[i*2+1];
+				float realX = samplesF[index];
+				float imgX = samplesF[index+1];
+
+				numerator[index] = keep*numerator[index] + rate*(realL*realX + imgL*imgX);
+				numerator[index+1] = keep*numerator[index+1] + rate*(imgL*realX - realL*imgX);
+
+				denominator[i] += rate*(realX*realX + imgX*imgX);
+			}
+		}
+	}
+
+	/**
+	 * Computes a pyramid of the region around the target which contains every scale sample.  Each layer is
+	 * half the size of the previous one, created by averaging.
+	 */
+	private void computePyramid( ImageSingleBand bands[] , float cx , float cy ) {
+		ImageSingleBand image = bands[0];
+
+		// after the scale has been found the samples are computed again at the new scale before learning
+		float w = baseWidth*scale*regionScale;
+		float h = baseHeight*scale*regionScale;
+
+		regionX0 = Math.max(0,(int)(cx - w/2) - 1);
+		regionY0 = Math.max(0,(int)(cy - h/2) - 1);
+		int x1 = Math.min(image.width,(int)(cx + w/2) + 2);
+		int y1 = Math.min(image.height,(int)(cy + h/2) + 2);
+
+		// handle the target being entirely outside the image
+		regionX0 = Math.min(regionX0,image.width-1);
+		regionY0 = Math.min(regionY0,image.height-1);
+		x1 = Math.max(x1,regionX0+1);
+		y1 = Math.max(y1,regionY0+1);
+
+		// number of levels needed for the largest sample step
+		float maxStep = Math.max(w/modelWidth,h/modelHeight);
+		numLevels = 1;
+		while( (1 << numLevels) <= maxStep && Math.min(x1-regionX0,y1-regionY0) >> numLevels > 0 )
+			numLevels++;
+
+		if( pyramid.length != bands.length || pyramid[0].length < numLevels ) {
+			pyramid = new ImageFloat32[bands.length][numLevels];
+			for( int i = 0; i < bands.length; i++ ) {
+				for( int j = 0; j < numLevels; j++ ) {
+					pyramid[i][j] = new ImageFloat32(1,1);
+				}
+			}
+		}
+
+		if( subBands.length != bands.length )
+			subBands = new ImageSingleBand[bands.length];
+
+		for( int i = 0; i < bands.length; i++ ) {
+			if( subBands[i] == null || subBands[i].getClass() != bands[i].getClass() )
+				subBands[i] = (ImageSingleBand)bands[i]._createNew(-1,-1);
+			bands[i].subimage(regionX0, regionY0, x1, y1, subBands[i]);
+
+			ImageFloat32 level[] = pyramid[i];
+			level[0].reshape(x1-regionX0,y1-regionY0);
+			GConvertImage.convert(subBands[i], level[0]);
+
+			for( int j = 1; j < numLevels; j++ ) {
+				AverageDownSampleOps.reshapeDown(level[j],level[j-1].width,level[j-1].height,2);
+				AverageDownSampleOps.down(level[j-1],2,level[j]);
+			}
+		}
+	}
+
+	/**
+	 * Samples the target at each scale and computes the Fourier transform of each feature across scales.
+	 */
+	private void computeSamples( float cx , float cy ) {
+		int modelArea = modelWidth*modelHeight;
+		int rowLength = numScales*2;
+
+		for( int s = 0; s < numScales; s++ ) {
+			float w = baseWidth*scale*scaleFactors[s];
+			float h = baseHeight*scale*scaleFactors[s];
+
+			float stepX = w/modelWidth;
+			float stepY = h/modelHeight;
+
+			// select the pyramid level which is closest to the sample spacing without being more than it
+			int level = 0;
+			float step = Math.min(stepX,stepY);
+			while( level+1 < numLevels && (1 << (level+1)) <= step )
+				level++;
+
+			int period = 1 << level;
+			float offset = (period-1)/2.0f;
+			float window = scaleWindow[s];
+
+			float x0 = cx - w/2 + stepX/2 - regionX0;
+			float y0 = cy - h/2 + stepY/2 - regionY0;
+
+			for( int b = 0; b < pyramid.length; b++ ) {
+				ImageFloat32 image = pyramid[b][level];
+				for( int y = 0, i = 0; y < modelHeight; y++ ) {
+					float yy = (y0 + y*stepY - offset)/period;
+					for( int x = 0; x < modelWidth; x++ , i++ ) {
+						float xx = (x0 + x*stepX - offset)/period;
+
+						patch[i] = bilinear(image,xx,yy)/maxPixelValue;
+					}
+				}
+
+				// the features are the gradient at each pixel in the model
+				int index = (b*modelArea*2*numScales + s)*2;
+				for( int y = 0; y < modelHeight; y++ ) {
+					int prevY = y > 0 ? y-1 : y;
+					int nextY = y < modelHeight-1 ? y+1 : y;
+					for( int x = 0; x < modelWidth; x++ ) {
+						int prevX = x > 0 ? x-1 : x;
+						int nextX = x < modelWidth-1 ? x+1 : x;
+
+						float dx = patch[y*modelWidth+nextX] - patch[y*modelWidth+prevX];
+						float dy = patch[nextY*modelWidth+x] - patch[prevY*modelWidth+x];
+
+						samplesF[index] = dx*window;
+						samplesF[index+1] = 0;
+						index += rowLength;
+						samplesF[index] = dy*window;
+						samplesF[index+1] = 0;
+						index += rowLength;
+					}
+				}
+			}
+		}
+
+		for( int f = 0; f < numFeatures; f++ ) {
+			fft.complexForward(samplesF,f*rowLength);
+		}
+	}
+
+	/**
+	 * Bilinear interpolation where points outside the image are set to the closest pixel inside the image
+	 */
+	private static float bilinear( ImageFloat32 image , float x , float y ) {
+		if( x < 0 ) x = 0; else if( x > image.width-1 ) x = image.width-1;
+		if( y < 0 ) y = 0; else if( y > image.height-1 ) y = image.height-1;
+
+		int x0 = (int)x;
+		int y0 = (int)y;
+		int x1 = Math.min(x0+1,image.width-1);
+		int y1 = Math.min(y0+1,image.height-1);
+
+		float ax = x - x0;
+		float ay = y - y0;
+
+		int row0 = image.startIndex + y0*image.stride;
+		int row1 = image.startIndex + y1*image.stride;
+
+		float top = (1-ax)*image.data[row0+x0] + ax*image.data[row0+x1];
+		float bottom = (1-ax)*image.data[row1+x0] + ax*image.data[row1+x1];
+
+		return (1-ay)*top + ay*bottom;
+	}
+
+	/**
+	 * The target's current scale relative to its size when initialized
+	 */
+	public float getScale() {
+		return scale;
+	}
+
+	public int getModelWidth() {
+		return modelWidth;
+	}
+
+	public int getModelHeight() {
+		return modelHeight;
+	}
+
+	public int getNumScales() {
+		return numScales;
+	}
+
+	/**
+	 * Returns the pyramid's first level, which contains the region around the target.  Used for testing.
+	 */
+	ImageFloat32 getRegion() {
+		return pyramid[0][0];
+	}
+
+	int getRegionX0() {
+		return regionX0;
+	}
+
+	int getRegionY0() {
+		return regionY0;
+	}
+}
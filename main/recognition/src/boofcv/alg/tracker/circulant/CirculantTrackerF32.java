@@ -0,0 +1,788 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.circulant;
+
+import boofcv.abst.feature.detect.peak.SearchLocalPeak;
+import boofcv.abst.transform.fft.DiscreteFourierTransform;
+import boofcv.alg.interpolate.InterpolatePixelS;
+import boofcv.alg.transform.fft.DiscreteFourierTransformOps;
+import boofcv.factory.feature.detect.peak.FactorySearchLocalPeak;
+import boofcv.misc.BoofMiscOps;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageSingleBand;
+import boofcv.struct.image.InterleavedF32;
+import boofcv.struct.image.MultiSpectral;
+import georegression.struct.shapes.Rectangle2D_F32;
+
+import java.util.Random;
+
+/**
+ * <p>
+ * Single precision variant of {@link CirculantTracker} which can also track using multiple feature channels, e.g.
+ * color bands or color-name probabilities stored in a {@link MultiSpectral} image.  All computations are done
+ * using floats, halving the memory bandwidth compared to the double precision version.  After initialization
+ * no memory is declared while tracking.
+ * </p>
+ *
+ * <p>
+ * The Fourier transform of the target's template is saved and updated along with the template.  Since the
+ * transform is linear the updated spectrum is a weighted sum of the old spectrum and the spectrum computed while
+ * learning, removing the need to transform the template again when the next frame is processed.  For multiple
+ * channels the cross-correlation is summed across channels in the frequency domain so that only a single inverse
+ * transform is needed [2].
+ * </p>
+ *
+ * <p>
+ * Optionally, changes in the target's scale can be estimated using {@link CirculantScaleEstimator}.  The scale is
+ * estimated after the target's location has been found and the size of the region is adjusted before learning.
+ * The work region remains the same size, so the cost of the translation filter doesn't change.
+ * </p>
+ *
+ * <p>
+ * [1] Henriques, Joao F., et al. "Exploiting the circulant structure of tracking-by-detection with kernels."
+ * Computer Vision–ECCV 2012. Springer Berlin Heidelberg, 2012. 702-715.<br>
+ * [2] Henriques, Joao F., et al. "High-Speed Tracking with Kernelized Correlation Filters." arXiv preprint
+ * arXiv:1404.7584 (2014).
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class CirculantTrackerF32<T extends ImageSingleBand> {
+
+	// --- Tuning parameters
+	// spatial bandwidth (proportional to target)
+	private float output_sigma_factor;
+
+	// gaussian kernel bandwidth
+	private float sigma;
+
+	// regularization term
+	private float lambda;
+	// linear interpolation term.  Adjusts how fast it can learn
+	private float interp_factor;
+
+	// the maximum pixel value
+	private float maxPixelValue;
+
+	// extra padding around the selected region
+	private float padding;
+
+	//----- Internal variables
+	// computes the FFT
+	private DiscreteFourierTransform<ImageFloat32,InterleavedF32> fft = DiscreteFourierTransformOps.createTransformF32();
+
+	// number of feature channels
+	private int numBands = 0;
+
+	// storage for subimage of input image in each band and its Fourier transform
+	protected ImageFloat32 templateNew[] = new ImageFloat32[0];
+	protected InterleavedF32 templateNewF[] = new InterleavedF32[0];
+	// storage for the subimage of the previous frame and its Fourier transform
+	protected ImageFloat32 template[] = new ImageFloat32[0];
+	protected InterleavedF32 templateF[] = new InterleavedF32[0];
+	// dot product of template with itself summed across all bands
+	protected float templateNorm;
+
+	// cosine window used to reduce artifacts from FFT
+	protected ImageFloat32 cosine = new ImageFloat32(1,1);
+
+	// Storage for the kernel's response
+	private ImageFloat32 k = new ImageFloat32(1,1);
+	private InterleavedF32 kf = new InterleavedF32(1,1,2);
+
+	// Learn values.  used to compute weight in linear classifier
+	private InterleavedF32 alphaf = new InterleavedF32(1,1,2);
+	private InterleavedF32 newAlphaf = new InterleavedF32(1,1,2);
+
+	// location of target
+	protected Rectangle2D_F32 regionTrack = new Rectangle2D_F32();
+	protected Rectangle2D_F32 regionOut = new Rectangle2D_F32();
+
+	// Used for computing the gaussian kernel
+	protected ImageFloat32 gaussianWeight = new ImageFloat32(1,1);
+	protected InterleavedF32 gaussianWeightDFT = new InterleavedF32(1,1,2);
+
+	// detector response
+	private ImageFloat32 response = new ImageFloat32(1,1);
+
+	// storage for storing temporary results
+	private ImageFloat32 tmpReal0 = new ImageFloat32(1,1);
+	private ImageFloat32 tmpReal1 = new ImageFloat32(1,1);
+	private InterleavedF32 tmpFourier0 = new InterleavedF32(1,1,2);
+
+	// used to pass a single band image into functions which process multiple bands
+	private ImageSingleBand singleBand[] = new ImageSingleBand[1];
+
+	// interpolation used when sampling input image into work space
+	private InterpolatePixelS<T> interp;
+
+	// used to compute sub-pixel location
+	private SearchLocalPeak<ImageFloat32> localPeak =
+			FactorySearchLocalPeak.meanShiftUniform(5, 1e-4f, ImageFloat32.class);
+
+	// adjustment from sub-pixel
+	protected float offX,offY;
+
+	// size of the work space in pixels
+	private int workRegionSize;
+	// conversion from workspace to image pixels
+	private float stepX,stepY;
+
+	// used to fill the area outside of the image with unstructured data.
+	private Random rand = new Random(234);
+
+	// (Optional) estimates the target's scale.  If null the scale is fixed
+	private CirculantScaleEstimator scaleEstimator;
+	// size of the track and output regions when initialized
+	private float initialTrackWidth,initialTrackHeight;
+	private float initialOutWidth,initialOutHeight;
+
+	/**
+	 * Configure tracker
+	 *
+	 * @param output_sigma_factor  spatial bandwidth (proportional to target) Try 1.0/16.0
+	 * @param sigma Sigma for Gaussian kernel in linear classifier.  Try 0.2
+	 * @param lambda Try 1e-2
+	 * @param interp_factor Try 0.075
+	 * @param padding Padding added around the selected target.  Try 1
+	 * @param workRegionSize Size of work region. Best if power of 2.  Try 64
+	 * @param maxPixelValue Maximum pixel value.  Typically 255
+	 */
+	public CirculantTrackerF32(float output_sigma_factor, float sigma, float lambda, float interp_factor,
+							   float padding ,
+							   int workRegionSize ,
+							   float maxPixelValue,
+							   InterpolatePixelS<T> interp ) {
+		if( workRegionSize < 3 )
+			throw new IllegalArgumentException("Minimum size of work region is 3 pixels.");
+
+		this.output_sigma_factor = output_sigma_factor;
+		this.sigma = sigma;
+		this.lambda = lambda;
+		this.interp_factor = interp_factor;
+		this.maxPixelValue = maxPixelValue;
+		this.interp = interp;
+
+		this.padding = padding;
+		this.workRegionSize = workRegionSize;
+
+		// all the inputs to the inverse transform are temporary
+		fft.setModifyInputs(true);
+
+		resizeImages(workRegionSize);
+		computeCosineWindow(cosine);
+		computeGaussianWeights(workRegionSize);
+
+		localPeak.setImage(response);
+	}
+
+	/**
+	 * Initializes tracking around the specified rectangle region using a single band image
+	 *
+	 * @param image Image to start tracking from
+	 * @param x0 top-left corner of region
+	 * @param y0 top-left corner of region
+	 * @param regionWidth region's width
+	 * @param regionHeight region's height
+	 */
+	public void initialize( T image , int x0 , int y0 , int regionWidth , int regionHeight ) {
+		singleBand[0] = image;
+		initialize(singleBand, x0, y0, regionWidth, regionHeight);
+	}
+
+	/**
+	 * Initializes tracking around the specified rectangle region using an image with multiple feature channels
+	 *
+	 * @param image Image to start tracking from.  Each band is a feature channel.
+	 * @param x0 top-left corner of region
+	 * @param y0 top-left corner of region
+	 * @param regionWidth region's width
+	 * @param regionHeight region's height
+	 */
+	public void initialize( MultiSpectral<T> image , int x0 , int y0 , int regionWidth , int regionHeight ) {
+		initialize(image.bands, x0, y0, regionWidth, regionHeight);
+	}
+
+	protected void initialize( ImageSingleBand bands[] , int x0 , int y0 , int regionWidth , int regionHeight ) {
+		ImageSingleBand image = bands[0];
+		if( image.width < regionWidth || image.height < regionHeight)
+			throw new IllegalArgumentException("Track region is larger than input image: "+regionWidth+" "+regionHeight);
+
+		declareBands(bands.length);
+
+		regionOut.width = regionWidth;
+		regionOut.height = regionHeight;
+
+		// adjust for padding
+		int w = (int)(regionWidth*(1+padding));
+		int h = (int)(regionHeight*(1+padding));
+		int cx = x0 + regionWidth/2;
+		int cy = y0 + regionHeight/2;
+
+		// save the track location
+		this.regionTrack.width = w;
+		this.regionTrack.height = h;
+		this.regionTrack.tl_x = cx-w/2;
+		this.regionTrack.tl_y = cy-h/2;
+
+		stepX = (w-1)/(float)(workRegionSize-1);
+		stepY = (h-1)/(float)(workRegionSize-1);
+
+		updateRegionOut();
+
+		initialTrackWidth = w;
+		initialTrackHeight = h;
+		initialOutWidth = regionWidth;
+		initialOutHeight = regionHeight;
+
+		initialLearning(bands);
+
+		if( scaleEstimator != null ) {
+			scaleEstimator.initialize(bands, regionOut.tl_x + regionWidth/2.0f, regionOut.tl_y + regionHeight/2.0f,
+					regionWidth, regionHeight);
+		}
+	}
+
+	/**
+	 * Declares storage for each band if the number of bands has changed
+	 */
+	private void declareBands( int numBands ) {
+		if( this.numBands == numBands )
+			return;
+		this.numBands = numBands;
+
+		templateNew = new ImageFloat32[numBands];
+		templateNewF = new InterleavedF32[numBands];
+		template = new ImageFloat32[numBands];
+		templateF = new InterleavedF32[numBands];
+
+		for( int i = 0; i < numBands; i++ ) {
+			templateNew[i] = new ImageFloat32(workRegionSize,workRegionSize);
+			templateNewF[i] = new InterleavedF32(workRegionSize,workRegionSize,2);
+			template[i] = new ImageFloat32(workRegionSize,workRegionSize);
+			templateF[i] = new InterleavedF32(workRegionSize,workRegionSize,2);
+		}
+	}
+
+	/**
+	 * Learn the target's appearance.
+	 */
+	protected void initialLearning( ImageSingleBand bands[] ) {
+		// get subwindow at current estimated target position, to train classifier
+		templateNorm = get_subwindow(bands, template, templateF);
+
+		// Kernel Regularized Least-Squares, calculate alphas (in Fourier domain)
+		//	k = dense_gauss_kernel(sigma, x);
+		dense_gauss_kernel(sigma, templateF, templateNorm, templateF, templateNorm, k);
+		fft.forward(k, kf);
+
+		// new_alphaf = yf ./ (fft2(k) + lambda);   %(Eq. 7)
+		computeAlphas(gaussianWeightDFT, kf, lambda, alphaf);
+	}
+
+	/**
+	 * Computes the cosine window
+	 */
+	protected static void computeCosineWindow( ImageFloat32 cosine ) {
+		float cosX[] = new float[ cosine.width ];
+		for( int x = 0; x < cosine.width; x++ ) {
+			cosX[x] = (float)(0.5*(1 - Math.cos( 2.0*Math.PI*x/(cosine.width-1) )));
+		}
+		for( int y = 0; y < cosine.height; y++ ) {
+			int index = cosine.startIndex + y*cosine.stride;
+			float cosY = (float)(0.5*(1 - Math.cos( 2.0*Math.PI*y/(cosine.height-1) )));
+			for( int x = 0; x < cosine.width; x++ ) {
+				cosine.data[index++] = cosX[x]*cosY;
+			}
+		}
+	}
+
+	/**
+	 * Computes the weights used in the gaussian kernel.  See {@link CirculantTracker#computeGaussianWeights}.
+	 */
+	protected void computeGaussianWeights( int width ) {
+		// desired output (gaussian shaped), bandwidth proportional to target size
+		double output_sigma = Math.sqrt(width*width) * output_sigma_factor;
+
+		double left = -0.5/(output_sigma*output_sigma);
+
+		int radius = width/2;
+
+		for( int y = 0; y < gaussianWeight.height; y++ ) {
+			int index = gaussianWeight.startIndex + y*gaussianWeight.stride;
+
+			double ry = y-radius;
+
+			for( int x = 0; x < width; x++ ) {
+				double rx = x-radius;
+
+				gaussianWeight.data[index++] = (float)Math.exp(left * (ry * ry + rx * rx));
+			}
+		}
+
+		fft.forward(gaussianWeight,gaussianWeightDFT);
+	}
+
+	protected void resizeImages( int workRegionSize ) {
+		cosine.reshape(workRegionSize,workRegionSize);
+		k.reshape(workRegionSize,workRegionSize);
+		kf.reshape(workRegionSize,workRegionSize);
+		alphaf.reshape(workRegionSize,workRegionSize);
+		newAlphaf.reshape(workRegionSize,workRegionSize);
+		response.reshape(workRegionSize,workRegionSize);
+		tmpReal0.reshape(workRegionSize,workRegionSize);
+		tmpReal1.reshape(workRegionSize,workRegionSize);
+		tmpFourier0.reshape(workRegionSize,workRegionSize);
+		gaussianWeight.reshape(workRegionSize,workRegionSize);
+		gaussianWeightDFT.reshape(workRegionSize,workRegionSize);
+	}
+
+	/**
+	 * Search for the track in the single band image and update its appearance
+	 *
+	 * @param image Next image in the sequence
+	 */
+	public void performTracking( T image ) {
+		singleBand[0] = image;
+		performTracking(singleBand);
+	}
+
+	/**
+	 * Search for the track in the multiple band image and update its appearance
+	 *
+	 * @param image Next image in the sequence.  Must have the same number of bands as the initial image.
+	 */
+	public void performTracking( MultiSpectral<T> image ) {
+		performTracking(image.bands);
+	}
+
+	protected void performTracking( ImageSingleBand bands[] ) {
+		if( bands.length != numBands )
+			throw new IllegalArgumentException("Number of bands has changed since initialization");
+
+		updateTrackLocation(bands);
+		if( scaleEstimator != null )
+			updateTrackScale(bands);
+		if( interp_factor != 0 )
+			performLearning(bands);
+	}
+
+	/**
+	 * Find the target inside the current image by searching around its last known location
+	 */
+	protected void updateTrackLocation( ImageSingleBand bands[] ) {
+		float norm = get_subwindow(bands, templateNew, templateNewF);
+
+		// calculate response of the classifier at all locations
+		// matlab: k = dense_gauss_kernel(sigma, x, z);
+		dense_gauss_kernel(sigma, templateNewF, norm, templateF, templateNorm, k);
+
+		fft.forward(k,kf);
+
+		// response = real(ifft2(alphaf .* fft2(k)));   %(Eq. 9)
+		DiscreteFourierTransformOps.multiplyComplex(alphaf, kf, tmpFourier0);
+		fft.inverse(tmpFourier0, response);
+
+		// find the pixel with the largest response
+		int N = response.width*response.height;
+		int indexBest = -1;
+		float valueBest = -1;
+		for( int i = 0; i < N; i++ ) {
+			float v = response.data[i];
+			if( v > valueBest ) {
+				valueBest = v;
+				indexBest = i;
+			}
+		}
+
+		int peakX = indexBest % response.width;
+		int peakY = indexBest / response.width;
+
+		// sub-pixel peak estimation
+		subpixelPeak(peakX, peakY);
+
+		// peak in region's coordinate system
+		float deltaX = (peakX+offX) - workRegionSize/2;
+		float deltaY = (peakY+offY) - workRegionSize/2;
+
+		// convert peak location into image coordinate system
+		regionTrack.tl_x = regionTrack.tl_x + deltaX*stepX;
+		regionTrack.tl_y = regionTrack.tl_y + deltaY*stepY;
+
+		updateRegionOut();
+	}
+
+	/**
+	 * Estimates the target's scale at its current location and resizes the track region about its center
+	 */
+	protected void updateTrackScale( ImageSingleBand bands[] ) {
+		float cx = regionOut.tl_x + regionOut.width/2;
+		float cy = regionOut.tl_y + regionOut.height/2;
+
+		float scale = scaleEstimator.process(bands, cx, cy);
+
+		int w = Math.max(2,(int)(initialTrackWidth*scale+0.5f));
+		int h = Math.max(2,(int)(initialTrackHeight*scale+0.5f));
+
+		if( w == (int)regionTrack.width && h == (int)regionTrack.height )
+			return;
+
+		// keep the center the same
+		float centerX = regionTrack.tl_x + ((int)regionTrack.width)/2;
+		float centerY = regionTrack.tl_y + ((int)regionTrack.height)/2;
+
+		regionTrack.width = w;
+		regionTrack.height = h;
+		regionTrack.tl_x = centerX - w/2;
+		regionTrack.tl_y = centerY - h/2;
+
+		regionOut.width = Math.max(1,(int)(initialOutWidth*scale+0.5f));
+		regionOut.height = Math.max(1,(int)(initialOutHeight*scale+0.5f));
+
+		stepX = (w-1)/(float)(workRegionSize-1);
+		stepY = (h-1)/(float)(workRegionSize-1);
+
+		updateRegionOut();
+	}
+
+	/**
+	 * Refine the local-peak using a search algorithm for sub-pixel accuracy.
+	 */
+	protected void subpixelPeak(int peakX, int peakY) {
+		// this function for r was determined empirically by using work regions of 32,64,128
+		int r = Math.min(2,response.width/25);
+		if( r < 0 )
+			return;
+
+		localPeak.setSearchRadius(r);
+		localPeak.search(peakX,peakY);
+
+		offX = localPeak.getPeakX() - peakX;
+		offY = localPeak.getPeakY() - peakY;
+	}
+
+	private void updateRegionOut() {
+		regionOut.tl_x = (regionTrack.tl_x+((int)regionTrack.width)/2)-((int)regionOut.width)/2;
+		regionOut.tl_y = (regionTrack.tl_y+((int)regionTrack.height)/2)-((int)regionOut.height)/2;
+	}
+
+	/**
+	 * Update the alphas and the track's appearance
+	 */
+	protected void performLearning( ImageSingleBand bands[] ) {
+		// use the update track location
+		float norm = get_subwindow(bands, templateNew, templateNewF);
+
+		// Kernel Regularized Least-Squares, calculate alphas (in Fourier domain)
+		//	k = dense_gauss_kernel(sigma, x);
+		dense_gauss_kernel(sigma, templateNewF, norm, templateNewF, norm, k);
+		fft.forward(k,kf);
+
+		// new_alphaf = yf ./ (fft2(k) + lambda);   %(Eq. 7)
+		computeAlphas(gaussianWeightDFT, kf, lambda, newAlphaf);
+
+		// subsequent frames, interpolate model
+		// alphaf = (1 - interp_factor) * alphaf + interp_factor * new_alphaf;
+		interpolate(alphaf.data, newAlphaf.data, alphaf.width*alphaf.height*2);
+
+		// Set the previous image to be an interpolated version
+		//		z = (1 - interp_factor) * z + interp_factor * new_z;
+		// The transform is linear so the same is done to its spectrum
+		templateNorm = 0;
+		for( int i = 0; i < numBands; i++ ) {
+			interpolate(template[i].data, templateNew[i].data, workRegionSize*workRegionSize);
+			interpolate(templateF[i].data, templateNewF[i].data, workRegionSize*workRegionSize*2);
+			templateNorm += imageDotProduct(template[i]);
+		}
+	}
+
+	/**
+	 * a = (1 - interp_factor) * a + interp_factor * b
+	 */
+	private void interpolate( float a[] , float b[] , int N ) {
+		for( int i = 0; i < N; i++ ) {
+			a[i] = (1-interp_factor)*a[i] + interp_factor*b[i];
+		}
+	}
+
+	/**
+	 * Gaussian Kernel with dense sampling.  Same as {@link CirculantTracker#dense_gauss_kernel} but the
+	 * input images are specified by their Fourier transform, with one transform for each band.  The
+	 * cross-correlation is summed across bands.
+	 *
+	 * @param sigma Gaussian kernel bandwidth
+	 * @param xf Fourier transform of each band in input image x
+	 * @param xx Dot product of x with itself, summed across bands
+	 * @param yf Fourier transform of each band in input image y
+	 * @param yy Dot product of y with itself, summed across bands
+	 * @param k Output containing Gaussian kernel for each element in target region
+	 */
+	public void dense_gauss_kernel( float sigma , InterleavedF32 xf[] , float xx ,
+									InterleavedF32 yf[] , float yy , ImageFloat32 k ) {
+
+		//----   xy = invF[ sum F(x)*F(y) ]
+		// cross-correlation term in Fourier domain
+		InterleavedF32 xyf = tmpFourier0;
+		if( xf == yf ) {
+			// auto-correlation of x, the result is real
+			elementMagnitude2(xf[0], xyf, false);
+			for( int i = 1; i < xf.length; i++ )
+				elementMagnitude2(xf[i], xyf, true);
+		} else {
+			elementMultConjB(xf[0], yf[0], xyf, false);
+			for( int i = 1; i < xf.length; i++ )
+				elementMultConjB(xf[i], yf[i], xyf, true);
+		}
+
+		// convert to spatial domain
+		fft.inverse(xyf,tmpReal0);
+		circshift(tmpReal0,tmpReal1);
+
+		// calculate gaussian response for all positions
+		gaussianKernel(xx, yy, tmpReal1, sigma, xf.length, k);
+	}
+
+	public static void circshift( ImageFloat32 a, ImageFloat32 b ) {
+		int w2 = a.width/2;
+		int h2 = b.height/2;
+
+		for( int y = 0; y < a.height; y++ ) {
+			int yy = (y+h2)%a.height;
+			int indexA = a.startIndex + y*a.stride;
+
+			for( int x = 0; x < a.width; x++ ) {
+				int xx = (x+w2)%a.width;
+
+				b.data[b.startIndex + yy*b.stride + xx] = a.data[indexA++];
+			}
+		}
+	}
+
+	/**
+	 * Computes the dot product of the image with itself
+	 */
+	public static float imageDotProduct(ImageFloat32 a) {
+
+		float total = 0;
+
+		int N = a.width*a.height;
+		for( int index = 0; index < N; index++ ) {
+			float value = a.data[index];
+			total += value*value;
+		}
+
+		return total;
+	}
+
+	/**
+	 * Element-wise multiplication of 'a' and the complex conjugate of 'b'
+	 *
+	 * @param add If true the results are added to the output, otherwise the output is overwritten
+	 */
+	public static void elementMultConjB( InterleavedF32 a , InterleavedF32 b , InterleavedF32 output ,
+										 boolean add ) {
+		for( int y = 0; y < a.height; y++ ) {
+
+			int index = a.startIndex + y*a.stride;
+
+			for( int x = 0; x < a.width; x++, index += 2 ) {
+
+				float realA = a.data[index];
+				float imgA = a.data[index+1];
+				float realB = b.data[index];
+				float imgB = b.data[index+1];
+
+				float real = realA*realB + imgA*imgB;
+				float img = -realA*imgB + imgA*realB;
+
+				if( add ) {
+					output.data[index] += real;
+					output.data[index+1] += img;
+				} else {
+					output.data[index] = real;
+					output.data[index+1] = img;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Element-wise multiplication of 'a' and its complex conjugate.  The imaginary component is zero.
+	 *
+	 * @param add If true the results are added to the output, otherwise the output is overwritten
+	 */
+	public static void elementMagnitude2( InterleavedF32 a , InterleavedF32 output , boolean add ) {
+		for( int y = 0; y < a.height; y++ ) {
+
+			int index = a.startIndex + y*a.stride;
+
+			for( int x = 0; x < a.width; x++, index += 2 ) {
+
+				float realA = a.data[index];
+				float imgA = a.data[index+1];
+
+				float real = realA*realA + imgA*imgA;
+
+				if( add ) {
+					output.data[index] += real;
+				} else {
+					output.data[index] = real;
+					output.data[index+1] = 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * new_alphaf = yf ./ (fft2(k) + lambda);   %(Eq. 7)
+	 */
+	protected static void computeAlphas( InterleavedF32 yf , InterleavedF32 kf , float lambda ,
+										 InterleavedF32 alphaf ) {
+
+		for( int y = 0; y < kf.height; y++ ) {
+
+			int index = yf.startIndex + y*yf.stride;
+
+			for( int x = 0; x < kf.width; x++, index += 2 ) {
+				float a = yf.data[index];
+				float b = yf.data[index+1];
+
+				float c = kf.data[index] + lambda;
+				float d = kf.data[index+1];
+
+				float bottom = c*c + d*d;
+
+				alphaf.data[index] = (a*c + b*d)/bottom;
+				alphaf.data[index+1] = (b*c - a*d)/bottom;
+			}
+		}
+	}
+
+	/**
+	 * Computes the output of the Gaussian kernel for each element in the target region
+	 *
+	 * k = exp(-1 / sigma^2 * max(0, (xx + yy - 2 * xy) / numel(x)));
+	 *
+	 * @param xx ||x||^2
+	 * @param yy ||y||^2
+	 * @param numBands Number of bands in x and y
+	 */
+	protected static void gaussianKernel( float xx , float yy , ImageFloat32 xy , float sigma  , int numBands ,
+										  ImageFloat32 output ) {
+		float sigma2 = sigma*sigma;
+		float N = xy.width*xy.height*numBands;
+
+		for( int y = 0; y < xy.height; y++ ) {
+			int index = xy.startIndex + y*xy.stride;
+
+			for( int x = 0; x < xy.width; x++ , index++ ) {
+
+				// (xx + yy - 2 * xy) / numel(x)
+				float value = (xx + yy - 2*xy.data[index])/N;
+
+				float v = (float)Math.exp(-Math.max(0, value) / sigma2);
+
+				output.data[index] = v;
+			}
+		}
+	}
+
+	/**
+	 * Copies the target in each band into the output images, applies the cosine window to it, and computes
+	 * its Fourier transform.
+	 *
+	 * @return Dot product of the output images with themselves summed across all the bands
+	 */
+	protected float get_subwindow( ImageSingleBand bands[] , ImageFloat32 output[] , InterleavedF32 outputF[] ) {
+		float total = 0;
+		for( int i = 0; i < bands.length; i++ ) {
+			get_subwindow((T)bands[i], output[i]);
+			fft.forward(output[i], outputF[i]);
+			total += imageDotProduct(output[i]);
+		}
+		return total;
+	}
+
+	/**
+	 * Copies the target into the output image and applies the cosine window to it.
+	 */
+	protected void get_subwindow( T image , ImageFloat32 output ) {
+
+		// copy the target region
+		interp.setImage(image);
+		int index = 0;
+		for( int y = 0; y < workRegionSize; y++ ) {
+			float yy = regionTrack.tl_y + y*stepY;
+
+			for( int x = 0; x < workRegionSize; x++ , index++ ) {
+				float xx = regionTrack.tl_x + x*stepX;
+
+				float value;
+				if( interp.isInFastBounds(xx,yy))
+					value = interp.get_fast(xx,yy);
+				else if( BoofMiscOps.checkInside(image, xx, yy))
+					value = interp.get(xx, yy);
+				else {
+					// randomize to make pixels outside the image poorly correlate.  It will then focus on matching
+					// what's inside the image since it has structure
+					value = rand.nextFloat()*maxPixelValue;
+				}
+
+				// normalize values to be from -0.5 to 0.5 and apply the cosine window
+				output.data[index] = (value/maxPixelValue - 0.5f)*cosine.data[index];
+			}
+		}
+	}
+
+	/**
+	 * The location of the target in the image
+	 */
+	public Rectangle2D_F32 getTargetLocation() {
+		return regionOut;
+	}
+
+	/**
+	 * Visual appearance of the target in the specified band
+	 */
+	public ImageFloat32 getTargetTemplate( int band ) {
+		return template[band];
+	}
+
+	public ImageFloat32 getResponse() {
+		return response;
+	}
+
+	public int getNumBands() {
+		return numBands;
+	}
+
+	public CirculantScaleEstimator getScaleEstimator() {
+		return scaleEstimator;
+	}
+
+	/**
+	 * Specifies the algorithm used to estimate the target's scale.  Must be called before initialize.
+	 *
+	 * @param scaleEstimator (Optional) Scale estimator.  If null the scale is fixed.
+	 */
+	public void setScaleEstimator(CirculantScaleEstimator scaleEstimator) {
+		this.scaleEstimator = scaleEstimator;
+	}
+}
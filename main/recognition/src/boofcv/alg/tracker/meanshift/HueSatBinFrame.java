@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.meanshift;
+
+import boofcv.abst.tracker.TrackerSharedFrame;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.struct.image.ImageSInt16;
+import boofcv.struct.image.ImageUInt8;
+import boofcv.struct.image.MultiSpectral;
+
+/**
+ * Converts every pixel in an RGB frame into its Hue-Saturation histogram bin.  When several targets are tracked
+ * in the same video with {@link LikelihoodHueSatHistCoupled_U8} or {@link LikelihoodHueSatHistInd_U8}, each
+ * pixel is converted once and concurrently instead of once per target.  See
+ * {@link boofcv.abst.tracker.TrackerObjectQuadManager}.
+ *
+ * @author Peter Abeles
+ */
+public class HueSatBinFrame implements TrackerSharedFrame<MultiSpectral<ImageUInt8>> {
+
+	// minimum number of rows processed by a single thread
+	private static final int MIN_ROWS = 20;
+
+	private int maxPixelValue;
+	// converts RGB into the histogram bin
+	private HueSatBinLookup lookup;
+
+	// the image which was processed
+	private MultiSpectral<ImageUInt8> image;
+	// sequence number of the processed image
+	private long frameId = -1;
+	// histogram bin of each pixel, or -1 if the pixel is too dark
+	private ImageSInt16 bins = new ImageSInt16(1,1);
+
+	/**
+	 * Configures the frame.  Must be the same as the likelihood functions which use it.
+	 *
+	 * @param maxPixelValue The maximum intensity value a pixel can take on.
+	 * @param numHistogramBins Number of bins in the Hue and Saturation histogram.
+	 */
+	public HueSatBinFrame( int maxPixelValue , int numHistogramBins ) {
+		if( numHistogramBins*numHistogramBins > Short.MAX_VALUE )
+			throw new IllegalArgumentException("Too many histogram bins");
+
+		this.maxPixelValue = maxPixelValue;
+		lookup = new HueSatBinLookup(maxPixelValue,numHistogramBins);
+	}
+
+	@Override
+	public void process( final MultiSpectral<ImageUInt8> image ) {
+		if( image.getNumBands() != 3 )
+			throw new IllegalArgumentException("Input image must have 3 bands.");
+
+		this.image = image;
+		frameId++;
+		bins.reshape(image.width,image.height);
+
+		BoofConcurrency.loopBlocks(0, image.height, MIN_ROWS, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				ImageUInt8 imageRed = image.getBand(0);
+				ImageUInt8 imageGreen = image.getBand(1);
+				ImageUInt8 imageBlue = image.getBand(2);
+
+				float hsv[] = new float[3];
+
+				for( int y = y0; y < y1; y++ ) {
+					int index = imageRed.startIndex + y*imageRed.stride;
+					int indexBin = bins.startIndex + y*bins.stride;
+					for( int x = 0; x < image.width; x++ , index++ ) {
+						int r = imageRed.data[index] & 0xFF;
+						int g = imageGreen.data[index] & 0xFF;
+						int b = imageBlue.data[index] & 0xFF;
+
+						bins.data[indexBin++] = (short)lookup.lookup(r,g,b,hsv);
+					}
+				}
+			}
+		});
+	}
+
+	@Override
+	public MultiSpectral<ImageUInt8> getImage() {
+		return image;
+	}
+
+	@Override
+	public long getFrameId() {
+		return frameId;
+	}
+
+	/**
+	 * Histogram bin of each pixel in the most recent image, binH*numBins + binS, or -1 if the pixel is too dark.
+	 */
+	public ImageSInt16 getBins() {
+		return bins;
+	}
+
+	public int getMaxPixelValue() {
+		return maxPixelValue;
+	}
+
+	public int getNumHistogramBins() {
+		return lookup.getNumHistogramBins();
+	}
+}
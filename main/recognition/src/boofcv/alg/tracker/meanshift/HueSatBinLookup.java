@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.meanshift;
+
+import boofcv.alg.color.ColorHsv;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Look up table which converts an 8-bit RGB color into the index of its Hue-Saturation histogram bin.  Converting
+ * into HSV is expensive, so the bin for each color is saved after it has been computed the first time.  Colors
+ * are packed into a 24-bit integer which is the index into the table.  Entries are computed as needed since
+ * the number of colors in a video is typically much less than the number of possible colors.
+ * </p>
+ *
+ * <p>
+ * The table is 16 MB, so instances with the same configuration share a single table.  Tables are released once
+ * no instance uses them.  Different threads can use the same table at the same time.  If two threads compute
+ * the same entry they will both write the same value.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class HueSatBinLookup {
+	// value for entries which have yet to be computed
+	private static final byte UNKNOWN = 0;
+	// value for colors which are too dark to have a reliable hue and saturation
+	private static final byte DARK = 1;
+
+	// tables which are in use, indexed by the configuration they were computed for
+	private static final Map<Long,WeakReference<byte[]>> tables = new HashMap<Long,WeakReference<byte[]>>();
+
+	// number of bins for Hue and Saturation bands
+	private int numHistogramBins;
+
+	// the minimum value allowed.  used to avoid pathological case in HSV color space
+	private float minimumValue;
+
+	// size of the hue and saturation bins
+	protected float sizeH, sizeS;
+
+	// bin index for each color, offset by two.  null if there are too many bins to fit inside a byte
+	private final byte table[];
+
+	// storage for RGB to HSV conversion when called from a single thread
+	private float hsv[] = new float[3];
+
+	/**
+	 * Configures the look up table
+	 *
+	 * @param maxPixelValue The maximum intensity value a pixel can take on.
+	 * @param numHistogramBins Number of bins in the Hue and Saturation histogram.
+	 */
+	public HueSatBinLookup(int maxPixelValue, int numHistogramBins) {
+		this.numHistogramBins = numHistogramBins;
+		minimumValue = (maxPixelValue+1)*0.01f;
+
+		// divide it by a number slightly larger than the max to avoid the special case where it is equal to the max
+		sizeH = (float)(2.001*Math.PI/numHistogramBins);
+		sizeS = 1.001f/numHistogramBins;
+
+		// each entry needs to fit inside a byte with the two special values
+		if( numHistogramBins*numHistogramBins + 2 > 256 )
+			table = null;
+		else
+			table = sharedTable(maxPixelValue, numHistogramBins);
+	}
+
+	/**
+	 * Returns the table for the configuration, declaring a new one if no other instance is using one.
+	 */
+	private static byte[] sharedTable( int maxPixelValue , int numHistogramBins ) {
+		long key = ((long)maxPixelValue << 32) | numHistogramBins;
+		synchronized( tables ) {
+			WeakReference<byte[]> ref = tables.get(key);
+			byte[] table = ref == null ? null : ref.get();
+			if( table == null ) {
+				table = new byte[ 1 << 24 ];
+				tables.put(key, new WeakReference<byte[]>(table));
+			}
+			return table;
+		}
+	}
+
+	/**
+	 * Returns the bin for the color.  Not thread safe.
+	 *
+	 * @return index of the bin, binH*numBins + binS, or -1 if the color is too dark
+	 */
+	public int lookup( int r , int g , int b ) {
+		return lookup(r,g,b,hsv);
+	}
+
+	/**
+	 * Returns the bin for the color.  Thread safe if each thread provides its own storage.
+	 *
+	 * @param storage Storage for HSV color.  Must have 3 elements.
+	 * @return index of the bin, binH*numBins + binS, or -1 if the color is too dark
+	 */
+	public int lookup( int r , int g , int b , float storage[] ) {
+		if( table == null )
+			return computeBin(r, g, b, storage);
+
+		int index = (r << 16) | (g << 8) | b;
+		int value = table[index] & 0xFF;
+
+		if( value == UNKNOWN ) {
+			int bin = computeBin(r, g, b, storage);
+			table[index] = (byte)(bin+2);
+			return bin;
+		}
+
+		return value-2;
+	}
+
+	/**
+	 * Converts the color into HSV and computes which bin it belongs in
+	 */
+	private int computeBin( int r , int g , int b , float storage[] ) {
+		ColorHsv.rgbToHsv(r, g, b, storage);
+
+		if( storage[2] < minimumValue )
+			return DARK-2;
+
+		int binH = (int)(storage[0] / sizeH);
+		int binS = (int)(storage[1] / sizeS);
+
+		return binH*numHistogramBins + binS;
+	}
+
+	public int getNumHistogramBins() {
+		return numHistogramBins;
+	}
+
+	/**
+	 * Returns the look up table.  Only used for testing.
+	 */
+	protected byte[] getTable() {
+		return table;
+	}
+}
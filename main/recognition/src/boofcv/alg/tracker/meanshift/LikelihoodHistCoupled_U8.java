@@ -18,6 +18,7 @@
 
 package boofcv.alg.tracker.meanshift;
 
+import boofcv.struct.image.ImageFloat32;
 import boofcv.struct.image.ImageUInt8;
 import boofcv.struct.image.MultiSpectral;
 import georegression.struct.shapes.Rectangle2D_I32;
@@ -39,6 +40,9 @@ public class LikelihoodHistCoupled_U8 implements PixelLikelihood<MultiSpectral<I
 	int numBins;
 	float hist[] = new float[0];
 
+	// look up table for each band which converts a pixel value into its offset inside the histogram
+	int binOffset[][] = new int[0][];
+
 	public LikelihoodHistCoupled_U8(int maxPixelValue, int numBins) {
 		this.maxPixelValue = maxPixelValue+1;
 		this.numBins = numBins;
@@ -56,6 +60,17 @@ public class LikelihoodHistCoupled_U8 implements PixelLikelihood<MultiSpectral<I
 		if( hist.length != histElements ) {
 			hist = new float[histElements];
 		}
+
+		if( binOffset.length != image.getNumBands() ) {
+			binOffset = new int[ image.getNumBands() ][256];
+			int binStride = 1;
+			for( int i = 0; i < binOffset.length; i++ ) {
+				for( int value = 0; value < 256; value++ ) {
+					binOffset[i][value] = binStride*(numBins*value/maxPixelValue);
+				}
+				binStride *= numBins;
+			}
+		}
 	}
 
 	@Override
@@ -69,18 +84,7 @@ public class LikelihoodHistCoupled_U8 implements PixelLikelihood<MultiSpectral<I
 
 			int index = image.startIndex + (y+target.tl_y)*image.stride + target.tl_x;
 			for( int x = 0; x < target.width; x++ , index++ ) {
-				int indexBin = 0;
-				int binStride = 1;
-				for( int i = 0; i < image.getNumBands(); i++ ) {
-					ImageUInt8 band = image.getBand(i);
-					int value = band.data[index] & 0xFF;
-					int bin = numBins*value/maxPixelValue;
-
-					indexBin += bin*binStride;
-					binStride *= numBins;
-				}
-
-				hist[indexBin]++;
+				hist[computeBin(index)]++;
 			}
 		}
 
@@ -94,17 +98,29 @@ public class LikelihoodHistCoupled_U8 implements PixelLikelihood<MultiSpectral<I
 	public float compute(int x, int y) {
 		int index = image.startIndex + y*image.stride + x;
 
-		int indexBin = 0;
-		int binStride = 1;
-		for( int i = 0; i < image.getNumBands(); i++ ) {
-			ImageUInt8 band = image.getBand(i);
-			int value = band.data[index] & 0xFF;
-			int bin = numBins*value/maxPixelValue;
+		return hist[computeBin(index)];
+	}
 
-			indexBin += bin*binStride;
-			binStride *= numBins;
+	@Override
+	public void compute(int x0, int y0, int x1, int y1, ImageFloat32 output) {
+		for( int y = y0; y < y1; y++ ) {
+			int index = image.startIndex + y*image.stride + x0;
+			int indexOut = output.startIndex + y*output.stride + x0;
+			for( int x = x0; x < x1; x++ , index++ ) {
+				output.data[indexOut++] = hist[computeBin(index)];
+			}
 		}
+	}
 
-		return hist[indexBin];
+	/**
+	 * Computes the index of the histogram bin which the pixel belongs in
+	 */
+	private int computeBin( int index ) {
+		int indexBin = 0;
+		for( int i = 0; i < binOffset.length; i++ ) {
+			ImageUInt8 band = image.getBand(i);
+			indexBin += binOffset[i][band.data[index] & 0xFF];
+		}
+		return indexBin;
 	}
 }
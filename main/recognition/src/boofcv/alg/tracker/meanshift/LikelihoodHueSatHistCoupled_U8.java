@@ -18,7 +18,8 @@
 
 package boofcv.alg.tracker.meanshift;
 
-import boofcv.alg.color.ColorHsv;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageSInt16;
 import boofcv.struct.image.ImageUInt8;
 import boofcv.struct.image.MultiSpectral;
 import georegression.struct.shapes.Rectangle2D_I32;
@@ -30,6 +31,7 @@ import georegression.struct.shapes.Rectangle2D_I32;
  * their sums are equal to one.  Likelihood is computed multiply the value of the histograms together.
  *
  * Colors with a very small "Value" are ignored since their hue and saturation are not reliable.
+ * The histogram bin for each color is cached in a {@link HueSatBinLookup}.
  *
  * @author Peter Abeles
  */
@@ -40,24 +42,26 @@ public class LikelihoodHueSatHistCoupled_U8 implements PixelLikelihood<MultiSpec
 	private ImageUInt8 imageGreen;
 	private ImageUInt8 imageBlue;
 
-	// storage for RGB to HSV conversion
+	// converts RGB into the histogram bin
+	protected HueSatBinLookup lookup;
+	private int maxPixelValue;
+
+	// (Optional) bins for every pixel in the frame, computed once and shared with other targets
+	private HueSatBinFrame shared;
+	// bins for the current image, or null if the frame's bins are for a different image
+	private ImageSInt16 frameBins;
+	// ID of the shared frame the bins were last read from.  The bins of each frame are only used once
+	private long usedFrameId = -1;
+	// storage for RGB to HSV conversion when called from a single thread
 	private float hsv[] = new float[3];
 
 	// number of bins for Hue and Saturation bands
 	protected int numHistogramBins;
-	// largest element index in a histogram bin.  numBins-1
-	protected int maxElementInBin;
-
-	// the minimum value allowed.  used to avoid pathological case in HSV color space
-	protected float minimumValue;
 
 	// Hue has a range of 0 to 2*pi and this is a discretized histogram
 	// Saturation has a range of 0 to 1 and this is a discretized histogram
 	protected float bins[];
 
-	// size of the hue and saturation bins
-	protected float sizeH, sizeS;
-
 	/**
 	 * Configures likelihood function
 	 *
@@ -65,14 +69,25 @@ public class LikelihoodHueSatHistCoupled_U8 implements PixelLikelihood<MultiSpec
 	 * @param numHistogramBins Number of bins in the Hue and Saturation histogram.
 	 */
 	public LikelihoodHueSatHistCoupled_U8(int maxPixelValue, int numHistogramBins) {
-		minimumValue = (maxPixelValue+1)*0.01f;
+		this.maxPixelValue = maxPixelValue;
 		this.numHistogramBins = numHistogramBins;
 
 		bins = new float[ numHistogramBins*numHistogramBins ];
+		lookup = new HueSatBinLookup(maxPixelValue,numHistogramBins);
+	}
 
-		// divide it by a number slightly larger than the max to avoid the special case where it is equal to the max
-		sizeH = (float)(2.001*Math.PI/numHistogramBins);
-		sizeS = 1.001f/numHistogramBins;
+	/**
+	 * Reads the bin of each pixel from a frame which is shared by several trackers.  The bins are only used when
+	 * the frame has processed the image passed to {@link #setImage} since the last time it was used.  Otherwise
+	 * a reused image instance could have new pixels which the frame hasn't seen.
+	 *
+	 * @param shared Frame with the same configuration as this likelihood.  If null bins are always looked up.
+	 */
+	public void setShared( HueSatBinFrame shared ) {
+		if( shared != null && (shared.getMaxPixelValue() != maxPixelValue ||
+				shared.getNumHistogramBins() != numHistogramBins) )
+			throw new IllegalArgumentException("Shared frame has a different configuration");
+		this.shared = shared;
 	}
 
 	@Override
@@ -80,6 +95,13 @@ public class LikelihoodHueSatHistCoupled_U8 implements PixelLikelihood<MultiSpec
 		imageRed = image.getBand(0);
 		imageGreen = image.getBand(1);
 		imageBlue = image.getBand(2);
+
+		if( shared != null && shared.getImage() == image && shared.getFrameId() != usedFrameId ) {
+			usedFrameId = shared.getFrameId();
+			frameBins = shared.getBins();
+		} else {
+			frameBins = null;
+		}
 	}
 
 	@Override
@@ -95,19 +117,11 @@ public class LikelihoodHueSatHistCoupled_U8 implements PixelLikelihood<MultiSpec
 		for( int y = 0; y < target.height; y++ ) {
 			int index = imageRed.startIndex + (y+target.tl_y)*imageRed.stride + target.tl_x;
 			for( int x = 0; x < target.width; x++ , index++ ) {
-				int r = imageRed.data[index] & 0xFF;
-				int g = imageGreen.data[index] & 0xFF;
-				int b = imageBlue.data[index] & 0xFF;
-
-				ColorHsv.rgbToHsv(r,g,b,hsv);
-
-				if( hsv[2] < minimumValue )
+				int bin = bin(x+target.tl_x,y+target.tl_y,index,hsv);
+				if( bin < 0 )
 					continue;
 
-				int binH = (int)(hsv[0] / sizeH);
-				int binS = (int)(hsv[1] / sizeS);
-
-				bins[ binH*numHistogramBins + binS ]++;
+				bins[ bin ]++;
 
 				total++;
 			}
@@ -122,20 +136,40 @@ public class LikelihoodHueSatHistCoupled_U8 implements PixelLikelihood<MultiSpec
 	@Override
 	public float compute(int x, int y) {
 
-		int index = imageRed.getIndex(x,y);
+		int bin = bin(x,y,imageRed.getIndex(x,y),hsv);
+		if( bin < 0 )
+			return 0f;
 
-		int r = imageRed.data[index] & 0xFF;
-		int g = imageGreen.data[index] & 0xFF;
-		int b = imageBlue.data[index] & 0xFF;
+		return bins[ bin ];
+	}
 
-		ColorHsv.rgbToHsv(r,g,b,hsv);
+	@Override
+	public void compute(int x0, int y0, int x1, int y1, ImageFloat32 output) {
+		float hsv[] = new float[3];
 
-		if( hsv[2] < minimumValue )
-			return 0f;
+		for( int y = y0; y < y1; y++ ) {
+			int index = imageRed.startIndex + y*imageRed.stride + x0;
+			int indexOut = output.startIndex + y*output.stride + x0;
+			for( int x = x0; x < x1; x++ , index++ ) {
+				int bin = bin(x,y,index,hsv);
+
+				output.data[indexOut++] = bin < 0 ? 0f : bins[bin];
+			}
+		}
+	}
+
+	/**
+	 * Returns the bin of the pixel at (x,y), which is at 'index' in the input image.  Read from the shared
+	 * frame if possible, otherwise it's looked up.
+	 */
+	private int bin( int x , int y , int index , float hsv[] ) {
+		if( frameBins != null )
+			return frameBins.data[frameBins.startIndex + y*frameBins.stride + x];
 
-		int binH = (int)(hsv[0] / sizeH);
-		int binS = (int)(hsv[1] / sizeS);
+		int r = imageRed.data[index] & 0xFF;
+		int g = imageGreen.data[index] & 0xFF;
+		int b = imageBlue.data[index] & 0xFF;
 
-		return bins[ binH*numHistogramBins + binS ];
+		return lookup.lookup(r,g,b,hsv);
 	}
 }
@@ -18,7 +18,8 @@
 
 package boofcv.alg.tracker.meanshift;
 
-import boofcv.alg.color.ColorHsv;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageSInt16;
 import boofcv.struct.image.ImageUInt8;
 import boofcv.struct.image.MultiSpectral;
 import georegression.struct.shapes.Rectangle2D_I32;
@@ -42,20 +43,25 @@ public class LikelihoodHueSatHistInd_U8 implements PixelLikelihood<MultiSpectral
 	private ImageUInt8 imageGreen;
 	private ImageUInt8 imageBlue;
 
-	// storage for RGB to HSV conversion
+	// converts RGB into the histogram bins
+	protected HueSatBinLookup lookup;
+	private int maxPixelValue;
+	private int numHistogramBins;
+
+	// (Optional) bins for every pixel in the frame, computed once and shared with other targets
+	private HueSatBinFrame shared;
+	// bins for the current image, or null if the frame's bins are for a different image
+	private ImageSInt16 frameBins;
+	// ID of the shared frame the bins were last read from.  The bins of each frame are only used once
+	private long usedFrameId = -1;
+	// storage for RGB to HSV conversion when called from a single thread
 	private float hsv[] = new float[3];
 
-	// the minimum value allowed
-	private float minimumValue;
-
 	// Hue has a range of 0 to 2*pi and this is a discretized histogram
 	protected float binsH[];
 	// Saturation has a range of 0 to 1 and this is a discretized histogram
 	protected float binsS[];
 
-	// size of the hue and saturation bins
-	protected float sizeH, sizeS;
-
 	/**
 	 * Configures likelihood function
 	 *
@@ -63,14 +69,26 @@ public class LikelihoodHueSatHistInd_U8 implements PixelLikelihood<MultiSpectral
 	 * @param numHistogramBins Number of bins in the Hue and Saturation histogram.
 	 */
 	public LikelihoodHueSatHistInd_U8(int maxPixelValue, int numHistogramBins) {
-		minimumValue = (maxPixelValue+1)*0.01f;
+		this.maxPixelValue = maxPixelValue;
+		this.numHistogramBins = numHistogramBins;
 
 		binsH = new float[ numHistogramBins ];
 		binsS = new float[ numHistogramBins ];
+		lookup = new HueSatBinLookup(maxPixelValue,numHistogramBins);
+	}
 
-		// divide it by a number slightly larger than the max to avoid the special case where it is equal to the max
-		sizeH = (float)(2.001*Math.PI/numHistogramBins);
-		sizeS = 1.001f/numHistogramBins;
+	/**
+	 * Reads the bin of each pixel from a frame which is shared by several trackers.  The bins are only used when
+	 * the frame has processed the image passed to {@link #setImage} since the last time it was used.  Otherwise
+	 * a reused image instance could have new pixels which the frame hasn't seen.
+	 *
+	 * @param shared Frame with the same configuration as this likelihood.  If null bins are always looked up.
+	 */
+	public void setShared( HueSatBinFrame shared ) {
+		if( shared != null && (shared.getMaxPixelValue() != maxPixelValue ||
+				shared.getNumHistogramBins() != numHistogramBins) )
+			throw new IllegalArgumentException("Shared frame has a different configuration");
+		this.shared = shared;
 	}
 
 	@Override
@@ -78,6 +96,13 @@ public class LikelihoodHueSatHistInd_U8 implements PixelLikelihood<MultiSpectral
 		imageRed = image.getBand(0);
 		imageGreen = image.getBand(1);
 		imageBlue = image.getBand(2);
+
+		if( shared != null && shared.getImage() == image && shared.getFrameId() != usedFrameId ) {
+			usedFrameId = shared.getFrameId();
+			frameBins = shared.getBins();
+		} else {
+			frameBins = null;
+		}
 	}
 
 	@Override
@@ -93,17 +118,12 @@ public class LikelihoodHueSatHistInd_U8 implements PixelLikelihood<MultiSpectral
 		for( int y = 0; y < target.height; y++ ) {
 			int index = imageRed.startIndex + (y+target.tl_y)*imageRed.stride + target.tl_x;
 			for( int x = 0; x < target.width; x++ , index++ ) {
-				int r = imageRed.data[index] & 0xFF;
-				int g = imageGreen.data[index] & 0xFF;
-				int b = imageBlue.data[index] & 0xFF;
-
-				ColorHsv.rgbToHsv(r,g,b,hsv);
-
-				if( hsv[2] < minimumValue )
+				int bin = bin(x+target.tl_x,y+target.tl_y,index,hsv);
+				if( bin < 0 )
 					continue;
 
-				binsH[ (int)(hsv[0] / sizeH) ]++;
-				binsS[ (int)(hsv[1] / sizeS) ]++;
+				binsH[ bin / numHistogramBins ]++;
+				binsS[ bin % numHistogramBins ]++;
 
 				total++;
 			}
@@ -119,17 +139,43 @@ public class LikelihoodHueSatHistInd_U8 implements PixelLikelihood<MultiSpectral
 	@Override
 	public float compute(int x, int y) {
 
-		int index = imageRed.getIndex(x,y);
+		int bin = bin(x,y,imageRed.getIndex(x,y),hsv);
+		if( bin < 0 )
+			return 0f;
+
+		return binsH[ bin / numHistogramBins ]*binsS[ bin % numHistogramBins ];
+	}
+
+	@Override
+	public void compute(int x0, int y0, int x1, int y1, ImageFloat32 output) {
+		float hsv[] = new float[3];
+
+		for( int y = y0; y < y1; y++ ) {
+			int index = imageRed.startIndex + y*imageRed.stride + x0;
+			int indexOut = output.startIndex + y*output.stride + x0;
+			for( int x = x0; x < x1; x++ , index++ ) {
+				int bin = bin(x,y,index,hsv);
+
+				if( bin < 0 )
+					output.data[indexOut++] = 0f;
+				else
+					output.data[indexOut++] = binsH[ bin / numHistogramBins ]*binsS[ bin % numHistogramBins ];
+			}
+		}
+	}
+
+	/**
+	 * Returns the bin of the pixel at (x,y), which is at 'index' in the input image.  Read from the shared
+	 * frame if possible, otherwise it's looked up.
+	 */
+	private int bin( int x , int y , int index , float hsv[] ) {
+		if( frameBins != null )
+			return frameBins.data[frameBins.startIndex + y*frameBins.stride + x];
 
 		int r = imageRed.data[index] & 0xFF;
 		int g = imageGreen.data[index] & 0xFF;
 		int b = imageBlue.data[index] & 0xFF;
 
-		ColorHsv.rgbToHsv(r,g,b,hsv);
-
-		if( hsv[2] < minimumValue )
-			return 0f;
-
-		return binsH[ (int)(hsv[0] / sizeH) ]*binsS[ (int)(hsv[1] / sizeS) ];
+		return lookup.lookup(r,g,b,hsv);
 	}
 }
@@ -19,6 +19,7 @@
 package boofcv.alg.tracker.meanshift;
 
 import boofcv.struct.image.ImageBase;
+import boofcv.struct.image.ImageFloat32;
 import boofcv.struct.sparse.SparseImageSample_F32;
 import georegression.struct.shapes.Rectangle2D_I32;
 
@@ -41,4 +42,17 @@ public interface PixelLikelihood<T extends ImageBase> extends SparseImageSample_
 	 */
 	public void createModel( Rectangle2D_I32 target );
 
+	/**
+	 * Computes the likelihood of every pixel inside the rectangle and writes the results into the output image.
+	 * Faster than calling {@link #compute(int, int)} for each pixel.  Different threads can process
+	 * non-overlapping rectangles at the same time.
+	 *
+	 * @param x0 Lower extent of the rectangle, inclusive
+	 * @param y0 Lower extent of the rectangle, inclusive
+	 * @param x1 Upper extent of the rectangle, exclusive
+	 * @param y1 Upper extent of the rectangle, exclusive
+	 * @param output Image the likelihood is written to.  Same shape and coordinate system as the input image.
+	 */
+	public void compute( int x0 , int y0 , int x1 , int y1 , ImageFloat32 output );
+
 }
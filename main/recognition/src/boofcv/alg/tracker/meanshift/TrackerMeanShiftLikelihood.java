@@ -19,21 +19,29 @@
 package boofcv.alg.tracker.meanshift;
 
 import boofcv.alg.misc.ImageMiscOps;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
 import boofcv.struct.image.ImageBase;
 import boofcv.struct.image.ImageFloat32;
-import boofcv.struct.sparse.SparseImageSample_F32;
 import georegression.struct.shapes.Rectangle2D_I32;
 import georegression.struct.shapes.RectangleCorner2D_I32;
 
 /**
  * <p>
  * Mean-shift [1] based tracker which tracks the target inside a likelihood image using a flat rectangular kernel
- * of fixed size. The likelihood for each pixel is computed using {@link SparseImageSample_F32}.  How that
+ * of fixed size. The likelihood for each pixel is computed using {@link PixelLikelihood}.  How that
  * model is computed is not specified by this class, but is often based on color.  For sake of efficiency, the
  * likelihood for a pixel is only computed as needed.
  * </p>
  *
  * <p>
+ * Optionally, the likelihood can be computed at the start of each frame for a search region around the
+ * previous location.  The search region is split into bands of rows which are processed at the same time
+ * by {@link BoofConcurrency}.  Pixels outside the search region are still computed as needed.  Both
+ * modes produce the same track.
+ * </p>
+ *
+ * <p>
  * This algorithm can run very fast and works well when the target being tracked is visually distinctive from
  * the background and largely composed of one color.  It can't handle changes in scale or shape of the target,
  * which does limit its applications.
@@ -48,8 +56,11 @@ import georegression.struct.shapes.RectangleCorner2D_I32;
  */
 public class TrackerMeanShiftLikelihood<T extends ImageBase> {
 
+	// minimum number of rows in each band when precomputing the likelihood
+	private static final int MIN_BAND = 8;
+
 	// likelihood model for the target being tracked
-	private SparseImageSample_F32<T> targetModel;
+	private PixelLikelihood<T> targetModel;
 
 	// image used to store the likelihood
 	private ImageFloat32 pdf = new ImageFloat32(1,1);
@@ -71,6 +82,11 @@ public class TrackerMeanShiftLikelihood<T extends ImageBase> {
 	// if true the tracker has failed
 	private boolean failed;
 
+	// if true the likelihood is computed inside the search region at the start of each frame
+	private boolean precompute;
+	// region around the previous location where the likelihood is precomputed
+	private RectangleCorner2D_I32 search = new RectangleCorner2D_I32();
+
 	/**
 	 * Configures tracker
 	 *
@@ -80,9 +96,25 @@ public class TrackerMeanShiftLikelihood<T extends ImageBase> {
 	 *                           assumed to be lost
 	 */
 	public TrackerMeanShiftLikelihood(PixelLikelihood<T> targetModel, int maxIterations, float minFractionDrop) {
+		this(targetModel,maxIterations,minFractionDrop,false);
+	}
+
+	/**
+	 * Configures tracker
+	 *
+	 * @param targetModel Target used to model the target's likelihood
+	 * @param maxIterations Maximum number of iterations.  try 20
+	 * @param minFractionDrop If the likelihood drops below its initial value by this fraction the track is
+	 *                           assumed to be lost
+	 * @param precompute If true the likelihood is computed inside a search region at the start of each frame
+	 *                   instead of one pixel at a time as needed.
+	 */
+	public TrackerMeanShiftLikelihood(PixelLikelihood<T> targetModel, int maxIterations, float minFractionDrop,
+									  boolean precompute ) {
 		this.targetModel = targetModel;
 		this.maxIterations = maxIterations;
 		this.minFractionDrop = minFractionDrop;
+		this.precompute = precompute;
 	}
 
 	/**
@@ -137,6 +169,8 @@ public class TrackerMeanShiftLikelihood<T extends ImageBase> {
 
 		// mark the region where the pdf has been modified as dirty
 		dirty.set(location.tl_x, location.tl_y, location.tl_x + location.width, location.tl_y + location.height);
+		if( precompute )
+			precomputePdfImage(image);
 		// compute the pdf inside the initial rectangle
 		updatePdfImage(location.tl_x , location.tl_y , location.tl_x+location.width , location.tl_y+location.height);
 
@@ -210,6 +244,26 @@ public class TrackerMeanShiftLikelihood<T extends ImageBase> {
 		return true;
 	}
 
+	/**
+	 * Computes the PDF inside a search region which extends half the target's size past its previous location.
+	 * The search region is split into bands of rows which are computed concurrently.
+	 */
+	protected void precomputePdfImage( T image ) {
+		search.x0 = Math.max(0, location.tl_x - location.width/2);
+		search.y0 = Math.max(0, location.tl_y - location.height/2);
+		search.x1 = Math.min(image.width, location.tl_x + location.width + location.width/2);
+		search.y1 = Math.min(image.height, location.tl_y + location.height + location.height/2);
+
+		BoofConcurrency.loopBlocks(search.y0, search.y1, MIN_BAND, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				targetModel.compute(search.x0, y0, search.x1, y1, pdf);
+			}
+		});
+
+		dirty.set(search);
+	}
+
 	/**
 	 * Computes the PDF only inside the image as needed amd update the dirty rectangle
 	 */
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.tld;
+
+import boofcv.alg.interpolate.InterpolatePixelS;
+import boofcv.alg.interpolate.TypeInterpolate;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.factory.interpolate.FactoryInterpolation;
+import boofcv.struct.ImageRectangle;
+import boofcv.struct.feature.NccFeature;
+import boofcv.struct.image.ImageSingleBand;
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Concurrent implementation of {@link TldDetection}.  Candidate regions are split into blocks and the variance
+ * and fern tests are applied to each block at the same time.  Template matching on regions which pass the fern
+ * test is done the same way.  Ferns and templates are only read during detection.  Each block has its own
+ * interpolation and storage.
+ * </p>
+ *
+ * <p>
+ * Results from each block are merged in the same order as the candidate regions, so the output is identical to
+ * the single threaded version.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class TldDetectionParallel<T extends ImageSingleBand> extends TldDetection<T> {
+
+	// minimum number of regions processed by a thread in the variance and fern tests
+	private static final int MIN_REGIONS = 100;
+	// minimum number of regions processed by a thread when template matching
+	private static final int MIN_TEMPLATES = 4;
+
+	// type of interpolation used by each block
+	private TypeInterpolate typeInterp;
+	private Class<T> imageType;
+
+	// storage and interpolation for each block
+	private List<Block> blocks = new ArrayList<Block>();
+
+	// template confidence for each region in fernRegions
+	private GrowQueue_F64 confidence = new GrowQueue_F64();
+
+	/**
+	 * Configures detection
+	 *
+	 * @param typeInterp Type of interpolation.  Must be the same as what the fern and template use.
+	 * @param imageType Type of input image
+	 */
+	public TldDetectionParallel( TldFernClassifier<T> fern, TldTemplateMatching<T> template,
+								 TldVarianceFilter<T> variance, TldParameters config ,
+								 TypeInterpolate typeInterp , Class<T> imageType ) {
+		super(fern, template, variance, config);
+		this.typeInterp = typeInterp;
+		this.imageType = imageType;
+	}
+
+	@Override
+	protected void detectionCascade( FastQueue<ImageRectangle> cascadeRegions ) {
+		int numBlocks = Math.max(BoofConcurrency.computeBlockCount(0, cascadeRegions.size, MIN_REGIONS),
+				BoofConcurrency.computeBlockCount(0, config.maximumCascadeConsider, MIN_TEMPLATES));
+		while( blocks.size() < numBlocks )
+			blocks.add(new Block());
+
+		T image = fern.getInterpolate().getImage();
+		for( int i = 0; i < numBlocks; i++ )
+			blocks.get(i).interpolate.setImage(image);
+
+		super.detectionCascade(cascadeRegions);
+	}
+
+	@Override
+	protected void computeFernInfo( final FastQueue<ImageRectangle> cascadeRegions ) {
+		int numBlocks = BoofConcurrency.computeBlockCount(0, cascadeRegions.size, MIN_REGIONS);
+		for( int i = 0; i < numBlocks; i++ )
+			blocks.get(i).fernInfo.reset();
+
+		BoofConcurrency.loopBlocks(0, cascadeRegions.size, MIN_REGIONS, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				blocks.get(block).computeFernInfo(cascadeRegions, start, end);
+			}
+		});
+
+		// merge in the same order as the regions.  Integer sums don't depend on the order
+		totalP = 0;
+		totalN = 0;
+		for( int i = 0; i < numBlocks; i++ ) {
+			Block b = blocks.get(i);
+			for( int j = 0; j < b.fernInfo.size; j++ ) {
+				TldRegionFernInfo src = b.fernInfo.get(j);
+				TldRegionFernInfo dst = fernInfo.grow();
+				dst.r = src.r;
+				dst.sumP = src.sumP;
+				dst.sumN = src.sumN;
+			}
+			totalP += b.totalP;
+			totalN += b.totalN;
+		}
+	}
+
+	@Override
+	protected void computeTemplateConfidence() {
+		confidence.resize(fernRegions.size());
+
+		BoofConcurrency.loopBlocks(0, fernRegions.size(), MIN_TEMPLATES, new IntRangeTask() {
+			@Override
+			public void process(int block, int start, int end) {
+				Block b = blocks.get(block);
+				for( int i = start; i < end; i++ ) {
+					ImageRectangle r = fernRegions.get(i);
+					confidence.data[i] = template.computeConfidence(r.x0, r.y0, r.x1, r.y1, b.observed, b.interpolate);
+				}
+			}
+		});
+
+		for( int i = 0; i < fernRegions.size(); i++ ) {
+			if( confidence.data[i] < config.confidenceThresholdUpper)
+				continue;
+			TldRegion r = candidateDetections.grow();
+			r.connections = 0;
+			r.rect.set(fernRegions.get(i));
+			r.confidence = confidence.data[i];
+		}
+	}
+
+	/**
+	 * Storage and interpolation used by a single block
+	 */
+	private class Block {
+		InterpolatePixelS<T> interpolate = FactoryInterpolation.createPixelS(0, 255, typeInterp, imageType);
+		NccFeature observed = new NccFeature(15*15);
+
+		FastQueue<TldRegionFernInfo> fernInfo = new FastQueue<TldRegionFernInfo>(TldRegionFernInfo.class,true);
+		int totalP, totalN;
+
+		public void computeFernInfo( FastQueue<ImageRectangle> cascadeRegions , int start , int end ) {
+			totalP = 0;
+			totalN = 0;
+
+			TldRegionFernInfo info = fernInfo.grow();
+			for( int i = start; i < end; i++ ) {
+				ImageRectangle region = cascadeRegions.get(i);
+
+				if( !variance.checkVariance(region)) {
+					continue;
+				}
+
+				info.r = region;
+
+				if( fern.lookupFernPN(info, interpolate)) {
+					totalP += info.sumP;
+					totalN += info.sumN;
+					info = fernInfo.grow();
+				}
+			}
+			fernInfo.removeTail();
+		}
+	}
+}
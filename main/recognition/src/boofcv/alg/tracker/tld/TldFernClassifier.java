@@ -170,6 +170,19 @@ public class TldFernClassifier<T extends ImageSingleBand> {
 	 * @return true if a known value for any of the ferns was observed in this region
 	 */
 	public boolean lookupFernPN( TldRegionFernInfo info ) {
+		return lookupFernPN(info, interpolate);
+	}
+
+	/**
+	 * Same as {@link #lookupFernPN(TldRegionFernInfo)} but the image is sampled using the provided interpolation.
+	 * Ferns are only read so this can be called by several threads at once, as long as each has its own
+	 * interpolation.
+	 *
+	 * @param info (Input) Location/Rectangle (output) P and N values
+	 * @param interpolate Interpolation for the current image.
+	 * @return true if a known value for any of the ferns was observed in this region
+	 */
+	public boolean lookupFernPN( TldRegionFernInfo info , InterpolatePixelS<T> interpolate ) {
 
 		ImageRectangle r = info.r;
 
@@ -185,7 +198,7 @@ public class TldFernClassifier<T extends ImageSingleBand> {
 		for( int i = 0; i < ferns.length; i++ ) {
 			TldFernDescription fern = ferns[i];
 
-			int value = computeFernValue(c_x, c_y, rectWidth, rectHeight, fern);
+			int value = computeFernValue(c_x, c_y, rectWidth, rectHeight, fern, interpolate);
 
 			TldFernFeature f = managers[i].table[value];
 			if( f != null ) {
@@ -204,6 +217,14 @@ public class TldFernClassifier<T extends ImageSingleBand> {
 	 * Computes the value of the specified fern at the specified location in the image.
 	 */
 	protected int computeFernValue(float c_x, float c_y, float rectWidth , float rectHeight , TldFernDescription fern ) {
+		return computeFernValue(c_x, c_y, rectWidth, rectHeight, fern, interpolate);
+	}
+
+	/**
+	 * Computes the value of the specified fern using the provided interpolation.
+	 */
+	protected int computeFernValue(float c_x, float c_y, float rectWidth , float rectHeight ,
+								   TldFernDescription fern , InterpolatePixelS<T> interpolate ) {
 
 		rectWidth -= 1;
 		rectHeight -= 1;
@@ -291,6 +312,10 @@ public class TldFernClassifier<T extends ImageSingleBand> {
 		maxN = targetMax;
 	}
 
+	public InterpolatePixelS<T> getInterpolate() {
+		return interpolate;
+	}
+
 	public int getMaxP() {
 		return maxP;
 	}
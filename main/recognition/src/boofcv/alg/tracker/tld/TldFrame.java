@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.tld;
+
+import boofcv.abst.tracker.TrackerSharedFrame;
+import boofcv.factory.transform.pyramid.FactoryPyramid;
+import boofcv.struct.image.ImageSingleBand;
+import boofcv.struct.pyramid.PyramidDiscrete;
+
+/**
+ * Image pyramid and integral images used by {@link TldTracker} for a single video frame.  When several objects
+ * are tracked in the same video these only need to be computed once and can be shared by all the trackers, see
+ * {@link TldTracker#track(TldFrame)}.  Trackers sharing a frame must have the same trackerFeatureRadius, since
+ * that determines the pyramid's scales.
+ *
+ * @author Peter Abeles
+ */
+public class TldFrame<T extends ImageSingleBand> implements TrackerSharedFrame<T> {
+
+	// smallest allowed layer in the pyramid
+	private int minSize;
+	private Class<T> imageType;
+
+	// the image which was processed
+	private T image;
+	// sequence number of the processed image
+	private long frameId = -1;
+	private PyramidDiscrete<T> pyramid;
+	// computes the integral images
+	private TldVarianceFilter<T> variance;
+
+	public TldFrame( TldParameters config , Class<T> imageType ) {
+		this.minSize = (config.trackerFeatureRadius*2+1)*5;
+		this.imageType = imageType;
+
+		variance = new TldVarianceFilter<T>(imageType);
+	}
+
+	@Override
+	public void process( T image ) {
+		if( pyramid == null ||
+				pyramid.getInputWidth() != image.width || pyramid.getInputHeight() != image.height ) {
+			int scales[] = TldTracker.selectPyramidScale(image.width,image.height,minSize);
+			pyramid = FactoryPyramid.discreteGaussian(scales,-1,1,true,imageType);
+		}
+		pyramid.process(image);
+		variance.setImage(image);
+
+		this.image = image;
+		frameId++;
+	}
+
+	@Override
+	public T getImage() {
+		return image;
+	}
+
+	@Override
+	public long getFrameId() {
+		return frameId;
+	}
+
+	public PyramidDiscrete<T> getPyramid() {
+		return pyramid;
+	}
+
+	public TldVarianceFilter<T> getVariance() {
+		return variance;
+	}
+}
@@ -127,6 +127,14 @@ public class TldTemplateMatching<T extends ImageSingleBand> {
 	 * Computes the NCC descriptor by sample points at evenly spaced distances inside the rectangle
 	 */
 	public void computeNccDescriptor( NccFeature f , float x0 , float y0 , float x1 , float y1 ) {
+		computeNccDescriptor(f, x0, y0, x1, y1, interpolate);
+	}
+
+	/**
+	 * Computes the NCC descriptor using the provided interpolation
+	 */
+	public void computeNccDescriptor( NccFeature f , float x0 , float y0 , float x1 , float y1 ,
+									  InterpolatePixelS<T> interpolate ) {
 		double mean = 0;
 		float widthStep = (x1-x0)/15.0f;
 		float heightStep = (y1-y0)/15.0f;
@@ -177,8 +185,22 @@ public class TldTemplateMatching<T extends ImageSingleBand> {
 	 * @return value from 0 to 1, where higher values are more confident
 	 */
 	public double computeConfidence( int x0 , int y0 , int x1 , int y1 ) {
+		return computeConfidence(x0, y0, x1, y1, observed, interpolate);
+	}
+
+	/**
+	 * Same as {@link #computeConfidence(int, int, int, int)} but uses the provided storage and interpolation.
+	 * Templates are only read so this can be called by several threads at once, as long as each has its own
+	 * storage and interpolation.
+	 *
+	 * @param observed Storage for the region's descriptor
+	 * @param interpolate Interpolation for the current image.
+	 * @return value from 0 to 1, where higher values are more confident
+	 */
+	public double computeConfidence( int x0 , int y0 , int x1 , int y1 ,
+									 NccFeature observed , InterpolatePixelS<T> interpolate ) {
 
-		computeNccDescriptor(observed,x0,y0,x1,y1);
+		computeNccDescriptor(observed,x0,y0,x1,y1,interpolate);
 
 		// distance from each set of templates
 		if( templateNegative.size() > 0 && templatePositive.size() > 0 ) {
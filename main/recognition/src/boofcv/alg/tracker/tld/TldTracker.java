@@ -20,9 +20,9 @@ package boofcv.alg.tracker.tld;
 
 import boofcv.abst.filter.derivative.ImageGradient;
 import boofcv.alg.interpolate.InterpolatePixelS;
+import boofcv.alg.interpolate.TypeInterpolate;
 import boofcv.alg.tracker.klt.PyramidKltTracker;
 import boofcv.factory.tracker.FactoryTrackerAlg;
-import boofcv.factory.transform.pyramid.FactoryPyramid;
 import boofcv.struct.ImageRectangle;
 import boofcv.struct.image.ImageSingleBand;
 import boofcv.struct.pyramid.PyramidDiscrete;
@@ -80,6 +80,8 @@ public class TldTracker<T extends ImageSingleBand, D extends ImageSingleBand> {
 
 	// Image pyramid of input image
 	private PyramidDiscrete<T> imagePyramid;
+	// computes the image pyramid and integral images when a shared frame isn't provided
+	private TldFrame<T> localFrame;
 
 	// Tracks features inside the current region
 	private TldRegionTracker<T,D> tracking;
@@ -118,6 +120,20 @@ public class TldTracker<T extends ImageSingleBand, D extends ImageSingleBand> {
 	public TldTracker( TldParameters config ,
 					   InterpolatePixelS<T> interpolate , ImageGradient<T,D> gradient ,
 					   Class<T> imageType , Class<D> derivType) {
+		this(config,interpolate,null,gradient,imageType,derivType);
+	}
+
+	/**
+	 * Configures the TLD tracker and optionally runs the detection cascade concurrently.
+	 *
+	 * @param config Configuration class which specifies the tracker's behavior
+	 * @param concurrentInterp If not null then {@link TldDetectionParallel} is used and each thread samples the
+	 *                         image using this type of interpolation.  Must be the same type as interpolate.
+	 */
+	public TldTracker( TldParameters config ,
+					   InterpolatePixelS<T> interpolate , TypeInterpolate concurrentInterp ,
+					   ImageGradient<T,D> gradient ,
+					   Class<T> imageType , Class<D> derivType) {
 		this.config = config;
 
 		Random rand = new Random(config.randomSeed);
@@ -127,12 +143,16 @@ public class TldTracker<T extends ImageSingleBand, D extends ImageSingleBand> {
 		tracking = new TldRegionTracker<T, D>(config.trackerGridWidth,config.trackerFeatureRadius,
 				config.maximumErrorFB,gradient,tracker,imageType,derivType);
 		adjustRegion = new TldAdjustRegion(config.motionIterations);
+		localFrame = new TldFrame<T>(config,imageType);
 		variance = new TldVarianceFilter<T>(imageType);
 		template = new TldTemplateMatching<T>(interpolate);
 		fern = new TldFernClassifier<T>(
 				rand,config.numFerns,config.fernSize,20,0.5f,interpolate);
 
-		detection = new TldDetection<T>(fern,template,variance,config);
+		if( concurrentInterp == null )
+			detection = new TldDetection<T>(fern,template,variance,config);
+		else
+			detection = new TldDetectionParallel<T>(fern,template,variance,config,concurrentInterp,imageType);
 		learning = new TldLearning<T>(rand,config,template,variance,fern,detection);
 	}
 
@@ -146,14 +166,23 @@ public class TldTracker<T extends ImageSingleBand, D extends ImageSingleBand> {
 	 * @param y1 Bottom-right corner of rectangle. y-axis
 	 */
 	public void initialize( T image , int x0 , int y0 , int x1 , int y1 ) {
+		localFrame.process(image);
+		initialize(localFrame, x0, y0, x1, y1);
+	}
 
-		if( imagePyramid == null ||
-				imagePyramid.getInputWidth() != image.width || imagePyramid.getInputHeight() != image.height ) {
-			int minSize = (config.trackerFeatureRadius*2+1)*5;
-			int scales[] = selectPyramidScale(image.width,image.height,minSize);
-			imagePyramid = FactoryPyramid.discreteGaussian(scales,-1,1,true,(Class<T>)image.getClass());
-		}
-		imagePyramid.process(image);
+	/**
+	 * Starts tracking the rectangular region using a frame which has already been processed.  The frame can be
+	 * shared with other trackers and is not modified.
+	 *
+	 * @param frame Processed first image in the sequence.
+	 * @param x0 Top-left corner of rectangle. x-axis
+	 * @param y0 Top-left corner of rectangle. y-axis
+	 * @param x1 Bottom-right corner of rectangle. x-axis
+	 * @param y1 Bottom-right corner of rectangle. y-axis
+	 */
+	public void initialize( TldFrame<T> frame , int x0 , int y0 , int x1 , int y1 ) {
+		T image = frame.getImage();
+		imagePyramid = frame.getPyramid();
 
 		reacquiring = false;
 
@@ -164,9 +193,7 @@ public class TldTracker<T extends ImageSingleBand, D extends ImageSingleBand> {
 		fern.reset();
 
 		tracking.initialize(imagePyramid);
-		variance.setImage(image);
-		template.setImage(image);
-		fern.setImage(image);
+		setImage(frame);
 		adjustRegion.init(image.width,image.height);
 
 		learning.initialLearning(targetRegion, cascadeRegions);
@@ -232,14 +259,24 @@ public class TldTracker<T extends ImageSingleBand, D extends ImageSingleBand> {
 	 * @return true if the object could be found and false if not
 	 */
 	public boolean track( T image ) {
+		localFrame.process(image);
+		return track(localFrame);
+	}
+
+	/**
+	 * Updates track region using a frame which has already been processed.  The frame can be shared with other
+	 * trackers and is not modified.
+	 *
+	 * @param frame Processed next image in the sequence.
+	 * @return true if the object could be found and false if not
+	 */
+	public boolean track( TldFrame<T> frame ) {
 
 		boolean success = true;
 		valid = false;
 
-		imagePyramid.process(image);
-		template.setImage(image);
-		variance.setImage(image);
-		fern.setImage(image);
+		imagePyramid = frame.getPyramid();
+		setImage(frame);
 
 		if( reacquiring ) {
 			// It can reinitialize if there is a single detection
@@ -289,6 +326,15 @@ public class TldTracker<T extends ImageSingleBand, D extends ImageSingleBand> {
 		return success;
 	}
 
+	private void setImage( TldFrame<T> frame ) {
+		T image = frame.getImage();
+		TldVarianceFilter<T> v = frame.getVariance();
+
+		variance.setIntegral(v.getIntegral(), v.getIntegralSq());
+		template.setImage(image);
+		fern.setImage(image);
+	}
+
 	private void checkNewTrackStrong( double confidence ) {
 		// see if there is very high confidence of a match
 		strongMatch = confidence > config.confidenceThresholdStrong;
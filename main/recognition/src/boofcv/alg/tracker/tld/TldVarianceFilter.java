@@ -41,6 +41,10 @@ public class TldVarianceFilter<T extends ImageSingleBand> {
 	// integral image of the pixel value squared
 	private ImageSingleBand integralSq;
 
+	// storage for integral images computed by setImage().  Integral images can also be provided externally
+	private ImageSingleBand localIntegral;
+	private ImageSingleBand localIntegralSq;
+
 	/**
 	 * Constructor which specifies the input image type.
 	 *
@@ -50,12 +54,14 @@ public class TldVarianceFilter<T extends ImageSingleBand> {
 
 		// declare integral images.
 		if(GeneralizedImageOps.isFloatingPoint(imageType) ) {
-			integral = new ImageFloat32(1,1);
-			integralSq = new ImageFloat64(1,1);
+			localIntegral = new ImageFloat32(1,1);
+			localIntegralSq = new ImageFloat64(1,1);
 		} else {
-			integral = new ImageSInt32(1,1);
-			integralSq = new ImageSInt64(1,1);
+			localIntegral = new ImageSInt32(1,1);
+			localIntegralSq = new ImageSInt64(1,1);
 		}
+		integral = localIntegral;
+		integralSq = localIntegralSq;
 	}
 
 	protected TldVarianceFilter() {
@@ -67,6 +73,9 @@ public class TldVarianceFilter<T extends ImageSingleBand> {
 	 * @param gray input image
 	 */
 	public void setImage(T gray) {
+		integral = localIntegral;
+		integralSq = localIntegralSq;
+
 		integral.reshape(gray.width,gray.height);
 		integralSq.reshape(gray.width,gray.height);
 
@@ -77,6 +86,18 @@ public class TldVarianceFilter<T extends ImageSingleBand> {
 			transformSq((ImageFloat32)gray,(ImageFloat64)integralSq);
 	}
 
+	/**
+	 * Uses integral images which have already been computed, e.g. by another instance which is processing
+	 * the same image.  Only references are saved.  Use instead of {@link #setImage(ImageSingleBand)}.
+	 *
+	 * @param integral Integral image of the input image
+	 * @param integralSq Integral image of the input image's pixel values squared
+	 */
+	public void setIntegral( ImageSingleBand integral , ImageSingleBand integralSq ) {
+		this.integral = integral;
+		this.integralSq = integralSq;
+	}
+
 	/**
 	 * Selects a threshold based on image statistics.  The paper suggestions 1/2 the variance in the initial patch
 	 */
@@ -189,6 +210,14 @@ public class TldVarianceFilter<T extends ImageSingleBand> {
 		}
 	}
 
+	public ImageSingleBand getIntegral() {
+		return integral;
+	}
+
+	public ImageSingleBand getIntegralSq() {
+		return integralSq;
+	}
+
 	public double getThresholdLower() {
 		return thresholdLower;
 	}
@@ -21,7 +21,9 @@ package boofcv.factory.tracker;
 import boofcv.abst.filter.derivative.ImageGradient;
 import boofcv.abst.tracker.ConfigCirculantTracker;
 import boofcv.alg.interpolate.InterpolatePixelS;
+import boofcv.alg.tracker.circulant.CirculantScaleEstimator;
 import boofcv.alg.tracker.circulant.CirculantTracker;
+import boofcv.alg.tracker.circulant.CirculantTrackerF32;
 import boofcv.alg.tracker.meanshift.LikelihoodHistCoupled_U8;
 import boofcv.alg.tracker.meanshift.LikelihoodHueSatHistCoupled_U8;
 import boofcv.alg.tracker.meanshift.LikelihoodHueSatHistInd_U8;
@@ -115,4 +117,32 @@ public class FactoryTrackerObjectAlgs {
 				config.workSpace,
 				config.maxPixelValue,interp);
 	}
+
+	/**
+	 * Single precision version of {@link #circulant} which can also track using multiple feature channels.  If
+	 * requested in the configuration the target's scale is also estimated.
+	 *
+	 * @see CirculantTrackerF32
+	 */
+	public static <T extends ImageSingleBand>
+	CirculantTrackerF32<T> circulantF32( ConfigCirculantTracker config , Class<T> imageType) {
+		if( config == null )
+			config = new ConfigCirculantTracker();
+
+		InterpolatePixelS<T> interp = FactoryInterpolation.bilinearPixelS(imageType);
+
+		CirculantTrackerF32<T> alg = new CirculantTrackerF32<T>(
+				(float)config.output_sigma_factor,(float)config.sigma,(float)config.lambda,(float)config.interp_factor,
+				(float)config.padding,
+				config.workSpace,
+				(float)config.maxPixelValue,interp);
+
+		if( config.estimateScale ) {
+			alg.setScaleEstimator(new CirculantScaleEstimator(config.scaleCount,(float)config.scaleStep,
+					(float)config.lambda,(float)config.scaleInterpFactor,config.scaleMaxModelArea,
+					(float)config.maxPixelValue));
+		}
+
+		return alg;
+	}
 }
@@ -23,13 +23,19 @@ import boofcv.abst.tracker.*;
 import boofcv.alg.filter.derivative.GImageDerivativeOps;
 import boofcv.alg.interpolate.InterpolatePixelMB;
 import boofcv.alg.interpolate.InterpolatePixelS;
+import boofcv.alg.interpolate.TypeInterpolate;
 import boofcv.alg.tracker.circulant.CirculantTracker;
+import boofcv.alg.tracker.circulant.CirculantTrackerF32;
+import boofcv.alg.tracker.meanshift.HueSatBinFrame;
+import boofcv.alg.tracker.meanshift.LikelihoodHueSatHistCoupled_U8;
+import boofcv.alg.tracker.meanshift.LikelihoodHueSatHistInd_U8;
 import boofcv.alg.tracker.meanshift.LocalWeightedHistogramRotRect;
 import boofcv.alg.tracker.meanshift.PixelLikelihood;
 import boofcv.alg.tracker.meanshift.TrackerMeanShiftComaniciu2003;
 import boofcv.alg.tracker.meanshift.TrackerMeanShiftLikelihood;
 import boofcv.alg.tracker.sfot.SfotConfig;
 import boofcv.alg.tracker.sfot.SparseFlowObjectTracker;
+import boofcv.alg.tracker.tld.TldFrame;
 import boofcv.alg.tracker.tld.TldTracker;
 import boofcv.factory.filter.derivative.FactoryDerivative;
 import boofcv.factory.interpolate.FactoryInterpolation;
@@ -56,6 +62,22 @@ public class FactoryTrackerObjectQuad {
 	 */
 	public static <T extends ImageSingleBand,D extends ImageSingleBand>
 	TrackerObjectQuad<T> tld(ConfigTld config , Class<T> imageType ) {
+		return tld(config,null,imageType);
+	}
+
+	/**
+	 * Create an instance of {@link TldTracker  Tracking-Learning-Detection (TLD)} tracker for the
+	 * {@link TrackerObjectQuad} interface which can share the per-frame image pyramid and integral images with
+	 * other TLD trackers.  See {@link boofcv.abst.tracker.TrackerObjectQuadManager}.
+	 *
+	 * @param config Configuration for the tracker
+	 * @param shared (Optional) Frame which is shared between trackers.  Can be null.
+	 * @param <T> Image input type
+	 * @param <D> Image derivative type
+	 * @return TrackerObjectQuad
+	 */
+	public static <T extends ImageSingleBand,D extends ImageSingleBand>
+	TrackerObjectQuad<T> tld(ConfigTld config , TldFrame<T> shared , Class<T> imageType ) {
 		if( config == null )
 			config = new ConfigTld();
 
@@ -64,9 +86,12 @@ public class FactoryTrackerObjectQuad {
 		InterpolatePixelS<T> interpolate = FactoryInterpolation.bilinearPixelS(imageType);
 		ImageGradient<T,D> gradient =  FactoryDerivative.sobel(imageType, derivType);
 
-		TldTracker<T,D> tracker = new TldTracker<T,D>(config.parameters,interpolate,gradient,imageType,derivType);
+		TypeInterpolate concurrentInterp = config.concurrent ? TypeInterpolate.BILINEAR : null;
+
+		TldTracker<T,D> tracker = new TldTracker<T,D>(config.parameters,interpolate,concurrentInterp,
+				gradient,imageType,derivType);
 
-		return new Tld_to_TrackerObjectQuad<T,D>(tracker,imageType);
+		return new Tld_to_TrackerObjectQuad<T,D>(tracker,shared,imageType);
 	}
 
 	/**
@@ -103,6 +128,61 @@ public class FactoryTrackerObjectQuad {
 											 double maxPixelValue,
 											 MeanShiftLikelihoodType modelType,
 											 ImageType<T> imageType) {
+		return meanShiftLikelihood(maxIterations, numBins, maxPixelValue, modelType, false, imageType);
+	}
+
+	/**
+	 * Very basic and very fast implementation of mean-shift which uses a fixed sized rectangle for its region.
+	 * Works best when the target is composed of a single color.
+	 *
+	 * @see TrackerMeanShiftLikelihood
+	 *
+	 * @param maxIterations Maximum number of mean-shift iterations.  Try 30.
+	 * @param numBins Number of bins in the histogram color model.  Try 5.
+	 * @param maxPixelValue Maximum number of pixel values.  For 8-bit images this will be 256
+	 * @param modelType Type of color model used.
+	 * @param precompute If true the likelihood is computed concurrently inside a search region at the start of
+	 *                   each frame.  Faster when the target moves a lot between frames or multiple threads are used.
+	 * @param imageType Type of image
+	 * @return TrackerObjectQuad based on {@link TrackerMeanShiftLikelihood}.
+	 */
+	public static <T extends ImageMultiBand>
+	TrackerObjectQuad<T> meanShiftLikelihood(int maxIterations,
+											 int numBins,
+											 double maxPixelValue,
+											 MeanShiftLikelihoodType modelType,
+											 boolean precompute,
+											 ImageType<T> imageType) {
+		return meanShiftLikelihood(maxIterations, numBins, maxPixelValue, modelType, precompute, null, imageType);
+	}
+
+	/**
+	 * Very basic and very fast implementation of mean-shift which uses a fixed sized rectangle for its region.
+	 * The Hue-Saturation likelihoods can read the histogram bin of each pixel from a frame which is shared
+	 * with other trackers, so that each pixel is only converted once.  See
+	 * {@link boofcv.abst.tracker.TrackerObjectQuadManager}.
+	 *
+	 * @see TrackerMeanShiftLikelihood
+	 *
+	 * @param maxIterations Maximum number of mean-shift iterations.  Try 30.
+	 * @param numBins Number of bins in the histogram color model.  Try 5.
+	 * @param maxPixelValue Maximum number of pixel values.  For 8-bit images this will be 256
+	 * @param modelType Type of color model used.
+	 * @param precompute If true the likelihood is computed concurrently inside a search region at the start of
+	 *                   each frame.  Faster when the target moves a lot between frames or multiple threads are used.
+	 * @param shared (Optional) Frame which is shared between trackers.  Only supported by the RGB_to_HSV models.
+	 *               Can be null.
+	 * @param imageType Type of image
+	 * @return TrackerObjectQuad based on {@link TrackerMeanShiftLikelihood}.
+	 */
+	public static <T extends ImageMultiBand>
+	TrackerObjectQuad<T> meanShiftLikelihood(int maxIterations,
+											 int numBins,
+											 double maxPixelValue,
+											 MeanShiftLikelihoodType modelType,
+											 boolean precompute,
+											 HueSatBinFrame shared,
+											 ImageType<T> imageType) {
 		PixelLikelihood<T> likelihood;
 
 		switch( modelType ) {
@@ -122,8 +202,17 @@ public class FactoryTrackerObjectQuad {
 				throw new IllegalArgumentException("Unknown likelihood model "+modelType);
 		}
 
+		if( shared != null ) {
+			if( likelihood instanceof LikelihoodHueSatHistInd_U8 )
+				((LikelihoodHueSatHistInd_U8)likelihood).setShared(shared);
+			else if( likelihood instanceof LikelihoodHueSatHistCoupled_U8 )
+				((LikelihoodHueSatHistCoupled_U8)likelihood).setShared(shared);
+			else
+				throw new IllegalArgumentException("Shared frames aren't supported by "+modelType);
+		}
+
 		TrackerMeanShiftLikelihood<T> alg =
-				new TrackerMeanShiftLikelihood<T>(likelihood,maxIterations,0.1f);
+				new TrackerMeanShiftLikelihood<T>(likelihood,maxIterations,0.1f,precompute);
 
 		return new Msl_to_TrackerObjectQuad<T>(alg,likelihood,imageType);
 	}
@@ -157,10 +246,12 @@ public class FactoryTrackerObjectQuad {
 
 	/**
 	 * Creates the Circulant feature tracker.  Texture based tracker which uses the theory of circulant matrices,
-	 * Discrete Fourier Transform (DCF), and linear classifiers to track a target.  Fixed sized rectangular target
-	 * and only estimates translation.  Can't detect when it loses track or re-aquire track.
+	 * Discrete Fourier Transform (DCF), and linear classifiers to track a target.  Rectangular target which
+	 * only estimates translation, unless scale estimation is turned on in the configuration.  Can't detect when it
+	 * loses track or re-aquire track.
 	 *
 	 * @see {@link CirculantTracker}
+	 * @see {@link CirculantTrackerF32}
 	 *
 	 * @param config Configuration
 	 * @return CirculantTracker
@@ -168,6 +259,12 @@ public class FactoryTrackerObjectQuad {
 	public static <T extends ImageSingleBand>
 	TrackerObjectQuad<T> circulant( ConfigCirculantTracker config , Class<T> imageType ) {
 
+		if( config != null && config.estimateScale ) {
+			CirculantTrackerF32<T> alg = FactoryTrackerObjectAlgs.circulantF32(config,imageType);
+
+			return new CirculantF32_to_TrackerObjectQuad<T>(alg,ImageType.single(imageType));
+		}
+
 		CirculantTracker<T> alg = FactoryTrackerObjectAlgs.circulant(config,imageType);
 
 		return new Circulant_to_TrackerObjectQuad<T>(alg,ImageType.single(imageType));
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.abst.tracker;
+
+import boofcv.alg.tracker.meanshift.HueSatBinFrame;
+import boofcv.alg.tracker.tld.TldFrame;
+import boofcv.alg.tracker.tld.TldParameters;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.factory.tracker.FactoryTrackerObjectQuad;
+import boofcv.struct.image.ImageType;
+import boofcv.struct.image.ImageUInt8;
+import boofcv.struct.image.MultiSpectral;
+import georegression.struct.shapes.Polygon2D_I32;
+import georegression.struct.shapes.Quadrilateral_F64;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestTrackerObjectQuadManager {
+
+	int width = 320;
+	int height = 240;
+
+	ImageUInt8 input = new ImageUInt8(width,height);
+
+	Quadrilateral_F64 regionA = new Quadrilateral_F64(20,25,120,25,120,160,20,160);
+	Quadrilateral_F64 regionB = new Quadrilateral_F64(150,60,230,60,230,140,150,140);
+
+	/**
+	 * TLD trackers which share the per-frame data should produce the same results as independent trackers,
+	 * independent of the number of threads
+	 */
+	@Test
+	public void compareToIndependent() {
+		int before = BoofConcurrency.getMaxThreads();
+		try {
+			BoofConcurrency.setMaxThreads(1);
+			compareToIndependent_threads();
+			BoofConcurrency.setMaxThreads(4);
+			compareToIndependent_threads();
+		} finally {
+			BoofConcurrency.setMaxThreads(before);
+		}
+	}
+
+	private void compareToIndependent_threads() {
+		TldFrame<ImageUInt8> shared = new TldFrame<ImageUInt8>(new TldParameters(),ImageUInt8.class);
+		TrackerObjectQuadManager<ImageUInt8> alg = new TrackerObjectQuadManager<ImageUInt8>();
+		alg.addShared(shared);
+
+		TrackerObjectQuad<ImageUInt8> expectedA = FactoryTrackerObjectQuad.tld(null, ImageUInt8.class);
+		TrackerObjectQuad<ImageUInt8> expectedB = FactoryTrackerObjectQuad.tld(null, ImageUInt8.class);
+
+		int idA = alg.addTarget(FactoryTrackerObjectQuad.tld(null, shared, ImageUInt8.class), regionA);
+		int idB = alg.addTarget(FactoryTrackerObjectQuad.tld(null, shared, ImageUInt8.class), regionB);
+
+		Quadrilateral_F64 foundA = new Quadrilateral_F64();
+		Quadrilateral_F64 foundB = new Quadrilateral_F64();
+
+		render(0,0);
+		alg.process(input);
+		assertEquals(expectedA.initialize(input,regionA),alg.getTarget(idA).isVisible());
+		assertEquals(expectedB.initialize(input,regionB),alg.getTarget(idB).isVisible());
+
+		int totalVisible = 0;
+		for( int i = 1; i < 6; i++ ) {
+			render(2*i,-i);
+			alg.process(input);
+
+			boolean visibleA = expectedA.process(input, foundA);
+			boolean visibleB = expectedB.process(input, foundB);
+
+			assertEquals(visibleA,alg.getTarget(idA).isVisible());
+			assertEquals(visibleB,alg.getTarget(idB).isVisible());
+			if( visibleA ) {
+				checkIdentical(foundA, alg.getTarget(idA).getLocation());
+				totalVisible++;
+			}
+			if( visibleB ) {
+				checkIdentical(foundB, alg.getTarget(idB).getLocation());
+				totalVisible++;
+			}
+		}
+
+		// sanity check to make sure something was being tracked
+		assertTrue(totalVisible > 0);
+	}
+
+	/**
+	 * New pixels are written into the same image instance each frame without the shared frame processing them.
+	 * The tracker must not use the shared frame's stale data.
+	 */
+	@Test
+	public void sharedFrame_reusedImage() {
+		TldFrame<ImageUInt8> shared = new TldFrame<ImageUInt8>(new TldParameters(),ImageUInt8.class);
+
+		TrackerObjectQuad<ImageUInt8> expected = FactoryTrackerObjectQuad.tld(null, ImageUInt8.class);
+		TrackerObjectQuad<ImageUInt8> alg = FactoryTrackerObjectQuad.tld(null, shared, ImageUInt8.class);
+
+		ImageUInt8 frame = new ImageUInt8(width,height);
+		Quadrilateral_F64 foundExpected = new Quadrilateral_F64();
+		Quadrilateral_F64 found = new Quadrilateral_F64();
+
+		render(0,0);
+		frame.setTo(input);
+		shared.process(frame);
+		assertEquals(expected.initialize(frame,regionA),alg.initialize(frame,regionA));
+
+		int totalVisible = 0;
+		for( int i = 1; i < 6; i++ ) {
+			render(2*i,-i);
+			frame.setTo(input);
+
+			boolean visible = expected.process(frame, foundExpected);
+			assertEquals(visible,alg.process(frame, found));
+			if( visible ) {
+				checkIdentical(foundExpected, found);
+				totalVisible++;
+			}
+		}
+
+		assertTrue(totalVisible > 0);
+	}
+
+	/**
+	 * Mean-shift trackers which read the color bins from a shared frame should produce the same results as
+	 * independent trackers
+	 */
+	@Test
+	public void compareToIndependent_meanShift() {
+		int before = BoofConcurrency.getMaxThreads();
+		try {
+			BoofConcurrency.setMaxThreads(1);
+			compareToIndependent_meanShift(MeanShiftLikelihoodType.HISTOGRAM_RGB_to_HSV);
+			BoofConcurrency.setMaxThreads(4);
+			compareToIndependent_meanShift(MeanShiftLikelihoodType.HISTOGRAM_RGB_to_HSV);
+			compareToIndependent_meanShift(MeanShiftLikelihoodType.HISTOGRAM_INDEPENDENT_RGB_to_HSV);
+		} finally {
+			BoofConcurrency.setMaxThreads(before);
+		}
+	}
+
+	private void compareToIndependent_meanShift( MeanShiftLikelihoodType modelType ) {
+		ImageType<MultiSpectral<ImageUInt8>> imageType = ImageType.ms(3, ImageUInt8.class);
+		HueSatBinFrame shared = new HueSatBinFrame(255,5);
+		TrackerObjectQuadManager<MultiSpectral<ImageUInt8>> alg =
+				new TrackerObjectQuadManager<MultiSpectral<ImageUInt8>>();
+		alg.addShared(shared);
+
+		TrackerObjectQuad<MultiSpectral<ImageUInt8>> expectedA =
+				FactoryTrackerObjectQuad.meanShiftLikelihood(30, 5, 255, modelType, imageType);
+		TrackerObjectQuad<MultiSpectral<ImageUInt8>> expectedB =
+				FactoryTrackerObjectQuad.meanShiftLikelihood(30, 5, 255, modelType, imageType);
+
+		int idA = alg.addTarget(FactoryTrackerObjectQuad.meanShiftLikelihood(30, 5, 255, modelType,
+				false, shared, imageType), regionA);
+		int idB = alg.addTarget(FactoryTrackerObjectQuad.meanShiftLikelihood(30, 5, 255, modelType,
+				false, shared, imageType), regionB);
+
+		Quadrilateral_F64 foundA = new Quadrilateral_F64();
+		Quadrilateral_F64 foundB = new Quadrilateral_F64();
+
+		MultiSpectral<ImageUInt8> color = renderColor(0,0);
+		alg.process(color);
+		assertEquals(expectedA.initialize(color,regionA),alg.getTarget(idA).isVisible());
+		assertEquals(expectedB.initialize(color,regionB),alg.getTarget(idB).isVisible());
+
+		int totalVisible = 0;
+		for( int i = 1; i < 6; i++ ) {
+			color = renderColor(2*i,-i);
+			alg.process(color);
+
+			boolean visibleA = expectedA.process(color, foundA);
+			boolean visibleB = expectedB.process(color, foundB);
+
+			assertEquals(visibleA,alg.getTarget(idA).isVisible());
+			assertEquals(visibleB,alg.getTarget(idB).isVisible());
+			if( visibleA ) {
+				checkIdentical(foundA, alg.getTarget(idA).getLocation());
+				totalVisible++;
+			}
+			if( visibleB ) {
+				checkIdentical(foundB, alg.getTarget(idB).getLocation());
+				totalVisible++;
+			}
+		}
+
+		assertTrue(totalVisible > 0);
+	}
+
+	@Test
+	public void addRemoveTargets() {
+		TrackerObjectQuadManager<ImageUInt8> alg = new TrackerObjectQuadManager<ImageUInt8>();
+
+		Dummy a = new Dummy(true);
+		Dummy b = new Dummy(true);
+
+		int idA = alg.addTarget(a, regionA);
+		assertEquals(0, alg.getTargets().size());
+
+		alg.process(input);
+		assertEquals(1, alg.getTargets().size());
+		assertEquals(1, a.numInitialize);
+		assertEquals(0, a.numProcess);
+
+		int idB = alg.addTarget(b, regionB);
+		assertTrue(idA != idB);
+		alg.process(input);
+		assertEquals(2, alg.getTargets().size());
+		assertEquals(1, a.numInitialize);
+		assertEquals(1, a.numProcess);
+		assertEquals(1, b.numInitialize);
+		assertEquals(0, b.numProcess);
+
+		// request is applied on the next frame
+		alg.removeTarget(idA);
+		assertEquals(2, alg.getTargets().size());
+		alg.process(input);
+		assertEquals(1, alg.getTargets().size());
+		assertNull(alg.getTarget(idA));
+		assertTrue(b == alg.getTarget(idB).getTracker());
+		assertEquals(1, a.numProcess);
+		assertEquals(1, b.numProcess);
+
+		// removing a target which was never processed
+		Dummy c = new Dummy(true);
+		int idC = alg.addTarget(c, regionA);
+		alg.removeTarget(idC);
+		alg.process(input);
+		assertEquals(1, alg.getTargets().size());
+		assertEquals(0, c.numInitialize);
+	}
+
+	@Test
+	public void maxFramesLost() {
+		TrackerObjectQuadManager<ImageUInt8> alg = new TrackerObjectQuadManager<ImageUInt8>(3);
+
+		int idA = alg.addTarget(new Dummy(false), regionA);
+		int idB = alg.addTarget(new Dummy(true), regionB);
+
+		for( int i = 0; i < 2; i++ ) {
+			alg.process(input);
+			assertEquals(2, alg.getTargets().size());
+			assertEquals(i+1, alg.getTarget(idA).getFramesLost());
+			assertFalse(alg.getTarget(idA).isVisible());
+			assertEquals(0, alg.getTarget(idB).getFramesLost());
+		}
+		alg.process(input);
+		assertEquals(1, alg.getTargets().size());
+		assertNull(alg.getTarget(idA));
+
+		// it should never remove targets when turned off
+		alg.setMaxFramesLost(0);
+		idA = alg.addTarget(new Dummy(false), regionA);
+		for( int i = 0; i < 10; i++ ) {
+			alg.process(input);
+		}
+		assertEquals(10, alg.getTarget(idA).getFramesLost());
+	}
+
+	private void checkIdentical( Quadrilateral_F64 expected , Quadrilateral_F64 found ) {
+		assertEquals(expected.a.x, found.a.x, 1e-8);
+		assertEquals(expected.a.y, found.a.y, 1e-8);
+		assertEquals(expected.b.x, found.b.x, 1e-8);
+		assertEquals(expected.b.y, found.b.y, 1e-8);
+		assertEquals(expected.c.x, found.c.x, 1e-8);
+		assertEquals(expected.c.y, found.c.y, 1e-8);
+		assertEquals(expected.d.x, found.d.x, 1e-8);
+		assertEquals(expected.d.y, found.d.y, 1e-8);
+	}
+
+	/**
+	 * Renders random rectangles which are translated
+	 */
+	private void render( int tranX , int tranY ) {
+		Random rand = new Random(234);
+
+		input = new ImageUInt8(width,height);
+		for( int i = 0; i < 500; i++ ) {
+			int x = rand.nextInt(width-10) + tranX;
+			int y = rand.nextInt(height-10) + tranY;
+			int w = rand.nextInt(100)+20;
+			int h = rand.nextInt(100)+20;
+
+			Polygon2D_I32 p = new Polygon2D_I32(4);
+			p.vertexes.data[0].set(x,y);
+			p.vertexes.data[1].set(x+w,y);
+			p.vertexes.data[2].set(x+w,y+h);
+			p.vertexes.data[3].set(x,y+h);
+
+			TextureGrayTrackerObjectRectangleTests.convexFill(p, input, rand.nextInt(255));
+		}
+	}
+
+	/**
+	 * Renders a color image by giving each gray level a different color
+	 */
+	private MultiSpectral<ImageUInt8> renderColor( int tranX , int tranY ) {
+		render(tranX, tranY);
+
+		MultiSpectral<ImageUInt8> color = new MultiSpectral<ImageUInt8>(ImageUInt8.class,width,height,3);
+		for( int i = 0; i < input.data.length; i++ ) {
+			int v = input.data[i] & 0xFF;
+			color.getBand(0).data[i] = (byte)v;
+			color.getBand(1).data[i] = (byte)(255-v);
+			color.getBand(2).data[i] = (byte)(v*7);
+		}
+		return color;
+	}
+
+	private static class Dummy implements TrackerObjectQuad<ImageUInt8> {
+		boolean found;
+		int numInitialize = 0;
+		int numProcess = 0;
+
+		private Dummy(boolean found) {
+			this.found = found;
+		}
+
+		@Override
+		public boolean initialize(ImageUInt8 image, Quadrilateral_F64 location) {
+			numInitialize++;
+			return found;
+		}
+
+		@Override
+		public boolean process(ImageUInt8 image, Quadrilateral_F64 location) {
+			numProcess++;
+			return found;
+		}
+
+		@Override
+		public ImageType<ImageUInt8> getImageType() {
+			return ImageType.single(ImageUInt8.class);
+		}
+	}
+}
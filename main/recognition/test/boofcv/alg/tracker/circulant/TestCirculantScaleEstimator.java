@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.circulant;
+
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageSingleBand;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestCirculantScaleEstimator {
+
+	int width = 320;
+	int height = 240;
+
+	// center of the target
+	float cx = 150, cy = 110;
+
+	/**
+	 * The image doesn't change so the scale shouldn't either
+	 */
+	@Test
+	public void stationary() {
+		CirculantScaleEstimator alg = create();
+
+		ImageSingleBand[] bands = new ImageSingleBand[]{render(1)};
+		alg.initialize(bands, cx, cy, 80, 60);
+		for( int i = 0; i < 3; i++ ) {
+			assertEquals(1, alg.process(bands, cx, cy), 0.005);
+		}
+	}
+
+	@Test
+	public void scaleChange() {
+		scaleChange(1.06f);
+		scaleChange(0.95f);
+	}
+
+	private void scaleChange( float scale ) {
+		CirculantScaleEstimator alg = create();
+
+		alg.initialize(new ImageSingleBand[]{render(1)}, cx, cy, 80, 60);
+		float found = alg.process(new ImageSingleBand[]{render(scale)}, cx, cy);
+
+		// should be accurate to within a scale step
+		assertEquals(scale, found, 0.02);
+		assertEquals(found, alg.getScale(), 1e-8);
+	}
+
+	/**
+	 * After the largest change in scale the samples at the new scale must still be inside the pyramid's region
+	 */
+	@Test
+	public void largestScaleChange() {
+		CirculantScaleEstimator alg = create();
+
+		alg.initialize(new ImageSingleBand[]{render(1)}, cx, cy, 80, 60);
+		float found = alg.process(new ImageSingleBand[]{render(1.2f)}, cx, cy);
+
+		assertEquals(1.2f, found, 0.05);
+
+		// extent of the largest sample at the found scale
+		float largest = found*(float)Math.pow(1.02,16);
+		float w = 80*largest, h = 60*largest;
+
+		ImageFloat32 region = alg.getRegion();
+		assertTrue(alg.getRegionX0() <= cx - w/2);
+		assertTrue(alg.getRegionY0() <= cy - h/2);
+		assertTrue(alg.getRegionX0() + region.width >= cx + w/2);
+		assertTrue(alg.getRegionY0() + region.height >= cy + h/2);
+	}
+
+	/**
+	 * The model should be reduced in size for large targets
+	 */
+	@Test
+	public void maxModelArea() {
+		CirculantScaleEstimator alg = new CirculantScaleEstimator(33,1.02f,1e-2f,0.025f,100,255);
+		alg.initialize(new ImageSingleBand[]{render(1)}, cx, cy, 80, 60);
+
+		assertEquals(11, alg.getModelWidth());
+		assertEquals(8, alg.getModelHeight());
+
+		// small targets are not up sampled
+		alg.initialize(new ImageSingleBand[]{render(1)}, cx, cy, 8, 6);
+		assertEquals(8, alg.getModelWidth());
+		assertEquals(6, alg.getModelHeight());
+	}
+
+	/**
+	 * Multiple bands should work and estimate the same scale
+	 */
+	@Test
+	public void multipleBands() {
+		CirculantScaleEstimator alg = create();
+
+		alg.initialize(new ImageSingleBand[]{render(1),render(1)}, cx, cy, 80, 60);
+		float found = alg.process(new ImageSingleBand[]{render(1.05f),render(1.05f)}, cx, cy);
+
+		assertEquals(1.05f, found, 0.02);
+	}
+
+	private CirculantScaleEstimator create() {
+		return new CirculantScaleEstimator(33,1.02f,1e-2f,0.025f,512,255);
+	}
+
+	/**
+	 * Renders a scene composed of rectangles which has been scaled around the target's center
+	 */
+	private ImageFloat32 render( float scale ) {
+		ImageFloat32 image = new ImageFloat32(width,height);
+		Random rand = new Random(234);
+
+		for( int i = 0; i < 400; i++ ) {
+			float x0 = rand.nextInt(width);
+			float y0 = rand.nextInt(height);
+			float x1 = x0 + 5 + rand.nextInt(30);
+			float y1 = y0 + 5 + rand.nextInt(30);
+			float value = rand.nextInt(255);
+
+			int sx0 = (int)(cx + (x0-cx)*scale);
+			int sy0 = (int)(cy + (y0-cy)*scale);
+			int sx1 = (int)(cx + (x1-cx)*scale);
+			int sy1 = (int)(cy + (y1-cy)*scale);
+
+			ImageMiscOps.fillRectangle(image,value,sx0,sy0,sx1-sx0,sy1-sy0);
+		}
+		return image;
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.circulant;
+
+import boofcv.abst.transform.fft.DiscreteFourierTransform;
+import boofcv.alg.interpolate.InterpolatePixelS;
+import boofcv.alg.misc.GImageMiscOps;
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.alg.transform.fft.DiscreteFourierTransformOps;
+import boofcv.factory.interpolate.FactoryInterpolation;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.InterleavedF32;
+import boofcv.struct.image.MultiSpectral;
+import georegression.struct.shapes.Rectangle2D_F32;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestCirculantTrackerF32 {
+
+	Random rand = new Random(234);
+
+	int width = 60;
+	int height = 80;
+
+	InterpolatePixelS<ImageFloat32> interp = FactoryInterpolation.bilinearPixelS(ImageFloat32.class);
+
+	/**
+	 * Should produce the same results as the double precision version, within floating point error
+	 */
+	@Test
+	public void compareToF64() {
+		ImageFloat32 a = new ImageFloat32(100,100);
+		ImageFloat32 b = new ImageFloat32(100,100);
+		GImageMiscOps.fillUniform(a,rand,0,200);
+
+		CirculantTracker<ImageFloat32> expected =
+				new CirculantTracker<ImageFloat32>(1f/16,0.2,1e-2,0.075,1.0,64,255,interp);
+		CirculantTrackerF32<ImageFloat32> alg = new CirculantTrackerF32<ImageFloat32>(1f/16,0.2f,1e-2f,0.075f,1.0f,64,255,
+				FactoryInterpolation.bilinearPixelS(ImageFloat32.class));
+
+		expected.initialize(a, 30, 35, 20, 25);
+		alg.initialize(a, 30, 35, 20, 25);
+
+		for( int i = 0; i < 5; i++ ) {
+			GImageMiscOps.fillUniform(b,rand,0,200);
+			shiftCopy(i, -2*i, a, b);
+
+			expected.performTracking(b);
+			alg.performTracking(b);
+
+			Rectangle2D_F32 r0 = expected.getTargetLocation();
+			Rectangle2D_F32 r1 = alg.getTargetLocation();
+			assertEquals(r0.tl_x,r1.tl_x,1e-2);
+			assertEquals(r0.tl_y,r1.tl_y,1e-2);
+
+			ImageFloat32 found = alg.getTargetTemplate(0);
+			for( int j = 0; j < found.data.length; j++ ) {
+				assertEquals(expected.getTargetTemplate().data[j],found.data[j],1e-4);
+			}
+		}
+	}
+
+	/**
+	 * Multiple bands which are identical should produce the same result as a single band
+	 */
+	@Test
+	public void multipleBands_identical() {
+		ImageFloat32 a = new ImageFloat32(100,100);
+		ImageFloat32 b = new ImageFloat32(100,100);
+		GImageMiscOps.fillUniform(a,rand,0,200);
+
+		MultiSpectral<ImageFloat32> ma = new MultiSpectral<ImageFloat32>(ImageFloat32.class,100,100,3);
+		MultiSpectral<ImageFloat32> mb = new MultiSpectral<ImageFloat32>(ImageFloat32.class,100,100,3);
+
+		CirculantTrackerF32<ImageFloat32> single = create();
+		CirculantTrackerF32<ImageFloat32> multi = create();
+
+		for( int i = 0; i < 3; i++ )
+			ma.getBand(i).setTo(a);
+		single.initialize(a, 30, 35, 20, 25);
+		multi.initialize(ma, 30, 35, 20, 25);
+		assertEquals(3,multi.getNumBands());
+
+		for( int i = 0; i < 3; i++ ) {
+			GImageMiscOps.fillUniform(b,rand,0,200);
+			shiftCopy(-i, 2*i, a, b);
+			for( int j = 0; j < 3; j++ )
+				mb.getBand(j).setTo(b);
+
+			single.performTracking(b);
+			multi.performTracking(mb);
+
+			Rectangle2D_F32 r0 = single.getTargetLocation();
+			Rectangle2D_F32 r1 = multi.getTargetLocation();
+			assertEquals(30-i,r1.tl_x,1);
+			assertEquals(35+2*i,r1.tl_y,1);
+			assertEquals(r0.tl_x,r1.tl_x,1e-3);
+			assertEquals(r0.tl_y,r1.tl_y,1e-3);
+		}
+	}
+
+	/**
+	 * The saved spectrum of the template should match the transform of the template after it has been updated
+	 */
+	@Test
+	public void templateSpectrumUpdated() {
+		ImageFloat32 a = new ImageFloat32(60,70);
+		ImageFloat32 b = new ImageFloat32(60,70);
+		GImageMiscOps.fillUniform(a,rand,0,200);
+		GImageMiscOps.fillUniform(b,rand,0,200);
+
+		CirculantTrackerF32<ImageFloat32> alg = create();
+		alg.initialize(a, 5, 6, 20, 25);
+		alg.performTracking(b);
+		alg.performTracking(a);
+
+		DiscreteFourierTransform<ImageFloat32,InterleavedF32> fft = DiscreteFourierTransformOps.createTransformF32();
+		InterleavedF32 expected = new InterleavedF32(64,64,2);
+		fft.forward(alg.template[0], expected);
+
+		for( int i = 0; i < expected.data.length; i++ ) {
+			assertEquals(expected.data[i],alg.templateF[0].data[i],1e-3);
+		}
+		assertEquals(CirculantTrackerF32.imageDotProduct(alg.template[0]),alg.templateNorm,1e-3);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void changeNumberOfBands() {
+		CirculantTrackerF32<ImageFloat32> alg = create();
+		alg.initialize(new ImageFloat32(60,70), 5, 6, 20, 25);
+		alg.performTracking(new MultiSpectral<ImageFloat32>(ImageFloat32.class,60,70,2));
+	}
+
+	@Test
+	public void elementMultConjB() {
+		InterleavedF32 a = new InterleavedF32(width,height,2);
+		InterleavedF32 b = new InterleavedF32(width,height,2);
+		InterleavedF32 expected = new InterleavedF32(width,height,2);
+		InterleavedF32 found = new InterleavedF32(width,height,2);
+
+		ImageMiscOps.fillUniform(a,rand,-10,10);
+		ImageMiscOps.fillUniform(b,rand,-10,10);
+		ImageMiscOps.fillUniform(found,rand,-10,10);
+
+		DiscreteFourierTransformOps.multiplyComplexConjB(a, b, expected);
+		CirculantTrackerF32.elementMultConjB(a, b, found, false);
+		for( int i = 0; i < expected.data.length; i++ )
+			assertEquals(expected.data[i],found.data[i],1e-4);
+
+		// should add to the output
+		CirculantTrackerF32.elementMultConjB(a, b, found, true);
+		for( int i = 0; i < expected.data.length; i++ )
+			assertEquals(2*expected.data[i],found.data[i],1e-3);
+	}
+
+	@Test
+	public void elementMagnitude2() {
+		InterleavedF32 a = new InterleavedF32(width,height,2);
+		InterleavedF32 expected = new InterleavedF32(width,height,2);
+		InterleavedF32 found = new InterleavedF32(width,height,2);
+
+		ImageMiscOps.fillUniform(a,rand,-10,10);
+		ImageMiscOps.fillUniform(found,rand,-10,10);
+
+		DiscreteFourierTransformOps.multiplyComplexConjB(a, a, expected);
+		CirculantTrackerF32.elementMagnitude2(a, found, false);
+		for( int i = 0; i < expected.data.length; i++ )
+			assertEquals(expected.data[i],found.data[i],1e-4);
+
+		CirculantTrackerF32.elementMagnitude2(a, found, true);
+		for( int i = 0; i < expected.data.length; i++ )
+			assertEquals(2*expected.data[i],found.data[i],1e-3);
+	}
+
+	private CirculantTrackerF32<ImageFloat32> create() {
+		return new CirculantTrackerF32<ImageFloat32>(1f/16,0.2f,1e-2f,0.075f,1.0f,64,255,interp);
+	}
+
+	private void shiftCopy(int offX, int offY, ImageFloat32 src, ImageFloat32 dst) {
+		for( int y = 0; y < src.height; y++ ) {
+			for( int x = 0; x < src.width; x++ ) {
+				int xx = x + offX;
+				int yy = y + offY;
+
+				if( xx >= 0 && xx < src.width && yy >= 0 && yy < src.height ) {
+					dst.set(xx, yy, src.get(x, y));
+				}
+			}
+		}
+	}
+}
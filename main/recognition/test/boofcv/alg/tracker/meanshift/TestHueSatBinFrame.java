@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.meanshift;
+
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageSInt16;
+import boofcv.struct.image.ImageUInt8;
+import boofcv.struct.image.MultiSpectral;
+import boofcv.testing.BoofTesting;
+import georegression.struct.shapes.Rectangle2D_I32;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestHueSatBinFrame {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Compare against looking up each pixel individually
+	 */
+	@Test
+	public void process() {
+		MultiSpectral<ImageUInt8> image = new MultiSpectral<ImageUInt8>(ImageUInt8.class,60,50,3);
+		for( int i = 0; i < 3; i++ )
+			ImageMiscOps.fillUniform(image.getBand(i),rand,0,255);
+
+		HueSatBinFrame alg = new HueSatBinFrame(255,5);
+		assertEquals(-1, alg.getFrameId());
+		alg.process(image);
+		assertTrue(image == alg.getImage());
+		assertEquals(0, alg.getFrameId());
+
+		HueSatBinLookup lookup = new HueSatBinLookup(255,5);
+		ImageSInt16 found = alg.getBins();
+		assertEquals(image.width, found.width);
+		assertEquals(image.height, found.height);
+		for( int y = 0; y < image.height; y++ ) {
+			for( int x = 0; x < image.width; x++ ) {
+				int expected = lookup.lookup(image.getBand(0).get(x,y),image.getBand(1).get(x,y),
+						image.getBand(2).get(x,y));
+				assertEquals(expected, found.get(x,y));
+			}
+		}
+	}
+
+	/**
+	 * The number of threads should not change the results
+	 */
+	@Test
+	public void process_threadInvariant() {
+		MultiSpectral<ImageUInt8> image = new MultiSpectral<ImageUInt8>(ImageUInt8.class,60,150,3);
+		for( int i = 0; i < 3; i++ )
+			ImageMiscOps.fillUniform(image.getBand(i),rand,0,255);
+
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			HueSatBinFrame alg = new HueSatBinFrame(255,5);
+			BoofConcurrency.setMaxThreads(1);
+			alg.process(image);
+			ImageSInt16 expected = alg.getBins().clone();
+
+			BoofConcurrency.setMaxThreads(4);
+			alg.process(image);
+			BoofTesting.assertEquals(expected, alg.getBins(), 0);
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * Likelihood which reads from the shared frame should produce the same results as one which doesn't.
+	 * The frame is only used when it has processed the same image since it was last used.
+	 */
+	public static void checkSharedFrame( PixelLikelihood<MultiSpectral<ImageUInt8>> expected ,
+										 PixelLikelihood<MultiSpectral<ImageUInt8>> found ,
+										 HueSatBinFrame frame ) {
+		Random rand = new Random(234);
+
+		MultiSpectral<ImageUInt8> image = new MultiSpectral<ImageUInt8>(ImageUInt8.class,30,40,3);
+		// a small number of colors so that the likelihood is non-zero outside of the template
+		for( int i = 0; i < image.getNumBands(); i++ ) {
+			ImageMiscOps.fillUniform(image.getBand(i),rand,0,4);
+			for( int j = 0; j < image.getBand(i).data.length; j++ )
+				image.getBand(i).data[j] *= 60;
+		}
+
+		frame.process(image);
+		expected.setImage(image);
+		found.setImage(image);
+		Rectangle2D_I32 target = new Rectangle2D_I32(5,6,10,12);
+		expected.createModel(target);
+		found.createModel(target);
+
+		ImageFloat32 regionExpected = new ImageFloat32(30,40);
+		ImageFloat32 regionFound = new ImageFloat32(30,40);
+		expected.compute(0,0,30,40,regionExpected);
+		found.compute(0,0,30,40,regionFound);
+
+		int total = 0;
+		for( int y = 0; y < image.height; y++ ) {
+			for( int x = 0; x < image.width; x++ ) {
+				assertEquals(expected.compute(x,y),found.compute(x,y),1e-8);
+				if( expected.compute(x,y) > 0 )
+					total++;
+			}
+		}
+		assertTrue(total > 0);
+		BoofTesting.assertEquals(regionExpected, regionFound, 1e-8);
+
+		// make sure the bins are read from the frame by marking every pixel as too dark
+		ImageMiscOps.fill(frame.getBins(),-1);
+		for( int y = 0; y < image.height; y++ ) {
+			for( int x = 0; x < image.width; x++ ) {
+				assertEquals(0,found.compute(x,y),1e-8);
+			}
+		}
+
+		// the frame is for a different image, so it should look up the bins again
+		found.setImage(image.clone());
+		for( int y = 0; y < image.height; y++ ) {
+			for( int x = 0; x < image.width; x++ ) {
+				assertEquals(expected.compute(x,y),found.compute(x,y),1e-8);
+			}
+		}
+
+		// new pixels are written into the same image instance, but the frame hasn't processed them
+		for( int i = 0; i < image.getNumBands(); i++ ) {
+			ImageMiscOps.fillUniform(image.getBand(i),rand,0,4);
+			for( int j = 0; j < image.getBand(i).data.length; j++ )
+				image.getBand(i).data[j] *= 60;
+		}
+		expected.setImage(image);
+		found.setImage(image);
+		for( int y = 0; y < image.height; y++ ) {
+			for( int x = 0; x < image.width; x++ ) {
+				assertEquals(expected.compute(x,y),found.compute(x,y),1e-8);
+			}
+		}
+
+		// once the frame processes the new pixels its bins are used again
+		frame.process(image);
+		found.setImage(image);
+		ImageMiscOps.fill(frame.getBins(),-1);
+		for( int y = 0; y < image.height; y++ ) {
+			for( int x = 0; x < image.width; x++ ) {
+				assertEquals(0,found.compute(x,y),1e-8);
+			}
+		}
+	}
+}
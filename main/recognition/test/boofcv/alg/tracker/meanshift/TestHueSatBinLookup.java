@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.meanshift;
+
+import boofcv.alg.color.ColorHsv;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestHueSatBinLookup {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Compare against converting into HSV directly.  The second pass reads values saved in the table.
+	 */
+	@Test
+	public void lookup() {
+		checkLookup(new HueSatBinLookup(255, 5));
+	}
+
+	/**
+	 * Too many bins to fit inside the table
+	 */
+	@Test
+	public void lookup_noTable() {
+		HueSatBinLookup alg = new HueSatBinLookup(255, 20);
+		assertNull(alg.getTable());
+		checkLookup(alg);
+	}
+
+	/**
+	 * Instances with the same configuration should share the same table
+	 */
+	@Test
+	public void sharedTable() {
+		HueSatBinLookup a = new HueSatBinLookup(255, 5);
+		HueSatBinLookup b = new HueSatBinLookup(255, 5);
+		HueSatBinLookup c = new HueSatBinLookup(255, 6);
+		HueSatBinLookup d = new HueSatBinLookup(127, 5);
+
+		assertSame(a.getTable(), b.getTable());
+		assertNotSame(a.getTable(), c.getTable());
+		assertNotSame(a.getTable(), d.getTable());
+
+		// values computed by one instance are used by the other
+		int bin = a.lookup(20, 100, 200);
+		assertEquals(bin, b.lookup(20, 100, 200));
+	}
+
+	private void checkLookup( HueSatBinLookup alg ) {
+		int numBins = alg.getNumHistogramBins();
+		int colors[] = new int[300];
+		for( int i = 0; i < colors.length; i++ )
+			colors[i] = rand.nextInt(1 << 24);
+
+		float hsv[] = new float[3];
+		for( int pass = 0; pass < 2; pass++ ) {
+			for( int color : colors ) {
+				int r = (color >> 16) & 0xFF, g = (color >> 8) & 0xFF, b = color & 0xFF;
+
+				ColorHsv.rgbToHsv(r, g, b, hsv);
+				int expected;
+				if( hsv[2] < 256*0.01f )
+					expected = -1;
+				else
+					expected = (int)(hsv[0]/(float)(2.001*Math.PI/numBins))*numBins + (int)(hsv[1]/(1.001f/numBins));
+
+				assertEquals(expected, alg.lookup(r, g, b));
+			}
+		}
+	}
+}
@@ -1,10 +1,14 @@
 package boofcv.alg.tracker.meanshift;
 
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.struct.image.ImageFloat32;
 import boofcv.struct.image.ImageUInt8;
 import boofcv.struct.image.MultiSpectral;
 import georegression.struct.shapes.Rectangle2D_I32;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -71,6 +75,11 @@ public class TestLikelihoodHistCoupled_U8 {
 		assertTrue(v0>v1);
 	}
 
+	@Test
+	public void computeRegion() {
+		checkComputeRegion(new LikelihoodHistCoupled_U8(255,11));
+	}
+
 	public static void setColor(MultiSpectral<ImageUInt8> image , Rectangle2D_I32 rect , int r , int g , int b ) {
 
 		for( int y = 0; y < rect.height; y++ ) {
@@ -86,4 +95,40 @@ public class TestLikelihoodHistCoupled_U8 {
 		image.getBand(1).set(x,y,g);
 		image.getBand(2).set(x,y,b);
 	}
+
+	/**
+	 * Computing the likelihood inside a region should produce the same results as computing it one pixel at a time
+	 */
+	public static void checkComputeRegion( PixelLikelihood<MultiSpectral<ImageUInt8>> alg ) {
+		Random rand = new Random(234);
+
+		MultiSpectral<ImageUInt8> image = new MultiSpectral<ImageUInt8>(ImageUInt8.class,30,40,3);
+		// use a small number of colors so that the model has non-zero likelihood outside the template
+		for( int i = 0; i < image.getNumBands(); i++ )
+			ImageMiscOps.fillUniform(image.getBand(i),rand,0,4);
+		for( int i = 0; i < image.getBand(0).data.length; i++ )
+			for( int j = 0; j < 3; j++ )
+				image.getBand(j).data[i] *= 60;
+
+		alg.setImage(image);
+		alg.createModel(new Rectangle2D_I32(5,6,10,12));
+
+		ImageFloat32 found = new ImageFloat32(30,40);
+		ImageMiscOps.fill(found,-1);
+		alg.compute(3,4,20,25,found);
+
+		int total = 0;
+		for( int y = 0; y < found.height; y++ ) {
+			for( int x = 0; x < found.width; x++ ) {
+				if( x >= 3 && x < 20 && y >= 4 && y < 25 ) {
+					assertEquals(alg.compute(x,y),found.get(x,y),1e-8);
+					if( found.get(x,y) > 0 )
+						total++;
+				} else {
+					assertEquals(-1,found.get(x,y),1e-8);
+				}
+			}
+		}
+		assertTrue(total > 0);
+	}
 }
@@ -6,6 +6,8 @@ import boofcv.struct.image.MultiSpectral;
 import georegression.struct.shapes.Rectangle2D_I32;
 import org.junit.Test;
 
+import static boofcv.alg.tracker.meanshift.TestHueSatBinFrame.checkSharedFrame;
+import static boofcv.alg.tracker.meanshift.TestLikelihoodHistCoupled_U8.checkComputeRegion;
 import static boofcv.alg.tracker.meanshift.TestLikelihoodHistCoupled_U8.setColor;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -30,8 +32,8 @@ public class TestLikelihoodHueSatHistInd_U8 {
 		assertEquals(30 , alg.binsS.length);
 
 		// it comes out to a slightly larger size on purpose
-		assertEquals(2*Math.PI,alg.sizeH*30,0.01);
-		assertEquals(1.0,alg.sizeS*30,0.01);
+		assertEquals(2*Math.PI,alg.lookup.sizeH*30,0.01);
+		assertEquals(1.0,alg.lookup.sizeS*30,0.01);
 	}
 
 	@Test
@@ -46,8 +48,8 @@ public class TestLikelihoodHueSatHistInd_U8 {
 		float hsv[] = new float[3];
 		ColorHsv.rgbToHsv(120, 50, 255, hsv);
 
-		int indexH = (int)(hsv[0]/alg.sizeH);
-		int indexS = (int)(hsv[1]/alg.sizeS);
+		int indexH = (int)(hsv[0]/alg.lookup.sizeH);
+		int indexS = (int)(hsv[1]/alg.lookup.sizeS);
 
 		assertEquals(1.0,alg.binsH[indexH],1e-4);
 		assertEquals(1.0,alg.binsS[indexS],1e-4);
@@ -93,4 +95,22 @@ public class TestLikelihoodHueSatHistInd_U8 {
 		assertTrue(v0>v1);
 	}
 
+	@Test
+	public void computeRegion() {
+		checkComputeRegion(new LikelihoodHueSatHistInd_U8(255,5));
+	}
+
+	@Test
+	public void sharedFrame() {
+		HueSatBinFrame frame = new HueSatBinFrame(255,5);
+		LikelihoodHueSatHistInd_U8 alg = new LikelihoodHueSatHistInd_U8(255,5);
+		alg.setShared(frame);
+
+		checkSharedFrame(new LikelihoodHueSatHistInd_U8(255,5), alg, frame);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void sharedFrame_differentConfig() {
+		new LikelihoodHueSatHistInd_U8(255,5).setShared(new HueSatBinFrame(255,6));
+	}
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.meanshift;
+
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.struct.image.ImageUInt8;
+import boofcv.struct.image.MultiSpectral;
+import georegression.struct.shapes.Rectangle2D_I32;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static boofcv.alg.tracker.meanshift.TestLikelihoodHistCoupled_U8.setColor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestTrackerMeanShiftLikelihood {
+
+	Random rand = new Random(234);
+
+	int width = 120;
+	int height = 100;
+
+	/**
+	 * Follows a target of uniform color as it moves across a noisy background
+	 */
+	@Test
+	public void trackMovingTarget() {
+		for( boolean precompute : new boolean[]{false,true}) {
+			TrackerMeanShiftLikelihood<MultiSpectral<ImageUInt8>> alg = initialize(precompute,20,30);
+
+			for( int i = 1; i < 10; i++ ) {
+				assertTrue(alg.process(createImage(20+i*3,30+i*2)));
+
+				Rectangle2D_I32 found = alg.getLocation();
+				assertEquals(20+i*3,found.tl_x,1);
+				assertEquals(30+i*2,found.tl_y,1);
+			}
+		}
+	}
+
+	/**
+	 * Computing the likelihood ahead of time should produce the same track as computing it as needed, no matter
+	 * how many threads are used
+	 */
+	@Test
+	public void precompute_sameResults() {
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			TrackerMeanShiftLikelihood<MultiSpectral<ImageUInt8>> expected = initialize(false,40,30);
+			TrackerMeanShiftLikelihood<MultiSpectral<ImageUInt8>> single = initialize(true,40,30);
+			TrackerMeanShiftLikelihood<MultiSpectral<ImageUInt8>> multi = initialize(true,40,30);
+
+			for( int i = 1; i < 15; i++ ) {
+				// jump around so that the target is sometimes outside of the search region
+				MultiSpectral<ImageUInt8> image = createImage(40+rand.nextInt(21)-10,30+rand.nextInt(21)-10);
+
+				boolean success = expected.process(image);
+				BoofConcurrency.setMaxThreads(1);
+				assertEquals(success,single.process(image));
+				BoofConcurrency.setMaxThreads(4);
+				assertEquals(success,multi.process(image));
+
+				if( !success )
+					break;
+
+				Rectangle2D_I32 e = expected.getLocation();
+				for( Rectangle2D_I32 found : new Rectangle2D_I32[]{single.getLocation(),multi.getLocation()}) {
+					assertEquals(e.tl_x,found.tl_x);
+					assertEquals(e.tl_y,found.tl_y);
+					assertEquals(e.width,found.width);
+					assertEquals(e.height,found.height);
+				}
+			}
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * The tracker should fail when the target disappears
+	 */
+	@Test
+	public void targetLost() {
+		for( boolean precompute : new boolean[]{false,true}) {
+			TrackerMeanShiftLikelihood<MultiSpectral<ImageUInt8>> alg = initialize(precompute,20,30);
+
+			assertFalse(alg.process(createImage(-100,-100)));
+			assertTrue(alg.isFailed());
+		}
+	}
+
+	private TrackerMeanShiftLikelihood<MultiSpectral<ImageUInt8>>
+	initialize( boolean precompute , int x0 , int y0 ) {
+		MultiSpectral<ImageUInt8> image = createImage(x0,y0);
+		Rectangle2D_I32 target = new Rectangle2D_I32(x0,y0,15,11);
+
+		PixelLikelihood<MultiSpectral<ImageUInt8>> likelihood = new LikelihoodHistCoupled_U8(255,6);
+		likelihood.setImage(image);
+		likelihood.createModel(target);
+
+		TrackerMeanShiftLikelihood<MultiSpectral<ImageUInt8>> alg =
+				new TrackerMeanShiftLikelihood<MultiSpectral<ImageUInt8>>(likelihood,30,0.1f,precompute);
+		alg.initialize(image,target);
+		return alg;
+	}
+
+	/**
+	 * Creates an image with a gray noisy background and a colored rectangle
+	 */
+	private MultiSpectral<ImageUInt8> createImage( int x0 , int y0 ) {
+		MultiSpectral<ImageUInt8> image = new MultiSpectral<ImageUInt8>(ImageUInt8.class,width,height,3);
+		ImageMiscOps.fillUniform(image.getBand(0),rand,0,100);
+		image.getBand(1).setTo(image.getBand(0));
+		image.getBand(2).setTo(image.getBand(0));
+
+		for( int y = y0; y < y0+11; y++ ) {
+			for( int x = x0; x < x0+15; x++ ) {
+				if( image.isInBounds(x,y) )
+					setColor(image,x,y,200,50,30);
+			}
+		}
+		return image;
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.tracker.tld;
+
+import boofcv.abst.filter.derivative.ImageGradient;
+import boofcv.alg.interpolate.TypeInterpolate;
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.factory.filter.derivative.FactoryDerivative;
+import boofcv.factory.interpolate.FactoryInterpolation;
+import boofcv.struct.image.ImageSInt16;
+import boofcv.struct.image.ImageUInt8;
+import org.ddogleg.struct.FastQueue;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestTldDetectionParallel {
+
+	Random rand = new Random(234);
+
+	int width = 200;
+	int height = 160;
+
+	/**
+	 * Track a moving target and compare the detection results against the single threaded version each frame
+	 */
+	@Test
+	public void compareToSerial() {
+		TldParameters config = new TldParameters();
+		TldTracker<ImageUInt8,ImageSInt16> serial = create(config, null);
+		TldTracker<ImageUInt8,ImageSInt16> concurrent = create(config, TypeInterpolate.BILINEAR);
+
+		assertTrue(concurrent.getDetection() instanceof TldDetectionParallel);
+
+		ImageUInt8 background = new ImageUInt8(width,height);
+		ImageUInt8 target = new ImageUInt8(40,35);
+		ImageMiscOps.fillUniform(background, rand, 0, 100);
+		// smooth texture so that the template matching finds candidates
+		for( int y = 0; y < target.height; y += 5 ) {
+			for( int x = 0; x < target.width; x += 5 ) {
+				ImageMiscOps.fillRectangle(target, 100 + rand.nextInt(155), x, y, 5, 5);
+			}
+		}
+
+		int original = BoofConcurrency.getMaxThreads();
+		try {
+			BoofConcurrency.setMaxThreads(4);
+
+			ImageUInt8 frame = render(background, target, 50, 60);
+			serial.initialize(frame, 50, 60, 90, 95);
+			concurrent.initialize(frame, 50, 60, 90, 95);
+
+			int totalCandidates = 0;
+			for( int i = 1; i < 12; i++ ) {
+				// make it jump at one point so that it needs to be reacquired
+				int x = i == 6 ? 130 : 50 + i*2;
+				int y = 60 + i;
+				frame = render(background, target, x, y);
+
+				assertEquals(serial.track(frame), concurrent.track(frame));
+				compare(serial.getDetection(), concurrent.getDetection());
+
+				if( serial.getDetection().getCandidateDetections().size > 0 )
+					totalCandidates++;
+			}
+			// sanity check to make sure the test isn't trivial
+			assertTrue(totalCandidates > 0);
+		} finally {
+			BoofConcurrency.setMaxThreads(original);
+		}
+	}
+
+	private void compare( TldDetection<ImageUInt8> expected , TldDetection<ImageUInt8> found ) {
+		assertEquals(expected.isSuccess(), found.isSuccess());
+		assertEquals(expected.isAmbiguous(), found.isAmbiguous());
+
+		FastQueue<TldRegionFernInfo> infoA = expected.getFernInfo();
+		FastQueue<TldRegionFernInfo> infoB = found.getFernInfo();
+		assertEquals(infoA.size, infoB.size);
+		for( int i = 0; i < infoA.size; i++ ) {
+			assertEquals(infoA.get(i).r.x0, infoB.get(i).r.x0);
+			assertEquals(infoA.get(i).r.y0, infoB.get(i).r.y0);
+			assertEquals(infoA.get(i).r.x1, infoB.get(i).r.x1);
+			assertEquals(infoA.get(i).r.y1, infoB.get(i).r.y1);
+			assertEquals(infoA.get(i).sumP, infoB.get(i).sumP);
+			assertEquals(infoA.get(i).sumN, infoB.get(i).sumN);
+		}
+
+		FastQueue<TldRegion> candA = expected.getCandidateDetections();
+		FastQueue<TldRegion> candB = found.getCandidateDetections();
+		assertEquals(candA.size, candB.size);
+		for( int i = 0; i < candA.size; i++ ) {
+			assertEquals(candA.get(i).confidence, candB.get(i).confidence, 0);
+			assertEquals(candA.get(i).rect.x0, candB.get(i).rect.x0);
+			assertEquals(candA.get(i).rect.y0, candB.get(i).rect.y0);
+			assertEquals(candA.get(i).rect.x1, candB.get(i).rect.x1);
+			assertEquals(candA.get(i).rect.y1, candB.get(i).rect.y1);
+		}
+
+		if( expected.isSuccess() ) {
+			assertEquals(expected.getBest().confidence, found.getBest().confidence, 0);
+			assertEquals(expected.getBest().rect.x0, found.getBest().rect.x0);
+			assertEquals(expected.getBest().rect.y0, found.getBest().rect.y0);
+		}
+	}
+
+	private ImageUInt8 render( ImageUInt8 background , ImageUInt8 target , int x , int y ) {
+		ImageUInt8 frame = background.clone();
+		frame.subimage(x, y, x + target.width, y + target.height, null).setTo(target);
+		return frame;
+	}
+
+	private TldTracker<ImageUInt8,ImageSInt16> create( TldParameters config , TypeInterpolate concurrent ) {
+		ImageGradient<ImageUInt8,ImageSInt16> gradient = FactoryDerivative.sobel(ImageUInt8.class, ImageSInt16.class);
+		return new TldTracker<ImageUInt8,ImageSInt16>(config,
+				FactoryInterpolation.bilinearPixelS(ImageUInt8.class),concurrent,gradient,
+				ImageUInt8.class,ImageSInt16.class);
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.abst.sfm.d3;
+
+import boofcv.alg.sfm.d3.VisOdomKeyFrameListener;
+import boofcv.core.image.GeneralizedImageOps;
+import boofcv.struct.image.ImageBase;
+import boofcv.struct.image.ImageSingleBand;
+
+/**
+ * {@link VisOdomPipeline} for {@link DepthVisualOdometry}.
+ *
+ * @author Peter Abeles
+ */
+public class DepthVisOdomPipeline<Vis extends ImageBase, Depth extends ImageSingleBand>
+		extends VisOdomPipeline<Vis,Depth>
+{
+	DepthVisualOdometry<Vis,Depth> alg;
+
+	/**
+	 * @see VisOdomPipeline#VisOdomPipeline
+	 */
+	public DepthVisOdomPipeline( DepthVisualOdometry<Vis,Depth> alg , int capacity , boolean dropWhenFull ) {
+		super(alg, capacity, dropWhenFull);
+		this.alg = alg;
+	}
+
+	@Override
+	public void setKeyFrameListener(VisOdomKeyFrameListener<Vis> listener) {
+		if( !(alg instanceof VisOdomPixelDepthPnP_to_DepthVisualOdometry) )
+			throw new IllegalArgumentException("Key frames not supported by "+alg.getClass().getSimpleName());
+		((VisOdomPixelDepthPnP_to_DepthVisualOdometry<Vis,Depth>)alg).getAlgorithm().setKeyFrameListener(listener);
+	}
+
+	@Override
+	protected boolean estimate(Vis visual, Depth depth) {
+		return alg.process(visual,depth);
+	}
+
+	@Override
+	protected Vis createImageA() {
+		return alg.getVisualType().createImage(1,1);
+	}
+
+	@Override
+	protected Depth createImageB() {
+		return GeneralizedImageOps.createSingleBand(alg.getDepthType(),1,1);
+	}
+}
@@ -168,4 +168,7 @@ public class MonoPlaneInfinity_to_MonocularPlaneVisualOdometry<T extends ImageBa
 		return false;
 	}
 
+	public VisOdomMonoPlaneInfinity<T> getAlgorithm() {
+		return alg;
+	}
 }
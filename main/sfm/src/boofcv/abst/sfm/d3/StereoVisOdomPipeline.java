@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.abst.sfm.d3;
+
+import boofcv.alg.sfm.d3.VisOdomKeyFrameListener;
+import boofcv.struct.image.ImageBase;
+
+/**
+ * {@link VisOdomPipeline} for {@link StereoVisualOdometry}.
+ *
+ * @author Peter Abeles
+ */
+public class StereoVisOdomPipeline<T extends ImageBase> extends VisOdomPipeline<T,T> {
+
+	StereoVisualOdometry<T> alg;
+
+	/**
+	 * @see VisOdomPipeline#VisOdomPipeline
+	 */
+	public StereoVisOdomPipeline( StereoVisualOdometry<T> alg , int capacity , boolean dropWhenFull ) {
+		super(alg, capacity, dropWhenFull);
+		this.alg = alg;
+	}
+
+	@Override
+	public void setKeyFrameListener(VisOdomKeyFrameListener<T> listener) {
+		if( alg instanceof WrapVisOdomPixelDepthPnP ) {
+			((WrapVisOdomPixelDepthPnP)alg).getAlgorithm().setKeyFrameListener(listener);
+		} else if( alg instanceof WrapVisOdomDualTrackPnP ) {
+			((WrapVisOdomDualTrackPnP)alg).getAlgorithm().setKeyFrameListener(listener);
+		} else {
+			throw new IllegalArgumentException("Key frames not supported by "+alg.getClass().getSimpleName());
+		}
+	}
+
+	@Override
+	protected boolean estimate(T left, T right) {
+		return alg.process(left,right);
+	}
+
+	@Override
+	protected T createImageA() {
+		return alg.getImageType().createImage(1,1);
+	}
+
+	@Override
+	protected T createImageB() {
+		return alg.getImageType().createImage(1,1);
+	}
+}
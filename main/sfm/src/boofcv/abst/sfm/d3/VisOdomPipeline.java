@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.abst.sfm.d3;
+
+import boofcv.alg.sfm.d3.VisOdomKeyFrameListener;
+import boofcv.concurrency.WorkerThread;
+import boofcv.struct.image.ImageBase;
+import georegression.struct.se.Se3_F64;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>
+ * Runs a {@link VisualOdometry} algorithm in its own thread so that the caller's thread is free to acquire
+ * and preprocess the next frame while motion is being estimated for the current frame.  Input images are
+ * copied into internal storage when a frame is submitted and frames are processed strictly in the order
+ * they were submitted.  Since the wrapped algorithm sees exactly the same sequence of images its results are
+ * identical to calling it directly.
+ * </p>
+ *
+ * <p>
+ * Only the caller's work is overlapped with the algorithm.  Tracking frame N+1 is not overlapped with motion
+ * estimation of frame N because the odometry algorithms modify their tracks based on the estimated motion.
+ * After the motion is found, outlier tracks are dropped and, when a new key frame is selected, new tracks are
+ * spawned in the current image.  The tracker needs that updated set of tracks before it can process the next
+ * image, e.g. see {@link boofcv.alg.sfm.d3.VisOdomPixelDepthPnP#process} and
+ * {@link boofcv.alg.sfm.d3.VisOdomDualTrackPnP#process}.  Splitting tracking and estimation into separate
+ * stages would change the algorithm's output.
+ * </p>
+ *
+ * <p>
+ * The number of frames which are in flight is bounded by a fixed capacity.  A frame is in flight from
+ * when it is submitted until the algorithm has finished processing it.  When the pipeline is full it will either
+ * block the caller until a frame is finished or drop the new frame, depending on how it was configured.  Dropping
+ * frames bounds the latency at the cost of skipping images.  Results are read in order using {@link #poll} or
+ * {@link #take} and are stored until read.  Statistics on latency and throughput are computed as frames are
+ * processed.
+ * </p>
+ *
+ * <p>
+ * The wrapped algorithm should be fully configured, e.g. calibration specified, before the first frame is
+ * submitted and must not be accessed directly while the pipeline is running.  Frames should be submitted
+ * from a single thread.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public abstract class VisOdomPipeline<A extends ImageBase, B extends ImageBase> {
+
+	// the algorithm being run
+	protected VisualOdometry<Se3_F64> odometry;
+
+	// maximum number of frames in flight
+	private int capacity;
+	// if true frames are dropped when full.  Otherwise submit blocks
+	private boolean dropWhenFull;
+
+	// frames which are not in use
+	private BlockingQueue<Frame> free;
+	// results which have not been read yet
+	private BlockingQueue<Result> output = new LinkedBlockingQueue<Result>();
+	// recycled results
+	private BlockingQueue<Result> unusedResults = new LinkedBlockingQueue<Result>();
+	// number of frames which have been created
+	private int totalCreated = 0;
+
+	// special frames used to control the worker
+	private final Frame markerReset = new Frame();
+	private final Result markerFailure = new Result();
+
+	// A dedicated thread is used instead of the shared pool.  Algorithms which are run inside the pool's
+	// threads turn off their own concurrency.
+	private WorkerThread<Frame> worker = new WorkerThread<Frame>("VisOdomPipeline",new WorkerThread.Handler<Frame>() {
+		@Override
+		public void process(Frame f) {
+			if( f == markerReset )
+				odometry.reset();
+			else
+				processFrame(f);
+		}
+
+		@Override
+		public void failed(RuntimeException failure) {
+			output.add(markerFailure);
+			synchronized( VisOdomPipeline.this ) {
+				VisOdomPipeline.this.notifyAll();
+			}
+		}
+	});
+
+	// ID of the next frame submitted
+	private long nextFrameId = 0;
+
+	//---------- Everything below is guarded by 'this'
+	// number of frames submitted which have not been processed yet
+	private int unfinished = 0;
+	private long totalProcessed = 0;
+	private long totalDropped = 0;
+	private double sumLatency = 0;
+	private double maxLatency = 0;
+	// time the first frame was submitted and the last frame was finished in nano seconds
+	private long timeFirst = -1;
+	private long timeLast = -1;
+
+	/**
+	 * Configures the pipeline
+	 *
+	 * @param odometry The visual odometry algorithm which is to be run
+	 * @param capacity Maximum number of frames in flight.  Must be &ge; 1.
+	 * @param dropWhenFull If true then new frames are dropped when the pipeline is full.  If false then
+	 *                     {@link #submit} will block until there is room.
+	 */
+	protected VisOdomPipeline( VisualOdometry<Se3_F64> odometry , int capacity , boolean dropWhenFull ) {
+		if( capacity < 1 )
+			throw new IllegalArgumentException("Capacity must be at least one");
+		this.odometry = odometry;
+		this.capacity = capacity;
+		this.dropWhenFull = dropWhenFull;
+
+		free = new ArrayBlockingQueue<Frame>(capacity);
+	}
+
+	/**
+	 * Passes the images to the wrapped algorithm
+	 *
+	 * @return Value returned by the algorithm's process function
+	 */
+	protected abstract boolean estimate( A imageA , B imageB );
+
+	/**
+	 * Creates storage for the first image type
+	 */
+	protected abstract A createImageA();
+
+	/**
+	 * Creates storage for the second image type
+	 */
+	protected abstract B createImageB();
+
+	/**
+	 * Specifies a listener which is notified each time the odometry selects a key frame, e.g. a
+	 * {@link boofcv.alg.sfm.loop.LoopClosureWorker}.  The listener is called inside the pipeline's thread and is
+	 * passed the pipeline's internal copy of the first image.  Must be called before the first frame is submitted.
+	 *
+	 * @param listener The listener.  If null then no listener is used.
+	 * @throws IllegalArgumentException If the odometry algorithm doesn't select key frames
+	 */
+	public abstract void setKeyFrameListener( VisOdomKeyFrameListener<A> listener );
+
+	/**
+	 * Copies the images into internal storage and queues them for processing.  If the pipeline is full
+	 * then the frame is either dropped or this function blocks, depending on the configuration.
+	 *
+	 * @param imageA First image, e.g. left camera or visual image.  Not modified.
+	 * @param imageB Second image, e.g. right camera or depth image.  Not modified.
+	 * @return true if the frame was queued or false if it was dropped
+	 */
+	public boolean submit( A imageA , B imageB ) {
+		worker.checkFailure();
+
+		Frame f = free.poll();
+		if( f == null ) {
+			synchronized( this ) {
+				if( totalCreated < capacity ) {
+					f = new Frame();
+					f.imageA = createImageA();
+					f.imageB = createImageB();
+					totalCreated++;
+				}
+			}
+		}
+		if( f == null ) {
+			if( dropWhenFull ) {
+				synchronized( this ) {
+					totalDropped++;
+				}
+				return false;
+			}
+			f = takeFrom(free);
+		}
+
+		f.imageA.reshape(imageA.width,imageA.height);
+		f.imageA.setTo(imageA);
+		f.imageB.reshape(imageB.width,imageB.height);
+		f.imageB.setTo(imageB);
+		f.frameId = nextFrameId++;
+		f.timeSubmitted = System.nanoTime();
+
+		synchronized( this ) {
+			if( timeFirst < 0 )
+				timeFirst = f.timeSubmitted;
+			unfinished++;
+		}
+
+		worker.submit(f);
+		return true;
+	}
+
+	/**
+	 * Reads the result of the oldest frame which has been processed, if there is one.
+	 *
+	 * @param result (Output) Storage for the result
+	 * @return true if a result was written into 'result' or false if none are ready
+	 */
+	public boolean poll( Result result ) {
+		Result r = output.poll();
+		if( r == null ) {
+			worker.checkFailure();
+			return false;
+		}
+		return handleOutput(r, result);
+	}
+
+	/**
+	 * Same as {@link #poll} but will block until a result is ready.  Do not call unless there is a frame
+	 * whose result has not been read yet.
+	 *
+	 * @param result (Output) Storage for the result
+	 */
+	public void take( Result result ) {
+		handleOutput(takeFrom(output), result);
+	}
+
+	private boolean handleOutput( Result r , Result result ) {
+		if( r == markerFailure ) {
+			// leave it there so that later calls fail too
+			output.add(markerFailure);
+			worker.checkFailure();
+		}
+		result.set(r);
+		unusedResults.add(r);
+		return true;
+	}
+
+	/**
+	 * Blocks until every frame which has been submitted has been processed.
+	 */
+	public synchronized void flush() {
+		while( unfinished > 0 && worker.getFailure() == null ) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		worker.checkFailure();
+	}
+
+	/**
+	 * Requests that the algorithm be reset.  Frames submitted before this call are processed before
+	 * the reset happens and frames after it will be processed after.
+	 */
+	public void reset() {
+		worker.checkFailure();
+		worker.submit(markerReset);
+	}
+
+	/**
+	 * Stops the worker thread after all the queued frames have been processed.  If a frame is submitted
+	 * afterwards then a new thread is started.
+	 */
+	public void shutdown() {
+		worker.shutdown();
+	}
+
+	/**
+	 * Estimates the motion for a single frame and publishes the result
+	 */
+	private void processFrame( Frame f ) {
+		Result r = unusedResults.poll();
+		if( r == null )
+			r = new Result();
+		r.frameId = f.frameId;
+
+		r.updated = estimate((A)f.imageA,(B)f.imageB);
+		r.fault = odometry.isFault();
+		r.cameraToWorld.set(odometry.getCameraToWorld());
+
+		long timeFinished = System.nanoTime();
+		r.latency = (timeFinished - f.timeSubmitted)*1e-6;
+
+		// the images are no longer needed
+		free.add(f);
+
+		// update statistics before the result is visible so that they are consistent with what's been read
+		synchronized( this ) {
+			totalProcessed++;
+			sumLatency += r.latency;
+			maxLatency = Math.max(maxLatency,r.latency);
+			timeLast = timeFinished;
+			unfinished--;
+			output.add(r);
+			notifyAll();
+		}
+	}
+
+	private static <E> E takeFrom( BlockingQueue<E> queue ) {
+		try {
+			return queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Discards the latency and throughput statistics
+	 */
+	public synchronized void resetStatistics() {
+		totalProcessed = 0;
+		totalDropped = 0;
+		sumLatency = 0;
+		maxLatency = 0;
+		timeFirst = timeLast = -1;
+	}
+
+	/**
+	 * Number of frames which have been processed
+	 */
+	public synchronized long getTotalProcessed() {
+		return totalProcessed;
+	}
+
+	/**
+	 * Number of frames which were dropped because the pipeline was full
+	 */
+	public synchronized long getTotalDropped() {
+		return totalDropped;
+	}
+
+	/**
+	 * Average time in milliseconds from when a frame is submitted until it has been processed
+	 */
+	public synchronized double getAverageLatency() {
+		return totalProcessed == 0 ? 0 : sumLatency/totalProcessed;
+	}
+
+	/**
+	 * Maximum time in milliseconds from when a frame is submitted until it has been processed
+	 */
+	public synchronized double getMaximumLatency() {
+		return maxLatency;
+	}
+
+	/**
+	 * Number of frames processed per second, measured from when the first frame was submitted until
+	 * the most recent frame was processed.
+	 */
+	public synchronized double getThroughput() {
+		if( totalProcessed == 0 || timeLast <= timeFirst )
+			return 0;
+		return totalProcessed/((timeLast-timeFirst)*1e-9);
+	}
+
+	/**
+	 * Number of frames which have been submitted but not finished processing
+	 */
+	public synchronized int getInFlight() {
+		return unfinished;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public boolean isDropWhenFull() {
+		return dropWhenFull;
+	}
+
+	public VisualOdometry<Se3_F64> getOdometry() {
+		return odometry;
+	}
+
+	/**
+	 * Results for a single frame
+	 */
+	public static class Result {
+		/**
+		 * Sequential ID of the frame, starting from zero.  Dropped frames are not assigned an ID.
+		 */
+		public long frameId;
+		/**
+		 * Value returned by the algorithm's process function
+		 */
+		public boolean updated;
+		/**
+		 * Value of {@link VisualOdometry#isFault()} after the frame was processed
+		 */
+		public boolean fault;
+		/**
+		 * Estimated pose after the frame was processed
+		 */
+		public Se3_F64 cameraToWorld = new Se3_F64();
+		/**
+		 * Time in milliseconds from when it was submitted until it was processed
+		 */
+		public double latency;
+
+		public void set( Result r ) {
+			frameId = r.frameId;
+			updated = r.updated;
+			fault = r.fault;
+			cameraToWorld.set(r.cameraToWorld);
+			latency = r.latency;
+		}
+	}
+
+	/**
+	 * Storage for a frame's images
+	 */
+	private static class Frame {
+		long frameId;
+		ImageBase imageA;
+		ImageBase imageB;
+		long timeSubmitted;
+	}
+}
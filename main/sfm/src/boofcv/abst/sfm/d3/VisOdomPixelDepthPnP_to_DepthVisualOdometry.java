@@ -150,4 +150,11 @@ public class VisOdomPixelDepthPnP_to_DepthVisualOdometry<Vis extends ImageBase,
 	public Class<Depth> getDepthType() {
 		return depthType;
 	}
+
+	/**
+	 * Returns the low level algorithm which is being wrapped
+	 */
+	public VisOdomPixelDepthPnP<Vis> getAlgorithm() {
+		return alg;
+	}
 }
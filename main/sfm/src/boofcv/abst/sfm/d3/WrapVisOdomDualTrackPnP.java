@@ -150,4 +150,11 @@ public class WrapVisOdomDualTrackPnP<T extends ImageSingleBand>
 	public ImageType<T> getImageType() {
 		return ImageType.single(imageType);
 	}
+
+	/**
+	 * Returns the low level algorithm which is being wrapped
+	 */
+	public VisOdomDualTrackPnP<T,?> getAlgorithm() {
+		return alg;
+	}
 }
@@ -138,4 +138,11 @@ public class WrapVisOdomPixelDepthPnP<T extends ImageSingleBand>
 	public Se3_F64 getCameraToWorld() {
 		return alg.getCurrToWorld();
 	}
+
+	/**
+	 * Returns the low level algorithm which is being wrapped
+	 */
+	public VisOdomPixelDepthPnP<T> getAlgorithm() {
+		return alg;
+	}
 }
@@ -19,7 +19,10 @@
 package boofcv.alg.depth;
 
 import boofcv.alg.distort.RemoveRadialPtoN_F64;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
 import boofcv.struct.FastQueueArray_I32;
+import boofcv.struct.PackedPointCloud_F32;
 import boofcv.struct.calib.IntrinsicParameters;
 import boofcv.struct.image.ImageUInt16;
 import boofcv.struct.image.ImageUInt8;
@@ -34,6 +37,10 @@ import org.ddogleg.struct.FastQueue;
  * @author Peter Abeles
  */
 public class VisualDepthOps {
+
+	// minimum number of rows processed by a single thread
+	private static final int MIN_ROWS = 16;
+
 	/**
 	 * Creates a point cloud from a depth image.
 	 * @param param Intrinsic camera parameters for depth image
@@ -116,4 +123,91 @@ public class VisualDepthOps {
 			}
 		}
 	}
+
+	/**
+	 * Creates a packed point cloud from a depth image.  Points are added in row-major order.  Rows are
+	 * processed concurrently.
+	 *
+	 * @param param Intrinsic camera parameters for depth image
+	 * @param depth depth image.  each value is in millimeters.
+	 * @param cloud Output point cloud.  If it has color then the color of each point is set to zero.
+	 */
+	public static void depthTo3D( IntrinsicParameters param , ImageUInt16 depth , PackedPointCloud_F32 cloud ) {
+		depthTo3D(param, null, depth, cloud);
+	}
+
+	/**
+	 * Creates a packed point cloud from a depth image and saves the color information.  The depth and color
+	 * images are assumed to be aligned.  Points are added in row-major order.  Rows are processed concurrently.
+	 *
+	 * @param param Intrinsic camera parameters for depth image
+	 * @param rgb Color image that's aligned to the depth.  If null or the cloud doesn't have color then
+	 *            color is ignored.
+	 * @param depth depth image.  each value is in millimeters.
+	 * @param cloud Output point cloud.  Color is encoded as 0xRRGGBB.
+	 */
+	public static void depthTo3D( final IntrinsicParameters param , final MultiSpectral<ImageUInt8> rgb ,
+								  final ImageUInt16 depth , final PackedPointCloud_F32 cloud ) {
+		// number of points found in each row, then the index of the first point in each row
+		final int rowStart[] = new int[depth.height+1];
+
+		BoofConcurrency.loopBlocks(0, depth.height, MIN_ROWS, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				for( int y = y0; y < y1; y++ ) {
+					int index = depth.startIndex + y*depth.stride;
+					int count = 0;
+					for( int x = 0; x < depth.width; x++ ) {
+						if( depth.data[index++] != 0 )
+							count++;
+					}
+					rowStart[y+1] = count;
+				}
+			}
+		});
+
+		for( int y = 0; y < depth.height; y++ )
+			rowStart[y+1] += rowStart[y];
+
+		cloud.resize(rowStart[depth.height]);
+		final boolean color = rgb != null && cloud.hasColor();
+
+		BoofConcurrency.loopBlocks(0, depth.height, MIN_ROWS, new IntRangeTask() {
+			@Override
+			public void process(int block, int y0, int y1) {
+				RemoveRadialPtoN_F64 p2n = new RemoveRadialPtoN_F64();
+				p2n.set(param.fx,param.fy,param.skew,param.cx,param.cy,param.radial);
+
+				Point2D_F64 n = new Point2D_F64();
+
+				for( int y = y0; y < y1; y++ ) {
+					int index = depth.startIndex + y*depth.stride;
+					int output = rowStart[y];
+					for( int x = 0; x < depth.width; x++ ) {
+						int mm = depth.data[index++] & 0xFFFF;
+
+						// skip pixels with no depth information
+						if( mm == 0 )
+							continue;
+
+						p2n.compute(x,y,n);
+
+						cloud.x[output] = (float)(n.x*mm);
+						cloud.y[output] = (float)(n.y*mm);
+						cloud.z[output] = mm;
+
+						if( color ) {
+							int r = rgb.getBand(0).unsafe_get(x,y);
+							int g = rgb.getBand(1).unsafe_get(x,y);
+							int b = rgb.getBand(2).unsafe_get(x,y);
+							cloud.rgb[output] = (r << 16) | (g << 8) | b;
+						} else if( cloud.rgb != null ) {
+							cloud.rgb[output] = 0;
+						}
+						output++;
+					}
+				}
+			}
+		});
+	}
 }
@@ -19,11 +19,15 @@
 package boofcv.alg.geo.pose;
 
 import boofcv.alg.geo.NormalizedToPixelError;
+import boofcv.alg.robust.CopyDistanceFromModel;
+import boofcv.alg.robust.DistanceFromModelPacked;
 import boofcv.struct.calib.IntrinsicParameters;
 import boofcv.struct.calib.StereoParameters;
+import boofcv.struct.sfm.PackedStereo2D3D;
 import boofcv.struct.sfm.Stereo2D3D;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
+import georegression.struct.point.Vector3D_F64;
 import georegression.struct.se.Se3_F64;
 import georegression.transform.se.SePointOps_F64;
 import org.ddogleg.fitting.modelset.DistanceFromModel;
@@ -42,7 +46,9 @@ import java.util.List;
  *
  * @author Peter Abeles
  */
-public class PnPStereoDistanceReprojectionSq implements DistanceFromModel<Se3_F64,Stereo2D3D> {
+public class PnPStereoDistanceReprojectionSq implements DistanceFromModel<Se3_F64,Stereo2D3D>,
+		DistanceFromModelPacked<Se3_F64,Stereo2D3D,PackedStereo2D3D>
+{
 
 	// transform from world to left camera
 	private Se3_F64 worldToLeft;
@@ -103,4 +109,80 @@ public class PnPStereoDistanceReprojectionSq implements DistanceFromModel<Se3_F6
 		for( int i = 0; i < observations.size(); i++ )
 			distance[i] = computeDistance(observations.get(i));
 	}
+
+	@Override
+	public PackedStereo2D3D createPacked() {
+		return new PackedStereo2D3D();
+	}
+
+	@Override
+	public void computeDistance(PackedStereo2D3D points, double[] distance) {
+		double[] R = worldToLeft.getR().data;
+		Vector3D_F64 T = worldToLeft.getT();
+		double tx = T.x, ty = T.y, tz = T.z;
+
+		double[] RR = leftToRight.getR().data;
+		T = leftToRight.getT();
+		double rtx = T.x, rty = T.y, rtz = T.z;
+
+		final double[] X = points.X, Y = points.Y, Z = points.Z;
+
+		for( int i = 0; i < points.size; i++ ) {
+			double x = X[i], y = Y[i], z = Z[i];
+
+			// point in left camera frame
+			double lx = R[0]*x + R[1]*y + R[2]*z + tx;
+			double ly = R[3]*x + R[4]*y + R[5]*z + ty;
+			double lz = R[6]*x + R[7]*y + R[8]*z + tz;
+
+			if( lz <= 0 ) {
+				distance[i] = Double.MAX_VALUE;
+				continue;
+			}
+
+			double errorLeft = leftPixelError.errorSq(lx/lz,ly/lz,points.leftX[i],points.leftY[i]);
+
+			// point in right camera frame
+			double rz = RR[6]*lx + RR[7]*ly + RR[8]*lz + rtz;
+
+			if( rz <= 0 ) {
+				distance[i] = Double.MAX_VALUE;
+				continue;
+			}
+
+			double rx = RR[0]*lx + RR[1]*ly + RR[2]*lz + rtx;
+			double ry = RR[3]*lx + RR[4]*ly + RR[5]*lz + rty;
+
+			distance[i] = errorLeft + rightPixelError.errorSq(rx/rz,ry/rz,points.rightX[i],points.rightY[i]);
+		}
+	}
+
+	/**
+	 * Creates copies for concurrent scoring of hypotheses.  The stereo parameters are copied.
+	 */
+	public static class Copier implements CopyDistanceFromModel<Se3_F64,Stereo2D3D> {
+		@Override
+		public DistanceFromModel<Se3_F64, Stereo2D3D> create() {
+			return new PnPStereoDistanceReprojectionSq();
+		}
+
+		@Override
+		public void copyConfiguration(DistanceFromModel<Se3_F64, Stereo2D3D> original,
+									  DistanceFromModel<Se3_F64, Stereo2D3D> copy) {
+			PnPStereoDistanceReprojectionSq o = (PnPStereoDistanceReprojectionSq)original;
+			PnPStereoDistanceReprojectionSq c = (PnPStereoDistanceReprojectionSq)copy;
+
+			if( o.leftToRight == null )
+				return;
+
+			if( c.leftToRight == null ) {
+				c.leftToRight = new Se3_F64();
+				c.leftPixelError = new NormalizedToPixelError();
+				c.rightPixelError = new NormalizedToPixelError();
+			}
+			c.leftToRight.set(o.leftToRight);
+			c.leftPixelError.set(o.leftPixelError);
+			c.rightPixelError.set(o.rightPixelError);
+		}
+	}
 }
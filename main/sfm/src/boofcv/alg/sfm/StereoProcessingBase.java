@@ -22,6 +22,8 @@ import boofcv.alg.distort.ImageDistort;
 import boofcv.alg.geo.PerspectiveOps;
 import boofcv.alg.geo.RectifyImageOps;
 import boofcv.alg.geo.rectify.RectifyCalibrated;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
 import boofcv.core.image.GeneralizedImageOps;
 import boofcv.struct.calib.IntrinsicParameters;
 import boofcv.struct.calib.StereoParameters;
@@ -51,6 +53,9 @@ public class StereoProcessingBase<T extends ImageSingleBand> {
 	protected T imageLeftRect;
 	protected T imageRightRect;
 
+	// if true the left and right images are rectified at the same time
+	private boolean concurrent = false;
+
 	// rectification matrices for left and right image
 	protected DenseMatrix64F rect1;
 	protected DenseMatrix64F rect2;
@@ -155,8 +160,34 @@ public class StereoProcessingBase<T extends ImageSingleBand> {
 		this.imageRightInput = rightImage;
 
 		// rectify input images
-		distortLeftRect.apply(imageLeftInput, imageLeftRect);
-		distortRightRect.apply(imageRightInput, imageRightRect);
+		if( concurrent ) {
+			BoofConcurrency.loopBlocks(0, 2, 1, new IntRangeTask() {
+				@Override
+				public void process(int block, int start, int end) {
+					for( int i = start; i < end; i++ ) {
+						if( i == 0 )
+							distortLeftRect.apply(imageLeftInput, imageLeftRect);
+						else
+							distortRightRect.apply(imageRightInput, imageRightRect);
+					}
+				}
+			});
+		} else {
+			distortLeftRect.apply(imageLeftInput, imageLeftRect);
+			distortRightRect.apply(imageRightInput, imageRightRect);
+		}
+	}
+
+	/**
+	 * If true then the left and right images are rectified at the same time.  Each image has its own
+	 * distortion model, so results are identical.
+	 */
+	public void setConcurrent( boolean concurrent ) {
+		this.concurrent = concurrent;
+	}
+
+	public boolean isConcurrent() {
+		return concurrent;
 	}
 
 	/**
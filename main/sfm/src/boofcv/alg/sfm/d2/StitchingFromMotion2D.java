@@ -39,6 +39,9 @@ import georegression.struct.shapes.Rectangle2D_I32;
  * which must be called before any images are processed.  One of the parameters include an initial transform.  The
  * initial transform can be used to scale/translate/other the input image.
  *
+ * Alternatively, images can be stitched into a {@link TiledMosaic} which can grow in any direction, see
+ * {@link #configure(TiledMosaic, georegression.struct.InvertibleTransform)}.
+ *
  * A sudden change or jump in the shape of the view area can be an indication of a bad motion estimate.  If a large
  * jump larger than the user specified threshold is detected then {@link #process(boofcv.struct.image.ImageBase)}
  * will return false.
@@ -76,6 +79,10 @@ public class StitchingFromMotion2D<I extends ImageBase, IT extends InvertibleTra
 	// storage for the stitched image
 	private I stitchedImage;
 	private I workImage;
+	// If not null images are stitched into this mosaic instead of the stitched image
+	private TiledMosaic<I> mosaic;
+	// storage for world to current frame as a homography
+	private Homography2D_F64 worldToCurrH = new Homography2D_F64();
 
 	// first time that it has been called
 	private boolean first = true;
@@ -114,6 +121,23 @@ public class StitchingFromMotion2D<I extends ImageBase, IT extends InvertibleTra
 			this.worldToInit.set(worldToInit);
 		this.widthStitch = widthStitch;
 		this.heightStitch = heightStitch;
+		this.mosaic = null;
+	}
+
+	/**
+	 * Stitches images into a tiled mosaic instead of a single image.  Pixel coordinates in the mosaic
+	 * are the stitch coordinate system.
+	 *
+	 * @param mosaic The mosaic images are rendered into.
+	 * @param worldToInit (Option) Used to change the location of the initial frame.  null means no transform.
+	 */
+	public void configure( TiledMosaic<I> mosaic , IT worldToInit ) {
+		this.worldToInit = (IT)worldToCurr.createInstance();
+		if( worldToInit != null )
+			this.worldToInit.set(worldToInit);
+		this.mosaic = mosaic;
+		this.stitchedImage = null;
+		this.workImage = null;
 	}
 
 	/**
@@ -125,7 +149,7 @@ public class StitchingFromMotion2D<I extends ImageBase, IT extends InvertibleTra
 	 * @return True if the stitched image is updated and false if it failed and was not
 	 */
 	public boolean process( I image ) {
-		if( stitchedImage == null ) {
+		if( mosaic == null && stitchedImage == null ) {
 			stitchedImage = (I)image._createNew(widthStitch, heightStitch);
 			workImage = (I)image._createNew(widthStitch, heightStitch);
 		}
@@ -144,7 +168,10 @@ public class StitchingFromMotion2D<I extends ImageBase, IT extends InvertibleTra
 	 * Throws away current results and starts over again
 	 */
 	public void reset() {
-		GImageMiscOps.fill(stitchedImage, 0);
+		if( mosaic != null )
+			mosaic.reset();
+		else
+			GImageMiscOps.fill(stitchedImage, 0);
 		motion.reset();
 		worldToCurr.reset();
 		first = true;
@@ -190,6 +217,11 @@ public class StitchingFromMotion2D<I extends ImageBase, IT extends InvertibleTra
 	private void update(I image) {
 		computeCurrToInit_PixelTran();
 
+		if( mosaic != null ) {
+			mosaic.add(image, converter.convertH(worldToCurr, worldToCurrH));
+			return;
+		}
+
 		// only process a cropped portion to speed up processing
 		Rectangle2D_I32 box = DistortImageOps.boundBox(image.width, image.height,
 				stitchedImage.width, stitchedImage.height, tranCurrToWorld);
@@ -216,9 +248,13 @@ public class StitchingFromMotion2D<I extends ImageBase, IT extends InvertibleTra
 
 	/**
 	 * Sets the current image to be the origin of the stitched coordinate system.
-	 * Must be called after {@link #process(boofcv.struct.image.ImageBase)}.
+	 * Must be called after {@link #process(boofcv.struct.image.ImageBase)}.  Not supported when stitching into
+	 * a {@link TiledMosaic}, since its tiles can't be rendered again.
 	 */
 	public void setOriginToCurrent() {
+		if( mosaic != null )
+			throw new IllegalArgumentException("Not supported when stitching into a tiled mosaic");
+
 		IT currToWorld = (IT)worldToCurr.invert(null);
 		IT oldWorldToNewWorld = (IT)worldToInit.concat(currToWorld,null);
 
@@ -279,6 +315,10 @@ public class StitchingFromMotion2D<I extends ImageBase, IT extends InvertibleTra
 		return stitchedImage;
 	}
 
+	public TiledMosaic<I> getMosaic() {
+		return mosaic;
+	}
+
 	public ImageMotion2D<I, IT> getMotion() {
 		return motion;
 	}
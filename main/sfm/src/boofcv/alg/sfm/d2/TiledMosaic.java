@@ -0,0 +1,546 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.d2;
+
+import boofcv.alg.distort.DistortImageOps;
+import boofcv.alg.distort.ImageDistort;
+import boofcv.alg.distort.PixelTransformHomography_F32;
+import boofcv.alg.interpolate.InterpolatePixelS;
+import boofcv.alg.interpolate.TypeInterpolate;
+import boofcv.alg.misc.GImageMiscOps;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
+import boofcv.core.image.FactoryGImageSingleBand;
+import boofcv.core.image.GImageSingleBand;
+import boofcv.factory.distort.FactoryDistort;
+import boofcv.factory.interpolate.FactoryInterpolation;
+import boofcv.struct.image.*;
+import georegression.struct.homo.Homography2D_F64;
+import georegression.struct.shapes.Rectangle2D_I32;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * <p>
+ * Mosaic which is stored in square tiles and can grow in any direction.  Tiles are only declared once an image
+ * is rendered on top of them and only the tiles which an image touches are processed.  Tiles are rendered
+ * concurrently.  Designed for very large mosaics, such as aerial mosaics created from video, which don't
+ * fit inside of a single image.
+ * </p>
+ *
+ * <p>
+ * The number of tiles kept in memory can be limited.  When the limit is exceeded the least recently used tiles
+ * are removed.  If a spill directory has been specified they are saved to disk and loaded again when needed,
+ * otherwise they are discarded.
+ * </p>
+ *
+ * <p>
+ * By default new images overwrite the mosaic.  If blending is turned on then each pixel is the weighted
+ * average of all the images which have been rendered on top of it.  Each image's weight is its distance
+ * from the image border, which hides the seams between images.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class TiledMosaic<I extends ImageBase> {
+
+	// type of image stored in each tile
+	private ImageType<I> imageType;
+	// width and height of each tile
+	private int tileSize;
+	// should images be blended together
+	private boolean blend;
+
+	// tiles in memory ordered from least to most recently used
+	private LinkedHashMap<Long,Tile<I>> tiles = new LinkedHashMap<Long,Tile<I>>(16,0.75f,true);
+	// tiles which have been saved to disk
+	private Set<Long> spilled = new HashSet<Long>();
+
+	// maximum number of tiles in memory
+	private int maxTilesInMemory = Integer.MAX_VALUE;
+	// directory that tiles are saved to.  If null they are discarded
+	private File spillDirectory;
+	// storage for one band of a tile while it's being saved or loaded.  Files are temporary so native byte order
+	private ByteBuffer spillBuffer;
+
+	// tiles touched by the current image
+	private List<Tile<I>> active = new ArrayList<Tile<I>>();
+	// distortion and storage for each block of tiles since they are not thread safe
+	private List<Worker> workers = new ArrayList<Worker>();
+
+	/**
+	 * Configures the mosaic
+	 *
+	 * @param imageType Type of image being stitched
+	 * @param tileSize Width and height of each tile in pixels.
+	 * @param blend If true images are blended together, otherwise new images overwrite the mosaic.
+	 */
+	public TiledMosaic( ImageType<I> imageType , int tileSize , boolean blend ) {
+		if( tileSize <= 0 )
+			throw new IllegalArgumentException("tileSize must be > 0");
+		if( imageType.getFamily() == ImageType.Family.INTERLEAVED )
+			throw new IllegalArgumentException("Interleaved images are not supported");
+
+		this.imageType = imageType;
+		this.tileSize = tileSize;
+		this.blend = blend;
+	}
+
+	/**
+	 * Limits the number of tiles kept in memory.
+	 *
+	 * @param maxTilesInMemory Maximum number of tiles in memory.
+	 * @param spillDirectory Directory that removed tiles are saved to.  If null they are discarded.
+	 */
+	public void setMemoryLimit( int maxTilesInMemory , File spillDirectory ) {
+		if( maxTilesInMemory <= 0 )
+			throw new IllegalArgumentException("maxTilesInMemory must be > 0");
+		if( spillDirectory != null && !spillDirectory.isDirectory() && !spillDirectory.mkdirs() )
+			throw new IllegalArgumentException("Can't create directory "+spillDirectory.getPath());
+
+		this.maxTilesInMemory = maxTilesInMemory;
+		this.spillDirectory = spillDirectory;
+		if( spillDirectory != null && spillBuffer == null ) {
+			// large enough for the largest pixel type
+			spillBuffer = ByteBuffer.allocate(tileSize*tileSize*8);
+			spillBuffer.order(ByteOrder.nativeOrder());
+		}
+		evict();
+	}
+
+	/**
+	 * Renders the image into the mosaic.
+	 *
+	 * @param image The image being added.  Not modified.
+	 * @param worldToImage Transform from mosaic pixels to image pixels.  Not modified.
+	 */
+	public void add( final I image , Homography2D_F64 worldToImage ) {
+		// find the region in the mosaic which the image touches
+		Homography2D_F64 imageToWorld = worldToImage.invert(null);
+		Rectangle2D_I32 box = DistortImageOps.boundBox(image.width, image.height,
+				new PixelTransformHomography_F32(imageToWorld));
+
+		int tx0 = floorDiv(box.tl_x - 1);
+		int ty0 = floorDiv(box.tl_y - 1);
+		int tx1 = floorDiv(box.tl_x + box.width + 1);
+		int ty1 = floorDiv(box.tl_y + box.height + 1);
+
+		// declare or load all the tiles first since that modifies the map
+		active.clear();
+		for( int ty = ty0; ty <= ty1; ty++ ) {
+			for( int tx = tx0; tx <= tx1; tx++ ) {
+				if( overlaps(worldToImage, tx, ty, image.width, image.height) )
+					active.add(lookup(tx, ty, true));
+			}
+		}
+
+		int numBlocks = BoofConcurrency.computeBlockCount(0, active.size(), 1);
+		while( workers.size() < numBlocks )
+			workers.add(new Worker());
+
+		final Homography2D_F64 H = worldToImage.copy();
+		BoofConcurrency.loopBlocks(0, active.size(), 1, new IntRangeTask() {
+			@Override
+			public void process(int block, int i0, int i1) {
+				Worker w = workers.get(block);
+				for( int i = i0; i < i1; i++ ) {
+					w.render(image, H, active.get(i));
+				}
+			}
+		});
+
+		evict();
+	}
+
+	/**
+	 * Checks to see if the tile might be inside the image by finding the tile's bounding box in the image.
+	 */
+	private boolean overlaps( Homography2D_F64 worldToImage , int tx , int ty , int width , int height ) {
+		double x0 = tx*tileSize, y0 = ty*tileSize;
+		double x1 = x0 + tileSize - 1, y1 = y0 + tileSize - 1;
+
+		double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+
+		for( int i = 0; i < 4; i++ ) {
+			double x = (i & 1) == 0 ? x0 : x1;
+			double y = (i & 2) == 0 ? y0 : y1;
+
+			Homography2D_F64 H = worldToImage;
+			double z = H.a31*x + H.a32*y + H.a33;
+			// can't tell when part of the tile is behind the camera
+			if( z <= 0 )
+				return true;
+			double u = (H.a11*x + H.a12*y + H.a13)/z;
+			double v = (H.a21*x + H.a22*y + H.a23)/z;
+
+			minX = Math.min(minX,u); maxX = Math.max(maxX,u);
+			minY = Math.min(minY,v); maxY = Math.max(maxY,v);
+		}
+
+		return maxX >= 0 && minX <= width-1 && maxY >= 0 && minY <= height-1;
+	}
+
+	/**
+	 * Copies the region of the mosaic starting at (x0,y0) into the output image.  Pixels without a tile are
+	 * set to zero.
+	 *
+	 * @param x0 Mosaic x-coordinate of the output's top left corner
+	 * @param y0 Mosaic y-coordinate of the output's top left corner
+	 * @param output Output image.  Its size determines the size of the region.
+	 */
+	public void render( int x0 , int y0 , I output ) {
+		GImageMiscOps.fill(output, 0);
+
+		int x1 = x0 + output.width, y1 = y0 + output.height;
+
+		for( int ty = floorDiv(y0); ty <= floorDiv(y1-1); ty++ ) {
+			for( int tx = floorDiv(x0); tx <= floorDiv(x1-1); tx++ ) {
+				Tile<I> t = lookup(tx, ty, false);
+				if( t == null )
+					continue;
+
+				int ox = tx*tileSize, oy = ty*tileSize;
+				int ax0 = Math.max(x0, ox), ay0 = Math.max(y0, oy);
+				int ax1 = Math.min(x1, ox+tileSize), ay1 = Math.min(y1, oy+tileSize);
+
+				I src = (I)t.image.subimage(ax0-ox, ay0-oy, ax1-ox, ay1-oy, null);
+				I dst = (I)output.subimage(ax0-x0, ay0-y0, ax1-x0, ay1-y0, null);
+				dst.setTo(src);
+			}
+		}
+		evict();
+	}
+
+	/**
+	 * Returns the bounding box of all the tiles, in memory or on disk, in mosaic pixels.
+	 *
+	 * @return Bounding box or null if there are no tiles
+	 */
+	public Rectangle2D_I32 getBounds() {
+		if( tiles.isEmpty() && spilled.isEmpty() )
+			return null;
+
+		int tx0 = Integer.MAX_VALUE, ty0 = Integer.MAX_VALUE;
+		int tx1 = Integer.MIN_VALUE, ty1 = Integer.MIN_VALUE;
+
+		Set<Long> keys = new HashSet<Long>(tiles.keySet());
+		keys.addAll(spilled);
+		for( long key : keys ) {
+			int tx = (int)(key >> 32), ty = (int)key;
+			tx0 = Math.min(tx0,tx); tx1 = Math.max(tx1,tx);
+			ty0 = Math.min(ty0,ty); ty1 = Math.max(ty1,ty);
+		}
+
+		return new Rectangle2D_I32(tx0*tileSize, ty0*tileSize, (tx1-tx0+1)*tileSize, (ty1-ty0+1)*tileSize);
+	}
+
+	/**
+	 * Returns the tile at the specified tile coordinate.  If it has been saved to disk it is loaded, which can
+	 * cause a different tile to be removed from memory.
+	 *
+	 * @return The tile or null if there is no tile there
+	 */
+	public Tile<I> getTile( int tileX , int tileY ) {
+		Tile<I> t = lookup(tileX, tileY, false);
+		evict();
+		return t;
+	}
+
+	/**
+	 * Discards all the tiles, including the ones saved to disk
+	 */
+	public void reset() {
+		tiles.clear();
+		if( spillDirectory != null ) {
+			for( long key : spilled )
+				tileFile(key).delete();
+		}
+		spilled.clear();
+	}
+
+	/**
+	 * Number of tiles in memory
+	 */
+	public int getTilesInMemory() {
+		return tiles.size();
+	}
+
+	/**
+	 * Total number of tiles, in memory or on disk
+	 */
+	public int getTotalTiles() {
+		return tiles.size() + spilled.size();
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	public ImageType<I> getImageType() {
+		return imageType;
+	}
+
+	public boolean isBlend() {
+		return blend;
+	}
+
+	private Tile<I> lookup( int tx , int ty , boolean create ) {
+		long key = key(tx, ty);
+		Tile<I> t = tiles.get(key);
+		if( t != null )
+			return t;
+
+		if( spilled.remove(key) ) {
+			t = load(key);
+		} else if( create ) {
+			t = createTile(tx, ty);
+		} else {
+			return null;
+		}
+		tiles.put(key, t);
+		return t;
+	}
+
+	private Tile<I> createTile( int tx , int ty ) {
+		Tile<I> t = new Tile<I>();
+		t.tileX = tx;
+		t.tileY = ty;
+		t.image = imageType.createImage(tileSize, tileSize);
+		if( blend )
+			t.weight = new ImageFloat32(tileSize, tileSize);
+		return t;
+	}
+
+	/**
+	 * Removes the least recently used tiles until the memory limit is satisfied.  Tiles used by the most
+	 * recent image are never removed.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<Long,Tile<I>>> iter = tiles.entrySet().iterator();
+		while( tiles.size() > maxTilesInMemory && iter.hasNext() ) {
+			Map.Entry<Long,Tile<I>> e = iter.next();
+			if( active.contains(e.getValue()) )
+				break;
+			if( spillDirectory != null ) {
+				save(e.getKey(), e.getValue());
+				spilled.add(e.getKey());
+			}
+			iter.remove();
+		}
+	}
+
+	/**
+	 * Saves each band's pixels, followed by the blend weights, as raw binary data
+	 */
+	private void save( long key , Tile<I> t ) {
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tileFile(key))));
+			try {
+				int numBands = imageType.getNumBands();
+				for( int i = 0; i < numBands; i++ ) {
+					writeBand(band(t.image, i), out);
+				}
+				if( blend )
+					writeBand(t.weight, out);
+			} finally {
+				out.close();
+			}
+		} catch( IOException e ) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private Tile<I> load( long key ) {
+		File f = tileFile(key);
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+			try {
+				Tile<I> t = createTile((int)(key >> 32), (int)key);
+				int numBands = imageType.getNumBands();
+				for( int i = 0; i < numBands; i++ ) {
+					readBand(in, band(t.image, i));
+				}
+				if( blend )
+					readBand(in, t.weight);
+				return t;
+			} finally {
+				in.close();
+				f.delete();
+			}
+		} catch( IOException e ) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Copies the band's pixels into the spill buffer and writes them.  Tiles are always created by the mosaic
+	 * so the data array contains only the tile's pixels.
+	 */
+	private void writeBand( ImageSingleBand b , DataOutputStream out ) throws IOException {
+		spillBuffer.clear();
+		switch( b.getDataType() ) {
+			case U8: case S8: spillBuffer.put(((ImageInt8)b).data); break;
+			case U16: case S16: spillBuffer.asShortBuffer().put(((ImageInt16)b).data); break;
+			case S32: spillBuffer.asIntBuffer().put(((ImageSInt32)b).data); break;
+			case S64: spillBuffer.asLongBuffer().put(((ImageSInt64)b).data); break;
+			case F32: spillBuffer.asFloatBuffer().put(((ImageFloat32)b).data); break;
+			case F64: spillBuffer.asDoubleBuffer().put(((ImageFloat64)b).data); break;
+			default: throw new IllegalArgumentException("Unsupported image type "+b.getDataType());
+		}
+		out.write(spillBuffer.array(), 0, bandBytes(b));
+	}
+
+	private void readBand( DataInputStream in , ImageSingleBand b ) throws IOException {
+		in.readFully(spillBuffer.array(), 0, bandBytes(b));
+		spillBuffer.clear();
+		switch( b.getDataType() ) {
+			case U8: case S8: spillBuffer.get(((ImageInt8)b).data); break;
+			case U16: case S16: spillBuffer.asShortBuffer().get(((ImageInt16)b).data); break;
+			case S32: spillBuffer.asIntBuffer().get(((ImageSInt32)b).data); break;
+			case S64: spillBuffer.asLongBuffer().get(((ImageSInt64)b).data); break;
+			case F32: spillBuffer.asFloatBuffer().get(((ImageFloat32)b).data); break;
+			case F64: spillBuffer.asDoubleBuffer().get(((ImageFloat64)b).data); break;
+			default: throw new IllegalArgumentException("Unsupported image type "+b.getDataType());
+		}
+	}
+
+	private int bandBytes( ImageSingleBand b ) {
+		return tileSize*tileSize*(b.getDataType().getNumBits()/8);
+	}
+
+	private File tileFile( long key ) {
+		return new File(spillDirectory, "tile_"+(int)(key >> 32)+"_"+(int)key+".bin");
+	}
+
+	private static long key( int tx , int ty ) {
+		return ((long)tx << 32) | (ty & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Index of the tile which contains the pixel coordinate
+	 */
+	private int floorDiv( int value ) {
+		if( value >= 0 )
+			return value/tileSize;
+		return -((-value + tileSize - 1)/tileSize);
+	}
+
+	/**
+	 * Square region in the mosaic.  Tile (tileX,tileY) contains pixels from tileX*size to (tileX+1)*size-1
+	 */
+	public static class Tile<I extends ImageBase> {
+		public int tileX, tileY;
+		// pixels inside the tile
+		public I image;
+		// sum of weights of each pixel.  Only used when blending
+		public ImageFloat32 weight;
+	}
+
+	/**
+	 * Renders the image into tiles.  Each worker has its own distortion since they are not thread safe.
+	 */
+	private class Worker {
+		ImageDistort<I> distorter;
+		PixelTransformHomography_F32 tileToImage = new PixelTransformHomography_F32();
+		Homography2D_F64 H = new Homography2D_F64();
+
+		// storage used when blending
+		I work;
+		GImageSingleBand[] bandWork;
+		GImageSingleBand[] bandTile;
+
+		private Worker() {
+			Class bandType = imageType.getImageClass();
+			InterpolatePixelS interp = FactoryInterpolation.createPixelS(0, 255, TypeInterpolate.BILINEAR, bandType);
+			if( imageType.getFamily() == ImageType.Family.MULTI_SPECTRAL )
+				distorter = (ImageDistort)FactoryDistort.distortMS(interp, null, bandType);
+			else
+				distorter = (ImageDistort)FactoryDistort.distort(interp, null, bandType);
+
+			if( blend ) {
+				work = imageType.createImage(tileSize, tileSize);
+				bandWork = new GImageSingleBand[imageType.getNumBands()];
+				bandTile = new GImageSingleBand[imageType.getNumBands()];
+				for( int i = 0; i < bandWork.length; i++ ) {
+					bandWork[i] = FactoryGImageSingleBand.wrap(band(work, i));
+				}
+			}
+		}
+
+		public void render( I image , Homography2D_F64 worldToImage , Tile<I> tile ) {
+			// tile pixel (x,y) is at (x+ox,y+oy) in the mosaic
+			double ox = tile.tileX*tileSize, oy = tile.tileY*tileSize;
+			Homography2D_F64 W = worldToImage;
+			H.set(W);
+			H.a13 = W.a11*ox + W.a12*oy + W.a13;
+			H.a23 = W.a21*ox + W.a22*oy + W.a23;
+			H.a33 = W.a31*ox + W.a32*oy + W.a33;
+			tileToImage.set(H);
+
+			distorter.setModel(tileToImage);
+
+			if( !blend ) {
+				distorter.apply(image, tile.image);
+				return;
+			}
+
+			distorter.apply(image, work);
+			for( int i = 0; i < bandTile.length; i++ ) {
+				bandTile[i] = FactoryGImageSingleBand.wrap(band(tile.image, i), bandTile[i]);
+			}
+
+			float widthF = image.width-1;
+			float heightF = image.height-1;
+			boolean integer = !bandTile[0].isFloatingPoint();
+
+			for( int y = 0; y < tileSize; y++ ) {
+				int index = y*tileSize;
+				for( int x = 0; x < tileSize; x++ , index++ ) {
+					tileToImage.compute(x,y);
+					float sx = tileToImage.distX, sy = tileToImage.distY;
+					if( sx < 0 || sx > widthF || sy < 0 || sy > heightF )
+						continue;
+
+					// distance from the image border.  +1 so that the border still contributes
+					float w = Math.min(Math.min(sx, widthF-sx), Math.min(sy, heightF-sy)) + 1;
+
+					float before = tile.weight.data[index];
+					float after = before + w;
+					for( int i = 0; i < bandTile.length; i++ ) {
+						float value = (bandTile[i].getF(index)*before + bandWork[i].getF(index)*w)/after;
+						bandTile[i].set(index, integer ? value + 0.5f : value);
+					}
+					tile.weight.data[index] = after;
+				}
+			}
+		}
+	}
+
+	private static ImageSingleBand band( ImageBase image , int which ) {
+		if( image instanceof MultiSpectral )
+			return ((MultiSpectral)image).getBand(which);
+		return (ImageSingleBand)image;
+	}
+}
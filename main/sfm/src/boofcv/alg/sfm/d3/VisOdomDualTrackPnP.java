@@ -22,13 +22,16 @@ import boofcv.abst.feature.associate.AssociateDescription2D;
 import boofcv.abst.feature.describe.DescribeRegionPoint;
 import boofcv.abst.feature.tracker.PointTrack;
 import boofcv.abst.feature.tracker.PointTracker;
-import boofcv.abst.geo.TriangulateTwoViewsCalibrated;
 import boofcv.alg.distort.LensDistortionOps;
 import boofcv.alg.feature.associate.StereoConsistencyCheck;
+import boofcv.alg.geo.triangulate.TriangulateBatchCalibrated;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
 import boofcv.struct.calib.StereoParameters;
 import boofcv.struct.distort.PointTransform_F64;
 import boofcv.struct.feature.AssociatedIndex;
 import boofcv.struct.feature.TupleDesc;
+import boofcv.struct.geo.PackedAssociatedPair;
 import boofcv.struct.image.ImageBase;
 import boofcv.struct.sfm.Stereo2D3D;
 import georegression.struct.point.Point2D_F64;
@@ -52,6 +55,10 @@ import java.util.List;
  *
  * Estimated motion is relative to left camera.
  *
+ * Optionally the left and right images can be processed concurrently, see {@link #setConcurrent}.  Drift can be
+ * reduced by refining recent key frames with a {@link VisOdomLocalMap}, see {@link #setLocalMap}.
+ * Key frames can be passed on to loop closure detection with {@link #setKeyFrameListener}.
+ *
  * @author Peter Abeles
  */
 public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
@@ -74,6 +81,8 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 	private PointTracker<T> trackerLeft;
 	private PointTracker<T> trackerRight;
 	private DescribeRegionPoint<T,Desc> describe;
+	// describes features in the right image when processing concurrently
+	private DescribeRegionPoint<T,Desc> describeRight;
 
 	// Data structures used when associating left and right cameras
 	private FastQueue<Point2D_F64> pointsLeft = new FastQueue<Point2D_F64>(Point2D_F64.class,false);
@@ -82,8 +91,15 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 
 	// matches features between left and right images
 	private AssociateDescription2D<Desc> assocL2R;
-	// Estimates the 3D coordinate of a feature
-	private TriangulateTwoViewsCalibrated triangulate;
+	// Estimates the 3D coordinate of new features
+	private TriangulateBatchCalibrated triangulate;
+	// normalized image coordinates of new stereo matches and their triangulated location in the camera frame
+	private PackedAssociatedPair packedObs = new PackedAssociatedPair();
+	private double[] cameraX = new double[0];
+	private double[] cameraY = new double[0];
+	private double[] cameraZ = new double[0];
+	private boolean[] triangulated = new boolean[0];
+	private Point2D_F64 pointNorm = new Point2D_F64();
 
 	// convert for original image pixels into normalized image coordinates
 	private PointTransform_F64 leftImageToNorm;
@@ -110,6 +126,13 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 	// is this the first frame
 	private boolean first = true;
 
+	// optional local map used to reduce drift
+	private VisOdomLocalMap localMap;
+	// notified when a key frame is selected.  Can be null
+	private VisOdomKeyFrameListener<T> keyFrameListener;
+	// number of key frames which have been selected
+	private long totalKeyFrames = 0;
+
 	/**
 	 * Specifies internal algorithms and parameters
 	 *
@@ -128,7 +151,7 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 							   PointTracker<T> trackerLeft, PointTracker<T> trackerRight,
 							   DescribeRegionPoint<T,Desc> describe,
 							   AssociateDescription2D<Desc> assocL2R,
-							   TriangulateTwoViewsCalibrated triangulate,
+							   TriangulateBatchCalibrated triangulate,
 							   ModelMatcher<Se3_F64, Stereo2D3D> matcher,
 							   ModelFitter<Se3_F64, Stereo2D3D> modelRefiner)
 	{
@@ -151,6 +174,26 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 		stereoCheck = new StereoConsistencyCheck(epilolarTol,epilolarTol);
 	}
 
+	/**
+	 * Turns on concurrent processing of the left and right images.  The two trackers are updated at the same
+	 * time and when tracks are spawned their descriptions are computed at the same time.  The join happens
+	 * before tracks are associated between the two images, so results are identical to serial processing.
+	 * The left and right trackers must not share any internal data structures.
+	 *
+	 * @param describeRight Describes features in the right image.  Must have the same configuration as the
+	 *                      description for the left image but be a different instance.  If null concurrent
+	 *                      processing is turned off.
+	 */
+	public void setConcurrent( DescribeRegionPoint<T,Desc> describeRight ) {
+		if( describeRight == describe )
+			throw new IllegalArgumentException("The right description must be a different instance");
+		this.describeRight = describeRight;
+	}
+
+	public boolean isConcurrent() {
+		return describeRight != null;
+	}
+
 	public void setCalibration(StereoParameters param) {
 
 		param.rightToLeft.invert(leftToRight);
@@ -169,6 +212,8 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 		currToKey.reset();
 		first = true;
 		tick = 0;
+		if( localMap != null )
+			localMap.reset();
 	}
 
 	/**
@@ -184,12 +229,31 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 		this.inputLeft = left;
 		this.inputRight = right;
 
+		if( localMap != null )
+			localMap.applyCorrection(keyToWorld);
+
 		tick++;
-		trackerLeft.process(left);
-		trackerRight.process(right);
+		if( describeRight == null ) {
+			trackerLeft.process(left);
+			trackerRight.process(right);
+		} else {
+			BoofConcurrency.loopBlocks(0, 2, 1, new IntRangeTask() {
+				@Override
+				public void process(int block, int start, int end) {
+					for( int i = start; i < end; i++ ) {
+						if( i == 0 )
+							trackerLeft.process(inputLeft);
+						else
+							trackerRight.process(inputRight);
+					}
+				}
+			});
+		}
 
 		if( first ) {
 			addNewTracks();
+			addKeyFrameToMap();
+			notifyKeyFrame(left);
 			first = false;
 		} else {
 			mutualTrackDrop();
@@ -208,11 +272,38 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 			if( thresholdAdd <= 0 || N < thresholdAdd ) {
 				changePoseToReference();
 				addNewTracks();
+				addKeyFrameToMap();
+				notifyKeyFrame(left);
 			}
 		}
 		return true;
 	}
 
+	/**
+	 * Passes the key frame which was just selected on to the listener
+	 */
+	private void notifyKeyFrame( T image ) {
+		long id = totalKeyFrames++;
+		if( keyFrameListener != null )
+			keyFrameListener.handleKeyFrame(id, keyToWorld, image);
+	}
+
+	/**
+	 * Adds the current frame to the local map as a key frame along with the tracks which are inliers or new
+	 */
+	private void addKeyFrameToMap() {
+		if( localMap == null )
+			return;
+
+		localMap.addKeyFrame(keyToWorld);
+		for( PointTrack t : trackerLeft.getActiveTracks(null) ) {
+			LeftTrackInfo info = t.getCookie();
+			if( info != null && info.lastInlier == tick )
+				localMap.addObservation(t.featureId, info.location.leftObs, info.location.location);
+		}
+		localMap.finishKeyFrame();
+	}
+
 	/**
 	 * Non-linear refinement of motion estimate
 	 */
@@ -390,15 +481,25 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 	 * Spawns tracks in each image and associates features together.
 	 */
 	private void addNewTracks() {
-		trackerLeft.spawnTracks();
-		trackerRight.spawnTracks();
-
-		List<PointTrack> newLeft = trackerLeft.getNewTracks(null);
-		List<PointTrack> newRight = trackerRight.getNewTracks(null);
+		final List<PointTrack> newLeft = new ArrayList<PointTrack>();
+		final List<PointTrack> newRight = new ArrayList<PointTrack>();
 
-		// get a list of new tracks and their descriptions
-		addNewToList(inputLeft, newLeft, pointsLeft, descLeft);
-		addNewToList(inputRight,newRight,pointsRight,descRight);
+		if( describeRight == null ) {
+			spawnAndDescribe(true, newLeft);
+			spawnAndDescribe(false, newRight);
+		} else {
+			BoofConcurrency.loopBlocks(0, 2, 1, new IntRangeTask() {
+				@Override
+				public void process(int block, int start, int end) {
+					for( int i = start; i < end; i++ ) {
+						if( i == 0 )
+							spawnAndDescribe(true, newLeft);
+						else
+							spawnAndDescribe(false, newRight);
+					}
+				}
+			});
+		}
 
 		// associate using L2R
 		assocL2R.setSource(pointsLeft,descLeft);
@@ -406,6 +507,29 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 		assocL2R.associate();
 		FastQueue<AssociatedIndex> matches = assocL2R.getMatches();
 
+		// convert pixel observations into normalized image coordinates and triangulate them all at once
+		packedObs.reserve(matches.size);
+		packedObs.size = matches.size;
+		if( triangulated.length < matches.size ) {
+			cameraX = new double[matches.size];
+			cameraY = new double[matches.size];
+			cameraZ = new double[matches.size];
+			triangulated = new boolean[matches.size];
+		}
+		for( int i = 0; i < matches.size; i++ ) {
+			AssociatedIndex m = matches.get(i);
+			PointTrack trackL = newLeft.get(m.src);
+			PointTrack trackR = newRight.get(m.dst);
+
+			leftImageToNorm.compute(trackL.x,trackL.y,pointNorm);
+			packedObs.x1[i] = pointNorm.x;
+			packedObs.y1[i] = pointNorm.y;
+			rightImageToNorm.compute(trackR.x,trackR.y,pointNorm);
+			packedObs.x2[i] = pointNorm.x;
+			packedObs.y2[i] = pointNorm.y;
+		}
+		triangulate.triangulate(packedObs,leftToRight,cameraX,cameraY,cameraZ,triangulated);
+
 		// storage for the triangulated location in the camera frame
 		Point3D_F64 cameraP3 = new Point3D_F64();
 
@@ -427,24 +551,22 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 
 			Stereo2D3D p2d3d = infoLeft.location;
 
-			// convert pixel observations into normalized image coordinates
-			leftImageToNorm.compute(trackL.x,trackL.y,p2d3d.leftObs);
-			rightImageToNorm.compute(trackR.x,trackR.y,p2d3d.rightObs);
+			p2d3d.leftObs.set(packedObs.x1[i],packedObs.y1[i]);
+			p2d3d.rightObs.set(packedObs.x2[i],packedObs.y2[i]);
 
-			// triangulate 3D coordinate in the current camera frame
-			if( triangulate.triangulate(p2d3d.leftObs,p2d3d.rightObs,leftToRight,cameraP3) )
+			if( triangulated[i] )
 			{
 				// put the track into the current keyframe coordinate system
+				cameraP3.set(cameraX[i],cameraY[i],cameraZ[i]);
 				SePointOps_F64.transform(currToKey,cameraP3,p2d3d.location);
 				// save a reference to the matching track in the right camera frame
 				infoLeft.right = trackR;
 				infoLeft.lastConsistent = infoLeft.lastInlier = tick;
 				infoRight.left = trackL;
 			} else {
-				// triangulation failed, drop track
+				// triangulation failed, e.g. parallel rays, drop both tracks
 				trackerLeft.dropTrack(trackL);
-				// TODO need way to mark right tracks which are unassociated after this loop
-				throw new RuntimeException("This special case needs to be handled!");
+				trackerRight.dropTrack(trackR);
 			}
 		}
 
@@ -479,7 +601,24 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 //		}
 	}
 
-	private void addNewToList( T image,
+	/**
+	 * Spawns new tracks in one of the cameras and computes their descriptions.  Only touches data structures
+	 * for that camera.
+	 */
+	private void spawnAndDescribe( boolean left , List<PointTrack> newTracks ) {
+		if( left ) {
+			trackerLeft.spawnTracks();
+			trackerLeft.getNewTracks(newTracks);
+			addNewToList(describe, inputLeft, newTracks, pointsLeft, descLeft);
+		} else {
+			trackerRight.spawnTracks();
+			trackerRight.getNewTracks(newTracks);
+			addNewToList(describeRight == null ? describe : describeRight,
+					inputRight, newTracks, pointsRight, descRight);
+		}
+	}
+
+	private void addNewToList( DescribeRegionPoint<T,Desc> describe , T image,
 							   List<PointTrack> tracks ,
 							   FastQueue<Point2D_F64> points , FastQueue<Desc> descs )
 	{
@@ -512,6 +651,34 @@ public class VisOdomDualTrackPnP<T extends ImageBase,Desc extends TupleDesc> {
 		return tick;
 	}
 
+	/**
+	 * Specifies a local map which is used to refine key frames and reduce drift.  Must be called before
+	 * the first image is processed.
+	 *
+	 * @param localMap The local map.  If null then no map is used.
+	 */
+	public void setLocalMap(VisOdomLocalMap localMap) {
+		this.localMap = localMap;
+	}
+
+	public VisOdomLocalMap getLocalMap() {
+		return localMap;
+	}
+
+	/**
+	 * Specifies a listener which is notified each time a key frame is selected, e.g. a
+	 * {@link boofcv.alg.sfm.loop.LoopClosureWorker}.  Must be called before the first image is processed.
+	 *
+	 * @param keyFrameListener The listener.  If null then no listener is used.
+	 */
+	public void setKeyFrameListener(VisOdomKeyFrameListener<T> keyFrameListener) {
+		this.keyFrameListener = keyFrameListener;
+	}
+
+	public VisOdomKeyFrameListener<T> getKeyFrameListener() {
+		return keyFrameListener;
+	}
+
 	/**
 	 * If there are no candidates then a fault happened.
 	 * @return true if fault.  false is no fault
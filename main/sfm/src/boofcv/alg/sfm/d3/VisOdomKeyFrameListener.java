@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.d3;
+
+import boofcv.struct.image.ImageBase;
+import georegression.struct.se.Se3_F64;
+
+/**
+ * Notified by visual odometry each time it selects a new key frame, e.g. so that the key frame can be passed on
+ * to loop closure detection.  It's called inside the thread which is running the odometry, so it should return
+ * quickly and must copy anything which it wants to keep.
+ *
+ * @author Peter Abeles
+ */
+public interface VisOdomKeyFrameListener<T extends ImageBase> {
+
+	/**
+	 * Called after a new key frame has been selected
+	 *
+	 * @param id Unique ID of the key frame.  Sequential and starts at zero.  Not reset when the odometry is reset.
+	 * @param cameraToWorld Pose of the key frame in the odometry's world frame.  Not modified.
+	 * @param image Image of the key frame.  For stereo this is the left image.  Not modified.
+	 */
+	public void handleKeyFrame( long id , Se3_F64 cameraToWorld , T image );
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.d3;
+
+import boofcv.abst.geo.bundle.BundleAdjustmentCalibratedSparse;
+import boofcv.alg.geo.bundle.CalibratedPoseAndPoint;
+import boofcv.alg.geo.bundle.ViewPointObservations;
+import boofcv.concurrency.WorkerThread;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Local map for visual odometry which reduces drift by refining the most recent key frames and the points
+ * they observe with bundle adjustment.  A sliding window with a fixed number of key frames is maintained.  When
+ * a new key frame is added the oldest one is removed along with points which are no longer observed.  The oldest
+ * key frames in the window are held constant to fix the coordinate system and scale.
+ * </p>
+ *
+ * <p>
+ * Optimization can be done in a background thread so that it doesn't stall tracking.  When a key frame is
+ * finished a copy of the window is made and optimized if the thread is idle, otherwise the request is skipped.
+ * When optimization is done the map is updated and a correction is computed which maps the world frame used by
+ * the odometry into the corrected world frame.  The correction is found from how much the pose of the newest
+ * optimized key frame changed.  The odometry applies it to its own pose estimate with {@link #applyCorrection}.
+ * Key frames and points which were added while optimization was running are moved using the same correction.
+ * </p>
+ *
+ * <p>
+ * Observations are in normalized image coordinates.  Key frame poses and point locations are in the world frame.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class VisOdomLocalMap {
+
+	// maximum number of key frames in the window
+	private int windowSize;
+	// number of the oldest key frames which are fixed
+	private int numFixed;
+	// if true the optimization is run in a background thread
+	private boolean background;
+
+	// refines the window
+	private BundleAdjustmentCalibratedSparse bundle;
+
+	//---------- Everything below is guarded by 'this'
+	// key frames from oldest to newest
+	private List<KeyFrame> window = new ArrayList<KeyFrame>();
+	// points indexed by their track ID
+	private Map<Long,MapPoint> points = new HashMap<Long,MapPoint>();
+	private long nextKeyFrameId = 0;
+	// incremented when reset so that results from an old optimization are ignored
+	private int generation = 0;
+	// transform from the odometry's world frame into the corrected world frame
+	private Se3_F64 correction = new Se3_F64();
+	private boolean hasCorrection = false;
+	// true if an optimization is queued or running
+	private boolean busy = false;
+	private int totalOptimized = 0;
+	private int totalSkipped = 0;
+	// exception thrown inside the worker
+	private RuntimeException failure;
+
+	// A dedicated thread is used so that bundle adjustment can use the shared pool
+	private WorkerThread<Snapshot> worker = new WorkerThread<Snapshot>("VisOdomLocalMap",
+			new WorkerThread.Handler<Snapshot>() {
+		@Override
+		public void process(Snapshot s) {
+			optimize(s);
+		}
+
+		@Override
+		public void failed(RuntimeException failure) {
+			recordFailure(failure);
+		}
+	});
+
+	/**
+	 * Configures the local map
+	 *
+	 * @param windowSize Maximum number of key frames in the window.
+	 * @param numFixed Number of the oldest key frames in the window which are held constant. Try 2.
+	 * @param bundle Bundle adjustment
+	 * @param background If true optimization is done in a background thread.
+	 */
+	public VisOdomLocalMap(int windowSize, int numFixed,
+						   BundleAdjustmentCalibratedSparse bundle ,
+						   boolean background ) {
+		if( numFixed < 1 || windowSize <= numFixed )
+			throw new IllegalArgumentException("Window must be larger than the number of fixed key frames");
+		this.windowSize = windowSize;
+		this.numFixed = numFixed;
+		this.bundle = bundle;
+		this.background = background;
+	}
+
+	/**
+	 * Adds a new key frame to the window.  If the window is full the oldest key frame is removed.
+	 *
+	 * @param cameraToWorld Pose of the key frame in the odometry's world frame.
+	 */
+	public synchronized void addKeyFrame( Se3_F64 cameraToWorld ) {
+		checkFailure();
+
+		if( window.size() == windowSize ) {
+			KeyFrame old = window.remove(0);
+			for( MapPoint p : old.observed ) {
+				if( --p.numObservations == 0 )
+					points.remove(p.trackId);
+			}
+		}
+
+		KeyFrame k = new KeyFrame();
+		k.id = nextKeyFrameId++;
+		// an unapplied correction means the odometry is still in the old world frame
+		if( hasCorrection )
+			cameraToWorld.concat(correction, k.cameraToWorld);
+		else
+			k.cameraToWorld.set(cameraToWorld);
+		window.add(k);
+	}
+
+	/**
+	 * Adds an observation of a point to the most recent key frame.
+	 *
+	 * @param trackId Unique ID of the track
+	 * @param norm Observation in normalized image coordinates
+	 * @param location Location of the point in the key frame's coordinate system.  Only used if the point
+	 *                 is not already in the map.
+	 */
+	public synchronized void addObservation( long trackId , Point2D_F64 norm , Point3D_F64 location ) {
+		KeyFrame k = window.get(window.size()-1);
+
+		MapPoint p = points.get(trackId);
+		if( p == null ) {
+			p = new MapPoint();
+			p.trackId = trackId;
+			p.keyFrameId = k.id;
+			SePointOps_F64.transform(k.cameraToWorld, location, p.location);
+			points.put(trackId, p);
+		}
+		p.numObservations++;
+		k.observed.add(p);
+		k.observations.add(norm.copy());
+	}
+
+	/**
+	 * Call after all the observations for the most recent key frame have been added.  Will start optimizing
+	 * the window if there are enough key frames and the previous optimization has finished.
+	 */
+	public void finishKeyFrame() {
+		Snapshot s;
+		synchronized( this ) {
+			checkFailure();
+			if( window.size() <= numFixed )
+				return;
+			if( busy ) {
+				totalSkipped++;
+				return;
+			}
+			s = createSnapshot();
+			if( s == null )
+				return;
+			busy = true;
+		}
+
+		if( background ) {
+			worker.submit(s);
+		} else {
+			try {
+				optimize(s);
+			} catch( RuntimeException e ) {
+				recordFailure(e);
+			}
+		}
+	}
+
+	/**
+	 * Applies the correction found by the most recent optimizations to a pose in the odometry's world frame,
+	 * then discards the correction.  Call each time before the odometry's pose is used.
+	 *
+	 * @param cameraToWorld (Input/Output) Pose which is corrected
+	 * @return true if there was a correction and it was applied
+	 */
+	public synchronized boolean applyCorrection( Se3_F64 cameraToWorld ) {
+		if( !hasCorrection )
+			return false;
+
+		Se3_F64 tmp = new Se3_F64();
+		cameraToWorld.concat(correction,tmp);
+		cameraToWorld.set(tmp);
+
+		correction.reset();
+		hasCorrection = false;
+		return true;
+	}
+
+	/**
+	 * Blocks until the optimization which is running, if any, has finished
+	 */
+	public synchronized void waitUntilIdle() {
+		while( busy ) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Discards all key frames and points.  Results from an optimization which is still running are ignored.
+	 */
+	public synchronized void reset() {
+		window.clear();
+		points.clear();
+		correction.reset();
+		hasCorrection = false;
+		generation++;
+	}
+
+	/**
+	 * Copies the window into a self contained bundle adjustment problem.  Only points observed by two or more key
+	 * frames are included.
+	 */
+	private Snapshot createSnapshot() {
+		Snapshot s = new Snapshot();
+		s.generation = generation;
+		s.frames.addAll(window);
+
+		Map<MapPoint,Integer> indexes = new HashMap<MapPoint, Integer>();
+		for( KeyFrame k : window ) {
+			ViewPointObservations view = new ViewPointObservations();
+			for( int i = 0; i < k.observed.size(); i++ ) {
+				MapPoint p = k.observed.get(i);
+				if( p.numObservations < 2 )
+					continue;
+				Integer index = indexes.get(p);
+				if( index == null ) {
+					index = s.points.size();
+					indexes.put(p, index);
+					s.points.add(p);
+				}
+				view.getPoints().grow().set(index, k.observations.get(i));
+			}
+			s.observations.add(view);
+		}
+
+		if( s.points.isEmpty() )
+			return null;
+
+		// copy the initial state
+		s.model.configure(s.frames.size(), s.points.size());
+		for( int i = 0; i < s.frames.size(); i++ ) {
+			Se3_F64 cameraToWorld = s.frames.get(i).cameraToWorld;
+			s.initial.add(cameraToWorld.copy());
+			cameraToWorld.invert(s.model.getWorldToCamera(i));
+			s.model.setViewKnown(i, i < numFixed);
+		}
+		for( int i = 0; i < s.points.size(); i++ ) {
+			s.model.getPoint(i).set(s.points.get(i).location);
+		}
+
+		return s;
+	}
+
+	/**
+	 * Runs bundle adjustment then updates the map
+	 */
+	private void optimize( Snapshot s ) {
+		boolean success = bundle.process(s.model, s.observations);
+
+		synchronized( this ) {
+			if( success && s.generation == generation )
+				merge(s);
+			busy = false;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Saves an exception thrown while optimizing.  It's passed on to the caller the next time the map is modified.
+	 */
+	private synchronized void recordFailure( RuntimeException e ) {
+		failure = e;
+		busy = false;
+		notifyAll();
+	}
+
+	/**
+	 * Updates the map using the optimized snapshot.  Key frames and points which were not part of the optimization
+	 * are moved by the change in pose of their key frame, or the newest key frame if theirs is newer.
+	 */
+	private void merge( Snapshot s ) {
+		int N = s.frames.size();
+		long firstId = s.frames.get(0).id;
+		long newestId = s.frames.get(N-1).id;
+
+		// change in each key frame's pose.  from old world frame into the corrected world frame
+		List<Se3_F64> deltas = new ArrayList<Se3_F64>();
+		for( int i = 0; i < N; i++ ) {
+			Se3_F64 cameraToWorld = s.model.getWorldToCamera(i).invert(null);
+			deltas.add(s.initial.get(i).invert(null).concat(cameraToWorld, null));
+		}
+		Se3_F64 delta = deltas.get(N-1);
+
+		Se3_F64 tmp = new Se3_F64();
+		for( KeyFrame k : window ) {
+			if( k.id <= newestId ) {
+				s.model.getWorldToCamera((int)(k.id-firstId)).invert(k.cameraToWorld);
+			} else {
+				k.cameraToWorld.concat(delta, tmp);
+				k.cameraToWorld.set(tmp);
+			}
+		}
+
+		for( int i = 0; i < s.points.size(); i++ ) {
+			s.points.get(i).location.set(s.model.getPoint(i));
+			s.points.get(i).optimized = true;
+		}
+		for( MapPoint p : points.values() ) {
+			if( p.optimized ) {
+				p.optimized = false;
+			} else if( p.keyFrameId >= firstId ) {
+				Se3_F64 d = p.keyFrameId <= newestId ? deltas.get((int)(p.keyFrameId-firstId)) : delta;
+				SePointOps_F64.transform(d, p.location, p.location);
+			}
+		}
+
+		if( hasCorrection ) {
+			correction.concat(delta, tmp);
+			correction.set(tmp);
+		} else {
+			correction.set(delta);
+			hasCorrection = true;
+		}
+		totalOptimized++;
+	}
+
+	/**
+	 * Stops the background thread after the optimization which is queued, if any, has finished.  If another
+	 * key frame is finished afterwards then a new thread is started.
+	 */
+	public void shutdown() {
+		worker.shutdown();
+	}
+
+	private void checkFailure() {
+		if( failure != null )
+			throw failure;
+	}
+
+	/**
+	 * Number of key frames in the window
+	 */
+	public synchronized int getNumKeyFrames() {
+		return window.size();
+	}
+
+	/**
+	 * Number of points in the window
+	 */
+	public synchronized int getNumPoints() {
+		return points.size();
+	}
+
+	/**
+	 * Returns a copy of the pose of a key frame in the corrected world frame
+	 *
+	 * @param index Index of the key frame in the window. 0 = oldest.
+	 */
+	public synchronized Se3_F64 getKeyFrameToWorld( int index ) {
+		return window.get(index).cameraToWorld.copy();
+	}
+
+	/**
+	 * Number of times the window has been optimized and the results used
+	 */
+	public synchronized int getTotalOptimized() {
+		return totalOptimized;
+	}
+
+	/**
+	 * Number of times a key frame was finished but it didn't optimize because the previous optimization
+	 * was still running
+	 */
+	public synchronized int getTotalSkipped() {
+		return totalSkipped;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public int getNumFixed() {
+		return numFixed;
+	}
+
+	public boolean isBackground() {
+		return background;
+	}
+
+	private static class KeyFrame {
+		long id;
+		Se3_F64 cameraToWorld = new Se3_F64();
+		// points observed by this key frame and the observation of each
+		List<MapPoint> observed = new ArrayList<MapPoint>();
+		List<Point2D_F64> observations = new ArrayList<Point2D_F64>();
+	}
+
+	private static class MapPoint {
+		long trackId;
+		// ID of the key frame which added it
+		long keyFrameId;
+		// location in world frame
+		Point3D_F64 location = new Point3D_F64();
+		// number of key frames in the window which observe it
+		int numObservations;
+		// used when merging to mark which points have been optimized
+		boolean optimized;
+	}
+
+	/**
+	 * Copy of the window which is optimized
+	 */
+	private static class Snapshot {
+		int generation;
+		List<KeyFrame> frames = new ArrayList<KeyFrame>();
+		List<MapPoint> points = new ArrayList<MapPoint>();
+		// initial pose of each key frame
+		List<Se3_F64> initial = new ArrayList<Se3_F64>();
+		List<ViewPointObservations> observations = new ArrayList<ViewPointObservations>();
+		CalibratedPoseAndPoint model = new CalibratedPoseAndPoint();
+	}
+}
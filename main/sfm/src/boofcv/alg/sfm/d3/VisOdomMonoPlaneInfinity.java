@@ -61,6 +61,8 @@ import java.util.List;
  * any points which contains motions that could not be generated by a rotation about the y-axis are discarded.  This
  * appears to be too strict and discard an excessive number of points when vehicle pitch up and down.  Pitching motions
  * will often not affect motion estimates from projected vectors on to the plane.
+ * </p>
+ * Key frames can be passed on to loop closure detection with {@link #setKeyFrameListener}.
  *
  * @author Peter Abeles
  */
@@ -142,6 +144,13 @@ public class VisOdomMonoPlaneInfinity<T extends ImageBase> {
 	private Se2_F64 closeMotionKeyToCurr;
 	private int closeInlierCount; // inliers count for close points on plane
 
+	// notified when a key frame is selected.  Can be null
+	private VisOdomKeyFrameListener<T> keyFrameListener;
+	// number of key frames which have been selected
+	private long totalKeyFrames = 0;
+	// storage for the key frame's 3D pose
+	private Se3_F64 keyToWorld3D = new Se3_F64();
+
 	// number of frames processed.  used to decide when tracks should get dropped
 	private int tick = 0;
 	// is this the first frame being processed?
@@ -222,6 +231,7 @@ public class VisOdomMonoPlaneInfinity<T extends ImageBase> {
 		if (first) {
 			// start motion estimation by spawning tracks and estimating their pose
 			addNewTracks();
+			notifyKeyFrame(image);
 			first = false;
 		} else {
 			// Use updated tracks to update motion estimate and track states
@@ -248,12 +258,24 @@ public class VisOdomMonoPlaneInfinity<T extends ImageBase> {
 			if (thresholdAdd <= 0 || closeInlierCount < thresholdAdd) {
 				changeCurrToReference();
 				addNewTracks();
+				notifyKeyFrame(image);
 			}
 		}
 
 		return true;
 	}
 
+	/**
+	 * Passes the key frame which was just selected on to the listener.  The current frame is the key frame.
+	 */
+	private void notifyKeyFrame( T image ) {
+		long id = totalKeyFrames++;
+		if( keyFrameListener != null ) {
+			getWorldToCurr3D().invert(keyToWorld3D);
+			keyFrameListener.handleKeyFrame(id, keyToWorld3D, image);
+		}
+	}
+
 	/**
 	 * Requests that new tracks are spawned, determines if they are on the plane or not, and computes other required
 	 * data structures.
@@ -646,6 +668,20 @@ public class VisOdomMonoPlaneInfinity<T extends ImageBase> {
 		this.strictFar = strictFar;
 	}
 
+	/**
+	 * Specifies a listener which is notified each time a key frame is selected, e.g. a
+	 * {@link boofcv.alg.sfm.loop.LoopClosureWorker}.  Must be called before the first image is processed.
+	 *
+	 * @param keyFrameListener The listener.  If null then no listener is used.
+	 */
+	public void setKeyFrameListener(VisOdomKeyFrameListener<T> keyFrameListener) {
+		this.keyFrameListener = keyFrameListener;
+	}
+
+	public VisOdomKeyFrameListener<T> getKeyFrameListener() {
+		return keyFrameListener;
+	}
+
 	/**
 	 * Additional track information for use in motion estimation
 	 */
@@ -51,6 +51,9 @@ import java.util.List;
  * Due to the level of abstraction, it can't take full advantage of the sensors used to estimate 3D feature locations.
  * For example if a stereo camera is used then 3-view geometry can't be used to improve performance.
  *
+ * Drift can be reduced by refining recent key frames with a {@link VisOdomLocalMap}, see {@link #setLocalMap}.
+ * Key frames can be passed on to loop closure detection with {@link #setKeyFrameListener}.
+ *
  * @author Peter Abeles
  */
 public class VisOdomPixelDepthPnP<T extends ImageBase> {
@@ -97,6 +100,13 @@ public class VisOdomPixelDepthPnP<T extends ImageBase> {
 	// used when concating motion
 	private Se3_F64 temp = new Se3_F64();
 
+	// optional local map used to reduce drift
+	private VisOdomLocalMap localMap;
+	// notified when a key frame is selected.  Can be null
+	private VisOdomKeyFrameListener<T> keyFrameListener;
+	// number of key frames which have been selected
+	private long totalKeyFrames = 0;
+
 	/**
 	 * Configures magic numbers and estimation algorithms.
 	 *
@@ -142,6 +152,8 @@ public class VisOdomPixelDepthPnP<T extends ImageBase> {
 		currToKey.reset();
 		first = true;
 		tick = 0;
+		if( localMap != null )
+			localMap.reset();
 	}
 
 	/**
@@ -152,6 +164,9 @@ public class VisOdomPixelDepthPnP<T extends ImageBase> {
 	 * @return true if successful or false if it failed
 	 */
 	public boolean process( T image ) {
+		if( localMap != null )
+			localMap.applyCorrection(keyToWorld);
+
 		tracker.process(image);
 
 		tick++;
@@ -159,6 +174,8 @@ public class VisOdomPixelDepthPnP<T extends ImageBase> {
 
 		if( first ) {
 			addNewTracks();
+			addKeyFrameToMap();
+			notifyKeyFrame(image);
 			first = false;
 		} else {
 			if( !estimateMotion() ) {
@@ -171,6 +188,8 @@ public class VisOdomPixelDepthPnP<T extends ImageBase> {
 			if( thresholdAdd <= 0 || N < thresholdAdd ) {
 				changePoseToReference();
 				addNewTracks();
+				addKeyFrameToMap();
+				notifyKeyFrame(image);
 			}
 
 //			System.out.println("  num inliers = "+N+"  num dropped "+numDropped+" total active "+tracker.getActivePairs().size());
@@ -364,7 +383,60 @@ public class VisOdomPixelDepthPnP<T extends ImageBase> {
 		this.normToPixel = normToPixel;
 	}
 
+	/**
+	 * Passes the key frame which was just selected on to the listener
+	 */
+	private void notifyKeyFrame( T image ) {
+		long id = totalKeyFrames++;
+		if( keyFrameListener != null )
+			keyFrameListener.handleKeyFrame(id, keyToWorld, image);
+	}
+
+	/**
+	 * Adds the current frame to the local map as a key frame along with the tracks which are inliers or new
+	 */
+	private void addKeyFrameToMap() {
+		if( localMap == null )
+			return;
+
+		localMap.addKeyFrame(keyToWorld);
+		for( PointTrack t : tracker.getActiveTracks(null) ) {
+			Point2D3DTrack p = t.getCookie();
+			if( p.lastInlier == tick )
+				localMap.addObservation(t.featureId, p.observation, p.location);
+		}
+		localMap.finishKeyFrame();
+	}
+
 	public long getTick() {
 		return tick;
 	}
+
+	/**
+	 * Specifies a local map which is used to refine key frames and reduce drift.  Must be called before
+	 * the first image is processed.
+	 *
+	 * @param localMap The local map.  If null then no map is used.
+	 */
+	public void setLocalMap(VisOdomLocalMap localMap) {
+		this.localMap = localMap;
+	}
+
+	public VisOdomLocalMap getLocalMap() {
+		return localMap;
+	}
+
+	/**
+	 * Specifies a listener which is notified each time a key frame is selected, e.g. a
+	 * {@link boofcv.alg.sfm.loop.LoopClosureWorker}.  Must be called before the first image is processed.
+	 *
+	 * @param keyFrameListener The listener.  If null then no listener is used.
+	 */
+	public void setKeyFrameListener(VisOdomKeyFrameListener<T> keyFrameListener) {
+		this.keyFrameListener = keyFrameListener;
+	}
+
+	public VisOdomKeyFrameListener<T> getKeyFrameListener() {
+		return keyFrameListener;
+	}
 }
@@ -21,13 +21,16 @@ package boofcv.alg.sfm.d3;
 import boofcv.abst.feature.associate.AssociateDescription2D;
 import boofcv.abst.feature.detdesc.DetectDescribeMulti;
 import boofcv.abst.feature.detdesc.PointDescSet;
-import boofcv.abst.geo.TriangulateTwoViewsCalibrated;
 import boofcv.alg.distort.LensDistortionOps;
 import boofcv.alg.feature.UtilFeature;
+import boofcv.alg.geo.triangulate.TriangulateBatchCalibrated;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.concurrency.IntRangeTask;
 import boofcv.struct.calib.StereoParameters;
 import boofcv.struct.distort.PointTransform_F64;
 import boofcv.struct.feature.AssociatedIndex;
 import boofcv.struct.feature.TupleDesc;
+import boofcv.struct.geo.PackedAssociatedPair;
 import boofcv.struct.image.ImageSingleBand;
 import boofcv.struct.sfm.Stereo2D3D;
 import georegression.geometry.RotationMatrixGenerator;
@@ -56,12 +59,20 @@ import org.ddogleg.struct.GrowQueue_I32;
  *
  * Estimated motion is relative to left camera.
  *
+ * Optionally the left and right images can be processed concurrently, see {@link #setConcurrent}.
+ *
  * @author Peter Abeles
  */
 public class VisOdomQuadPnP<T extends ImageSingleBand,TD extends TupleDesc> {
 
 	// used to estimate each feature's 3D location using a stereo pair
-	private TriangulateTwoViewsCalibrated triangulate;
+	private TriangulateBatchCalibrated triangulate;
+	// normalized image coordinates of each quad's old stereo view and its triangulated location
+	private PackedAssociatedPair packedObs = new PackedAssociatedPair();
+	private double[] locX = new double[0];
+	private double[] locY = new double[0];
+	private double[] locZ = new double[0];
+	private boolean[] triangulated = new boolean[0];
 
 	// computes camera motion
 	private ModelMatcher<Se3_F64, Stereo2D3D> matcher;
@@ -76,6 +87,10 @@ public class VisOdomQuadPnP<T extends ImageSingleBand,TD extends TupleDesc> {
 	// Associates features from left to right camera
 	private AssociateDescription2D<TD> assocL2R;
 
+	// Used with the right camera when processing concurrently.  null if serial
+	private DetectDescribeMulti<T,TD> detectorRight;
+	private AssociateDescription2D<TD> assocSameRight;
+
 	// Set of associated features across all views
 	private FastQueue<QuadView> quadViews = new FastQueue<QuadView>(10,QuadView.class,true);
 
@@ -119,7 +134,7 @@ public class VisOdomQuadPnP<T extends ImageSingleBand,TD extends TupleDesc> {
 	 */
 	public VisOdomQuadPnP(DetectDescribeMulti<T,TD> detector,
 						  AssociateDescription2D<TD> assocSame , AssociateDescription2D<TD> assocL2R ,
-						  TriangulateTwoViewsCalibrated triangulate,
+						  TriangulateBatchCalibrated triangulate,
 						  ModelMatcher<Se3_F64, Stereo2D3D> matcher,
 						  ModelFitter<Se3_F64, Stereo2D3D> modelRefiner )
 	{
@@ -141,6 +156,30 @@ public class VisOdomQuadPnP<T extends ImageSingleBand,TD extends TupleDesc> {
 		featsRight1 = new ImageInfo<TD>(detector);
 	}
 
+	/**
+	 * Turns on concurrent processing of the left and right images.  Features are detected and described in both
+	 * images at the same time and features in the previous and current frames are associated for each camera
+	 * at the same time.  The join happens before left to right association, so results are identical to serial
+	 * processing.
+	 *
+	 * @param detectorRight Detector for the right image.  Same configuration as the left but a different instance.
+	 * @param assocSameRight Frame to frame association for the right camera.  Same configuration as the left but a
+	 *                       different instance.
+	 */
+	public void setConcurrent( DetectDescribeMulti<T,TD> detectorRight ,
+							   AssociateDescription2D<TD> assocSameRight ) {
+		if( (detectorRight == null) != (assocSameRight == null) )
+			throw new IllegalArgumentException("Both or neither must be null");
+		if( detectorRight != null && (detectorRight == detector || assocSameRight == assocSame) )
+			throw new IllegalArgumentException("The right camera must have its own instances");
+		this.detectorRight = detectorRight;
+		this.assocSameRight = assocSameRight;
+	}
+
+	public boolean isConcurrent() {
+		return detectorRight != null;
+	}
+
 	public void setCalibration(StereoParameters param) {
 
 		param.rightToLeft.invert(leftToRight);
@@ -211,8 +250,23 @@ public class VisOdomQuadPnP<T extends ImageSingleBand,TD extends TupleDesc> {
 		featsRight1.reset();
 
 //		long time0 = System.currentTimeMillis();
-		describeImage(left,featsLeft1);
-		describeImage(right,featsRight1);
+		if( detectorRight == null ) {
+			describeImage(detector,left,featsLeft1);
+			describeImage(detector,right,featsRight1);
+		} else {
+			final T _left = left, _right = right;
+			BoofConcurrency.loopBlocks(0, 2, 1, new IntRangeTask() {
+				@Override
+				public void process(int block, int start, int end) {
+					for( int i = start; i < end; i++ ) {
+						if( i == 0 )
+							describeImage(detector,_left,featsLeft1);
+						else
+							describeImage(detectorRight,_right,featsRight1);
+					}
+				}
+			});
+		}
 //		long time1 = System.currentTimeMillis();
 
 		// detect and associate features in the current stereo pair
@@ -300,22 +354,45 @@ public class VisOdomQuadPnP<T extends ImageSingleBand,TD extends TupleDesc> {
 	{
 		quadViews.reset();
 
+		if( assocSameRight == null ) {
+			associateF2F(true);
+			associateF2F(false);
+		} else {
+			BoofConcurrency.loopBlocks(0, 2, 1, new IntRangeTask() {
+				@Override
+				public void process(int block, int start, int end) {
+					for( int i = start; i < end; i++ ) {
+						associateF2F(i == 0);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Associates features in the previous and current frames for a single camera
+	 */
+	private void associateF2F( boolean left ) {
 		for( int i = 0; i < detector.getNumberOfSets(); i++ ) {
 			SetMatches matches = setMatches[i];
 
-			// old left to new left
-			assocSame.setSource(featsLeft0.location[i],featsLeft0.description[i]);
-			assocSame.setDestination(featsLeft1.location[i], featsLeft1.description[i]);
-			assocSame.associate();
+			if( left ) {
+				// old left to new left
+				assocSame.setSource(featsLeft0.location[i],featsLeft0.description[i]);
+				assocSame.setDestination(featsLeft1.location[i], featsLeft1.description[i]);
+				assocSame.associate();
 
-			setMatches(matches.match0to2, assocSame.getMatches(), featsLeft0.location[i].size);
+				setMatches(matches.match0to2, assocSame.getMatches(), featsLeft0.location[i].size);
+			} else {
+				AssociateDescription2D<TD> assoc = assocSameRight == null ? assocSame : assocSameRight;
 
-			// old right to new right
-			assocSame.setSource(featsRight0.location[i],featsRight0.description[i]);
-			assocSame.setDestination(featsRight1.location[i], featsRight1.description[i]);
-			assocSame.associate();
+				// old right to new right
+				assoc.setSource(featsRight0.location[i],featsRight0.description[i]);
+				assoc.setDestination(featsRight1.location[i], featsRight1.description[i]);
+				assoc.associate();
 
-			setMatches(matches.match1to3, assocSame.getMatches(), featsRight0.location[i].size);
+				setMatches(matches.match1to3, assoc.getMatches(), featsRight0.location[i].size);
+			}
 		}
 	}
 
@@ -376,8 +453,8 @@ public class VisOdomQuadPnP<T extends ImageSingleBand,TD extends TupleDesc> {
 	/**
 	 * Computes image features and stores the results in info
 	 */
-	private void describeImage(T left , ImageInfo<TD> info ) {
-		detector.process(left);
+	private void describeImage( DetectDescribeMulti<T,TD> detector , T image , ImageInfo<TD> info ) {
+		detector.process(image);
 		for( int i = 0; i < detector.getNumberOfSets(); i++ ) {
 			PointDescSet<TD> set = detector.getFeatureSet(i);
 			FastQueue<Point2D_F64> l = info.location[i];
@@ -397,22 +474,37 @@ public class VisOdomQuadPnP<T extends ImageSingleBand,TD extends TupleDesc> {
 	private boolean estimateMotion() {
 		modelFitData.reset();
 
-		Point2D_F64 normLeft = new Point2D_F64();
-		Point2D_F64 normRight = new Point2D_F64();
-
-		// use 0 -> 1 stereo associations to estimate each feature's 3D position
-		for( int i = 0; i < quadViews.size; i++ ) {
+		Point2D_F64 norm = new Point2D_F64();
+
+		// convert old stereo view to normalized coordinates
+		int N = quadViews.size;
+		packedObs.reserve(N);
+		packedObs.size = N;
+		if( triangulated.length < N ) {
+			locX = new double[N];
+			locY = new double[N];
+			locZ = new double[N];
+			triangulated = new boolean[N];
+		}
+		for( int i = 0; i < N; i++ ) {
 			QuadView obs = quadViews.get(i);
+			leftImageToNorm.compute(obs.v0.x,obs.v0.y,norm);
+			packedObs.x1[i] = norm.x;
+			packedObs.y1[i] = norm.y;
+			rightImageToNorm.compute(obs.v1.x,obs.v1.y,norm);
+			packedObs.x2[i] = norm.x;
+			packedObs.y2[i] = norm.y;
+		}
 
-			// convert old stereo view to normalized coordinates
-			leftImageToNorm.compute(obs.v0.x,obs.v0.y,normLeft);
-			rightImageToNorm.compute(obs.v1.x,obs.v1.y,normRight);
+		// use 0 -> 1 stereo associations to estimate each feature's 3D position
+		triangulate.triangulate(packedObs,leftToRight,locX,locY,locZ,triangulated);
 
-			// compute 3D location using triangulation
-			triangulate.triangulate(normLeft,normRight,leftToRight,obs.X);
+		for( int i = 0; i < N; i++ ) {
+			QuadView obs = quadViews.get(i);
+			obs.X.set(locX[i],locY[i],locZ[i]);
 
 			// add to data set for fitting if not at infinity
-			if( !Double.isInfinite(obs.X.normSq()) ) {
+			if( triangulated[i] ) {
 				Stereo2D3D data = modelFitData.grow();
 				leftImageToNorm.compute(obs.v2.x,obs.v2.y,data.leftObs);
 				rightImageToNorm.compute(obs.v3.x,obs.v3.y,data.rightObs);
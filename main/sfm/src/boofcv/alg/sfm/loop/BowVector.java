@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+/**
+ * Sparse bag-of-words vector.  Each element is a word in the vocabulary and its weight.  Elements are sorted
+ * by word in increasing order and the weights are normalized so that their sum is one.
+ *
+ * @author Peter Abeles
+ */
+public class BowVector {
+	/**
+	 * Index of each word
+	 */
+	public GrowQueue_I32 words = new GrowQueue_I32();
+	/**
+	 * Weight of each word
+	 */
+	public GrowQueue_F64 values = new GrowQueue_F64();
+
+	public void reset() {
+		words.reset();
+		values.reset();
+	}
+
+	public int size() {
+		return words.size;
+	}
+
+	public void setTo( BowVector src ) {
+		reset();
+		for( int i = 0; i < src.size(); i++ ) {
+			words.add(src.words.data[i]);
+			values.add(src.values.data[i]);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import boofcv.struct.feature.TupleDesc;
+
+import java.util.List;
+
+/**
+ * Computes the mean of a set of feature descriptors.  Used when clustering descriptors.
+ *
+ * @author Peter Abeles
+ */
+public interface ComputeTupleMean<Desc extends TupleDesc> {
+
+	/**
+	 * Computes the mean of the descriptors
+	 *
+	 * @param list Descriptors which are averaged. Must have at least one element.  Not modified.
+	 * @param mean (Output) The mean
+	 */
+	public void process( List<Desc> list , Desc mean );
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import boofcv.struct.feature.TupleDesc_B;
+
+import java.util.List;
+
+/**
+ * Mean of binary {@link TupleDesc_B} descriptors.  Each bit in the mean is set to the value held by the majority
+ * of the descriptors, which minimizes the sum of Hamming distances.
+ *
+ * @author Peter Abeles
+ */
+public class ComputeTupleMean_B implements ComputeTupleMean<TupleDesc_B> {
+
+	// number of descriptors with each bit set
+	private int[] counts = new int[0];
+
+	@Override
+	public void process(List<TupleDesc_B> list, TupleDesc_B mean) {
+		int N = mean.numBits;
+		if( counts.length < N )
+			counts = new int[N];
+		for( int i = 0; i < N; i++ )
+			counts[i] = 0;
+
+		for( int j = 0; j < list.size(); j++ ) {
+			int[] data = list.get(j).data;
+			for( int i = 0; i < N; i++ ) {
+				counts[i] += (data[i/32] >> (i%32)) & 0x01;
+			}
+		}
+
+		for( int i = 0; i < mean.data.length; i++ )
+			mean.data[i] = 0;
+
+		int half = list.size()/2;
+		for( int i = 0; i < N; i++ ) {
+			if( counts[i] > half )
+				mean.data[i/32] |= 1 << (i%32);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import boofcv.struct.feature.TupleDesc_F64;
+
+import java.util.List;
+
+/**
+ * Element-wise mean of {@link TupleDesc_F64} descriptors.
+ *
+ * @author Peter Abeles
+ */
+public class ComputeTupleMean_F64 implements ComputeTupleMean<TupleDesc_F64> {
+	@Override
+	public void process(List<TupleDesc_F64> list, TupleDesc_F64 mean) {
+		int N = mean.value.length;
+		for( int i = 0; i < N; i++ )
+			mean.value[i] = 0;
+
+		for( int j = 0; j < list.size(); j++ ) {
+			double[] v = list.get(j).value;
+			for( int i = 0; i < N; i++ )
+				mean.value[i] += v[i];
+		}
+
+		for( int i = 0; i < N; i++ )
+			mean.value[i] /= list.size();
+	}
+}
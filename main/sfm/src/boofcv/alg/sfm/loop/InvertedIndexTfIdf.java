@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import org.ddogleg.struct.FastQueue;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>
+ * Inverted index of TF-IDF weighted {@link BowVector bag-of-words vectors}.  For every word a list of the
+ * documents which contain it and its weight in each is maintained.  Documents can be added at any time.
+ * </p>
+ *
+ * <p>
+ * The similarity between a query q and a document d is 1 - |q-d|<sub>1</sub>/2, which is one for identical vectors
+ * and zero when they have no words in common.  Since the vectors are L1 normalized the score can be computed
+ * using only the words they share [1].  Thus a query only visits the documents in the lists of its words and the
+ * cost does not depend on the total number of documents when words are discriminative.
+ * </p>
+ *
+ * <p>
+ * [1] David Nister and Henrik Stewenius, "Scalable Recognition with a Vocabulary Tree" CVPR 2006
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class InvertedIndexTfIdf {
+
+	// documents which contain each word
+	private List<GrowQueue_I32> documents = new ArrayList<GrowQueue_I32>();
+	// weight of the word in each document
+	private List<GrowQueue_F64> values = new ArrayList<GrowQueue_F64>();
+
+	private int numDocuments;
+
+	// score of each document in the current query
+	private GrowQueue_F64 scores = new GrowQueue_F64();
+	// documents which have a non-zero score in the current query
+	private GrowQueue_I32 touched = new GrowQueue_I32();
+	private FastQueue<Match> work = new FastQueue<Match>(Match.class,true);
+
+	private Comparator<Match> sorter = new Comparator<Match>() {
+		@Override
+		public int compare(Match a, Match b) {
+			if( a.score > b.score )
+				return -1;
+			else if( a.score < b.score )
+				return 1;
+			return a.document - b.document;
+		}
+	};
+
+	/**
+	 * Adds a new document to the index
+	 *
+	 * @param v Bag-of-words vector of the document.  Not modified.
+	 * @return Index of the document.  Documents are numbered in the order they are added.
+	 */
+	public int add( BowVector v ) {
+		int index = numDocuments++;
+		scores.add(0);
+
+		for( int i = 0; i < v.size(); i++ ) {
+			int word = v.words.data[i];
+			while( documents.size() <= word ) {
+				documents.add(new GrowQueue_I32());
+				values.add(new GrowQueue_F64());
+			}
+			documents.get(word).add(index);
+			values.get(word).add(v.values.data[i]);
+		}
+		return index;
+	}
+
+	/**
+	 * Finds the documents which are the most similar to the query.
+	 *
+	 * @param q Query vector.  Not modified.
+	 * @param maxDocument Only documents with an index less than this are considered.
+	 * @param maxResults Maximum number of documents returned.
+	 * @param results (Output) Most similar documents, sorted by score from best to worst.
+	 */
+	public void query( BowVector q , int maxDocument , int maxResults , FastQueue<Match> results ) {
+		results.reset();
+		touched.reset();
+
+		for( int i = 0; i < q.size(); i++ ) {
+			int word = q.words.data[i];
+			if( word >= documents.size() )
+				continue;
+			double valueQ = q.values.data[i];
+
+			GrowQueue_I32 docs = documents.get(word);
+			GrowQueue_F64 vals = values.get(word);
+			// documents are in increasing order
+			for( int j = 0; j < docs.size; j++ ) {
+				int d = docs.data[j];
+				if( d >= maxDocument )
+					break;
+				double valueD = vals.data[j];
+				if( scores.data[d] == 0 )
+					touched.add(d);
+				scores.data[d] += valueQ + valueD - Math.abs(valueQ - valueD);
+			}
+		}
+
+		work.reset();
+		for( int i = 0; i < touched.size; i++ ) {
+			int d = touched.data[i];
+			Match m = work.grow();
+			m.document = d;
+			m.score = scores.data[d]/2.0;
+			scores.data[d] = 0;
+		}
+
+		Arrays.sort(work.data, 0, work.size, sorter);
+		int N = Math.min(maxResults, work.size);
+		for( int i = 0; i < N; i++ ) {
+			Match m = results.grow();
+			m.document = work.data[i].document;
+			m.score = work.data[i].score;
+		}
+	}
+
+	/**
+	 * Number of documents in the index
+	 */
+	public int getNumDocuments() {
+		return numDocuments;
+	}
+
+	/**
+	 * Removes all documents
+	 */
+	public void reset() {
+		documents.clear();
+		values.clear();
+		numDocuments = 0;
+		scores.reset();
+	}
+
+	/**
+	 * Document which matched a query
+	 */
+	public static class Match {
+		/**
+		 * Index of the document
+		 */
+		public int document;
+		/**
+		 * Similarity score.  From 0 to 1, higher is better.
+		 */
+		public double score;
+	}
+}
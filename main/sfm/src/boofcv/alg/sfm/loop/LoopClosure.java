@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import georegression.struct.se.Se3_F64;
+
+/**
+ * Describes a loop closure between two key frames which has been geometrically verified.
+ *
+ * @author Peter Abeles
+ */
+public class LoopClosure {
+	/**
+	 * ID of the key frame which was used as the query
+	 */
+	public long queryId;
+	/**
+	 * ID of the older key frame which it matched
+	 */
+	public long matchId;
+	/**
+	 * Bag-of-words similarity score.  From 0 to 1.
+	 */
+	public double score;
+	/**
+	 * Number of features which were inliers to the estimated motion
+	 */
+	public int inliers;
+	/**
+	 * Transform from the matched key frame to the query key frame
+	 */
+	public Se3_F64 matchToQuery = new Se3_F64();
+	/**
+	 * If true the translation has a known scale.  If false it was estimated from epipolar geometry and
+	 * only the direction is known.
+	 */
+	public boolean knownScale;
+
+	public void set( LoopClosure src ) {
+		this.queryId = src.queryId;
+		this.matchId = src.matchId;
+		this.score = src.score;
+		this.inliers = src.inliers;
+		this.matchToQuery.set(src.matchToQuery);
+		this.knownScale = src.knownScale;
+	}
+
+	public LoopClosure copy() {
+		LoopClosure ret = new LoopClosure();
+		ret.set(this);
+		return ret;
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import boofcv.abst.feature.associate.AssociateDescription;
+import boofcv.struct.feature.AssociatedIndex;
+import boofcv.struct.feature.TupleDesc;
+import boofcv.struct.geo.AssociatedPair;
+import boofcv.struct.geo.Point2D3D;
+import georegression.struct.se.Se3_F64;
+import org.ddogleg.fitting.modelset.ModelMatcher;
+import org.ddogleg.struct.FastQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Detects when a camera returns to a location it has previously visited by matching key frames against all
+ * the older key frames.  Key frames are processed incrementally in the order they were created, e.g. from visual
+ * odometry.  Each key frame's descriptors are converted into a bag-of-words vector using a {@link VocabularyTree}
+ * and older key frames with a similar appearance are found using an {@link InvertedIndexTfIdf}.  The most recent
+ * key frames are skipped since they will always look similar.
+ * </p>
+ *
+ * <p>
+ * Candidates are then verified geometrically in order of similarity.  Features are associated between the two
+ * key frames and the motion between them is robustly estimated.  If 3D locations are known for the older key
+ * frame's features then PnP is used, otherwise epipolar geometry.  The first candidate with enough inliers is
+ * declared a loop closure.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class LoopClosureDetector<Desc extends TupleDesc> {
+
+	// converts descriptors into words
+	private VocabularyTree<Desc> vocabulary;
+	// index of all the key frames
+	private InvertedIndexTfIdf index = new InvertedIndexTfIdf();
+
+	// associates features between two key frames
+	private AssociateDescription<Desc> associate;
+	// estimates motion from 2D-2D associations.  Can be null
+	private ModelMatcher<Se3_F64,AssociatedPair> epipolar;
+	// estimates motion from 3D-2D associations.  Can be null
+	private ModelMatcher<Se3_F64,Point2D3D> pnp;
+
+	// number of the most recent key frames which are not considered
+	private int minSeparation;
+	// maximum number of candidates which are geometrically verified
+	private int maxCandidates;
+	// minimum bag-of-words similarity for a candidate
+	private double minScore;
+	// minimum number of inliers for a loop to be accepted
+	private int minInliers;
+
+	// all the key frames which have been processed
+	private List<LoopKeyFrame<Desc>> keyFrames = new ArrayList<LoopKeyFrame<Desc>>();
+
+	// the detected loop
+	private LoopClosure detected = new LoopClosure();
+
+	// work space
+	private BowVector bow = new BowVector();
+	private FastQueue<InvertedIndexTfIdf.Match> candidates =
+			new FastQueue<InvertedIndexTfIdf.Match>(InvertedIndexTfIdf.Match.class,true);
+	private FastQueue<Desc> descSrc;
+	private FastQueue<Desc> descDst;
+	private List<AssociatedPair> pairs = new ArrayList<AssociatedPair>();
+	private List<Point2D3D> points = new ArrayList<Point2D3D>();
+	private FastQueue<Point2D3D> storagePoints = new FastQueue<Point2D3D>(Point2D3D.class,true);
+
+	/**
+	 * Configures loop closure.  At least one of the motion estimators must be provided.
+	 *
+	 * @param vocabulary Learned vocabulary tree
+	 * @param associate Associates features between key frames
+	 * @param epipolar Estimates the motion from features in normalized image coordinates.  Can be null.
+	 * @param pnp Estimates the motion from the older key frame's 3D points and the newer key frame's
+	 *            observations in normalized image coordinates.  Can be null.
+	 * @param minSeparation The most recent key frames which are not considered.  Try 20.
+	 * @param maxCandidates Maximum number of candidates which are geometrically verified.  Try 5.
+	 * @param minScore Minimum similarity score for a candidate.  0 to 1.
+	 * @param minInliers Minimum number of inliers for a loop to be accepted
+	 * @param descType Type of descriptor
+	 */
+	public LoopClosureDetector(VocabularyTree<Desc> vocabulary,
+							   AssociateDescription<Desc> associate,
+							   ModelMatcher<Se3_F64, AssociatedPair> epipolar,
+							   ModelMatcher<Se3_F64, Point2D3D> pnp,
+							   int minSeparation, int maxCandidates, double minScore, int minInliers,
+							   Class<Desc> descType ) {
+		if( epipolar == null && pnp == null )
+			throw new IllegalArgumentException("A motion estimator must be provided");
+
+		this.vocabulary = vocabulary;
+		this.associate = associate;
+		this.epipolar = epipolar;
+		this.pnp = pnp;
+		this.minSeparation = minSeparation;
+		this.maxCandidates = maxCandidates;
+		this.minScore = minScore;
+		this.minInliers = minInliers;
+
+		descSrc = new FastQueue<Desc>(descType,false);
+		descDst = new FastQueue<Desc>(descType,false);
+	}
+
+	/**
+	 * Searches for a loop closure between the key frame and older key frames, then adds it to the database.
+	 * Key frames must be processed in the order they were created.
+	 *
+	 * @param frame The most recent key frame.  A reference is saved internally and it must not be modified.
+	 * @return true if a loop closure was found.  See {@link #getDetected()}.
+	 */
+	public boolean process( LoopKeyFrame<Desc> frame ) {
+		if( !frame.locations.isEmpty() && frame.locations.size() != frame.observations.size() )
+			throw new IllegalArgumentException("Number of locations and observations must match");
+
+		vocabulary.computeVector(frame.descriptions, bow);
+
+		boolean found = false;
+		int maxDocument = keyFrames.size() - minSeparation;
+		if( maxDocument > 0 ) {
+			index.query(bow, maxDocument, maxCandidates, candidates);
+
+			for( int i = 0; i < candidates.size; i++ ) {
+				InvertedIndexTfIdf.Match c = candidates.get(i);
+				if( c.score < minScore )
+					break;
+				LoopKeyFrame<Desc> match = keyFrames.get(c.document);
+				if( verify(match, frame) ) {
+					detected.queryId = frame.id;
+					detected.matchId = match.id;
+					detected.score = c.score;
+					found = true;
+					break;
+				}
+			}
+		}
+
+		keyFrames.add(frame);
+		index.add(bow);
+
+		return found;
+	}
+
+	/**
+	 * Associates features and estimates the motion between the two key frames
+	 *
+	 * @return true if there are enough inliers
+	 */
+	private boolean verify( LoopKeyFrame<Desc> match , LoopKeyFrame<Desc> query ) {
+		descSrc.reset();
+		descDst.reset();
+		for( int i = 0; i < match.descriptions.size(); i++ )
+			descSrc.add(match.descriptions.get(i));
+		for( int i = 0; i < query.descriptions.size(); i++ )
+			descDst.add(query.descriptions.get(i));
+
+		associate.setSource(descSrc);
+		associate.setDestination(descDst);
+		associate.associate();
+
+		FastQueue<AssociatedIndex> matches = associate.getMatches();
+		if( matches.size < minInliers )
+			return false;
+
+		if( pnp != null && !match.locations.isEmpty() ) {
+			points.clear();
+			storagePoints.reset();
+			for( int i = 0; i < matches.size; i++ ) {
+				AssociatedIndex a = matches.get(i);
+				Point2D3D p = storagePoints.grow();
+				p.location.set(match.locations.get(a.src));
+				p.observation.set(query.observations.get(a.dst));
+				points.add(p);
+			}
+			if( !pnp.process(points) || pnp.getMatchSet().size() < minInliers )
+				return false;
+			detected.inliers = pnp.getMatchSet().size();
+			detected.matchToQuery.set(pnp.getModelParameters());
+			detected.knownScale = true;
+			return true;
+		} else if( epipolar != null ) {
+			pairs.clear();
+			for( int i = 0; i < matches.size; i++ ) {
+				AssociatedIndex a = matches.get(i);
+				AssociatedPair p = new AssociatedPair(match.observations.get(a.src),query.observations.get(a.dst),false);
+				pairs.add(p);
+			}
+			if( !epipolar.process(pairs) || epipolar.getMatchSet().size() < minInliers )
+				return false;
+			detected.inliers = epipolar.getMatchSet().size();
+			detected.matchToQuery.set(epipolar.getModelParameters());
+			detected.knownScale = false;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Discards all the key frames
+	 */
+	public void reset() {
+		keyFrames.clear();
+		index.reset();
+	}
+
+	/**
+	 * The most recently detected loop closure
+	 */
+	public LoopClosure getDetected() {
+		return detected;
+	}
+
+	/**
+	 * Number of key frames which have been processed
+	 */
+	public int getNumKeyFrames() {
+		return keyFrames.size();
+	}
+
+	public LoopKeyFrame<Desc> getKeyFrame( int index ) {
+		return keyFrames.get(index);
+	}
+
+	public VocabularyTree<Desc> getVocabulary() {
+		return vocabulary;
+	}
+
+	public int getMinSeparation() {
+		return minSeparation;
+	}
+
+	public void setMinSeparation(int minSeparation) {
+		this.minSeparation = minSeparation;
+	}
+
+	public int getMaxCandidates() {
+		return maxCandidates;
+	}
+
+	public void setMaxCandidates(int maxCandidates) {
+		this.maxCandidates = maxCandidates;
+	}
+
+	public double getMinScore() {
+		return minScore;
+	}
+
+	public void setMinScore(double minScore) {
+		this.minScore = minScore;
+	}
+
+	public int getMinInliers() {
+		return minInliers;
+	}
+
+	public void setMinInliers(int minInliers) {
+		this.minInliers = minInliers;
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import boofcv.abst.feature.detdesc.DetectDescribePoint;
+import boofcv.alg.sfm.d3.VisOdomKeyFrameListener;
+import boofcv.concurrency.WorkerThread;
+import boofcv.struct.distort.PointTransform_F64;
+import boofcv.struct.feature.TupleDesc;
+import boofcv.struct.image.ImageBase;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.se.Se3_F64;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>
+ * Runs a {@link LoopClosureDetector} in its own thread so that it doesn't slow down visual odometry.  Key frames
+ * are submitted as the odometry creates them and are processed in the same order.  Detected loops are read using
+ * {@link #poll}.  Key frames can be submitted with their features already computed or as an image, in which case
+ * features are detected and described inside the worker thread.  Visual odometry algorithms which select key frames
+ * can feed the worker directly since it's a {@link VisOdomKeyFrameListener}.
+ * </p>
+ *
+ * <p>
+ * Since every key frame needs to be added to the database none are dropped.  If key frames are submitted faster
+ * than they can be processed the queue will grow.  The detector must not be accessed directly while the worker
+ * is running.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class LoopClosureWorker<T extends ImageBase, Desc extends TupleDesc>
+		implements VisOdomKeyFrameListener<T>
+{
+	private LoopClosureDetector<Desc> detector;
+
+	// detects features in images.  Can be null
+	private DetectDescribePoint<T,Desc> describe;
+	// converts pixels into normalized image coordinates
+	private PointTransform_F64 pixelToNorm;
+
+	// detected loop closures which have not been read
+	private BlockingQueue<LoopClosure> output = new LinkedBlockingQueue<LoopClosure>();
+
+	// A dedicated thread is used so that the algorithms it runs can still use the shared pool
+	private WorkerThread<Job> worker = new WorkerThread<Job>("LoopClosureWorker",new WorkerThread.Handler<Job>() {
+		@Override
+		public void process(Job job) {
+			processKeyFrame(job);
+		}
+
+		@Override
+		public void failed(RuntimeException failure) {
+			synchronized( LoopClosureWorker.this ) {
+				LoopClosureWorker.this.notifyAll();
+			}
+		}
+	});
+
+	// number of key frames submitted which have not been processed.  guarded by 'this'
+	private int unfinished = 0;
+
+	/**
+	 * Configures the worker
+	 *
+	 * @param detector Loop closure detector
+	 * @param describe Detects and describes features in images.  Only needed if images are submitted.  Can be null.
+	 * @param pixelToNorm Converts pixels into normalized image coordinates.  Only needed if images are submitted.
+	 */
+	public LoopClosureWorker(LoopClosureDetector<Desc> detector,
+							 DetectDescribePoint<T, Desc> describe,
+							 PointTransform_F64 pixelToNorm) {
+		this.detector = detector;
+		this.describe = describe;
+		this.pixelToNorm = pixelToNorm;
+	}
+
+	/**
+	 * Queues a key frame whose features have already been computed
+	 *
+	 * @param frame Key frame.  A reference is saved and it must not be modified.
+	 */
+	public void submit( LoopKeyFrame<Desc> frame ) {
+		Job job = new Job();
+		job.frame = frame;
+		queue(job);
+	}
+
+	/**
+	 * Copies the image and queues it.  Features are detected inside the worker thread.
+	 *
+	 * @param id Unique ID of the key frame
+	 * @param cameraToWorld Pose of the key frame.  Not modified.
+	 * @param image Key frame's image.  Not modified.
+	 */
+	public void submit( long id , Se3_F64 cameraToWorld , T image ) {
+		if( describe == null || pixelToNorm == null )
+			throw new IllegalArgumentException("Worker wasn't configured to detect features");
+
+		Job job = new Job();
+		job.frame = new LoopKeyFrame<Desc>();
+		job.frame.id = id;
+		job.frame.cameraToWorld.set(cameraToWorld);
+		job.image = (T)image.clone();
+		queue(job);
+	}
+
+	/**
+	 * Queues a key frame selected by visual odometry.  Features are detected inside the worker thread.
+	 */
+	@Override
+	public void handleKeyFrame(long id, Se3_F64 cameraToWorld, T image) {
+		submit(id, cameraToWorld, image);
+	}
+
+	private void queue( Job job ) {
+		worker.checkFailure();
+		synchronized( this ) {
+			unfinished++;
+		}
+		worker.submit(job);
+	}
+
+	/**
+	 * Returns the oldest loop closure which has not been read yet, or null if there are none.
+	 */
+	public LoopClosure poll() {
+		worker.checkFailure();
+		return output.poll();
+	}
+
+	/**
+	 * Blocks until every key frame which has been submitted has been processed.
+	 */
+	public synchronized void flush() {
+		while( unfinished > 0 && worker.getFailure() == null ) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		worker.checkFailure();
+	}
+
+	/**
+	 * Stops the worker thread after all the queued key frames have been processed.  If a key frame is submitted
+	 * afterwards then a new thread is started.
+	 */
+	public void shutdown() {
+		worker.shutdown();
+	}
+
+	/**
+	 * Processes a single key frame inside the worker thread
+	 */
+	private void processKeyFrame( Job job ) {
+		if( job.image != null )
+			detectFeatures(job.image, job.frame);
+		if( detector.process(job.frame) )
+			output.add(detector.getDetected().copy());
+
+		synchronized( this ) {
+			unfinished--;
+			notifyAll();
+		}
+	}
+
+	private void detectFeatures( T image , LoopKeyFrame<Desc> frame ) {
+		describe.detect(image);
+		int N = describe.getNumberOfFeatures();
+		for( int i = 0; i < N; i++ ) {
+			Point2D_F64 pixel = describe.getLocation(i);
+			Point2D_F64 norm = new Point2D_F64();
+			pixelToNorm.compute(pixel.x, pixel.y, norm);
+			frame.observations.add(norm);
+			frame.descriptions.add((Desc)describe.getDescription(i).copy());
+		}
+	}
+
+	/**
+	 * Number of key frames which have been submitted but not processed yet
+	 */
+	public synchronized int getPending() {
+		return unfinished;
+	}
+
+	public LoopClosureDetector<Desc> getDetector() {
+		return detector;
+	}
+
+	private class Job {
+		LoopKeyFrame<Desc> frame;
+		T image;
+	}
+}
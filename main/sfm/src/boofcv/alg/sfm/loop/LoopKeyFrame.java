@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import boofcv.struct.feature.TupleDesc;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Key frame which is processed by {@link LoopClosureDetector}.  Contains the features which were detected inside
+ * the key frame's image.
+ *
+ * @author Peter Abeles
+ */
+public class LoopKeyFrame<Desc extends TupleDesc> {
+	/**
+	 * Unique ID of the key frame
+	 */
+	public long id;
+	/**
+	 * Pose of the key frame estimated by visual odometry
+	 */
+	public Se3_F64 cameraToWorld = new Se3_F64();
+	/**
+	 * Description of each feature
+	 */
+	public List<Desc> descriptions = new ArrayList<Desc>();
+	/**
+	 * Location of each feature in normalized image coordinates
+	 */
+	public List<Point2D_F64> observations = new ArrayList<Point2D_F64>();
+	/**
+	 * Optional.  3D location of each feature in the key frame's reference frame.  Either empty or the same size
+	 * as {@link #observations}.  If provided the motion is estimated using PnP and has a known scale.
+	 */
+	public List<Point3D_F64> locations = new ArrayList<Point3D_F64>();
+}
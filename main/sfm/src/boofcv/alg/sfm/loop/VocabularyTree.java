@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import boofcv.abst.feature.associate.ScoreAssociation;
+import boofcv.struct.feature.TupleDesc;
+import org.ddogleg.struct.GrowQueue_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Vocabulary tree [1] which quantizes feature descriptors into visual words.  The tree is learned from a training
+ * set using hierarchical k-means.  Starting at the root, the descriptors are clustered into 'branch factor' groups
+ * and each group is recursively clustered until the maximum depth is reached or it has too few members.  Each leaf
+ * is a word.  A descriptor is converted into a word by descending the tree and picking the closest child at each
+ * level, so the cost is proportional to the branch factor times the depth and not the number of words.
+ * </p>
+ *
+ * <p>
+ * Each word is weighted by its inverse document frequency (IDF), log(N/n<sub>i</sub>), where N is the number of
+ * training images and n<sub>i</sub> is the number of training images which contain the word.  Words which are
+ * seen in most images are not discriminative and receive a small weight.
+ * </p>
+ *
+ * <p>
+ * [1] David Nister and Henrik Stewenius, "Scalable Recognition with a Vocabulary Tree" CVPR 2006
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class VocabularyTree<Desc extends TupleDesc> {
+
+	// number of children each node is split into
+	private int branchFactor;
+	// maximum depth of the tree
+	private int maxLevels;
+	// maximum number of k-means iterations
+	private int maxIterations = 20;
+
+	// distance between two descriptors
+	private ScoreAssociation<Desc> distance;
+	// computes cluster centers
+	private ComputeTupleMean<Desc> mean;
+
+	// all the nodes in the tree.  the root is the first node
+	private List<Node<Desc>> nodes = new ArrayList<Node<Desc>>();
+	// weight of each word
+	private GrowQueue_F64 weights = new GrowQueue_F64();
+
+	// work space for computing histograms
+	private GrowQueue_I32 work = new GrowQueue_I32();
+
+	/**
+	 * Configures the tree.  Call {@link #learn} before it's used.
+	 *
+	 * @param branchFactor Number of children a node is split into.  Try 10.
+	 * @param maxLevels Maximum depth of the tree.  The maximum number of words is branchFactor<sup>maxLevels</sup>.
+	 * @param distance Distance between two descriptors.  Zero must be the best score.
+	 * @param mean Computes the mean of a set of descriptors.
+	 */
+	public VocabularyTree(int branchFactor, int maxLevels,
+						  ScoreAssociation<Desc> distance, ComputeTupleMean<Desc> mean) {
+		if( branchFactor < 2 )
+			throw new IllegalArgumentException("Branch factor must be at least 2");
+		if( maxLevels < 1 )
+			throw new IllegalArgumentException("Must have at least one level");
+		if( !distance.getScoreType().isZeroBest() )
+			throw new IllegalArgumentException("Score must be a distance where zero is best");
+
+		this.branchFactor = branchFactor;
+		this.maxLevels = maxLevels;
+		this.distance = distance;
+		this.mean = mean;
+	}
+
+	/**
+	 * Learns the tree and word weights from a set of training images.  Any previously learned tree is discarded.
+	 *
+	 * @param images Descriptors from each training image.  Not modified.
+	 * @param rand Random number generator used to initialize clusters.
+	 */
+	public void learn( List<List<Desc>> images , Random rand ) {
+		nodes.clear();
+		weights.reset();
+
+		List<Desc> all = new ArrayList<Desc>();
+		for( List<Desc> l : images )
+			all.addAll(l);
+		if( all.isEmpty() )
+			throw new IllegalArgumentException("No training descriptors");
+
+		Node<Desc> root = new Node<Desc>();
+		nodes.add(root);
+		split(0, all, 0, rand);
+
+		// inverse document frequency of each word
+		int[] found = new int[weights.size];
+		int[] lastImage = new int[weights.size];
+		Arrays.fill(lastImage,-1);
+		for( int i = 0; i < images.size(); i++ ) {
+			for( Desc d : images.get(i) ) {
+				int word = lookup(d);
+				if( lastImage[word] != i ) {
+					lastImage[word] = i;
+					found[word]++;
+				}
+			}
+		}
+		for( int i = 0; i < weights.size; i++ ) {
+			weights.data[i] = found[i] == 0 ? 0 : Math.log(images.size()/(double)found[i]);
+		}
+	}
+
+	/**
+	 * Recursively clusters the members of a node
+	 */
+	private void split( int nodeIndex , List<Desc> members , int level , Random rand ) {
+		if( level < maxLevels && members.size() > branchFactor ) {
+			List<Desc> centers = new ArrayList<Desc>();
+			List<List<Desc>> clusters = new ArrayList<List<Desc>>();
+			kmeans(members, rand, centers, clusters);
+
+			if( clusters.size() > 1 ) {
+				int first = nodes.size();
+				nodes.get(nodeIndex).firstChild = first;
+				nodes.get(nodeIndex).numChildren = clusters.size();
+				for( int i = 0; i < clusters.size(); i++ ) {
+					Node<Desc> child = new Node<Desc>();
+					child.center = centers.get(i);
+					nodes.add(child);
+				}
+				for( int i = 0; i < clusters.size(); i++ ) {
+					split(first + i, clusters.get(i), level + 1, rand);
+				}
+				return;
+			}
+		}
+
+		// it's a leaf
+		nodes.get(nodeIndex).word = weights.size;
+		weights.add(0);
+	}
+
+	/**
+	 * Clusters the descriptors using k-means.  Initial seeds are selected using k-means++.  Empty clusters
+	 * are discarded.
+	 */
+	private void kmeans( List<Desc> members , Random rand , List<Desc> centers , List<List<Desc>> clusters ) {
+		int N = members.size();
+
+		// select the seeds.  The chance of a point being selected is proportional to its distance from
+		// the closest seed
+		double[] closest = new double[N];
+		Arrays.fill(closest,Double.MAX_VALUE);
+		Desc seed = members.get(rand.nextInt(N));
+		List<Desc> seeds = new ArrayList<Desc>();
+		while( true ) {
+			seeds.add((Desc)seed.copy());
+			if( seeds.size() == branchFactor )
+				break;
+
+			double total = 0;
+			for( int i = 0; i < N; i++ ) {
+				closest[i] = Math.min(closest[i], distance.score(seed, members.get(i)));
+				total += closest[i];
+			}
+			if( total == 0 )
+				break;
+
+			double target = rand.nextDouble()*total;
+			int selected = N-1;
+			double sum = 0;
+			for( int i = 0; i < N; i++ ) {
+				sum += closest[i];
+				if( sum >= target && closest[i] > 0 ) {
+					selected = i;
+					break;
+				}
+			}
+			seed = members.get(selected);
+		}
+
+		int K = seeds.size();
+		int[] assignment = new int[N];
+		Arrays.fill(assignment,-1);
+		List<List<Desc>> groups = new ArrayList<List<Desc>>();
+		for( int i = 0; i < K; i++ )
+			groups.add(new ArrayList<Desc>());
+
+		for( int iter = 0; iter < maxIterations; iter++ ) {
+			boolean changed = false;
+			for( int i = 0; i < N; i++ ) {
+				int best = closest(seeds, members.get(i));
+				if( best != assignment[i] ) {
+					assignment[i] = best;
+					changed = true;
+				}
+			}
+			if( !changed )
+				break;
+
+			for( int i = 0; i < K; i++ )
+				groups.get(i).clear();
+			for( int i = 0; i < N; i++ )
+				groups.get(assignment[i]).add(members.get(i));
+			for( int i = 0; i < K; i++ ) {
+				if( groups.get(i).size() > 0 )
+					mean.process(groups.get(i), seeds.get(i));
+			}
+		}
+
+		// the last update might have changed the centers
+		for( int i = 0; i < K; i++ )
+			groups.get(i).clear();
+		for( int i = 0; i < N; i++ )
+			groups.get(closest(seeds, members.get(i))).add(members.get(i));
+
+		for( int i = 0; i < K; i++ ) {
+			if( groups.get(i).size() > 0 ) {
+				centers.add(seeds.get(i));
+				clusters.add(groups.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Index of the closest descriptor in the list
+	 */
+	private int closest( List<Desc> list , Desc d ) {
+		int best = -1;
+		double bestScore = Double.MAX_VALUE;
+		for( int i = 0; i < list.size(); i++ ) {
+			double s = distance.score(list.get(i), d);
+			if( s < bestScore ) {
+				bestScore = s;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the word which the descriptor belongs to by descending the tree
+	 *
+	 * @param d Descriptor
+	 * @return Index of the word
+	 */
+	public int lookup( Desc d ) {
+		Node<Desc> n = nodes.get(0);
+		while( n.word < 0 ) {
+			int best = n.firstChild;
+			double bestScore = Double.MAX_VALUE;
+			for( int i = 0; i < n.numChildren; i++ ) {
+				double s = distance.score(nodes.get(n.firstChild + i).center, d);
+				if( s < bestScore ) {
+					bestScore = s;
+					best = n.firstChild + i;
+				}
+			}
+			n = nodes.get(best);
+		}
+		return n.word;
+	}
+
+	/**
+	 * Converts a set of descriptors into a bag-of-words vector.  The weight of each word is its frequency in
+	 * the set multiplied by its IDF weight.  The vector is normalized so that it sums to one.
+	 *
+	 * @param descriptors Descriptors in an image.  Not modified.
+	 * @param output (Output) Bag-of-words vector.
+	 */
+	public void computeVector( List<Desc> descriptors , BowVector output ) {
+		output.reset();
+
+		work.reset();
+		for( int i = 0; i < descriptors.size(); i++ )
+			work.add(lookup(descriptors.get(i)));
+		Arrays.sort(work.data, 0, work.size);
+
+		double total = 0;
+		for( int i = 0; i < work.size; ) {
+			int word = work.data[i];
+			int j = i + 1;
+			while( j < work.size && work.data[j] == word )
+				j++;
+
+			double w = (j-i)*weights.data[word];
+			if( w > 0 ) {
+				output.words.add(word);
+				output.values.add(w);
+				total += w;
+			}
+			i = j;
+		}
+
+		for( int i = 0; i < output.values.size; i++ )
+			output.values.data[i] /= total;
+	}
+
+	/**
+	 * Number of words in the vocabulary
+	 */
+	public int getNumWords() {
+		return weights.size;
+	}
+
+	/**
+	 * IDF weight of a word
+	 */
+	public double getWeight( int word ) {
+		return weights.get(word);
+	}
+
+	public int getBranchFactor() {
+		return branchFactor;
+	}
+
+	public int getMaxLevels() {
+		return maxLevels;
+	}
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	private static class Node<Desc> {
+		// center of the cluster.  null for the root
+		Desc center;
+		// index of the first child node.  Children are stored sequentially
+		int firstChild = -1;
+		int numChildren;
+		// the word if it's a leaf or -1 if not
+		int word = -1;
+	}
+}
@@ -18,7 +18,9 @@
 
 package boofcv.alg.sfm.robust;
 
+import boofcv.alg.robust.DistanceFromModelPacked;
 import boofcv.struct.geo.AssociatedPair;
+import boofcv.struct.geo.PackedAssociatedPair;
 import georegression.struct.homo.Homography2D_F64;
 import georegression.struct.point.Point2D_F64;
 import georegression.transform.homo.HomographyPointOps_F64;
@@ -36,7 +38,9 @@ import java.util.List;
  * 
  * @author Peter Abeles
  */
-public class DistanceHomographySq implements DistanceFromModel<Homography2D_F64,AssociatedPair> {
+public class DistanceHomographySq implements DistanceFromModel<Homography2D_F64,AssociatedPair>,
+		DistanceFromModelPacked<Homography2D_F64,AssociatedPair,PackedAssociatedPair>
+{
 
 	Homography2D_F64 model;
 	Point2D_F64 expected = new Point2D_F64();
@@ -62,4 +66,25 @@ public class DistanceHomographySq implements DistanceFromModel<Homography2D_F64,
 			distance[i] = expected.distance2(p.p2);
 		}
 	}
+
+	@Override
+	public PackedAssociatedPair createPacked() {
+		return new PackedAssociatedPair();
+	}
+
+	@Override
+	public void computeDistance(PackedAssociatedPair points, double[] distance) {
+		Homography2D_F64 H = model;
+		final double[] x1 = points.x1, y1 = points.y1, x2 = points.x2, y2 = points.y2;
+
+		for( int i = 0; i < points.size; i++ ) {
+			double x = x1[i], y = y1[i];
+
+			double z = H.a31*x + H.a32*y + H.a33;
+			double dx = (H.a11*x + H.a12*y + H.a13)/z - x2[i];
+			double dy = (H.a21*x + H.a22*y + H.a23)/z - y2[i];
+
+			distance[i] = dx*dx + dy*dy;
+		}
+	}
 }
@@ -19,6 +19,7 @@
 package boofcv.alg.sfm.robust;
 
 import boofcv.alg.geo.NormalizedToPixelError;
+import boofcv.alg.robust.CopyDistanceFromModel;
 import boofcv.alg.sfm.overhead.CameraPlaneProjection;
 import boofcv.struct.sfm.PlanePtPixel;
 import georegression.struct.point.Point2D_F64;
@@ -46,6 +47,9 @@ public class DistancePlane2DToPixelSq implements DistanceFromModel<Se2_F64,Plane
 	// normalized image coordinates of predicted position
 	private Point2D_F64 normalizedPred = new Point2D_F64();
 
+	// transform from plane to camera reference frame
+	private Se3_F64 planeToCamera;
+
 	// code for projection to/from plane
 	private CameraPlaneProjection planeProjection = new CameraPlaneProjection();
 
@@ -57,6 +61,7 @@ public class DistancePlane2DToPixelSq implements DistanceFromModel<Se2_F64,Plane
 	 * @param planeToCamera Transform from plane to camera reference frame
 	 */
 	public void setExtrinsic(Se3_F64 planeToCamera) {
+		this.planeToCamera = planeToCamera;
 		planeProjection.setPlaneToCamera(planeToCamera, false);
 	}
 
@@ -95,4 +100,26 @@ public class DistancePlane2DToPixelSq implements DistanceFromModel<Se2_F64,Plane
 			distance[i] = computeDistance(samples.get(i));
 		}
 	}
+
+	/**
+	 * Creates copies for concurrent scoring of hypotheses.  The intrinsic and extrinsic parameters are copied.
+	 */
+	public static class Copier implements CopyDistanceFromModel<Se2_F64,PlanePtPixel> {
+		@Override
+		public DistanceFromModel<Se2_F64, PlanePtPixel> create() {
+			return new DistancePlane2DToPixelSq();
+		}
+
+		@Override
+		public void copyConfiguration(DistanceFromModel<Se2_F64, PlanePtPixel> original,
+									  DistanceFromModel<Se2_F64, PlanePtPixel> copy) {
+			DistancePlane2DToPixelSq o = (DistancePlane2DToPixelSq)original;
+			DistancePlane2DToPixelSq c = (DistancePlane2DToPixelSq)copy;
+
+			// the transform could have been modified in place so it's always copied
+			if( o.planeToCamera != null )
+				c.setExtrinsic(o.planeToCamera);
+			c.errorCamera.set(o.errorCamera);
+		}
+	}
 }
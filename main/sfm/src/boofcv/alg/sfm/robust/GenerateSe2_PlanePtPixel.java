@@ -18,6 +18,7 @@
 
 package boofcv.alg.sfm.robust;
 
+import boofcv.alg.robust.CopyModelGenerator;
 import boofcv.alg.sfm.overhead.CameraPlaneProjection;
 import boofcv.struct.sfm.PlanePtPixel;
 import georegression.fitting.MotionTransformPoint;
@@ -45,6 +46,8 @@ public class GenerateSe2_PlanePtPixel implements
 
 	// code for projection to/from plane
 	private CameraPlaneProjection planeProjection = new CameraPlaneProjection();
+	// transform from plane to camera.  null until specified
+	Se3_F64 planeToCamera;
 
 	List<Point2D_F64> from = new ArrayList<Point2D_F64>();
 	FastQueue<Point2D_F64> to = new FastQueue<Point2D_F64>(Point2D_F64.class,true);
@@ -62,6 +65,7 @@ public class GenerateSe2_PlanePtPixel implements
 	 * @param planeToCamera Transform from plane to camera reference frame
 	 */
 	public void setExtrinsic(Se3_F64 planeToCamera) {
+		this.planeToCamera = planeToCamera;
 		planeProjection.setPlaneToCamera(planeToCamera, true);
 	}
 
@@ -94,4 +98,24 @@ public class GenerateSe2_PlanePtPixel implements
 	public int getMinimumPoints() {
 		return estimator.getMinimumPoints();
 	}
+
+	/**
+	 * Creates copies for concurrent generation of hypotheses.  The extrinsic parameters are copied.
+	 */
+	public static class Copier implements CopyModelGenerator<Se2_F64,PlanePtPixel> {
+		@Override
+		public ModelGenerator<Se2_F64, PlanePtPixel> create() {
+			return new GenerateSe2_PlanePtPixel();
+		}
+
+		@Override
+		public void copyConfiguration(ModelGenerator<Se2_F64, PlanePtPixel> original,
+									  ModelGenerator<Se2_F64, PlanePtPixel> copy) {
+			GenerateSe2_PlanePtPixel o = (GenerateSe2_PlanePtPixel)original;
+
+			// the transform could have been modified in place so it's always copied
+			if( o.planeToCamera != null )
+				((GenerateSe2_PlanePtPixel)copy).setExtrinsic(o.planeToCamera);
+		}
+	}
 }
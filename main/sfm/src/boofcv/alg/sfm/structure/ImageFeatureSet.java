@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import boofcv.struct.feature.TupleDesc;
+import georegression.struct.point.Point2D_F64;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Features which were detected inside a single image.
+ *
+ * @author Peter Abeles
+ */
+public class ImageFeatureSet<Desc extends TupleDesc> {
+	/**
+	 * Location of each feature in normalized image coordinates
+	 */
+	public List<Point2D_F64> observations = new ArrayList<Point2D_F64>();
+	/**
+	 * Description of each feature
+	 */
+	public List<Desc> descriptions = new ArrayList<Desc>();
+
+	public int size() {
+		return observations.size();
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import boofcv.abst.feature.associate.AssociateDescription;
+import boofcv.struct.feature.AssociatedIndex;
+import boofcv.struct.feature.TupleDesc;
+import boofcv.struct.geo.AssociatedPair;
+import georegression.struct.se.Se3_F64;
+import org.ddogleg.fitting.modelset.ModelMatcher;
+import org.ddogleg.struct.FastQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches features between two images by associating their descriptors and then removing associations which
+ * are not consistent with the epipolar geometry.  Not thread safe.
+ *
+ * @author Peter Abeles
+ */
+public class ImagePairMatcher<Desc extends TupleDesc> {
+
+	private AssociateDescription<Desc> associate;
+	// estimates the motion from features in normalized image coordinates
+	private ModelMatcher<Se3_F64,AssociatedPair> epipolar;
+	// minimum number of inliers for a match to be accepted
+	private int minInliers;
+
+	// work space
+	private FastQueue<Desc> descA;
+	private FastQueue<Desc> descB;
+	private List<AssociatedPair> pairs = new ArrayList<AssociatedPair>();
+
+	/**
+	 * Configures the matcher
+	 *
+	 * @param associate Associates features
+	 * @param epipolar Robustly estimates motion between the two views
+	 * @param minInliers Minimum number of inliers for the images to be considered matched
+	 * @param descType Type of descriptor
+	 */
+	public ImagePairMatcher(AssociateDescription<Desc> associate,
+							ModelMatcher<Se3_F64, AssociatedPair> epipolar,
+							int minInliers , Class<Desc> descType ) {
+		this.associate = associate;
+		this.epipolar = epipolar;
+		this.minInliers = minInliers;
+
+		descA = new FastQueue<Desc>(descType,false);
+		descB = new FastQueue<Desc>(descType,false);
+	}
+
+	/**
+	 * Matches features between the two images
+	 *
+	 * @param imageA Features in the first image
+	 * @param imageB Features in the second image
+	 * @param output (Output) Matched features and motion.  Only modified if true is returned.
+	 * @return true if there are enough matches
+	 */
+	public boolean process( ImageFeatureSet<Desc> imageA , ImageFeatureSet<Desc> imageB , PairMatch output ) {
+		descA.reset();
+		descB.reset();
+		for( int i = 0; i < imageA.size(); i++ )
+			descA.add(imageA.descriptions.get(i));
+		for( int i = 0; i < imageB.size(); i++ )
+			descB.add(imageB.descriptions.get(i));
+
+		associate.setSource(descA);
+		associate.setDestination(descB);
+		associate.associate();
+
+		FastQueue<AssociatedIndex> matches = associate.getMatches();
+		if( matches.size < minInliers )
+			return false;
+
+		pairs.clear();
+		for( int i = 0; i < matches.size; i++ ) {
+			AssociatedIndex m = matches.get(i);
+			pairs.add(new AssociatedPair(imageA.observations.get(m.src), imageB.observations.get(m.dst), false));
+		}
+
+		if( !epipolar.process(pairs) )
+			return false;
+
+		int N = epipolar.getMatchSet().size();
+		if( N < minInliers )
+			return false;
+
+		output.reset();
+		output.aToB.set(epipolar.getModelParameters());
+		for( int i = 0; i < N; i++ ) {
+			AssociatedIndex m = matches.get(epipolar.getInputIndex(i));
+			output.featA.add(m.src);
+			output.featB.add(m.dst);
+		}
+		return true;
+	}
+
+	public int getMinInliers() {
+		return minInliers;
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import boofcv.struct.feature.TupleDesc;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Reconstructs a scene from a set of unordered images.  First features are matched between every pair of images
+ * using {@link PairwiseImageMatching}, then a {@link ViewGraph} is constructed, and finally the views are
+ * registered one at a time by {@link IncrementalStructureFromMotion}.
+ * </p>
+ *
+ * <p>
+ * Matches are cached on disk and the reconstruction is periodically saved if they are configured to do so.  If
+ * the job is interrupted then calling process again with the same images will resume from where it stopped.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class IncrementalSfmPipeline<Desc extends TupleDesc> {
+
+	private PairwiseImageMatching<Desc> matching;
+	private ViewGraph graph = new ViewGraph();
+	private IncrementalStructureFromMotion structure;
+
+	public IncrementalSfmPipeline(PairwiseImageMatching<Desc> matching,
+								  IncrementalStructureFromMotion structure) {
+		this.matching = matching;
+		this.structure = structure;
+	}
+
+	/**
+	 * Reconstructs the scene
+	 *
+	 * @param images Features in each image.  Not modified.
+	 * @return true if successful
+	 */
+	public boolean process( List<ImageFeatureSet<Desc>> images ) {
+		matching.process(images);
+
+		int[] featureCounts = new int[images.size()];
+		for( int i = 0; i < images.size(); i++ )
+			featureCounts[i] = images.get(i).size();
+		graph.process(featureCounts, matching.getMatches());
+
+		return structure.process(images, graph);
+	}
+
+	public PairwiseImageMatching<Desc> getMatching() {
+		return matching;
+	}
+
+	public ViewGraph getGraph() {
+		return graph;
+	}
+
+	public IncrementalStructureFromMotion getStructure() {
+		return structure;
+	}
+}
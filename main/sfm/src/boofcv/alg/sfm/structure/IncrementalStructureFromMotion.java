@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import boofcv.abst.geo.TriangulateTwoViewsCalibrated;
+import boofcv.abst.geo.BundleAdjustmentCalibrated;
+import boofcv.alg.geo.bundle.CalibratedPoseAndPoint;
+import boofcv.alg.geo.bundle.ViewPointObservations;
+import boofcv.struct.feature.TupleDesc;
+import boofcv.struct.geo.Point2D3D;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.ddogleg.fitting.modelset.ModelMatcher;
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>
+ * Incrementally reconstructs a scene from a set of images whose features have been matched, see {@link ViewGraph}.
+ * The reconstruction is started from the pair of views with the most matches.  Their relative pose is used to
+ * triangulate the tracks they observe.  Then the view which observes the most triangulated tracks is registered
+ * using PnP and the tracks it shares with already registered views are triangulated.  This is repeated until no
+ * more views can be registered.  Every few registrations all the views and points are refined using bundle
+ * adjustment and points with a large reprojection error are discarded.  The scale of the reconstruction is set by
+ * the initial pair, which are separated by a distance of one.
+ * </p>
+ *
+ * <p>
+ * Each time bundle adjustment is run the state is saved to a checkpoint file, if one is specified.  If the
+ * checkpoint exists when processing starts then the reconstruction resumes from it.  The view graph must be the
+ * same as the one used to create the checkpoint, e.g. loaded from a {@link MatchCache}.
+ * </p>
+ *
+ * <p>
+ * All observations are in normalized image coordinates and poses are from world to view.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class IncrementalStructureFromMotion {
+
+	private static final int MAGIC = 0x49534631;
+	private static final int VERSION = 2;
+
+	// estimates the pose of a view from triangulated points
+	private ModelMatcher<Se3_F64,Point2D3D> pnp;
+	private TriangulateTwoViewsCalibrated triangulate;
+	// refines the reconstruction.  Can be null
+	private BundleAdjustmentCalibrated bundle;
+
+	// minimum number of inliers needed to register a view or initialize
+	private int minInliers;
+	// maximum reprojection error in normalized image coordinates
+	private double maxReprojection;
+	// number of views registered between bundle adjustment and checkpoints
+	private int period;
+	// checkpoint file.  Can be null
+	private File checkpoint;
+
+	//---------- The reconstruction
+	// pose of each view, null if not registered
+	private Se3_F64[] worldToView = new Se3_F64[0];
+	// order views were registered in
+	private GrowQueue_I32 order = new GrowQueue_I32();
+	// location of each track, null if not triangulated
+	private Point3D_F64[] points = new Point3D_F64[0];
+	// number of points observed when registration of a view last failed
+	private int[] failedCount = new int[0];
+	// number of views registered since the last bundle adjustment
+	private int sinceBundle;
+
+	// work space
+	private List<Point2D3D> pnpPoints = new ArrayList<Point2D3D>();
+	private Se3_F64 viewToWorld = new Se3_F64();
+	private Se3_F64 otherToView = new Se3_F64();
+	private Point3D_F64 p = new Point3D_F64();
+
+	/**
+	 * Configures the algorithm
+	 *
+	 * @param pnp Robustly estimates a view's pose from observations of triangulated points
+	 * @param triangulate Triangulates points from two views
+	 * @param bundle Bundle adjustment.  If null then bundle adjustment isn't used.
+	 * @param minInliers Minimum number of inliers needed to register a view
+	 * @param maxReprojection Maximum reprojection error for a point in normalized image coordinates.
+	 * @param period Bundle adjustment and checkpoints are done after this many views have been registered.
+	 */
+	public IncrementalStructureFromMotion(ModelMatcher<Se3_F64, Point2D3D> pnp,
+										  TriangulateTwoViewsCalibrated triangulate,
+										  BundleAdjustmentCalibrated bundle,
+										  int minInliers, double maxReprojection, int period) {
+		if( period < 1 )
+			throw new IllegalArgumentException("Period must be at least 1");
+		this.pnp = pnp;
+		this.triangulate = triangulate;
+		this.bundle = bundle;
+		this.minInliers = minInliers;
+		this.maxReprojection = maxReprojection;
+		this.period = period;
+	}
+
+	/**
+	 * Specifies the file used to save and resume the reconstruction.
+	 *
+	 * @param checkpoint The file.  If null then checkpoints are turned off.
+	 */
+	public void setCheckpoint(File checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * Reconstructs the scene
+	 *
+	 * @param images Features in each image
+	 * @param graph View graph which was computed from the images
+	 * @return true if successful or false if it couldn't find a pair of views to initialize from
+	 */
+	public <Desc extends TupleDesc>
+	boolean process( List<ImageFeatureSet<Desc>> images , ViewGraph graph ) {
+		if( images.size() != graph.getNumViews() )
+			throw new IllegalArgumentException("Number of images and views don't match");
+
+		File source = checkpoint == null ? null : StructureFileOps.findComplete(checkpoint, MAGIC);
+		if( source != null ) {
+			loadCheckpoint(source, graph);
+		} else {
+			declareState(graph);
+			if( !initialize(images, graph) )
+				return false;
+		}
+
+		while( true ) {
+			int view = selectNextView(graph);
+			if( view < 0 )
+				break;
+			if( !register(view, images, graph) )
+				continue;
+			triangulateView(view, images, graph);
+
+			if( ++sinceBundle >= period ) {
+				refine(images, graph);
+				saveCheckpoint();
+			}
+		}
+
+		if( sinceBundle > 0 ) {
+			refine(images, graph);
+			saveCheckpoint();
+		}
+		return true;
+	}
+
+	private void declareState( ViewGraph graph ) {
+		worldToView = new Se3_F64[graph.getNumViews()];
+		points = new Point3D_F64[graph.getTracks().size()];
+		failedCount = new int[graph.getNumViews()];
+		order.reset();
+		sinceBundle = 0;
+	}
+
+	/**
+	 * Picks the pair of views with the most matches that has enough points triangulated in front of both views
+	 */
+	private <Desc extends TupleDesc>
+	boolean initialize( List<ImageFeatureSet<Desc>> images , ViewGraph graph ) {
+		List<PairMatch> pairs = new ArrayList<PairMatch>();
+		for( int i = 0; i < graph.getNumViews(); i++ ) {
+			for( PairMatch m : graph.getEdges(i) ) {
+				if( m.viewA == i && m.size() >= minInliers )
+					pairs.add(m);
+			}
+		}
+		Collections.sort(pairs, new Comparator<PairMatch>() {
+			@Override
+			public int compare(PairMatch a, PairMatch b) {
+				return b.size() - a.size();
+			}
+		});
+
+		for( PairMatch m : pairs ) {
+			Se3_F64 aToB = m.aToB.copy();
+			if( aToB.getT().norm() == 0 )
+				continue;
+			aToB.getT().normalize();
+
+			worldToView[m.viewA] = new Se3_F64();
+			worldToView[m.viewB] = aToB;
+			order.add(m.viewA);
+			order.add(m.viewB);
+
+			if( triangulateView(m.viewB, images, graph) >= minInliers ) {
+				sinceBundle = 2;
+				return true;
+			}
+
+			declareState(graph);
+		}
+		return false;
+	}
+
+	/**
+	 * Selects the unregistered view which observes the most triangulated points
+	 *
+	 * @return The view or -1 if none can be registered
+	 */
+	private int selectNextView( ViewGraph graph ) {
+		int[] counts = new int[worldToView.length];
+		List<ViewGraph.Track> tracks = graph.getTracks();
+		for( int i = 0; i < tracks.size(); i++ ) {
+			if( points[i] == null )
+				continue;
+			ViewGraph.Track t = tracks.get(i);
+			for( int j = 0; j < t.views.size; j++ ) {
+				counts[t.views.data[j]]++;
+			}
+		}
+
+		int best = -1;
+		int bestCount = minInliers-1;
+		for( int i = 0; i < counts.length; i++ ) {
+			if( worldToView[i] != null || counts[i] <= failedCount[i] )
+				continue;
+			if( counts[i] > bestCount ) {
+				bestCount = counts[i];
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Estimates the view's pose using PnP
+	 */
+	private <Desc extends TupleDesc>
+	boolean register( int view , List<ImageFeatureSet<Desc>> images , ViewGraph graph ) {
+		List<Point2D_F64> obs = images.get(view).observations;
+
+		pnpPoints.clear();
+		for( int i = 0; i < obs.size(); i++ ) {
+			int track = graph.getTrack(view, i);
+			if( track >= 0 && points[track] != null )
+				pnpPoints.add(new Point2D3D(obs.get(i), points[track]));
+		}
+
+		if( !pnp.process(pnpPoints) || pnp.getMatchSet().size() < minInliers ) {
+			failedCount[view] = pnpPoints.size();
+			return false;
+		}
+
+		worldToView[view] = pnp.getModelParameters().copy();
+		order.add(view);
+		return true;
+	}
+
+	/**
+	 * Triangulates tracks observed by the view which haven't been triangulated yet and are observed by another
+	 * registered view.
+	 *
+	 * @return Number of points triangulated
+	 */
+	private <Desc extends TupleDesc>
+	int triangulateView( int view , List<ImageFeatureSet<Desc>> images , ViewGraph graph ) {
+		List<Point2D_F64> obs = images.get(view).observations;
+		Se3_F64 worldToV = worldToView[view];
+
+		int total = 0;
+		for( int i = 0; i < obs.size(); i++ ) {
+			int trackID = graph.getTrack(view, i);
+			if( trackID < 0 || points[trackID] != null )
+				continue;
+
+			// use the first registered view as the other view
+			ViewGraph.Track t = graph.getTracks().get(trackID);
+			int other = -1, otherFeat = -1;
+			for( int j = 0; j < t.views.size; j++ ) {
+				int v = t.views.data[j];
+				if( v != view && worldToView[v] != null ) {
+					other = v;
+					otherFeat = t.features.data[j];
+					break;
+				}
+			}
+			if( other < 0 )
+				continue;
+
+			worldToView[other].invert(viewToWorld);
+			viewToWorld.concat(worldToV, otherToView);
+
+			Point2D_F64 obsOther = images.get(other).observations.get(otherFeat);
+			if( !triangulate.triangulate(obsOther, obs.get(i), otherToView, p) )
+				continue;
+
+			Point3D_F64 world = SePointOps_F64.transform(viewToWorld, p, null);
+			if( !isValid(world, other, obsOther) || !isValid(world, view, obs.get(i)) )
+				continue;
+
+			points[trackID] = world;
+			total++;
+		}
+		return total;
+	}
+
+	/**
+	 * Checks to see if the point is in front of the view and its reprojection error is small enough
+	 */
+	private boolean isValid( Point3D_F64 world , int view , Point2D_F64 obs ) {
+		Point3D_F64 v = SePointOps_F64.transform(worldToView[view], world, null);
+		if( v.z <= 0 )
+			return false;
+		double dx = v.x/v.z - obs.x;
+		double dy = v.y/v.z - obs.y;
+		return dx*dx + dy*dy <= maxReprojection*maxReprojection;
+	}
+
+	/**
+	 * Refines the registered views and triangulated points with bundle adjustment, then removes points
+	 * which are no longer consistent
+	 */
+	private <Desc extends TupleDesc>
+	void refine( List<ImageFeatureSet<Desc>> images , ViewGraph graph ) {
+		sinceBundle = 0;
+		if( bundle == null )
+			return;
+
+		int[] trackToIndex = new int[points.length];
+		Arrays.fill(trackToIndex, -1);
+		int numPoints = 0;
+		for( int i = 0; i < points.length; i++ ) {
+			if( points[i] != null )
+				trackToIndex[i] = numPoints++;
+		}
+
+		CalibratedPoseAndPoint model = new CalibratedPoseAndPoint();
+		model.configure(order.size, numPoints);
+		List<ViewPointObservations> observations = new ArrayList<ViewPointObservations>();
+		for( int i = 0; i < order.size; i++ ) {
+			int view = order.get(i);
+			model.getWorldToCamera(i).set(worldToView[view]);
+			// the first two views define the coordinate system and scale
+			model.setViewKnown(i, i < 2);
+
+			ViewPointObservations vpo = new ViewPointObservations();
+			List<Point2D_F64> obs = images.get(view).observations;
+			for( int j = 0; j < obs.size(); j++ ) {
+				int track = graph.getTrack(view, j);
+				if( track >= 0 && trackToIndex[track] >= 0 )
+					vpo.getPoints().grow().set(trackToIndex[track], obs.get(j));
+			}
+			observations.add(vpo);
+		}
+		for( int i = 0; i < points.length; i++ ) {
+			if( trackToIndex[i] >= 0 )
+				model.getPoint(trackToIndex[i]).set(points[i]);
+		}
+
+		if( !bundle.process(model, observations) )
+			return;
+
+		for( int i = 0; i < order.size; i++ )
+			worldToView[order.get(i)].set(model.getWorldToCamera(i));
+		for( int i = 0; i < points.length; i++ ) {
+			if( trackToIndex[i] >= 0 )
+				points[i].set(model.getPoint(trackToIndex[i]));
+		}
+
+		// remove points which don't fit any more
+		List<ViewGraph.Track> tracks = graph.getTracks();
+		for( int i = 0; i < points.length; i++ ) {
+			if( points[i] == null )
+				continue;
+			ViewGraph.Track t = tracks.get(i);
+			for( int j = 0; j < t.views.size; j++ ) {
+				int view = t.views.data[j];
+				if( worldToView[view] == null )
+					continue;
+				if( !isValid(points[i], view, images.get(view).observations.get(t.features.data[j])) ) {
+					points[i] = null;
+					break;
+				}
+			}
+		}
+	}
+
+	private void saveCheckpoint() {
+		if( checkpoint == null )
+			return;
+
+		try {
+			DataOutputStream out = StructureFileOps.createTemporary(checkpoint);
+			try {
+				StructureFileOps.writeHeader(out, MAGIC, VERSION);
+				out.writeInt(worldToView.length);
+				out.writeInt(points.length);
+				out.writeInt(sinceBundle);
+				out.writeInt(order.size);
+				for( int i = 0; i < order.size; i++ ) {
+					int view = order.get(i);
+					out.writeInt(view);
+					StructureFileOps.write(worldToView[view], out);
+				}
+				for( int i = 0; i < failedCount.length; i++ )
+					out.writeInt(failedCount[i]);
+				for( int i = 0; i < points.length; i++ ) {
+					out.writeBoolean(points[i] != null);
+					if( points[i] != null ) {
+						out.writeDouble(points[i].x);
+						out.writeDouble(points[i].y);
+						out.writeDouble(points[i].z);
+					}
+				}
+				StructureFileOps.writeFooter(out, MAGIC);
+			} finally {
+				out.close();
+			}
+			StructureFileOps.commit(checkpoint);
+		} catch( IOException e ) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void loadCheckpoint( File source , ViewGraph graph ) {
+		declareState(graph);
+		try {
+			DataInputStream in = StructureFileOps.open(source);
+			try {
+				StructureFileOps.readHeader(in, MAGIC, VERSION);
+				if( in.readInt() != worldToView.length || in.readInt() != points.length )
+					throw new IllegalArgumentException("Checkpoint doesn't match the view graph");
+				sinceBundle = in.readInt();
+				int N = in.readInt();
+				for( int i = 0; i < N; i++ ) {
+					int view = in.readInt();
+					worldToView[view] = new Se3_F64();
+					StructureFileOps.read(in, worldToView[view]);
+					order.add(view);
+				}
+				for( int i = 0; i < failedCount.length; i++ )
+					failedCount[i] = in.readInt();
+				for( int i = 0; i < points.length; i++ ) {
+					if( in.readBoolean() )
+						points[i] = new Point3D_F64(in.readDouble(), in.readDouble(), in.readDouble());
+				}
+				StructureFileOps.readFooter(in, MAGIC);
+			} finally {
+				in.close();
+			}
+		} catch( IOException e ) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the pose of a view or null if it hasn't been registered
+	 */
+	public Se3_F64 getWorldToView( int view ) {
+		return worldToView[view];
+	}
+
+	/**
+	 * Returns the location of a track or null if it hasn't been triangulated
+	 */
+	public Point3D_F64 getPoint( int track ) {
+		return points[track];
+	}
+
+	/**
+	 * Views in the order they were registered
+	 */
+	public GrowQueue_I32 getRegistrationOrder() {
+		return order;
+	}
+
+	/**
+	 * Number of points which have been triangulated
+	 */
+	public int getNumPoints() {
+		int total = 0;
+		for( Point3D_F64 p : points ) {
+			if( p != null )
+				total++;
+		}
+		return total;
+	}
+
+	public File getCheckpoint() {
+		return checkpoint;
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import boofcv.struct.feature.TupleDesc;
+import georegression.struct.point.Point2D_F64;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Stores the results of matching image pairs on disk so that they don't need to be recomputed if a job is
+ * restarted.  All the matches between an image and the images after it, a row, are saved in a single file.
+ * </p>
+ *
+ * <p>
+ * Each file's header contains a hash of the images and of the matcher's configuration.  A row is only
+ * considered to be in the cache if both hashes match, so that changing the input or configuration causes
+ * the row to be recomputed instead of silently reusing stale matches.  The images are specified by calling
+ * {@link #setImages} before the cache is used.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class MatchCache {
+
+	private static final int MAGIC = 0x424D4331;
+	private static final int VERSION = 2;
+
+	// directory the files are saved in
+	private File directory;
+
+	// hash of the matcher's configuration
+	private long configHash;
+	// hash of the images being matched
+	private long imagesHash = StructureFileOps.HASH_SEED;
+
+	/**
+	 * Specifies the directory the cache is stored in.  It's created if it doesn't exist.
+	 *
+	 * @param directory Directory the cache is stored in
+	 * @param configHash Hash of the configuration used to match images.  See {@link StructureFileOps#hash}.
+	 */
+	public MatchCache( File directory , long configHash ) {
+		this.directory = directory;
+		this.configHash = configHash;
+		if( !directory.exists() && !directory.mkdirs() )
+			throw new IllegalArgumentException("Can't create directory "+directory.getPath());
+	}
+
+	/**
+	 * Specifies the directory the cache is stored in.  The configuration hash is set to zero.
+	 */
+	public MatchCache( File directory ) {
+		this(directory, 0);
+	}
+
+	/**
+	 * Specifies the images which are being matched.  Rows which were saved for a different set of images are
+	 * ignored.
+	 */
+	public <Desc extends TupleDesc> void setImages( List<ImageFeatureSet<Desc>> images ) {
+		imagesHash = hashImages(images);
+	}
+
+	/**
+	 * Computes a hash of the features in every image
+	 */
+	public static <Desc extends TupleDesc> long hashImages( List<ImageFeatureSet<Desc>> images ) {
+		long hash = StructureFileOps.hash(StructureFileOps.HASH_SEED, images.size());
+		for( int i = 0; i < images.size(); i++ ) {
+			ImageFeatureSet<Desc> image = images.get(i);
+			hash = StructureFileOps.hash(hash, image.size());
+			for( int j = 0; j < image.size(); j++ ) {
+				Point2D_F64 p = image.observations.get(j);
+				hash = StructureFileOps.hash(hash, p.x);
+				hash = StructureFileOps.hash(hash, p.y);
+
+				TupleDesc desc = image.descriptions.get(j);
+				for( int k = 0; k < desc.size(); k++ )
+					hash = StructureFileOps.hash(hash, desc.getDouble(k));
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns true if the row for the specified view has been saved using the same images and configuration
+	 */
+	public boolean contains( int viewA ) {
+		File f = StructureFileOps.findComplete(file(viewA), MAGIC);
+		if( f == null )
+			return false;
+		try {
+			DataInputStream in = StructureFileOps.open(f);
+			try {
+				readHeader(in, viewA, f);
+				return true;
+			} finally {
+				in.close();
+			}
+		} catch( IOException e ) {
+			// stale or corrupted so it needs to be recomputed
+			return false;
+		}
+	}
+
+	/**
+	 * Saves the matches between view A and the views after it
+	 *
+	 * @param viewA Index of view A
+	 * @param row Matches in which view A is the first view
+	 */
+	public void save( int viewA , List<PairMatch> row ) {
+		File f = file(viewA);
+		try {
+			DataOutputStream out = StructureFileOps.createTemporary(f);
+			try {
+				StructureFileOps.writeHeader(out, MAGIC, VERSION);
+				out.writeLong(imagesHash);
+				out.writeLong(configHash);
+				out.writeInt(viewA);
+				out.writeInt(row.size());
+				for( PairMatch m : row ) {
+					out.writeInt(m.viewB);
+					StructureFileOps.write(m.aToB, out);
+					out.writeInt(m.size());
+					for( int i = 0; i < m.size(); i++ ) {
+						out.writeInt(m.featA.data[i]);
+						out.writeInt(m.featB.data[i]);
+					}
+				}
+				StructureFileOps.writeFooter(out, MAGIC);
+			} finally {
+				out.close();
+			}
+			StructureFileOps.commit(f);
+		} catch( IOException e ) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Loads the matches between view A and the views after it
+	 *
+	 * @param viewA Index of view A
+	 * @return Matches in which view A is the first view
+	 */
+	public List<PairMatch> load( int viewA ) {
+		List<PairMatch> row = new ArrayList<PairMatch>();
+		File f = StructureFileOps.findComplete(file(viewA), MAGIC);
+		if( f == null )
+			throw new IllegalArgumentException("Row isn't in the cache");
+		try {
+			DataInputStream in = StructureFileOps.open(f);
+			try {
+				readHeader(in, viewA, f);
+				int N = in.readInt();
+				for( int i = 0; i < N; i++ ) {
+					PairMatch m = new PairMatch();
+					m.viewA = viewA;
+					m.viewB = in.readInt();
+					StructureFileOps.read(in, m.aToB);
+					int size = in.readInt();
+					for( int j = 0; j < size; j++ ) {
+						m.featA.add(in.readInt());
+						m.featB.add(in.readInt());
+					}
+					row.add(m);
+				}
+				StructureFileOps.readFooter(in, MAGIC);
+			} finally {
+				in.close();
+			}
+		} catch( IOException e ) {
+			throw new RuntimeException(e);
+		}
+		return row;
+	}
+
+	/**
+	 * Reads the header and makes sure it was saved for the same view, images, and configuration
+	 */
+	private void readHeader( DataInputStream in , int viewA , File f ) throws IOException {
+		StructureFileOps.readHeader(in, MAGIC, VERSION);
+		if( in.readLong() != imagesHash )
+			throw new IOException("Saved for different images "+f.getPath());
+		if( in.readLong() != configHash )
+			throw new IOException("Saved with a different configuration "+f.getPath());
+		if( in.readInt() != viewA )
+			throw new IOException("Unexpected view in "+f.getPath());
+	}
+
+	private File file( int viewA ) {
+		return new File(directory, String.format("matches%06d.bin", viewA));
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getConfigHash() {
+		return configHash;
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import georegression.struct.se.Se3_F64;
+import org.ddogleg.struct.GrowQueue_I32;
+
+/**
+ * Features which were matched between two images and are consistent with the estimated motion.
+ *
+ * @author Peter Abeles
+ */
+public class PairMatch {
+	/**
+	 * Index of the first image
+	 */
+	public int viewA;
+	/**
+	 * Index of the second image
+	 */
+	public int viewB;
+	/**
+	 * Transform from view A to view B.  Translation has an arbitrary scale.
+	 */
+	public Se3_F64 aToB = new Se3_F64();
+	/**
+	 * Index of each matched feature in view A
+	 */
+	public GrowQueue_I32 featA = new GrowQueue_I32();
+	/**
+	 * Index of each matched feature in view B
+	 */
+	public GrowQueue_I32 featB = new GrowQueue_I32();
+
+	/**
+	 * Number of matched features
+	 */
+	public int size() {
+		return featA.size;
+	}
+
+	public void reset() {
+		featA.reset();
+		featB.reset();
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.struct.feature.TupleDesc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Matches features between every pair of images in an unordered set.  The work is split into rows, where row
+ * 'i' contains the pairs (i,j) with j &gt; i.  Rows are processed concurrently by a fixed number of workers, one
+ * for each {@link ImagePairMatcher} provided, and each worker takes the next unprocessed row when it finishes.
+ * Memory and thread usage is bounded by the number of workers.
+ * </p>
+ *
+ * <p>
+ * If a {@link MatchCache} is provided then each row is saved when it's finished and rows which are already in the
+ * cache are loaded instead of being computed.  If the job is interrupted then at most one row per worker needs to
+ * be recomputed.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class PairwiseImageMatching<Desc extends TupleDesc> {
+
+	// one matcher for each worker
+	private List<ImagePairMatcher<Desc>> matchers;
+	// optional cache
+	private MatchCache cache;
+
+	// matches for each row
+	private List<List<PairMatch>> rows = new ArrayList<List<PairMatch>>();
+
+	private int totalComputed;
+	private int totalLoaded;
+
+	/**
+	 * Configures the matcher
+	 *
+	 * @param matchers One matcher for each worker.  Matchers are not thread safe, so each must be a different instance.
+	 * @param cache Optional cache.  Can be null.
+	 */
+	public PairwiseImageMatching(List<ImagePairMatcher<Desc>> matchers, MatchCache cache) {
+		if( matchers.isEmpty() )
+			throw new IllegalArgumentException("At least one matcher must be provided");
+		this.matchers = matchers;
+		this.cache = cache;
+	}
+
+	/**
+	 * Matches every pair of images
+	 *
+	 * @param images Features in each image.  Not modified.
+	 */
+	public void process( final List<ImageFeatureSet<Desc>> images ) {
+		final int N = images.size();
+		rows.clear();
+		totalComputed = totalLoaded = 0;
+
+		if( cache != null )
+			cache.setImages(images);
+
+		final List<Integer> todo = new ArrayList<Integer>();
+		for( int i = 0; i < N; i++ ) {
+			if( cache != null && cache.contains(i) ) {
+				rows.add(cache.load(i));
+				totalLoaded++;
+			} else {
+				rows.add(null);
+				todo.add(i);
+			}
+		}
+		totalComputed = todo.size();
+
+		final AtomicInteger next = new AtomicInteger();
+
+		// when called from inside the pool, don't wait on other tasks in the same pool
+		if( matchers.size() == 1 || BoofConcurrency.isWorkerThread() ) {
+			processRows(matchers.get(0), images, todo, next);
+			return;
+		}
+
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for( final ImagePairMatcher<Desc> m : matchers ) {
+			futures.add(BoofConcurrency.submit(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					processRows(m, images, todo, next);
+					return null;
+				}
+			}));
+		}
+
+		RuntimeException failure = null;
+		for( Future<Object> f : futures ) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if( failure == null ) {
+					// stop the other workers from starting new rows
+					next.set(todo.size());
+					failure = e.getCause() instanceof RuntimeException ?
+							(RuntimeException)e.getCause() : new RuntimeException(e.getCause());
+				}
+			}
+		}
+		if( failure != null )
+			throw failure;
+	}
+
+	/**
+	 * Processes rows until there are none left
+	 */
+	private void processRows( ImagePairMatcher<Desc> matcher , List<ImageFeatureSet<Desc>> images ,
+							  List<Integer> todo , AtomicInteger next ) {
+		while( true ) {
+			int index = next.getAndIncrement();
+			if( index >= todo.size() )
+				return;
+			int viewA = todo.get(index);
+
+			List<PairMatch> row = new ArrayList<PairMatch>();
+			PairMatch m = new PairMatch();
+			for( int viewB = viewA + 1; viewB < images.size(); viewB++ ) {
+				if( matcher.process(images.get(viewA), images.get(viewB), m) ) {
+					m.viewA = viewA;
+					m.viewB = viewB;
+					row.add(m);
+					m = new PairMatch();
+				}
+			}
+
+			if( cache != null )
+				cache.save(viewA, row);
+			synchronized( rows ) {
+				rows.set(viewA, row);
+			}
+		}
+	}
+
+	/**
+	 * Returns all the pairs which were matched
+	 */
+	public List<PairMatch> getMatches() {
+		List<PairMatch> all = new ArrayList<PairMatch>();
+		for( List<PairMatch> row : rows )
+			all.addAll(row);
+		return all;
+	}
+
+	/**
+	 * Matches in which the specified view is view A
+	 */
+	public List<PairMatch> getRow( int viewA ) {
+		return rows.get(viewA);
+	}
+
+	/**
+	 * Number of rows which were computed in the last call to process
+	 */
+	public int getTotalComputed() {
+		return totalComputed;
+	}
+
+	/**
+	 * Number of rows which were loaded from the cache in the last call to process
+	 */
+	public int getTotalLoaded() {
+		return totalLoaded;
+	}
+}
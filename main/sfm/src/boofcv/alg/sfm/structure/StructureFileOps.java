@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import georegression.struct.se.Se3_F64;
+
+import java.io.*;
+
+/**
+ * Functions for reading and writing the binary files used by structure from motion.  Files are written to
+ * a temporary file which is synced to disk and then renamed once it's complete, so that a crash never leaves
+ * a partially written file.  Files end with a footer so that a complete temporary file can be recognized and
+ * used if a crash happens while it's being renamed.
+ *
+ * @author Peter Abeles
+ */
+public class StructureFileOps {
+
+	/**
+	 * Initial value used when computing a hash
+	 */
+	public static final long HASH_SEED = 0xcbf29ce484222325L;
+
+	/**
+	 * Opens a stream which writes to a temporary file next to the destination.  The file is synced to disk
+	 * when the stream is closed.  Call {@link #commit} after the stream has been closed.
+	 */
+	public static DataOutputStream createTemporary( File destination ) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new SyncOutputStream(temporary(destination))));
+	}
+
+	/**
+	 * Replaces the destination with the temporary file.  The rename replaces the destination in a single step
+	 * on most file systems.  If it can't then the destination is deleted first, and if a crash happens before
+	 * the rename {@link #findComplete} will return the temporary file.
+	 */
+	public static void commit( File destination ) throws IOException {
+		File tmp = temporary(destination);
+		if( tmp.renameTo(destination) )
+			return;
+		if( destination.exists() && !destination.delete() )
+			throw new IOException("Can't delete "+destination.getPath());
+		if( !tmp.renameTo(destination) )
+			throw new IOException("Can't rename "+tmp.getPath());
+	}
+
+	/**
+	 * Returns the file which should be read.  Normally this is the destination, but if it doesn't exist and
+	 * there is a complete temporary file then the temporary file is returned.
+	 *
+	 * @param destination The file
+	 * @param magic Magic number the file was written with
+	 * @return The file which should be read or null if there is none
+	 */
+	public static File findComplete( File destination , int magic ) {
+		if( destination.exists() )
+			return destination;
+		File tmp = temporary(destination);
+		if( tmp.exists() && hasFooter(tmp, magic) )
+			return tmp;
+		return null;
+	}
+
+	private static File temporary( File destination ) {
+		return new File(destination.getPath()+".tmp");
+	}
+
+	private static boolean hasFooter( File file , int magic ) {
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				if( raf.length() < 8 )
+					return false;
+				raf.seek(raf.length()-4);
+				return raf.readInt() == ~magic;
+			} finally {
+				raf.close();
+			}
+		} catch( IOException e ) {
+			return false;
+		}
+	}
+
+	public static DataInputStream open( File file ) throws IOException {
+		return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+	}
+
+	/**
+	 * Writes the file's header
+	 */
+	public static void writeHeader( DataOutputStream out , int magic , int version ) throws IOException {
+		out.writeInt(magic);
+		out.writeInt(version);
+	}
+
+	/**
+	 * Reads and checks the file's header
+	 */
+	public static void readHeader( DataInputStream in , int magic , int version ) throws IOException {
+		if( in.readInt() != magic )
+			throw new IOException("Unexpected file type");
+		int found = in.readInt();
+		if( found != version )
+			throw new IOException("Unsupported version "+found);
+	}
+
+	/**
+	 * Writes the file's footer.  Must be the last thing written.
+	 */
+	public static void writeFooter( DataOutputStream out , int magic ) throws IOException {
+		out.writeInt(~magic);
+	}
+
+	/**
+	 * Reads and checks the file's footer
+	 */
+	public static void readFooter( DataInputStream in , int magic ) throws IOException {
+		if( in.readInt() != ~magic )
+			throw new IOException("Missing footer.  File is incomplete");
+	}
+
+	/**
+	 * Updates a hash with the value.  Used to detect changes in the input.
+	 */
+	public static long hash( long hash , long value ) {
+		hash = (hash ^ value)*0x100000001b3L;
+		return hash ^ (hash >>> 29);
+	}
+
+	/**
+	 * Updates a hash with the value.  Used to detect changes in the input.
+	 */
+	public static long hash( long hash , double value ) {
+		return hash(hash, Double.doubleToLongBits(value));
+	}
+
+	public static void write( Se3_F64 se , DataOutputStream out ) throws IOException {
+		double[] R = se.getR().data;
+		for( int i = 0; i < 9; i++ )
+			out.writeDouble(R[i]);
+		out.writeDouble(se.getT().x);
+		out.writeDouble(se.getT().y);
+		out.writeDouble(se.getT().z);
+	}
+
+	public static void read( DataInputStream in , Se3_F64 se ) throws IOException {
+		double[] R = se.getR().data;
+		for( int i = 0; i < 9; i++ )
+			R[i] = in.readDouble();
+		se.getT().x = in.readDouble();
+		se.getT().y = in.readDouble();
+		se.getT().z = in.readDouble();
+	}
+
+	/**
+	 * Forces the file to be written to disk before it's closed so that it is complete before it's renamed
+	 */
+	private static class SyncOutputStream extends FileOutputStream {
+		// close can be called more than once
+		boolean closed = false;
+
+		public SyncOutputStream( File file ) throws FileNotFoundException {
+			super(file);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if( closed )
+				return;
+			closed = true;
+			try {
+				getFD().sync();
+			} finally {
+				super.close();
+			}
+		}
+	}
+}
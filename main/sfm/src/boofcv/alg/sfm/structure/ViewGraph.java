@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import org.ddogleg.struct.GrowQueue_I32;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Graph describing which views observe the same part of the scene.  Each view is a node and each matched pair
+ * of views is an edge.  Features which are matched across several views are linked together into tracks, which
+ * correspond to a single 3D point.  Tracks are found by taking the connected components of the features linked by
+ * pairwise matches using union-find.  Tracks which contain two different features from the same view are
+ * inconsistent and are discarded.
+ * </p>
+ *
+ * @author Peter Abeles
+ */
+public class ViewGraph {
+
+	// edges connected to each view
+	private List<List<PairMatch>> edges = new ArrayList<List<PairMatch>>();
+
+	// tracks which were found
+	private List<Track> tracks = new ArrayList<Track>();
+	// look up table from feature to track for each view.  -1 if the feature isn't in a track
+	private List<int[]> featureToTrack = new ArrayList<int[]>();
+
+	// union-find storage
+	private int[] parent = new int[0];
+
+	/**
+	 * Constructs the graph
+	 *
+	 * @param featureCounts Number of features in each view
+	 * @param matches Matched view pairs
+	 */
+	public void process( int[] featureCounts , List<PairMatch> matches ) {
+		int numViews = featureCounts.length;
+		edges.clear();
+		tracks.clear();
+		featureToTrack.clear();
+
+		for( int i = 0; i < numViews; i++ )
+			edges.add(new ArrayList<PairMatch>());
+		for( PairMatch m : matches ) {
+			edges.get(m.viewA).add(m);
+			edges.get(m.viewB).add(m);
+		}
+
+		// global index of the first feature in each view
+		int[] offset = new int[numViews+1];
+		for( int i = 0; i < numViews; i++ )
+			offset[i+1] = offset[i] + featureCounts[i];
+		int total = offset[numViews];
+
+		if( parent.length < total )
+			parent = new int[total];
+		for( int i = 0; i < total; i++ )
+			parent[i] = i;
+
+		for( PairMatch m : matches ) {
+			for( int i = 0; i < m.size(); i++ ) {
+				union(offset[m.viewA] + m.featA.data[i], offset[m.viewB] + m.featB.data[i]);
+			}
+		}
+
+		// count the size of each set
+		int[] sizes = new int[total];
+		for( int i = 0; i < total; i++ )
+			sizes[find(i)]++;
+
+		// assign each set with at least two members a track
+		int[] rootToTrack = new int[total];
+		Arrays.fill(rootToTrack,-1);
+		for( int view = 0; view < numViews; view++ ) {
+			int[] lookup = new int[featureCounts[view]];
+			for( int feat = 0; feat < lookup.length; feat++ ) {
+				int root = find(offset[view] + feat);
+				if( sizes[root] < 2 ) {
+					lookup[feat] = -1;
+					continue;
+				}
+				int trackID = rootToTrack[root];
+				if( trackID == -1 ) {
+					trackID = rootToTrack[root] = tracks.size();
+					tracks.add(new Track());
+				}
+				Track t = tracks.get(trackID);
+				t.views.add(view);
+				t.features.add(feat);
+				lookup[feat] = trackID;
+			}
+			featureToTrack.add(lookup);
+		}
+
+		// views are added in increasing order so a duplicate view will be adjacent
+		for( int i = 0; i < tracks.size(); i++ ) {
+			Track t = tracks.get(i);
+			for( int j = 1; j < t.views.size; j++ ) {
+				if( t.views.data[j] == t.views.data[j-1] ) {
+					t.inconsistent = true;
+					break;
+				}
+			}
+			if( t.inconsistent ) {
+				for( int j = 0; j < t.views.size; j++ )
+					featureToTrack.get(t.views.data[j])[t.features.data[j]] = -1;
+			}
+		}
+	}
+
+	private int find( int i ) {
+		int root = i;
+		while( parent[root] != root )
+			root = parent[root];
+		// path compression
+		while( parent[i] != root ) {
+			int next = parent[i];
+			parent[i] = root;
+			i = next;
+		}
+		return root;
+	}
+
+	private void union( int a , int b ) {
+		int rootA = find(a);
+		int rootB = find(b);
+		if( rootA == rootB )
+			return;
+		// the smaller index is the root so that the result doesn't depend on the order
+		if( rootA < rootB )
+			parent[rootB] = rootA;
+		else
+			parent[rootA] = rootB;
+	}
+
+	/**
+	 * Number of views in the graph
+	 */
+	public int getNumViews() {
+		return edges.size();
+	}
+
+	/**
+	 * Returns the pairs which the view is a member of
+	 */
+	public List<PairMatch> getEdges( int view ) {
+		return edges.get(view);
+	}
+
+	/**
+	 * Returns all the tracks, including ones which are inconsistent
+	 */
+	public List<Track> getTracks() {
+		return tracks;
+	}
+
+	/**
+	 * Returns the track a feature belongs to or -1 if it isn't part of a consistent track
+	 */
+	public int getTrack( int view , int feature ) {
+		return featureToTrack.get(view)[feature];
+	}
+
+	/**
+	 * A feature which has been matched across multiple views
+	 */
+	public static class Track {
+		/**
+		 * Views which observe the track in increasing order
+		 */
+		public GrowQueue_I32 views = new GrowQueue_I32();
+		/**
+		 * Index of the feature in each view
+		 */
+		public GrowQueue_I32 features = new GrowQueue_I32();
+		/**
+		 * If true then the track contains multiple features from the same view and should be ignored
+		 */
+		public boolean inconsistent = false;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.factory.sfm;
+
+import boofcv.struct.Configuration;
+
+/**
+ * Configuration for incremental structure from motion.
+ *
+ * @see boofcv.alg.sfm.structure.IncrementalSfmPipeline
+ *
+ * @author Peter Abeles
+ */
+public class ConfigIncrementalSfm implements Configuration {
+	/**
+	 * Number of workers used to match image pairs.  If &le; 0 then the maximum number of threads in
+	 * {@link boofcv.concurrency.BoofConcurrency} is used.
+	 */
+	public int numWorkers = 0;
+	/**
+	 * Minimum number of inliers for two images to be matched and for a view to be registered.
+	 */
+	public int minInliers = 30;
+	/**
+	 * Maximum association error between two descriptors.  To disable set to Double.MAX_VALUE.
+	 */
+	public double maxAssociationError = Double.MAX_VALUE;
+	/**
+	 * Number of RANSAC iterations used when estimating motion.
+	 */
+	public int ransacIterations = 500;
+	/**
+	 * RANSAC inlier tolerance in pixels.
+	 */
+	public double inlierPixelTol = 1.5;
+	/**
+	 * Points with a reprojection error larger than this are discarded.  Pixels.
+	 */
+	public double maxReprojection = 3.0;
+	/**
+	 * Global bundle adjustment and checkpoints are done after this many views have been registered.
+	 */
+	public int bundlePeriod = 10;
+	/**
+	 * Maximum number of bundle adjustment iterations.  If &le; 0 then bundle adjustment is turned off.
+	 */
+	public int bundleIterations = 20;
+
+	@Override
+	public void checkValidity() {
+		if( minInliers < 6 )
+			throw new IllegalArgumentException("At least 6 inliers are required");
+		if( bundlePeriod < 1 )
+			throw new IllegalArgumentException("bundlePeriod must be at least 1");
+	}
+}
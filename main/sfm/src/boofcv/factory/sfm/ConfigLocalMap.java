@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.factory.sfm;
+
+import boofcv.struct.Configuration;
+
+/**
+ * Configuration for {@link boofcv.alg.sfm.d3.VisOdomLocalMap}.
+ *
+ * @author Peter Abeles
+ */
+public class ConfigLocalMap implements Configuration {
+	/**
+	 * Maximum number of key frames in the sliding window.
+	 */
+	public int windowSize = 6;
+	/**
+	 * Number of the oldest key frames in the window whose pose is held constant.  Two are needed to fix
+	 * the scale.
+	 */
+	public int numFixed = 2;
+	/**
+	 * Maximum number of iterations of bundle adjustment each time it is run.
+	 */
+	public int maxIterations = 10;
+	/**
+	 * Maximum amount of time in milliseconds bundle adjustment can run for.  If &le; 0 there is no limit.
+	 */
+	public long maxTime = 100;
+	/**
+	 * Tolerance for the relative change in cost used to test for convergence.
+	 */
+	public double convergenceTol = 1e-6;
+	/**
+	 * If true then bundle adjustment is run in a background thread.  If false it is run when a key frame is added,
+	 * which is slower but repeatable.
+	 */
+	public boolean background = true;
+
+	@Override
+	public void checkValidity() {
+		if( numFixed < 1 )
+			throw new IllegalArgumentException("At least one key frame must be fixed");
+		if( windowSize <= numFixed )
+			throw new IllegalArgumentException("Window must be larger than the number of fixed key frames");
+		if( maxIterations <= 0 )
+			throw new IllegalArgumentException("Must have at least one iteration");
+	}
+}
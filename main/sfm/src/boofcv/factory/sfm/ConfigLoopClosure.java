@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.factory.sfm;
+
+import boofcv.struct.Configuration;
+
+/**
+ * Configuration for {@link boofcv.alg.sfm.loop.LoopClosureDetector}.
+ *
+ * @author Peter Abeles
+ */
+public class ConfigLoopClosure implements Configuration {
+	/**
+	 * Number of the most recent key frames which are not considered when searching for a loop.
+	 */
+	public int minSeparation = 20;
+	/**
+	 * Maximum number of candidate key frames which are geometrically verified.
+	 */
+	public int maxCandidates = 5;
+	/**
+	 * Minimum bag-of-words similarity score for a candidate.  From 0 to 1.
+	 */
+	public double minScore = 0.05;
+	/**
+	 * Minimum number of inliers for a loop closure to be accepted.
+	 */
+	public int minInliers = 30;
+	/**
+	 * Maximum association error between two descriptors.  To disable set to Double.MAX_VALUE.
+	 */
+	public double maxAssociationError = Double.MAX_VALUE;
+	/**
+	 * Number of RANSAC iterations used when estimating motion.
+	 */
+	public int ransacIterations = 500;
+	/**
+	 * RANSAC inlier tolerance in pixels.
+	 */
+	public double inlierPixelTol = 1.5;
+
+	@Override
+	public void checkValidity() {
+		if( minSeparation < 0 )
+			throw new IllegalArgumentException("minSeparation must be >= 0");
+		if( maxCandidates < 1 )
+			throw new IllegalArgumentException("Must consider at least one candidate");
+		if( minInliers < 6 )
+			throw new IllegalArgumentException("At least 6 inliers are required");
+	}
+}
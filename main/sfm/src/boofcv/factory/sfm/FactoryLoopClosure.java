@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.factory.sfm;
+
+import boofcv.abst.feature.associate.AssociateDescription;
+import boofcv.abst.feature.associate.ScoreAssociation;
+import boofcv.abst.feature.detdesc.DetectDescribePoint;
+import boofcv.abst.geo.Estimate1ofEpipolar;
+import boofcv.abst.geo.Estimate1ofPnP;
+import boofcv.abst.geo.TriangulateTwoViewsCalibrated;
+import boofcv.alg.distort.LensDistortionOps;
+import boofcv.alg.geo.pose.PnPDistanceReprojectionSq;
+import boofcv.alg.sfm.loop.*;
+import boofcv.alg.sfm.robust.DistanceSe3SymmetricSq;
+import boofcv.alg.sfm.robust.EstimatorToGenerator;
+import boofcv.alg.sfm.robust.Se3FromEssentialGenerator;
+import boofcv.factory.feature.associate.FactoryAssociation;
+import boofcv.factory.geo.EnumEpipolar;
+import boofcv.factory.geo.EnumPNP;
+import boofcv.factory.geo.FactoryMultiView;
+import boofcv.factory.geo.FactoryTriangulate;
+import boofcv.struct.calib.IntrinsicParameters;
+import boofcv.struct.feature.TupleDesc;
+import boofcv.struct.feature.TupleDesc_B;
+import boofcv.struct.feature.TupleDesc_F64;
+import boofcv.struct.geo.AssociatedPair;
+import boofcv.struct.geo.Point2D3D;
+import boofcv.struct.image.ImageBase;
+import georegression.fitting.se.ModelManagerSe3_F64;
+import georegression.struct.se.Se3_F64;
+import org.ddogleg.fitting.modelset.ModelMatcher;
+import org.ddogleg.fitting.modelset.ransac.Ransac;
+
+/**
+ * Factory for creating loop closure detectors.
+ *
+ * @author Peter Abeles
+ */
+public class FactoryLoopClosure {
+
+	/**
+	 * Creates a vocabulary tree for {@link TupleDesc_F64} or {@link TupleDesc_B} descriptors.  Euclidean and
+	 * Hamming distance are used, respectively.  The tree needs to be learned before it can be used.
+	 *
+	 * @param branchFactor Number of children a node is split into.  Try 10.
+	 * @param maxLevels Maximum depth of the tree.  Try 4 to 6.
+	 * @param descType Type of descriptor
+	 * @return VocabularyTree
+	 */
+	public static <Desc extends TupleDesc>
+	VocabularyTree<Desc> vocabularyTree( int branchFactor , int maxLevels , Class<Desc> descType ) {
+		ScoreAssociation<Desc> score;
+		ComputeTupleMean<Desc> mean;
+
+		if( TupleDesc_F64.class.isAssignableFrom(descType) ) {
+			score = FactoryAssociation.scoreEuclidean(descType, true);
+			mean = (ComputeTupleMean)new ComputeTupleMean_F64();
+		} else if( descType == TupleDesc_B.class ) {
+			score = FactoryAssociation.scoreHamming(descType);
+			mean = (ComputeTupleMean)new ComputeTupleMean_B();
+		} else {
+			throw new IllegalArgumentException("Unsupported descriptor type: "+descType.getSimpleName());
+		}
+
+		return new VocabularyTree<Desc>(branchFactor,maxLevels,score,mean);
+	}
+
+	/**
+	 * Creates a loop closure detector.  Candidates are verified using PnP when the key frames contain
+	 * 3D locations of features and the essential matrix otherwise.
+	 *
+	 * @param vocabulary Learned vocabulary tree
+	 * @param intrinsic Intrinsic camera parameters.  Used to compute errors in pixels.
+	 * @param config Configuration.  If null then the default is used.
+	 * @param descType Type of descriptor
+	 * @return LoopClosureDetector
+	 */
+	public static <Desc extends TupleDesc>
+	LoopClosureDetector<Desc> detector( VocabularyTree<Desc> vocabulary ,
+										IntrinsicParameters intrinsic ,
+										ConfigLoopClosure config ,
+										Class<Desc> descType ) {
+		if( config == null )
+			config = new ConfigLoopClosure();
+		config.checkValidity();
+
+		ScoreAssociation<Desc> score = FactoryAssociation.defaultScore(descType);
+		AssociateDescription<Desc> associate = FactoryAssociation.greedy(score,config.maxAssociationError,true);
+
+		double ransacTOL = config.inlierPixelTol * config.inlierPixelTol;
+
+		// motion from epipolar geometry
+		Estimate1ofEpipolar essentialAlg = FactoryMultiView.computeFundamental_1(EnumEpipolar.ESSENTIAL_5_NISTER, 5);
+		TriangulateTwoViewsCalibrated triangulate = FactoryTriangulate.twoGeometric();
+		Se3FromEssentialGenerator generateEpipolar = new Se3FromEssentialGenerator(essentialAlg, triangulate);
+		DistanceSe3SymmetricSq distanceEpipolar = new DistanceSe3SymmetricSq(triangulate,
+				intrinsic.fx, intrinsic.fy, intrinsic.skew,
+				intrinsic.fx, intrinsic.fy, intrinsic.skew);
+
+		ModelMatcher<Se3_F64,AssociatedPair> epipolar = new Ransac<Se3_F64, AssociatedPair>(2323,
+				new ModelManagerSe3_F64(),generateEpipolar,distanceEpipolar,config.ransacIterations,2*ransacTOL);
+
+		// motion from 3D points
+		Estimate1ofPnP estimator = FactoryMultiView.computePnP_1(EnumPNP.P3P_FINSTERWALDER,-1,2);
+		EstimatorToGenerator<Se3_F64,Point2D3D> generatePnP = new EstimatorToGenerator<Se3_F64,Point2D3D>(estimator);
+		PnPDistanceReprojectionSq distancePnP = new PnPDistanceReprojectionSq(intrinsic.fx,intrinsic.fy,intrinsic.skew);
+
+		ModelMatcher<Se3_F64,Point2D3D> pnp = new Ransac<Se3_F64, Point2D3D>(2323,
+				new ModelManagerSe3_F64(),generatePnP,distancePnP,config.ransacIterations,ransacTOL);
+
+		return new LoopClosureDetector<Desc>(vocabulary,associate,epipolar,pnp,
+				config.minSeparation,config.maxCandidates,config.minScore,config.minInliers,descType);
+	}
+
+	/**
+	 * Runs the detector in its own thread.  Features are detected in submitted images using the provided detector.
+	 *
+	 * @param detector Loop closure detector
+	 * @param describe Detects and describes features.  Can be null if features are computed by the caller.
+	 * @param intrinsic Intrinsic camera parameters.  Used to convert pixels into normalized image coordinates.
+	 * @return LoopClosureWorker
+	 */
+	public static <T extends ImageBase, Desc extends TupleDesc>
+	LoopClosureWorker<T,Desc> worker( LoopClosureDetector<Desc> detector ,
+									  DetectDescribePoint<T,Desc> describe ,
+									  IntrinsicParameters intrinsic ) {
+		return new LoopClosureWorker<T, Desc>(detector,describe,
+				LensDistortionOps.transformRadialToNorm_F64(intrinsic));
+	}
+}
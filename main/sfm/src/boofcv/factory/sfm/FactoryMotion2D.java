@@ -24,10 +24,13 @@ import boofcv.abst.sfm.d2.WrapImageMotionPtkSmartRespawn;
 import boofcv.alg.distort.ImageDistort;
 import boofcv.alg.interpolate.InterpolatePixelS;
 import boofcv.alg.interpolate.TypeInterpolate;
+import boofcv.alg.robust.CopyDistanceByClass;
 import boofcv.alg.sfm.d2.*;
 import boofcv.alg.sfm.robust.*;
 import boofcv.factory.distort.FactoryDistort;
 import boofcv.factory.interpolate.FactoryInterpolation;
+import boofcv.factory.robust.ConfigRansacParallel;
+import boofcv.factory.robust.FactoryModelMatcher;
 import boofcv.struct.geo.AssociatedPair;
 import boofcv.struct.image.ImageBase;
 import boofcv.struct.image.ImageSingleBand;
@@ -43,7 +46,6 @@ import georegression.struct.homo.Homography2D_F64;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.se.Se2_F64;
 import org.ddogleg.fitting.modelset.*;
-import org.ddogleg.fitting.modelset.ransac.Ransac;
 
 /**
  * Factory for creating algorithms related to 2D image motion.  Typically used for image stabilization, mosaic, and
@@ -76,6 +78,24 @@ public class FactoryMotion2D {
 										double respawnCoverageFraction,
 										boolean refineEstimate ,
 										PointTracker<I> tracker , IT motionModel ) {
+		return createMotion2D(ransacIterations,inlierThreshold,outlierPrune,absoluteMinimumTracks,
+				respawnTrackFraction,respawnCoverageFraction,refineEstimate,tracker,motionModel,null);
+	}
+
+	/**
+	 * Estimates the 2D motion of an image using different models.  Same as
+	 * {@link #createMotion2D(int, double, int, int, double, double, boolean, PointTracker, InvertibleTransform)}
+	 * but can optionally use {@link boofcv.alg.robust.RansacParallel} for robust model estimation.
+	 *
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 */
+	public static <I extends ImageBase, IT extends InvertibleTransform>
+	ImageMotion2D<I,IT> createMotion2D( int ransacIterations , double inlierThreshold,int outlierPrune,
+										int absoluteMinimumTracks, double respawnTrackFraction,
+										double respawnCoverageFraction,
+										boolean refineEstimate ,
+										PointTracker<I> tracker , IT motionModel ,
+										ConfigRansacParallel configParallel ) {
 
 		ModelManager<IT> manager;
 		ModelGenerator<IT,AssociatedPair> fitter;
@@ -107,8 +127,9 @@ public class FactoryMotion2D {
 			throw new RuntimeException("Unknown model type: "+motionModel.getClass().getSimpleName());
 		}
 
-		ModelMatcher<IT,AssociatedPair>  modelMatcher =
-				new Ransac(123123,manager,fitter,distance,ransacIterations,inlierThreshold);
+		ModelMatcher<IT,AssociatedPair>  modelMatcher = FactoryModelMatcher.ransac(123123,manager,fitter,distance,
+				new CopyDistanceByClass<IT,AssociatedPair>(distance.getClass()),ransacIterations,inlierThreshold,
+				configParallel);
 
 		ImageMotionPointTrackerKey<I,IT> lowlevel =
 				new ImageMotionPointTrackerKey<I, IT>(tracker,modelMatcher,modelRefiner,motionModel,outlierPrune);
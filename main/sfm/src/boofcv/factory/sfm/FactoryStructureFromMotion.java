@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.factory.sfm;
+
+import boofcv.abst.feature.associate.AssociateDescription;
+import boofcv.abst.feature.associate.ScoreAssociation;
+import boofcv.abst.geo.BundleAdjustmentCalibrated;
+import boofcv.abst.geo.Estimate1ofEpipolar;
+import boofcv.abst.geo.Estimate1ofPnP;
+import boofcv.abst.geo.TriangulateTwoViewsCalibrated;
+import boofcv.alg.geo.pose.PnPDistanceReprojectionSq;
+import boofcv.alg.sfm.robust.DistanceSe3SymmetricSq;
+import boofcv.alg.sfm.robust.EstimatorToGenerator;
+import boofcv.alg.sfm.robust.Se3FromEssentialGenerator;
+import boofcv.alg.sfm.structure.*;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.factory.feature.associate.FactoryAssociation;
+import boofcv.factory.geo.EnumEpipolar;
+import boofcv.factory.geo.EnumPNP;
+import boofcv.factory.geo.FactoryMultiView;
+import boofcv.factory.geo.FactoryTriangulate;
+import boofcv.struct.calib.IntrinsicParameters;
+import boofcv.struct.feature.TupleDesc;
+import boofcv.struct.geo.AssociatedPair;
+import boofcv.struct.geo.Point2D3D;
+import georegression.fitting.se.ModelManagerSe3_F64;
+import georegression.struct.se.Se3_F64;
+import org.ddogleg.fitting.modelset.ModelMatcher;
+import org.ddogleg.fitting.modelset.ransac.Ransac;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Factory for creating algorithms which reconstruct a scene from a set of images.
+ *
+ * @author Peter Abeles
+ */
+public class FactoryStructureFromMotion {
+
+	/**
+	 * Creates an incremental structure from motion pipeline for a calibrated camera.
+	 *
+	 * @param intrinsic Intrinsic camera parameters.  Used to compute errors in pixels.
+	 * @param config Configuration.  If null then the default is used.
+	 * @param workDirectory Directory where matches and checkpoints are saved.  If null then nothing is saved.
+	 * @param descType Type of descriptor
+	 * @return IncrementalSfmPipeline
+	 */
+	public static <Desc extends TupleDesc>
+	IncrementalSfmPipeline<Desc> incremental( IntrinsicParameters intrinsic ,
+											  ConfigIncrementalSfm config ,
+											  File workDirectory ,
+											  Class<Desc> descType ) {
+		if( config == null )
+			config = new ConfigIncrementalSfm();
+		config.checkValidity();
+
+		int numWorkers = config.numWorkers > 0 ? config.numWorkers : BoofConcurrency.getMaxThreads();
+
+		List<ImagePairMatcher<Desc>> matchers = new ArrayList<ImagePairMatcher<Desc>>();
+		for( int i = 0; i < numWorkers; i++ )
+			matchers.add(pairMatcher(intrinsic, config, 2323 + i, descType));
+
+		MatchCache cache = null;
+		if( workDirectory != null )
+			cache = new MatchCache(new File(workDirectory,"matches"),matchingHash(intrinsic,config,descType));
+
+		PairwiseImageMatching<Desc> matching = new PairwiseImageMatching<Desc>(matchers,cache);
+
+		// motion from 3D points
+		Estimate1ofPnP estimator = FactoryMultiView.computePnP_1(EnumPNP.P3P_FINSTERWALDER,-1,2);
+		EstimatorToGenerator<Se3_F64,Point2D3D> generatePnP = new EstimatorToGenerator<Se3_F64,Point2D3D>(estimator);
+		PnPDistanceReprojectionSq distancePnP = new PnPDistanceReprojectionSq(intrinsic.fx,intrinsic.fy,intrinsic.skew);
+		ModelMatcher<Se3_F64,Point2D3D> pnp = new Ransac<Se3_F64, Point2D3D>(2323,
+				new ModelManagerSe3_F64(),generatePnP,distancePnP,config.ransacIterations,
+				config.inlierPixelTol*config.inlierPixelTol);
+
+		TriangulateTwoViewsCalibrated triangulate = FactoryTriangulate.twoGeometric();
+
+		BundleAdjustmentCalibrated bundle = null;
+		if( config.bundleIterations > 0 )
+			bundle = FactoryMultiView.bundleCalibratedSparse(1e-8, config.bundleIterations);
+
+		IncrementalStructureFromMotion structure = new IncrementalStructureFromMotion(pnp,triangulate,bundle,
+				config.minInliers,config.maxReprojection/intrinsic.fx,config.bundlePeriod);
+		if( workDirectory != null )
+			structure.setCheckpoint(new File(workDirectory,"checkpoint.bin"));
+
+		return new IncrementalSfmPipeline<Desc>(matching,structure);
+	}
+
+	/**
+	 * Creates a matcher for a pair of images which uses the essential matrix to remove false associations
+	 *
+	 * @param intrinsic Intrinsic camera parameters.  Used to compute errors in pixels.
+	 * @param config Configuration
+	 * @param randSeed Seed for RANSAC
+	 * @param descType Type of descriptor
+	 * @return ImagePairMatcher
+	 */
+	public static <Desc extends TupleDesc>
+	ImagePairMatcher<Desc> pairMatcher( IntrinsicParameters intrinsic ,
+										ConfigIncrementalSfm config ,
+										long randSeed ,
+										Class<Desc> descType ) {
+		ScoreAssociation<Desc> score = FactoryAssociation.defaultScore(descType);
+		AssociateDescription<Desc> associate = FactoryAssociation.greedy(score,config.maxAssociationError,true);
+
+		Estimate1ofEpipolar essentialAlg = FactoryMultiView.computeFundamental_1(EnumEpipolar.ESSENTIAL_5_NISTER, 5);
+		TriangulateTwoViewsCalibrated triangulate = FactoryTriangulate.twoGeometric();
+		Se3FromEssentialGenerator generate = new Se3FromEssentialGenerator(essentialAlg, triangulate);
+		DistanceSe3SymmetricSq distance = new DistanceSe3SymmetricSq(triangulate,
+				intrinsic.fx, intrinsic.fy, intrinsic.skew,
+				intrinsic.fx, intrinsic.fy, intrinsic.skew);
+
+		double ransacTOL = config.inlierPixelTol * config.inlierPixelTol * 2.0;
+		ModelMatcher<Se3_F64,AssociatedPair> epipolar = new Ransac<Se3_F64, AssociatedPair>(randSeed,
+				new ModelManagerSe3_F64(),generate,distance,config.ransacIterations,ransacTOL);
+
+		return new ImagePairMatcher<Desc>(associate,epipolar,config.minInliers,descType);
+	}
+
+	/**
+	 * Computes a hash of the parameters which change the output of {@link #pairMatcher}.  Used to detect
+	 * cached matches which were created with a different configuration.
+	 */
+	private static long matchingHash( IntrinsicParameters intrinsic , ConfigIncrementalSfm config ,
+									  Class descType ) {
+		long hash = StructureFileOps.HASH_SEED;
+		hash = StructureFileOps.hash(hash, intrinsic.fx);
+		hash = StructureFileOps.hash(hash, intrinsic.fy);
+		hash = StructureFileOps.hash(hash, intrinsic.skew);
+		hash = StructureFileOps.hash(hash, config.minInliers);
+		hash = StructureFileOps.hash(hash, config.maxAssociationError);
+		hash = StructureFileOps.hash(hash, config.ransacIterations);
+		hash = StructureFileOps.hash(hash, config.inlierPixelTol);
+		hash = StructureFileOps.hash(hash, descType.getName().hashCode());
+		return hash;
+	}
+}
@@ -30,7 +30,7 @@ import boofcv.abst.feature.tracker.PointTrackerTwoPass;
 import boofcv.abst.geo.Estimate1ofPnP;
 import boofcv.abst.geo.EstimateNofPnP;
 import boofcv.abst.geo.RefinePnP;
-import boofcv.abst.geo.TriangulateTwoViewsCalibrated;
+import boofcv.abst.geo.bundle.BundleAdjustmentCalibratedSparse;
 import boofcv.abst.sfm.DepthSparse3D_to_PixelTo3D;
 import boofcv.abst.sfm.ImagePixelTo3D;
 import boofcv.abst.sfm.d2.ImageMotion2D;
@@ -39,6 +39,8 @@ import boofcv.alg.feature.associate.AssociateMaxDistanceNaive;
 import boofcv.alg.feature.associate.AssociateStereo2D;
 import boofcv.alg.geo.DistanceModelMonoPixels;
 import boofcv.alg.geo.pose.*;
+import boofcv.alg.geo.triangulate.TriangulateBatchCalibrated;
+import boofcv.alg.robust.CopyModelGenerator;
 import boofcv.alg.sfm.DepthSparse3D;
 import boofcv.alg.sfm.StereoSparse3D;
 import boofcv.alg.sfm.d3.*;
@@ -49,6 +51,8 @@ import boofcv.factory.feature.associate.FactoryAssociation;
 import boofcv.factory.geo.EnumPNP;
 import boofcv.factory.geo.FactoryMultiView;
 import boofcv.factory.geo.FactoryTriangulate;
+import boofcv.factory.robust.ConfigRansacParallel;
+import boofcv.factory.robust.FactoryModelMatcher;
 import boofcv.struct.feature.TupleDesc;
 import boofcv.struct.geo.Point2D3D;
 import boofcv.struct.image.ImageBase;
@@ -60,8 +64,8 @@ import georegression.fitting.se.ModelManagerSe2_F64;
 import georegression.fitting.se.ModelManagerSe3_F64;
 import georegression.struct.se.Se2_F64;
 import georegression.struct.se.Se3_F64;
+import org.ddogleg.fitting.modelset.ModelGenerator;
 import org.ddogleg.fitting.modelset.ModelMatcher;
-import org.ddogleg.fitting.modelset.ransac.Ransac;
 
 /**
  * Factory for creating visual odometry algorithms.
@@ -96,6 +100,26 @@ public class FactoryVisualOdometry {
 
 													  PointTracker<T> tracker,
 													  ImageType<T> imageType) {
+		return monoPlaneInfinity(thresholdAdd,thresholdRetire,inlierPixelTol,ransacIterations,tracker,
+				imageType,null);
+	}
+
+	/**
+	 * Same as {@link #monoPlaneInfinity} but can optionally use {@link boofcv.alg.robust.RansacParallel} for
+	 * robust motion estimation.
+	 *
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 */
+	public static <T extends ImageSingleBand>
+	MonocularPlaneVisualOdometry<T> monoPlaneInfinity(int thresholdAdd,
+													  int thresholdRetire,
+
+													  double inlierPixelTol,
+													  int ransacIterations,
+
+													  PointTracker<T> tracker,
+													  ImageType<T> imageType ,
+													  ConfigRansacParallel configParallel) {
 
 		//squared pixel error
 		double ransacTOL = inlierPixelTol * inlierPixelTol;
@@ -105,7 +129,8 @@ public class FactoryVisualOdometry {
 		GenerateSe2_PlanePtPixel generator = new GenerateSe2_PlanePtPixel();
 
 		ModelMatcher<Se2_F64, PlanePtPixel> motion =
-				new Ransac<Se2_F64, PlanePtPixel>(2323, manager, generator, distance, ransacIterations, ransacTOL);
+				FactoryModelMatcher.ransac(2323, manager, generator, new GenerateSe2_PlanePtPixel.Copier(),
+						distance, new DistancePlane2DToPixelSq.Copier(), ransacIterations, ransacTOL, configParallel);
 
 		VisOdomMonoPlaneInfinity<T> alg =
 				new VisOdomMonoPlaneInfinity<T>(thresholdAdd,thresholdRetire,inlierPixelTol,motion,tracker);
@@ -153,10 +178,38 @@ public class FactoryVisualOdometry {
 
 													  PointTracker<T> tracker ,
 													  ImageType<T> imageType ) {
+		return monoPlaneOverhead(cellSize,maxCellsPerPixel,mapHeightFraction,inlierGroundTol,ransacIterations,
+				thresholdRetire,absoluteMinimumTracks,respawnTrackFraction,respawnCoverageFraction,tracker,
+				imageType,null);
+	}
+
+	/**
+	 * Same as {@link #monoPlaneOverhead} but can optionally use {@link boofcv.alg.robust.RansacParallel} for
+	 * robust motion estimation.
+	 *
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 */
+	public static <T extends ImageSingleBand>
+	MonocularPlaneVisualOdometry<T> monoPlaneOverhead(double cellSize,
+													  double maxCellsPerPixel,
+													  double mapHeightFraction ,
+
+													  double inlierGroundTol,
+													  int ransacIterations ,
+
+													  int thresholdRetire ,
+													  int absoluteMinimumTracks,
+													  double respawnTrackFraction,
+													  double respawnCoverageFraction,
+
+													  PointTracker<T> tracker ,
+													  ImageType<T> imageType ,
+													  ConfigRansacParallel configParallel) {
 
 		ImageMotion2D<T,Se2_F64> motion2D = FactoryMotion2D.createMotion2D(
 				ransacIterations,inlierGroundTol*inlierGroundTol,thresholdRetire,
-				absoluteMinimumTracks,respawnTrackFraction,respawnCoverageFraction,false,tracker,new Se2_F64());
+				absoluteMinimumTracks,respawnTrackFraction,respawnCoverageFraction,false,tracker,new Se2_F64(),
+				configParallel);
 
 
 		VisOdomMonoOverheadMotion2D<T> alg =
@@ -188,9 +241,53 @@ public class FactoryVisualOdometry {
 										StereoDisparitySparse<T> sparseDisparity,
 										PointTrackerTwoPass<T> tracker ,
 										Class<T> imageType) {
+		return stereoDepth(inlierPixelTol,thresholdAdd,thresholdRetire,ransacIterations,refineIterations,
+				doublePass,sparseDisparity,tracker,imageType,null);
+	}
+
+	/**
+	 * Same as {@link #stereoDepth} but can optionally use {@link boofcv.alg.robust.RansacParallel} for
+	 * robust motion estimation.
+	 *
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 */
+	public static <T extends ImageSingleBand>
+	StereoVisualOdometry<T> stereoDepth(double inlierPixelTol,
+										int thresholdAdd,
+										int thresholdRetire ,
+										int ransacIterations ,
+										int refineIterations ,
+										boolean doublePass ,
+										StereoDisparitySparse<T> sparseDisparity,
+										PointTrackerTwoPass<T> tracker ,
+										Class<T> imageType ,
+										ConfigRansacParallel configParallel) {
+		return stereoDepth(inlierPixelTol,thresholdAdd,thresholdRetire,ransacIterations,refineIterations,
+				doublePass,sparseDisparity,tracker,imageType,configParallel,false);
+	}
+
+	/**
+	 * Same as {@link #stereoDepth} but can optionally rectify the left and right images concurrently.
+	 *
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 * @param concurrentStereo If true the left and right images are rectified at the same time.
+	 */
+	public static <T extends ImageSingleBand>
+	StereoVisualOdometry<T> stereoDepth(double inlierPixelTol,
+										int thresholdAdd,
+										int thresholdRetire ,
+										int ransacIterations ,
+										int refineIterations ,
+										boolean doublePass ,
+										StereoDisparitySparse<T> sparseDisparity,
+										PointTrackerTwoPass<T> tracker ,
+										Class<T> imageType ,
+										ConfigRansacParallel configParallel ,
+										boolean concurrentStereo ) {
 
 		// Range from sparse disparity
 		StereoSparse3D<T> pixelTo3D = new StereoSparse3D<T>(sparseDisparity,imageType);
+		pixelTo3D.setConcurrent(concurrentStereo);
 
 		Estimate1ofPnP estimator = FactoryMultiView.computePnP_1(EnumPNP.P3P_FINSTERWALDER,-1,2);
 		final DistanceModelMonoPixels<Se3_F64,Point2D3D> distance = new PnPDistanceReprojectionSq();
@@ -203,7 +300,8 @@ public class FactoryVisualOdometry {
 		double ransacTOL = inlierPixelTol * inlierPixelTol;
 
 		ModelMatcher<Se3_F64, Point2D3D> motion =
-				new Ransac<Se3_F64, Point2D3D>(2323, manager, generator, distance, ransacIterations, ransacTOL);
+				FactoryModelMatcher.ransac(2323, manager, generator, copierPnP(), distance,
+						new PnPDistanceReprojectionSq.Copier(), ransacIterations, ransacTOL, configParallel);
 
 		RefinePnP refine = null;
 
@@ -241,6 +339,27 @@ public class FactoryVisualOdometry {
 												 DepthSparse3D<Depth> sparseDepth,
 												 PointTrackerTwoPass<Vis> tracker ,
 												 Class<Vis> visualType , Class<Depth> depthType ) {
+		return depthDepthPnP(inlierPixelTol,thresholdAdd,thresholdRetire,ransacIterations,refineIterations,
+				doublePass,sparseDepth,tracker,visualType,depthType,null);
+	}
+
+	/**
+	 * Same as {@link #depthDepthPnP} but can optionally use {@link boofcv.alg.robust.RansacParallel} for
+	 * robust motion estimation.
+	 *
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 */
+	public static <Vis extends ImageSingleBand, Depth extends ImageSingleBand>
+	DepthVisualOdometry<Vis,Depth> depthDepthPnP(double inlierPixelTol,
+												 int thresholdAdd,
+												 int thresholdRetire ,
+												 int ransacIterations ,
+												 int refineIterations ,
+												 boolean doublePass ,
+												 DepthSparse3D<Depth> sparseDepth,
+												 PointTrackerTwoPass<Vis> tracker ,
+												 Class<Vis> visualType , Class<Depth> depthType ,
+												 ConfigRansacParallel configParallel) {
 
 		// Range from sparse disparity
 		ImagePixelTo3D pixelTo3D = new DepthSparse3D_to_PixelTo3D<Depth>(sparseDepth);
@@ -255,7 +374,8 @@ public class FactoryVisualOdometry {
 		double ransacTOL = inlierPixelTol * inlierPixelTol;
 
 		ModelMatcher<Se3_F64, Point2D3D> motion =
-				new Ransac<Se3_F64, Point2D3D>(2323, manager, generator, distance, ransacIterations, ransacTOL);
+				FactoryModelMatcher.ransac(2323, manager, generator, copierPnP(), distance,
+						new PnPDistanceReprojectionSq.Copier(), ransacIterations, ransacTOL, configParallel);
 
 		RefinePnP refine = null;
 
@@ -295,6 +415,53 @@ public class FactoryVisualOdometry {
 												 PointTracker<T> trackerLeft, PointTracker<T> trackerRight,
 												 DescribeRegionPoint<T,Desc> descriptor,
 												 Class<T> imageType)
+	{
+		return stereoDualTrackerPnP(thresholdAdd,thresholdRetire,inlierPixelTol,epipolarPixelTol,
+				ransacIterations,refineIterations,trackerLeft,trackerRight,descriptor,imageType,null);
+	}
+
+	/**
+	 * Same as {@link #stereoDualTrackerPnP} but can optionally use {@link boofcv.alg.robust.RansacParallel} for
+	 * robust motion estimation.
+	 *
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 */
+	public static <T extends ImageSingleBand, Desc extends TupleDesc>
+	StereoVisualOdometry<T> stereoDualTrackerPnP(int thresholdAdd, int thresholdRetire,
+												 double inlierPixelTol,
+												 double epipolarPixelTol,
+												 int ransacIterations,
+												 int refineIterations,
+												 PointTracker<T> trackerLeft, PointTracker<T> trackerRight,
+												 DescribeRegionPoint<T,Desc> descriptor,
+												 Class<T> imageType ,
+												 ConfigRansacParallel configParallel)
+	{
+		return stereoDualTrackerPnP(thresholdAdd,thresholdRetire,inlierPixelTol,epipolarPixelTol,
+				ransacIterations,refineIterations,trackerLeft,trackerRight,descriptor,null,imageType,configParallel);
+	}
+
+	/**
+	 * Same as {@link #stereoDualTrackerPnP} but can optionally process the left and right images concurrently.
+	 *
+	 * @see VisOdomDualTrackPnP#setConcurrent
+	 *
+	 * @param descriptorRight If not null then the left and right images are processed concurrently and this is
+	 *                        used to describe features in the right image.  Must be a different instance
+	 *                        from 'descriptor'.
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 */
+	public static <T extends ImageSingleBand, Desc extends TupleDesc>
+	StereoVisualOdometry<T> stereoDualTrackerPnP(int thresholdAdd, int thresholdRetire,
+												 double inlierPixelTol,
+												 double epipolarPixelTol,
+												 int ransacIterations,
+												 int refineIterations,
+												 PointTracker<T> trackerLeft, PointTracker<T> trackerRight,
+												 DescribeRegionPoint<T,Desc> descriptor,
+												 DescribeRegionPoint<T,Desc> descriptorRight,
+												 Class<T> imageType ,
+												 ConfigRansacParallel configParallel)
 	{
 		EstimateNofPnP pnp = FactoryMultiView.computePnP_N(EnumPNP.P3P_FINSTERWALDER, -1);
 		DistanceModelMonoPixels<Se3_F64,Point2D3D> distanceMono = new PnPDistanceReprojectionSq();
@@ -308,7 +475,8 @@ public class FactoryVisualOdometry {
 		double ransacTOL = 2*inlierPixelTol * inlierPixelTol;
 
 		ModelMatcher<Se3_F64, Stereo2D3D> motion =
-				new Ransac<Se3_F64, Stereo2D3D>(2323, manager, generator, distanceStereo, ransacIterations, ransacTOL);
+				FactoryModelMatcher.ransac(2323, manager, generator, copierPnPStereo(), distanceStereo,
+						new PnPStereoDistanceReprojectionSq.Copier(), ransacIterations, ransacTOL, configParallel);
 
 		RefinePnPStereo refinePnP = null;
 
@@ -326,10 +494,11 @@ public class FactoryVisualOdometry {
 			refinePnP = new PnPStereoRefineRodrigues(1e-12,refineIterations);
 		}
 
-		TriangulateTwoViewsCalibrated triangulate = FactoryTriangulate.twoGeometric();
+		TriangulateBatchCalibrated triangulate = FactoryTriangulate.batch(0,0);
 
 		VisOdomDualTrackPnP<T,Desc> alg =  new VisOdomDualTrackPnP<T,Desc>(thresholdAdd,thresholdRetire,epipolarPixelTol,
 				trackerLeft,trackerRight,descriptor,associateUnique,triangulate,motion,refinePnP);
+		alg.setConcurrent(descriptorRight);
 
 		return new WrapVisOdomDualTrackPnP<T>(pnpStereo,distanceMono,distanceStereo,associateStereo,alg,refinePnP,imageType);
 	}
@@ -349,6 +518,52 @@ public class FactoryVisualOdometry {
 										   int refineIterations ,
 										   DetectDescribeMulti<T,Desc> detector,
 										   Class<T> imageType )
+	{
+		return stereoQuadPnP(inlierPixelTol,epipolarPixelTol,maxDistanceF2F,maxAssociationError,
+				ransacIterations,refineIterations,detector,imageType,null);
+	}
+
+	/**
+	 * Same as {@link #stereoQuadPnP} but can optionally use {@link boofcv.alg.robust.RansacParallel} for
+	 * robust motion estimation.
+	 *
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 */
+	public static <T extends ImageSingleBand,Desc extends TupleDesc>
+	StereoVisualOdometry<T> stereoQuadPnP( double inlierPixelTol ,
+										   double epipolarPixelTol ,
+										   double maxDistanceF2F,
+										   double maxAssociationError,
+										   int ransacIterations ,
+										   int refineIterations ,
+										   DetectDescribeMulti<T,Desc> detector,
+										   Class<T> imageType ,
+										   ConfigRansacParallel configParallel)
+	{
+		return stereoQuadPnP(inlierPixelTol,epipolarPixelTol,maxDistanceF2F,maxAssociationError,
+				ransacIterations,refineIterations,detector,null,imageType,configParallel);
+	}
+
+	/**
+	 * Same as {@link #stereoQuadPnP} but can optionally process the left and right images concurrently.
+	 *
+	 * @see VisOdomQuadPnP#setConcurrent
+	 *
+	 * @param detectorRight If not null then the left and right images are processed concurrently and this is
+	 *                      used to detect features in the right image.  Must be a different instance from 'detector'.
+	 * @param configParallel If not null then a concurrent and early terminating RANSAC is used.
+	 */
+	public static <T extends ImageSingleBand,Desc extends TupleDesc>
+	StereoVisualOdometry<T> stereoQuadPnP( double inlierPixelTol ,
+										   double epipolarPixelTol ,
+										   double maxDistanceF2F,
+										   double maxAssociationError,
+										   int ransacIterations ,
+										   int refineIterations ,
+										   DetectDescribeMulti<T,Desc> detector,
+										   DetectDescribeMulti<T,Desc> detectorRight,
+										   Class<T> imageType ,
+										   ConfigRansacParallel configParallel)
 	{
 		EstimateNofPnP pnp = FactoryMultiView.computePnP_N(EnumPNP.P3P_FINSTERWALDER, -1);
 		DistanceModelMonoPixels<Se3_F64,Point2D3D> distanceMono = new PnPDistanceReprojectionSq();
@@ -362,7 +577,8 @@ public class FactoryVisualOdometry {
 		double ransacTOL = 2*inlierPixelTol * inlierPixelTol;
 
 		ModelMatcher<Se3_F64, Stereo2D3D> motion =
-				new Ransac<Se3_F64, Stereo2D3D>(2323, manager, generator, distanceStereo, ransacIterations, ransacTOL);
+				FactoryModelMatcher.ransac(2323, manager, generator, copierPnPStereo(), distanceStereo,
+						new PnPStereoDistanceReprojectionSq.Copier(), ransacIterations, ransacTOL, configParallel);
 
 		RefinePnPStereo refinePnP = null;
 
@@ -373,23 +589,80 @@ public class FactoryVisualOdometry {
 
 		ScoreAssociation<Desc> scorer = FactoryAssociation.defaultScore(descType);
 
-		AssociateDescription2D<Desc> assocSame;
-		if( maxDistanceF2F > 0 )
-			assocSame = new AssociateMaxDistanceNaive<Desc>(scorer,true,maxAssociationError,maxDistanceF2F);
-		else
-			assocSame = new AssociateDescTo2D<Desc>(FactoryAssociation.greedy(scorer, maxAssociationError, true));
+		AssociateDescription2D<Desc> assocSame = createAssocSame(maxDistanceF2F, maxAssociationError, scorer);
 
 		AssociateStereo2D<Desc> associateStereo = new AssociateStereo2D<Desc>(scorer,epipolarPixelTol,descType);
-		TriangulateTwoViewsCalibrated triangulate = FactoryTriangulate.twoGeometric();
+		TriangulateBatchCalibrated triangulate = FactoryTriangulate.batch(0,0);
 
 		associateStereo.setThreshold(maxAssociationError);
 
 		VisOdomQuadPnP<T,Desc> alg = new VisOdomQuadPnP<T,Desc>(
 				detector,assocSame,associateStereo,triangulate,motion,refinePnP);
+		if( detectorRight != null )
+			alg.setConcurrent(detectorRight,createAssocSame(maxDistanceF2F, maxAssociationError, scorer));
 
 		return new WrapVisOdomQuadPnP<T,Desc>(alg,refinePnP,associateStereo,distanceStereo,distanceMono,imageType);
 	}
 
+	private static <Desc extends TupleDesc>
+	AssociateDescription2D<Desc> createAssocSame( double maxDistanceF2F, double maxAssociationError,
+												  ScoreAssociation<Desc> scorer ) {
+		if( maxDistanceF2F > 0 )
+			return new AssociateMaxDistanceNaive<Desc>(scorer,true,maxAssociationError,maxDistanceF2F);
+		else
+			return new AssociateDescTo2D<Desc>(FactoryAssociation.greedy(scorer, maxAssociationError, true));
+	}
+
+	/**
+	 * Creates a {@link VisOdomLocalMap} and attaches it to a stereo visual odometry algorithm.  Currently
+	 * only algorithms created by {@link #stereoDepth} and {@link #stereoDualTrackerPnP} are supported.
+	 *
+	 * @param vo Visual odometry algorithm which the map is attached to
+	 * @param config Configuration for the local map.  If null then the default is used.
+	 * @return The local map
+	 */
+	public static <T extends ImageBase> VisOdomLocalMap localMap( StereoVisualOdometry<T> vo , ConfigLocalMap config ) {
+		VisOdomLocalMap map = localMap(config);
+
+		if( vo instanceof WrapVisOdomPixelDepthPnP ) {
+			((WrapVisOdomPixelDepthPnP)vo).getAlgorithm().setLocalMap(map);
+		} else if( vo instanceof WrapVisOdomDualTrackPnP ) {
+			((WrapVisOdomDualTrackPnP)vo).getAlgorithm().setLocalMap(map);
+		} else {
+			throw new IllegalArgumentException("Local map not supported by "+vo.getClass().getSimpleName());
+		}
+		return map;
+	}
+
+	/**
+	 * Creates a {@link VisOdomLocalMap} and attaches it to a depth visual odometry algorithm created by
+	 * {@link #depthDepthPnP}.
+	 *
+	 * @param vo Visual odometry algorithm which the map is attached to
+	 * @param config Configuration for the local map.  If null then the default is used.
+	 * @return The local map
+	 */
+	public static VisOdomLocalMap localMap( DepthVisualOdometry vo , ConfigLocalMap config ) {
+		if( !(vo instanceof VisOdomPixelDepthPnP_to_DepthVisualOdometry) )
+			throw new IllegalArgumentException("Local map not supported by "+vo.getClass().getSimpleName());
+
+		VisOdomLocalMap map = localMap(config);
+		((VisOdomPixelDepthPnP_to_DepthVisualOdometry)vo).getAlgorithm().setLocalMap(map);
+		return map;
+	}
+
+	private static VisOdomLocalMap localMap( ConfigLocalMap config ) {
+		if( config == null )
+			config = new ConfigLocalMap();
+		config.checkValidity();
+
+		BundleAdjustmentCalibratedSparse bundle =
+				new BundleAdjustmentCalibratedSparse(config.convergenceTol, config.maxIterations);
+		bundle.getAlgorithm().setMaxTime(config.maxTime);
+
+		return new VisOdomLocalMap(config.windowSize, config.numFixed, bundle, config.background);
+	}
+
 	/**
 	 * Wraps around a {@link StereoVisualOdometry} instance and will rescale the input images and adjust the cameras
 	 * intrinsic parameters automatically.  Rescaling input images is often an easy way to improve runtime performance
@@ -419,4 +692,49 @@ public class FactoryVisualOdometry {
 	{
 		return new MonocularPlaneVisualOdometryScaleInput<T>(vo,scaleFactor);
 	}
+
+	/**
+	 * Creates copies of the monocular PnP generator used by the visual odometry algorithms.  It has no
+	 * configuration since it works in normalized image coordinates.
+	 */
+	private static CopyModelGenerator<Se3_F64,Point2D3D> copierPnP() {
+		return new CopyModelGenerator<Se3_F64, Point2D3D>() {
+			@Override
+			public ModelGenerator<Se3_F64, Point2D3D> create() {
+				Estimate1ofPnP estimator = FactoryMultiView.computePnP_1(EnumPNP.P3P_FINSTERWALDER,-1,2);
+				return new EstimatorToGenerator<Se3_F64,Point2D3D>(estimator);
+			}
+
+			@Override
+			public void copyConfiguration(ModelGenerator<Se3_F64, Point2D3D> original,
+										  ModelGenerator<Se3_F64, Point2D3D> copy) {}
+		};
+	}
+
+	/**
+	 * Creates copies of the stereo PnP generator used by the visual odometry algorithms.  The stereo baseline
+	 * and the intrinsic parameters used to select between solutions are copied.
+	 */
+	private static CopyModelGenerator<Se3_F64,Stereo2D3D> copierPnPStereo() {
+		return new CopyModelGenerator<Se3_F64, Stereo2D3D>() {
+			PnPDistanceReprojectionSq.Copier distanceCopier = new PnPDistanceReprojectionSq.Copier();
+
+			@Override
+			public ModelGenerator<Se3_F64, Stereo2D3D> create() {
+				EstimateNofPnP pnp = FactoryMultiView.computePnP_N(EnumPNP.P3P_FINSTERWALDER, -1);
+				PnPStereoEstimator pnpStereo = new PnPStereoEstimator(pnp,distanceCopier.create(),0);
+				return new EstimatorToGenerator<Se3_F64,Stereo2D3D>(pnpStereo);
+			}
+
+			@Override
+			public void copyConfiguration(ModelGenerator<Se3_F64, Stereo2D3D> original,
+										  ModelGenerator<Se3_F64, Stereo2D3D> copy) {
+				PnPStereoEstimator o = (PnPStereoEstimator)((EstimatorToGenerator)original).getEstimator();
+				PnPStereoEstimator c = (PnPStereoEstimator)((EstimatorToGenerator)copy).getEstimator();
+
+				c.setLeftToRight(o.getLeftToRight());
+				distanceCopier.copyConfiguration(o.getDistance(), c.getDistance());
+			}
+		};
+	}
 }
@@ -28,6 +28,7 @@ import georegression.struct.se.Se3_F64;
 import org.ejml.ops.MatrixFeatures;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -131,6 +132,37 @@ public abstract class CheckVisualOdometryStereoSim<I extends ImageSingleBand>
 	}
 
 
+	/**
+	 * Processes the same sequence with both algorithms and checks to see if they produce identical results
+	 */
+	protected void checkIdentical( StereoVisualOdometry<I> algA , StereoVisualOdometry<I> algB ) {
+		algA.setCalibration(param);
+		algB.setCalibration(param);
+
+		Se3_F64 worldToLeft = new Se3_F64();
+		Se3_F64 worldToRight = new Se3_F64();
+		Se3_F64 leftToRight = param.getRightToLeft().invert(null);
+
+		for( int i = 0; i < 5; i++ ) {
+			worldToLeft.getT().z = i*0.05;
+
+			worldToLeft.concat(leftToRight,worldToRight);
+
+			setIntrinsic(param.getLeft());
+			left.setTo(render(worldToLeft));
+			setIntrinsic(param.getRight());
+			right.setTo(render(worldToRight));
+
+			assertEquals(algA.process(left,right),algB.process(left,right));
+
+			Se3_F64 foundA = algA.getCameraToWorld();
+			Se3_F64 foundB = algB.getCameraToWorld();
+
+			assertTrue(MatrixFeatures.isIdentical(foundA.getR(),foundB.getR(),0));
+			assertEquals(0,foundA.getT().distance(foundB.getT()),0);
+		}
+	}
+
 	public StereoParameters createStereoParam() {
 		StereoParameters ret = new StereoParameters();
 
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.abst.sfm.d3;
+
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.alg.misc.ImageStatistics;
+import boofcv.struct.calib.StereoParameters;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageType;
+import georegression.struct.se.Se3_F64;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestStereoVisOdomPipeline {
+
+	Random rand = new Random(234);
+
+	int width = 30;
+	int height = 20;
+
+	/**
+	 * Results should be identical to calling the algorithm directly, even when the caller reuses its images
+	 */
+	@Test
+	public void compareToDirect() {
+		List<ImageFloat32> sequence = new ArrayList<ImageFloat32>();
+		for( int i = 0; i < 20; i++ ) {
+			ImageFloat32 image = new ImageFloat32(width,height);
+			ImageMiscOps.fillUniform(image,rand,0,100);
+			sequence.add(image);
+		}
+
+		Dummy expected = new Dummy();
+		List<Se3_F64> expectedPoses = new ArrayList<Se3_F64>();
+		List<Boolean> expectedUpdated = new ArrayList<Boolean>();
+		for( int i = 1; i < sequence.size(); i++ ) {
+			expectedUpdated.add(expected.process(sequence.get(i - 1), sequence.get(i)));
+			expectedPoses.add(expected.getCameraToWorld().copy());
+		}
+
+		StereoVisOdomPipeline<ImageFloat32> alg = new StereoVisOdomPipeline<ImageFloat32>(new Dummy(),3,false);
+
+		ImageFloat32 left = new ImageFloat32(width,height);
+		ImageFloat32 right = new ImageFloat32(width,height);
+		VisOdomPipeline.Result result = new VisOdomPipeline.Result();
+
+		int numRead = 0;
+		for( int i = 1; i < sequence.size(); i++ ) {
+			left.setTo(sequence.get(i-1));
+			right.setTo(sequence.get(i));
+			assertTrue(alg.submit(left, right));
+			// scribble over the input to make sure it was copied
+			ImageMiscOps.fill(left,-1);
+			ImageMiscOps.fill(right,-1);
+
+			// read a result every other frame
+			if( i % 2 == 0 ) {
+				alg.take(result);
+				checkResult(result, numRead, expectedPoses, expectedUpdated);
+				numRead++;
+			}
+		}
+
+		while( numRead < expectedPoses.size() ) {
+			alg.take(result);
+			checkResult(result, numRead, expectedPoses, expectedUpdated);
+			numRead++;
+		}
+		assertFalse(alg.poll(result));
+		assertEquals(0,alg.getInFlight());
+		assertEquals(expectedPoses.size(),alg.getTotalProcessed());
+		assertEquals(0,alg.getTotalDropped());
+
+		alg.shutdown();
+	}
+
+	private void checkResult( VisOdomPipeline.Result result , int index ,
+							  List<Se3_F64> expectedPoses , List<Boolean> expectedUpdated ) {
+		assertEquals(index,result.frameId);
+		assertEquals(expectedUpdated.get(index),result.updated);
+		assertEquals(expectedPoses.get(index).getX(),result.cameraToWorld.getX(),0);
+		assertEquals(expectedPoses.get(index).getY(),result.cameraToWorld.getY(),0);
+		assertTrue(result.latency >= 0);
+	}
+
+	/**
+	 * Frames should be dropped once the pipeline is full
+	 */
+	@Test
+	public void dropWhenFull() {
+		Dummy dummy = new Dummy();
+		dummy.sleep = 50;
+		StereoVisOdomPipeline<ImageFloat32> alg = new StereoVisOdomPipeline<ImageFloat32>(dummy,2,true);
+
+		ImageFloat32 left = new ImageFloat32(width,height);
+		ImageFloat32 right = new ImageFloat32(width,height);
+
+		int totalAccepted = 0;
+		for( int i = 0; i < 10; i++ ) {
+			if( alg.submit(left,right) )
+				totalAccepted++;
+		}
+		assertEquals(2,totalAccepted);
+		assertEquals(8,alg.getTotalDropped());
+
+		alg.flush();
+		assertEquals(2,alg.getTotalProcessed());
+		assertEquals(0,alg.getInFlight());
+
+		// there's room for a frame again even though results have not been read
+		assertTrue(alg.submit(left, right));
+		alg.flush();
+
+		VisOdomPipeline.Result result = new VisOdomPipeline.Result();
+		for( int i = 0; i < 3; i++ ) {
+			assertTrue(alg.poll(result));
+			assertEquals(i,result.frameId);
+		}
+		assertFalse(alg.poll(result));
+
+		assertTrue(alg.getAverageLatency() > 0);
+		assertTrue(alg.getMaximumLatency() >= alg.getAverageLatency());
+		assertTrue(alg.getThroughput() > 0);
+
+		alg.resetStatistics();
+		assertEquals(0,alg.getTotalProcessed());
+		assertEquals(0,alg.getThroughput(),0);
+
+		alg.shutdown();
+	}
+
+	/**
+	 * Reset should be applied between the frames submitted before and after it
+	 */
+	@Test
+	public void reset() {
+		Dummy dummy = new Dummy();
+		StereoVisOdomPipeline<ImageFloat32> alg = new StereoVisOdomPipeline<ImageFloat32>(dummy,5,false);
+
+		ImageFloat32 left = new ImageFloat32(width,height);
+		ImageFloat32 right = new ImageFloat32(width,height);
+		ImageMiscOps.fill(left,2);
+
+		alg.submit(left,right);
+		alg.submit(left,right);
+		alg.reset();
+		alg.submit(left,right);
+		alg.flush();
+
+		VisOdomPipeline.Result result = new VisOdomPipeline.Result();
+		double expected = ImageStatistics.sum(left);
+		double[] found = new double[]{expected,2*expected,expected};
+		for( int i = 0; i < 3; i++ ) {
+			alg.take(result);
+			assertEquals(found[i],result.cameraToWorld.getX(),1e-8);
+		}
+		assertEquals(1,dummy.totalReset);
+
+		alg.shutdown();
+	}
+
+	/**
+	 * An exception in the worker thread should be passed on to the caller
+	 */
+	@Test
+	public void exceptionInWorker() {
+		Dummy dummy = new Dummy();
+		dummy.failAt = 1;
+		StereoVisOdomPipeline<ImageFloat32> alg = new StereoVisOdomPipeline<ImageFloat32>(dummy,5,false);
+
+		ImageFloat32 left = new ImageFloat32(width,height);
+		ImageFloat32 right = new ImageFloat32(width,height);
+
+		alg.submit(left,right);
+		alg.submit(left,right);
+
+		VisOdomPipeline.Result result = new VisOdomPipeline.Result();
+		alg.take(result);
+		assertEquals(0,result.frameId);
+		try {
+			alg.take(result);
+			fail("Exception should have been thrown");
+		} catch( IllegalArgumentException ignore ) {}
+		try {
+			alg.submit(left,right);
+			fail("Exception should have been thrown");
+		} catch( IllegalArgumentException ignore ) {}
+	}
+
+	/**
+	 * Errors which aren't a RuntimeException must also be passed on instead of hanging the caller
+	 */
+	@Test
+	public void errorInWorker() {
+		Dummy dummy = new Dummy();
+		dummy.failAt = 1;
+		dummy.throwError = true;
+		StereoVisOdomPipeline<ImageFloat32> alg = new StereoVisOdomPipeline<ImageFloat32>(dummy,5,false);
+
+		ImageFloat32 left = new ImageFloat32(width,height);
+		ImageFloat32 right = new ImageFloat32(width,height);
+
+		alg.submit(left,right);
+		alg.submit(left,right);
+		alg.submit(left,right);
+
+		try {
+			alg.flush();
+			fail("Exception should have been thrown");
+		} catch( RuntimeException e ) {
+			assertTrue(e.getCause() instanceof AssertionError);
+		}
+
+		VisOdomPipeline.Result result = new VisOdomPipeline.Result();
+		alg.take(result);
+		assertEquals(0,result.frameId);
+		try {
+			alg.take(result);
+			fail("Exception should have been thrown");
+		} catch( RuntimeException ignore ) {}
+	}
+
+	/**
+	 * Motion is the sum of the left image minus the right.  Returns false when the sum is negative.
+	 */
+	protected static class Dummy implements StereoVisualOdometry<ImageFloat32> {
+		Se3_F64 pose = new Se3_F64();
+		int totalReset = 0;
+		int totalProcessed = 0;
+		long sleep = 0;
+		int failAt = -1;
+		boolean throwError = false;
+
+		@Override
+		public void setCalibration(StereoParameters parameters) {}
+
+		@Override
+		public boolean process(ImageFloat32 left, ImageFloat32 right) {
+			if( totalProcessed++ == failAt ) {
+				if( throwError )
+					throw new AssertionError("Failed");
+				throw new IllegalArgumentException("Failed");
+			}
+			if( sleep > 0 ) {
+				try {
+					Thread.sleep(sleep);
+				} catch (InterruptedException ignore) {}
+			}
+			double motion = ImageStatistics.sum(left) - ImageStatistics.sum(right);
+			pose.T.x += motion;
+			pose.T.y = totalProcessed;
+			return motion >= 0;
+		}
+
+		@Override
+		public ImageType<ImageFloat32> getImageType() {
+			return ImageType.single(ImageFloat32.class);
+		}
+
+		@Override
+		public void reset() {
+			totalReset++;
+			pose.reset();
+		}
+
+		@Override
+		public boolean isFault() {
+			return false;
+		}
+
+		@Override
+		public Se3_F64 getCameraToWorld() {
+			return pose;
+		}
+	}
+}
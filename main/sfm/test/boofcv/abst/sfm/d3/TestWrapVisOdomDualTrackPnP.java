@@ -22,10 +22,16 @@ import boofcv.abst.feature.describe.DescribeRegionPoint;
 import boofcv.abst.feature.detect.interest.ConfigGeneralDetector;
 import boofcv.abst.feature.tracker.PointTracker;
 import boofcv.alg.tracker.klt.PkltConfig;
+import boofcv.concurrency.BoofConcurrency;
 import boofcv.factory.feature.describe.FactoryDescribeRegionPoint;
 import boofcv.factory.feature.tracker.FactoryPointTracker;
+import boofcv.factory.robust.ConfigRansacParallel;
 import boofcv.factory.sfm.FactoryVisualOdometry;
+import boofcv.struct.calib.StereoParameters;
 import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageType;
+import georegression.struct.se.Se3_F64;
+import org.junit.Test;
 
 /**
  * @author Peter Abeles
@@ -38,6 +44,33 @@ public class TestWrapVisOdomDualTrackPnP extends CheckVisualOdometryStereoSim<Im
 
 	@Override
 	public StereoVisualOdometry<ImageFloat32> createAlgorithm() {
+		return createAlgorithm(false);
+	}
+
+	/**
+	 * Processing the left and right images concurrently should not change the results
+	 */
+	@Test
+	public void concurrent() {
+		checkIdentical(createAlgorithm(false),createAlgorithm(true));
+	}
+
+	/**
+	 * Concurrent RANSAC should produce the same results no matter how many threads are used.  Requires
+	 * that the configuration of the generator and distance function is copied into each thread.
+	 */
+	@Test
+	public void ransacParallel_threadInvariant() {
+		checkIdentical(new FixedThreads(createAlgorithm(false, new ConfigRansacParallel()), 1),
+				new FixedThreads(createAlgorithm(false, new ConfigRansacParallel()), 3));
+	}
+
+	private StereoVisualOdometry<ImageFloat32> createAlgorithm( boolean concurrent ) {
+		return createAlgorithm(concurrent, null);
+	}
+
+	private StereoVisualOdometry<ImageFloat32> createAlgorithm( boolean concurrent ,
+																ConfigRansacParallel configParallel ) {
 		ConfigGeneralDetector configDetector = new ConfigGeneralDetector(600,2,1);
 
 		PkltConfig kltConfig = new PkltConfig();
@@ -51,7 +84,60 @@ public class TestWrapVisOdomDualTrackPnP extends CheckVisualOdometryStereoSim<Im
 
 		DescribeRegionPoint describe = FactoryDescribeRegionPoint.surfFast(null, ImageFloat32.class);
 
+		DescribeRegionPoint describeRight = null;
+		if( concurrent )
+			describeRight = FactoryDescribeRegionPoint.surfFast(null, ImageFloat32.class);
+
 		return FactoryVisualOdometry.stereoDualTrackerPnP(90, 2, 1.5, 1.5, 200, 50,
-				trackerLeft, trackerRight, describe,ImageFloat32.class);
+				trackerLeft, trackerRight, describe, describeRight, ImageFloat32.class, configParallel);
+	}
+
+	/**
+	 * Processes images using a fixed number of threads
+	 */
+	private static class FixedThreads implements StereoVisualOdometry<ImageFloat32> {
+		StereoVisualOdometry<ImageFloat32> alg;
+		int numThreads;
+
+		private FixedThreads(StereoVisualOdometry<ImageFloat32> alg, int numThreads) {
+			this.alg = alg;
+			this.numThreads = numThreads;
+		}
+
+		@Override
+		public boolean process(ImageFloat32 leftImage, ImageFloat32 rightImage) {
+			int maxThreads = BoofConcurrency.getMaxThreads();
+			try {
+				BoofConcurrency.setMaxThreads(numThreads);
+				return alg.process(leftImage,rightImage);
+			} finally {
+				BoofConcurrency.setMaxThreads(maxThreads);
+			}
+		}
+
+		@Override
+		public void setCalibration(StereoParameters parameters) {
+			alg.setCalibration(parameters);
+		}
+
+		@Override
+		public ImageType<ImageFloat32> getImageType() {
+			return alg.getImageType();
+		}
+
+		@Override
+		public void reset() {
+			alg.reset();
+		}
+
+		@Override
+		public boolean isFault() {
+			return alg.isFault();
+		}
+
+		@Override
+		public Se3_F64 getCameraToWorld() {
+			return alg.getCameraToWorld();
+		}
 	}
 }
@@ -32,6 +32,7 @@ import boofcv.factory.feature.detect.extract.FactoryFeatureExtractor;
 import boofcv.factory.feature.detect.intensity.FactoryIntensityPoint;
 import boofcv.factory.sfm.FactoryVisualOdometry;
 import boofcv.struct.image.ImageFloat32;
+import org.junit.Test;
 
 /**
  * @author Peter Abeles
@@ -44,6 +45,23 @@ public class TestWrapVisOdomQuadPnP extends CheckVisualOdometryStereoSim<ImageFl
 
 	@Override
 	public StereoVisualOdometry<ImageFloat32> createAlgorithm() {
+		return FactoryVisualOdometry.stereoQuadPnP(1.5, 0.5, 200, Double.MAX_VALUE, 300, 50,
+				createDetector(), ImageFloat32.class);
+	}
+
+	/**
+	 * Processing the left and right images concurrently should not change the results
+	 */
+	@Test
+	public void concurrent() {
+		StereoVisualOdometry<ImageFloat32> serial = createAlgorithm();
+		StereoVisualOdometry<ImageFloat32> concurrent = FactoryVisualOdometry.stereoQuadPnP(
+				1.5, 0.5, 200, Double.MAX_VALUE, 300, 50, createDetector(), createDetector(), ImageFloat32.class, null);
+
+		checkIdentical(serial,concurrent);
+	}
+
+	private DetectDescribeMulti createDetector() {
 		GeneralFeatureIntensity intensity =
 				FactoryIntensityPoint.shiTomasi(1, false, ImageFloat32.class);
 		NonMaxSuppression nonmax = FactoryFeatureExtractor.nonmax(new ConfigExtract(2, 1, 0, true, false, true));
@@ -52,8 +70,6 @@ public class TestWrapVisOdomQuadPnP extends CheckVisualOdometryStereoSim<ImageFl
 		general.setMaxFeatures(600);
 		DetectorInterestPointMulti detector = new GeneralToInterestMulti(general,2,ImageFloat32.class,ImageFloat32.class);
 		DescribeRegionPoint describe = FactoryDescribeRegionPoint.surfFast(null, ImageFloat32.class);
-		DetectDescribeMulti detDescMulti =  new DetectDescribeMultiFusion(detector,null,describe);
-
-		return FactoryVisualOdometry.stereoQuadPnP(1.5, 0.5, 200, Double.MAX_VALUE, 300, 50, detDescMulti, ImageFloat32.class);
+		return new DetectDescribeMultiFusion(detector,null,describe);
 	}
 }
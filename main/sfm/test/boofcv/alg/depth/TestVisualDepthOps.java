@@ -21,6 +21,7 @@ package boofcv.alg.depth;
 import boofcv.alg.distort.RemoveRadialPtoN_F64;
 import boofcv.alg.misc.GImageMiscOps;
 import boofcv.struct.FastQueueArray_I32;
+import boofcv.struct.PackedPointCloud_F32;
 import boofcv.struct.calib.IntrinsicParameters;
 import boofcv.struct.image.ImageUInt16;
 import boofcv.struct.image.ImageUInt8;
@@ -87,6 +88,46 @@ public class TestVisualDepthOps {
 		color(600, 420,rgb,color.get(1));
 	}
 
+	/**
+	 * Compare the packed cloud against the original function on a dense image so that it's split into several blocks
+	 */
+	@Test
+	public void depthTo3D_packed() {
+		ImageUInt16 depth = new ImageUInt16(width,height);
+		GImageMiscOps.fillUniform(depth, rand, 0, 1000);
+		for( int i = 0; i < 1000; i++ )
+			depth.set(rand.nextInt(width),rand.nextInt(height),0);
+
+		MultiSpectral<ImageUInt8> rgb = new MultiSpectral<ImageUInt8>(ImageUInt8.class,width,height,3);
+		GImageMiscOps.fillUniform(rgb, rand, 0, 256);
+
+		FastQueue<Point3D_F64> expected = new FastQueue<Point3D_F64>(Point3D_F64.class,true);
+		FastQueueArray_I32 expectedColor = new FastQueueArray_I32(3);
+		VisualDepthOps.depthTo3D(param,rgb,depth,expected,expectedColor);
+
+		PackedPointCloud_F32 found = new PackedPointCloud_F32(true);
+		VisualDepthOps.depthTo3D(param,rgb,depth,found);
+
+		assertEquals(expected.size(),found.size);
+		Point3D_F64 p = new Point3D_F64();
+		for( int i = 0; i < found.size; i++ ) {
+			found.get(i,p);
+			assertEquals(0,expected.get(i).distance(p),1e-3);
+
+			int c[] = expectedColor.get(i);
+			assertEquals((c[0] << 16) | (c[1] << 8) | c[2], found.rgb[i]);
+		}
+
+		// no color
+		PackedPointCloud_F32 gray = new PackedPointCloud_F32(false);
+		VisualDepthOps.depthTo3D(param,depth,gray);
+		assertEquals(expected.size(),gray.size);
+		for( int i = 0; i < gray.size; i++ ) {
+			assertEquals(found.x[i],gray.x[i],1e-8f);
+			assertEquals(found.z[i],gray.z[i],1e-8f);
+		}
+	}
+
 	private void color( int x , int y , MultiSpectral<ImageUInt8> rgb, int found[] ) {
 
 		assertEquals(rgb.getBand(0).get(x,y),found[0]);
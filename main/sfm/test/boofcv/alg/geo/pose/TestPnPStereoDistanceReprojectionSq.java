@@ -20,6 +20,7 @@ package boofcv.alg.geo.pose;
 
 import boofcv.alg.geo.PerspectiveOps;
 import boofcv.struct.calib.StereoParameters;
+import boofcv.struct.sfm.PackedStereo2D3D;
 import boofcv.struct.sfm.Stereo2D3D;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
@@ -160,4 +161,31 @@ public class TestPnPStereoDistanceReprojectionSq extends CommonStereoMotionNPoin
 		for( int i = 0; i < N; i++ )
 			assertEquals(expected[i],found[i],1e-8);
 	}
+
+	/**
+	 * Packed points should produce identical results, including points behind the camera
+	 */
+	@Test
+	public void checkErrorPacked() {
+		PnPStereoDistanceReprojectionSq alg = new PnPStereoDistanceReprojectionSq();
+		alg.setStereoParameters(param);
+		alg.setModel(worldToLeft);
+
+		List<Stereo2D3D> obs = new ArrayList<Stereo2D3D>();
+		for( int i = 0; i < 20; i++ ) {
+			Point3D_F64 X = new Point3D_F64(rand.nextGaussian(),rand.nextGaussian(),rand.nextGaussian()*2);
+			Point2D_F64 obsLeft = new Point2D_F64(rand.nextGaussian()*0.1,rand.nextGaussian()*0.1);
+			Point2D_F64 obsRight = new Point2D_F64(rand.nextGaussian()*0.1,rand.nextGaussian()*0.1);
+			obs.add(new Stereo2D3D(obsLeft,obsRight,X));
+		}
+
+		PackedStereo2D3D packed = alg.createPacked();
+		packed.setTo(obs);
+
+		double found[] = new double[obs.size()];
+		alg.computeDistance(packed,found);
+
+		for( int i = 0; i < obs.size(); i++ )
+			assertEquals(alg.computeDistance(obs.get(i)),found[i],0);
+	}
 }
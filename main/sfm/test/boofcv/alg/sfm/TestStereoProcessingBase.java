@@ -20,11 +20,13 @@ package boofcv.alg.sfm;
 
 import boofcv.alg.geo.PerspectiveOps;
 import boofcv.alg.geo.RectifyImageOps;
+import boofcv.alg.misc.ImageMiscOps;
 import boofcv.alg.misc.ImageStatistics;
 import boofcv.struct.calib.IntrinsicParameters;
 import boofcv.struct.calib.StereoParameters;
 import boofcv.struct.distort.PointTransform_F64;
 import boofcv.struct.image.ImageUInt8;
+import boofcv.testing.BoofTesting;
 import georegression.geometry.RotationMatrixGenerator;
 import georegression.struct.point.Point2D_F64;
 import georegression.struct.point.Point3D_F64;
@@ -32,6 +34,8 @@ import georegression.struct.se.Se3_F64;
 import org.ejml.data.DenseMatrix64F;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 /**
@@ -39,6 +43,8 @@ import static org.junit.Assert.*;
  */
 public class TestStereoProcessingBase {
 
+	Random rand = new Random(234);
+
 	int width = 320;
 	int height = 240;
 
@@ -129,6 +135,32 @@ public class TestStereoProcessingBase {
 		assertTrue(found.isIdentical(X,0.01));
 	}
 
+	/**
+	 * Rectifying the two images concurrently should produce identical results
+	 */
+	@Test
+	public void concurrent() {
+		StereoParameters param = createStereoParam(width,height,false);
+
+		ImageUInt8 left = new ImageUInt8(width,height);
+		ImageUInt8 right = new ImageUInt8(width,height);
+		ImageMiscOps.fillUniform(left,rand,0,200);
+		ImageMiscOps.fillUniform(right,rand,0,200);
+
+		StereoProcessingBase<ImageUInt8> serial = new StereoProcessingBase<ImageUInt8>(ImageUInt8.class);
+		StereoProcessingBase<ImageUInt8> alg = new StereoProcessingBase<ImageUInt8>(ImageUInt8.class);
+		alg.setConcurrent(true);
+
+		serial.setCalibration(param);
+		alg.setCalibration(param);
+
+		serial.setImages(left,right);
+		alg.setImages(left,right);
+
+		BoofTesting.assertEquals(serial.getImageLeftRect(),alg.getImageLeftRect(),0);
+		BoofTesting.assertEquals(serial.getImageRightRect(),alg.getImageRightRect(),0);
+	}
+
 	/**
 	 * Finds the mean point in the image weighted by pixel intensity
 	 */
@@ -23,6 +23,7 @@ import boofcv.alg.distort.ImageDistort;
 import boofcv.struct.distort.PixelTransform_F32;
 import boofcv.struct.image.ImageBase;
 import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageType;
 import georegression.struct.affine.Affine2D_F64;
 import org.junit.Test;
 
@@ -161,6 +162,37 @@ public class TestStitchingFromMotion2D {
 		assertEquals(2, distort.numApply);
 	}
 
+	/**
+	 * Images should be rendered into the tiled mosaic instead of the stitched image
+	 */
+	@Test
+	public void tiledMosaic() {
+		HelperMotion motion = new HelperMotion();
+		HelperDistort distort = new HelperDistort();
+
+		StitchingTransform trans = FactoryStitchingTransform.createAffine_F64();
+
+		StitchingFromMotion2D<ImageFloat32,Affine2D_F64> alg =
+				new StitchingFromMotion2D<ImageFloat32,Affine2D_F64>(motion,distort,trans,0.3);
+
+		TiledMosaic<ImageFloat32> mosaic = new TiledMosaic<ImageFloat32>(ImageType.single(ImageFloat32.class),64,false);
+		alg.configure(mosaic,null);
+		assertTrue(alg.process(image));
+
+		assertNull(alg.getStitchedImage());
+		assertEquals(0, distort.numApply);
+		// the 100x150 image is shifted by (-1,2) so it touches 3x3 tiles
+		assertEquals(9, mosaic.getTotalTiles());
+
+		try {
+			alg.setOriginToCurrent();
+			fail("Should have thrown an exception");
+		} catch( IllegalArgumentException ignore ) {}
+
+		alg.reset();
+		assertEquals(0, mosaic.getTotalTiles());
+	}
+
 	@Test
 	public void getImageCorners() {
 		HelperMotion motion = new HelperMotion();
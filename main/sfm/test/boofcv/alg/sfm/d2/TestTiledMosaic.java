@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.d2;
+
+import boofcv.alg.misc.ImageMiscOps;
+import boofcv.concurrency.BoofConcurrency;
+import boofcv.struct.image.ImageFloat32;
+import boofcv.struct.image.ImageType;
+import boofcv.struct.image.ImageUInt8;
+import boofcv.struct.image.MultiSpectral;
+import boofcv.testing.BoofTesting;
+import georegression.struct.homo.Homography2D_F64;
+import georegression.struct.shapes.Rectangle2D_I32;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestTiledMosaic {
+
+	Random rand = new Random(234);
+
+	ImageFloat32 image = new ImageFloat32(80,60);
+
+	// rotation and translation which moves the image into negative coordinates
+	Homography2D_F64 worldToImage = new Homography2D_F64(
+			Math.cos(0.3),-Math.sin(0.3),30,
+			Math.sin(0.3), Math.cos(0.3),45,
+			0,0,1);
+
+	public TestTiledMosaic() {
+		ImageMiscOps.fillUniform(image, rand, 10, 200);
+	}
+
+	/**
+	 * Compare the rendered mosaic against bilinear interpolation computed by brute force
+	 */
+	@Test
+	public void add_compareBruteForce() {
+		TiledMosaic<ImageFloat32> alg = new TiledMosaic<ImageFloat32>(ImageType.single(ImageFloat32.class),32,false);
+		alg.add(image, worldToImage);
+
+		Rectangle2D_I32 bounds = alg.getBounds();
+		assertTrue(bounds.tl_x < 0);
+		assertTrue(bounds.tl_y < 0);
+
+		ImageFloat32 found = new ImageFloat32(bounds.width,bounds.height);
+		alg.render(bounds.tl_x, bounds.tl_y, found);
+
+		int numInside = 0;
+		for( int y = 0; y < found.height; y++ ) {
+			for( int x = 0; x < found.width; x++ ) {
+				double wx = x + bounds.tl_x, wy = y + bounds.tl_y;
+				double sx = worldToImage.a11*wx + worldToImage.a12*wy + worldToImage.a13;
+				double sy = worldToImage.a21*wx + worldToImage.a22*wy + worldToImage.a23;
+
+				if( sx >= 0.01 && sy >= 0.01 && sx <= image.width-1.01 && sy <= image.height-1.01 ) {
+					assertEquals(bilinear(sx,sy), found.get(x,y), 1e-2);
+					numInside++;
+				} else if( sx < -0.01 || sy < -0.01 || sx > image.width-0.99 || sy > image.height-0.99 ) {
+					assertEquals(0, found.get(x,y), 0);
+				}
+			}
+		}
+		assertTrue(numInside > image.width*image.height*0.9);
+	}
+
+	/**
+	 * Only tiles which the image touches should be declared
+	 */
+	@Test
+	public void add_lazyTiles() {
+		TiledMosaic<ImageFloat32> alg = new TiledMosaic<ImageFloat32>(ImageType.single(ImageFloat32.class),32,false);
+
+		// image is inside tiles (0,0) to (2,1)
+		Homography2D_F64 H = new Homography2D_F64(1,0,-5,0,1,-3,0,0,1);
+		alg.add(image, H);
+		assertEquals(6, alg.getTotalTiles());
+		assertNotNull(alg.getTile(2,1));
+		assertNull(alg.getTile(3,1));
+		assertNull(alg.getTile(-1,0));
+
+		// far away
+		H = new Homography2D_F64(1,0,10000,0,1,-20000,0,0,1);
+		alg.add(image, H);
+		assertEquals(6+6, alg.getTotalTiles());
+	}
+
+	/**
+	 * The number of threads should not change the results
+	 */
+	@Test
+	public void add_threadInvariant() {
+		int maxThreads = BoofConcurrency.getMaxThreads();
+		try {
+			BoofConcurrency.setMaxThreads(1);
+			ImageFloat32 expected = renderSequence(false, null);
+			BoofConcurrency.setMaxThreads(4);
+			ImageFloat32 found = renderSequence(false, null);
+
+			BoofTesting.assertEquals(expected, found, 0);
+		} finally {
+			BoofConcurrency.setMaxThreads(maxThreads);
+		}
+	}
+
+	/**
+	 * Tiles which are saved to disk should be loaded again without any change
+	 */
+	@Test
+	public void spillToDisk() throws Exception {
+		File dir = File.createTempFile("mosaic", "");
+		assertTrue(dir.delete());
+		try {
+			ImageFloat32 expected = renderSequence(true, null);
+			ImageFloat32 found = renderSequence(true, dir);
+
+			BoofTesting.assertEquals(expected, found, 0);
+		} finally {
+			File[] files = dir.listFiles();
+			if( files != null )
+				for( File f : files )
+					f.delete();
+			dir.delete();
+		}
+	}
+
+	/**
+	 * Saves and loads tiles with multiple bands and a different data type.  Blending is on, so the weights
+	 * are saved too.
+	 */
+	@Test
+	public void spillToDisk_multiSpectral() throws Exception {
+		File dir = File.createTempFile("mosaic", "");
+		assertTrue(dir.delete());
+		try {
+			MultiSpectral<ImageUInt8> color = new MultiSpectral<ImageUInt8>(ImageUInt8.class,80,60,3);
+			for( int i = 0; i < 3; i++ )
+				ImageMiscOps.fillUniform(color.getBand(i), rand, 0, 255);
+
+			MultiSpectral<ImageUInt8> expected = renderSequence(color, null);
+			MultiSpectral<ImageUInt8> found = renderSequence(color, dir);
+
+			for( int i = 0; i < 3; i++ )
+				BoofTesting.assertEquals(expected.getBand(i), found.getBand(i), 0);
+		} finally {
+			File[] files = dir.listFiles();
+			if( files != null )
+				for( File f : files )
+					f.delete();
+			dir.delete();
+		}
+	}
+
+	/**
+	 * Loading a tile with getTile() should not exceed the memory limit
+	 */
+	@Test
+	public void getTile_memoryLimit() throws Exception {
+		File dir = File.createTempFile("mosaic", "");
+		assertTrue(dir.delete());
+		try {
+			TiledMosaic<ImageFloat32> alg = new TiledMosaic<ImageFloat32>(ImageType.single(ImageFloat32.class),32,false);
+			alg.setMemoryLimit(8, dir);
+
+			for( int i = 0; i < 5; i++ ) {
+				alg.add(image, new Homography2D_F64(1,0,-192*i,0,1,0,0,0,1));
+			}
+			assertEquals(8, alg.getTilesInMemory());
+
+			// tile from the first image has been saved to disk
+			assertNotNull(alg.getTile(0,0));
+			assertEquals(8, alg.getTilesInMemory());
+			assertEquals(30, alg.getTotalTiles());
+		} finally {
+			File[] files = dir.listFiles();
+			if( files != null )
+				for( File f : files )
+					f.delete();
+			dir.delete();
+		}
+	}
+
+	@Test
+	public void memoryLimit_discard() {
+		TiledMosaic<ImageFloat32> alg = new TiledMosaic<ImageFloat32>(ImageType.single(ImageFloat32.class),32,false);
+		alg.setMemoryLimit(4, null);
+
+		for( int i = 0; i < 5; i++ ) {
+			alg.add(image, new Homography2D_F64(1,0,-192*i,0,1,0,0,0,1));
+			// the tiles touched by the most recent image are never removed
+			assertEquals(6, alg.getTilesInMemory());
+			assertEquals(6, alg.getTotalTiles());
+		}
+	}
+
+	/**
+	 * Two overlapping constant images.  Outside of the overlap each image's value should be found and inside
+	 * a value in between.
+	 */
+	@Test
+	public void blend() {
+		TiledMosaic<MultiSpectral<ImageUInt8>> alg = new TiledMosaic<MultiSpectral<ImageUInt8>>(
+				ImageType.ms(3, ImageUInt8.class),32,true);
+
+		MultiSpectral<ImageUInt8> a = new MultiSpectral<ImageUInt8>(ImageUInt8.class,50,50,3);
+		MultiSpectral<ImageUInt8> b = new MultiSpectral<ImageUInt8>(ImageUInt8.class,50,50,3);
+		for( int i = 0; i < 3; i++ ) {
+			ImageMiscOps.fill(a.getBand(i), 100);
+			ImageMiscOps.fill(b.getBand(i), 200);
+		}
+
+		alg.add(a, new Homography2D_F64(1,0,0,0,1,0,0,0,1));
+		alg.add(b, new Homography2D_F64(1,0,-30,0,1,0,0,0,1));
+
+		MultiSpectral<ImageUInt8> found = new MultiSpectral<ImageUInt8>(ImageUInt8.class,80,50,3);
+		alg.render(0,0,found);
+
+		for( int i = 0; i < 3; i++ ) {
+			ImageUInt8 band = found.getBand(i);
+			assertEquals(100, band.get(10,25));
+			assertEquals(200, band.get(70,25));
+
+			// closer to the border of b than a
+			int v = band.get(32,25);
+			assertTrue(v > 100 && v < 150);
+			// closer to the border of a than b
+			v = band.get(48,25);
+			assertTrue(v > 150 && v < 200);
+		}
+	}
+
+	private ImageFloat32 renderSequence( boolean blend , File spill ) {
+		TiledMosaic<ImageFloat32> alg = new TiledMosaic<ImageFloat32>(ImageType.single(ImageFloat32.class),16,blend);
+		if( spill != null )
+			alg.setMemoryLimit(10, spill);
+
+		for( int i = 0; i < 10; i++ ) {
+			Homography2D_F64 H = worldToImage.copy();
+			H.a13 -= 12*i;
+			H.a23 += 5*i;
+			alg.add(image, H);
+		}
+		if( spill != null )
+			assertTrue(alg.getTilesInMemory() < alg.getTotalTiles());
+
+		ImageFloat32 output = new ImageFloat32(300,200);
+		alg.render(-50,-100,output);
+		return output;
+	}
+
+	private MultiSpectral<ImageUInt8> renderSequence( MultiSpectral<ImageUInt8> color , File spill ) {
+		TiledMosaic<MultiSpectral<ImageUInt8>> alg = new TiledMosaic<MultiSpectral<ImageUInt8>>(
+				ImageType.ms(3, ImageUInt8.class),16,true);
+		if( spill != null )
+			alg.setMemoryLimit(10, spill);
+
+		for( int i = 0; i < 10; i++ ) {
+			Homography2D_F64 H = worldToImage.copy();
+			H.a13 -= 12*i;
+			H.a23 += 5*i;
+			alg.add(color, H);
+		}
+		if( spill != null )
+			assertTrue(alg.getTilesInMemory() < alg.getTotalTiles());
+
+		MultiSpectral<ImageUInt8> output = new MultiSpectral<ImageUInt8>(ImageUInt8.class,300,200,3);
+		alg.render(-50,-100,output);
+		return output;
+	}
+
+	private double bilinear( double x , double y ) {
+		int x0 = (int)x, y0 = (int)y;
+		int x1 = Math.min(x0+1,image.width-1), y1 = Math.min(y0+1,image.height-1);
+		double ax = x - x0, ay = y - y0;
+
+		return (1-ax)*(1-ay)*image.get(x0,y0) + ax*(1-ay)*image.get(x1,y0) +
+				(1-ax)*ay*image.get(x0,y1) + ax*ay*image.get(x1,y1);
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.d3;
+
+import boofcv.abst.geo.bundle.BundleAdjustmentCalibratedSparse;
+import boofcv.alg.geo.bundle.CalibratedPoseAndPoint;
+import boofcv.alg.geo.bundle.ViewPointObservations;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestVisOdomLocalMap {
+
+	Random rand = new Random(234);
+
+	List<Point3D_F64> worldPts = new ArrayList<Point3D_F64>();
+	List<Se3_F64> truthPoses = new ArrayList<Se3_F64>();
+
+	public TestVisOdomLocalMap() {
+		for( int i = 0; i < 60; i++ ) {
+			worldPts.add(new Point3D_F64(rand.nextGaussian(), rand.nextGaussian()*0.5, 3 + rand.nextDouble()*3));
+		}
+		for( int i = 0; i < 5; i++ ) {
+			Se3_F64 cameraToWorld = new Se3_F64();
+			cameraToWorld.getT().set(0.2*i, 0.02*i, 0);
+			truthPoses.add(cameraToWorld);
+		}
+	}
+
+	/**
+	 * The oldest key frame and points only it observed should be removed when the window is full
+	 */
+	@Test
+	public void windowEviction() {
+		VisOdomLocalMap alg = new VisOdomLocalMap(3, 1, createBundle(), false);
+
+		for( int i = 0; i < 5; i++ ) {
+			alg.addKeyFrame(truthPoses.get(i));
+			// one point unique to this frame and one shared by all
+			addObservation(alg, 0, i);
+			addObservation(alg, 100 + i, i);
+			alg.finishKeyFrame();
+
+			assertEquals(Math.min(3, i + 1), alg.getNumKeyFrames());
+			assertEquals(1 + Math.min(3, i + 1), alg.getNumPoints());
+		}
+	}
+
+	/**
+	 * Key frames with noisy poses should be moved closer to the truth and a correction computed
+	 */
+	@Test
+	public void reduceError() {
+		VisOdomLocalMap alg = new VisOdomLocalMap(5, 2, createBundle(), false);
+
+		double before = addNoisyFrames(alg);
+		assertTrue(alg.getTotalOptimized() > 0);
+		double after = poseError(alg);
+		assertTrue(after < before*0.5);
+
+		// the odometry's estimate of the newest frame should be corrected towards the truth too
+		Se3_F64 odom = noisy(truthPoses.get(4), 4);
+		double errorOdom = odom.getT().distance(truthPoses.get(4).getT());
+		assertTrue(alg.applyCorrection(odom));
+		assertTrue(odom.getT().distance(truthPoses.get(4).getT()) < errorOdom);
+
+		// correction is only applied once
+		assertFalse(alg.applyCorrection(odom));
+	}
+
+	/**
+	 * Optimizing in a background thread should produce the same result when it is given time to finish
+	 */
+	@Test
+	public void background() {
+		VisOdomLocalMap expected = new VisOdomLocalMap(5, 2, createBundle(), false);
+		VisOdomLocalMap alg = new VisOdomLocalMap(5, 2, createBundle(), true);
+
+		addNoisyFrames(expected);
+		addNoisyFrames(alg);
+		alg.waitUntilIdle();
+
+		assertEquals(expected.getTotalOptimized(), alg.getTotalOptimized());
+		assertEquals(0, alg.getTotalSkipped());
+		for( int i = 0; i < expected.getNumKeyFrames(); i++ ) {
+			Se3_F64 a = expected.getKeyFrameToWorld(i);
+			Se3_F64 b = alg.getKeyFrameToWorld(i);
+			assertEquals(0, a.getT().distance(b.getT()), 1e-8);
+		}
+	}
+
+	/**
+	 * After the worker is shutdown a new one should be started when needed
+	 */
+	@Test
+	public void shutdown() {
+		VisOdomLocalMap alg = new VisOdomLocalMap(5, 2, createBundle(), true);
+
+		// nothing to shutdown
+		alg.shutdown();
+
+		addNoisyFrames(alg);
+		int totalOptimized = alg.getTotalOptimized();
+		assertTrue(totalOptimized > 0);
+		alg.shutdown();
+		alg.shutdown();
+
+		addNoisyFrames(alg);
+		assertTrue(alg.getTotalOptimized() > totalOptimized);
+		alg.shutdown();
+	}
+
+	/**
+	 * Anything thrown by the worker should be passed on to the caller instead of silently killing the thread
+	 */
+	@Test
+	public void failureInWorker() {
+		BundleAdjustmentCalibratedSparse bundle = new BundleAdjustmentCalibratedSparse(1e-8, 50) {
+			@Override
+			public boolean process(CalibratedPoseAndPoint initialModel, List<ViewPointObservations> observations) {
+				throw new AssertionError("Failed");
+			}
+		};
+		VisOdomLocalMap alg = new VisOdomLocalMap(3, 1, bundle, true);
+
+		try {
+			addNoisyFrames(alg);
+			fail("Exception should have been thrown");
+		} catch( RuntimeException e ) {
+			assertTrue(e.getCause() instanceof AssertionError);
+		}
+		try {
+			alg.finishKeyFrame();
+			fail("Exception should have been thrown");
+		} catch( RuntimeException ignore ) {}
+		alg.shutdown();
+	}
+
+	@Test
+	public void reset() {
+		VisOdomLocalMap alg = new VisOdomLocalMap(5, 2, createBundle(), false);
+		addNoisyFrames(alg);
+
+		alg.reset();
+		assertEquals(0, alg.getNumKeyFrames());
+		assertEquals(0, alg.getNumPoints());
+		assertFalse(alg.applyCorrection(new Se3_F64()));
+	}
+
+	/**
+	 * Adds all the key frames.  Poses after the fixed ones have increasing amounts of error.
+	 *
+	 * @return error in the key frame poses before optimization
+	 */
+	private double addNoisyFrames( VisOdomLocalMap alg ) {
+		double error = 0;
+		for( int i = 0; i < truthPoses.size(); i++ ) {
+			Se3_F64 pose = noisy(truthPoses.get(i), i);
+			error += pose.getT().distance(truthPoses.get(i).getT());
+
+			alg.addKeyFrame(pose);
+			for( int j = 0; j < worldPts.size(); j++ ) {
+				addObservation(alg, j, i);
+			}
+			alg.finishKeyFrame();
+			if( alg.isBackground() )
+				alg.waitUntilIdle();
+		}
+		return error;
+	}
+
+	private Se3_F64 noisy( Se3_F64 truth , int index ) {
+		Se3_F64 pose = truth.copy();
+		if( index >= 2 )
+			pose.getT().x += 0.02*(index-1);
+		return pose;
+	}
+
+	private void addObservation( VisOdomLocalMap alg , int point , int frame ) {
+		Se3_F64 worldToCamera = truthPoses.get(frame).invert(null);
+		Point3D_F64 p = SePointOps_F64.transform(worldToCamera, worldPts.get(point % worldPts.size()), null);
+		alg.addObservation(point, new Point2D_F64(p.x/p.z, p.y/p.z), p);
+	}
+
+	private double poseError( VisOdomLocalMap alg ) {
+		double error = 0;
+		for( int i = 0; i < alg.getNumKeyFrames(); i++ ) {
+			error += alg.getKeyFrameToWorld(i).getT().distance(truthPoses.get(i).getT());
+		}
+		return error;
+	}
+
+	private BundleAdjustmentCalibratedSparse createBundle() {
+		return new BundleAdjustmentCalibratedSparse(1e-8, 50);
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import org.ddogleg.struct.FastQueue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestInvertedIndexTfIdf {
+
+	Random rand = new Random(234);
+
+	FastQueue<InvertedIndexTfIdf.Match> results =
+			new FastQueue<InvertedIndexTfIdf.Match>(InvertedIndexTfIdf.Match.class,true);
+
+	/**
+	 * Compare scores against a brute force L1 distance
+	 */
+	@Test
+	public void query_bruteForce() {
+		InvertedIndexTfIdf alg = new InvertedIndexTfIdf();
+
+		List<BowVector> documents = new ArrayList<BowVector>();
+		for( int i = 0; i < 30; i++ ) {
+			BowVector v = random(200,20);
+			documents.add(v);
+			assertEquals(i,alg.add(v));
+		}
+		assertEquals(30,alg.getNumDocuments());
+
+		for( int trial = 0; trial < 5; trial++ ) {
+			BowVector q = random(200,20);
+			alg.query(q,30,30,results);
+
+			for( int i = 0; i < results.size; i++ ) {
+				InvertedIndexTfIdf.Match m = results.get(i);
+				assertEquals(1 - distanceL1(q,documents.get(m.document))/2, m.score, 1e-8);
+				if( i > 0 )
+					assertTrue(results.get(i-1).score >= m.score);
+			}
+
+			// documents which aren't returned have nothing in common
+			int shared = 0;
+			for( BowVector d : documents ) {
+				if( distanceL1(q,d) < 2 - 1e-8 )
+					shared++;
+			}
+			assertEquals(shared,results.size);
+		}
+	}
+
+	@Test
+	public void query_identical() {
+		InvertedIndexTfIdf alg = new InvertedIndexTfIdf();
+
+		List<BowVector> documents = new ArrayList<BowVector>();
+		for( int i = 0; i < 10; i++ ) {
+			BowVector v = random(50,10);
+			documents.add(v);
+			alg.add(v);
+		}
+
+		alg.query(documents.get(4),10,3,results);
+		assertTrue(results.size <= 3);
+		assertEquals(4,results.get(0).document);
+		assertEquals(1,results.get(0).score,1e-8);
+
+		// exclude the identical document
+		alg.query(documents.get(4),4,10,results);
+		for( int i = 0; i < results.size; i++ ) {
+			assertTrue(results.get(i).document < 4);
+			assertTrue(results.get(i).score < 1);
+		}
+	}
+
+	private BowVector random( int numWords , int count ) {
+		boolean[] used = new boolean[numWords];
+		for( int i = 0; i < count; i++ )
+			used[rand.nextInt(numWords)] = true;
+
+		BowVector v = new BowVector();
+		double total = 0;
+		for( int i = 0; i < numWords; i++ ) {
+			if( used[i] ) {
+				double w = rand.nextDouble() + 0.1;
+				v.words.add(i);
+				v.values.add(w);
+				total += w;
+			}
+		}
+		for( int i = 0; i < v.size(); i++ )
+			v.values.data[i] /= total;
+		return v;
+	}
+
+	private double distanceL1( BowVector a , BowVector b ) {
+		double[] dense = new double[200];
+		for( int i = 0; i < a.size(); i++ )
+			dense[a.words.get(i)] += a.values.get(i);
+		for( int i = 0; i < b.size(); i++ )
+			dense[b.words.get(i)] -= b.values.get(i);
+		double total = 0;
+		for( double v : dense )
+			total += Math.abs(v);
+		return total;
+	}
+}
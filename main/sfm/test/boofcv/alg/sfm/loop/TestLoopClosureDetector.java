@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import boofcv.abst.feature.associate.ScoreAssociateEuclideanSq_F64;
+import boofcv.factory.feature.associate.FactoryAssociation;
+import boofcv.struct.feature.TupleDesc_F64;
+import boofcv.struct.geo.AssociatedPair;
+import boofcv.struct.geo.Point2D3D;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import org.ddogleg.fitting.modelset.ModelMatcher;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestLoopClosureDetector {
+
+	Random rand = new Random(234);
+
+	// features in each place
+	List<List<TupleDesc_F64>> placeDesc = new ArrayList<List<TupleDesc_F64>>();
+	List<List<Point2D_F64>> placeObs = new ArrayList<List<Point2D_F64>>();
+
+	VocabularyTree<TupleDesc_F64> vocabulary;
+
+	public TestLoopClosureDetector() {
+		for( int i = 0; i < 12; i++ ) {
+			List<TupleDesc_F64> desc = new ArrayList<TupleDesc_F64>();
+			List<Point2D_F64> obs = new ArrayList<Point2D_F64>();
+			for( int j = 0; j < 40; j++ ) {
+				TupleDesc_F64 d = new TupleDesc_F64(8);
+				for( int k = 0; k < 8; k++ )
+					d.value[k] = rand.nextDouble();
+				desc.add(d);
+				obs.add(new Point2D_F64(rand.nextGaussian(),rand.nextGaussian()));
+			}
+			placeDesc.add(desc);
+			placeObs.add(obs);
+		}
+
+		vocabulary = new VocabularyTree<TupleDesc_F64>(6,3,new ScoreAssociateEuclideanSq_F64(),new ComputeTupleMean_F64());
+		vocabulary.learn(placeDesc,rand);
+	}
+
+	/**
+	 * Visit several places then return to one of them
+	 */
+	@Test
+	public void detectLoop() {
+		LoopClosureDetector<TupleDesc_F64> alg = create(new DummyEpipolar(), null, 3);
+
+		for( int i = 0; i < 10; i++ ) {
+			assertFalse(alg.process(createFrame(i,i)));
+		}
+		assertTrue(alg.process(createFrame(10,2)));
+
+		LoopClosure found = alg.getDetected();
+		assertEquals(10,found.queryId);
+		assertEquals(2,found.matchId);
+		assertEquals(40,found.inliers);
+		assertFalse(found.knownScale);
+		assertTrue(found.score > 0.5);
+
+		// a place which hasn't been seen before
+		assertFalse(alg.process(createFrame(11,11)));
+		assertEquals(12,alg.getNumKeyFrames());
+	}
+
+	/**
+	 * Recent key frames should not be considered
+	 */
+	@Test
+	public void minSeparation() {
+		LoopClosureDetector<TupleDesc_F64> alg = create(new DummyEpipolar(), null, 3);
+
+		for( int i = 0; i < 6; i++ ) {
+			assertFalse(alg.process(createFrame(i,i)));
+		}
+		assertFalse(alg.process(createFrame(6,4)));
+		assertTrue(alg.process(createFrame(7,2)));
+	}
+
+	/**
+	 * Similar appearance but geometric verification fails
+	 */
+	@Test
+	public void rejectGeometry() {
+		DummyEpipolar epipolar = new DummyEpipolar();
+		LoopClosureDetector<TupleDesc_F64> alg = create(epipolar, null, 3);
+
+		for( int i = 0; i < 10; i++ ) {
+			alg.process(createFrame(i,i));
+		}
+		epipolar.fail = true;
+		assertFalse(alg.process(createFrame(10,2)));
+	}
+
+	/**
+	 * If the older key frame has 3D locations then PnP should be used
+	 */
+	@Test
+	public void usePnP() {
+		DummyPnP pnp = new DummyPnP();
+		LoopClosureDetector<TupleDesc_F64> alg = create(new DummyEpipolar(), pnp, 3);
+
+		for( int i = 0; i < 10; i++ ) {
+			LoopKeyFrame<TupleDesc_F64> frame = createFrame(i, i);
+			for( Point2D_F64 p : frame.observations )
+				frame.locations.add(new Point3D_F64(p.x,p.y,1));
+			alg.process(frame);
+		}
+		assertTrue(alg.process(createFrame(10,2)));
+		assertTrue(alg.getDetected().knownScale);
+		assertEquals(40,pnp.count);
+		assertEquals(2,alg.getDetected().matchToQuery.getT().x,1e-8);
+	}
+
+	private LoopClosureDetector<TupleDesc_F64> create( ModelMatcher<Se3_F64,AssociatedPair> epipolar ,
+													   ModelMatcher<Se3_F64,Point2D3D> pnp ,
+													   int minSeparation ) {
+		return new LoopClosureDetector<TupleDesc_F64>(vocabulary,
+				FactoryAssociation.greedy(new ScoreAssociateEuclideanSq_F64(),0.01,true),
+				epipolar,pnp,minSeparation,3,0.1,20,TupleDesc_F64.class);
+	}
+
+	LoopClosureDetector<TupleDesc_F64> createDetector() {
+		return create(new DummyEpipolar(), null, 3);
+	}
+
+	LoopKeyFrame<TupleDesc_F64> createFrame( long id , int place ) {
+		LoopKeyFrame<TupleDesc_F64> frame = new LoopKeyFrame<TupleDesc_F64>();
+		frame.id = id;
+		for( int i = 0; i < placeDesc.get(place).size(); i++ ) {
+			TupleDesc_F64 d = placeDesc.get(place).get(i).copy();
+			for( int k = 0; k < d.value.length; k++ )
+				d.value[k] += rand.nextGaussian()*0.001;
+			frame.descriptions.add(d);
+			frame.observations.add(placeObs.get(place).get(i).copy());
+		}
+		return frame;
+	}
+
+	/**
+	 * Inliers are pairs whose observations are identical
+	 */
+	private static class DummyEpipolar implements ModelMatcher<Se3_F64,AssociatedPair> {
+		boolean fail = false;
+		List<AssociatedPair> inliers = new ArrayList<AssociatedPair>();
+
+		@Override
+		public boolean process(List<AssociatedPair> dataSet) {
+			inliers.clear();
+			for( AssociatedPair p : dataSet ) {
+				if( p.p1.distance(p.p2) < 1e-8 )
+					inliers.add(p);
+			}
+			return !fail;
+		}
+
+		@Override public Se3_F64 getModelParameters() {return new Se3_F64();}
+		@Override public List<AssociatedPair> getMatchSet() {return inliers;}
+		@Override public int getInputIndex(int matchIndex) {return 0;}
+		@Override public double getFitQuality() {return 0;}
+		@Override public int getMinimumSize() {return 1;}
+	}
+
+	/**
+	 * Inliers are points whose location projects onto the observation
+	 */
+	private static class DummyPnP implements ModelMatcher<Se3_F64,Point2D3D> {
+		int count;
+		List<Point2D3D> inliers = new ArrayList<Point2D3D>();
+
+		@Override
+		public boolean process(List<Point2D3D> dataSet) {
+			inliers.clear();
+			for( Point2D3D p : dataSet ) {
+				if( Math.abs(p.location.x - p.observation.x) < 1e-8 )
+					inliers.add(p);
+			}
+			count = inliers.size();
+			return true;
+		}
+
+		@Override public Se3_F64 getModelParameters() {
+			Se3_F64 ret = new Se3_F64();
+			ret.getT().x = 2;
+			return ret;
+		}
+		@Override public List<Point2D3D> getMatchSet() {return inliers;}
+		@Override public int getInputIndex(int matchIndex) {return 0;}
+		@Override public double getFitQuality() {return 0;}
+		@Override public int getMinimumSize() {return 1;}
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import boofcv.abst.feature.detdesc.DetectDescribePoint;
+import boofcv.abst.feature.detect.interest.ConfigGeneralDetector;
+import boofcv.abst.feature.disparity.StereoDisparitySparse;
+import boofcv.abst.feature.tracker.PointTrackerTwoPass;
+import boofcv.abst.sfm.d3.StereoVisOdomPipeline;
+import boofcv.abst.sfm.d3.StereoVisualOdometry;
+import boofcv.abst.sfm.d3.VideoSequenceSimulator;
+import boofcv.abst.sfm.d3.VisOdomPipeline;
+import boofcv.alg.misc.ImageStatistics;
+import boofcv.alg.tracker.klt.PkltConfig;
+import boofcv.factory.feature.disparity.FactoryStereoDisparity;
+import boofcv.factory.feature.tracker.FactoryPointTrackerTwoPass;
+import boofcv.factory.sfm.FactoryVisualOdometry;
+import boofcv.struct.calib.IntrinsicParameters;
+import boofcv.struct.calib.StereoParameters;
+import boofcv.struct.distort.PointTransform_F64;
+import boofcv.struct.feature.TupleDesc_F64;
+import boofcv.struct.image.ImageFloat32;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.se.Se3_F64;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestLoopClosureWorker {
+
+	/**
+	 * Results should be the same as calling the detector directly
+	 */
+	@Test
+	public void compareToDetector() {
+		TestLoopClosureDetector helper = new TestLoopClosureDetector();
+
+		List<LoopKeyFrame<TupleDesc_F64>> frames = new ArrayList<LoopKeyFrame<TupleDesc_F64>>();
+		for( int i = 0; i < 10; i++ )
+			frames.add(helper.createFrame(i,i));
+		frames.add(helper.createFrame(10,2));
+		frames.add(helper.createFrame(11,11));
+		frames.add(helper.createFrame(12,5));
+
+		LoopClosureDetector<TupleDesc_F64> expected = helper.createDetector();
+		List<LoopClosure> found = new ArrayList<LoopClosure>();
+		for( LoopKeyFrame<TupleDesc_F64> f : frames ) {
+			if( expected.process(f) )
+				found.add(expected.getDetected().copy());
+		}
+		assertEquals(2,found.size());
+
+		LoopClosureWorker<ImageFloat32,TupleDesc_F64> alg =
+				new LoopClosureWorker<ImageFloat32,TupleDesc_F64>(helper.createDetector(),null,null);
+		for( LoopKeyFrame<TupleDesc_F64> f : frames )
+			alg.submit(f);
+		alg.flush();
+		assertEquals(0,alg.getPending());
+
+		for( LoopClosure e : found ) {
+			LoopClosure a = alg.poll();
+			assertNotNull(a);
+			assertEquals(e.queryId,a.queryId);
+			assertEquals(e.matchId,a.matchId);
+			assertEquals(e.score,a.score,1e-8);
+			assertEquals(e.inliers,a.inliers);
+		}
+		assertNull(alg.poll());
+
+		alg.shutdown();
+	}
+
+	/**
+	 * Visual odometry moves forward then back to where it started.  Its key frames are passed to the worker through
+	 * the key frame listener and the loops should be detected.
+	 */
+	@Test
+	public void odometryClosesLoop() {
+		final TestLoopClosureDetector helper = new TestLoopClosureDetector();
+		PlaceDetector describe = new PlaceDetector(helper);
+		PointTransform_F64 identity = new PointTransform_F64() {
+			@Override
+			public void compute(double x, double y, Point2D_F64 out) {
+				out.set(x,y);
+			}
+		};
+		LoopClosureWorker<ImageFloat32,TupleDesc_F64> worker =
+				new LoopClosureWorker<ImageFloat32,TupleDesc_F64>(helper.createDetector(),describe,identity);
+
+		StereoDisparitySparse<ImageFloat32> disparity =
+				FactoryStereoDisparity.regionSparseWta(2, 150, 3, 3, 30, -1, true, ImageFloat32.class);
+		PkltConfig configKlt = new PkltConfig();
+		configKlt.pyramidScaling = new int[]{1,2,4,8};
+		configKlt.templateRadius = 3;
+		PointTrackerTwoPass<ImageFloat32> tracker = FactoryPointTrackerTwoPass.klt(configKlt,
+				new ConfigGeneralDetector(600,3,1), ImageFloat32.class, ImageFloat32.class);
+		// every frame is a key frame
+		StereoVisualOdometry<ImageFloat32> vo = FactoryVisualOdometry.stereoDepth(1.5,Integer.MAX_VALUE,2,200,50,
+				false,disparity,tracker,ImageFloat32.class);
+
+		StereoParameters param = new StereoParameters();
+		param.setRightToLeft(new Se3_F64());
+		param.getRightToLeft().getT().set(-0.2,0,0);
+		param.left = new IntrinsicParameters(200,201,0,160,120,320,240,false,new double[]{0,0});
+		param.right = new IntrinsicParameters(200,201,0,160,120,320,240,false,new double[]{0,0});
+		vo.setCalibration(param);
+
+		StereoVisOdomPipeline<ImageFloat32> pipeline = new StereoVisOdomPipeline<ImageFloat32>(vo,2,false);
+		pipeline.setKeyFrameListener(worker);
+
+		VideoSequenceSimulator<ImageFloat32> sim =
+				new VideoSequenceSimulator<ImageFloat32>(320,240,ImageFloat32.class) {{ createSquares(100,1,2); }};
+		ImageFloat32 left = new ImageFloat32(320,240);
+		ImageFloat32 right = new ImageFloat32(320,240);
+		Se3_F64 worldToLeft = new Se3_F64();
+		Se3_F64 worldToRight = new Se3_F64();
+		Se3_F64 leftToRight = param.getRightToLeft().invert(null);
+
+		// forward 5 steps then back to the start
+		for( int i = 0; i <= 10; i++ ) {
+			worldToLeft.getT().z = Math.min(i,10-i)*0.05;
+			worldToLeft.concat(leftToRight,worldToRight);
+
+			sim.setIntrinsic(param.getLeft());
+			left.setTo(sim.render(worldToLeft));
+			sim.setIntrinsic(param.getRight());
+			right.setTo(sim.render(worldToRight));
+			pipeline.submit(left,right);
+		}
+		VisOdomPipeline.Result result = new VisOdomPipeline.Result();
+		for( int i = 0; i <= 10; i++ ) {
+			pipeline.take(result);
+			assertTrue(result.updated);
+		}
+		pipeline.shutdown();
+		worker.flush();
+
+		// revisited places which are far enough apart in time
+		int expectedQuery[] = new int[]{7,8,9,10};
+		int expectedMatch[] = new int[]{3,2,1,0};
+		for( int i = 0; i < expectedQuery.length; i++ ) {
+			LoopClosure found = worker.poll();
+			assertNotNull(found);
+			assertEquals(expectedQuery[i],found.queryId);
+			assertEquals(expectedMatch[i],found.matchId);
+		}
+		assertNull(worker.poll());
+		assertEquals(11,describe.images.size());
+		assertEquals(6,describe.numPlaces);
+
+		worker.shutdown();
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void submitImage_noDetector() {
+		TestLoopClosureDetector helper = new TestLoopClosureDetector();
+		LoopClosureWorker<ImageFloat32,TupleDesc_F64> alg =
+				new LoopClosureWorker<ImageFloat32,TupleDesc_F64>(helper.createDetector(),null,null);
+		alg.submit(0,new Se3_F64(),new ImageFloat32(10,10));
+	}
+
+	/**
+	 * Each distinct image is a different place.  Identical images have the same features.
+	 */
+	private static class PlaceDetector implements DetectDescribePoint<ImageFloat32,TupleDesc_F64> {
+		TestLoopClosureDetector helper;
+		List<ImageFloat32> images = new ArrayList<ImageFloat32>();
+		List<Integer> places = new ArrayList<Integer>();
+		int numPlaces = 0;
+		int place;
+
+		private PlaceDetector(TestLoopClosureDetector helper) {
+			this.helper = helper;
+		}
+
+		@Override
+		public void detect(ImageFloat32 input) {
+			place = -1;
+			for( int i = 0; i < images.size() && place < 0; i++ ) {
+				if( ImageStatistics.meanDiffAbs(images.get(i),input) == 0 )
+					place = places.get(i);
+			}
+			if( place < 0 )
+				place = numPlaces++;
+			images.add(input.clone());
+			places.add(place);
+		}
+
+		@Override public TupleDesc_F64 getDescription(int index) {return helper.placeDesc.get(place).get(index);}
+		@Override public int getNumberOfFeatures() {return helper.placeDesc.get(place).size();}
+		@Override public Point2D_F64 getLocation(int index) {return helper.placeObs.get(place).get(index);}
+		@Override public double getScale(int featureIndex) {return 1;}
+		@Override public double getOrientation(int featureIndex) {return 0;}
+		@Override public boolean hasScale() {return false;}
+		@Override public boolean hasOrientation() {return false;}
+		@Override public TupleDesc_F64 createDescription() {return new TupleDesc_F64(8);}
+		@Override public Class<TupleDesc_F64> getDescriptionType() {return TupleDesc_F64.class;}
+	}
+}
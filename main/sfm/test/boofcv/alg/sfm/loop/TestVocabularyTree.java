@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.loop;
+
+import boofcv.abst.feature.associate.ScoreAssociateEuclideanSq_F64;
+import boofcv.abst.feature.associate.ScoreAssociateHamming_B;
+import boofcv.struct.feature.TupleDesc_B;
+import boofcv.struct.feature.TupleDesc_F64;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestVocabularyTree {
+
+	Random rand = new Random(234);
+
+	/**
+	 * Descriptors which are close to the same cluster should be assigned the same word
+	 */
+	@Test
+	public void learn_lookup() {
+		List<TupleDesc_F64> centers = new ArrayList<TupleDesc_F64>();
+		for( int i = 0; i < 16; i++ )
+			centers.add(randomDesc(8));
+
+		// each image contains a few of the clusters
+		List<List<TupleDesc_F64>> images = new ArrayList<List<TupleDesc_F64>>();
+		for( int i = 0; i < 16; i++ ) {
+			List<TupleDesc_F64> image = new ArrayList<TupleDesc_F64>();
+			for( int j = 0; j < 4; j++ ) {
+				TupleDesc_F64 c = centers.get((i+j)%centers.size());
+				for( int k = 0; k < 5; k++ )
+					image.add(c.copy());
+			}
+			images.add(image);
+		}
+
+		VocabularyTree<TupleDesc_F64> alg = createF64(4,3);
+		alg.learn(images,rand);
+
+		// identical descriptors can't be split, so each cluster should be a word
+		assertEquals(16,alg.getNumWords());
+
+		// words shared by every image would have a weight of zero
+		for( int i = 0; i < alg.getNumWords(); i++ ) {
+			assertTrue(alg.getWeight(i) >= 0);
+		}
+
+		for( TupleDesc_F64 c : centers ) {
+			int word = alg.lookup(c);
+			int matches = 0;
+			for( int i = 0; i < 10; i++ ) {
+				if( alg.lookup(noisy(c,0.01)) == word )
+					matches++;
+			}
+			assertEquals(10,matches);
+		}
+
+		// each cluster should be a different word
+		boolean[] used = new boolean[alg.getNumWords()];
+		for( TupleDesc_F64 c : centers ) {
+			int word = alg.lookup(c);
+			assertFalse(used[word]);
+			used[word] = true;
+		}
+	}
+
+	@Test
+	public void learn_binary() {
+		List<TupleDesc_B> centers = new ArrayList<TupleDesc_B>();
+		for( int i = 0; i < 8; i++ ) {
+			TupleDesc_B d = new TupleDesc_B(64);
+			for( int j = 0; j < d.data.length; j++ )
+				d.data[j] = rand.nextInt();
+			centers.add(d);
+		}
+
+		List<List<TupleDesc_B>> images = new ArrayList<List<TupleDesc_B>>();
+		for( int i = 0; i < 8; i++ ) {
+			List<TupleDesc_B> image = new ArrayList<TupleDesc_B>();
+			for( int j = 0; j < 2; j++ ) {
+				for( int k = 0; k < 5; k++ ) {
+					image.add(centers.get((i+j)%centers.size()).copy());
+				}
+			}
+			images.add(image);
+		}
+
+		VocabularyTree<TupleDesc_B> alg =
+				new VocabularyTree<TupleDesc_B>(3,3,new ScoreAssociateHamming_B(),new ComputeTupleMean_B());
+		alg.learn(images,rand);
+
+		assertEquals(8,alg.getNumWords());
+
+		// flipping a single bit shouldn't change the word
+		for( int i = 0; i < centers.size(); i++ ) {
+			int word = alg.lookup(centers.get(i));
+			for( int trial = 0; trial < 5; trial++ ) {
+				TupleDesc_B d = centers.get(i).copy();
+				int bit = rand.nextInt(64);
+				d.data[bit/32] ^= 1 << (bit%32);
+				assertEquals(word,alg.lookup(d));
+			}
+		}
+	}
+
+	@Test
+	public void computeVector() {
+		List<List<TupleDesc_F64>> images = new ArrayList<List<TupleDesc_F64>>();
+		for( int i = 0; i < 10; i++ ) {
+			List<TupleDesc_F64> image = new ArrayList<TupleDesc_F64>();
+			for( int j = 0; j < 30; j++ )
+				image.add(randomDesc(4));
+			images.add(image);
+		}
+
+		VocabularyTree<TupleDesc_F64> alg = createF64(5,2);
+		alg.learn(images,rand);
+
+		BowVector v = new BowVector();
+		alg.computeVector(images.get(3),v);
+
+		assertTrue(v.size() > 0);
+		double total = 0;
+		for( int i = 0; i < v.size(); i++ ) {
+			if( i > 0 )
+				assertTrue(v.words.get(i-1) < v.words.get(i));
+			assertTrue(v.values.get(i) > 0);
+			total += v.values.get(i);
+		}
+		assertEquals(1,total,1e-8);
+
+		// compare against a brute force histogram
+		double[] expected = new double[alg.getNumWords()];
+		double sum = 0;
+		for( TupleDesc_F64 d : images.get(3) ) {
+			int word = alg.lookup(d);
+			expected[word] += alg.getWeight(word);
+			sum += alg.getWeight(word);
+		}
+		for( int i = 0; i < v.size(); i++ ) {
+			assertEquals(expected[v.words.get(i)]/sum, v.values.get(i), 1e-8);
+		}
+	}
+
+	private VocabularyTree<TupleDesc_F64> createF64( int branch , int levels ) {
+		return new VocabularyTree<TupleDesc_F64>(branch,levels,
+				new ScoreAssociateEuclideanSq_F64(),new ComputeTupleMean_F64());
+	}
+
+	private TupleDesc_F64 randomDesc( int length ) {
+		TupleDesc_F64 d = new TupleDesc_F64(length);
+		for( int i = 0; i < length; i++ )
+			d.value[i] = rand.nextDouble();
+		return d;
+	}
+
+	private TupleDesc_F64 noisy( TupleDesc_F64 d , double sigma ) {
+		TupleDesc_F64 ret = d.copy();
+		for( int i = 0; i < ret.value.length; i++ )
+			ret.value[i] += rand.nextGaussian()*sigma;
+		return ret;
+	}
+}
@@ -18,6 +18,8 @@
 
 package boofcv.alg.sfm.robust;
 
+import boofcv.alg.robust.DistanceFromModelPacked;
+import boofcv.alg.robust.PackedPoints;
 import org.ddogleg.fitting.modelset.DistanceFromModel;
 import org.junit.Test;
 
@@ -79,4 +81,34 @@ public abstract class StandardDistanceTest<Model,Data> {
 			assertEquals(expected[i],found[i],1e-4);
 		}
 	}
+
+	/**
+	 * If it can process packed points then the results should be identical to processing each point
+	 */
+	@Test
+	public void testPacked() {
+		DistanceFromModel<Model,Data> alg = create();
+		if( !(alg instanceof DistanceFromModelPacked) )
+			return;
+		DistanceFromModelPacked<Model,Data,PackedPoints<Data>> packedAlg = (DistanceFromModelPacked)alg;
+
+		Model m = createRandomModel();
+		alg.setModel(m);
+
+		List<Data> obs = new ArrayList<Data>();
+		for( int i = 0; i < 10; i++ ) {
+			obs.add(createRandomData());
+		}
+
+		PackedPoints<Data> packed = packedAlg.createPacked();
+		packed.setTo(obs);
+		assertEquals(10,packed.size());
+
+		double found[] = new double[10];
+		packedAlg.computeDistance(packed,found);
+
+		for( int i = 0; i < 10; i++ ) {
+			assertEquals(alg.computeDistance(obs.get(i)),found[i],0);
+		}
+	}
 }
@@ -96,4 +96,27 @@ public class TestDistancePlane2DToPixelSq {
 		assertEquals(4, error, 1e-8);
 	}
 
+	/**
+	 * The copy should be updated even if the original's extrinsic transform is modified in place
+	 */
+	@Test
+	public void copier_modifiedInPlace() {
+		Se3_F64 extrinsic = planeToCamera.copy();
+		alg.setExtrinsic(extrinsic);
+
+		DistancePlane2DToPixelSq.Copier copier = new DistancePlane2DToPixelSq.Copier();
+		DistancePlane2DToPixelSq copy = (DistancePlane2DToPixelSq)copier.create();
+		copier.copyConfiguration(alg, copy);
+
+		// change the original without changing the reference
+		extrinsic.getT().y += 0.5;
+		alg.setExtrinsic(extrinsic);
+		copier.copyConfiguration(alg, copy);
+
+		pixelToNorm.compute(pixelPtB.x,pixelPtB.y,normPt);
+		PlanePtPixel p = new PlanePtPixel(planePtA,normPt);
+
+		copy.setModel(motion2D);
+		assertEquals(alg.computeDistance(p), copy.computeDistance(p), 1e-8);
+	}
 }
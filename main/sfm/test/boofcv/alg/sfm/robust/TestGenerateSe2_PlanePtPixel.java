@@ -65,7 +65,45 @@ public class TestGenerateSe2_PlanePtPixel {
 	@Test
 	public void perfect() {
 		alg.setExtrinsic(planeToCamera);
+		createObservations();
 
+		Se2_F64 found = new Se2_F64();
+		assertTrue(alg.generate(observations,found));
+
+		assertEquals(motion2D.T.x, found.T.x, 1e-8);
+		assertEquals(motion2D.T.y, found.T.y, 1e-8);
+		assertEquals(motion2D.getYaw(), found.getYaw(), 1e-8);
+	}
+
+	/**
+	 * The copy should be updated even if the original's extrinsic transform is modified in place
+	 */
+	@Test
+	public void copier_modifiedInPlace() {
+		Se3_F64 extrinsic = planeToCamera.copy();
+		extrinsic.getT().y += 0.5;
+		alg.setExtrinsic(extrinsic);
+
+		GenerateSe2_PlanePtPixel.Copier copier = new GenerateSe2_PlanePtPixel.Copier();
+		GenerateSe2_PlanePtPixel copy = (GenerateSe2_PlanePtPixel)copier.create();
+		copier.copyConfiguration(alg, copy);
+
+		// change the original without changing the reference
+		extrinsic.set(planeToCamera);
+		alg.setExtrinsic(extrinsic);
+		copier.copyConfiguration(alg, copy);
+
+		createObservations();
+
+		Se2_F64 found = new Se2_F64();
+		assertTrue(copy.generate(observations,found));
+
+		assertEquals(motion2D.T.x, found.T.x, 1e-8);
+		assertEquals(motion2D.T.y, found.T.y, 1e-8);
+		assertEquals(motion2D.getYaw(), found.getYaw(), 1e-8);
+	}
+
+	private void createObservations() {
 		CameraPlaneProjection planeProjection = new CameraPlaneProjection();
 		planeProjection.setConfiguration(planeToCamera, intrinsic);
 
@@ -86,13 +124,6 @@ public class TestGenerateSe2_PlanePtPixel {
 			s.planeKey.set(planePtA);
 			observations.add(s);
 		}
-
-		Se2_F64 found = new Se2_F64();
-		assertTrue(alg.generate(observations,found));
-
-		assertEquals(motion2D.T.x, found.T.x, 1e-8);
-		assertEquals(motion2D.T.y, found.T.y, 1e-8);
-		assertEquals(motion2D.getYaw(), found.getYaw(), 1e-8);
 	}
 
 
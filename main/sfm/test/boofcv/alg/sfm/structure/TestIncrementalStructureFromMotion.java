@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import boofcv.abst.geo.Estimate1ofPnP;
+import boofcv.alg.geo.pose.PnPDistanceReprojectionSq;
+import boofcv.alg.sfm.robust.EstimatorToGenerator;
+import boofcv.factory.geo.FactoryMultiView;
+import boofcv.factory.geo.FactoryTriangulate;
+import boofcv.struct.feature.TupleDesc_F64;
+import boofcv.struct.geo.Point2D3D;
+import georegression.fitting.se.ModelManagerSe3_F64;
+import georegression.geometry.RotationMatrixGenerator;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.point.Point3D_F64;
+import georegression.struct.se.Se3_F64;
+import georegression.transform.se.SePointOps_F64;
+import org.ddogleg.fitting.modelset.ModelMatcher;
+import org.ddogleg.fitting.modelset.ransac.Ransac;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestIncrementalStructureFromMotion {
+
+	Random rand = new Random(234);
+
+	List<Point3D_F64> worldPts = new ArrayList<Point3D_F64>();
+	List<Se3_F64> truthWorldToView = new ArrayList<Se3_F64>();
+	List<ImageFeatureSet<TupleDesc_F64>> images = new ArrayList<ImageFeatureSet<TupleDesc_F64>>();
+	ViewGraph graph = new ViewGraph();
+
+	int numViews = 8;
+
+	public TestIncrementalStructureFromMotion() {
+		for( int i = 0; i < 300; i++ ) {
+			worldPts.add(new Point3D_F64(rand.nextGaussian(), rand.nextGaussian(), 5 + rand.nextGaussian()*0.5));
+		}
+
+		// cameras move along a line.  Each camera sees all the points and feature 'i' is point 'i'
+		for( int i = 0; i < numViews; i++ ) {
+			Se3_F64 viewToWorld = new Se3_F64();
+			viewToWorld.getT().set(0.4*i, 0.05*i, 0);
+			RotationMatrixGenerator.eulerXYZ(0, -0.02*i, 0, viewToWorld.getR());
+			truthWorldToView.add(viewToWorld.invert(null));
+
+			ImageFeatureSet<TupleDesc_F64> image = new ImageFeatureSet<TupleDesc_F64>();
+			for( Point3D_F64 p : worldPts ) {
+				Point3D_F64 c = SePointOps_F64.transform(truthWorldToView.get(i), p, null);
+				image.observations.add(new Point2D_F64(c.x/c.z, c.y/c.z));
+				image.descriptions.add(new TupleDesc_F64(1));
+			}
+			images.add(image);
+		}
+
+		// only adjacent views are matched and the first pair has the most matches
+		List<PairMatch> matches = new ArrayList<PairMatch>();
+		for( int i = 0; i < numViews-1; i++ ) {
+			PairMatch m = new PairMatch();
+			m.viewA = i;
+			m.viewB = i+1;
+			truthWorldToView.get(i).invert(null).concat(truthWorldToView.get(i+1), m.aToB);
+			int N = i == 0 ? worldPts.size() : worldPts.size()-10;
+			for( int j = 0; j < N; j++ ) {
+				m.featA.add(j);
+				m.featB.add(j);
+			}
+			matches.add(m);
+		}
+
+		int[] counts = new int[numViews];
+		for( int i = 0; i < numViews; i++ )
+			counts[i] = worldPts.size();
+		graph.process(counts, matches);
+	}
+
+	@Test
+	public void process() {
+		IncrementalStructureFromMotion alg = create(3);
+		assertTrue(alg.process(images, graph));
+
+		checkReconstruction(alg);
+	}
+
+	/**
+	 * Simulate a crash part way through and resume from the checkpoint
+	 */
+	@Test
+	public void checkpoint_resume() throws Exception {
+		File file = File.createTempFile("sfm",".bin");
+		assertTrue(file.delete());
+		try {
+			IncrementalStructureFromMotion expected = create(2);
+			assertTrue(expected.process(images, graph));
+
+			IncrementalStructureFromMotion alg = create(2, 5);
+			alg.setCheckpoint(file);
+			try {
+				alg.process(images, graph);
+				fail("Should have crashed");
+			} catch( RuntimeException ignore ){}
+			assertTrue(file.exists());
+
+			IncrementalStructureFromMotion resumed = create(2);
+			resumed.setCheckpoint(file);
+			assertTrue(resumed.process(images, graph));
+			checkReconstruction(resumed);
+
+			for( int i = 0; i < numViews; i++ ) {
+				assertEquals(expected.getRegistrationOrder().get(i), resumed.getRegistrationOrder().get(i));
+				Se3_F64 a = expected.getWorldToView(i);
+				Se3_F64 b = resumed.getWorldToView(i);
+				assertEquals(0, a.getT().distance(b.getT()), 1e-6);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Simulate a crash after the checkpoint was deleted but before the temporary file was renamed
+	 */
+	@Test
+	public void checkpoint_resumeTemporary() throws Exception {
+		File file = File.createTempFile("sfm",".bin");
+		File tmp = new File(file.getPath()+".tmp");
+		assertTrue(file.delete());
+		try {
+			IncrementalStructureFromMotion expected = create(2);
+			expected.setCheckpoint(file);
+			assertTrue(expected.process(images, graph));
+			assertTrue(file.renameTo(tmp));
+
+			// crashes if it doesn't resume from the checkpoint and has to register views
+			IncrementalStructureFromMotion resumed = create(2, 5);
+			resumed.setCheckpoint(file);
+			assertTrue(resumed.process(images, graph));
+			checkReconstruction(resumed);
+
+			for( int i = 0; i < numViews; i++ ) {
+				assertEquals(expected.getRegistrationOrder().get(i), resumed.getRegistrationOrder().get(i));
+				Se3_F64 a = expected.getWorldToView(i);
+				Se3_F64 b = resumed.getWorldToView(i);
+				assertEquals(0, a.getT().distance(b.getT()), 1e-8);
+			}
+		} finally {
+			file.delete();
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * The checkpoint must have been created from the same view graph
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void checkpoint_mismatch() throws Exception {
+		File file = File.createTempFile("sfm",".bin");
+		try {
+			IncrementalStructureFromMotion alg = create(2);
+			alg.setCheckpoint(file);
+			assertTrue(file.delete());
+			assertTrue(alg.process(images, graph));
+
+			// remove the last view
+			List<PairMatch> matches = new ArrayList<PairMatch>();
+			for( int i = 0; i < numViews-2; i++ )
+				matches.addAll(graph.getEdges(i).subList(graph.getEdges(i).size()-1,graph.getEdges(i).size()));
+			ViewGraph smaller = new ViewGraph();
+			int[] counts = new int[numViews-1];
+			for( int i = 0; i < counts.length; i++ )
+				counts[i] = worldPts.size();
+			smaller.process(counts, matches);
+
+			alg.process(images.subList(0,numViews-1), smaller);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Compare to the truth, accounting for scale
+	 */
+	private void checkReconstruction( IncrementalStructureFromMotion alg ) {
+		assertEquals(numViews, alg.getRegistrationOrder().size);
+		assertEquals(0, alg.getRegistrationOrder().get(0));
+		assertEquals(1, alg.getRegistrationOrder().get(1));
+		assertEquals(worldPts.size(), alg.getNumPoints());
+
+		double scale = truthWorldToView.get(1).getT().norm();
+		for( int i = 0; i < numViews; i++ ) {
+			Se3_F64 found = alg.getWorldToView(i);
+			Se3_F64 expected = truthWorldToView.get(i);
+			assertEquals(expected.getT().x, found.getT().x*scale, 1e-4);
+			assertEquals(expected.getT().y, found.getT().y*scale, 1e-4);
+			assertEquals(expected.getT().z, found.getT().z*scale, 1e-4);
+		}
+	}
+
+	private IncrementalStructureFromMotion create( int period ) {
+		return create(period, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param crashAfter PnP will throw an exception after it has been called this many times
+	 */
+	private IncrementalStructureFromMotion create( int period , final int crashAfter ) {
+		Estimate1ofPnP estimator = FactoryMultiView.computePnPwithEPnP(10,0.1);
+		ModelMatcher<Se3_F64,Point2D3D> pnp = new Ransac<Se3_F64, Point2D3D>(234,new ModelManagerSe3_F64(),
+				new EstimatorToGenerator<Se3_F64,Point2D3D>(estimator),
+				new PnPDistanceReprojectionSq(500,500,0),100,1) {
+			int count = 0;
+			@Override
+			public boolean process(List<Point2D3D> dataSet) {
+				if( count++ >= crashAfter )
+					throw new RuntimeException("Crash");
+				return super.process(dataSet);
+			}
+		};
+
+		return new IncrementalStructureFromMotion(pnp, FactoryTriangulate.twoGeometric(),
+				FactoryMultiView.bundleCalibratedSparse(1e-8,20),20,0.01,period);
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import boofcv.struct.feature.TupleDesc_F64;
+import georegression.struct.point.Point2D_F64;
+import georegression.struct.point.Vector3D_F64;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestMatchCache {
+
+	@Test
+	public void saveLoad() throws Exception {
+		File dir = File.createTempFile("cache","");
+		assertTrue(dir.delete());
+		try {
+			MatchCache alg = new MatchCache(dir);
+			assertFalse(alg.contains(2));
+
+			List<PairMatch> row = new ArrayList<PairMatch>();
+			PairMatch m = TestViewGraph.match(2, 5, new int[]{1, 4, 9}, new int[]{3, 2, 7});
+			m.aToB.getT().set(1, -2, 3);
+			m.aToB.getR().set(0, 1, 0.5);
+			row.add(m);
+			row.add(TestViewGraph.match(2, 6, new int[]{}, new int[]{}));
+
+			alg.save(2, row);
+			assertTrue(alg.contains(2));
+			assertFalse(alg.contains(3));
+
+			List<PairMatch> found = new MatchCache(dir).load(2);
+			assertEquals(2, found.size());
+
+			PairMatch f = found.get(0);
+			assertEquals(2, f.viewA);
+			assertEquals(5, f.viewB);
+			assertEquals(3, f.size());
+			for( int i = 0; i < 3; i++ ) {
+				assertEquals(m.featA.get(i), f.featA.get(i));
+				assertEquals(m.featB.get(i), f.featB.get(i));
+			}
+			assertEquals(0, f.aToB.getT().distance(new Vector3D_F64(1, -2, 3)), 1e-12);
+			assertEquals(0.5, f.aToB.getR().get(0, 1), 1e-12);
+
+			assertEquals(6, found.get(1).viewB);
+			assertEquals(0, found.get(1).size());
+		} finally {
+			File[] files = dir.listFiles();
+			if( files != null )
+				for( File f : files )
+					f.delete();
+			dir.delete();
+		}
+	}
+
+	/**
+	 * Rows saved for different images or a different configuration should not be used
+	 */
+	@Test
+	public void staleRows() throws Exception {
+		File dir = File.createTempFile("cache","");
+		assertTrue(dir.delete());
+		try {
+			List<ImageFeatureSet<TupleDesc_F64>> images = createImages(3);
+
+			MatchCache alg = new MatchCache(dir,5);
+			alg.setImages(images);
+			List<PairMatch> row = new ArrayList<PairMatch>();
+			row.add(TestViewGraph.match(1, 2, new int[]{1, 4}, new int[]{3, 2}));
+			alg.save(1, row);
+			assertTrue(alg.contains(1));
+
+			// same images and configuration
+			MatchCache same = new MatchCache(dir,5);
+			same.setImages(createImages(3));
+			assertTrue(same.contains(1));
+			assertEquals(1, same.load(1).size());
+
+			// different configuration
+			MatchCache config = new MatchCache(dir,6);
+			config.setImages(images);
+			assertFalse(config.contains(1));
+
+			// a descriptor has been changed
+			images.get(2).descriptions.get(1).value[3] += 0.1;
+			MatchCache changed = new MatchCache(dir,5);
+			changed.setImages(images);
+			assertFalse(changed.contains(1));
+		} finally {
+			File[] files = dir.listFiles();
+			if( files != null )
+				for( File f : files )
+					f.delete();
+			dir.delete();
+		}
+	}
+
+	/**
+	 * A complete temporary file should be used if the row's file is missing, but not an incomplete one
+	 */
+	@Test
+	public void temporaryFile() throws Exception {
+		File dir = File.createTempFile("cache","");
+		assertTrue(dir.delete());
+		try {
+			MatchCache alg = new MatchCache(dir);
+			List<PairMatch> row = new ArrayList<PairMatch>();
+			row.add(TestViewGraph.match(1, 2, new int[]{1, 4}, new int[]{3, 2}));
+			alg.save(1, row);
+
+			File f = new File(dir,"matches000001.bin");
+			File tmp = new File(dir,"matches000001.bin.tmp");
+			assertTrue(f.renameTo(tmp));
+			assertTrue(alg.contains(1));
+			assertEquals(1, alg.load(1).size());
+
+			// chop off the end
+			RandomAccessFile raf = new RandomAccessFile(tmp,"rw");
+			raf.setLength(raf.length()-2);
+			raf.close();
+			assertFalse(alg.contains(1));
+		} finally {
+			File[] files = dir.listFiles();
+			if( files != null )
+				for( File f : files )
+					f.delete();
+			dir.delete();
+		}
+	}
+
+	private List<ImageFeatureSet<TupleDesc_F64>> createImages( int N ) {
+		Random rand = new Random(234);
+		List<ImageFeatureSet<TupleDesc_F64>> images = new ArrayList<ImageFeatureSet<TupleDesc_F64>>();
+		for( int i = 0; i < N; i++ ) {
+			ImageFeatureSet<TupleDesc_F64> image = new ImageFeatureSet<TupleDesc_F64>();
+			for( int j = 0; j < 5; j++ ) {
+				image.observations.add(new Point2D_F64(rand.nextGaussian(), rand.nextGaussian()));
+				TupleDesc_F64 desc = new TupleDesc_F64(8);
+				for( int k = 0; k < desc.size(); k++ )
+					desc.value[k] = rand.nextDouble();
+				image.descriptions.add(desc);
+			}
+			images.add(image);
+		}
+		return images;
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2011-2014, Peter Abeles. All Rights Reserved.
+ *
+ * This file is part of BoofCV (http://boofcv.org).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package boofcv.alg.sfm.structure;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Abeles
+ */
+public class TestViewGraph {
+
+	@Test
+	public void tracks() {
+		List<PairMatch> matches = new ArrayList<PairMatch>();
+		matches.add(match(0, 1, new int[]{0, 1, 2}, new int[]{2, 0, 3}));
+		matches.add(match(1, 2, new int[]{2, 0}, new int[]{1, 4}));
+
+		ViewGraph alg = new ViewGraph();
+		alg.process(new int[]{4, 5, 6}, matches);
+
+		assertEquals(3, alg.getNumViews());
+		assertEquals(1, alg.getEdges(0).size());
+		assertEquals(2, alg.getEdges(1).size());
+		assertEquals(1, alg.getEdges(2).size());
+		assertEquals(3, alg.getTracks().size());
+
+		// 0:0 -> 1:2 -> 2:1
+		int t = alg.getTrack(0, 0);
+		assertEquals(t, alg.getTrack(1, 2));
+		assertEquals(t, alg.getTrack(2, 1));
+		assertEquals(3, alg.getTracks().get(t).views.size);
+
+		// 0:1 -> 1:0 -> 2:4
+		t = alg.getTrack(0, 1);
+		assertEquals(t, alg.getTrack(1, 0));
+		assertEquals(t, alg.getTrack(2, 4));
+
+		// 0:2 -> 1:3
+		t = alg.getTrack(0, 2);
+		assertEquals(t, alg.getTrack(1, 3));
+		assertEquals(2, alg.getTracks().get(t).views.size);
+
+		// features not matched
+		assertEquals(-1, alg.getTrack(0, 3));
+		assertEquals(-1, alg.getTrack(1, 1));
+		assertEquals(-1, alg.getTrack(2, 0));
+
+		for( ViewGraph.Track track : alg.getTracks() )
+			assertFalse(track.inconsistent);
+	}
+
+	/**
+	 * A track which contains two features from the same view should be marked as inconsistent
+	 */
+	@Test
+	public void inconsistent() {
+		List<PairMatch> matches = new ArrayList<PairMatch>();
+		matches.add(match(0, 1, new int[]{0}, new int[]{0}));
+		matches.add(match(1, 2, new int[]{0}, new int[]{0}));
+		matches.add(match(0, 2, new int[]{1}, new int[]{0}));
+		matches.add(match(0, 1, new int[]{2}, new int[]{1}));
+
+		ViewGraph alg = new ViewGraph();
+		alg.process(new int[]{3, 2, 1}, matches);
+
+		assertEquals(2, alg.getTracks().size());
+		int numInconsistent = 0;
+		for( ViewGraph.Track track : alg.getTracks() ) {
+			if( track.inconsistent )
+				numInconsistent++;
+		}
+		assertEquals(1, numInconsistent);
+
+		assertEquals(-1, alg.getTrack(0, 0));
+		assertEquals(-1, alg.getTrack(0, 1));
+		assertEquals(-1, alg.getTrack(2, 0));
+		assertTrue(alg.getTrack(0, 2) >= 0);
+		assertEquals(alg.getTrack(0, 2), alg.getTrack(1, 1));
+	}
+
+	public static PairMatch match( int viewA , int viewB , int[] featA , int[] featB ) {
+		PairMatch m = new PairMatch();
+		m.viewA = viewA;
+		m.viewB = viewB;
+		for( int i = 0; i < featA.length; i++ ) {
+			m.featA.add(featA[i]);
+			m.featB.add(featB[i]);
+		}
+		return m;
+	}
+}